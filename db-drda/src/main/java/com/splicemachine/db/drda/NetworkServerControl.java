@@ -302,6 +302,14 @@ public class NetworkServerControl{
 	public void setSSLMode(int sslMode){
 		serverImpl.setSSLMode(sslMode);
 	}
+
+	/**
+	 * Serve sessions in non-blocking mode, whatever derby.drda.nio says.
+	 * Only takes effect if called before the server is started.
+	 */
+	public void setNio(boolean nio){
+		serverImpl.setNio(nio);
+	}
 	/**
 	 * main routine for NetworkServerControl
 	 *
@@ -1897,6 +1897,14 @@ class DDMReader
 		}
 	}
 
+	/**
+	 * @return true if data read from the socket hasn't been consumed yet
+	 */
+	protected boolean hasBufferedData()
+	{
+		return pos < count;
+	}
+
 	/**
 	 * This method will attempt to read a minimum number of bytes
 	 * from the underlying stream.	This method will keep trying to
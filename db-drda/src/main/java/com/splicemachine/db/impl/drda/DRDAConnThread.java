@@ -318,6 +318,8 @@ class DRDAConnThread extends Thread {
 
 			// get a new session
 			prevSession = session;
+			if (session != null)
+				saveSessionState();
 			session = server.getNextSession(session);
 			if (session == null)
 				close();
@@ -352,6 +354,8 @@ class DRDAConnThread extends Thread {
                                 // DDMReader.fill(), which will happen
                                 // only when timeSlice is set.
                             }
+							if (parkSession())
+								break;
 							currentTimeSlice = getTimeSlice();
 						} while ((currentTimeSlice <= 0)  || 
 							(System.currentTimeMillis() - timeStart < currentTimeSlice));
@@ -700,12 +704,19 @@ class DRDAConnThread extends Thread {
 		appRequester = session.appRequester;
 
 		// set sqlamLevel
-		if (session.state == Session.ATTEXC)
+		if (session.state >= Session.ATTEXC && appRequester != null)
 			sqlamLevel = appRequester.getManagerLevel(CodePoint.SQLAM);
 
-        /* All sessions MUST start as EBCDIC */
-        reader.setEbcdicCcsid();
-        writer.setEbcdicCcsid();
+        /* All sessions MUST start as EBCDIC, and stay on it unless UTF-8 was negotiated */
+        if (session.utf8Ccsid)
+            switchToUtf8();
+        else
+            switchToEbcdic();
+
+        pendingStatementTimeout = session.pendingStatementTimeout;
+        deferredReset = session.deferredReset;
+        sendWarningsOnCNTQRY = session.sendWarningsOnCNTQRY;
+        diagnosticLevel = session.diagnosticLevel;
 
         // Associate current session remote user to this thread
         RemoteUser.setRemoteUser(session.getRemoteUser());
@@ -1146,6 +1157,8 @@ class DRDAConnThread extends Thread {
 				case CodePoint.SYNCCTL:
 					if (xaProto == null)
 						xaProto = new DRDAXAProtocol(this);
+					// XA state is kept in this thread's xaProto
+					session.pinned = true;
 					xaProto.parseSYNCCTL();
  					try {
  						writePBSD();
@@ -1325,6 +1338,7 @@ class DRDAConnThread extends Thread {
 	private void switchToUtf8() {
         writer.setUtf8Ccsid();
         reader.setUtf8Ccsid();
+        session.utf8Ccsid = true;
 	}
 	
 	/**
@@ -1333,6 +1347,43 @@ class DRDAConnThread extends Thread {
 	private void switchToEbcdic() {
         writer.setEbcdicCcsid();
         reader.setEbcdicCcsid();
+        session.utf8Ccsid = false;
+	}
+
+	/**
+	 * Save the protocol state of the current session which is kept in this
+	 * thread, so that the session can be picked up by another thread.
+	 */
+	private void saveSessionState()
+	{
+		session.pendingStatementTimeout = pendingStatementTimeout;
+		session.deferredReset = deferredReset;
+		session.sendWarningsOnCNTQRY = sendWarningsOnCNTQRY;
+		session.diagnosticLevel = diagnosticLevel;
+	}
+
+	/**
+	 * In non-blocking mode, hand the current session to the server's selector
+	 * once its request has been answered, instead of blocking this thread until
+	 * the client sends the next one. Only done for sessions connected to a
+	 * database, without XA state, and when nothing of the next request has
+	 * been read yet.
+	 *
+	 * @return true if the session was parked, and this thread is free
+	 */
+	private boolean parkSession()
+	{
+		if (session.channel == null || session.pinned ||
+				session.state != Session.CHKSEC ||
+				database == null || database.getConnection() == null ||
+				reader.hasBufferedData() || session.channel.hasBufferedInput())
+			return false;
+		saveSessionState();
+		if (!server.parkSession(session))
+			return false;
+		// the selector may already have handed the session to another thread
+		session = null;
+		return true;
 	}
 	
 	/**
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.db.impl.drda;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+	Watches the connections of idle sessions when the network server runs in
+	non-blocking mode (derby.drda.nio).
+
+	A DRDAConnThread parks a session here once it has replied to a request,
+	rather than blocking in a read until the client sends the next one. The
+	selector reads the next request ahead, and hands the session back to the
+	server's run queue once the request is complete, so that connection threads
+	are only ever busy with sessions which have work to do.
+*/
+final class DRDASessionSelector extends Thread
+{
+	private final NetworkServerControlImpl server;
+	private final Selector selector;
+	private final ConcurrentLinkedQueue<Session> parked = new ConcurrentLinkedQueue<Session>();
+	private volatile boolean closed;
+
+	DRDASessionSelector(NetworkServerControlImpl server) throws IOException
+	{
+		NetworkServerControlImpl.setUniqueThreadName(this, "NetworkServerSelector");
+		setDaemon(true);
+		this.server = server;
+		this.selector = Selector.open();
+	}
+
+	/**
+	 * Watch the session until its next request has arrived. The caller must not
+	 * touch the session afterwards, it may be dispatched to another thread at
+	 * any time.
+	 *
+	 * @return false if the selector has been closed
+	 */
+	boolean park(Session session)
+	{
+		if (closed)
+			return false;
+		parked.add(session);
+		selector.wakeup();
+		return true;
+	}
+
+	void close()
+	{
+		closed = true;
+		try {
+			selector.close();
+		} catch (IOException ioe) {
+			server.consoleExceptionPrintTrace(ioe);
+		}
+	}
+
+	public void run()
+	{
+		while (!closed)
+		{
+			try {
+				selector.select();
+				registerParked();
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext())
+				{
+					SelectionKey key = keys.next();
+					keys.remove();
+					Session session = (Session) key.attachment();
+					if (session.channel.readAhead())
+						dispatch(key, session);
+				}
+			} catch (ClosedSelectorException cse) {
+				break;
+			} catch (IOException ioe) {
+				if (!closed)
+					server.consoleExceptionPrintTrace(ioe);
+			}
+		}
+	}
+
+	private void registerParked()
+	{
+		Session session;
+		while ((session = parked.poll()) != null)
+		{
+			try {
+				SelectionKey key = session.channel.getChannel().keyFor(selector);
+				if (key == null)
+					session.channel.getChannel().register(selector, SelectionKey.OP_READ, session);
+				else
+					key.interestOps(SelectionKey.OP_READ);
+			} catch (ClosedChannelException | CancelledKeyException e) {
+				// closed while parked; the conn thread will clean up
+				server.sessionReady(session);
+			}
+		}
+	}
+
+	private void dispatch(SelectionKey key, Session session)
+	{
+		try {
+			key.interestOps(0);
+		} catch (CancelledKeyException ignored) {
+			// the channel was closed, which the conn thread will notice
+		}
+		server.sessionReady(session);
+	}
+}
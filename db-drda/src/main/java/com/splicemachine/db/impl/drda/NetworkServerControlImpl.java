@@ -62,9 +62,11 @@ import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 import java.io.*;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.nio.channels.ServerSocketChannel;
 import java.nio.charset.Charset;
 import java.security.*;
 import java.sql.Connection;
@@ -260,6 +262,9 @@ public final class NetworkServerControlImpl {
 										// and changing timeSlice
 
 	private boolean keepAlive = true;   // keepAlive value for client socket 
+	private boolean nio = false;		// accept on a non-blocking channel, park idle sessions
+	private DRDASessionSelector sessionSelector; // watches parked sessions when nio is on
+	private final Object scheduleSync = new Object(); // serializes handing sessions to threads
 	private int minPoolSize;			//minimum pool size for pooled connections
 	private int maxPoolSize;			//maximum pool size for pooled connections
 	private Object poolSync = new Object();	// object to use for syning reading
@@ -652,6 +657,11 @@ public final class NetworkServerControlImpl {
 		switch (getSSLMode()) {
 		case SSL_OFF:
 		default:
+			if (nio) {
+				ServerSocketChannel ch = ServerSocketChannel.open();
+				ch.socket().bind(new InetSocketAddress(hostAddress, portNumber), 0);
+				return ch.socket();
+			}
 			ServerSocketFactory sf =
 				ServerSocketFactory.getDefault();
 			return sf.createServerSocket(portNumber
@@ -784,6 +794,19 @@ public final class NetworkServerControlImpl {
 							);
 		clientThread.start();
 
+		// Idle sessions of a non-blocking server wait on the session selector
+		if (serverSocket.getChannel() != null) {
+			sessionSelector = (DRDASessionSelector) AccessController.doPrivileged(
+								new PrivilegedExceptionAction() {
+									public Object run() throws Exception
+									{
+										return new DRDASessionSelector(thisControl);
+									}
+								}
+							);
+			sessionSelector.start();
+		}
+
 		try {
 			// wait until we are told to shutdown or someone sends an InterruptedException
 	        synchronized(shutdownSync) {
@@ -861,6 +884,9 @@ public final class NetworkServerControlImpl {
 	        	consolePrintAndIgnore("DRDA_UnexpectedException.S", exception, true);
 		    }
 
+		    if (sessionSelector != null)
+		    	sessionSelector.close();
+
 			// Wake up those waiting on sessions, so
 			// they can close down
 		    try{
@@ -3055,6 +3081,12 @@ public final class NetworkServerControlImpl {
 		if (propval != null && 
 			StringUtil.SQLEqualsIgnoreCase(propval,"false"))
 			keepAlive = false;
+
+		propval = PropertyUtil.getSystemProperty( 
+			Property.DRDA_PROP_NIO);
+		if (propval != null && 
+			StringUtil.SQLEqualsIgnoreCase(propval,"true"))
+			nio = true;
 		
 		propval = PropertyUtil.getSystemProperty( 
 			Property.DRDA_PROP_HOSTNAME);
@@ -3725,6 +3757,15 @@ public final class NetworkServerControlImpl {
 		sslMode = mode;
 	}
 
+	/**
+	 * Overrides derby.drda.nio for this server. Only takes effect if
+	 * called before the server is started.
+	 */
+	public void setNio(boolean value)
+	{
+		nio = value;
+	}
+
 	protected int getSSLMode() 
 	{
 		return sslMode;
@@ -3936,43 +3977,81 @@ public final class NetworkServerControlImpl {
 
 		sessionTable.put(new Integer(connectionNumber), session);
 
-		// Check whether there are enough free threads to service all the
-		// threads in the run queue in addition to the newly added session.
-		boolean enoughThreads;
-		synchronized (runQueue) {
-			enoughThreads = (runQueue.size() < freeThreads);
-		}
-		// No need to hold the synchronization on runQueue any longer than
-		// this. Since no other threads can make runQueue grow, and no other
-		// threads will reduce the number of free threads without removing
-		// sessions from runQueue, (runQueue.size() < freeThreads) cannot go
-		// from true to false until addSession() returns.
-
-		DRDAConnThread thread = null;
-
-		// try to start a new thread if we don't have enough free threads
-		if (!enoughThreads) {
-			// Synchronize on threadsSync to ensure that the value of
-			// maxThreads doesn't change until the new thread is added to
-			// threadList.
-			synchronized (threadsSync) {
-				// only start a new thread if we have no maximum number of
-				// threads or the maximum number of threads is not exceeded
-				if ((maxThreads == 0) || (threadList.size() < maxThreads)) {
-					thread = new DRDAConnThread(session, this, getTimeSlice(),
-												getLogConnections());
-					threadList.add(thread);
-					thread.start();
+		scheduleSession(session);
+	}
+
+	/**
+	 * Hand a session which has work to do to a connection thread: a new
+	 * session, or a parked session whose next request has arrived.
+	 *
+	 * @param session the session
+	 */
+	private void scheduleSession(Session session) {
+		synchronized (scheduleSync) {
+			// Check whether there are enough free threads to service all the
+			// threads in the run queue in addition to the newly added session.
+			boolean enoughThreads;
+			synchronized (runQueue) {
+				enoughThreads = (runQueue.size() < freeThreads);
+			}
+			// No need to hold the synchronization on runQueue any longer than
+			// this. Since only scheduleSession() (under scheduleSync) can make
+			// runQueue grow with new work, and no other threads will reduce the
+			// number of free threads without removing sessions from runQueue,
+			// (runQueue.size() < freeThreads) cannot go from true to false until
+			// scheduleSession() returns.
+
+			DRDAConnThread thread = null;
+
+			// try to start a new thread if we don't have enough free threads
+			if (!enoughThreads) {
+				// Synchronize on threadsSync to ensure that the value of
+				// maxThreads doesn't change until the new thread is added to
+				// threadList.
+				synchronized (threadsSync) {
+					// only start a new thread if we have no maximum number of
+					// threads or the maximum number of threads is not exceeded
+					if ((maxThreads == 0) || (threadList.size() < maxThreads)) {
+						thread = new DRDAConnThread(session, this, getTimeSlice(),
+													getLogConnections());
+						threadList.add(thread);
+						thread.start();
+					}
 				}
 			}
-		}
 
-		// add the session to the run queue if we didn't start a new thread
-		if (thread == null) {
-			runQueueAdd(session);
+			// add the session to the run queue if we didn't start a new thread
+			if (thread == null) {
+				runQueueAdd(session);
+			}
 		}
 	}
 
+	/**
+	 * Park an idle session on the session selector until its next request
+	 * arrives. Called by the connection thread, which must let go of the
+	 * session if this returns true.
+	 *
+	 * @param session the session
+	 * @return true if the session was parked
+	 */
+	boolean parkSession(Session session) {
+		DRDASessionSelector selector = sessionSelector;
+		return selector != null && !shutdown && selector.park(session);
+	}
+
+	/**
+	 * Called by the session selector when a parked session has a request to
+	 * process, or its connection was closed.
+	 *
+	 * @param session the session
+	 */
+	void sessionReady(Session session) {
+		if (shutdown)
+			return;
+		scheduleSession(session);
+	}
+
 	/**
 	 * Remove a thread from the thread list. Should be called when a
 	 * <code>DRDAConnThread</code> has been closed.
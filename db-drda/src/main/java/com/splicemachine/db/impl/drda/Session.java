@@ -67,6 +67,7 @@ class Session
 	protected int connNum;				// connection number
 	protected InputStream sessionInput;	// session input stream
 	protected OutputStream sessionOutput;	// session output stream
+	protected SessionChannel channel;	// non-blocking connection (derby.drda.nio), or null
 	protected String traceFileName;		// trace file name for session
 	protected boolean traceOn;			// whether trace is currently on for the session
 	protected int state;				// the current state of the session
@@ -86,6 +87,15 @@ class Session
 
 	private RemoteUser remoteUser;
 
+	// Protocol state which DRDAConnThread keeps while it works on the session,
+	// saved here so that the session can move to another thread between requests
+	protected boolean utf8Ccsid;			// reader and writer switched to UTF-8
+	protected int pendingStatementTimeout = -1;	// < 0 means no pending timeout to set
+	protected boolean deferredReset;
+	protected boolean sendWarningsOnCNTQRY;
+	protected byte diagnosticLevel = (byte)0xF0;
+	protected boolean pinned;			// has state which can't move to another thread
+
 	protected boolean canCompress()
  	{
  		return enableOutboundCompression;
@@ -293,8 +303,17 @@ class Session
 	private void initialize(String traceDirectory)
 		throws Exception
 	{
-		sessionInput = clientSocket.getInputStream();
-		sessionOutput = clientSocket.getOutputStream();
+		if (clientSocket.getChannel() != null)
+		{
+			channel = new SessionChannel(clientSocket.getChannel());
+			sessionInput = channel.getInputStream();
+			sessionOutput = channel.getOutputStream();
+		}
+		else
+		{
+			sessionInput = clientSocket.getInputStream();
+			sessionOutput = clientSocket.getOutputStream();
+		}
 		if (traceOn)
 			initTrace(traceDirectory,false);
 		state = INIT;
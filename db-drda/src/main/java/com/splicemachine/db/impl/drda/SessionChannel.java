@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.db.impl.drda;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+	The connection of a session when the network server runs in non-blocking
+	mode (derby.drda.nio). The channel is always in non-blocking mode, so that
+	an idle session can be watched by the server's {@link DRDASessionSelector}
+	instead of occupying a DRDAConnThread. The streams handed to DDMReader and
+	DDMWriter still block, by waiting on a selector borrowed from a shared pool
+	for as long as the wait lasts. Only sessions busy on a DRDAConnThread ever
+	wait, so the number of selectors follows the number of threads rather than
+	the number of sessions.
+
+	While a session is parked, the selector reads ahead into a buffer borrowed
+	from a shared pool, and dispatches the session once the whole request chain
+	has arrived (or the buffer is full). The input stream drains that buffer
+	before reading from the channel again, and returns it to the pool.
+*/
+final class SessionChannel
+{
+	// size of the pooled read-ahead buffers; larger requests are dispatched
+	// once the buffer is full and read from the channel by the conn thread
+	static final int READ_AHEAD_SIZE = 32 * 1024;
+	private static final int MAX_POOLED_BUFFERS = 256;
+	private static final ArrayBlockingQueue<ByteBuffer> bufferPool =
+		new ArrayBlockingQueue<ByteBuffer>(MAX_POOLED_BUFFERS);
+	private static final int MAX_POOLED_SELECTORS = 64;
+	private static final ArrayBlockingQueue<Selector> selectorPool =
+		new ArrayBlockingQueue<Selector>(MAX_POOLED_SELECTORS);
+
+	private final SocketChannel channel;
+	private final InputStream input = new Input();
+	private final OutputStream output = new Output();
+	private ByteBuffer readAhead;		// read-ahead data, or null; flipped for reading on dispatch
+	private boolean readAheadEOF;
+	private boolean closed;
+
+	SessionChannel(SocketChannel channel) throws IOException
+	{
+		this.channel = channel;
+		channel.configureBlocking(false);
+	}
+
+	SocketChannel getChannel()
+	{
+		return channel;
+	}
+
+	InputStream getInputStream()
+	{
+		return input;
+	}
+
+	OutputStream getOutputStream()
+	{
+		return output;
+	}
+
+	/**
+	 * @return true if data read ahead by the selector hasn't been consumed yet
+	 */
+	synchronized boolean hasBufferedInput()
+	{
+		return readAhead != null && readAhead.hasRemaining();
+	}
+
+	/**
+	 * Read what is available from the channel without blocking. Called by the
+	 * selector while the session is parked.
+	 *
+	 * @return true if the session should be dispatched: a complete request
+	 * chain has been read, the read-ahead buffer is full, or the connection
+	 * has been closed or failed (which the reader reports as end of stream).
+	 */
+	synchronized boolean readAhead()
+	{
+		if (readAhead == null)
+			readAhead = borrowBuffer();
+		int n;
+		try {
+			n = channel.read(readAhead);
+		} catch (IOException ioe) {
+			n = -1;
+		}
+		boolean dispatch;
+		if (n < 0)
+		{
+			readAheadEOF = true;
+			dispatch = true;
+		}
+		else
+			dispatch = !readAhead.hasRemaining() ||
+				isCompleteRequest(readAhead.array(), readAhead.position());
+		if (dispatch)
+			readAhead.flip();
+		else if (readAhead.position() == 0)
+		{
+			// nothing read, don't hold on to a buffer while idle
+			returnBuffer(readAhead);
+			readAhead = null;
+		}
+		return dispatch;
+	}
+
+	/**
+	 * Whether the first {@code length} bytes of {@code buffer} hold a complete
+	 * chain of request DSSes, following the rules of DDMReader.readDssHeader:
+	 * a chain ends with a DSS without the chaining bit, and a DSS with the
+	 * continuation bit set is followed by continuation segments, each prefixed
+	 * with its own two byte length. Anything which doesn't look like a DSS is
+	 * reported as complete, so that DDMReader gets to report the error.
+	 */
+	static boolean isCompleteRequest(byte[] buffer, int length)
+	{
+		int pos = 0;
+		for (;;)
+		{
+			if (length - pos < 6)
+				return false;
+			int dssLength = ((buffer[pos] & 0xff) << 8) + (buffer[pos + 1] & 0xff);
+			boolean continued = (dssLength & DssConstants.CONTINUATION_BIT) != 0;
+			if (continued)
+				dssLength = DssConstants.MAX_DSS_LENGTH;
+			if (dssLength < 6 || (buffer[pos + 2] & 0xff) != DssConstants.DSS_ID)
+				return true;
+			boolean chained = (buffer[pos + 3] & DssConstants.DSSCHAIN) != 0;
+			pos += dssLength;
+			while (continued)
+			{
+				if (length - pos < 2)
+					return false;
+				int segmentLength = ((buffer[pos] & 0xff) << 8) + (buffer[pos + 1] & 0xff);
+				continued = (segmentLength & DssConstants.CONTINUATION_BIT) != 0;
+				if (continued)
+					segmentLength = DssConstants.MAX_DSS_LENGTH;
+				if (segmentLength <= 2)
+					return true;
+				pos += segmentLength;
+			}
+			if (pos > length)
+				return false;
+			if (!chained)
+				return true;
+		}
+	}
+
+	void close() throws IOException
+	{
+		synchronized (this)
+		{
+			closed = true;
+			if (readAhead != null)
+			{
+				returnBuffer(readAhead);
+				readAhead = null;
+			}
+		}
+		channel.close();
+	}
+
+	private int read(byte[] b, int off, int len) throws IOException
+	{
+		synchronized (this)
+		{
+			if (readAhead != null)
+			{
+				int n = Math.min(len, readAhead.remaining());
+				readAhead.get(b, off, n);
+				if (!readAhead.hasRemaining())
+				{
+					returnBuffer(readAhead);
+					readAhead = null;
+				}
+				if (n > 0)
+					return n;
+			}
+			if (readAheadEOF)
+				return -1;
+		}
+		ByteBuffer target = ByteBuffer.wrap(b, off, len);
+		for (;;)
+		{
+			int n = channel.read(target);
+			if (n != 0)
+				return n;
+			await(SelectionKey.OP_READ);
+		}
+	}
+
+	private void write(byte[] b, int off, int len) throws IOException
+	{
+		ByteBuffer source = ByteBuffer.wrap(b, off, len);
+		while (source.hasRemaining())
+		{
+			if (channel.write(source) == 0)
+				await(SelectionKey.OP_WRITE);
+		}
+	}
+
+	/**
+	 * Wait until the channel is ready for {@code ops}, as a blocking stream would.
+	 * Reads honour the socket's SO_TIMEOUT, which the server uses for time
+	 * slicing.
+	 */
+	private void await(int ops) throws IOException
+	{
+		if (closed)
+			throw new IOException("Session channel closed");
+		int timeout = ops == SelectionKey.OP_READ ? channel.socket().getSoTimeout() : 0;
+		Selector selector = borrowSelector();
+		boolean ready;
+		try {
+			SelectionKey key = channel.register(selector, ops);
+			try {
+				ready = selector.select(timeout) > 0;
+			} finally {
+				// deregister before the selector is handed to another session
+				key.cancel();
+				selector.selectNow();
+				selector.selectedKeys().clear();
+			}
+		} catch (IOException ioe) {
+			selector.close();
+			throw ioe;
+		}
+		returnSelector(selector);
+		if (!ready && timeout > 0)
+			throw new SocketTimeoutException();
+	}
+
+	private static Selector borrowSelector() throws IOException
+	{
+		Selector selector = selectorPool.poll();
+		return selector != null ? selector : Selector.open();
+	}
+
+	private static void returnSelector(Selector selector) throws IOException
+	{
+		if (!selectorPool.offer(selector))
+			selector.close();
+	}
+
+	private static ByteBuffer borrowBuffer()
+	{
+		ByteBuffer buffer = bufferPool.poll();
+		return buffer != null ? buffer : ByteBuffer.allocate(READ_AHEAD_SIZE);
+	}
+
+	private static void returnBuffer(ByteBuffer buffer)
+	{
+		buffer.clear();
+		bufferPool.offer(buffer);
+	}
+
+	private final class Input extends InputStream
+	{
+		public int read() throws IOException
+		{
+			byte[] b = new byte[1];
+			int n;
+			do {
+				n = read(b, 0, 1);
+			} while (n == 0);
+			return n < 0 ? -1 : (b[0] & 0xff);
+		}
+
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			if (len == 0)
+				return 0;
+			return SessionChannel.this.read(b, off, len);
+		}
+
+		public void close() throws IOException
+		{
+			SessionChannel.this.close();
+		}
+	}
+
+	private final class Output extends OutputStream
+	{
+		public void write(int b) throws IOException
+		{
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			SessionChannel.this.write(b, off, len);
+		}
+
+		public void close() throws IOException
+		{
+			SessionChannel.this.close();
+		}
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.db.impl.drda;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+
+public class SessionChannelTest {
+
+    @Test
+    public void singleDssIsComplete() {
+        byte[] request = new Request().dss(10, false).bytes();
+        Assert.assertTrue(SessionChannel.isCompleteRequest(request, request.length));
+    }
+
+    @Test
+    public void partialDssIsIncomplete() {
+        byte[] request = new Request().dss(10, false).bytes();
+        for (int length = 0; length < request.length; length++) {
+            Assert.assertFalse("Complete with " + length + " bytes", SessionChannel.isCompleteRequest(request, length));
+        }
+    }
+
+    @Test
+    public void chainEndsWithUnchainedDss() {
+        byte[] request = new Request().dss(10, true).dss(20, true).dss(8, false).bytes();
+        Assert.assertTrue(SessionChannel.isCompleteRequest(request, request.length));
+        Assert.assertFalse("Chained DSS should wait for the rest of the chain",
+                SessionChannel.isCompleteRequest(request, 30));
+        Assert.assertFalse(SessionChannel.isCompleteRequest(request, request.length - 1));
+    }
+
+    @Test
+    public void continuedDssWaitsForEverySegment() {
+        byte[] request = new Request().continuedDss(false, 1, 50).bytes();
+        Assert.assertTrue(SessionChannel.isCompleteRequest(request, request.length));
+        Assert.assertFalse("First segment alone is not a request",
+                SessionChannel.isCompleteRequest(request, DssConstants.MAX_DSS_LENGTH));
+        Assert.assertFalse("Last segment is incomplete",
+                SessionChannel.isCompleteRequest(request, request.length - 1));
+    }
+
+    @Test
+    public void chainedContinuedDssWaitsForNextDss() {
+        byte[] request = new Request().continuedDss(true, 0, 100).dss(10, false).bytes();
+        Assert.assertTrue(SessionChannel.isCompleteRequest(request, request.length));
+        Assert.assertFalse(SessionChannel.isCompleteRequest(request, request.length - 10));
+    }
+
+    @Test
+    public void malformedDataIsReportedComplete() {
+        byte[] badId = new Request().dss(10, false).bytes();
+        badId[2] = 0;
+        Assert.assertTrue("DDMReader should report a bad DSS id", SessionChannel.isCompleteRequest(badId, 6));
+
+        byte[] badLength = new Request().dss(10, false).bytes();
+        badLength[0] = 0;
+        badLength[1] = 3;
+        Assert.assertTrue("DDMReader should report a bad DSS length", SessionChannel.isCompleteRequest(badLength, 6));
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static class Request {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        Request dss(int length, boolean chained) {
+            header(length, chained);
+            body(length - 6);
+            return this;
+        }
+
+        /* a DSS of MAX_DSS_LENGTH followed by full continuation segments, and a last one of the given length */
+        Request continuedDss(boolean chained, int fullSegments, int lastSegment) {
+            header(DssConstants.MAX_DSS_LENGTH | DssConstants.CONTINUATION_BIT, chained);
+            body(DssConstants.MAX_DSS_LENGTH - 6);
+            for (int i = 0; i < fullSegments; i++) {
+                segmentLength(DssConstants.MAX_DSS_LENGTH | DssConstants.CONTINUATION_BIT);
+                body(DssConstants.MAX_DSS_LENGTH - 2);
+            }
+            segmentLength(lastSegment);
+            body(lastSegment - 2);
+            return this;
+        }
+
+        byte[] bytes() {
+            return out.toByteArray();
+        }
+
+        private void header(int length, boolean chained) {
+            out.write(length >> 8);
+            out.write(length);
+            out.write(DssConstants.DSS_ID);
+            out.write(chained ? DssConstants.DSSCHAIN | 0x01 : 0x01);
+            out.write(0);
+            out.write(1);
+        }
+
+        private void segmentLength(int length) {
+            out.write(length >> 8);
+            out.write(length);
+        }
+
+        private void body(int length) {
+            out.write(new byte[length], 0, length);
+        }
+    }
+}
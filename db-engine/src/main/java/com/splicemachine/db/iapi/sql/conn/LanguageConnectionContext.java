@@ -1421,4 +1421,26 @@ public interface LanguageConnectionContext extends Context {
 	CommentStripper getCommentStripper();
 	boolean getIgnoreCommentOptEnabled();
 
+	/**
+	 * @return true if the results of read-only statements may be served from, and added to, the result cache
+	 */
+	boolean getResultCacheEnabled();
+
+	/**
+	 * Prepare a statement with its literals replaced by parameters, and bind the literals to the
+	 * parameters of a new activation, so that statements which only differ in their literals share
+	 * one plan. See {@link com.splicemachine.db.iapi.reference.Property#AUTO_PARAMETERIZATION_ENABLED}.
+	 *
+	 * @param compilationSchema schema
+	 * @param sqlText           the statement text, as submitted
+	 * @param isForReadOnly     if the statement is opened with level CONCUR_READ_ONLY
+	 * @param scrollable        whether the activation is for a scrollable result set
+	 * @return the activation, or null if the statement must be prepared as written: auto-parameterization
+	 * is disabled, the statement has no eligible literals, the shared plan is sensitive to the literal
+	 * values or a literal can't be bound to its parameter without changing its value.
+	 * @throws StandardException thrown on failure
+	 */
+	Activation getAutoParameterizedActivation(SchemaDescriptor compilationSchema, String sqlText,
+											  boolean isForReadOnly, boolean scrollable) throws StandardException;
+
 }
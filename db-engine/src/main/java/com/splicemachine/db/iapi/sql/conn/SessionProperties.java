@@ -30,6 +30,7 @@
  */
 package com.splicemachine.db.iapi.sql.conn;
 
+import com.splicemachine.concurrent.WorkloadClass;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.reference.SQLState;
 import com.splicemachine.utils.Pair;
@@ -43,7 +44,9 @@ public interface SessionProperties {
     enum PROPERTYNAME{
         USESPARK(0),
         DEFAULTSELECTIVITYFACTOR(1),
-        SKIPSTATS(2);
+        SKIPSTATS(2),
+        CONTROLMEMORYLIMIT(3),
+        WORKLOADCLASS(4);
 
         public static int COUNT = PROPERTYNAME.values().length;
 
@@ -75,7 +78,7 @@ public interface SessionProperties {
             property = SessionProperties.PROPERTYNAME.valueOf(propertyNameString);
         } catch (IllegalArgumentException e) {
             throw StandardException.newException(SQLState.LANG_INVALID_SESSION_PROPERTY,propertyNameString,
-                    "useSpark, defaultSelectivityFactor, skipStats");
+                    "useSpark, defaultSelectivityFactor, skipStats, controlMemoryLimit, workloadClass");
         }
 
         String valString = pair.getSecond();
@@ -102,6 +105,20 @@ public interface SessionProperties {
                 if (defaultSelectivityFactor <= 0 || defaultSelectivityFactor > 1.0)
                     throw StandardException.newException(SQLState.LANG_INVALID_SESSION_PROPERTY_VALUE, valString, "value in the range(0,1] or null");
                 break;
+            case CONTROLMEMORYLIMIT:
+                long controlMemoryLimit;
+                try {
+                    controlMemoryLimit = Long.parseLong(valString);
+                } catch (Exception parseLongE) {
+                    throw StandardException.newException(SQLState.LANG_INVALID_SESSION_PROPERTY_VALUE, valString, "non-negative number of bytes or null");
+                }
+                if (controlMemoryLimit < 0)
+                    throw StandardException.newException(SQLState.LANG_INVALID_SESSION_PROPERTY_VALUE, valString, "non-negative number of bytes or null");
+                break;
+            case WORKLOADCLASS:
+                if (WorkloadClass.forName(valString) == null)
+                    throw StandardException.newException(SQLState.LANG_INVALID_SESSION_PROPERTY_VALUE, valString, "oltp, default, batch or null");
+                break;
             default:
                 break;
         }
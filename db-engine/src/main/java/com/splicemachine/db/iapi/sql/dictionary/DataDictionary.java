@@ -814,6 +814,18 @@ public interface DataDictionary{
     void deletePartitionStatistics(long conglomerate,
                                    TransactionController tc) throws StandardException;
 
+    /**
+     * Removes the Table and Column Statistics of a single partition from SYSTABLESTATS and SYSCOLUMNSTATS.
+     *
+     * @param conglomerate
+     * @param partitionId
+     * @param tc
+     * @throws StandardException
+     */
+    void deletePartitionStatistics(long conglomerate,
+                                   String partitionId,
+                                   TransactionController tc) throws StandardException;
+
 
     void clearCaches();
 
@@ -1272,6 +1284,35 @@ public interface DataDictionary{
                                   TriggerEventDML triggerEventMask,
                                   boolean createTriggerTime) throws StandardException;
 
+    /**
+     * Rewrite the action of an AFTER INSERT row trigger so that it is run once over all of the inserted rows
+     * rather than once per row, if it can be without changing what it does.  That is the case for an action
+     * INSERT INTO t VALUES (...) whose values only refer to the new row, where t is a base table other than
+     * the trigger table with no triggers of its own:
+     * <p/>
+     * INSERT INTO t VALUES (n.c, 1)
+     * turns into
+     * INSERT INTO t SELECT n.c, 1 FROM new com.splicemachine.derby.vti.TriggerNewTransitionRowsVTI() n
+     * <p/>
+     * Values that call functions or read tables (through subqueries) are not rewritten, since they could
+     * see the rows the action inserted for the earlier rows.
+     *
+     * @param actionStmt             the parsed trigger action
+     * @param newReferencingName     the name specified by the user for REFERENCEs to new row columns
+     * @param triggerDefinition      the original trigger action text provided by the user during CREATE TRIGGER time
+     * @param triggerTableDescriptor table descriptor for the trigger table
+     * @param compSchema             the schema the action is compiled in
+     * @param lcc                    the language connection context
+     * @return the rewritten trigger action sql, or null if the action has to be run once per row
+     * @throws StandardException
+     */
+    String getTriggerSetActionString(Visitable actionStmt,
+                                     String newReferencingName,
+                                     String triggerDefinition,
+                                     TableDescriptor triggerTableDescriptor,
+                                     SchemaDescriptor compSchema,
+                                     LanguageConnectionContext lcc) throws StandardException;
+
 
     /**
      * Load up the trigger descriptor list for this table
@@ -41,12 +41,14 @@ import java.sql.Timestamp;
 
 import com.splicemachine.db.iapi.reference.SQLState;
 import com.splicemachine.db.iapi.services.sanity.SanityManager;
+import com.splicemachine.db.iapi.sql.Statement;
 import com.splicemachine.db.iapi.sql.StatementType;
 import com.splicemachine.db.catalog.DependableFinder;
 import com.splicemachine.db.catalog.Dependable;
 import com.splicemachine.db.iapi.services.io.StoredFormatIds;
 import com.splicemachine.db.iapi.sql.depend.DependencyManager;
 import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
+import com.splicemachine.db.iapi.sql.execute.ExecPreparedStatement;
 import com.splicemachine.db.iapi.store.access.TransactionController;
 import com.splicemachine.db.iapi.services.context.ContextService;
 
@@ -97,6 +99,10 @@ public class TriggerDescriptor extends TupleDescriptor implements UniqueSQLObjec
     private UUID triggerSchemaId;
     private UUID triggerTableId;
 
+    // the action run once over all of the rows; compiled on first use, never serialized
+    private boolean setActionRetrieved;
+    private ExecPreparedStatement setAction;
+
 
     /**
      * Default constructor for formatable
@@ -330,6 +336,53 @@ public class TriggerDescriptor extends TupleDescriptor implements UniqueSQLObjec
         return actionSPS;
     }
 
+    /**
+     * Get the statement that runs this trigger's action once over all of the rows it fires for, rather than once
+     * per row, when that doesn't change what the action does; see
+     * {@link DataDictionary#getTriggerSetActionString}.  Only AFTER INSERT row triggers without a WHEN clause are
+     * run this way.  The statement is compiled the first time it is asked for and kept until it is invalidated.
+     *
+     * @return the compiled statement, or null if the action has to be run once per row
+     */
+    public synchronized ExecPreparedStatement getSetActionStatement(LanguageConnectionContext lcc) throws StandardException {
+        if (setActionRetrieved && setAction != null && !setAction.upToDate()) {
+            setActionRetrieved = false;
+        }
+        if (!setActionRetrieved) {
+            setAction = null;
+            if (isRow && !isBefore && triggerDML == TriggerEventDML.INSERT && whenSPSId == null) {
+                setAction = compileSetAction(lcc);
+            }
+            setActionRetrieved = true;
+        }
+        return setAction;
+    }
+
+    private ExecPreparedStatement compileSetAction(LanguageConnectionContext lcc) throws StandardException {
+        DataDictionary dd = getDataDictionary();
+        SchemaDescriptor compSchema = dd.getSchemaDescriptor(getActionSPS(lcc).getCompSchemaId(), null);
+        CompilerContext newCC = lcc.pushCompilerContext(compSchema);
+        Visitable stmtnode;
+        try {
+            stmtnode = newCC.getParser().parseStatement(triggerDefinition);
+        } finally {
+            lcc.popCompilerContext(newCC);
+        }
+        TableDescriptor triggerTable = getTableDescriptor();
+        String text = dd.getTriggerSetActionString(stmtnode, newReferencingName, triggerDefinition, triggerTable, compSchema, lcc);
+        if (text == null) {
+            return null;
+        }
+
+        lcc.pushTriggerTable(triggerTable);
+        try {
+            Statement stmt = lcc.getLanguageConnectionFactory().getStatement(compSchema, text, true, lcc);
+            return (ExecPreparedStatement) stmt.prepareStorable(lcc, null, null, compSchema, true);
+        } finally {
+            lcc.popTriggerTable(triggerTable);
+        }
+    }
+
     /**
      * Get the trigger when clause sps UUID
      */
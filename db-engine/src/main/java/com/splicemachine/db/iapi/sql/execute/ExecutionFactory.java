@@ -79,6 +79,12 @@ public interface ExecutionFactory {
 		@return the result set factory for this database.
 	 */
 	ResultSetFactory getResultSetFactory() throws StandardException;
+
+	/**
+	 * @return the validator which decides whether cached results may be installed and served,
+	 * or null if results are not cached
+	 */
+	ResultCacheValidator getResultCacheValidator();
 	
   	/**
   	 * Get the ExecutionFactory from this ExecutionContext.
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.db.iapi.sql.execute;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.Activation;
+
+/**
+ * Tells the result cache which snapshot a statement reads from, and whether the tables it read
+ * have been written since.
+ * <p>
+ * Snapshots are the begin timestamps of the readers' transactions. The rows computed at snapshot
+ * S are what any reader at or after S would see, provided every write to the tables committed
+ * before S and no table has been written since the rows were computed.
+ * <p>
+ * {@link #isUnchanged} and {@link #isStable} only need to know of the writes made through this
+ * server, and are checked first; {@link #isCurrent} must know of the writes made through any.
+ */
+public interface ResultCacheValidator{
+
+    /**
+     * @param activation the activation about to be executed
+     * @return the snapshot the activation reads from, or -1 if its results may neither be cached
+     * nor served from the cache
+     */
+    long getSnapshot(Activation activation) throws StandardException;
+
+    /**
+     * @return the position in the sequence of writes seen so far, to be passed to {@link #isUnchanged}
+     */
+    long getWriteSequence();
+
+    /**
+     * @param conglomerates the heap conglomerates the results were read from
+     * @param writeSequence the write sequence when the results were started
+     * @return true if none of the conglomerates has been written since {@code writeSequence}
+     */
+    boolean isUnchanged(long[] conglomerates,long writeSequence);
+
+    /**
+     * @param conglomerates the heap conglomerates the results were read from
+     * @param snapshot the snapshot the results were read at
+     * @return true if every write seen to the conglomerates committed or rolled back before {@code snapshot}
+     */
+    boolean isStable(long[] conglomerates,long snapshot) throws StandardException;
+
+    /**
+     * @param conglomerates the heap conglomerates the results were read from
+     * @param snapshot the snapshot the results were read at
+     * @return true if no transaction which wrote to the conglomerates, through any server, has
+     * committed at or after {@code snapshot}
+     */
+    boolean isCurrent(long[] conglomerates,long snapshot) throws StandardException;
+}
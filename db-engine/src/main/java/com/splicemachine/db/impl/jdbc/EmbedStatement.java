@@ -619,12 +619,18 @@ public class EmbedStatement extends ConnectionChild implements EngineStatement {
             try {
                 Activation activation;
                 try {
-                    PreparedStatement preparedStatement = lcc.prepareInternalStatement
-                            (lcc.getDefaultSchema(), sql, resultSetConcurrency ==
-                                    java.sql.ResultSet.CONCUR_READ_ONLY, false);
-                    activation =
-                            preparedStatement.getActivation(lcc, resultSetType ==
-                                    java.sql.ResultSet.TYPE_SCROLL_INSENSITIVE);
+                    // share a plan with statements which only differ in their literals, if enabled
+                    activation = lcc.getAutoParameterizedActivation(lcc.getDefaultSchema(), sql,
+                            resultSetConcurrency == java.sql.ResultSet.CONCUR_READ_ONLY,
+                            resultSetType == java.sql.ResultSet.TYPE_SCROLL_INSENSITIVE);
+                    if (activation == null) {
+                        PreparedStatement preparedStatement = lcc.prepareInternalStatement
+                                (lcc.getDefaultSchema(), sql, resultSetConcurrency ==
+                                        java.sql.ResultSet.CONCUR_READ_ONLY, false);
+                        activation =
+                                preparedStatement.getActivation(lcc, resultSetType ==
+                                        java.sql.ResultSet.TYPE_SCROLL_INSENSITIVE);
+                    }
                     checkRequiresCallableStatement(activation);
                     InterruptStatus.restoreIntrFlagIfSeen(lcc);
                 } catch (Throwable t) {
@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.db.impl.sql;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLChar;
+import com.splicemachine.db.iapi.types.SQLDecimal;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rewrites the literals of a statement into parameters, so that statements which only differ in
+ * their literals share a statement cache entry.
+ *
+ * The rewrite is lexical and deliberately conservative. Only SELECT, INSERT, UPDATE and DELETE
+ * statements without parameters of their own are considered, and a literal is only replaced when it
+ * is a whole operand of a comparison, a bound of a BETWEEN, an element of an IN list or an element of
+ * the VALUES rows of an INSERT. Literals anywhere else (select lists, function arguments, arithmetic,
+ * ORDER BY positions, FETCH FIRST counts, comments and hints) are left alone, since replacing them
+ * could change the type of an expression or the meaning of the statement.
+ */
+public final class AutoParameterizer{
+
+    private static final Set<String> STATEMENT_KEYWORDS = new HashSet<>(Arrays.asList(
+            "SELECT","INSERT","UPDATE","DELETE"));
+
+    /* keywords which may legally follow a complete comparison operand */
+    private static final Set<String> TERMINATORS = new HashSet<>(Arrays.asList(
+            "AND","OR","ORDER","GROUP","HAVING","UNION","EXCEPT","INTERSECT","FETCH","OFFSET","LIMIT",
+            "FOR","WITH","WHERE","THEN","ELSE","END","WHEN"));
+
+    private static final Set<String> COMPARISONS = new HashSet<>(Arrays.asList(
+            "=","<>","!=","<","<=",">",">="));
+
+    private enum Kind{ WORD, DELIMITED, NUMBER, STRING, OTHER_LITERAL, SYMBOL }
+
+    private static final class Token{
+        final Kind kind;
+        final int start;
+        final int end;
+        final String text;
+
+        Token(Kind kind,int start,int end,String text){
+            this.kind=kind;
+            this.start=start;
+            this.end=end;
+            this.text=text;
+        }
+
+        boolean is(Kind kind,String text){
+            return this.kind==kind && this.text.equals(text);
+        }
+    }
+
+    /**
+     * The outcome of a rewrite: the parameterized statement text, and the literals which were taken
+     * out of it in parameter order.
+     */
+    public static final class Result{
+        private final String text;
+        private final DataValueDescriptor[] literals;
+
+        Result(String text,DataValueDescriptor[] literals){
+            this.text=text;
+            this.literals=literals;
+        }
+
+        public String getText(){
+            return text;
+        }
+
+        public DataValueDescriptor[] getLiterals(){
+            return literals;
+        }
+    }
+
+    private AutoParameterizer(){ }
+
+    /**
+     * @param sql the statement text
+     * @return the parameterized statement, or {@code null} if the statement is not eligible or has no
+     * literals which can be replaced
+     */
+    public static Result parameterize(String sql){
+        List<Token> tokens=tokenize(sql);
+        if(tokens==null || tokens.isEmpty())
+            return null;
+        Token first=tokens.get(0);
+        if(first.kind!=Kind.WORD || !STATEMENT_KEYWORDS.contains(first.text))
+            return null;
+        boolean isInsert="INSERT".equals(first.text);
+
+        StringBuilder text=new StringBuilder(sql.length());
+        List<DataValueDescriptor> literals=new ArrayList<>();
+        int copied=0;
+
+        // per nesting level: whether the parenthesis opened an IN list
+        boolean[] inList=new boolean[8];
+        // nesting levels of BETWEENs still waiting for their AND
+        int[] pendingBetweens=new int[8];
+        int numPendingBetweens=0;
+        boolean[] betweenAnd=new boolean[tokens.size()];
+        int depth=0;
+        int valuesDepth=-1;
+        try{
+            for(int i=0;i<tokens.size();i++){
+                Token t=tokens.get(i);
+                switch(t.kind){
+                    case SYMBOL:
+                        if("(".equals(t.text)){
+                            depth++;
+                            if(depth==inList.length)
+                                inList=Arrays.copyOf(inList,depth*2);
+                            inList[depth]=i>0 && tokens.get(i-1).is(Kind.WORD,"IN");
+                        }else if(")".equals(t.text)){
+                            if(depth==0)
+                                return null;
+                            depth--;
+                        }
+                        continue;
+                    case WORD:
+                        if("BETWEEN".equals(t.text)){
+                            if(numPendingBetweens==pendingBetweens.length)
+                                pendingBetweens=Arrays.copyOf(pendingBetweens,numPendingBetweens*2);
+                            pendingBetweens[numPendingBetweens++]=depth;
+                        }else if("AND".equals(t.text) && numPendingBetweens>0
+                                && pendingBetweens[numPendingBetweens-1]==depth){
+                            numPendingBetweens--;
+                            betweenAnd[i]=true;
+                        }else if(isInsert && depth==0 && "VALUES".equals(t.text)){
+                            valuesDepth=1;
+                        }
+                        continue;
+                    case NUMBER:
+                    case STRING:
+                        break;
+                    default:
+                        continue;
+                }
+
+                int literalStart=i;
+                if(t.kind==Kind.NUMBER && i>0){
+                    Token sign=tokens.get(i-1);
+                    if(sign.is(Kind.SYMBOL,"-") || sign.is(Kind.SYMBOL,"+"))
+                        literalStart=i-1;
+                }
+                Token previous=literalStart>0?tokens.get(literalStart-1):null;
+                Token next=i+1<tokens.size()?tokens.get(i+1):null;
+                if(previous==null)
+                    continue;
+
+                boolean replace;
+                if(previous.kind==Kind.SYMBOL && COMPARISONS.contains(previous.text)
+                        || previous.is(Kind.WORD,"BETWEEN")
+                        || betweenAnd[literalStart-1]){
+                    replace=endsOperand(next);
+                }else if(previous.is(Kind.SYMBOL,"(") || previous.is(Kind.SYMBOL,",")){
+                    replace=(inList[depth] || depth==valuesDepth)
+                            && next!=null && (next.is(Kind.SYMBOL,",") || next.is(Kind.SYMBOL,")"));
+                }else{
+                    replace=false;
+                }
+                if(!replace)
+                    continue;
+
+                Token startToken=tokens.get(literalStart);
+                String literal=sql.substring(t.start,t.end);
+                if(literalStart!=i && "-".equals(startToken.text))
+                    literal="-"+literal;
+                literals.add(t.kind==Kind.STRING?stringLiteral(literal):numericLiteral(literal));
+                text.append(sql,copied,startToken.start).append('?');
+                copied=t.end;
+            }
+        }catch(StandardException|NumberFormatException e){
+            // a literal we can't represent exactly; leave the statement alone
+            return null;
+        }
+        if(literals.isEmpty())
+            return null;
+        text.append(sql,copied,sql.length());
+        return new Result(text.toString(),literals.toArray(new DataValueDescriptor[literals.size()]));
+    }
+
+    private static boolean endsOperand(Token next){
+        if(next==null)
+            return true;
+        switch(next.kind){
+            case SYMBOL:
+                return ")".equals(next.text) || ",".equals(next.text) || ";".equals(next.text);
+            case WORD:
+                return TERMINATORS.contains(next.text);
+            default:
+                return false;
+        }
+    }
+
+    private static DataValueDescriptor stringLiteral(String literal){
+        return new SQLChar(literal.substring(1,literal.length()-1).replace("''","'"));
+    }
+
+    private static DataValueDescriptor numericLiteral(String literal) throws StandardException{
+        if(literal.indexOf('e')>=0 || literal.indexOf('E')>=0)
+            return new SQLDouble(Double.parseDouble(literal));
+        if(literal.indexOf('.')>=0)
+            return new SQLDecimal(new BigDecimal(literal));
+        try{
+            long value=Long.parseLong(literal);
+            if(value>=Integer.MIN_VALUE && value<=Integer.MAX_VALUE)
+                return new SQLInteger((int)value);
+            return new SQLLongint(value);
+        }catch(NumberFormatException nfe){
+            return new SQLDecimal(new BigDecimal(literal));
+        }
+    }
+
+    /**
+     * @return the tokens of the statement without whitespace and comments, or {@code null} if the
+     * statement has parameters or can't be tokenized
+     */
+    private static List<Token> tokenize(String sql){
+        List<Token> tokens=new ArrayList<>();
+        int length=sql.length();
+        int i=0;
+        while(i<length){
+            char c=sql.charAt(i);
+            if(Character.isWhitespace(c)){
+                i++;
+            }else if(c=='-' && i+1<length && sql.charAt(i+1)=='-'){
+                int eol=sql.indexOf('\n',i);
+                i=eol<0?length:eol+1;
+            }else if(c=='/' && i+1<length && sql.charAt(i+1)=='*'){
+                int close=sql.indexOf("*/",i+2);
+                if(close<0)
+                    return null;
+                i=close+2;
+            }else if(c=='\''){
+                int end=skipQuoted(sql,i,'\'');
+                if(end<0)
+                    return null;
+                tokens.add(new Token(Kind.STRING,i,end,null));
+                i=end;
+            }else if(c=='"'){
+                int end=skipQuoted(sql,i,'"');
+                if(end<0)
+                    return null;
+                tokens.add(new Token(Kind.DELIMITED,i,end,sql.substring(i,end)));
+                i=end;
+            }else if(c=='?'){
+                return null;
+            }else if(Character.isDigit(c) || c=='.' && i+1<length && Character.isDigit(sql.charAt(i+1))){
+                int end=skipNumber(sql,i);
+                if(end<0)
+                    return null;
+                tokens.add(new Token(Kind.NUMBER,i,end,null));
+                i=end;
+            }else if(Character.isLetter(c) || c=='_'){
+                int end=i+1;
+                while(end<length && (Character.isLetterOrDigit(sql.charAt(end)) || sql.charAt(end)=='_'))
+                    end++;
+                if(end<length && sql.charAt(end)=='\''){
+                    // a prefixed literal such as X'0A'
+                    int stringEnd=skipQuoted(sql,end,'\'');
+                    if(stringEnd<0)
+                        return null;
+                    tokens.add(new Token(Kind.OTHER_LITERAL,i,stringEnd,null));
+                    i=stringEnd;
+                }else{
+                    tokens.add(new Token(Kind.WORD,i,end,sql.substring(i,end).toUpperCase()));
+                    i=end;
+                }
+            }else{
+                int end=i+1;
+                if(i+1<length){
+                    String pair=sql.substring(i,i+2);
+                    if("<>".equals(pair) || "!=".equals(pair) || "<=".equals(pair) || ">=".equals(pair)
+                            || "||".equals(pair))
+                        end=i+2;
+                }
+                tokens.add(new Token(Kind.SYMBOL,i,end,sql.substring(i,end)));
+                i=end;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * @return the position after the closing quote, or -1 if the quote isn't closed
+     */
+    private static int skipQuoted(String sql,int start,char quote){
+        int i=start+1;
+        while(i<sql.length()){
+            if(sql.charAt(i)==quote){
+                if(i+1<sql.length() && sql.charAt(i+1)==quote)
+                    i+=2;
+                else
+                    return i+1;
+            }else
+                i++;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the position after the number, or -1 if it isn't followed by a separator
+     */
+    private static int skipNumber(String sql,int start){
+        int length=sql.length();
+        int i=start;
+        while(i<length && Character.isDigit(sql.charAt(i)))
+            i++;
+        if(i<length && sql.charAt(i)=='.'){
+            i++;
+            while(i<length && Character.isDigit(sql.charAt(i)))
+                i++;
+        }
+        if(i<length && (sql.charAt(i)=='e' || sql.charAt(i)=='E')){
+            i++;
+            if(i<length && (sql.charAt(i)=='+' || sql.charAt(i)=='-'))
+                i++;
+            int digits=i;
+            while(i<length && Character.isDigit(sql.charAt(i)))
+                i++;
+            if(i==digits)
+                return -1;
+        }
+        if(i<length && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i)=='_' || sql.charAt(i)=='.'))
+            return -1;
+        return i;
+    }
+}
@@ -44,6 +44,7 @@ import com.splicemachine.db.iapi.services.sanity.SanityManager;
 import com.splicemachine.db.iapi.services.uuid.UUIDFactory;
 import com.splicemachine.db.iapi.sql.*;
 import com.splicemachine.db.iapi.sql.compile.CompilerContext;
+import com.splicemachine.db.iapi.sql.conn.Authorizer;
 import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
 import com.splicemachine.db.iapi.sql.conn.StatementContext;
 import com.splicemachine.db.iapi.sql.depend.DependencyManager;
@@ -54,11 +55,18 @@ import com.splicemachine.db.iapi.sql.dictionary.SchemaDescriptor;
 import com.splicemachine.db.iapi.sql.execute.ConstantAction;
 import com.splicemachine.db.iapi.sql.execute.ExecCursorTableReference;
 import com.splicemachine.db.iapi.sql.execute.ExecPreparedStatement;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.sql.execute.ResultCacheValidator;
 import com.splicemachine.db.iapi.types.DataTypeDescriptor;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.db.iapi.util.ByteArray;
 import com.splicemachine.db.impl.sql.catalog.DataDictionaryCache;
+import com.splicemachine.db.impl.sql.catalog.ResultCache;
 import com.splicemachine.db.impl.sql.compile.CursorNode;
+import com.splicemachine.db.impl.sql.compile.LiteralSensitivityVisitor;
 import com.splicemachine.db.impl.sql.compile.StatementNode;
+import com.splicemachine.db.impl.sql.execute.CachedRowsResultSet;
+import com.splicemachine.db.impl.sql.execute.ResultCachingResultSet;
 
 import java.sql.SQLWarning;
 import java.sql.Timestamp;
@@ -159,6 +167,16 @@ public class GenericPreparedStatement implements ExecPreparedStatement {
     private boolean hasXPlainTableOrProcedure;
 
     private CompilerContext.DataSetProcessorType datasetProcessorType;
+
+    /* Time spent on the last compilation, reported as saved when an auto-parameterized statement reuses the plan. */
+    private long compileNanos;
+
+    /* If the plan was compiled for auto-parameterized literals, the predicates whose statistics estimates
+     * depend on the values of the literals. */
+    private LiteralSensitivityVisitor.Guard[] literalGuards;
+
+    /* The heap conglomerates of the tables the statement reads, if its results may be kept in the result cache. */
+    private long[] resultCacheConglomerates;
     //
     // constructors
     //
@@ -358,7 +376,7 @@ public class GenericPreparedStatement implements ExecPreparedStatement {
             ResultSet resultSet = null;
             try {
 
-                resultSet = activation.execute();
+                resultSet = executeActivation(lccToUse, activation, pvs);
 
                 resultSet.open();
             } catch (StandardException se) {
@@ -392,6 +410,38 @@ public class GenericPreparedStatement implements ExecPreparedStatement {
         }
     }
 
+    /**
+     * Executes the activation, unless the statement is a cacheable query whose rows the result
+     * cache already holds for these parameters and this reader's snapshot. Otherwise, the rows of
+     * cacheable queries are added to the cache as they are read.
+     */
+    private ResultSet executeActivation(LanguageConnectionContext lcc,
+                                        Activation activation,
+                                        ParameterValueSet pvs) throws StandardException {
+        long[] conglomerates = resultCacheConglomerates;
+        if (conglomerates == null || spsAction || updateMode != CursorNode.READ_ONLY
+                || !lcc.getResultCacheEnabled() || activation.getMaxRows() != 0)
+            return activation.execute();
+        ResultCache cache = lcc.getDataDictionary().getDataDictionaryCache().getResultCache();
+        ResultCacheValidator validator = lcc.getLanguageConnectionFactory().getExecutionFactory().getResultCacheValidator();
+        if (validator == null || !cache.isEnabled())
+            return activation.execute();
+        long snapshot = validator.getSnapshot(activation);
+        if (snapshot < 0)
+            return activation.execute();
+
+        ResultCache.Key key = ResultCache.Key.of(this, pvs);
+        List<ExecRow> rows = cache.get(key, snapshot, validator);
+        if (rows != null) {
+            // the generated code checks the privileges as the statement executes
+            lcc.getAuthorizer().authorize(activation, Authorizer.SQL_SELECT_OP);
+            return new CachedRowsResultSet(activation, rows);
+        }
+        long writeSequence = validator.getWriteSequence();
+        return new ResultCachingResultSet(activation.execute(), cache, key, conglomerates,
+                snapshot, writeSequence, validator);
+    }
+
     @Override
     public ResultDescription getResultDescription() {
         return resultDesc;
@@ -544,6 +594,35 @@ public class GenericPreparedStatement implements ExecPreparedStatement {
     }
 
 
+    public long getCompileNanos() {
+        return compileNanos;
+    }
+
+    public void setCompileNanos(long compileNanos) {
+        this.compileNanos = compileNanos;
+    }
+
+    /**
+     * @param literals the literals an auto-parameterized statement would run the plan with
+     * @return true if the statistics estimates for {@code literals} are far off the estimates the
+     * optimizer used for the parameters
+     */
+    public boolean isLiteralSensitive(DataValueDescriptor[] literals) {
+        return LiteralSensitivityVisitor.isLiteralSensitive(literalGuards, literals);
+    }
+
+    public void setLiteralGuards(LiteralSensitivityVisitor.Guard[] literalGuards) {
+        this.literalGuards = literalGuards;
+    }
+
+    public long[] getResultCacheConglomerates() {
+        return resultCacheConglomerates;
+    }
+
+    public void setResultCacheConglomerates(long[] resultCacheConglomerates) {
+        this.resultCacheConglomerates = resultCacheConglomerates;
+    }
+
     /**
      * Finish marks a statement as totally unusable.
      */
@@ -46,10 +46,14 @@ import com.splicemachine.db.iapi.sql.depend.Dependency;
 import com.splicemachine.db.iapi.sql.dictionary.DataDictionary;
 import com.splicemachine.db.iapi.sql.dictionary.SchemaDescriptor;
 import com.splicemachine.db.iapi.sql.execute.ExecutionContext;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.db.iapi.util.ByteArray;
 import com.splicemachine.db.iapi.util.InterruptStatus;
 import com.splicemachine.db.impl.ast.JsonTreeBuilderVisitor;
+import com.splicemachine.db.impl.sql.compile.CursorNode;
 import com.splicemachine.db.impl.sql.compile.ExplainNode;
+import com.splicemachine.db.impl.sql.compile.LiteralSensitivityVisitor;
+import com.splicemachine.db.impl.sql.compile.ResultCacheEligibilityVisitor;
 import com.splicemachine.db.impl.sql.compile.StatementNode;
 import com.splicemachine.db.impl.sql.conn.GenericLanguageConnectionContext;
 import com.splicemachine.db.impl.sql.misc.CommentStripper;
@@ -76,6 +80,9 @@ public class GenericStatement implements Statement{
     private GenericStorablePreparedStatement preparedStmt;
     private String sessionPropertyValues = "null";
     private final String statementTextTrimed;
+    // the literals the statement text was parameterized from, see AutoParameterizer
+    private DataValueDescriptor[] autoParameterValues;
+    private long lastCompileNanos;
 
     /**
      * Constructor for a Statement given the text of the statement in a String
@@ -216,6 +223,22 @@ public class GenericStatement implements Statement{
 
     public String getCompilationSchema(){ return compilationSchema.getDescriptorName(); }
 
+    /**
+     * Marks the statement text as the result of auto-parameterization, so that compiling it checks
+     * whether the plan is sensitive to the values of the original literals.
+     *
+     * @param autoParameterValues the literals, in parameter order
+     */
+    public void setAutoParameterValues(DataValueDescriptor[] autoParameterValues){
+        this.autoParameterValues=autoParameterValues;
+    }
+
+    /**
+     * @return the time spent compiling the statement in the last call to prepare, or 0 if the
+     * prepared statement was up to date
+     */
+    public long getLastCompileNanos(){ return lastCompileNanos; }
+
     /**
      * Return the {@link PreparedStatement} currently associated with this
      * statement.
@@ -575,7 +598,9 @@ public class GenericStatement implements Statement{
 
             saveTree(qt, CompilationPhase.AFTER_GENERATE);
 
-            lcc.logEndCompiling(getSource(), System.nanoTime() - startTime);
+            lastCompileNanos = System.nanoTime() - startTime;
+            preparedStmt.setCompileNanos(lastCompileNanos);
+            lcc.logEndCompiling(getSource(), lastCompileNanos);
         } catch (StandardException e) {
             lcc.logErrorCompiling(getSource(), e, System.nanoTime() - startTime);
             throw e;
@@ -620,6 +645,8 @@ public class GenericStatement implements Statement{
             dumpParseTree(lcc,qt,false);
 
             qt.bindStatement();
+            if(autoParameterValues!=null)
+                preparedStmt.setLiteralGuards(LiteralSensitivityVisitor.guardsFor(qt));
             timestamps[2]=getCurrentTimeMillis(lcc);
 
             // Call user-written tree-printer if it exists
@@ -659,7 +686,8 @@ public class GenericStatement implements Statement{
             //view gets replaced with the actual view definition. Right after
             // binding, we still have the information on the view and that is why
             // we do the check here.
-            if(preparedStmt.referencesSessionSchema(qt)){
+            boolean referencesSessionSchema=preparedStmt.referencesSessionSchema(qt);
+            if(referencesSessionSchema){
                 if(foundInCache)
                     ((GenericLanguageConnectionContext)lcc).removeStatement(this);
             }
@@ -670,6 +698,10 @@ public class GenericStatement implements Statement{
             if(foundInCache && qt instanceof ExplainNode){
                 ((GenericLanguageConnectionContext)lcc).removeStatement(this);
             }
+            if(lcc.getResultCacheEnabled() && qt instanceof CursorNode && !referencesSessionSchema)
+                preparedStmt.setResultCacheConglomerates(ResultCacheEligibilityVisitor.cachedConglomerates(qt));
+            else
+                preparedStmt.setResultCacheConglomerates(null);
             qt.optimizeStatement();
             dumpOptimizedTree(lcc,qt,false);
             timestamps[3]=getCurrentTimeMillis(lcc);
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.splicemachine.db.impl.sql.catalog;
+
+import org.spark_project.guava.cache.Cache;
+import org.spark_project.guava.cache.CacheBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for the statements which were prepared with their literals replaced by parameters,
+ * and the shapes which failed to compile that way.
+ */
+public class AutoParameterizedStatementStats implements AutoParameterizedStatementStatsMBean {
+    private static final int MAX_REJECTED_SHAPES = 1024;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder compiles = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder literalSensitive = new LongAdder();
+    private final LongAdder savedNanos = new LongAdder();
+    private final LongAdder spentNanos = new LongAdder();
+    private final Cache<String, Boolean> rejectedShapes = CacheBuilder.newBuilder()
+            .maximumSize(MAX_REJECTED_SHAPES).build();
+
+    public void hit(long savedCompileNanos) {
+        hits.increment();
+        savedNanos.add(savedCompileNanos);
+    }
+
+    public void compiled(long compileNanos) {
+        compiles.increment();
+        spentNanos.add(compileNanos);
+    }
+
+    /**
+     * @param compileNanos the time spent compiling the plan for the shape, if this statement compiled it
+     */
+    public void fallback(long compileNanos) {
+        fallbacks.increment();
+        spentNanos.add(compileNanos);
+    }
+
+    public void literalSensitive(long compileNanos) {
+        literalSensitive.increment();
+        fallback(compileNanos);
+    }
+
+    /**
+     * Remembers that the parameterized text doesn't compile, so that later statements
+     * of the same shape are compiled as written straight away.
+     */
+    public void reject(String shape) {
+        rejectedShapes.put(shape, Boolean.TRUE);
+        fallbacks.increment();
+    }
+
+    public boolean isRejected(String shape) {
+        return rejectedShapes.getIfPresent(shape) != null;
+    }
+
+    public void clearRejected() {
+        rejectedShapes.invalidateAll();
+    }
+
+    @Override public long getStatementCount() { return hits.sum() + compiles.sum() + fallbacks.sum(); }
+    @Override public long getHitCount() { return hits.sum(); }
+    @Override public long getCompileCount() { return compiles.sum(); }
+    @Override public long getFallbackCount() { return fallbacks.sum(); }
+    @Override public long getLiteralSensitiveCount() { return literalSensitive.sum(); }
+    @Override public long getCompileTimeSavedMillis() { return TimeUnit.NANOSECONDS.toMillis(savedNanos.sum()); }
+    @Override public long getCompileTimeSpentMillis() { return TimeUnit.NANOSECONDS.toMillis(spentNanos.sum()); }
+
+    @Override
+    public double getHitRate() {
+        long statements = getStatementCount();
+        return statements == 0 ? 0.0d : (double) hits.sum() / statements;
+    }
+
+    @Override
+    public void reset() {
+        hits.reset();
+        compiles.reset();
+        fallbacks.reset();
+        literalSensitive.reset();
+        savedNanos.reset();
+        spentNanos.reset();
+        rejectedShapes.invalidateAll();
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.splicemachine.db.impl.sql.catalog;
+
+import javax.management.MXBean;
+
+/**
+ *
+ * The MXBean IFace for AutoParameterizedStatementStats.
+ *
+ */
+
+@MXBean
+public interface AutoParameterizedStatementStatsMBean {
+
+    /** @return the number of executed statements which had literals replaced by parameters */
+    long getStatementCount();
+
+    /** @return the number of statements which reused the plan of an earlier statement of the same shape */
+    long getHitCount();
+
+    /** @return the number of statements which had to compile the plan for their shape */
+    long getCompileCount();
+
+    /** @return the number of statements which were compiled as written after all */
+    long getFallbackCount();
+
+    /** @return the number of fallbacks because the plan for the shape depends on the literal values */
+    long getLiteralSensitiveCount();
+
+    double getHitRate();
+
+    /** @return the compile time of the plans which were reused */
+    long getCompileTimeSavedMillis();
+
+    /** @return the time spent compiling plans for shapes */
+    long getCompileTimeSpentMillis();
+
+    void reset();
+
+}
@@ -85,6 +85,8 @@ public class DataDictionaryCache {
     private ManagedCache<Pair<String, String>, Optional<RoleGrantDescriptor>> roleGrantCache;
     private ManagedCache<ByteSlice,TokenDescriptor> tokenCache;
     private ManagedCache<String, Optional<String>> propertyCache;
+    private final AutoParameterizedStatementStats autoParameterizedStatementStats = new AutoParameterizedStatementStats();
+    private final ResultCache resultCache;
     private DataDictionary dd;
     public static final String [] cacheNames = new String[] {"oidTdCache", "nameTdCache", "spsNameCache", "sequenceGeneratorCache", "permissionsCache", "partitionStatisticsCache",
             "storedPreparedStatementCache", "conglomerateCache", "statementCache", "schemaCache", "aliasDescriptorCache", "roleCache", "defaultRoleCache", "roleGrantCache",
@@ -134,6 +136,9 @@ public class DataDictionaryCache {
                 Property.LANG_TOKEN_CACHE_SIZE_DEFAULT);
         int propertyCacheSize = getCacheSize(startParams, Property.LANG_PROPERTY_CACHE_SIZE,
                 Property.LANG_PROPERTY_CACHE_SIZE_DEFAULT);
+        int resultCacheSize = getCacheSize(startParams, Property.LANG_RESULT_CACHE_SIZE,
+                Property.LANG_RESULT_CACHE_SIZE_DEFAULT);
+        resultCache = new ResultCache(resultCacheSize * 1024L * 1024L);
 
         RemovalListener<Object,Dependent> dependentInvalidator = new RemovalListener<Object, Dependent>() {
             @Override
@@ -449,6 +454,8 @@ public class DataDictionaryCache {
         schemaCache.invalidateAll();
         oidSchemaCache.invalidateAll();
         statementCache.invalidateAll();
+        autoParameterizedStatementStats.clearRejected();
+        resultCache.clear();
         roleCache.invalidateAll();
         defaultRoleCache.invalidateAll();
         roleGrantCache.invalidateAll();
@@ -468,6 +475,8 @@ public class DataDictionaryCache {
         sequenceGeneratorCache.invalidateAll();
         permissionsCache.invalidateAll();
         statementCache.invalidateAll();
+        autoParameterizedStatementStats.clearRejected();
+        resultCache.clear();
         roleCache.invalidateAll();
         defaultRoleCache.invalidateAll();
         roleGrantCache.invalidateAll();
@@ -490,6 +499,16 @@ public class DataDictionaryCache {
         if (LOG.isDebugEnabled())
             LOG.debug("clearStatementCache ");
         statementCache.invalidateAll();
+        autoParameterizedStatementStats.clearRejected();
+        resultCache.clear();
+    }
+
+    public AutoParameterizedStatementStats getAutoParameterizedStatementStats() {
+        return autoParameterizedStatementStats;
+    }
+
+    public ResultCache getResultCache() {
+        return resultCache;
     }
 
     public void statementCacheAdd(GenericStatement gs, GenericStorablePreparedStatement gsp) throws StandardException {
@@ -673,6 +692,10 @@ public class DataDictionaryCache {
             ObjectName totCache = new ObjectName("com.splicemachine.db.impl.sql.catalog:type=TotalManagedCache");
             TotalManagedCache tm = new TotalManagedCache(Arrays.asList(mc));
             mbs.registerMBean(tm, totCache);
+            ObjectName autoParameterized = new ObjectName("com.splicemachine.db.impl.sql.catalog:type=AutoParameterizedStatementCache");
+            mbs.registerMBean(autoParameterizedStatementStats, autoParameterized);
+            ObjectName resultCacheName = new ObjectName("com.splicemachine.db.impl.sql.catalog:type=ResultCache");
+            mbs.registerMBean(resultCache, resultCacheName);
         }catch(InstanceAlreadyExistsException ignored){
             /*
              * For most purposes, this should never happen. However, it's possible to happen
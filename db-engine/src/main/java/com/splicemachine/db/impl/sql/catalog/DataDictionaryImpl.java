@@ -49,6 +49,7 @@ import com.splicemachine.db.iapi.services.monitor.Monitor;
 import com.splicemachine.db.iapi.services.property.PropertyUtil;
 import com.splicemachine.db.iapi.services.sanity.SanityManager;
 import com.splicemachine.db.iapi.services.uuid.UUIDFactory;
+import com.splicemachine.db.iapi.sql.compile.CompilerContext;
 import com.splicemachine.db.iapi.sql.compile.Visitable;
 import com.splicemachine.db.iapi.sql.conn.Authorizer;
 import com.splicemachine.db.iapi.sql.conn.ConnectionUtil;
@@ -64,7 +65,15 @@ import com.splicemachine.db.impl.jdbc.LOBStoredProcedure;
 import com.splicemachine.db.impl.services.locks.Timeout;
 import com.splicemachine.db.impl.sql.compile.CollectNodesVisitor;
 import com.splicemachine.db.impl.sql.compile.ColumnReference;
+import com.splicemachine.db.impl.sql.compile.InsertNode;
+import com.splicemachine.db.impl.sql.compile.JavaToSQLValueNode;
+import com.splicemachine.db.impl.sql.compile.ResultColumnList;
+import com.splicemachine.db.impl.sql.compile.ResultSetNode;
+import com.splicemachine.db.impl.sql.compile.RowResultSetNode;
+import com.splicemachine.db.impl.sql.compile.SelectNode;
+import com.splicemachine.db.impl.sql.compile.SubqueryNode;
 import com.splicemachine.db.impl.sql.compile.TableName;
+import com.splicemachine.db.impl.sql.compile.UntypedNullConstantNode;
 import com.splicemachine.db.impl.sql.execute.JarUtil;
 import com.splicemachine.db.impl.sql.execute.TriggerEventDML;
 import com.splicemachine.db.impl.sql.execute.ValueRow;
@@ -1242,6 +1251,17 @@ public abstract class DataDictionaryImpl extends BaseDataDictionary{
         deleteColumnStatistics(conglomerate,tc);
     }
 
+    @Override
+    public void deletePartitionStatistics(long conglomerate,
+                                          String partitionId,
+                                          TransactionController tc) throws StandardException{
+        ExecIndexRow keyRow=exFactory.getIndexableRow(2);
+        keyRow.setColumn(1,new SQLLongint(conglomerate));
+        keyRow.setColumn(2,new SQLVarchar(partitionId));
+        getNonCoreTI(SYSTABLESTATS_CATALOG_NUM).deleteRow(tc,keyRow,SYSTABLESTATISTICSRowFactory.SYSTABLESTATISTICS_INDEX2_ID);
+        getNonCoreTI(SYSCOLUMNSTATS_CATALOG_NUM).deleteRow(tc,keyRow,SYSCOLUMNSTATISTICSRowFactory.SYSCOLUMNSTATISTICS_INDEX2_ID);
+    }
+
     @Override
     public void deleteColumnStatistics(long conglomerate,
                                       TransactionController tc) throws StandardException{
@@ -3961,6 +3981,138 @@ public abstract class DataDictionaryImpl extends BaseDataDictionary{
         return newText.toString();
     }
 
+    @Override
+    public String getTriggerSetActionString(Visitable actionStmt,
+                                            String newReferencingName,
+                                            String triggerDefinition,
+                                            TableDescriptor triggerTableDescriptor,
+                                            SchemaDescriptor compSchema,
+                                            LanguageConnectionContext lcc) throws StandardException{
+        if(!(actionStmt instanceof InsertNode))
+            return null;
+        InsertNode insertNode=(InsertNode)actionStmt;
+        TableName targetName=insertNode.getTargetTableName();
+        if(targetName==null || targetName.getEndOffset()<0 || !(insertNode.getResultSetNode() instanceof RowResultSetNode))
+            return null;
+
+        //The values may only refer to the new row; anything that could read the table the action inserts into
+        //would see the rows inserted for the earlier rows when the action is run once per row, but not here.
+        ResultColumnList values=insertNode.getResultSetNode().getResultColumns();
+        for(Class nodeClass : new Class[]{SubqueryNode.class,JavaToSQLValueNode.class,UntypedNullConstantNode.class}){
+            CollectNodesVisitor visitor=new CollectNodesVisitor(nodeClass);
+            values.accept(visitor);
+            if(!visitor.getList().isEmpty())
+                return null;
+        }
+        CollectNodesVisitor visitor=new CollectNodesVisitor(ColumnReference.class);
+        values.accept(visitor);
+        for(Object ref : visitor.getList()){
+            TableName tableName=((ColumnReference)ref).getTableNameNode();
+            if(tableName==null || tableName.hasSchema() || !tableName.getTableName().equals(newReferencingName))
+                return null;
+        }
+
+        //The table inserted into must not be the trigger table, nor fire triggers of its own.
+        TransactionController tc=lcc.getTransactionExecute();
+        SchemaDescriptor targetSchema=targetName.hasSchema()?getSchemaDescriptor(targetName.getSchemaName(),tc,false):compSchema;
+        if(targetSchema==null)
+            return null;
+        TableDescriptor target=getTableDescriptor(targetName.getTableName(),targetSchema,tc);
+        if(target==null || target.getTableType()!=TableDescriptor.BASE_TABLE_TYPE ||
+                target.getUUID().equals(triggerTableDescriptor.getUUID()) || !getTriggerDescriptors(target).isEmpty())
+            return null;
+
+        //INSERT INTO t [(columns)] VALUES (values) turns into
+        //INSERT INTO t [(columns)] SELECT values FROM new TriggerNewTransitionRowsVTI() n
+        int valuesOffset=skipInsertColumns(triggerDefinition,targetName.getEndOffset()+1);
+        if(valuesOffset<0 || !triggerDefinition.regionMatches(true,valuesOffset,"VALUES",0,6))
+            return null;
+        String row=triggerDefinition.substring(valuesOffset+6).trim();
+        if(row.startsWith("(") && skipParenthesized(row,0)==row.length())
+            row=row.substring(1,row.length()-1);
+        String correlationName=IdUtil.normalToDelimited(newReferencingName==null?"NEW":newReferencingName);
+        String setActionText=triggerDefinition.substring(0,valuesOffset)+"SELECT "+row+"\nFROM new "+
+                ClassName.TriggerNewTransitionRowsVTI+"() "+correlationName;
+
+        //Make sure the text still says the same thing, or leave the action to run once per row.
+        CompilerContext newCC=lcc.pushCompilerContext(compSchema);
+        try{
+            Visitable setAction=newCC.getParser().parseStatement(setActionText);
+            if(setAction instanceof InsertNode){
+                ResultSetNode source=((InsertNode)setAction).getResultSetNode();
+                if(source instanceof SelectNode && source.getResultColumns().size()==values.size())
+                    return setActionText;
+            }
+        }catch(StandardException se){
+            // not a statement we can run over all of the rows
+        }finally{
+            lcc.popCompilerContext(newCC);
+        }
+        return null;
+    }
+
+    /*
+     * Skip the blanks, comments and optional column list following the table name of an INSERT, returning the
+     * offset of the insert's source, or -1 if the column list isn't closed.
+     */
+    private static int skipInsertColumns(String text,int offset){
+        offset=skipBlanks(text,offset);
+        if(offset<text.length() && text.charAt(offset)=='('){
+            offset=skipParenthesized(text,offset);
+            if(offset<0)
+                return -1;
+            offset=skipBlanks(text,offset);
+        }
+        return offset;
+    }
+
+    private static int skipBlanks(String text,int offset){
+        while(offset<text.length()){
+            if(Character.isWhitespace(text.charAt(offset))){
+                offset++;
+            }else if(text.startsWith("--",offset)){
+                int end=text.indexOf('\n',offset);
+                offset=end<0?text.length():end+1;
+            }else if(text.startsWith("/*",offset)){
+                int end=text.indexOf("*/",offset+2);
+                offset=end<0?text.length():end+2;
+            }else{
+                break;
+            }
+        }
+        return offset;
+    }
+
+    /*
+     * Returns the offset after the parenthesis matching the one at the given offset, skipping over quoted
+     * strings and identifiers, or -1 if it isn't closed.
+     */
+    private static int skipParenthesized(String text,int offset){
+        int depth=0;
+        while(offset<text.length()){
+            char c=text.charAt(offset);
+            if(c=='\'' || c=='"'){
+                int end=text.indexOf(c,offset+1);
+                if(end<0)
+                    return -1;
+                offset=end+1;
+                continue;
+            }
+            int next=skipBlanks(text,offset);
+            if(next>offset){
+                offset=next;
+                continue;
+            }
+            if(c=='('){
+                depth++;
+            }else if(c==')' && --depth==0){
+                return offset+1;
+            }
+            offset++;
+        }
+        return -1;
+    }
+
     /*
 	 * The arrary passed will have either -1 or a column position as it's 
 	 * elements. If the array only has -1 as for all it's elements, then
@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.splicemachine.db.impl.sql.catalog;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.ParameterValueSet;
+import com.splicemachine.db.iapi.sql.PreparedStatement;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.sql.execute.ResultCacheValidator;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The rows of read-only statements, keyed by the prepared statement and its parameter values, and
+ * evicted least recently used first once they take more than the configured number of bytes.
+ * <p>
+ * Each entry remembers the heap conglomerates it was read from, the snapshot it was read at and
+ * the write sequence of the {@link ResultCacheValidator} when it was started. An entry is served to
+ * readers at or after its snapshot for as long as none of its conglomerates has been written, here
+ * or through another server, and is dropped as soon as one has. DDL drops every entry through the
+ * data dictionary cache.
+ */
+public class ResultCache implements ResultCacheMBean {
+    /* a single result may take up at most this fraction of the cache */
+    private static final int MAX_ENTRY_FRACTION = 4;
+    /* the bookkeeping of an entry and of each row, on top of the column values */
+    private static final long ENTRY_OVERHEAD = 128;
+    private static final long ROW_OVERHEAD = 32;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder installs = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder oversized = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxBytes the memory the rows may take up, 0 to disable the cache
+     */
+    public ResultCache(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+    }
+
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /** @return the largest result, in bytes, which will be cached */
+    public long getMaxEntryBytes() {
+        return maxBytes / MAX_ENTRY_FRACTION;
+    }
+
+    /**
+     * @param snapshot the snapshot of the reader
+     * @return the cached rows, or null if there is no entry the reader may be served
+     */
+    public List<ExecRow> get(Key key, long snapshot, ResultCacheValidator validator) throws StandardException {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (!validator.isUnchanged(entry.conglomerates, entry.writeSequence)) {
+            invalidate(key, entry);
+            return null;
+        }
+        if (snapshot < entry.snapshot) {
+            // the reader started before the rows were read, and may not see all of them
+            misses.increment();
+            return null;
+        }
+        if (!validator.isCurrent(entry.conglomerates, entry.snapshot)) {
+            invalidate(key, entry);
+            return null;
+        }
+        hits.increment();
+        return entry.rows;
+    }
+
+    /**
+     * Adds the rows of a statement which was read completely, unless one of its conglomerates was
+     * written while it was read, a write to one of them is still in flight, or one was written through
+     * another server by a transaction which committed after the snapshot.
+     *
+     * @param conglomerates the heap conglomerates the rows were read from
+     * @param snapshot the snapshot the rows were read at
+     * @param writeSequence the write sequence of {@code validator} before the rows were read
+     * @param rowBytes the size of the rows, as estimated by {@link #estimateSize(ExecRow)}
+     */
+    public void put(Key key, long[] conglomerates, long snapshot, long writeSequence,
+                    List<ExecRow> rows, long rowBytes, ResultCacheValidator validator) throws StandardException {
+        if (!validator.isUnchanged(conglomerates, writeSequence) || !validator.isStable(conglomerates, snapshot)
+                || !validator.isCurrent(conglomerates, snapshot)) {
+            rejected.increment();
+            return;
+        }
+        long size = ENTRY_OVERHEAD + rowBytes;
+        if (size > getMaxEntryBytes()) {
+            oversized.increment();
+            return;
+        }
+        Entry entry = new Entry(conglomerates, snapshot, writeSequence, rows, size);
+        synchronized (this) {
+            Entry old = entries.get(key);
+            if (old != null && old.snapshot > snapshot)
+                return;
+            remove(key);
+            entries.put(key, entry);
+            bytes += size;
+            Iterator<Map.Entry<Key, Entry>> lru = entries.entrySet().iterator();
+            while (bytes > maxBytes && lru.hasNext()) {
+                bytes -= lru.next().getValue().size;
+                lru.remove();
+                evictions.increment();
+            }
+        }
+        installs.increment();
+    }
+
+    /** @return the estimated memory taken up by the row, for {@link #put} */
+    public static long estimateSize(ExecRow row) {
+        long size = ROW_OVERHEAD;
+        for (DataValueDescriptor column : row.getRowArray()) {
+            if (column != null)
+                size += column.estimateMemoryUsage();
+        }
+        return size;
+    }
+
+    private void invalidate(Key key, Entry entry) {
+        synchronized (this) {
+            if (entries.get(key) == entry)
+                remove(key);
+        }
+        invalidations.increment();
+        misses.increment();
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null)
+            bytes -= removed.size;
+    }
+
+    @Override public long getHitCount() { return hits.sum(); }
+    @Override public long getMissCount() { return misses.sum(); }
+    @Override public long getInstallCount() { return installs.sum(); }
+    @Override public long getRejectedCount() { return rejected.sum(); }
+    @Override public long getOversizedCount() { return oversized.sum(); }
+    @Override public long getInvalidationCount() { return invalidations.sum(); }
+    @Override public long getEvictionCount() { return evictions.sum(); }
+    @Override public synchronized int getEntryCount() { return entries.size(); }
+    @Override public synchronized long getSizeInBytes() { return bytes; }
+    @Override public long getMaxSizeInBytes() { return maxBytes; }
+
+    @Override
+    public double getHitRate() {
+        long lookups = hits.sum() + misses.sum();
+        return lookups == 0 ? 0.0d : (double) hits.sum() / lookups;
+    }
+
+    @Override
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    @Override
+    public void reset() {
+        hits.reset();
+        misses.reset();
+        installs.reset();
+        rejected.reset();
+        oversized.reset();
+        invalidations.reset();
+        evictions.reset();
+    }
+
+    /**
+     * Identifies the results of one execution: the prepared statement, which is shared by every
+     * connection that prepares the same text in the same schema, the plan it was compiled to, and
+     * the values of its parameters. Values are compared by type and string form, so that e.g. 1.0
+     * and 1.00 are different keys.
+     */
+    public static final class Key {
+        private final PreparedStatement statement;
+        private final long version;
+        private final String[] parameters;
+        private final int hash;
+
+        Key(PreparedStatement statement, long version, String[] parameters) {
+            this.statement = statement;
+            this.version = version;
+            this.parameters = parameters;
+            this.hash = 31 * (31 * System.identityHashCode(statement) + Long.hashCode(version)) + Arrays.hashCode(parameters);
+        }
+
+        public static Key of(PreparedStatement statement, ParameterValueSet pvs) throws StandardException {
+            int count = pvs == null ? 0 : pvs.getParameterCount();
+            String[] parameters = new String[2 * count];
+            for (int i = 0; i < count; i++) {
+                DataValueDescriptor value = pvs.getParameter(i);
+                parameters[2 * i] = value.getTypeName();
+                parameters[2 * i + 1] = value.isNull() ? null : value.getString();
+            }
+            return new Key(statement, statement.getVersionCounter(), parameters);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return statement == key.statement && version == key.version && Arrays.equals(parameters, key.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Entry {
+        private final long[] conglomerates;
+        private final long snapshot;
+        private final long writeSequence;
+        private final List<ExecRow> rows;
+        private final long size;
+
+        Entry(long[] conglomerates, long snapshot, long writeSequence, List<ExecRow> rows, long size) {
+            this.conglomerates = conglomerates;
+            this.snapshot = snapshot;
+            this.writeSequence = writeSequence;
+            this.rows = rows;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.splicemachine.db.impl.sql.catalog;
+
+import javax.management.MXBean;
+
+/**
+ *
+ * The MXBean IFace for ResultCache.
+ *
+ */
+
+@MXBean
+public interface ResultCacheMBean {
+
+    /** @return the number of executions answered from the cache */
+    long getHitCount();
+
+    /** @return the number of cacheable executions which had to run the statement */
+    long getMissCount();
+
+    double getHitRate();
+
+    /** @return the number of results added to the cache */
+    long getInstallCount();
+
+    /** @return the number of results not added because their tables were written while they were read */
+    long getRejectedCount();
+
+    /** @return the number of results which were too large to cache */
+    long getOversizedCount();
+
+    /** @return the number of entries dropped because their tables were written, or they got too old */
+    long getInvalidationCount();
+
+    /** @return the number of entries dropped to make room for others */
+    long getEvictionCount();
+
+    int getEntryCount();
+
+    long getSizeInBytes();
+
+    long getMaxSizeInBytes();
+
+    /** drops every entry */
+    void clear();
+
+    void reset();
+
+}
@@ -262,7 +262,18 @@ abstract class DMLModStatementNode extends DMLStatementNode
 		sd = getSchemaDescriptor(targetTableName.getSchemaName());
 
 		return sd;
-	}	
+	}
+
+	/**
+	 * Get the name of the target table, as written in the statement
+	 * until it is bound.
+	 *
+	 * @return the target table name, null if the target is a VTI
+	 */
+	public TableName getTargetTableName()
+	{
+		return targetTableName;
+	}
 
 	/**
 	  Get a map to efficiently find heap columns from a compressed set of
@@ -1520,7 +1520,8 @@ public class FromVTI extends FromTable implements VTIEnvironment {
     private UUID getSpecialTriggerVTITableName(LanguageConnectionContext lcc, String className)
             throws StandardException
     {
-        if (className.equals(ClassName.TriggerNewTransitionRows))
+        if (className.equals(ClassName.TriggerNewTransitionRows)
+                || className.equals(ClassName.TriggerNewTransitionRowsVTI))
 //				|| className.equals(ClassName.TriggerOldTransitionRows))
         {
             // if there isn't an active trigger being compiled, error
@@ -88,7 +88,8 @@ public class HasCorrelatedCRsVisitor implements Visitor
 			 */
 			if (((MethodCallNode)node).getMethodName().equals("getTriggerExecutionContext") ||
 //				((MethodCallNode)node).getMethodName().equals("TriggerOldTransitionRows") ||
-				((MethodCallNode)node).getMethodName().equals("TriggerNewTransitionRows")
+				((MethodCallNode)node).getMethodName().equals("TriggerNewTransitionRows") ||
+				((MethodCallNode)node).getMethodName().equals("TriggerNewTransitionRowsVTI")
 			   )
 			{
 				hasCorrelatedCRs = true;
@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.db.impl.sql.compile;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.compile.Visitable;
+import com.splicemachine.db.iapi.sql.compile.Visitor;
+import com.splicemachine.db.iapi.store.access.StoreCostController;
+import com.splicemachine.db.iapi.types.DataTypeDescriptor;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decides whether a plan compiled for auto-parameterized literals is a poor fit for the literals it
+ * is run with.
+ *
+ * For every predicate comparing a column with one of the parameters, the statistics estimate for
+ * the literal is compared with the estimate the optimizer uses for an unknown parameter. If the two
+ * are more than {@link #SKEW_RATIO} apart, the literal is skewed (a very common or very rare value,
+ * or a very wide or narrow range) and the plan should not be used for it.
+ *
+ * The bound tree is only available while the statement compiles, so the visitor collects a
+ * {@link Guard} per predicate, which the prepared statement keeps to check the literals of every
+ * execution.
+ */
+public class LiteralSensitivityVisitor implements Visitor{
+    public static final double SKEW_RATIO = 10.0d;
+
+    /* the estimates BinaryRelationalOperatorNode#selectivity uses for ranges over unknown values */
+    private static final double RANGE_SELECTIVITY = 0.33d;
+    private static final double BETWEEN_SELECTIVITY = 0.5d;
+
+    private final List<Guard> guards=new ArrayList<>();
+
+    /**
+     * @param boundTree the bound statement
+     * @return the checks to run against the literals of each execution of the statement
+     */
+    public static Guard[] guardsFor(Visitable boundTree) throws StandardException{
+        LiteralSensitivityVisitor visitor=new LiteralSensitivityVisitor();
+        boundTree.accept(visitor);
+        return visitor.guards.toArray(new Guard[visitor.guards.size()]);
+    }
+
+    /**
+     * @param guards the guards of the statement, from {@link #guardsFor(Visitable)}
+     * @param literals the literals the parameters of the statement are bound to, in parameter order
+     * @return true if the plan for the statement is a poor fit for {@code literals}
+     */
+    public static boolean isLiteralSensitive(Guard[] guards,DataValueDescriptor[] literals){
+        if(guards==null)
+            return false;
+        for(Guard guard:guards){
+            if(guard.isSkewed(literals))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Visitable visit(Visitable node,QueryTreeNode parent) throws StandardException{
+        if(node instanceof BinaryRelationalOperatorNode)
+            checkComparison((BinaryRelationalOperatorNode)node);
+        else if(node instanceof BetweenOperatorNode)
+            checkBetween((BetweenOperatorNode)node);
+        else if(node instanceof InListOperatorNode)
+            checkInList((InListOperatorNode)node);
+        return node;
+    }
+
+    @Override
+    public boolean visitChildrenFirst(Visitable node){
+        return false;
+    }
+
+    @Override
+    public boolean stopTraversal(){
+        return false;
+    }
+
+    @Override
+    public boolean skipChildren(Visitable node){
+        return false;
+    }
+
+    private void checkComparison(BinaryRelationalOperatorNode comparison) throws StandardException{
+        int operator=comparison.getOperator();
+        ColumnReference column;
+        int parameter;
+        if(comparison.getLeftOperand() instanceof ColumnReference){
+            column=(ColumnReference)comparison.getLeftOperand();
+            parameter=parameterFor(comparison.getRightOperand());
+        }else if(comparison.getRightOperand() instanceof ColumnReference){
+            column=(ColumnReference)comparison.getRightOperand();
+            parameter=parameterFor(comparison.getLeftOperand());
+            operator=swap(operator);
+        }else
+            return;
+        if(parameter<0)
+            return;
+        StoreCostController scc=statisticsFor(column);
+        if(scc==null || column.getTypeServices()==null)
+            return;
+        switch(operator){
+            case RelationalOperator.EQUALS_RELOP:
+                double generic=column.columnReferenceEqualityPredicateSelectivity();
+                if(generic>0.0d)
+                    guards.add(new ComparisonGuard(scc,column,parameter,operator,generic));
+                break;
+            case RelationalOperator.LESS_THAN_RELOP:
+            case RelationalOperator.LESS_EQUALS_RELOP:
+            case RelationalOperator.GREATER_THAN_RELOP:
+            case RelationalOperator.GREATER_EQUALS_RELOP:
+                guards.add(new ComparisonGuard(scc,column,parameter,operator,RANGE_SELECTIVITY));
+                break;
+            default:
+                // a <> predicate is close to 1 whatever the literal
+        }
+    }
+
+    private void checkBetween(BetweenOperatorNode between) throws StandardException{
+        if(!(between.getLeftOperand() instanceof ColumnReference))
+            return;
+        ColumnReference column=(ColumnReference)between.getLeftOperand();
+        ValueNodeList bounds=between.getRightOperandList();
+        ValueNode low=(ValueNode)bounds.elementAt(0);
+        ValueNode high=(ValueNode)bounds.elementAt(1);
+        if(!(low instanceof ParameterNode) && !(high instanceof ParameterNode))
+            return;
+        if(!isBound(low) || !isBound(high))
+            return;
+        StoreCostController scc=statisticsFor(column);
+        if(scc==null || column.getTypeServices()==null)
+            return;
+        guards.add(new BetweenGuard(scc,column,parameterFor(low),constantFor(low),parameterFor(high),constantFor(high)));
+    }
+
+    private void checkInList(InListOperatorNode inList) throws StandardException{
+        if(!(inList.getLeftOperand() instanceof ColumnReference))
+            return;
+        ColumnReference column=(ColumnReference)inList.getLeftOperand();
+        StoreCostController scc=statisticsFor(column);
+        if(scc==null || column.getTypeServices()==null)
+            return;
+        double generic=column.columnReferenceEqualityPredicateSelectivity();
+        if(generic<=0.0d)
+            return;
+        ValueNodeList elements=inList.getRightOperandList();
+        int[] parameters=new int[elements.size()];
+        int n=0;
+        for(int i=0;i<elements.size();i++){
+            int parameter=parameterFor((ValueNode)elements.elementAt(i));
+            if(parameter>=0)
+                parameters[n++]=parameter;
+        }
+        if(n>0)
+            guards.add(new InListGuard(scc,column,generic,Arrays.copyOf(parameters,n)));
+    }
+
+    private static int parameterFor(ValueNode operand){
+        return operand instanceof ParameterNode?((ParameterNode)operand).getParameterNumber():-1;
+    }
+
+    private static DataValueDescriptor constantFor(ValueNode operand) throws StandardException{
+        return operand instanceof ConstantNode?((ConstantNode)operand).getValue():null;
+    }
+
+    private static boolean isBound(ValueNode operand){
+        return operand instanceof ParameterNode || operand instanceof ConstantNode;
+    }
+
+    private static StoreCostController statisticsFor(ColumnReference column) throws StandardException{
+        if(column.getSource()==null || column.getSource().getTableColumnDescriptor()==null)
+            return null;
+        return column.getStoreCostController();
+    }
+
+    private static int swap(int operator){
+        switch(operator){
+            case RelationalOperator.LESS_THAN_RELOP: return RelationalOperator.GREATER_THAN_RELOP;
+            case RelationalOperator.LESS_EQUALS_RELOP: return RelationalOperator.GREATER_EQUALS_RELOP;
+            case RelationalOperator.GREATER_THAN_RELOP: return RelationalOperator.LESS_THAN_RELOP;
+            case RelationalOperator.GREATER_EQUALS_RELOP: return RelationalOperator.LESS_EQUALS_RELOP;
+            default: return operator;
+        }
+    }
+
+    /**
+     * A predicate of the statement whose selectivity depends on the literals the statement runs with.
+     * Guards keep the statistics the statement was compiled with, and are immutable.
+     */
+    public abstract static class Guard{
+        private final StoreCostController scc;
+        private final DataTypeDescriptor type;
+        final int position;
+
+        Guard(StoreCostController scc,ColumnReference column){
+            this.scc=scc;
+            this.type=column.getTypeServices();
+            this.position=column.getSource().getColumnPosition();
+        }
+
+        /**
+         * @param literals the literals the parameters of the statement are bound to, in parameter order
+         * @return true if the statistics estimate for {@code literals} is far off the generic estimate
+         */
+        abstract boolean isSkewed(DataValueDescriptor[] literals);
+
+        double selectivity(DataValueDescriptor start,boolean includeStart,DataValueDescriptor stop,boolean includeStop){
+            return scc.getSelectivity(position,start,includeStart,stop,includeStop,false);
+        }
+
+        boolean isSkewed(double generic,double specific){
+            // no estimate is finer than a single row
+            double floor=1.0d/Math.max(1.0d,scc.rowCount());
+            generic=Math.max(generic,floor);
+            specific=Math.max(specific,floor);
+            return Math.max(generic,specific)/Math.min(generic,specific)>=SKEW_RATIO;
+        }
+
+        /**
+         * @return the literal of {@code parameter} as a value of the column's type, as statistics are
+         * kept, or null if it has no such value
+         */
+        DataValueDescriptor columnValue(DataValueDescriptor[] literals,int parameter){
+            return parameter>=0 && parameter<literals.length?asColumnValue(literals[parameter]):null;
+        }
+
+        DataValueDescriptor asColumnValue(DataValueDescriptor literal){
+            if(literal==null)
+                return null;
+            try{
+                DataValueDescriptor value=type.getNull();
+                value.normalize(type,literal);
+                return value;
+            }catch(StandardException se){
+                return null;
+            }
+        }
+    }
+
+    /* column = ?, or a one-sided range over the column */
+    private static class ComparisonGuard extends Guard{
+        private final int parameter;
+        private final int operator;
+        private final double generic;
+
+        ComparisonGuard(StoreCostController scc,ColumnReference column,int parameter,int operator,double generic){
+            super(scc,column);
+            this.parameter=parameter;
+            this.operator=operator;
+            this.generic=generic;
+        }
+
+        @Override
+        boolean isSkewed(DataValueDescriptor[] literals){
+            DataValueDescriptor value=columnValue(literals,parameter);
+            if(value==null)
+                return false;
+            double specific;
+            switch(operator){
+                case RelationalOperator.LESS_THAN_RELOP:
+                case RelationalOperator.LESS_EQUALS_RELOP:
+                    specific=selectivity(null,true,value,operator==RelationalOperator.LESS_EQUALS_RELOP);
+                    break;
+                case RelationalOperator.GREATER_THAN_RELOP:
+                case RelationalOperator.GREATER_EQUALS_RELOP:
+                    specific=selectivity(value,operator==RelationalOperator.GREATER_EQUALS_RELOP,null,true);
+                    break;
+                default:
+                    specific=selectivity(value,true,value,true);
+            }
+            return isSkewed(generic,specific);
+        }
+    }
+
+    /* column BETWEEN ? AND ?, where either bound may be a constant */
+    private static class BetweenGuard extends Guard{
+        private final int lowParameter;
+        private final DataValueDescriptor lowConstant;
+        private final int highParameter;
+        private final DataValueDescriptor highConstant;
+
+        BetweenGuard(StoreCostController scc,ColumnReference column,
+                     int lowParameter,DataValueDescriptor lowConstant,
+                     int highParameter,DataValueDescriptor highConstant){
+            super(scc,column);
+            this.lowParameter=lowParameter;
+            this.lowConstant=lowConstant==null?null:asColumnValue(lowConstant);
+            this.highParameter=highParameter;
+            this.highConstant=highConstant==null?null:asColumnValue(highConstant);
+        }
+
+        @Override
+        boolean isSkewed(DataValueDescriptor[] literals){
+            DataValueDescriptor start=lowParameter>=0?columnValue(literals,lowParameter):lowConstant;
+            DataValueDescriptor stop=highParameter>=0?columnValue(literals,highParameter):highConstant;
+            if(start==null || stop==null)
+                return false;
+            return isSkewed(BETWEEN_SELECTIVITY,selectivity(start,true,stop,true));
+        }
+    }
+
+    /* column IN (?, ?, ...) */
+    private static class InListGuard extends Guard{
+        private final double generic;
+        private final int[] parameters;
+
+        InListGuard(StoreCostController scc,ColumnReference column,double generic,int[] parameters){
+            super(scc,column);
+            this.generic=generic;
+            this.parameters=parameters;
+        }
+
+        @Override
+        boolean isSkewed(DataValueDescriptor[] literals){
+            int n=0;
+            double specific=0.0d;
+            for(int parameter:parameters){
+                DataValueDescriptor value=columnValue(literals,parameter);
+                if(value==null)
+                    continue;
+                n++;
+                specific+=selectivity(value,true,value,true);
+            }
+            return n>0 && isSkewed(Math.min(1.0d,generic*n),Math.min(1.0d,specific));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.db.impl.sql.compile;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.compile.Visitable;
+import com.splicemachine.db.iapi.sql.compile.Visitor;
+import com.splicemachine.db.iapi.sql.dictionary.TableDescriptor;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Decides whether the results of a query may be kept in the result cache, and collects the heap
+ * conglomerates of the tables it reads, whose writes invalidate them.
+ *
+ * Only queries over user base tables qualify: system, temporary and external tables and table
+ * functions are not written through the write pipeline or bulk loads, so their changes would go
+ * unnoticed. The results must also only depend on the rows and the parameters, which rules out the
+ * current date and time, the current user or schema, sequences and function and procedure calls.
+ */
+public class ResultCacheEligibilityVisitor implements Visitor{
+    private final Set<Long> conglomerates=new LinkedHashSet<>();
+    private boolean ineligible;
+
+    /**
+     * @param boundTree the bound query
+     * @return the heap conglomerates the query reads, or null if its results may not be cached
+     */
+    public static long[] cachedConglomerates(Visitable boundTree) throws StandardException{
+        ResultCacheEligibilityVisitor visitor=new ResultCacheEligibilityVisitor();
+        boundTree.accept(visitor);
+        if(visitor.ineligible || visitor.conglomerates.isEmpty())
+            return null;
+        long[] result=new long[visitor.conglomerates.size()];
+        int i=0;
+        for(Long conglomerate : visitor.conglomerates)
+            result[i++]=conglomerate;
+        return result;
+    }
+
+    @Override
+    public Visitable visit(Visitable node,QueryTreeNode parent) throws StandardException{
+        if(node instanceof FromBaseTable){
+            TableDescriptor td=((FromBaseTable)node).getTableDescriptor();
+            if(td==null || td.getTableType()!=TableDescriptor.BASE_TABLE_TYPE)
+                ineligible=true;
+            else
+                conglomerates.add(td.getHeapConglomerateId());
+        }else if(node instanceof FromVTI
+                || node instanceof CurrentOfNode
+                || node instanceof CurrentDatetimeOperatorNode
+                || node instanceof SpecialFunctionNode
+                || node instanceof NextSequenceNode
+                || node instanceof CurrentRowLocationNode
+                || node instanceof MethodCallNode){
+            ineligible=true;
+        }
+        return node;
+    }
+
+    @Override
+    public boolean visitChildrenFirst(Visitable node){
+        return false;
+    }
+
+    @Override
+    public boolean stopTraversal(){
+        return ineligible;
+    }
+
+    @Override
+    public boolean skipChildren(Visitable node){
+        return false;
+    }
+}
@@ -60,11 +60,18 @@ import com.splicemachine.db.iapi.sql.execute.*;
 import com.splicemachine.db.iapi.sql.execute.CursorActivation;
 import com.splicemachine.db.iapi.store.access.TransactionController;
 import com.splicemachine.db.iapi.store.access.XATransactionController;
+import com.splicemachine.db.iapi.types.DataTypeDescriptor;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.db.iapi.types.DataValueFactory;
+import com.splicemachine.db.iapi.types.SQLChar;
+import com.splicemachine.db.iapi.types.TypeId;
 import com.splicemachine.db.iapi.util.IdUtil;
 import com.splicemachine.db.iapi.util.InterruptStatus;
+import com.splicemachine.db.impl.sql.AutoParameterizer;
+import com.splicemachine.db.impl.sql.GenericPreparedStatement;
 import com.splicemachine.db.impl.sql.GenericStatement;
 import com.splicemachine.db.impl.sql.GenericStorablePreparedStatement;
+import com.splicemachine.db.impl.sql.catalog.AutoParameterizedStatementStats;
 import com.splicemachine.db.impl.sql.compile.CompilerContextImpl;
 import com.splicemachine.db.impl.sql.execute.*;
 import com.splicemachine.db.impl.sql.misc.CommentStripper;
@@ -331,6 +338,8 @@ public class GenericLanguageConnectionContext extends ContextImpl implements Lan
     private SessionPropertiesImpl sessionProperties;
     private final CommentStripper commentStripper;
     private boolean ignoreCommentOptEnabled = false;
+    private boolean autoParameterizationEnabled = false;
+    private boolean resultCacheEnabled = false;
     private String origStmtTxt;
 
     private String defaultSchema;
@@ -401,6 +410,8 @@ public class GenericLanguageConnectionContext extends ContextImpl implements Lan
 
         String ignoreCommentOptEnabledStr = PropertyUtil.getCachedDatabaseProperty(this, MATCHING_STATEMENT_CACHE_IGNORING_COMMENT_OPTIMIZATION_ENABLED);
         ignoreCommentOptEnabled = Boolean.valueOf(ignoreCommentOptEnabledStr);
+        autoParameterizationEnabled = Boolean.valueOf(PropertyUtil.getCachedDatabaseProperty(this, Property.AUTO_PARAMETERIZATION_ENABLED));
+        resultCacheEnabled = Boolean.valueOf(PropertyUtil.getCachedDatabaseProperty(this, Property.RESULT_CACHE_ENABLED));
 
     }
 
@@ -854,6 +865,8 @@ public class GenericLanguageConnectionContext extends ContextImpl implements Lan
         // read again the property in case it is changed
         String ignoreCommentOptEnabledStr = PropertyUtil.getCachedDatabaseProperty(this, MATCHING_STATEMENT_CACHE_IGNORING_COMMENT_OPTIMIZATION_ENABLED);
         ignoreCommentOptEnabled = Boolean.valueOf(ignoreCommentOptEnabledStr);
+        autoParameterizationEnabled = Boolean.valueOf(PropertyUtil.getCachedDatabaseProperty(this, Property.AUTO_PARAMETERIZATION_ENABLED));
+        resultCacheEnabled = Boolean.valueOf(PropertyUtil.getCachedDatabaseProperty(this, Property.RESULT_CACHE_ENABLED));
         origStmtTxt = null;
     }
 
@@ -1185,6 +1198,106 @@ public class GenericLanguageConnectionContext extends ContextImpl implements Lan
     }
 
 
+    @Override
+    public Activation getAutoParameterizedActivation(SchemaDescriptor compilationSchema,
+                                                     String sqlText,
+                                                     boolean isForReadOnly,
+                                                     boolean scrollable) throws StandardException{
+        if(!autoParameterizationEnabled || restoreMode)
+            return null;
+        AutoParameterizer.Result shape=AutoParameterizer.parameterize(sqlText);
+        if(shape==null)
+            return null;
+
+        AutoParameterizedStatementStats stats=getDataDictionary().getDataDictionaryCache().getAutoParameterizedStatementStats();
+        if(stats.isRejected(shape.getText())){
+            stats.fallback(0);
+            return null;
+        }
+        GenericStatement statement=(GenericStatement)connFactory.getStatement(compilationSchema,shape.getText(),isForReadOnly,this);
+        statement.setAutoParameterValues(shape.getLiterals());
+        int depth=getStatementDepth();
+        GenericPreparedStatement ps;
+        try{
+            ps=(GenericPreparedStatement)statement.prepare(this);
+        }catch(StandardException se){
+            // Most likely a parameter in a position where none is allowed. The statement is compiled
+            // as written instead, which reports the error if there is a real one, so unwind the
+            // contexts the failed compilation left behind like a recompilation would.
+            while(getStatementDepth()>depth){
+                popStatementContext(getStatementContext(),null);
+            }
+            stats.reject(shape.getText());
+            return null;
+        }
+
+        long compileNanos=statement.getLastCompileNanos();
+        DataValueDescriptor[] literals=shape.getLiterals();
+        // checked for every statement, not only the one which compiled the plan, so that a plan
+        // compiled for typical literals is not reused for skewed ones and vice versa
+        if(ps.isLiteralSensitive(literals)){
+            stats.literalSensitive(compileNanos);
+            return null;
+        }
+        DataTypeDescriptor[] types=ps.getParameterTypes();
+        if(types==null || types.length!=literals.length){
+            stats.fallback(compileNanos);
+            return null;
+        }
+        Activation activation=ps.getActivation(this,scrollable);
+        boolean bound=false;
+        try{
+            ParameterValueSet pvs=activation.getParameterValueSet();
+            bound=true;
+            for(int i=0;i<literals.length && bound;i++){
+                bound=bindAutoParameter(literals[i],types[i],pvs.getParameterForSet(i));
+            }
+        }catch(StandardException se){
+            bound=false;
+        }finally{
+            if(!bound)
+                activation.close();
+        }
+        if(!bound){
+            stats.fallback(compileNanos);
+            return null;
+        }
+        if(compileNanos>0)
+            stats.compiled(compileNanos);
+        else
+            stats.hit(ps.getCompileNanos());
+        return activation;
+    }
+
+    /**
+     * Set an auto-parameterized literal as the value of its parameter, provided that doing so
+     * gives the statement the same meaning the literal had. The literal must be of the same kind
+     * as the parameter (a number for a numeric parameter, a string for a string or datetime
+     * parameter), and converting it to the type of the parameter must not change its value.
+     *
+     * @return false if the literal can't be bound to the parameter
+     */
+    private static boolean bindAutoParameter(DataValueDescriptor literal,
+                                             DataTypeDescriptor type,
+                                             DataValueDescriptor parameter) throws StandardException{
+        if(type==null)
+            return false;
+        TypeId typeId=type.getTypeId();
+        boolean isString=literal instanceof SQLChar;
+        DataValueDescriptor value=type.getNull();
+        if(isString && typeId.isDateTimeTimeStampTypeId()){
+            // the same conversion the literal would have been subject to
+            value.normalize(type,literal);
+        }else if(isString==typeId.isStringTypeId() && (isString || typeId.isNumericTypeId())){
+            value.normalize(type,literal);
+            if(value.compare(literal)!=0)
+                return false;
+        }else
+            return false;
+        parameter.setValue(value);
+        return true;
+    }
+
     @Override
     public PreparedStatement prepareInternalStatement(String sqlText) throws StandardException{
         if(restoreMode){
@@ -3846,4 +3959,9 @@ public class GenericLanguageConnectionContext extends ContextImpl implements Lan
     public boolean getIgnoreCommentOptEnabled() {
         return ignoreCommentOptEnabled;
     }
+
+    @Override
+    public boolean getResultCacheEnabled() {
+        return resultCacheEnabled;
+    }
 }
@@ -30,11 +30,14 @@
  */
 package com.splicemachine.db.impl.sql.conn;
 
+import com.splicemachine.concurrent.WorkloadClass;
 import com.splicemachine.db.iapi.sql.conn.SessionProperties;
 
+import static com.splicemachine.db.iapi.sql.conn.SessionProperties.PROPERTYNAME.CONTROLMEMORYLIMIT;
 import static com.splicemachine.db.iapi.sql.conn.SessionProperties.PROPERTYNAME.DEFAULTSELECTIVITYFACTOR;
 import static com.splicemachine.db.iapi.sql.conn.SessionProperties.PROPERTYNAME.SKIPSTATS;
 import static com.splicemachine.db.iapi.sql.conn.SessionProperties.PROPERTYNAME.USESPARK;
+import static com.splicemachine.db.iapi.sql.conn.SessionProperties.PROPERTYNAME.WORKLOADCLASS;
 
 /**
  * Created by yxia on 6/1/18.
@@ -63,6 +66,13 @@ public class SessionPropertiesImpl implements SessionProperties {
                 boolean skipStatsVal = Boolean.valueOf(valString);
                 properties[SKIPSTATS.getId()] = skipStatsVal;
                 break;
+            case CONTROLMEMORYLIMIT:
+                long controlMemoryLimit = Long.parseLong(valString);
+                properties[CONTROLMEMORYLIMIT.getId()] = controlMemoryLimit;
+                break;
+            case WORKLOADCLASS:
+                properties[WORKLOADCLASS.getId()] = WorkloadClass.forName(valString);
+                break;
             default:
                 break;
         }
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.db.impl.sql.execute;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.Activation;
+import com.splicemachine.db.iapi.sql.ResultDescription;
+import com.splicemachine.db.iapi.sql.ResultSet;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.sql.execute.NoPutResultSet;
+
+import java.sql.SQLWarning;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Returns the rows of a result cache entry in place of executing the statement.
+ * <p/>
+ * The rows are shared with every other reader of the entry, so each row is cloned as it is returned.
+ * Rows are numbered from 1.
+ */
+public class CachedRowsResultSet implements ResultSet {
+
+    private final Activation activation;
+    private final List<ExecRow> rows;
+    private int position;
+    private boolean closed;
+    private SQLWarning warnings;
+    private final Timestamp beginExecutionTimestamp = new Timestamp(System.currentTimeMillis());
+
+    public CachedRowsResultSet(Activation activation, List<ExecRow> rows) {
+        this.activation = activation;
+        this.rows = rows;
+    }
+
+    @Override
+    public boolean returnsRows() {
+        return true;
+    }
+
+    @Override
+    public long[] modifiedRowCount() {
+        return new long[]{0};
+    }
+
+    @Override
+    public ResultDescription getResultDescription() {
+        return activation.getPreparedStatement().getResultDescription();
+    }
+
+    @Override
+    public Activation getActivation() {
+        return activation;
+    }
+
+    @Override
+    public void open() throws StandardException {
+        position = 0;
+        closed = false;
+    }
+
+    @Override
+    public ExecRow getAbsoluteRow(int row) throws StandardException {
+        position = row < 0 ? rows.size() + row + 1 : row;
+        return currentRow();
+    }
+
+    @Override
+    public ExecRow getRelativeRow(int row) throws StandardException {
+        position += row;
+        return currentRow();
+    }
+
+    @Override
+    public ExecRow setBeforeFirstRow() throws StandardException {
+        position = 0;
+        return null;
+    }
+
+    @Override
+    public ExecRow getFirstRow() throws StandardException {
+        position = 1;
+        return currentRow();
+    }
+
+    @Override
+    public ExecRow getNextRow() throws StandardException {
+        if (position <= rows.size()) {
+            position++;
+        }
+        return currentRow();
+    }
+
+    @Override
+    public ExecRow getPreviousRow() throws StandardException {
+        if (position > 0) {
+            position--;
+        }
+        return currentRow();
+    }
+
+    @Override
+    public ExecRow getLastRow() throws StandardException {
+        position = rows.size();
+        return currentRow();
+    }
+
+    @Override
+    public ExecRow setAfterLastRow() throws StandardException {
+        position = rows.size() + 1;
+        return null;
+    }
+
+    private ExecRow currentRow() {
+        if (position < 1 || position > rows.size()) {
+            position = position < 1 ? 0 : rows.size() + 1;
+            return null;
+        }
+        return rows.get(position - 1).getClone();
+    }
+
+    @Override
+    public void clearCurrentRow() {
+    }
+
+    @Override
+    public boolean checkRowPosition(int isType) throws StandardException {
+        switch (isType) {
+            case ISBEFOREFIRST:
+                return position == 0 && !rows.isEmpty();
+            case ISFIRST:
+                return position == 1 && !rows.isEmpty();
+            case ISLAST:
+                return position == rows.size() && !rows.isEmpty();
+            case ISAFTERLAST:
+                return position > rows.size() && !rows.isEmpty();
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public int getRowNumber() {
+        return position > 0 && position <= rows.size() ? position : 0;
+    }
+
+    @Override
+    public void close() throws StandardException {
+        closed = true;
+    }
+
+    @Override
+    public void cleanUp() throws StandardException {
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public boolean isKilled() {
+        return false;
+    }
+
+    @Override
+    public boolean isTimedout() {
+        return false;
+    }
+
+    @Override
+    public void finish() throws StandardException {
+        close();
+    }
+
+    @Override
+    public long getExecuteTime() {
+        return 0;
+    }
+
+    @Override
+    public Timestamp getBeginExecutionTimestamp() {
+        return beginExecutionTimestamp;
+    }
+
+    @Override
+    public Timestamp getEndExecutionTimestamp() {
+        return beginExecutionTimestamp;
+    }
+
+    @Override
+    public long getTimeSpent(int type) {
+        return 0;
+    }
+
+    @Override
+    public NoPutResultSet[] getSubqueryTrackingArray(int numSubqueries) {
+        return null;
+    }
+
+    @Override
+    public ResultSet getAutoGeneratedKeysResultset() {
+        return null;
+    }
+
+    @Override
+    public String getCursorName() {
+        return activation.getCursorName();
+    }
+
+    @Override
+    public void addWarning(SQLWarning w) {
+        if (warnings == null)
+            warnings = w;
+        else
+            warnings.setNextWarning(w);
+    }
+
+    @Override
+    public SQLWarning getWarnings() {
+        SQLWarning w = warnings;
+        warnings = null;
+        return w;
+    }
+}
@@ -107,6 +107,11 @@ public abstract class GenericExecutionFactory implements ModuleControl, ModuleSu
         return rsFactory;
     }
 
+    @Override
+    public ResultCacheValidator getResultCacheValidator() {
+        return null;
+    }
+
     /**
      * Get the factory for constant actions.
      *
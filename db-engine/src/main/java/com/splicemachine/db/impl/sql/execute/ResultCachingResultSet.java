@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.db.impl.sql.execute;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.Activation;
+import com.splicemachine.db.iapi.sql.ResultDescription;
+import com.splicemachine.db.iapi.sql.ResultSet;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.sql.execute.NoPutResultSet;
+import com.splicemachine.db.iapi.sql.execute.ResultCacheValidator;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.impl.sql.catalog.ResultCache;
+
+import java.sql.SQLWarning;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Passes the rows of a cacheable statement through, keeping a copy of each, and adds them to the
+ * result cache once the last row has been read.
+ * <p/>
+ * Nothing is cached if the reader moves the cursor anywhere but forward, closes the result set
+ * before the end, the rows grow larger than a cache entry may be, or a column is read from a stream.
+ */
+public class ResultCachingResultSet implements ResultSet {
+
+    private final ResultSet delegate;
+    private final ResultCache cache;
+    private final ResultCache.Key key;
+    private final long[] conglomerates;
+    private final long snapshot;
+    private final long writeSequence;
+    private final ResultCacheValidator validator;
+    private List<ExecRow> rows = new ArrayList<>();
+    private long rowBytes;
+
+    /**
+     * @param snapshot the snapshot the statement reads at
+     * @param writeSequence the write sequence of {@code validator} before the statement was executed
+     */
+    public ResultCachingResultSet(ResultSet delegate,
+                                  ResultCache cache,
+                                  ResultCache.Key key,
+                                  long[] conglomerates,
+                                  long snapshot,
+                                  long writeSequence,
+                                  ResultCacheValidator validator) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.key = key;
+        this.conglomerates = conglomerates;
+        this.snapshot = snapshot;
+        this.writeSequence = writeSequence;
+        this.validator = validator;
+    }
+
+    @Override
+    public ExecRow getNextRow() throws StandardException {
+        ExecRow row = delegate.getNextRow();
+        if (rows != null) {
+            if (row == null) {
+                List<ExecRow> complete = rows;
+                rows = null;
+                cache.put(key, conglomerates, snapshot, writeSequence, complete, rowBytes, validator);
+            } else {
+                rowBytes += ResultCache.estimateSize(row);
+                if (rowBytes > cache.getMaxEntryBytes() || hasStream(row))
+                    rows = null;
+                else
+                    rows.add(row.getClone());
+            }
+        }
+        return row;
+    }
+
+    private static boolean hasStream(ExecRow row) {
+        for (DataValueDescriptor column : row.getRowArray()) {
+            if (column != null && column.hasStream())
+                return true;
+        }
+        return false;
+    }
+
+    private void stopCaching() {
+        rows = null;
+    }
+
+    @Override
+    public boolean returnsRows() {
+        return delegate.returnsRows();
+    }
+
+    @Override
+    public long[] modifiedRowCount() {
+        return delegate.modifiedRowCount();
+    }
+
+    @Override
+    public ResultDescription getResultDescription() {
+        return delegate.getResultDescription();
+    }
+
+    @Override
+    public Activation getActivation() {
+        return delegate.getActivation();
+    }
+
+    @Override
+    public void open() throws StandardException {
+        delegate.open();
+    }
+
+    @Override
+    public ExecRow getAbsoluteRow(int row) throws StandardException {
+        stopCaching();
+        return delegate.getAbsoluteRow(row);
+    }
+
+    @Override
+    public ExecRow getRelativeRow(int row) throws StandardException {
+        stopCaching();
+        return delegate.getRelativeRow(row);
+    }
+
+    @Override
+    public ExecRow setBeforeFirstRow() throws StandardException {
+        stopCaching();
+        return delegate.setBeforeFirstRow();
+    }
+
+    @Override
+    public ExecRow getFirstRow() throws StandardException {
+        stopCaching();
+        return delegate.getFirstRow();
+    }
+
+    @Override
+    public ExecRow getPreviousRow() throws StandardException {
+        stopCaching();
+        return delegate.getPreviousRow();
+    }
+
+    @Override
+    public ExecRow getLastRow() throws StandardException {
+        stopCaching();
+        return delegate.getLastRow();
+    }
+
+    @Override
+    public ExecRow setAfterLastRow() throws StandardException {
+        stopCaching();
+        return delegate.setAfterLastRow();
+    }
+
+    @Override
+    public void clearCurrentRow() {
+        delegate.clearCurrentRow();
+    }
+
+    @Override
+    public boolean checkRowPosition(int isType) throws StandardException {
+        return delegate.checkRowPosition(isType);
+    }
+
+    @Override
+    public int getRowNumber() {
+        return delegate.getRowNumber();
+    }
+
+    @Override
+    public void close() throws StandardException {
+        stopCaching();
+        delegate.close();
+    }
+
+    @Override
+    public void cleanUp() throws StandardException {
+        delegate.cleanUp();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return delegate.isClosed();
+    }
+
+    @Override
+    public boolean isKilled() {
+        return delegate.isKilled();
+    }
+
+    @Override
+    public boolean isTimedout() {
+        return delegate.isTimedout();
+    }
+
+    @Override
+    public void finish() throws StandardException {
+        stopCaching();
+        delegate.finish();
+    }
+
+    @Override
+    public long getExecuteTime() {
+        return delegate.getExecuteTime();
+    }
+
+    @Override
+    public Timestamp getBeginExecutionTimestamp() {
+        return delegate.getBeginExecutionTimestamp();
+    }
+
+    @Override
+    public Timestamp getEndExecutionTimestamp() {
+        return delegate.getEndExecutionTimestamp();
+    }
+
+    @Override
+    public long getTimeSpent(int type) {
+        return delegate.getTimeSpent(type);
+    }
+
+    @Override
+    public NoPutResultSet[] getSubqueryTrackingArray(int numSubqueries) {
+        return delegate.getSubqueryTrackingArray(numSubqueries);
+    }
+
+    @Override
+    public ResultSet getAutoGeneratedKeysResultset() {
+        return delegate.getAutoGeneratedKeysResultset();
+    }
+
+    @Override
+    public String getCursorName() {
+        return delegate.getCursorName();
+    }
+
+    @Override
+    public void addWarning(SQLWarning w) {
+        delegate.addWarning(w);
+    }
+
+    @Override
+    public SQLWarning getWarnings() {
+        return delegate.getWarnings();
+    }
+}
@@ -33,10 +33,16 @@ package com.splicemachine.db.impl.sql.execute;
 
 import com.splicemachine.db.iapi.sql.execute.CursorResultSet;
 import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.reference.SQLState;
 import com.splicemachine.db.iapi.sql.dictionary.TriggerDescriptor;
 import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
+import com.splicemachine.db.iapi.sql.execute.ExecPreparedStatement;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.iapi.sql.Activation;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * A row trigger executor is an object that executes a row trigger.  It is instantiated at execution time.
  * There is one per row trigger.
@@ -95,4 +101,85 @@ public class RowTriggerExecutor extends GenericTriggerExecutor {
         }
     }
 
+    /**
+     * Fire the trigger for all of the rows of the given result set with a single execution of its action, when the
+     * action can be run over all of them at once (see {@link TriggerDescriptor#getSetActionStatement}).  The rows
+     * are handed to the action through the trigger execution context.  Otherwise, or if the action has been
+     * invalidated since it was compiled, the trigger is fired once for each row.
+     *
+     * @param event the trigger event
+     * @param rs    the triggering rows; read with getNextRow() until it returns null
+     */
+    void fireTriggerForAllRows(TriggerEvent event, CursorResultSet rs) throws StandardException {
+        ExecPreparedStatement setAction = triggerd.getSetActionStatement(lcc);
+        if (setAction == null) {
+            fireTriggerForEachRow(event, rs);
+            return;
+        }
+
+        List<ExecRow> rows = new ArrayList<>();
+        ExecRow row;
+        while ((row = rs.getNextRow()) != null) {
+            rows.add(row);
+        }
+        tec.setTrigger(triggerd);
+        tec.setCurrentTriggerEvent(event);
+        tec.setTransitionRows(rows);
+
+        // as with the action, clone the statement so executing it doesn't mark the cached one as finished
+        ExecPreparedStatement ps = setAction.getClone();
+        ps.setValid();
+        ps.setSPSAction();
+        Activation setActivation = ps.getActivation(lcc, false);
+        boolean recompile = false;
+        try {
+            executeSubStatement(ps, setActivation);
+        } catch (StandardException e) {
+            if (!e.getMessageId().equals(SQLState.LANG_STATEMENT_NEEDS_RECOMPILE)) {
+                throw e;
+            }
+            // it is recompiled the next time it is asked for
+            recompile = true;
+        } finally {
+            setActivation.close();
+            clearSPS();
+            tec.clearTrigger();
+        }
+        if (recompile) {
+            rs.setBeforeFirstRow();
+            fireTriggerForEachRow(event, rs);
+        }
+    }
+
+    /**
+     * Fire the trigger once for each row of the given result set, in order.  The trigger action is compiled and
+     * activated once for all of the rows, rather than once per row as in {@link #fireTrigger}, and executed once
+     * per row.
+     *
+     * @param event the trigger event
+     * @param rs    the triggering rows; read with getNextRow() until it returns null
+     */
+    void fireTriggerForEachRow(TriggerEvent event, CursorResultSet rs) throws StandardException {
+        tec.setTrigger(triggerd);
+        tec.setCurrentTriggerEvent(event);
+
+        try {
+            while (rs.getNextRow() != null) {
+                // each row starts from the counters of the triggering statement, as it would if fired on its own
+                tec.resetAICounters(true);
+                tec.setTriggeringResultSet(rs);
+                if (event.isAfter()) {
+                    tec.updateAICounters();
+                }
+                executeSPS(getAction());
+                if (event.isBefore()) {
+                    tec.updateAICounters();
+                }
+            }
+        } finally {
+            clearSPS();
+            tec.clearTrigger();
+        }
+    }
+
 }
@@ -190,6 +190,54 @@ public class TriggerEventActivator {
         }
     }
 
+    /**
+     * Handle the given row event for each row of the given result set, in order.
+     * <p/>
+     * When the event has a single row trigger whose action can be run over all of the rows at once, it is
+     * executed once for the whole batch, reading the rows through the TriggerNewTransitionRowsVTI.  That is
+     * the case for an AFTER INSERT row trigger inserting the values of the new row into another table that has no
+     * triggers, without reading any table or calling any function; see
+     * {@link com.splicemachine.db.iapi.sql.dictionary.DataDictionary#getTriggerSetActionString}.  Any other single
+     * row trigger is run over all of the rows with one compiled statement and activation, but executed once per
+     * row.  With several row triggers each row is fired through all of them before the next row is fired, exactly
+     * as repeated calls to {@link #notifyRowEvent} would, since running one trigger over all of the rows before the
+     * next would change which of the other triggers' changes each action sees.
+     *
+     * @param event a trigger event
+     * @param rs    the triggering rows; must not be moved by open() or close(), which the trigger execution
+     *              context calls each time it reads the current row
+     */
+    public void notifyRowEvents(TriggerEvent event, CursorResultSet rs) throws StandardException {
+
+        if (rowExecutorsMap.isEmpty()) {
+            return;
+        }
+        List<GenericTriggerExecutor> triggerExecutors = rowExecutorsMap.get(event);
+        if (triggerExecutors == null || triggerExecutors.isEmpty()) {
+            return;
+        }
+
+        rs.open();
+        if (triggerExecutors.size() > 1) {
+            while (rs.getNextRow() != null) {
+                notifyRowEvent(event, rs, null);
+            }
+            return;
+        }
+
+        try {
+            lcc.pushExecutionStmtValidator(tec);
+            if (! tecPushed) {
+                lcc.pushTriggerExecutionContext(tec);
+                tecPushed = true;
+            }
+
+            ((RowTriggerExecutor) triggerExecutors.get(0)).fireTriggerForAllRows(event, rs);
+        } finally {
+            lcc.popExecutionStmtValidator(tec);
+        }
+    }
+
     /**
      * Clean up and release resources.
      */
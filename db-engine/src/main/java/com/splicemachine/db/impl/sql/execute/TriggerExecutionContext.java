@@ -36,6 +36,7 @@ import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -88,6 +89,7 @@ public class TriggerExecutionContext implements ExecutionStmtValidator, External
     private TriggerDescriptor triggerd;
     private ExecRow afterRow;   // used exclusively for InsertResultSets which have autoincrement columns.
     private TriggerEvent event;
+    private List<ExecRow> transitionRows; // the rows a row trigger's action is run over at once
 
     /**
      * aiCounters is a list of AutoincrementCounters used to keep state which might be used by the trigger. This is
@@ -146,10 +148,14 @@ public class TriggerExecutionContext implements ExecutionStmtValidator, External
 
         if (aiCounters != null) {
             if (triggerd.isRowTrigger()) {
-                // An after row trigger needs to see the "first" row inserted
-                rs.open();
-                afterRow = rs.getNextRow();
-                rs.close();
+                // An after row trigger needs to see the "first" row inserted, which is the current row when
+                // the trigger is fired row by row over a cursor of several
+                afterRow = rs.getCurrentRow();
+                if (afterRow == null) {
+                    rs.open();
+                    afterRow = rs.getNextRow();
+                    rs.close();
+                }
             } else {
                 // after statement trigger needs to look at the last value.
                 if (!triggerd.isBeforeTrigger()) {
@@ -165,6 +171,13 @@ public class TriggerExecutionContext implements ExecutionStmtValidator, External
         }
     }
 
+    /**
+     * Set the rows a row trigger's action is run over at once, read with the TriggerNewTransitionRowsVTI.
+     */
+    public void setTransitionRows(List<ExecRow> transitionRows) {
+        this.transitionRows = transitionRows;
+    }
+
     public void setCurrentTriggerEvent(TriggerEvent event) {
         this.event = event;
     }
@@ -177,6 +190,7 @@ public class TriggerExecutionContext implements ExecutionStmtValidator, External
         event = null;
         triggerd = null;
         triggeringResultSet = null;
+        transitionRows = null;
     }
 
     /////////////////////////////////////////////////////////
@@ -355,6 +369,17 @@ public class TriggerExecutionContext implements ExecutionStmtValidator, External
         return getNewRowSet();
     }
 
+    /**
+     * Returns the new images of all of the rows a row trigger's action is run over at once, or null if it is
+     * being run once per row.  Only the action of an insert trigger is run this way, so the rows are those
+     * inserted.
+     *
+     * @return the rows inserted by the triggering statement that the action is run over
+     */
+    public List<ExecRow> getNewTransitionRows() {
+        return transitionRows;
+    }
+
     public Long getAutoincrementValue(String identity) {
         // first search the map-- this represents the ai values generated by this trigger.
         if (aiHT != null) {
@@ -444,6 +469,15 @@ public class TriggerExecutionContext implements ExecutionStmtValidator, External
         } else {
             out.writeBoolean(false);
         }
+        if (transitionRows != null) {
+            out.writeBoolean(true);
+            out.writeInt(transitionRows.size());
+            for (ExecRow row : transitionRows) {
+                out.writeObject(row);
+            }
+        } else {
+            out.writeBoolean(false);
+        }
     }
 
     @Override
@@ -463,6 +497,13 @@ public class TriggerExecutionContext implements ExecutionStmtValidator, External
         if (in.readBoolean()) {
             event = TriggerEvent.values()[in.readInt()];
         }
+        if (in.readBoolean()) {
+            int size = in.readInt();
+            transitionRows = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                transitionRows.add((ExecRow) in.readObject());
+            }
+        }
     }
 
     /**
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.db.impl.sql;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLChar;
+import com.splicemachine.db.iapi.types.SQLDecimal;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AutoParameterizerTest {
+
+    @Test
+    public void replacesComparisonOperands() throws StandardException {
+        AutoParameterizer.Result result = AutoParameterizer.parameterize(
+                "select a, 1 from t where a = 5 and b <> 'it''s' and c >= -2.5 order by 1");
+        Assert.assertEquals("select a, 1 from t where a = ? and b <> ? and c >= ? order by 1", result.getText());
+        DataValueDescriptor[] literals = result.getLiterals();
+        Assert.assertEquals(3, literals.length);
+        Assert.assertTrue(literals[0] instanceof SQLInteger);
+        Assert.assertEquals(5, literals[0].getInt());
+        Assert.assertTrue(literals[1] instanceof SQLChar);
+        Assert.assertEquals("it's", literals[1].getString());
+        Assert.assertTrue(literals[2] instanceof SQLDecimal);
+        Assert.assertEquals("-2.5", literals[2].getString());
+    }
+
+    @Test
+    public void replacesBetweenBoundsAndInListElements() {
+        AutoParameterizer.Result result = AutoParameterizer.parameterize(
+                "SELECT * FROM t WHERE a BETWEEN 1 AND 10 AND b IN (1, 2, 'x') AND c IN (SELECT d FROM u)");
+        Assert.assertEquals("SELECT * FROM t WHERE a BETWEEN ? AND ? AND b IN (?, ?, ?) AND c IN (SELECT d FROM u)",
+                result.getText());
+        Assert.assertEquals(5, result.getLiterals().length);
+    }
+
+    @Test
+    public void replacesInsertValues() {
+        AutoParameterizer.Result result = AutoParameterizer.parameterize(
+                "insert into t (a, b) values (1, 'x'), (5000000000, substr('yz', 1, 1))");
+        Assert.assertEquals("insert into t (a, b) values (?, ?), (?, substr('yz', 1, 1))", result.getText());
+        Assert.assertTrue(result.getLiterals()[2] instanceof SQLLongint);
+    }
+
+    @Test
+    public void leavesExpressionsCommentsAndWindowsAlone() {
+        Assert.assertNull(AutoParameterizer.parameterize("select * from t where a = 1 + b"));
+        Assert.assertNull(AutoParameterizer.parameterize("select * from t where a = b - 1"));
+        Assert.assertNull(AutoParameterizer.parameterize("select * from t where a like 'x%' fetch first 5 rows only"));
+        Assert.assertNull(AutoParameterizer.parameterize("select * from t --splice-properties index=a_idx\n where a = b"));
+        Assert.assertNull(AutoParameterizer.parameterize("select * from t /* a = 1 */ where x'0A' = b"));
+        Assert.assertNull(AutoParameterizer.parameterize(
+                "select sum(a) over (order by b rows between 1 preceding and 2 following) from t"));
+        Assert.assertNull(AutoParameterizer.parameterize("select * from \"T = 1\" where \"A\" = \"B\""));
+    }
+
+    @Test
+    public void ignoresIneligibleStatements() {
+        Assert.assertNull(AutoParameterizer.parameterize("select * from t where a = ? and b = 1"));
+        Assert.assertNull(AutoParameterizer.parameterize("create table t (a int default 1)"));
+        Assert.assertNull(AutoParameterizer.parameterize("explain select * from t where a = 1"));
+        Assert.assertNull(AutoParameterizer.parameterize("select * from t where a = 'unterminated"));
+        Assert.assertNull(AutoParameterizer.parameterize("select * from t where a = 1e999"));
+    }
+
+    @Test
+    public void approximateNumbersAreDoubles() {
+        AutoParameterizer.Result result = AutoParameterizer.parameterize("delete from t where a < 1.5E3");
+        Assert.assertEquals("delete from t where a < ?", result.getText());
+        Assert.assertTrue(result.getLiterals()[0] instanceof SQLDouble);
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.db.impl.sql.catalog;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.Activation;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.sql.execute.ResultCacheValidator;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ResultCacheTest {
+    private static final long[] TABLE = {1184L};
+
+    @Test
+    public void servesReadersAtOrAfterTheSnapshot() throws StandardException {
+        TestValidator validator = new TestValidator();
+        ResultCache cache = new ResultCache(1 << 20);
+        put(cache, key("1"), 100L, validator);
+
+        Assert.assertNotNull(cache.get(key("1"), 100L, validator));
+        Assert.assertNotNull(cache.get(key("1"), 250L, validator));
+        Assert.assertNull("a reader before the snapshot may not see all rows", cache.get(key("1"), 99L, validator));
+        Assert.assertNull(cache.get(key("2"), 100L, validator));
+        Assert.assertEquals(1, cache.getEntryCount());
+        Assert.assertEquals(2, cache.getHitCount());
+    }
+
+    @Test
+    public void dropsEntriesOnceTheirTablesAreWritten() throws StandardException {
+        TestValidator validator = new TestValidator();
+        ResultCache cache = new ResultCache(1 << 20);
+        put(cache, key("1"), 100L, validator);
+        validator.write(2000L);
+        Assert.assertNotNull("writes to other tables do not matter", cache.get(key("1"), 100L, validator));
+
+        validator.write(TABLE[0]);
+        Assert.assertNull(cache.get(key("1"), 100L, validator));
+        Assert.assertEquals(0, cache.getEntryCount());
+        Assert.assertEquals(0, cache.getSizeInBytes());
+        Assert.assertEquals(1, cache.getInvalidationCount());
+    }
+
+    @Test
+    public void dropsEntriesWrittenThroughOtherServers() throws StandardException {
+        TestValidator validator = new TestValidator();
+        ResultCache cache = new ResultCache(1 << 20);
+        put(cache, key("1"), 100L, validator);
+        validator.commitElsewhere(TABLE[0], 90L);
+        Assert.assertNotNull("commits before the snapshot were read", cache.get(key("1"), 100L, validator));
+
+        validator.commitElsewhere(TABLE[0], 150L);
+        Assert.assertNull(cache.get(key("1"), 100L, validator));
+        Assert.assertEquals(0, cache.getEntryCount());
+        Assert.assertEquals(1, cache.getInvalidationCount());
+
+        put(cache, key("1"), 100L, validator);
+        Assert.assertEquals(0, cache.getEntryCount());
+        Assert.assertEquals(1, cache.getRejectedCount());
+    }
+
+    @Test
+    public void rejectsResultsWhoseTablesWereWrittenWhileRead() throws StandardException {
+        TestValidator validator = new TestValidator();
+        ResultCache cache = new ResultCache(1 << 20);
+        long writeSequence = validator.getWriteSequence();
+        validator.write(TABLE[0]);
+        cache.put(key("1"), TABLE, 100L, writeSequence, rows(), rowBytes(), validator);
+
+        Assert.assertEquals(0, cache.getEntryCount());
+        Assert.assertEquals(1, cache.getRejectedCount());
+    }
+
+    @Test
+    public void rejectsResultsWithWritesInFlight() throws StandardException {
+        TestValidator validator = new TestValidator();
+        validator.stable = false;
+        ResultCache cache = new ResultCache(1 << 20);
+        put(cache, key("1"), 100L, validator);
+
+        Assert.assertEquals(0, cache.getEntryCount());
+        Assert.assertEquals(1, cache.getRejectedCount());
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedEntriesBeyondTheSize() throws StandardException {
+        TestValidator validator = new TestValidator();
+        ResultCache probe = new ResultCache(1 << 20);
+        put(probe, key("0"), 100L, validator);
+        long entryBytes = probe.getSizeInBytes();
+
+        ResultCache cache = new ResultCache(4 * entryBytes);
+        for (int i = 1; i <= 4; i++)
+            put(cache, key(Integer.toString(i)), 100L, validator);
+        Assert.assertNotNull(cache.get(key("1"), 100L, validator));
+        put(cache, key("5"), 100L, validator);
+
+        Assert.assertEquals(4, cache.getEntryCount());
+        Assert.assertEquals(4 * entryBytes, cache.getSizeInBytes());
+        Assert.assertEquals(1, cache.getEvictionCount());
+        Assert.assertNotNull(cache.get(key("1"), 100L, validator));
+        Assert.assertNull(cache.get(key("2"), 100L, validator));
+    }
+
+    @Test
+    public void skipsResultsLargerThanAQuarterOfTheCache() throws StandardException {
+        TestValidator validator = new TestValidator();
+        ResultCache cache = new ResultCache(4 * rowBytes());
+        put(cache, key("1"), 100L, validator);
+
+        Assert.assertEquals(0, cache.getEntryCount());
+        Assert.assertEquals(1, cache.getOversizedCount());
+    }
+
+    @Test
+    public void keysCompareParametersByTypeAndText() throws StandardException {
+        Assert.assertEquals(key("1"), key("1"));
+        Assert.assertNotEquals(key("1"), key("1.0"));
+        Assert.assertNotEquals(key("1"), new ResultCache.Key(null, 1L, new String[]{"INTEGER", "1"}));
+        Assert.assertEquals(key(null), key(null));
+    }
+
+    private static void put(ResultCache cache, ResultCache.Key key, long snapshot, TestValidator validator) throws StandardException {
+        cache.put(key, TABLE, snapshot, validator.getWriteSequence(), rows(), rowBytes(), validator);
+    }
+
+    private static ResultCache.Key key(String parameter) {
+        return new ResultCache.Key(null, 0L, new String[]{"INTEGER", parameter});
+    }
+
+    private static List<ExecRow> rows() {
+        return Collections.<ExecRow>singletonList(new ValueRow(new DataValueDescriptor[]{new SQLInteger(42)}));
+    }
+
+    private static long rowBytes() {
+        return ResultCache.estimateSize(rows().get(0));
+    }
+
+    private static class TestValidator implements ResultCacheValidator {
+        private long sequence;
+        private final Map<Long, Long> lastWrites = new HashMap<>();
+        private final Map<Long, Long> lastCommits = new HashMap<>();
+        private boolean stable = true;
+
+        void write(long conglomerate) {
+            lastWrites.put(conglomerate, ++sequence);
+        }
+
+        void commitElsewhere(long conglomerate, long commitTimestamp) {
+            lastCommits.put(conglomerate, commitTimestamp);
+        }
+
+        @Override
+        public long getSnapshot(Activation activation) {
+            return 0L;
+        }
+
+        @Override
+        public long getWriteSequence() {
+            return sequence;
+        }
+
+        @Override
+        public boolean isUnchanged(long[] conglomerates, long writeSequence) {
+            for (long conglomerate : conglomerates) {
+                Long lastWrite = lastWrites.get(conglomerate);
+                if (lastWrite != null && lastWrite > writeSequence)
+                    return false;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isStable(long[] conglomerates, long snapshot) {
+            return stable;
+        }
+
+        @Override
+        public boolean isCurrent(long[] conglomerates, long snapshot) {
+            for (long conglomerate : conglomerates) {
+                Long lastCommit = lastCommits.get(conglomerate);
+                if (lastCommit != null && lastCommit >= snapshot)
+                    return false;
+            }
+            return true;
+        }
+    }
+}
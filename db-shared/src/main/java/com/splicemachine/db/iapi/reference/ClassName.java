@@ -144,6 +144,7 @@ public interface ClassName
 
 	String TriggerNewTransitionRows = "com.splicemachine.db.catalog.TriggerNewTransitionRows";
 //	String TriggerOldTransitionRows = "com.splicemachine.db.catalog.TriggerOldTransitionRows";
+	String TriggerNewTransitionRowsVTI = "com.splicemachine.derby.vti.TriggerNewTransitionRowsVTI";
 	String VTICosting = "com.splicemachine.db.vti.VTICosting";
 
 	String Authorizer = "com.splicemachine.db.iapi.sql.conn.Authorizer";
@@ -742,6 +742,16 @@ public interface Property {
 	String	LANG_PROPERTY_CACHE_SIZE = "derby.language.propertyCacheSize";
 	int		LANG_PROPERTY_CACHE_SIZE_DEFAULT =128;
 
+	/**
+	 * The memory, in megabytes, the result cache may hold rows in, 0 to disable it.  Database.  Static.
+	 * <p>
+	 * Only used when {@link #RESULT_CACHE_ENABLED} is set. Servers only record the writes to
+	 * their tables for the caches of other servers when it is set, so it must be the same on
+	 * every server.
+	 */
+	String	LANG_RESULT_CACHE_SIZE = "derby.language.resultCacheSize";
+	int		LANG_RESULT_CACHE_SIZE_DEFAULT =0;
+
 	/**
 	 * Name of the implementation of SequencePreallocator which is used
      * to tune how many values Derby pre-allocates for identity columns
@@ -1195,6 +1205,16 @@ public interface Property {
 	 * client socket setKeepAlive value
 	 */
 	String DRDA_PROP_KEEPALIVE = "derby.drda.keepAlive";
+
+	/**
+	 * derby.drda.nio
+	 *
+	 *<BR>
+	 * If true, the network server accepts connections on a non-blocking
+	 * channel, and idle sessions wait on a selector rather than holding a
+	 * connection thread. Ignored when SSL is on. Default false.
+	 */
+	String DRDA_PROP_NIO = "derby.drda.nio";
 	
 
     /**
@@ -1348,6 +1368,23 @@ public interface Property {
 	 */
 	String MATCHING_STATEMENT_CACHE_IGNORING_COMMENT_OPTIMIZATION_ENABLED =
 			"derby.database.matchStmtCacheIgnoreCommentOptimizationEnabled";
+
+	/**
+	 * If true, literals in simple SELECT/INSERT/UPDATE/DELETE statements are replaced by
+	 * parameters before the statement cache is consulted, so that statements which only
+	 * differ in their literals share a plan. Off by default.
+	 */
+	String AUTO_PARAMETERIZATION_ENABLED =
+			"derby.database.autoParameterizationEnabled";
+
+	/**
+	 * If true, the rows of read-only SELECTs over base tables are cached, keyed by the prepared
+	 * statement and its parameter values, and served to later executions until a write to one of
+	 * the tables or DDL invalidates them. Statements only become cacheable when compiled with this
+	 * property set, and are only cached when {@link #LANG_RESULT_CACHE_SIZE} is set too. Off by default.
+	 */
+	String RESULT_CACHE_ENABLED =
+			"derby.database.resultCacheEnabled";
 	
 	/**
 	 * The maximum number of IN list items the optimizer is allowed to generate by combining
@@ -1387,4 +1424,11 @@ public interface Property {
 		"derby.database.disablePredicateSimplification";
 
 	String BULK_IMPORT_SAMPLE_FRACTION = "splice.bulkImport.sample.fraction";
+
+	/**
+	 * Prefix of the database properties which assign a workload class (OLTP, DEFAULT or BATCH) to a
+	 * user or a role, e.g. splice.workloadClass.REPORTING=BATCH. The WORKLOADCLASS session property
+	 * takes precedence over them.
+	 */
+	String WORKLOAD_CLASS_PREFIX = "splice.workloadClass.";
 }
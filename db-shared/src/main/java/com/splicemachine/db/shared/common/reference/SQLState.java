@@ -1171,6 +1171,7 @@ public interface SQLState {
 	String LANG_GROUPING_FUNCTION_CONTEXT_ERROR                          = "42ZC9";
 
 	String LANG_RESUBMIT_DISTRIBUTED                                    = "42ZD0";
+	String LANG_WINDOW_FRAME_TOO_LARGE                                  = "42ZD1";
 	
 	//following 3 matches the DB2 sql states
 	String LANG_DECLARED_GLOBAL_TEMP_TABLE_ONLY_IN_SESSION_SCHEMA = "428EK";
@@ -32,6 +32,7 @@ import com.splicemachine.pipeline.api.BulkWriterFactory;
 import com.splicemachine.pipeline.api.PipelineExceptionFactory;
 import com.splicemachine.pipeline.api.PipelineMeter;
 import com.splicemachine.pipeline.api.WritePipelineFactory;
+import com.splicemachine.pipeline.client.PipelineEncoding;
 import com.splicemachine.pipeline.client.RpcChannelFactory;
 import com.splicemachine.pipeline.contextfactory.ContextFactoryDriver;
 import com.splicemachine.pipeline.utils.PipelineCompressor;
@@ -102,7 +103,12 @@ public class AdapterPipelineEnvironment implements PipelineEnvironment{
 
         KryoPool kryoPool=new KryoPool(pipelineConfiguration.getPipelineKryoPoolSize());
         kryoPool.setKryoRegistry(new PipelineKryoRegistry());
-        this.compressor = new SnappyPipelineCompressor(new SimplePipelineCompressor(kryoPool,env.getSIDriver().getOperationFactory()));
+        int encodingOptions=pipelineConfiguration.getPipelinePrefixRowKeys()?PipelineEncoding.PREFIX_ROW_KEYS:0;
+        if(pipelineConfiguration.getAdaptiveWriteControl())
+            encodingOptions|=PipelineEncoding.BACKOFF_HINTS;
+        encodingOptions|=PipelineEncoding.compressionOptions(pipelineConfiguration.getPipelineCompression());
+        PipelineCompressor encoder=new SimplePipelineCompressor(kryoPool,env.getSIDriver().getOperationFactory(),encodingOptions);
+        this.compressor = new SnappyPipelineCompressor(encoder);
 
         RpcChannelFactory channelFactory = ChannelFactoryService.loadChannelFactory(this.pipelineConfiguration);
         this.writerFactory = new CoprocessorWriterFactory(compressor,partitionInfoCache(),pipelineExceptionFactory,channelFactory,
@@ -17,6 +17,8 @@ package com.splicemachine.pipeline;
 import java.io.IOException;
 import org.apache.log4j.Logger;
 
+import com.splicemachine.pipeline.client.BulkWrites;
+import com.splicemachine.pipeline.client.PipelineEncoding;
 import com.splicemachine.pipeline.utils.PipelineCompressor;
 import com.splicemachine.compression.SpliceSnappy;
 
@@ -36,12 +38,17 @@ public class SnappyPipelineCompressor implements PipelineCompressor{
     @Override
     public byte[] compress(Object o) throws IOException {
         byte[] d = delegate.compress(o);
+        // BulkWrites encoded with options say themselves whether they are compressed
+        if (o instanceof BulkWrites && PipelineEncoding.hasOptions(d))
+            return d;
         d = SpliceSnappy.compress(d);
         return d;
     }
 
     @Override
     public <T> T decompress(byte[] bytes,Class<T> clazz) throws IOException {
+        if (clazz.isAssignableFrom(BulkWrites.class) && PipelineEncoding.hasOptions(bytes))
+            return delegate.decompress(bytes, clazz);
         byte[] d = SpliceSnappy.uncompress(bytes);
         return delegate.decompress(d, clazz);
     }
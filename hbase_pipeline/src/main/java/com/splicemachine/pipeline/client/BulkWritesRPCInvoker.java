@@ -60,6 +60,8 @@ public class BulkWritesRPCInvoker implements BulkWriter{
             String encodedRegionName = firstBulkWrite.getEncodedStringName();
             PartitionWritePipeline pipeline=pipelineFactory.getPipeline(encodedRegionName);
             if(pipeline!=null){
+                // results of local writes are never serialized, so they can always carry backoff hints
+                writes.setAcceptsBackoffHints(true);
                 return pipelineWriter.bulkWrite(writes, -1);
             }
         }
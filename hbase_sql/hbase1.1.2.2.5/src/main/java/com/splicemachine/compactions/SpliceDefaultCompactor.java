@@ -280,6 +280,7 @@ public class SpliceDefaultCompactor extends DefaultCompactor {
         }
 
         StoreFile.Writer writer = null;
+        CompactionStatisticsCollector statsCollector = null;
         List<Path> newFiles =new ArrayList<>();
         boolean cleanSeqId = false;
         IOException e = null;
@@ -304,6 +305,8 @@ public class SpliceDefaultCompactor extends DefaultCompactor {
 
                     SICompactionScanner siScanner = new SICompactionScanner(state, scanner, purgeDeletedRows, resolutionShare, bufferSize, context);
                     siScanner.start();
+                    if (request.isMajor())
+                        statsCollector = CompactionStatisticsCollector.open(((HStore)store).getHRegion());
                     scanner = siScanner;
                 }
                 if (scanner == null) {
@@ -321,7 +324,7 @@ public class SpliceDefaultCompactor extends DefaultCompactor {
 
                 boolean finished =
                         performCompaction(fd, scanner, writer, smallestReadPoint, cleanSeqId,
-                                new NoLimitCompactionThroughputController(), request.isMajor());
+                                new NoLimitCompactionThroughputController(), request.isMajor(), statsCollector);
                 if (!finished) {
                     writer.close();
                     store.getFileSystem().delete(writer.getPath(), false);
@@ -348,9 +351,18 @@ public class SpliceDefaultCompactor extends DefaultCompactor {
                         writer.appendMetadata(fd.maxSeqId, request.isAllFiles());
                         writer.close();
                         newFiles.add(writer.getPath());
+                        if (statsCollector != null)
+                            statsCollector.persist();
                     }
                 }
             } finally {
+                if (statsCollector != null) {
+                    try {
+                        statsCollector.close();
+                    } catch (IOException ioe) {
+                        LOG.warn("Exception closing statistics collector", ioe);
+                    }
+                }
                 for (StoreFile f : readersToClose) {
                     try {
                         f.closeReader(true);
@@ -432,6 +444,18 @@ public class SpliceDefaultCompactor extends DefaultCompactor {
                                         long smallestReadPoint, boolean cleanSeqId,
                                         CompactionThroughputController throughputController,
                                         boolean major) throws IOException {
+        return performCompaction(fd, scanner, writer, smallestReadPoint, cleanSeqId, throughputController, major, null);
+    }
+
+    /**
+     * @param statsCollector collects the statistics of the cells written by this compaction, null if none are
+     *                       collected
+     */
+    private boolean performCompaction(Compactor.FileDetails fd, InternalScanner scanner, CellSink writer,
+                                      long smallestReadPoint, boolean cleanSeqId,
+                                      CompactionThroughputController throughputController,
+                                      boolean major,
+                                      CompactionStatisticsCollector statsCollector) throws IOException {
         if (LOG.isTraceEnabled())
             SpliceLogUtils.trace(LOG,"performCompaction");
         long bytesWritten = 0;
@@ -462,6 +486,8 @@ public class SpliceDefaultCompactor extends DefaultCompactor {
                     CellUtil.setSequenceId(c, 0);
                 }
                 writer.append(c);
+                if (statsCollector != null)
+                    statsCollector.add(c);
                 int len = KeyValueUtil.length(c);
                 ++progress.currentCompactedKVs;
                 progress.totalCompactedSize += len;
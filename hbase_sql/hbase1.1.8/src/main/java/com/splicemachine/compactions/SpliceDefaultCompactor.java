@@ -264,6 +264,7 @@ public class SpliceDefaultCompactor extends DefaultCompactor {
         }
 
         StoreFile.Writer writer = null;
+        CompactionStatisticsCollector statsCollector = null;
         List<Path> newFiles =new ArrayList<>();
         boolean cleanSeqId = false;
         IOException e = null;
@@ -288,6 +289,8 @@ public class SpliceDefaultCompactor extends DefaultCompactor {
 
                     SICompactionScanner siScanner = new SICompactionScanner(state, scanner, purgeDeletedRows, resolutionShare, bufferSize, context);
                     siScanner.start();
+                    if (request.isMajor())
+                        statsCollector = CompactionStatisticsCollector.open(((HStore)store).getHRegion());
                     scanner = siScanner;
                 }
                 if (scanner == null) {
@@ -303,7 +306,7 @@ public class SpliceDefaultCompactor extends DefaultCompactor {
 
                 writer = createTmpWriter(fd, false, favoredNodes);
                 boolean finished =
-                        performCompaction(scanner, writer, smallestReadPoint, cleanSeqId, new NoLimitCompactionThroughputController());
+                        performCompaction(scanner, writer, smallestReadPoint, cleanSeqId, new NoLimitCompactionThroughputController(), statsCollector);
                 if (!finished) {
                     writer.close();
                     store.getFileSystem().delete(writer.getPath(), false);
@@ -330,9 +333,18 @@ public class SpliceDefaultCompactor extends DefaultCompactor {
                         writer.appendMetadata(fd.maxSeqId, request.isAllFiles());
                         writer.close();
                         newFiles.add(writer.getPath());
+                        if (statsCollector != null)
+                            statsCollector.persist();
                     }
                 }
             } finally {
+                if (statsCollector != null) {
+                    try {
+                        statsCollector.close();
+                    } catch (IOException ioe) {
+                        LOG.warn("Exception closing statistics collector", ioe);
+                    }
+                }
                 for (StoreFile f : readersToClose) {
                     try {
                         f.closeReader(true);
@@ -412,6 +424,17 @@ public class SpliceDefaultCompactor extends DefaultCompactor {
     protected boolean performCompaction(InternalScanner scanner, CellSink writer,
                                         long smallestReadPoint, boolean cleanSeqId,
                                         CompactionThroughputController throughputController) throws IOException {
+        return performCompaction(scanner, writer, smallestReadPoint, cleanSeqId, throughputController, null);
+    }
+
+    /**
+     * @param statsCollector collects the statistics of the cells written by this compaction, null if none are
+     *                       collected
+     */
+    private boolean performCompaction(InternalScanner scanner, CellSink writer,
+                                      long smallestReadPoint, boolean cleanSeqId,
+                                      CompactionThroughputController throughputController,
+                                      CompactionStatisticsCollector statsCollector) throws IOException {
         if (LOG.isTraceEnabled())
             SpliceLogUtils.trace(LOG,"performCompaction");
         long bytesWritten = 0;
@@ -442,6 +465,8 @@ public class SpliceDefaultCompactor extends DefaultCompactor {
                     CellUtil.setSequenceId(c, 0);
                 }
                 writer.append(c);
+                if (statsCollector != null)
+                    statsCollector.add(c);
                 int len = KeyValueUtil.length(c);
                 ++progress.currentCompactedKVs;
                 progress.totalCompactedSize += len;
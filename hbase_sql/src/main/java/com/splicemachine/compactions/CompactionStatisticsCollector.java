@@ -0,0 +1,357 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.compactions;
+
+import com.splicemachine.access.HConfiguration;
+import com.splicemachine.access.configuration.StatsConfiguration;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
+import com.splicemachine.db.iapi.sql.dictionary.ConglomerateDescriptor;
+import com.splicemachine.db.iapi.sql.dictionary.DataDictionary;
+import com.splicemachine.db.iapi.sql.dictionary.PartitionStatisticsDescriptor;
+import com.splicemachine.db.iapi.sql.dictionary.TableDescriptor;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.stats.ColumnStatisticsImpl;
+import com.splicemachine.db.iapi.stats.ItemStatistics;
+import com.splicemachine.db.iapi.store.access.TransactionController;
+import com.splicemachine.db.impl.sql.catalog.SYSTABLESTATISTICSRowFactory;
+import com.splicemachine.db.impl.sql.execute.StatisticsRow;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.SITableScanner;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.TableScannerBuilder;
+import com.splicemachine.derby.jdbc.SpliceTransactionResourceImpl;
+import com.splicemachine.derby.stream.iapi.DataSet;
+import com.splicemachine.derby.utils.StatisticsAdmin;
+import com.splicemachine.metrics.Metrics;
+import com.splicemachine.metrics.TimeView;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.impl.TxnRegion;
+import com.splicemachine.si.impl.driver.SIDriver;
+import com.splicemachine.si.impl.readresolve.NoOpReadResolver;
+import com.splicemachine.si.impl.rollforward.NoopRollForward;
+import com.splicemachine.storage.DataCell;
+import com.splicemachine.storage.DataScanner;
+import com.splicemachine.storage.HCell;
+import com.splicemachine.storage.Partition;
+import com.splicemachine.storage.RegionPartition;
+import com.splicemachine.utils.SpliceLogUtils;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects the statistics of a region from the rows a major compaction writes out, so the region's
+ * non-merged statistics can be refreshed without a separate ANALYZE scan.
+ *
+ * The cells written by the (SI) compaction scanner are grouped back into rows and decoded by the same
+ * {@link SITableScanner} the statistics job uses, so only the rows visible to the collector's transaction
+ * are counted and the same column sketches are built. Collection is best effort: any failure disables it for
+ * the rest of the compaction, and never fails the compaction itself.
+ */
+public class CompactionStatisticsCollector implements AutoCloseable{
+    private static final Logger LOG=Logger.getLogger(CompactionStatisticsCollector.class);
+
+    private final long conglomId;
+    private final String partitionId;
+    private final Txn txn;
+    private final SITableScanner scanner;
+    private final BufferedRowScanner rowScanner;
+    private final int[] columnPositionMap;
+    private final ExecRow template;
+    private final List<Cell> currentRow=new ArrayList<>();
+
+    private StatisticsRow statisticsRow;
+    private long rowCount;
+    private long rowWidth;
+    private boolean failed;
+
+    CompactionStatisticsCollector(long conglomId,
+                                          String partitionId,
+                                          Txn txn,
+                                          SITableScanner scanner,
+                                          BufferedRowScanner rowScanner,
+                                          int[] columnPositionMap,
+                                          ExecRow template){
+        this.conglomId=conglomId;
+        this.partitionId=partitionId;
+        this.txn=txn;
+        this.scanner=scanner;
+        this.rowScanner=rowScanner;
+        this.columnPositionMap=columnPositionMap;
+        this.template=template;
+    }
+
+    /**
+     * The table's own setting of {@link StatsConfiguration#COLLECT_ON_MAJOR_COMPACTION}, from its HBase table
+     * configuration, takes precedence over the server's.
+     */
+    private static boolean isEnabled(HRegion region){
+        String tableSetting=region.getTableDesc().getConfigurationValue(StatsConfiguration.COLLECT_ON_MAJOR_COMPACTION);
+        if(tableSetting!=null)
+            return Boolean.parseBoolean(tableSetting);
+        return HConfiguration.getConfiguration().getCollectStatisticsOnMajorCompaction();
+    }
+
+    /**
+     * @return a collector for a major compaction of {@code region}, or {@code null} if statistics shouldn't be
+     * collected: collection is disabled for the table, the region isn't part of a user base table, or the region
+     * has no non-merged statistics to refresh.
+     */
+    public static CompactionStatisticsCollector open(HRegion region) throws IOException{
+        if(!isEnabled(region))
+            return null;
+        TableName tableName=region.getTableDesc().getTableName();
+        if(!"splice".equals(tableName.getNamespaceAsString()))
+            return null;
+        long conglomId;
+        try{
+            conglomId=Long.parseLong(tableName.getQualifierAsString());
+        }catch(NumberFormatException e){
+            return null;
+        }
+
+        SIDriver driver=SIDriver.driver();
+        Partition partition=new RegionPartition(region);
+        Txn txn=driver.lifecycleManager().beginTransaction();
+        boolean prepared=false;
+        boolean opened=false;
+        SpliceTransactionResourceImpl transactionResource=null;
+        try{
+            transactionResource=new SpliceTransactionResourceImpl();
+            prepared=transactionResource.marshallTransaction(txn);
+            LanguageConnectionContext lcc=transactionResource.getLcc();
+            DataDictionary dd=lcc.getDataDictionary();
+            ConglomerateDescriptor cd=dd.getConglomerateDescriptor(conglomId);
+            if(cd==null || cd.isIndex())
+                return null;
+            TableDescriptor td=dd.getTableDescriptor(cd.getTableID());
+            if(td==null || td.getTableType()!=TableDescriptor.BASE_TABLE_TYPE || td.getHeapConglomerateId()!=conglomId)
+                return null;
+            if(!hasNonMergedStatistics(dd,lcc.getTransactionExecute(),conglomId,partition.getName())){
+                if(LOG.isDebugEnabled())
+                    SpliceLogUtils.debug(LOG,"No non-merged statistics for region %s, not collecting",partition.getName());
+                return null;
+            }
+
+            TableScannerBuilder<ExecRow> builder=new TableScannerBuilder<ExecRow>(){
+                @Override
+                public DataSet<ExecRow> buildDataSet() throws StandardException{
+                    throw new UnsupportedOperationException("Compaction statistics are collected row by row");
+                }
+            };
+            StatisticsAdmin.createTableScanner(builder,lcc,td,txn);
+            BufferedRowScanner rowScanner=new BufferedRowScanner(partition);
+            builder.region(new TxnRegion(partition,NoopRollForward.INSTANCE,NoOpReadResolver.INSTANCE,
+                    driver.getTxnSupplier(),driver.getTransactor(),driver.getOperationFactory()))
+                    .scanner(rowScanner);
+            SITableScanner scanner=builder.build();
+            //the compaction output is fed one row at a time, so skip the transaction read-ahead
+            scanner.setRegionScanner(rowScanner);
+            opened=true;
+            return new CompactionStatisticsCollector(conglomId,partition.getName(),txn,scanner,rowScanner,
+                    builder.getColumnPositionMap(),builder.getTemplate());
+        }catch(Exception e){
+            LOG.warn("Unable to set up statistics collection for region "+partition.getName(),e);
+            return null;
+        }finally{
+            if(prepared)
+                transactionResource.close();
+            if(!opened)
+                txn.commit();
+        }
+    }
+
+    /**
+     * Adds a cell written by the compaction. Cells must arrive in the order they are written.
+     */
+    public void add(Cell cell){
+        if(failed)
+            return;
+        if(!currentRow.isEmpty() && !CellUtil.matchingRow(currentRow.get(0),cell))
+            collectCurrentRow();
+        currentRow.add(cell);
+    }
+
+    /**
+     * Replaces the region's non-merged statistics with the ones collected from the compaction. Called once the
+     * compacted file has been written.
+     */
+    public void persist(){
+        if(!currentRow.isEmpty())
+            collectCurrentRow();
+        if(failed)
+            return;
+
+        Txn writeTxn=null;
+        boolean prepared=false;
+        SpliceTransactionResourceImpl transactionResource=null;
+        try{
+            List<ExecRow> statsRows=statisticsRows();
+            writeTxn=SIDriver.driver().lifecycleManager().beginTransaction(Bytes.toBytes("statistics"));
+            transactionResource=new SpliceTransactionResourceImpl();
+            prepared=transactionResource.marshallTransaction(writeTxn);
+            LanguageConnectionContext lcc=transactionResource.getLcc();
+            DataDictionary dd=lcc.getDataDictionary();
+            TransactionController tc=lcc.getTransactionExecute();
+            dd.deletePartitionStatistics(conglomId,partitionId,tc);
+            for(ExecRow statsRow : statsRows){
+                if(statsRow.nColumns()==SYSTABLESTATISTICSRowFactory.SYSTABLESTATISTICS_COLUMN_COUNT)
+                    dd.addTableStatistics(statsRow,tc);
+                else
+                    dd.addColumnStatistics(statsRow,tc);
+            }
+            if(prepared){
+                transactionResource.close();
+                prepared=false;
+            }
+            writeTxn.commit();
+            writeTxn=null;
+            if(LOG.isDebugEnabled())
+                SpliceLogUtils.debug(LOG,"Refreshed statistics of region %s: rowCount=%d",partitionId,rowCount);
+        }catch(Exception e){
+            LOG.warn("Unable to store the statistics collected for region "+partitionId,e);
+        }finally{
+            if(prepared)
+                transactionResource.close();
+            if(writeTxn!=null){
+                try{
+                    writeTxn.rollback();
+                }catch(IOException e){
+                    LOG.warn("Unable to roll back statistics transaction "+writeTxn,e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException{
+        currentRow.clear();
+        try{
+            scanner.close();
+        }catch(StandardException e){
+            throw new IOException(e);
+        }finally{
+            txn.commit();
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    private static boolean hasNonMergedStatistics(DataDictionary dd,
+                                                  TransactionController tc,
+                                                  long conglomId,
+                                                  String partitionId) throws StandardException{
+        for(PartitionStatisticsDescriptor psd : dd.getPartitionStatistics(conglomId,tc)){
+            if(!partitionId.equals(psd.getPartitionId()))
+                continue;
+            int statsType=psd.getStatsType();
+            return statsType==SYSTABLESTATISTICSRowFactory.REGULAR_NONMERGED_STATS
+                    || statsType==SYSTABLESTATISTICSRowFactory.SAMPLE_NONMERGED_STATS;
+        }
+        return false;
+    }
+
+    void collectCurrentRow(){
+        rowScanner.setRow(currentRow);
+        try{
+            ExecRow row=scanner.next();
+            if(row!=null){
+                if(statisticsRow==null)
+                    statisticsRow=new StatisticsRow(row);
+                rowWidth+=row.getRowSize();
+                rowCount++;
+                statisticsRow.setExecRow(row);
+            }
+        }catch(Exception e){
+            LOG.warn("Unable to collect statistics for region "+partitionId+", giving up for this compaction",e);
+            failed=true;
+        }finally{
+            currentRow.clear();
+        }
+    }
+
+    /*
+     * Same layout as StatisticsFlatMapFunction produces for a full, non-merged collection of one region
+     */
+    List<ExecRow> statisticsRows() throws StandardException{
+        List<ExecRow> rows=new ArrayList<>(columnPositionMap.length+1);
+        if(statisticsRow!=null){
+            ItemStatistics[] itemStatistics=statisticsRow.getItemStatistics();
+            for(int i=0;i<itemStatistics.length;i++){
+                if(itemStatistics[i]==null)
+                    continue;
+                rows.add(StatisticsAdmin.generateRowFromStats(conglomId,partitionId,columnPositionMap[i],itemStatistics[i]));
+            }
+        }else{
+            for(int i=0;i<columnPositionMap.length;i++){
+                if(columnPositionMap[i]==-1)
+                    break;
+                if(template.getColumn(i+1)!=null)
+                    rows.add(StatisticsAdmin.generateRowFromStats(conglomId,partitionId,columnPositionMap[i],new ColumnStatisticsImpl(template.getColumn(i+1))));
+            }
+        }
+        int meanRowWidth=rowCount==0?0:(int)(((double)rowWidth)/((double)rowCount));
+        rows.add(StatisticsAdmin.generateRowFromStats(conglomId,partitionId,rowCount,rowCount*((long)meanRowWidth),
+                meanRowWidth,1L,SYSTABLESTATISTICSRowFactory.REGULAR_NONMERGED_STATS,0.0d));
+        return rows;
+    }
+
+    /**
+     * Hands out the single row it was given, then reports the end of the scan until the next row is set.
+     */
+    static class BufferedRowScanner implements DataScanner{
+        private final Partition partition;
+        private final List<DataCell> row=new ArrayList<>();
+        private boolean consumed=true;
+
+        BufferedRowScanner(Partition partition){
+            this.partition=partition;
+        }
+
+        void setRow(List<Cell> cells){
+            row.clear();
+            for(Cell cell : cells){
+                row.add(new HCell(cell));
+            }
+            consumed=false;
+        }
+
+        @Override
+        @Nonnull
+        public List<DataCell> next(int limit) throws IOException{
+            if(consumed)
+                return Collections.emptyList();
+            consumed=true;
+            return row;
+        }
+
+        @Override public TimeView getReadTime(){ return Metrics.noOpTimeView(); }
+        @Override public long getBytesOutput(){ return 0; }
+        @Override public long getRowsFiltered(){ return 0; }
+        @Override public long getRowsVisited(){ return 0; }
+        @Override public Partition getPartition(){ return partition; }
+        @Override public void close() throws IOException{ }
+    }
+}
@@ -25,10 +25,12 @@ import com.splicemachine.db.iapi.sql.dictionary.DataDictionary;
 import com.splicemachine.db.iapi.sql.dictionary.TableDescriptor;
 import com.splicemachine.ddl.DDLMessage;
 import com.splicemachine.derby.impl.SpliceSpark;
+import com.splicemachine.derby.impl.sql.execute.ResultCacheWriteTracker;
 import com.splicemachine.derby.stream.function.*;
 import com.splicemachine.derby.stream.iapi.DataSet;
 import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.derby.stream.iapi.PairDataSet;
+import com.splicemachine.pipeline.Exceptions;
 import com.splicemachine.primitives.Bytes;
 import com.splicemachine.protobuf.ProtoUtil;
 import com.splicemachine.si.api.txn.TxnView;
@@ -180,6 +182,12 @@ public class BulkDataSetWriter  {
      * @throws StandardException
      */
     protected void bulkLoad(List<BulkImportPartition> bulkImportPartitions, String bulkImportDirectory, String prefix) throws StandardException{
+        try {
+            // the HFiles skip the write pipeline, which would tell the result caches of the write
+            ResultCacheWriteTracker.instance().publish(heapConglom, txn);
+        } catch (IOException e) {
+            throw Exceptions.parseException(e);
+        }
         SConfiguration sConfiguration = HConfiguration.getConfiguration();
         int regionsPerTask = sConfiguration.getRegionToLoadPerTask();
         int numTasks = Math.max(bulkImportPartitions.size()/regionsPerTask, 1);
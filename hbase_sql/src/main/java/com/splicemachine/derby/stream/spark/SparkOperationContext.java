@@ -420,6 +420,21 @@ public class SparkOperationContext<Op extends SpliceOperation> implements Operat
         return regionTooBusyExceptions.value();
     }
 
+    @Override
+    public void recordSpill(long bytes){
+        // Spark manages its own spilling
+    }
+
+    @Override
+    public long getSpilledBytes(){
+        return 0L;
+    }
+
+    @Override
+    public long getSpilledRuns(){
+        return 0L;
+    }
+
 
     @Override
     public void pushScope(String displayName){
@@ -40,21 +40,40 @@ import org.spark_project.guava.util.concurrent.ListenableFuture;
 import org.spark_project.guava.util.concurrent.ThreadFactoryBuilder;
 
 import javax.annotation.Nonnull;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.net.InetSocketAddress;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
+import java.util.UUID;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
+ * Submits jobs to the OlapServer.
+ *
+ * Besides the pooled channels used for submissions and status requests, the layer keeps one channel subscribed
+ * to job events, over which the server pushes the progress and outcome of the jobs submitted by this client.
+ * Status requests are still sent as a fallback, but only every {@link #SUBSCRIBED_STATUS_TICKS} ticks of
+ * silence while the subscription is up.
+ *
+ * The submission-to-result latency of the jobs is exposed through {@link OlapClientStatistics}.
+ *
  * @author Scott Fines
  *         Date: 4/4/16
  */
-public class AsyncOlapNIOLayer implements JobExecutor{
+public class AsyncOlapNIOLayer implements JobExecutor, OlapClientStatistics{
     private static final Logger LOG=Logger.getLogger(AsyncOlapNIOLayer.class);
+    /*
+     * The number of status ticks without any news about a job after which we poll for it even though its
+     * events are pushed to us
+     */
+    private static final int SUBSCRIBED_STATUS_TICKS=10;
 
     private final int maxRetries;
     private ChannelPool channelPool;
@@ -63,6 +82,20 @@ public class AsyncOlapNIOLayer implements JobExecutor{
     private final OlapServerProvider hostProvider;
     private final Object connectionLock = new Object();
     private volatile boolean connected = false;
+    private Bootstrap bootstrap;
+
+    private final String subscriberId=UUID.randomUUID().toString();
+    private final ConcurrentMap<String,OlapFuture> activeJobs=new ConcurrentHashMap<>();
+    private volatile Channel eventChannel; //set once the server has acknowledged our subscription
+    private volatile boolean subscribing = false;
+
+    // Metrics to expose via JMX. See OlapClientStatistics
+    private final AtomicLong completedJobs = new AtomicLong(0);
+    private final AtomicLong failedJobs = new AtomicLong(0);
+    private final AtomicLong pushedJobs = new AtomicLong(0);
+    private final AtomicLong totalLatencyNanos = new AtomicLong(0);
+    private final AtomicLong pushedLatencyNanos = new AtomicLong(0);
+    private final AtomicLong maxLatencyNanos = new AtomicLong(0);
 
     private ExtensionRegistry buildExtensionRegistry(){
         ExtensionRegistry er=ExtensionRegistry.newInstance();
@@ -77,6 +110,11 @@ public class AsyncOlapNIOLayer implements JobExecutor{
     public AsyncOlapNIOLayer(OlapServerProvider hostProvider, int retries){
         this.maxRetries = retries;
         this.hostProvider = hostProvider;
+        try {
+            registerJMX();
+        } catch (Exception e) {
+            LOG.warn("Unable to register AsyncOlapNIOLayer with JMX, Olap job latency will not be available", e);
+        }
     }
 
     private void connect() throws IOException {
@@ -86,6 +124,8 @@ public class AsyncOlapNIOLayer implements JobExecutor{
             }
             if (channelPool != null)
                 channelPool.close();
+            if (eventChannel != null)
+                eventChannel.close();
             if (executorService != null)
                 executorService.shutdown();
             HostAndPort hap = hostProvider.olapServerHost();
@@ -118,6 +158,7 @@ public class AsyncOlapNIOLayer implements JobExecutor{
                 }
             });
             executorService = group;
+            this.bootstrap = bootstrap;
             connected = true;
         }
     }
@@ -129,7 +170,9 @@ public class AsyncOlapNIOLayer implements JobExecutor{
             LOG.trace("Submitting job request " + job.getUniqueName());
         connectIfNeeded();
         synchronized (connectionLock) {
+            subscribeIfNeeded();
             OlapFuture future = new OlapFuture(job);
+            activeJobs.put(job.getUniqueName(), future);
             future.doSubmit();
             return future;
         }
@@ -142,16 +185,123 @@ public class AsyncOlapNIOLayer implements JobExecutor{
     }
 
 
+    private void subscribeIfNeeded() {
+        if (eventChannel != null || subscribing)
+            return;
+        subscribing = true;
+        Bootstrap eventBootstrap = bootstrap.clone().handler(new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel channel) throws Exception {
+                ChannelPipeline p = channel.pipeline();
+                p.addLast("frameEncoder", new LengthFieldPrepender(4));
+                p.addLast("protobufEncoder", new ProtobufEncoder());
+                p.addLast("frameDecoder", new LengthFieldBasedFrameDecoder(1 << 30, 0, 4, 0, 4));
+                p.addLast("protobufDecoder", decoder);
+                p.addLast("eventHandler", new EventHandler());
+            }
+        });
+        eventBootstrap.connect().addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception {
+                if (!future.isSuccess()) {
+                    LOG.warn("Unable to subscribe to Olap job events, polling for job status instead", future.cause());
+                    subscribing = false;
+                    return;
+                }
+                OlapMessage.Command cmd = OlapMessage.Command.newBuilder()
+                        .setUniqueName(subscriberId)
+                        .setType(OlapMessage.Command.Type.SUBSCRIBE)
+                        .setExtension(OlapMessage.Subscribe.command, OlapMessage.Subscribe.getDefaultInstance())
+                        .build();
+                future.channel().writeAndFlush(cmd);
+            }
+        });
+    }
+
     @Override
     public void shutdown(){
         channelPool.close(); //disconnect everything
+        Channel ec = eventChannel;
+        if (ec != null)
+            ec.close();
         executorService.shutdown();
     }
 
+    @Override
+    public long getCompletedJobs(){
+        return completedJobs.get();
+    }
+
+    @Override
+    public long getFailedJobs(){
+        return failedJobs.get();
+    }
+
+    @Override
+    public long getPushedJobs(){
+        return pushedJobs.get();
+    }
+
+    @Override
+    public double getAvgJobLatency(){
+        return averageMillis(totalLatencyNanos.get(), completedJobs.get() + failedJobs.get());
+    }
+
+    @Override
+    public double getAvgPushedJobLatency(){
+        return averageMillis(pushedLatencyNanos.get(), pushedJobs.get());
+    }
+
+    @Override
+    public double getAvgPolledJobLatency(){
+        return averageMillis(totalLatencyNanos.get() - pushedLatencyNanos.get(),
+                completedJobs.get() + failedJobs.get() - pushedJobs.get());
+    }
+
+    @Override
+    public long getMaxJobLatency(){
+        return TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get());
+    }
+
+    @Override
+    public void reset(){
+        completedJobs.set(0);
+        failedJobs.set(0);
+        pushedJobs.set(0);
+        totalLatencyNanos.set(0);
+        pushedLatencyNanos.set(0);
+        maxLatencyNanos.set(0);
+    }
+
 
     /* ****************************************************************************************************************/
     /*Private Helper methods and classes*/
 
+    private void registerJMX() throws Exception {
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        mbs.registerMBean(this, new ObjectName("com.splicemachine.olap:type=OlapClientStatistics"));
+    }
+
+    private void recordLatency(long latencyNanos, boolean failed, boolean pushed) {
+        if (failed)
+            failedJobs.incrementAndGet();
+        else
+            completedJobs.incrementAndGet();
+        totalLatencyNanos.addAndGet(latencyNanos);
+        if (pushed) {
+            pushedJobs.incrementAndGet();
+            pushedLatencyNanos.addAndGet(latencyNanos);
+        }
+        long max;
+        do {
+            max = maxLatencyNanos.get();
+        } while (latencyNanos > max && !maxLatencyNanos.compareAndSet(max, latencyNanos));
+    }
+
+    private static double averageMillis(long totalNanos, long count) {
+        return count <= 0 ? 0d : (double) totalNanos / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
     private OlapResult parseFromResponse(OlapMessage.Response response) throws IOException{
         switch(response.getType()){
             case NOT_SUBMITTED:
@@ -179,7 +329,8 @@ public class AsyncOlapNIOLayer implements JobExecutor{
         private final ChannelHandler resultHandler = new ResultHandler(this);
         private final ChannelHandler submitHandler = new SubmitHandler(this);
         private final ExecutionList executionList = new ExecutionList();
-        private long lastStatus = System.currentTimeMillis(); // keeps track of last status received for logging
+        private final long submitNanos = System.nanoTime();
+        private volatile long lastStatus = System.currentTimeMillis(); // keeps track of last status received
 
         private final GenericFutureListener<Future<Void>> failListener=new GenericFutureListener<Future<Void>>(){
             @Override
@@ -195,6 +346,7 @@ public class AsyncOlapNIOLayer implements JobExecutor{
         private volatile boolean cancelled=false;
         private volatile boolean failed=false;
         private volatile boolean submitted=false;
+        private volatile Channel subscription=null; //the event channel the server pushes this job's events to
         private volatile int notFound;
         private volatile Throwable cause=null;
         private volatile long tickTimeNanos=TimeUnit.MILLISECONDS.toNanos(1000L);
@@ -279,6 +431,7 @@ public class AsyncOlapNIOLayer implements JobExecutor{
             Future<Channel> channelFuture=channelPool.acquire();
             channelFuture.addListener(new CancelCommand(job.getUniqueName()));
             cancelled=true;
+            activeJobs.remove(job.getUniqueName(),this);
             signal();
         }
 
@@ -288,21 +441,74 @@ public class AsyncOlapNIOLayer implements JobExecutor{
             if (cause instanceof SocketException || cause instanceof SocketTimeoutException) {
                 connected = false;
             }
-            this.cause=cause;
-            this.failed=true;
-            if (this.keepAlive != null)
-                this.keepAlive.cancel(false);
-            this.executionList.execute();
+            synchronized (this) {
+                // the outcome may be both pushed and polled, keep the first one
+                if (failed || finalResult != null)
+                    return;
+                this.cause = cause;
+                this.failed = true;
+            }
+            finished();
         }
 
         void success(OlapResult result) {
             if (LOG.isTraceEnabled())
                 LOG.trace("Successful job "+ job.getUniqueName());
-            this.finalResult = result;
-            this.keepAlive.cancel(false);
+            synchronized (this) {
+                if (failed || finalResult != null)
+                    return;
+                this.finalResult = result;
+            }
+            finished();
+        }
+
+        private void finished() {
+            activeJobs.remove(job.getUniqueName(), this);
+            if (this.keepAlive != null)
+                this.keepAlive.cancel(false);
+            long latencyNanos = System.nanoTime() - submitNanos;
+            boolean pushed = subscription != null;
+            recordLatency(latencyNanos, failed, pushed);
+            if (LOG.isDebugEnabled())
+                LOG.debug("Job " + job.getUniqueName() + (failed ? " failed" : " completed") + " after " +
+                        TimeUnit.NANOSECONDS.toMillis(latencyNanos) + " ms" +
+                        (pushed ? " (events pushed)" : " (polled)"));
             this.executionList.execute();
         }
 
+        /**
+         * Updates the job with a result received from the server, either as a response to a status request or
+         * pushed to our subscription.
+         */
+        void received(OlapResult or) {
+            //TODO -sf- deal with a OlapServer failover here (i.e. a move to NOT_SUBMITTED from any other state
+            if(or instanceof SubmittedResult) {
+                tickTimeNanos = TimeUnit.MILLISECONDS.toNanos(((SubmittedResult) or).getTickTime());
+                lastStatus = System.currentTimeMillis();
+            } else if(submitted && !isDone() && or instanceof NotSubmittedResult) {
+                // Server says the job is no longer submitted, give it a couple of tries in case messages are out of order
+                long millisSinceLastStatus = System.currentTimeMillis() - lastStatus;
+                LOG.warn("Status not available for job " + job.getUniqueName() +
+                        ", millis since last status " + millisSinceLastStatus);
+                if (notFound++ > maxRetries) {
+                    // The job is no longer submitted, assume aborted
+                    LOG.error("Failing job " + job.getUniqueName() + " after " + maxRetries +
+                            " status not available responses");
+                    fail(new IOException("Status not available, assuming aborted due to client timeout"));
+                }
+            }else if(or.isSuccess()){
+                success(or);
+            }else{
+                // It should have a throwable
+                Throwable t=or.getThrowable();
+                if(t!=null){
+                    fail(t);
+                } else {
+                    LOG.error("Message doesn't match any type of expected results: " + or);
+                }
+            }
+        }
+
         void doSubmit() throws IOException{
             Future<Channel> channelFuture=channelPool.acquire();
             if (LOG.isTraceEnabled())
@@ -336,6 +542,12 @@ public class AsyncOlapNIOLayer implements JobExecutor{
         public void run() {
             if (submitted && !isDone()) {
                 // don't request status until submitted
+                Channel sub = subscription;
+                if (sub != null && sub == eventChannel && sub.isActive() && System.currentTimeMillis() - lastStatus <
+                        SUBSCRIBED_STATUS_TICKS * TimeUnit.NANOSECONDS.toMillis(tickTimeNanos)) {
+                    // the server pushes us this job's events, only check in when it's been silent for a while
+                    return;
+                }
                 Future<Channel> cFut = channelPool.acquire();
                 cFut.addListener(new StatusListener(this));
             }
@@ -374,10 +586,15 @@ public class AsyncOlapNIOLayer implements JobExecutor{
                 LOG.trace("Submitted job " + olapFuture.job.getUniqueName());
             }
 
-            OlapMessage.Submit submit=OlapMessage.Submit.newBuilder().setCommandBytes(olapFuture.data).build();
+            OlapMessage.Submit.Builder submit=OlapMessage.Submit.newBuilder().setCommandBytes(olapFuture.data);
+            Channel ec = eventChannel;
+            if (ec != null) {
+                submit.setSubscriber(subscriberId);
+                olapFuture.subscription = ec;
+            }
             OlapMessage.Command cmd=OlapMessage.Command.newBuilder()
                     .setUniqueName(olapFuture.job.getUniqueName())
-                    .setExtension(OlapMessage.Submit.command,submit)
+                    .setExtension(OlapMessage.Submit.command,submit.build())
                     .setType(OlapMessage.Command.Type.SUBMIT)
                     .build();
             ChannelFuture writeFuture=c.writeAndFlush(cmd);
@@ -409,7 +626,7 @@ public class AsyncOlapNIOLayer implements JobExecutor{
             }
 
             OlapMessage.Status.Builder status=OlapMessage.Status.newBuilder();
-            if (olapFuture.waitTimeMillis > 0) {
+            if (olapFuture.waitTimeMillis > 0 && olapFuture.subscription == null) {
                 status.setWaitTimeMillis(olapFuture.waitTimeMillis);
                 olapFuture.waitTimeMillis = 0;
             }
@@ -489,32 +706,7 @@ public class AsyncOlapNIOLayer implements JobExecutor{
             if (LOG.isTraceEnabled()) {
                 LOG.trace("Received " + or);
             }
-            //TODO -sf- deal with a OlapServer failover here (i.e. a move to NOT_SUBMITTED from any other state
-            if(or instanceof SubmittedResult) {
-                future.tickTimeNanos = TimeUnit.MILLISECONDS.toNanos(((SubmittedResult) or).getTickTime());
-                future.lastStatus = System.currentTimeMillis();
-            } else if(future.submitted && !future.isDone() && or instanceof NotSubmittedResult) {
-                // Server says the job is no longer submitted, give it a couple of tries in case messages are out of order
-                long millisSinceLastStatus = System.currentTimeMillis() - future.lastStatus;
-                LOG.warn("Status not available for job " + future.job.getUniqueName() +
-                        ", millis since last status " + millisSinceLastStatus);
-                if (future.notFound++ > maxRetries) {
-                    // The job is no longer submitted, assume aborted
-                    LOG.error("Failing job " + future.job.getUniqueName() + " after " + maxRetries +
-                            " status not available responses");
-                    future.fail(new IOException("Status not available, assuming aborted due to client timeout"));
-                }
-            }else if(or.isSuccess()){
-                future.success(or);
-            }else{
-                // It should have a throwable
-                Throwable t=or.getThrowable();
-                if(t!=null){
-                    future.fail(t);
-                } else {
-                    LOG.error("Message doesn't match any type of expected results: " + or);
-                }
-            }
+            future.received(or);
             ctx.pipeline().remove(this); //we don't want this in the pipeline anymore
             Channel channel=ctx.channel();
             channelPool.release(channel); //release the underlying channel back to the pool cause we're done
@@ -543,6 +735,7 @@ public class AsyncOlapNIOLayer implements JobExecutor{
             OlapResult or=parseFromResponse(olapResult);
             if(or instanceof SubmittedResult) {
                 future.tickTimeNanos = TimeUnit.MILLISECONDS.toNanos(((SubmittedResult) or).getTickTime());
+                future.lastStatus = System.currentTimeMillis();
                 future.submitted = true;
             }else{
                 Throwable t=or.getThrowable();
@@ -568,4 +761,49 @@ public class AsyncOlapNIOLayer implements JobExecutor{
             future.signal();
         }
     }
+
+    /**
+     * Receives the events the server pushes to our subscription.
+     */
+    private final class EventHandler extends SimpleChannelInboundHandler<OlapMessage.Response> {
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx,OlapMessage.Response response) throws Exception{
+            String uniqueName=response.getUniqueName();
+            if(subscriberId.equals(uniqueName)){
+                LOG.info("Subscribed to Olap job events");
+                eventChannel=ctx.channel();
+                subscribing=false;
+                return;
+            }
+            OlapFuture future=activeJobs.get(uniqueName);
+            if(future==null)
+                return; //cancelled, or its outcome was polled already
+            try{
+                OlapResult or=parseFromResponse(response);
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace("Received pushed " + or + " for job " + uniqueName);
+                }
+                future.received(or);
+            }catch(IOException ioe){
+                future.fail(ioe);
+            }
+            future.signal();
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception{
+            // jobs go back to being polled at every tick; we subscribe again with the next submission
+            if(eventChannel==ctx.channel())
+                eventChannel=null;
+            subscribing=false;
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx,Throwable cause) throws Exception{
+            LOG.warn("Unexpected error on the Olap job event channel, polling for job status instead",cause);
+            ctx.close();
+        }
+    }
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.olap;
+
+import javax.management.MXBean;
+
+/**
+ * Interface for exposing the latency of the jobs a region server submits to the OlapServer via JMX.
+ *
+ * Latencies are measured from the submission of a job to the moment its result, or its failure,
+ * is known to the client.
+ */
+@MXBean
+public interface OlapClientStatistics{
+
+    /**
+     * @return the number of jobs which completed successfully
+     */
+    long getCompletedJobs();
+
+    /**
+     * @return the number of jobs which failed
+     */
+    long getFailedJobs();
+
+    /**
+     * @return the number of finished jobs whose outcome was pushed to us by the server, rather than polled for
+     */
+    long getPushedJobs();
+
+    /**
+     * @return the average latency, in milliseconds, of the finished jobs
+     */
+    double getAvgJobLatency();
+
+    /**
+     * @return the average latency, in milliseconds, of the finished jobs whose outcome was pushed to us
+     */
+    double getAvgPushedJobLatency();
+
+    /**
+     * @return the average latency, in milliseconds, of the finished jobs whose outcome was polled for
+     */
+    double getAvgPolledJobLatency();
+
+    /**
+     * @return the highest latency, in milliseconds, of a finished job
+     */
+    long getMaxJobLatency();
+
+    void reset();
+}
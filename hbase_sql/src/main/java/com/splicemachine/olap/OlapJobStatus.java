@@ -40,6 +40,15 @@ public class OlapJobStatus implements OlapStatus{
     private volatile AtomicReference<OlapStatus.State> currentState = new AtomicReference<>(State.NOT_SUBMITTED);
     private ArrayBlockingQueue<OlapResult> results;
     private volatile OlapResult cachedResult;
+    private volatile Listener listener;
+
+    /**
+     * Notified when the job starts running or reaches a final state. Called on the thread which changed the
+     * state, so it must not block.
+     */
+    interface Listener{
+        void stateChanged(OlapJobStatus status);
+    }
 
     public OlapJobStatus(long tickTime,int numTicks){
         //TODO -sf- remove the constants
@@ -95,6 +104,7 @@ public class OlapJobStatus implements OlapStatus{
             shouldContinue = !currentState.compareAndSet(currState,State.CANCELED);
         }while(shouldContinue);
         results.offer(new CancelledResult());
+        notifyListener();
     }
 
     public boolean isAvailable(){
@@ -134,6 +144,7 @@ public class OlapJobStatus implements OlapStatus{
             shouldContinue = !currentState.compareAndSet(currState,State.COMPLETE);
         }while(shouldContinue);
         results.offer(result);
+        notifyListener();
     }
 
     public boolean markRunning(){
@@ -149,6 +160,7 @@ public class OlapJobStatus implements OlapStatus{
             }
             shouldContinue = !currentState.compareAndSet(currState,State.RUNNING);
         }while(shouldContinue);
+        notifyListener();
         return true;
     }
 
@@ -171,6 +183,16 @@ public class OlapJobStatus implements OlapStatus{
 
     /*package-private methods*/
     /* ****************************************************************************************************************/
+    /**
+     * Sets the listener to notify of state changes. If the job has already started or finished, the listener
+     * is notified right away.
+     */
+    void setListener(Listener listener){
+        this.listener=listener;
+        if(currentState.get()!=State.NOT_SUBMITTED && currentState.get()!=State.SUBMITTED)
+            listener.stateChanged(this);
+    }
+
     State currentState(){
         /*
          * Get the current state of the job. If the job has timed out because the waiting client has died (or
@@ -182,6 +204,12 @@ public class OlapJobStatus implements OlapStatus{
     /*private helper methods*/
     /* ****************************************************************************************************************/
 
+    private void notifyListener(){
+        Listener l=listener;
+        if(l!=null)
+            l.stateChanged(this);
+    }
+
     private State checkFailed(){
         /*
          * Checks whether the current state is failed or not. Used by internal compaction checking to determine
@@ -195,7 +223,8 @@ public class OlapJobStatus implements OlapStatus{
              */
             if(!failureDetector.isAvailable()){
                 results.offer(new FailedOlapResult(new TimeoutException("Client timed out response, assuming it died")));
-                currentState.compareAndSet(curState,State.FAILED); //all other states don't have to be marked failed
+                if(currentState.compareAndSet(curState,State.FAILED)) //all other states don't have to be marked failed
+                    notifyListener();
                 curState=State.FAILED;
             }
         }
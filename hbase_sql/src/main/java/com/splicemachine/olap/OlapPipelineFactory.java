@@ -34,13 +34,16 @@ public class OlapPipelineFactory extends ChannelInitializer {
     private final ChannelInboundHandler submitHandler;
     private final ChannelInboundHandler cancelHandler;
     private final ChannelInboundHandler statusHandler;
+    private final ChannelInboundHandler subscriptionHandler;
 
     private final ProtobufDecoder decoder;
 
-    public OlapPipelineFactory(ChannelInboundHandler submitHandler, ChannelInboundHandler cancelHandler, ChannelInboundHandler statusHandler){
+    public OlapPipelineFactory(ChannelInboundHandler submitHandler, ChannelInboundHandler cancelHandler, ChannelInboundHandler statusHandler,
+                               ChannelInboundHandler subscriptionHandler){
         this.submitHandler=submitHandler;
         this.cancelHandler=cancelHandler;
         this.statusHandler=statusHandler;
+        this.subscriptionHandler=subscriptionHandler;
 
         this.decoder = new ProtobufDecoder(OlapMessage.Command.getDefaultInstance(),buildExtensionRegistry());
     }
@@ -50,6 +53,7 @@ public class OlapPipelineFactory extends ChannelInitializer {
         er.add(OlapMessage.Submit.command);
         er.add(OlapMessage.Status.command);
         er.add(OlapMessage.Cancel.command);
+        er.add(OlapMessage.Subscribe.command);
         return er;
     }
 
@@ -64,6 +68,7 @@ public class OlapPipelineFactory extends ChannelInitializer {
         pipeline.addLast("statusHandler", statusHandler);
         pipeline.addLast("submitHandler", submitHandler);
         pipeline.addLast("cancelHandler",cancelHandler);
+        pipeline.addLast("subscriptionHandler",subscriptionHandler);
         SpliceLogUtils.trace(LOG, "Done creating channel pipeline");
     }
 }
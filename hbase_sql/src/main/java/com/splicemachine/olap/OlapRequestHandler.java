@@ -36,13 +36,16 @@ class OlapRequestHandler extends AbstractOlapHandler{
     private final ExecutorService executionPool;
     private final Clock clock;
     private final long clientCheckTimeMs;
+    private final OlapSubscriptionHandler subscriptionHandler;
 
     OlapRequestHandler(SConfiguration config,
                        OlapJobRegistry jobRegistry,
+                       OlapSubscriptionHandler subscriptionHandler,
                        Clock clock,
                        long clientCheckTimeMs){
         super(jobRegistry);
         this.executionPool=configureThreadPool(config);
+        this.subscriptionHandler=subscriptionHandler;
         this.clock=clock;
         this.clientCheckTimeMs=clientCheckTimeMs;
     }
@@ -94,6 +97,12 @@ class OlapRequestHandler extends AbstractOlapHandler{
             LOG.trace("Job "+ jobRequest.getUniqueName()+" successfully submitted");
         writeResponse(ctx.channel(),jr.getUniqueName(),jobStatus);
 
+        if(extension.hasSubscriber()
+                && !subscriptionHandler.watch(extension.getSubscriber(),jobRequest.getUniqueName(),jobStatus)
+                && LOG.isDebugEnabled()){
+            LOG.debug("Subscriber "+extension.getSubscriber()+" of job "+jobRequest.getUniqueName()+" is not connected");
+        }
+
         executionPool.submit(new Callable<Void>() {
             @Override
             public Void call() throws Exception {
@@ -43,6 +43,7 @@ public class OlapServer {
     private Channel channel;
     private EventLoopGroup bossGroup;
     private EventLoopGroup workerGroup;
+    private ScheduledExecutorService executor;
 
     public OlapServer(int port,Clock clock) {
         this.port = port;
@@ -51,7 +52,7 @@ public class OlapServer {
 
     public void startServer(SConfiguration config) throws IOException {
 
-        ScheduledExecutorService executor = Executors.newScheduledThreadPool(15, new ThreadFactoryBuilder().setNameFormat("OlapServer-%d").setDaemon(true).build());
+        executor = Executors.newScheduledThreadPool(15, new ThreadFactoryBuilder().setNameFormat("OlapServer-%d").setDaemon(true).build());
 
         SpliceLogUtils.warn(LOG, "Olap Server starting (binding to port %s)...", port);
 
@@ -61,8 +62,9 @@ public class OlapServer {
         OlapJobRegistry registry = new MappedJobRegistry(config.getOlapClientTickTime(),
                 config.getOlapServerTickLimit(),
                 TimeUnit.MILLISECONDS);
+        OlapSubscriptionHandler subscriptionHandler = new OlapSubscriptionHandler(registry,executor);
         ChannelInboundHandler submitHandler = new OlapRequestHandler(config,
-                registry,clock,config.getOlapClientTickTime());
+                registry,subscriptionHandler,clock,config.getOlapClientTickTime());
         ChannelInboundHandler statusHandler = new OlapStatusHandler(registry);
         ChannelInboundHandler cancelHandler = new OlapCancelHandler(registry);
 
@@ -70,7 +72,7 @@ public class OlapServer {
         workerGroup = new NioEventLoopGroup(15, new ThreadFactoryBuilder().setNameFormat("OlapServer-%d").setDaemon(true).build());
         bootstrap.group(bossGroup, workerGroup);
         bootstrap.channel(NioServerSocketChannel.class);
-        bootstrap.childHandler(new OlapPipelineFactory(submitHandler,cancelHandler,statusHandler));
+        bootstrap.childHandler(new OlapPipelineFactory(submitHandler,cancelHandler,statusHandler,subscriptionHandler));
         bootstrap.option(ChannelOption.TCP_NODELAY, false);
         bootstrap.childOption(ChannelOption.TCP_NODELAY, false);
         bootstrap.childOption(ChannelOption.SO_KEEPALIVE, true);
@@ -107,5 +109,6 @@ public class OlapServer {
         }
         workerGroup.shutdownGracefully();
         bossGroup.shutdownGracefully();
+        executor.shutdownNow();
     }
 }
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.olap;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Handles SUBSCRIBE commands, and pushes the progress and outcome of the jobs submitted with a subscriber to
+ * that subscriber's channel, so clients don't have to poll for them.
+ *
+ * While a subscriber's channel stays open, the jobs it watches are kept alive on its behalf; once it closes,
+ * the client falls back to status requests, which keep them alive and fetch any outcome a push missed.
+ */
+@ChannelHandler.Sharable
+public class OlapSubscriptionHandler extends AbstractOlapHandler{
+    private static final Logger LOG = Logger.getLogger(OlapSubscriptionHandler.class);
+
+    private final ConcurrentMap<String/*subscriber*/,Channel> subscribers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String/*jobName*/,Subscription> subscriptions = new ConcurrentHashMap<>();
+
+    public OlapSubscriptionHandler(OlapJobRegistry registry,ScheduledExecutorService heartbeatExecutor){
+        super(registry);
+        long tickTime = registry.tickTime();
+        heartbeatExecutor.scheduleWithFixedDelay(new Heartbeat(),tickTime,tickTime,TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, OlapMessage.Command cmd) throws Exception {
+        if(cmd.getType()!=OlapMessage.Command.Type.SUBSCRIBE){
+            ctx.fireChannelRead(cmd);
+            return;
+        }
+        final String subscriber = cmd.getUniqueName();
+        final Channel channel = ctx.channel();
+        subscribers.put(subscriber,channel);
+        channel.closeFuture().addListener(new ChannelFutureListener(){
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception{
+                if(LOG.isDebugEnabled())
+                    LOG.debug("Subscriber "+subscriber+" disconnected");
+                subscribers.remove(subscriber,channel);
+            }
+        });
+        if(LOG.isDebugEnabled())
+            LOG.debug("Subscriber "+subscriber+" connected from "+channel.remoteAddress());
+
+        OlapMessage.ProgressResponse pr = OlapMessage.ProgressResponse.newBuilder().setTickTimeMillis(jobRegistry.tickTime()).build();
+        channel.writeAndFlush(OlapMessage.Response.newBuilder()
+                .setType(OlapMessage.Response.Type.IN_PROGRESS)
+                .setUniqueName(subscriber)
+                .setExtension(OlapMessage.ProgressResponse.response,pr)
+                .build());
+    }
+
+    /**
+     * Pushes the state changes of a job to a subscriber from now on.
+     *
+     * @return false if the subscriber isn't connected, in which case the client has to poll for the job's outcome
+     */
+    boolean watch(String subscriber,String jobName,OlapJobStatus status){
+        Channel channel = subscribers.get(subscriber);
+        if(channel==null || !channel.isActive())
+            return false;
+        Subscription subscription = new Subscription(jobName,status,channel);
+        subscriptions.put(jobName,subscription);
+        status.setListener(subscription);
+        return true;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper classes*/
+
+    private class Subscription implements OlapJobStatus.Listener{
+        private final String jobName;
+        private final OlapJobStatus status;
+        private final Channel channel;
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+
+        Subscription(String jobName,OlapJobStatus status,Channel channel){
+            this.jobName=jobName;
+            this.status=status;
+            this.channel=channel;
+        }
+
+        @Override
+        public void stateChanged(OlapJobStatus jobStatus){
+            if(!channel.isActive()){
+                subscriptions.remove(jobName,this);
+                return;
+            }
+            final boolean[] shouldRemove = {false};
+            OlapMessage.Response response;
+            try{
+                response = OlapSerializationUtils.buildResponse(jobStatus,shouldRemove,jobRegistry.tickTime());
+            }catch(IOException e){
+                LOG.warn("Unable to push the state of job "+jobName+", the client will poll for it",e);
+                return;
+            }
+            if(shouldRemove[0]){
+                // the final state is pushed once, even if it changes again while we're building the response
+                if(!finished.compareAndSet(false,true))
+                    return;
+                subscriptions.remove(jobName,this);
+            }
+            ChannelFuture writeFuture = channel.writeAndFlush(response.toBuilder().setUniqueName(jobName).build());
+            writeFuture.addListener(new ChannelFutureListener(){
+                @Override
+                public void operationComplete(ChannelFuture cf) throws Exception{
+                    if(!cf.isSuccess()){
+                        LOG.warn("Unable to push the state of job "+jobName+", the client will poll for it",cf.cause());
+                    }else if(shouldRemove[0]){
+                        jobRegistry.clear(jobName);
+                    }
+                }
+            });
+        }
+    }
+
+    private class Heartbeat implements Runnable{
+        @Override
+        public void run(){
+            Iterator<Subscription> it = subscriptions.values().iterator();
+            while(it.hasNext()){
+                Subscription subscription = it.next();
+                if(subscription.channel.isActive())
+                    subscription.status.checkState();
+                else
+                    it.remove();
+            }
+        }
+    }
+}
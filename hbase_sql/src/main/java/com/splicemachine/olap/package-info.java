@@ -83,6 +83,16 @@
  * to be compacted would be one option).
  * 6. The server can use failure detector and heartbeat algorithms to detect client death and cancel appropriately.
  *
+ * <h4>Pushed job events</h4>
+ * Waiting for the next STATUS tick adds up to a tick of latency to every job, and long jobs generate a steady stream of
+ * STATUS requests. So each client also keeps one channel open on which it has sent a <em>SUBSCRIBE</em> request,
+ * and names that subscription in its SUBMIT requests. The server then pushes the job's progress and its outcome on
+ * the subscribed channel as soon as they happen, tagged with the job's unique id.
+ *
+ * While the subscribed channel stays open, it serves as the heartbeat for the jobs it watches, and the client only
+ * sends a STATUS request after several ticks without news of a job. Once it closes, the client goes back to polling
+ * at every tick, which also picks up any outcome whose push was lost.
+ *
  * <h4>Dealing with Server death and failover</h4>
  * Asynchronous communication unfortunately adds complexity in handling failure conditions. There are two particular
  * instances where a failure of the OlapServer can be problematic: outright failure and failover to a backup.
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.stream;
+
+import com.splicemachine.compression.SpliceSnappy;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.utils.marshall.EntryDataDecoder;
+import com.splicemachine.derby.utils.marshall.EntryDataHash;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
+import com.splicemachine.storage.EntryEncoder;
+import com.splicemachine.utils.IntArrays;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+
+import java.io.IOException;
+
+/**
+ * A batch of result rows, encoded in the Splice row format, as streamed from the OLAP server when
+ * encoded result streaming is enabled.
+ *
+ * On the wire a batch shares the framing of the Kryo messages (see {@link KryoEncoder}), an int length followed by
+ * the payload, except that the length is negated so the decoder can tell the two apart. The payload is
+ *
+ * <pre>
+ *     byte flags | int rowCount | [int uncompressedLength] | rowCount * (int length | row bytes)
+ * </pre>
+ *
+ * where the rows are optionally Snappy compressed. The receiving side keeps a retained slice of the buffer the
+ * batch arrived in, and decodes each row only when it is consumed; rows which are skipped because of an OFFSET
+ * are never decoded at all. A batch must be {@link #release() released} once it has been consumed or discarded.
+ */
+class EncodedRowBatch {
+    private static final byte COMPRESSED = 0x01;
+    private static final int HEADER_SIZE = 4 + 1 + 4; // frame length, flags, row count
+
+    private ByteBuf payload;
+    private final boolean compressed;
+    private boolean inflated;
+    private int remaining;
+    private byte[] scratch;
+
+    EncodedRowBatch(ByteBuf payload) {
+        this.payload = payload;
+        this.compressed = (payload.readByte() & COMPRESSED) != 0;
+        this.remaining = payload.readInt();
+    }
+
+    /**
+     * @return the number of rows left in this batch
+     */
+    int remaining() {
+        return remaining;
+    }
+
+    /**
+     * Skips the next row without decoding it.
+     */
+    void skip() throws IOException {
+        prepare();
+        payload.skipBytes(payload.readInt());
+        remaining--;
+    }
+
+    /**
+     * Decodes the next row into {@code destination}.
+     */
+    void next(EntryDataDecoder decoder, ExecRow destination) throws IOException, StandardException {
+        prepare();
+        int length = payload.readInt();
+        if (payload.hasArray()) {
+            decoder.set(payload.array(), payload.arrayOffset() + payload.readerIndex(), length);
+        } else {
+            if (scratch == null || scratch.length < length)
+                scratch = new byte[Math.max(length, 2 * (scratch == null ? 64 : scratch.length))];
+            payload.getBytes(payload.readerIndex(), scratch, 0, length);
+            decoder.set(scratch, 0, length);
+        }
+        decoder.decode(destination);
+        payload.skipBytes(length);
+        remaining--;
+    }
+
+    void release() {
+        if (payload != null) {
+            payload.release();
+            payload = null;
+        }
+    }
+
+    /**
+     * Inflates a compressed batch the first time it's read. This happens on the consuming thread rather than on
+     * the network thread, so batches which are never read (e.g. after a LIMIT is reached) are never inflated.
+     */
+    private void prepare() throws IOException {
+        if (!compressed || inflated)
+            return;
+        int uncompressedLength = payload.readInt();
+        byte[] data = new byte[payload.readableBytes()];
+        payload.readBytes(data);
+        payload.release();
+        byte[] rows = SpliceSnappy.uncompress(data);
+        if (rows.length != uncompressedLength)
+            throw new IOException("Corrupt result batch, expected " + uncompressedLength + " bytes but got " + rows.length);
+        payload = Unpooled.wrappedBuffer(rows);
+        inflated = true;
+    }
+
+    /**
+     * Accumulates rows into the next batch to send. Each row's fields are assembled straight into a buffer from
+     * the channel's allocator (through a reused scratch array when the buffer is direct), rather than into a new
+     * array per row, and the buffer is handed to Netty as is, so the batch is not copied again on its way out.
+     */
+    static class Writer {
+        private final ByteBufAllocator allocator;
+        private final boolean compress;
+        private final int initialSize;
+        private EntryDataHash encoder;
+        private ByteBuf buffer;
+        private byte[] scratch;
+        private int rows;
+
+        Writer(ByteBufAllocator allocator, boolean compress, int initialSize) {
+            this.allocator = allocator;
+            this.compress = compress && SpliceSnappy.isInstalled();
+            this.initialSize = initialSize;
+        }
+
+        void add(ExecRow row) throws StandardException, IOException {
+            if (encoder == null) {
+                DescriptorSerializer[] serializers = VersionedSerializers.latestVersion(true).getSerializers(row);
+                encoder = new EntryDataHash(IntArrays.count(row.nColumns()), null, serializers);
+            }
+            if (buffer == null) {
+                buffer = compress ? allocator.heapBuffer(initialSize) : allocator.buffer(initialSize);
+                buffer.writerIndex(compress ? 0 : HEADER_SIZE);
+            }
+            encoder.setRow(row);
+            EntryEncoder entry = encoder.encodeFields();
+            int length = entry.encodedLength();
+            buffer.ensureWritable(4 + length);
+            buffer.writeInt(length);
+            if (buffer.hasArray()) {
+                int start = buffer.arrayOffset() + buffer.writerIndex();
+                entry.encode(buffer.array(), start);
+            } else {
+                if (scratch == null || scratch.length < length)
+                    scratch = new byte[Math.max(length, 2 * (scratch == null ? 64 : scratch.length))];
+                entry.encode(scratch, 0);
+                buffer.setBytes(buffer.writerIndex(), scratch, 0, length);
+            }
+            buffer.writerIndex(buffer.writerIndex() + length);
+            rows++;
+        }
+
+        int size() {
+            return rows;
+        }
+
+        /**
+         * @return the frame for the rows added since the last call, ready to be written to the channel; the
+         * caller takes ownership of the buffer
+         */
+        ByteBuf build() throws IOException {
+            ByteBuf frame;
+            if (compress) {
+                int length = buffer.readableBytes();
+                byte[] compressed = new byte[SpliceSnappy.maxCompressedLength(length)];
+                int compressedLength = SpliceSnappy.compress(buffer.array(), buffer.arrayOffset() + buffer.readerIndex(), length, compressed, 0);
+                buffer.release();
+                frame = allocator.buffer(HEADER_SIZE + 4 + compressedLength);
+                frame.writeInt(-(1 + 4 + 4 + compressedLength));
+                frame.writeByte(COMPRESSED);
+                frame.writeInt(rows);
+                frame.writeInt(length);
+                frame.writeBytes(compressed, 0, compressedLength);
+            } else {
+                frame = buffer;
+                frame.setInt(0, -(frame.writerIndex() - 4));
+                frame.setByte(4, 0);
+                frame.setInt(5, rows);
+            }
+            buffer = null;
+            rows = 0;
+            return frame;
+        }
+
+        void close() throws IOException {
+            if (buffer != null) {
+                buffer.release();
+                buffer = null;
+            }
+            if (encoder != null)
+                encoder.close();
+        }
+    }
+}
@@ -41,6 +41,18 @@ public class KryoDecoder extends ByteToMessageDecoder {
         int len = in.readInt();
 //        LOG.warn("Read lenght " + len);
 
+        if (len < 0) {
+            // an encoded batch of rows, see EncodedRowBatch
+            len = -len;
+            if (in.readableBytes() < len) {
+                in.resetReaderIndex();
+                return;
+            }
+            // hand over a slice of the cumulation buffer rather than a copy, the batch is decoded by the consumer
+            out.add(new EncodedRowBatch(in.readSlice(len).retain()));
+            return;
+        }
+
         if (in.readableBytes() < len) {
 
 //            LOG.warn("Not enough data ");
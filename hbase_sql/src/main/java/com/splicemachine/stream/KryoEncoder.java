@@ -39,6 +39,12 @@ public class KryoEncoder extends MessageToByteEncoder<Object> {
         output = new Output(outStream, 4096);
     }
 
+    @Override
+    public boolean acceptOutboundMessage(Object msg) throws Exception {
+        // encoded row batches are written as ready made frames
+        return !(msg instanceof ByteBuf);
+    }
+
     @Override
     protected void encode(ChannelHandlerContext ctx, Object in, ByteBuf out) throws Exception {
         outStream.reset();
@@ -95,7 +95,8 @@ public class QueryJob implements Callable<Void>{
 
             JavaRDD rdd =  sparkDataSet.rdd;
             StreamableRDD streamableRDD = new StreamableRDD<>(rdd, context, uuid, clientHost, clientPort,
-                    queryRequest.streamingBatches, queryRequest.streamingBatchSize);
+                    queryRequest.streamingBatches, queryRequest.streamingBatchSize,
+                    queryRequest.streamingEncoded, queryRequest.streamingCompressed);
             streamableRDD.setJobStatus(status);
             streamableRDD.submit();
 
@@ -82,7 +82,11 @@ public class RemoteQueryClientImpl implements RemoteQueryClient {
             SConfiguration config = HConfiguration.getConfiguration();
             int streamingBatches = config.getSparkResultStreamingBatches();
             int streamingBatchSize = config.getSparkResultStreamingBatchSize();
+            boolean streamingEncoded = config.getSparkResultStreamingEncoded();
+            boolean streamingCompressed = config.getSparkResultStreamingCompression();
             streamListener = new StreamListener(limit, offset, streamingBatches, streamingBatchSize);
+            if (streamingEncoded)
+                streamListener.setRowTemplate(root.getExecRowDefinition());
             StreamListenerServer server = getServer();
             server.register(streamListener);
             HostAndPort hostAndPort = server.getHostAndPort();
@@ -99,7 +103,7 @@ public class RemoteQueryClientImpl implements RemoteQueryClient {
             String session = hostname + ":" + localPort + "," + sessionId + opUuid;
 
             RemoteQueryJob jobRequest = new RemoteQueryJob(ah, root.getResultSetNumber(), uuid, host, port, session, userId, sql,
-                    streamingBatches, streamingBatchSize);
+                    streamingBatches, streamingBatchSize, streamingEncoded, streamingCompressed);
             olapFuture = EngineDriver.driver().getOlapClient().submit(jobRequest);
             olapFuture.addListener(new Runnable() {
                 @Override
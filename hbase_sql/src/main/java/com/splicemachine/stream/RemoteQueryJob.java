@@ -36,11 +36,14 @@ public class RemoteQueryJob extends DistributedJob {
     String sql;
     int streamingBatches;
     int streamingBatchSize;
+    boolean streamingEncoded;
+    boolean streamingCompressed;
 
 
     public RemoteQueryJob(ActivationHolder ah, int rootResultSetNumber, UUID uuid, String host, int port,
                           String session, String userId, String sql,
-                          int streamingBatches, int streamingBatchSize) {
+                          int streamingBatches, int streamingBatchSize,
+                          boolean streamingEncoded, boolean streamingCompressed) {
         this.ah = ah;
         this.rootResultSetNumber = rootResultSetNumber;
         this.uuid = uuid;
@@ -51,6 +54,8 @@ public class RemoteQueryJob extends DistributedJob {
         this.sql = sql;
         this.streamingBatches = streamingBatches;
         this.streamingBatchSize = streamingBatchSize;
+        this.streamingEncoded = streamingEncoded;
+        this.streamingCompressed = streamingCompressed;
     }
 
     @Override
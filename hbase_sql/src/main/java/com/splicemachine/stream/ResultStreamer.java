@@ -16,6 +16,7 @@ package com.splicemachine.stream;
 
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.derby.stream.ActivationHolder;
 import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.derby.stream.spark.SparkOperationContext;
@@ -61,12 +62,24 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
     private transient CountDownLatch active;
     private int batches;
     private volatile TaskContext taskContext;
+    private boolean encoded;
+    private boolean compressed;
 
     // Serialization
     public ResultStreamer() {
     }
 
     public ResultStreamer(OperationContext<?> context, UUID uuid, String host, int port, int numPartitions, int batches, int batchSize) {
+        this(context, uuid, host, port, numPartitions, batches, batchSize, false, false);
+    }
+
+    /**
+     * @param encoded if true, rows are sent in batches encoded in the Splice row format rather than one at a time
+     *                through Kryo; the rows must be {@link ExecRow}s
+     * @param compressed if true, encoded batches are compressed
+     */
+    public ResultStreamer(OperationContext<?> context, UUID uuid, String host, int port, int numPartitions, int batches, int batchSize,
+                          boolean encoded, boolean compressed) {
         this.context = context;
         this.uuid = uuid;
         this.host = host;
@@ -75,6 +88,8 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
         this.batches = batches;
         this.batchSize = batchSize;
         this.permits = new Semaphore(batches - 1); // we start with one permit taken
+        this.encoded = encoded;
+        this.compressed = compressed;
     }
 
     @Override
@@ -87,9 +102,10 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
             private long consumed;
             private long sent;
             private int currentBatch;
+            private EncodedRowBatch.Writer writer;
 
             @Override
-            public Long call() throws InterruptedException {
+            public Long call() throws Exception {
                 org.apache.spark.TaskContext$.MODULE$.setTaskContext(taskContext);
                 boolean prepared = false;
                 ActivationHolder ah = null;
@@ -98,13 +114,17 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
                     ah.reinitialize(null, false);
                     prepared = true;
                 }
+                if (encoded)
+                    writer = new EncodedRowBatch.Writer(ctx.alloc(), compressed, 64 * 1024);
                 try {
                     while (locatedRowIterator.hasNext()) {
                         T lr = locatedRowIterator.next();
                         consumed++;
 
-
-                        ctx.write(lr, ctx.voidPromise());
+                        if (writer != null)
+                            writer.add((ExecRow) lr);
+                        else
+                            ctx.write(lr, ctx.voidPromise());
                         currentBatch++;
                         sent++;
 
@@ -117,21 +137,34 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
                         consumeOffset();
                     }
                     // Data has been written, request close
+                    writeBatch();
                     ctx.writeAndFlush(new StreamProtocol.RequestClose());
 
                     return consumed;
                 } finally {
+                    if (writer != null)
+                        writer.close();
                     if (prepared)
                         ah.close();
                 }
             }
 
+            /**
+             * When streaming encoded batches, send the rows accumulated so far. This has to happen before anything
+             * else is written to the channel, so the client sees messages in the order the rows were consumed.
+             */
+            private void writeBatch() throws IOException {
+                if (writer != null && writer.size() > 0)
+                    ctx.write(writer.build(), ctx.voidPromise());
+            }
+
             /**
              * If the current batch exceeds the batch size, flush the connection and take a new permit, blocking if the client
              * hasn't had time yet to process previous messages
              */
-            private void flushAndGetPermit() throws InterruptedException {
+            private void flushAndGetPermit() throws InterruptedException, IOException {
                 if (currentBatch >= batchSize) {
+                    writeBatch();
                     ctx.flush();
                     currentBatch = 0;
                     permits.acquire();
@@ -144,8 +177,9 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
              * If the client hast told us to ignore up to 'offset' messages, consume them here. The client request can
              * arrive after we've already sent some messages.
              */
-            private void consumeOffset() {
+            private void consumeOffset() throws IOException {
                 if (consumed < offset) {
+                    writeBatch();
                     long count = 0;
                     while (locatedRowIterator.hasNext() && consumed < offset) {
                         locatedRowIterator.next();
@@ -160,8 +194,9 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
              * If the client told us to send no more than 'limit' messages, check it here
              * @return true if there's a limit and we reached it, false otherwise
              */
-            private boolean checkLimit() {
+            private boolean checkLimit() throws IOException {
                 if (consumed > limit) {
+                    writeBatch();
                     ctx.flush();
                     if (LOG.isTraceEnabled())
                         LOG.trace("Reached limit, stopping. consumed " + consumed + " sent " + sent + " limit " + limit);
@@ -258,6 +293,8 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
                 ", limit=" + limit +
                 ", partition=" + partition +
                 ", batches=" + batches +
+                ", encoded=" + encoded +
+                ", compressed=" + compressed +
                 '}';
     }
 
@@ -273,6 +310,8 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
         out.writeInt(batches);
         out.writeInt(batchSize);
         out.writeObject(permits); // WTF is this?
+        out.writeBoolean(encoded);
+        out.writeBoolean(compressed);
     }
 
     @Override
@@ -285,5 +324,7 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
         batches = in.readInt();
         batchSize = in.readInt();
         permits = (Semaphore) in.readObject();
+        encoded = in.readBoolean();
+        compressed = in.readBoolean();
     }
 }
@@ -14,14 +14,20 @@
 
 package com.splicemachine.stream;
 
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.derby.iapi.sql.olap.OlapResult;
+import com.splicemachine.derby.utils.marshall.EntryDataDecoder;
+import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
 import com.splicemachine.pipeline.Exceptions;
+import com.splicemachine.utils.IntArrays;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import org.apache.log4j.Logger;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
@@ -58,6 +64,8 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
     private volatile Throwable failure;
     private volatile boolean canBlock = true;
     private volatile boolean stopped = false;
+    private ExecRow rowTemplate;
+    private EntryDataDecoder rowDecoder;
 
     StreamListener() {
         this(-1, 0);
@@ -80,6 +88,14 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
         this.uuid = UUID.randomUUID();
     }
 
+    /**
+     * Sets the layout of the rows in the stream, which is needed to decode encoded row batches. Must be set when
+     * the streaming job is submitted with encoded result streaming enabled.
+     */
+    public void setRowTemplate(ExecRow rowTemplate) {
+        this.rowTemplate = rowTemplate;
+    }
+
     public Iterator<T> getIterator() {
         // Initialize first partition
         PartitionState ps = partitionStateMap.putIfAbsent(0, new PartitionState(1, queueSize));
@@ -151,7 +167,7 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
             while (next == null) {
                 PartitionState state = partitionStateMap.get(currentQueue);
                 // We take a message first to make sure we have a connection
-                Object msg = canBlock ? state.messages.take() : state.messages.remove();
+                Object msg = state.batch != null ? state.batch : canBlock ? state.messages.take() : state.messages.remove();
                 if (msg == FAILURE) {
                     // The olap job failed, return right away
                     currentResult = null;
@@ -174,6 +190,7 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
                     // Skip all records already read from the previous run of the task
                     state.next.channel.writeAndFlush(new StreamProtocol.Skip(serverLimit, currentOffset));
                     state.next.initialized = true;
+                    discard(state);
                     state.messages.clear();
                     offset = currentOffset;
 
@@ -209,14 +226,19 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
                         StreamProtocol.Skipped skipped = (StreamProtocol.Skipped) msg;
                         offset -= skipped.skipped;
                         state.readTotal += skipped.skipped;
+                    } else if (msg instanceof EncodedRowBatch && ((EncodedRowBatch) msg).remaining() == 0) {
+                        ((EncodedRowBatch) msg).release();
+                        continue;
                     } else if (offset > 0) {
                         // We still have to ignore 'offset' messages
+                        if (msg instanceof EncodedRowBatch)
+                            nextRow(state, (EncodedRowBatch) msg, true);
                         offset--;
                         state.consumed++;
                         state.readTotal++;
                     } else {
                         // We are returning a message
-                        next = (T) msg;
+                        next = (T) (msg instanceof EncodedRowBatch ? nextRow(state, (EncodedRowBatch) msg, false) : msg);
                         state.consumed++;
                         state.readTotal++;
                         // Check the limit
@@ -239,6 +261,51 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
             currentResult = next;
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
+        } catch (IOException | StandardException e) {
+            Exceptions.throwAsRuntime(Exceptions.parseException(e));
+        }
+    }
+
+    /**
+     * Reads the next row of an encoded batch, decoding it unless it's being skipped. The batch stays current for
+     * its partition until all its rows have been read, and is released afterwards.
+     */
+    private ExecRow nextRow(PartitionState state, EncodedRowBatch batch, boolean skip) throws IOException, StandardException {
+        ExecRow row = null;
+        if (skip) {
+            batch.skip();
+        } else {
+            if (rowDecoder == null) {
+                assert rowTemplate != null : "Received an encoded row batch without a row template";
+                rowDecoder = new EntryDataDecoder(IntArrays.count(rowTemplate.nColumns()), null,
+                        VersionedSerializers.latestVersion(true).getSerializers(rowTemplate));
+            }
+            row = rowTemplate.getNewNullRow();
+            batch.next(rowDecoder, row);
+        }
+        if (batch.remaining() > 0) {
+            state.batch = batch;
+        } else {
+            state.batch = null;
+            batch.release();
+        }
+        return row;
+    }
+
+    /**
+     * Drops the encoded batches pending for a partition, releasing their buffers. Control messages are kept.
+     */
+    private static void discard(PartitionState state) {
+        if (state.batch != null) {
+            state.batch.release();
+            state.batch = null;
+        }
+        for (Iterator<Object> it = state.messages.iterator(); it.hasNext(); ) {
+            Object msg = it.next();
+            if (msg instanceof EncodedRowBatch) {
+                ((EncodedRowBatch) msg).release();
+                it.remove();
+            }
         }
     }
 
@@ -246,6 +313,8 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
         PartitionState ps = partitionStateMap.remove(currentQueue);
         if (ps != null && ps.channel != null)
             partitionMap.remove(ps.channel);
+        if (ps != null)
+            discard(ps);
     }
 
     /**
@@ -328,6 +397,9 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
         for (Channel channel : partitionMap.keySet()) {
             channel.closeFuture(); // don't wait synchronously, no need
         }
+        for (PartitionState state : partitionStateMap.values()) {
+            discard(state);
+        }
         Exception lastException = null;
         synchronized (closeables) {
             for (AutoCloseable c : closeables) {
@@ -401,6 +473,7 @@ class PartitionState {
     int partition;
     Channel channel;
     ArrayBlockingQueue<Object> messages;
+    EncodedRowBatch batch; // encoded batch being read, if any
     long consumed;
     long readTotal;
     boolean initialized;
@@ -55,6 +55,8 @@ public class StreamableRDD<T> {
     private final int clientBatches;
     private final UUID uuid;
     private final OperationContext<?> context;
+    private final boolean encoded;
+    private final boolean compressed;
     private OlapStatus jobStatus;
 
 
@@ -63,6 +65,11 @@ public class StreamableRDD<T> {
     }
 
     public StreamableRDD(JavaRDD<T> rdd, OperationContext<?> context, UUID uuid, String clientHost, int clientPort, int batches, int batchSize) {
+        this(rdd, context, uuid, clientHost, clientPort, batches, batchSize, false, false);
+    }
+
+    public StreamableRDD(JavaRDD<T> rdd, OperationContext<?> context, UUID uuid, String clientHost, int clientPort, int batches, int batchSize,
+                         boolean encoded, boolean compressed) {
         this.rdd = rdd;
         this.context = context;
         this.uuid = uuid;
@@ -72,12 +79,14 @@ public class StreamableRDD<T> {
         completionService = new ExecutorCompletionService<>(executor);
         this.clientBatchSize = batchSize;
         this.clientBatches = batches;
+        this.encoded = encoded;
+        this.compressed = compressed;
     }
 
     public void submit() throws Exception {
         Exception error = null;
         try {
-            final JavaRDD<String> streamed = rdd.mapPartitionsWithIndex(new ResultStreamer(context, uuid, host, port, rdd.getNumPartitions(), clientBatches, clientBatchSize), true);
+            final JavaRDD<String> streamed = rdd.mapPartitionsWithIndex(new ResultStreamer(context, uuid, host, port, rdd.getNumPartitions(), clientBatches, clientBatchSize, encoded, compressed), true);
             int numPartitions = streamed.getNumPartitions();
             int partitionsBatchSize = PARALLEL_PARTITIONS / 2;
             int partitionBatches = numPartitions / partitionsBatchSize;
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.compactions;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.stats.ColumnStatisticsImpl;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.catalog.SYSCOLUMNSTATISTICSRowFactory;
+import com.splicemachine.db.impl.sql.catalog.SYSTABLESTATISTICSRowFactory;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.SITableScanner;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.storage.DataCell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CompactionStatisticsCollectorTest {
+    private static final long CONGLOM_ID = 1616L;
+    private static final String PARTITION_ID = "region-1";
+
+    private CompactionStatisticsCollector.BufferedRowScanner rowScanner;
+    private SITableScanner scanner;
+    private List<String> scannedRows;
+
+    @Before
+    public void setUp() throws Exception {
+        rowScanner = new CompactionStatisticsCollector.BufferedRowScanner(null);
+        scanner = mock(SITableScanner.class);
+        scannedRows = new ArrayList<>();
+        // decodes each row as (number of cells, row key), and hides the rows of key "hidden"
+        when(scanner.next()).thenAnswer(new Answer<ExecRow>() {
+            @Override
+            public ExecRow answer(InvocationOnMock invocation) throws Throwable {
+                List<DataCell> cells = rowScanner.next(-1);
+                if (cells.isEmpty())
+                    return null;
+                String key = Bytes.toString(cells.get(0).key());
+                scannedRows.add(key);
+                if ("hidden".equals(key))
+                    return null;
+                return row(new SQLInteger(cells.size()), new SQLVarchar(key));
+            }
+        });
+    }
+
+    @Test
+    public void collectsVisibleRows() throws Exception {
+        CompactionStatisticsCollector collector = collector();
+        collector.add(cell("a", 1));
+        collector.add(cell("a", 2));
+        collector.add(cell("hidden", 1));
+        collector.add(cell("b", 1));
+        collector.collectCurrentRow();
+        Assert.assertEquals("Cells should be grouped by row", 3, scannedRows.size());
+
+        List<ExecRow> statsRows = collector.statisticsRows();
+        Assert.assertEquals("Expected a row per column and one for the table", 3, statsRows.size());
+
+        ColumnStatisticsImpl cellCounts = columnStatistics(statsRows.get(0), 4);
+        Assert.assertEquals("Hidden rows should not be counted", 2, cellCounts.notNullCount());
+        Assert.assertEquals(2, cellCounts.cardinality());
+        ColumnStatisticsImpl keys = columnStatistics(statsRows.get(1), 7);
+        Assert.assertEquals(2, keys.notNullCount());
+
+        ExecRow tableRow = statsRows.get(2);
+        Assert.assertEquals(SYSTABLESTATISTICSRowFactory.SYSTABLESTATISTICS_COLUMN_COUNT, tableRow.nColumns());
+        Assert.assertEquals(CONGLOM_ID, tableRow.getColumn(SYSTABLESTATISTICSRowFactory.CONGLOMID).getLong());
+        Assert.assertEquals(PARTITION_ID, tableRow.getColumn(SYSTABLESTATISTICSRowFactory.PARTITIONID).getString());
+        Assert.assertEquals(2L, tableRow.getColumn(SYSTABLESTATISTICSRowFactory.ROWCOUNT).getLong());
+        Assert.assertEquals(SYSTABLESTATISTICSRowFactory.REGULAR_NONMERGED_STATS,
+                tableRow.getColumn(SYSTABLESTATISTICSRowFactory.STATSTYPE).getInt());
+    }
+
+    @Test
+    public void emptyRegionHasEmptyStatistics() throws Exception {
+        List<ExecRow> statsRows = collector().statisticsRows();
+        Assert.assertEquals("Expected a row per column and one for the table", 3, statsRows.size());
+        Assert.assertEquals(0, columnStatistics(statsRows.get(0), 4).notNullCount());
+        Assert.assertEquals(0, columnStatistics(statsRows.get(1), 7).notNullCount());
+        Assert.assertEquals(0L, statsRows.get(2).getColumn(SYSTABLESTATISTICSRowFactory.ROWCOUNT).getLong());
+    }
+
+    @Test
+    public void stopsCollectingAfterFailure() throws Exception {
+        when(scanner.next()).thenThrow(new RuntimeException("decoding failed"));
+        CompactionStatisticsCollector collector = collector();
+        collector.add(cell("a", 1));
+        collector.add(cell("b", 1));
+        // the failed row is dropped, and later cells are ignored
+        collector.add(cell("c", 1));
+        collector.add(cell("d", 1));
+        collector.collectCurrentRow();
+        Assert.assertEquals(0L, collector.statisticsRows().get(2).getColumn(SYSTABLESTATISTICSRowFactory.ROWCOUNT).getLong());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private CompactionStatisticsCollector collector() {
+        return new CompactionStatisticsCollector(CONGLOM_ID, PARTITION_ID, mock(Txn.class), scanner, rowScanner,
+                new int[]{4, 7}, row(new SQLInteger(), new SQLVarchar()));
+    }
+
+    private static ColumnStatisticsImpl columnStatistics(ExecRow statsRow, int columnId) throws StandardException {
+        Assert.assertEquals(SYSCOLUMNSTATISTICSRowFactory.SYSCOLUMNSTATISTICS_COLUMN_COUNT, statsRow.nColumns());
+        Assert.assertEquals(PARTITION_ID, statsRow.getColumn(SYSCOLUMNSTATISTICSRowFactory.PARTITIONID).getString());
+        Assert.assertEquals(columnId, statsRow.getColumn(SYSCOLUMNSTATISTICSRowFactory.COLUMNID).getInt());
+        return (ColumnStatisticsImpl) statsRow.getColumn(SYSCOLUMNSTATISTICSRowFactory.DATA).getObject();
+    }
+
+    private static KeyValue cell(String row, long timestamp) {
+        return new KeyValue(Bytes.toBytes(row), SIConstants.DEFAULT_FAMILY_BYTES, SIConstants.PACKED_COLUMN_BYTES,
+                timestamp, Bytes.toBytes(timestamp));
+    }
+
+    private static ExecRow row(SQLInteger count, SQLVarchar key) {
+        ExecRow row = new ValueRow(2);
+        row.setColumn(1, count);
+        row.setColumn(2, key);
+        return row;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.hbase;
+
+import com.splicemachine.access.HConfiguration;
+import com.splicemachine.access.api.SConfiguration;
+import com.splicemachine.access.configuration.StatsConfiguration;
+import com.splicemachine.db.impl.sql.catalog.SYSTABLESTATISTICSRowFactory;
+import com.splicemachine.derby.test.framework.SpliceSchemaWatcher;
+import com.splicemachine.derby.test.framework.SpliceWatcher;
+import com.splicemachine.homeless.TestUtils;
+import com.splicemachine.test.SerialTest;
+import com.splicemachine.test.SlowTest;
+import com.splicemachine.test_tools.TableCreator;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.ConnectionFactory;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.RuleChain;
+import org.junit.rules.TestRule;
+import org.junit.rules.Timeout;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import static com.splicemachine.test_tools.Rows.row;
+import static com.splicemachine.test_tools.Rows.rows;
+
+/**
+ * Major compactions refresh the non-merged statistics of the regions they compact, when the table enables
+ * splice.statistics.collectOnMajorCompaction in its HBase table configuration.
+ */
+@Category({SerialTest.class,SlowTest.class})
+public class CompactionStatisticsIT {
+    private static final String SCHEMA = CompactionStatisticsIT.class.getSimpleName().toUpperCase();
+    private static final SpliceWatcher spliceClassWatcher = new SpliceWatcher(SCHEMA);
+    private static final SpliceSchemaWatcher spliceSchemaWatcher = new SpliceSchemaWatcher(SCHEMA);
+
+    private static final String TABLE = "T";
+
+    @ClassRule
+    public static TestRule chain = RuleChain.outerRule(spliceClassWatcher)
+            .around(spliceSchemaWatcher);
+
+    @Rule
+    public final SpliceWatcher methodWatcher = new SpliceWatcher(SCHEMA);
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(120);
+
+    @BeforeClass
+    public static void createTables() throws Exception {
+        new TableCreator(spliceClassWatcher.getOrCreateConnection())
+                .withCreate("create table " + TABLE + " (a int, b int)")
+                .withInsert("insert into " + TABLE + " (a, b) values (?, ?)")
+                .withRows(rows(row(1, 1), row(2, 2), row(3, 3), row(4, 4),
+                        row(5, 5), row(6, 6), row(7, 7), row(8, 8)))
+                .create();
+        enableCollectionOnMajorCompaction(TABLE);
+    }
+
+    @Test
+    public void majorCompactionRefreshesAnalyzedRegion() throws Exception {
+        Connection conn = methodWatcher.getOrCreateConnection();
+        try (PreparedStatement ps = conn.prepareStatement("analyze table " + TABLE)) {
+            ps.execute();
+        }
+        assertStatistics(conn, 8, 0);
+
+        // change the table without analyzing it again
+        try (PreparedStatement ps = conn.prepareStatement("insert into " + TABLE + " (a) select a + 8 from " + TABLE)) {
+            ps.execute();
+        }
+        try (PreparedStatement ps = conn.prepareStatement("delete from " + TABLE + " where a <= 2")) {
+            ps.execute();
+        }
+        assertStatistics(conn, 8, 0);
+
+        try (CallableStatement cs = conn.prepareCall("call SYSCS_UTIL.SYSCS_FLUSH_TABLE(?,?)")) {
+            cs.setString(1, SCHEMA);
+            cs.setString(2, TABLE);
+            cs.execute();
+        }
+        try (CallableStatement cs = conn.prepareCall("call SYSCS_UTIL.SYSCS_PERFORM_MAJOR_COMPACTION_ON_TABLE(?,?)")) {
+            cs.setString(1, SCHEMA);
+            cs.setString(2, TABLE);
+            cs.execute();
+        }
+
+        // the statistics are written once the compacted file is, which the procedure doesn't wait for
+        long deadline = System.currentTimeMillis() + 60000;
+        while (rowCount(conn) != 14 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(500);
+        }
+        assertStatistics(conn, 14, 8);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static void enableCollectionOnMajorCompaction(String table) throws Exception {
+        SConfiguration config = HConfiguration.getConfiguration();
+        TableName tn = TableName.valueOf(config.getNamespace(),
+                Long.toString(TestUtils.baseTableConglomerateId(spliceClassWatcher.getOrCreateConnection(), SCHEMA, table)));
+        try (org.apache.hadoop.hbase.client.Connection conn = ConnectionFactory.createConnection(HConfiguration.unwrapDelegate());
+             Admin admin = conn.getAdmin()) {
+            HTableDescriptor descriptor = admin.getTableDescriptor(tn);
+            descriptor.setConfiguration(StatsConfiguration.COLLECT_ON_MAJOR_COMPACTION, "true");
+            admin.modifyTable(tn, descriptor);
+            // the regions pick the setting up as they reopen
+            long deadline = System.currentTimeMillis() + 60000;
+            while (admin.getAlterStatus(tn).getFirst() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    private static void assertStatistics(Connection conn, long expectedRows, long expectedNullsInB) throws Exception {
+        Assert.assertEquals("Incorrect row count!", expectedRows, rowCount(conn));
+        try (PreparedStatement ps = conn.prepareStatement("select null_count from sys.syscolumnstatistics " +
+                "where schemaname = ? and tablename = ? and columnname = 'B'")) {
+            ps.setString(1, SCHEMA);
+            ps.setString(2, TABLE);
+            try (ResultSet rs = ps.executeQuery()) {
+                Assert.assertTrue("No column statistics!", rs.next());
+                Assert.assertEquals("Incorrect null count!", expectedNullsInB, rs.getLong(1));
+            }
+        }
+    }
+
+    private static long rowCount(Connection conn) throws Exception {
+        try (PreparedStatement ps = conn.prepareStatement("select total_row_count, stats_type from sys.systablestatistics " +
+                "where schemaname = ? and tablename = ?")) {
+            ps.setString(1, SCHEMA);
+            ps.setString(2, TABLE);
+            try (ResultSet rs = ps.executeQuery()) {
+                Assert.assertTrue("No table statistics!", rs.next());
+                Assert.assertEquals("Region statistics should stay non-merged",
+                        SYSTABLESTATISTICSRowFactory.REGULAR_NONMERGED_STATS, rs.getInt(2));
+                long rowCount = rs.getLong(1);
+                Assert.assertFalse("More than one row returned!", rs.next());
+                return rowCount;
+            }
+        }
+    }
+}
@@ -84,6 +84,20 @@ public class OlapClientTest {
         Assert.assertEquals(13, result.order);
     }
 
+    @Test
+    public void completionIsPushedTest() throws Exception {
+        // the first submission subscribes the client to job events, give it time to be acknowledged
+        olapClient.execute(new DumbDistributedJob(0,1));
+        Thread.sleep(500);
+
+        long start = System.currentTimeMillis();
+        DumbOlapResult result = olapClient.execute(new DumbDistributedJob(2500,2));
+        long elapsed = System.currentTimeMillis() - start;
+        Assert.assertEquals(2, result.order);
+        // by polling alone, we'd only learn of the completion with the status request 3 ticks after submission
+        assertTrue("Job took " + elapsed + " ms", elapsed < 2900);
+    }
+
     @Test
     public void manyFastJobsTest() throws Exception {
         int sleep = 0;
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.stream;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.stream.BaseStreamTest;
+import com.splicemachine.derby.utils.marshall.EntryDataDecoder;
+import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
+import com.splicemachine.utils.IntArrays;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EncodedRowBatchTest extends BaseStreamTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        assertRoundTrip(false);
+    }
+
+    @Test
+    public void testCompressedRoundTrip() throws Exception {
+        // falls back to uncompressed batches when Snappy isn't available
+        assertRoundTrip(true);
+    }
+
+    @Test
+    public void testKryoMessagesStillDecoded() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new KryoEncoder(), new KryoDecoder());
+        channel.writeOutbound(new StreamProtocol.Skipped(42));
+        ByteBuf frame = (ByteBuf) channel.readOutbound();
+        channel.writeInbound(frame);
+        StreamProtocol.Skipped skipped = (StreamProtocol.Skipped) channel.readInbound();
+        assertEquals(42, skipped.skipped);
+    }
+
+    private void assertRoundTrip(boolean compress) throws Exception {
+        EncodedRowBatch.Writer writer = new EncodedRowBatch.Writer(UnpooledByteBufAllocator.DEFAULT, compress, 16);
+        ExecRow template = row(new SQLInteger(), new SQLVarchar());
+        for (int i = 0; i < 100; i++) {
+            // every tenth row has a null string
+            writer.add(row(new SQLInteger(i), i % 10 == 0 ? new SQLVarchar() : new SQLVarchar("row" + i)));
+        }
+        assertEquals(100, writer.size());
+        ByteBuf frame = writer.build();
+        assertEquals(0, writer.size());
+        writer.close();
+
+        // the frame goes through the same decoder as the Kryo messages
+        EmbeddedChannel channel = new EmbeddedChannel(new KryoDecoder());
+        channel.writeInbound(frame);
+        EncodedRowBatch batch = (EncodedRowBatch) channel.readInbound();
+        assertNull("Unexpected message", channel.readInbound());
+
+        EntryDataDecoder decoder = new EntryDataDecoder(IntArrays.count(template.nColumns()), null,
+                VersionedSerializers.latestVersion(true).getSerializers(template));
+        assertEquals(100, batch.remaining());
+        for (int i = 0; i < 100; i++) {
+            if (i % 3 == 0) {
+                batch.skip();
+                continue;
+            }
+            ExecRow row = template.getNewNullRow();
+            batch.next(decoder, row);
+            assertEquals(i, row.getColumn(1).getInt());
+            if (i % 10 == 0)
+                assertTrue("Expected null", row.getColumn(2).isNull());
+            else
+                assertEquals("row" + i, row.getColumn(2).getString());
+        }
+        assertEquals(0, batch.remaining());
+        batch.release();
+        decoder.close();
+    }
+
+    private static ExecRow row(SQLInteger i, SQLVarchar s) {
+        ValueRow row = new ValueRow(2);
+        row.setColumn(1, i);
+        row.setColumn(2, s);
+        return row;
+    }
+}
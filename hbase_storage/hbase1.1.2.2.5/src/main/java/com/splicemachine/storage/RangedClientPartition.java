@@ -299,6 +299,12 @@ public class RangedClientPartition implements Partition, Comparable<RangedClient
         return delegate.getLatest(key, previous);
     }
 
+    @Override
+    public DataResult[] batchGetLatest(List<byte[]> sortedKeys) throws IOException {
+        return delegate.batchGetLatest(sortedKeys);
+    }
+
+
     @Override
     public DataResult getLatest(byte[] rowKey, byte[] family, DataResult previous) throws IOException {
         return delegate.getLatest(rowKey, family, previous);
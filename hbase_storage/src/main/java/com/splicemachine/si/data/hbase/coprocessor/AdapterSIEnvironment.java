@@ -121,7 +121,8 @@ public class AdapterSIEnvironment implements SIEnvironment{
         this.txnStore = new CoprocessorTxnStore(txnNetworkLayerFactory,timestampSource,null);
         int completedTxnCacheSize = config.getCompletedTxnCacheSize();
         int completedTxnConcurrency = config.getCompletedTxnConcurrency();
-        this.txnSupplier = new CompletedTxnCacheSupplier(txnStore,completedTxnCacheSize,completedTxnConcurrency);
+        int txnStatusCacheSize = config.getTxnStatusCacheSize();
+        this.txnSupplier = new CompletedTxnCacheSupplier(txnStore,completedTxnCacheSize,completedTxnConcurrency,txnStatusCacheSize);
         this.txnStore.setCache(txnSupplier);
         this.opFactory =HOperationFactory.INSTANCE;
         this.txnOpFactory = new SimpleTxnOperationFactory(exceptionFactory(),opFactory);
@@ -152,7 +153,8 @@ public class AdapterSIEnvironment implements SIEnvironment{
         this.txnStore = new CoprocessorTxnStore(txnNetworkLayerFactory,timestampSource,null);
         int completedTxnCacheSize = config.getCompletedTxnCacheSize();
         int completedTxnConcurrency = config.getCompletedTxnConcurrency();
-        this.txnSupplier = new CompletedTxnCacheSupplier(txnStore,completedTxnCacheSize,completedTxnConcurrency);
+        int txnStatusCacheSize = config.getTxnStatusCacheSize();
+        this.txnSupplier = new CompletedTxnCacheSupplier(txnStore,completedTxnCacheSize,completedTxnConcurrency,txnStatusCacheSize);
         this.txnStore.setCache(txnSupplier);
         this.opFactory =HOperationFactory.INSTANCE;
         this.txnOpFactory = new SimpleTxnOperationFactory(exceptionFactory(),opFactory);
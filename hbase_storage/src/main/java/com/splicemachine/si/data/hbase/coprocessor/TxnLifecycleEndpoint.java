@@ -23,6 +23,7 @@ import com.google.protobuf.Service;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.apache.hadoop.hbase.Coprocessor;
 import org.apache.hadoop.hbase.CoprocessorEnvironment;
+import org.apache.hadoop.hbase.HRegionInfo;
 import org.apache.hadoop.hbase.coprocessor.CoprocessorService;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
 import org.apache.hadoop.hbase.ipc.RpcServer;
@@ -39,6 +40,7 @@ import com.splicemachine.hbase.ZkUtils;
 import com.splicemachine.si.api.txn.lifecycle.TxnLifecycleStore;
 import com.splicemachine.si.api.txn.lifecycle.TxnPartition;
 import com.splicemachine.si.coprocessor.TxnMessage;
+import com.splicemachine.si.impl.TxnUtils;
 import com.splicemachine.si.impl.data.StripedTxnLifecycleStore;
 import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.si.impl.region.RegionServerControl;
@@ -57,6 +59,7 @@ public class TxnLifecycleEndpoint extends TxnMessage.TxnLifecycleService impleme
     private static final Logger LOG=Logger.getLogger(TxnLifecycleEndpoint.class);
 
     private TxnLifecycleStore lifecycleStore;
+    private HRegionInfo regionInfo;
     private volatile boolean isTxnTable=false;
 
     public static final CountedReference<TransactionResolver> resolverRef=new CountedReference<>(new Supplier<TransactionResolver>(){
@@ -93,6 +96,7 @@ public class TxnLifecycleEndpoint extends TxnMessage.TxnLifecycleService impleme
                 int txnLockStrips = configuration.getTransactionLockStripes();
                 lifecycleStore = new StripedTxnLifecycleStore(txnLockStrips,regionStore,
                         new RegionServerControl(region,rce.getRegionServerServices()),timestampSource);
+                regionInfo=region.getRegionInfo();
                 isTxnTable=true;
             }
         } catch (Throwable t) {
@@ -194,6 +198,29 @@ public class TxnLifecycleEndpoint extends TxnMessage.TxnLifecycleService impleme
         }
     }
 
+    @Override
+    public void getTransactions(RpcController controller,TxnMessage.TxnListRequest request,RpcCallback<TxnMessage.TxnListResponse> done){
+        try (RpcUtils.RootEnv env = RpcUtils.getRootEnv()) {
+            TxnMessage.TxnListResponse.Builder response=TxnMessage.TxnListResponse.newBuilder();
+            int count=request.getTxnIdsCount();
+            for(int i=0;i<count;i++){
+                long txnId=request.getTxnIds(i);
+                if(!regionInfo.containsRow(TxnUtils.getRowKey(txnId))){
+                    /*
+                     * The client groups the transactions by the region it believes holds them, which may be
+                     * out of date (e.g. the region has split). Let it look these up separately.
+                     */
+                    response.addNotServedTxnIds(txnId);
+                    continue;
+                }
+                response.addTxns(lifecycleStore.getTransaction(txnId));
+            }
+            done.run(response.build());
+        }catch(IOException ioe){
+            ResponseConverter.setControllerException(controller,ioe);
+        }
+    }
+
     @Override
     public void getTaskId(RpcController controller,TxnMessage.TxnRequest request,RpcCallback<TxnMessage.TaskId> done){
         try (RpcUtils.RootEnv env = RpcUtils.getRootEnv()) {
@@ -12,169 +12,118 @@
  * If not, see <http://www.gnu.org/licenses/>.
  *
  */
-
 package com.splicemachine.si.data.hbase.rollforward;
 
 import com.splicemachine.access.api.SConfiguration;
+import com.splicemachine.concurrent.SystemClock;
 import com.splicemachine.si.api.rollforward.RollForward;
-import com.splicemachine.si.api.txn.Txn;
 import com.splicemachine.si.api.txn.TxnSupplier;
-import com.splicemachine.si.api.txn.TxnView;
-import com.splicemachine.si.impl.readresolve.SynchronousReadResolver;
 import com.splicemachine.storage.Partition;
 import com.splicemachine.utils.ByteSlice;
-import org.apache.log4j.Logger;
 import org.spark_project.guava.util.concurrent.ThreadFactoryBuilder;
 
-import java.io.IOException;
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Rolls forward rows written on this region server, and rows found unresolved by readers, using a
+ * {@link RegionResolutionScheduler}.
+ * <p/>
+ * The "first queue" metrics refer to the first resolution attempt of a row, and the "second queue" metrics
+ * to the retry of rows whose transaction was still active on the first attempt.
+ */
 public class HBaseRollForward implements RollForward {
-    private static final Logger LOG = Logger.getLogger(HBaseRollForward.class);
-
-    private final ArrayBlockingQueue<RFEvent> firstQueue;
-    private final ArrayBlockingQueue<RFEvent> secondQueue;
-    private final ExecutorService serviceFirst;
-    private final ExecutorService serviceSecond;
-    private final TxnSupplier supplier;
-    private final int firstThreads;
-    private final int secondThreads;
-    private final RollForwarder firstProcessor;
-    private final RollForwarder secondProcessor;
-
-    private final LongAdder firstResolutions;
-    private final LongAdder firstActive;
-    private final LongAdder secondResolutions;
-    private final LongAdder secondActive;
-
+    private final RegionResolutionScheduler scheduler;
+    private final ExecutorService service;
+    private final int threads;
 
     public HBaseRollForward(TxnSupplier supplier, SConfiguration config) {
-
-        this.firstQueue = new ArrayBlockingQueue<>(config.getRollforwardQueueSize());
-        this.secondQueue = new ArrayBlockingQueue<>(config.getRollforwardQueueSize());
-        this.firstThreads = config.getRollforwardFirstThreads();
-        this.secondThreads = config.getRollforwardSecondThreads();
-
-        this.serviceFirst = Executors.newFixedThreadPool(firstThreads,
+        this.threads = config.getRollforwardFirstThreads() + config.getRollforwardSecondThreads();
+        this.service = Executors.newFixedThreadPool(threads,
                 new ThreadFactoryBuilder().setDaemon(true).setNameFormat("WritesRollforward-%d").build());
-        this.serviceSecond = Executors.newFixedThreadPool(secondThreads,
-                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("WritesRollforward-retry-%d").build());
-        this.supplier = supplier;
-        this.firstResolutions = new LongAdder();
-        this.secondResolutions = new LongAdder();
-        this.firstActive = new LongAdder();
-        this.secondActive = new LongAdder();
-        this.firstProcessor = new RollForwarder(firstQueue, secondQueue, config.getRollforwardFirstWait(), firstResolutions, firstActive);
-        this.secondProcessor = new RollForwarder(secondQueue, null, config.getRollforwardSecondWait(), secondResolutions, secondActive);
+        this.scheduler = new RegionResolutionScheduler(supplier,
+                config.getRollforwardFirstWait(),
+                config.getRollforwardSecondWait(),
+                config.getRollforwardMaxPendingRows(),
+                config.getRollforwardBatchSize(),
+                SystemClock.INSTANCE);
     }
 
     public void start() {
-        for (int i = 0; i < firstThreads; ++i) {
-            this.serviceFirst.submit(firstProcessor);
-        }
-        for (int i = 0; i < secondThreads; ++i) {
-            this.serviceSecond.submit(secondProcessor);
+        for (int i = 0; i < threads; ++i) {
+            this.service.submit(new Runnable() {
+                @Override
+                public void run() {
+                    scheduler.runWorker();
+                }
+            });
         }
     }
 
     @Override
     public void submitForResolution(Partition partition, long txnId, List<ByteSlice> rowKeys) {
-        firstQueue.offer(new RFEvent(partition, rowKeys, txnId, System.currentTimeMillis()));
+        scheduler.submit(partition, txnId, rowKeys);
     }
 
-
-    private class RollForwarder implements Runnable{
-        private BlockingQueue<RFEvent> in;
-        private BlockingQueue<RFEvent> out;
-        private int timeout;
-        private LongAdder resolutions;
-        private LongAdder active;
-
-        RollForwarder(BlockingQueue<RFEvent> in, BlockingQueue<RFEvent> out, int timeout, LongAdder resolutions, LongAdder active) {
-            this.in = in;
-            this.out = out;
-            this.timeout = timeout;
-            this.resolutions = resolutions;
-            this.active = active;
-        }
-
-        @Override
-        public void run() {
-            while(true) {
-                try {
-                    RFEvent event = in.take();
-                    long current = System.currentTimeMillis();
-                    long diff = current - event.getTimestamp();
-                    if (diff < timeout) {
-                        Thread.sleep(timeout - diff);
-                    }
-
-                    TxnView txn = supplier.getTransaction(event.getTxnId());
-                    Txn.State state = txn.getEffectiveState();
-                    if(state.isFinal()) {
-                        resolutions.add(event.getKeys().size());
-                        if (state == Txn.State.ROLLEDBACK) {
-                            for (ByteSlice bs : event.getKeys()) {
-                                SynchronousReadResolver.INSTANCE.resolveRolledback(
-                                        event.getPartition(), bs, event.getTxnId(), false);
-                            }
-                        } else if (state == Txn.State.COMMITTED) {
-                            for (ByteSlice bs : event.getKeys()) {
-                                SynchronousReadResolver.INSTANCE.resolveCommitted(
-                                        event.getPartition(), bs, event.getTxnId(), txn.getEffectiveCommitTimestamp(), false);
-                            }
-                        }
-                    } else {
-                        active.add(event.getKeys().size());
-                        if (out != null) {
-                            out.offer(event);
-                        }
-                    }
-                } catch (IOException e) {
-                    LOG.warn("Error while trying to roll forward writes", e);
-                } catch (InterruptedException e) {
-                    // Interrupted, we should exit
-                    LOG.error("Interrupted, stopping roll foward thread", e);
-                    break;
-                }
-            }
-        }
+    @Override
+    public boolean submitForReadResolution(Partition partition, long txnId, ByteSlice rowKey) {
+        return scheduler.submitRead(partition, txnId, rowKey);
     }
 
-
     @Override
     public int getFirstQueueSize() {
-        return firstQueue.size();
+        return scheduler.getFirstPending();
     }
 
     @Override
     public int getSecondQueueSize() {
-        return secondQueue.size();
+        return scheduler.getSecondPending();
     }
 
-
     @Override
     public long getFirstQueueResolutions() {
-        return firstResolutions.longValue();
+        return scheduler.getFirstResolutions();
     }
 
     @Override
     public long getSecondQueueResolutions() {
-        return secondResolutions.longValue();
+        return scheduler.getSecondResolutions();
     }
 
     @Override
     public long getFirstQueueActive() {
-        return firstActive.longValue();
+        return scheduler.getFirstActive();
     }
 
     @Override
     public long getSecondQueueActive() {
-        return secondActive.longValue();
+        return scheduler.getSecondActive();
+    }
+
+    @Override
+    public long getRejectedResolutions() {
+        return scheduler.getRejected();
+    }
+
+    @Override
+    public long getSubmitWaitTime() {
+        return scheduler.getSubmitWaitMillis();
+    }
+
+    @Override
+    public Map<String, Integer> getRegionQueueDepths() {
+        return scheduler.getRegionQueueDepths();
+    }
+
+    @Override
+    public Map<String, Long> getRegionResolutionLatencies() {
+        return scheduler.getRegionResolutionLatencies();
+    }
+
+    @Override
+    public Map<String, Long> getRegionUnresolvedReads() {
+        return scheduler.getRegionUnresolvedReads();
     }
 }
@@ -0,0 +1,591 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.si.data.hbase.rollforward;
+
+import com.splicemachine.concurrent.Clock;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.readresolve.SynchronousReadResolver;
+import com.splicemachine.storage.Partition;
+import com.splicemachine.utils.ByteSlice;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Schedules the resolution (roll forward) of rows written by transactions which have since completed.
+ * <p/>
+ * Work is kept per region, and within a region it is coalesced by transaction, so that the state of each
+ * transaction is only looked up once and all of the rows a region holds for a batch of transactions are
+ * resolved with a single {@code batchMutate}. Regions are served in order of how many unresolved rows
+ * readers have been hitting in them, and then by age.
+ * <p/>
+ * The number of rows waiting for their first resolution attempt is bounded. Writers which find the scheduler full
+ * wait for room, in chunks of at most a batch, for as long as it takes. They submit once they have released their
+ * row locks, and only wait for workers to pick up work, which the workers do before writing anything, so a waiting
+ * writer never holds locks the resolution writes need. Readers never wait; when the scheduler is full, the row is
+ * handed back to the read resolver.
+ * <p/>
+ * Rows which could not be resolved, because their transaction was still active or the region did not take the
+ * batch, are retried after {@code secondWait}, backing off up to {@link #MAX_RETRY_BACKOFF} times that, until they
+ * are resolved or their region closes. Retries are kept apart from the first attempts, so rows of a long running
+ * transaction never hold up writers, the transaction itself included, which would then wait on its own commit. They
+ * are bounded separately by the same number of rows, beyond which further retries are given up on and left to later
+ * reads and compactions: an active transaction can write more rows than can be kept, and nothing but its commit
+ * would make room.
+ */
+public class RegionResolutionScheduler{
+    private static final Logger LOG=Logger.getLogger(RegionResolutionScheduler.class);
+    /* the most times secondWait a retry waits */
+    static final int MAX_RETRY_BACKOFF=8;
+
+    /**
+     * Applies a batch of resolutions to a region.
+     */
+    interface BatchWriter{
+        /**
+         * @return false if the region could not take the batch at the moment
+         */
+        boolean write(Partition partition,Mutation[] mutations);
+    }
+
+    static final BatchWriter REGION_WRITER=new BatchWriter(){
+        @Override
+        public boolean write(Partition partition,Mutation[] mutations){
+            return SynchronousReadResolver.INSTANCE.resolveAll(partition,mutations);
+        }
+    };
+
+    private final TxnSupplier supplier;
+    private final BatchWriter writer;
+    private final Clock clock;
+    private final long firstWaitNanos;
+    private final long secondWaitNanos;
+    private final int batchSize;
+    private final int maxPendingRows;
+
+    private final ReentrantLock lock=new ReentrantLock();
+    private final Condition workAvailable=lock.newCondition();
+    private final Condition roomAvailable=lock.newCondition();
+    private final Map<String,RegionQueue> regions=new HashMap<>(); //guarded by lock
+    private int firstPending; //guarded by lock
+    private int secondPending; //guarded by lock
+    private volatile boolean stopped;
+
+    private final LongAdder firstResolutions=new LongAdder();
+    private final LongAdder secondResolutions=new LongAdder();
+    private final LongAdder firstActive=new LongAdder();
+    private final LongAdder secondActive=new LongAdder();
+    private final LongAdder rejected=new LongAdder();
+    private final LongAdder submitWaitNanos=new LongAdder();
+
+    public RegionResolutionScheduler(TxnSupplier supplier,
+                                     int firstWaitMs,
+                                     int secondWaitMs,
+                                     int maxPendingRows,
+                                     int batchSize,
+                                     Clock clock){
+        this(supplier,REGION_WRITER,firstWaitMs,secondWaitMs,maxPendingRows,batchSize,clock);
+    }
+
+    RegionResolutionScheduler(TxnSupplier supplier,
+                              BatchWriter writer,
+                              int firstWaitMs,
+                              int secondWaitMs,
+                              int maxPendingRows,
+                              int batchSize,
+                              Clock clock){
+        this.supplier=supplier;
+        this.writer=writer;
+        this.clock=clock;
+        this.firstWaitNanos=TimeUnit.MILLISECONDS.toNanos(firstWaitMs);
+        this.secondWaitNanos=TimeUnit.MILLISECONDS.toNanos(secondWaitMs);
+        this.maxPendingRows=Math.max(1,maxPendingRows);
+        this.batchSize=Math.max(1,batchSize);
+    }
+
+    /**
+     * Submits rows written by {@code txnId}, to be resolved once the transaction has had a chance to complete.
+     * Waits for room if the scheduler is full, a chunk of rows at a time, so the caller must not hold the locks
+     * of any rows in the partition.
+     */
+    public void submit(Partition partition,long txnId,List<ByteSlice> rowKeys){
+        int size=rowKeys.size();
+        int chunkSize=Math.min(batchSize,maxPendingRows);
+        for(int from=0;from<size && !stopped;from+=chunkSize){
+            enqueue(partition,txnId,rowKeys.subList(from,Math.min(size,from+chunkSize)),firstWaitNanos,false);
+        }
+    }
+
+    /**
+     * Submits a row which a reader found without a commit timestamp, written by a transaction which has
+     * already completed. Never waits.
+     *
+     * @return false if the scheduler is full or stopped, and the caller should resolve the row itself
+     */
+    public boolean submitRead(Partition partition,long txnId,ByteSlice rowKey){
+        if(stopped) return false;
+        ByteSlice key=ByteSlice.wrap(rowKey.getByteCopy());
+        return enqueue(partition,txnId,Collections.singletonList(key),0L,true);
+    }
+
+    /**
+     * Resolves batches until the scheduler is stopped or the thread interrupted. Meant to be run by each
+     * of the resolution threads.
+     */
+    public void runWorker(){
+        while(!stopped){
+            Batch batch;
+            try{
+                batch=nextBatch();
+            }catch(InterruptedException e){
+                LOG.info("Interrupted, stopping roll forward thread");
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if(batch==null) return;
+            try{
+                resolve(batch);
+            }catch(RuntimeException e){
+                LOG.warn("Error while trying to roll forward writes",e);
+            }finally{
+                finished(batch.queue);
+            }
+        }
+    }
+
+    public void stop(){
+        stopped=true;
+        lock.lock();
+        try{
+            workAvailable.signalAll();
+            roomAvailable.signalAll();
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*metrics*/
+
+    public int getFirstPending(){
+        lock.lock();
+        try{
+            return firstPending;
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    public int getSecondPending(){
+        lock.lock();
+        try{
+            return secondPending;
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    public long getFirstResolutions(){ return firstResolutions.longValue(); }
+    public long getSecondResolutions(){ return secondResolutions.longValue(); }
+    public long getFirstActive(){ return firstActive.longValue(); }
+    public long getSecondActive(){ return secondActive.longValue(); }
+    public long getRejected(){ return rejected.longValue(); }
+    public long getSubmitWaitMillis(){ return TimeUnit.NANOSECONDS.toMillis(submitWaitNanos.longValue()); }
+
+    public Map<String,Integer> getRegionQueueDepths(){
+        lock.lock();
+        try{
+            Map<String,Integer> depths=new TreeMap<>();
+            for(RegionQueue queue:regions.values()){
+                depths.put(queue.name,queue.depth);
+            }
+            return depths;
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    public Map<String,Long> getRegionResolutionLatencies(){
+        lock.lock();
+        try{
+            Map<String,Long> latencies=new TreeMap<>();
+            for(RegionQueue queue:regions.values()){
+                latencies.put(queue.name,queue.averageLatencyMillis());
+            }
+            return latencies;
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    public Map<String,Long> getRegionUnresolvedReads(){
+        lock.lock();
+        try{
+            Map<String,Long> reads=new TreeMap<>();
+            for(RegionQueue queue:regions.values()){
+                reads.put(queue.name,queue.totalUnresolvedReads);
+            }
+            return reads;
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    /**
+     * @return false if the rows were not queued: the scheduler is stopped, or it is full and they were read
+     */
+    private boolean enqueue(Partition partition,long txnId,List<ByteSlice> rowKeys,long waitNanos,boolean fromRead){
+        lock.lock();
+        try{
+            RegionQueue queue;
+            if(fromRead){
+                if(stopped) return false;
+                queue=queueFor(partition);
+                queue.unresolvedReads++;
+                queue.totalUnresolvedReads++;
+                if(firstPending>=maxPendingRows) return false;
+            }else{
+                if(!awaitRoom(rowKeys.size())) return false;
+                queue=queueFor(partition);
+            }
+            long now=clock.nanoTime();
+            PendingTxn pending=queue.pending.get(txnId);
+            if(pending==null){
+                pending=new PendingTxn(txnId,now,now+waitNanos);
+                queue.pending.put(txnId,pending);
+            }else if(pending.notBefore>now+waitNanos)
+                pending.notBefore=now+waitNanos;
+            int added=0;
+            for(ByteSlice key:rowKeys){
+                if(pending.keys.add(key)) added++;
+            }
+            queue.depth+=added;
+            firstPending+=added;
+            workAvailable.signal();
+            return true;
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Waits, holding the lock, until the rows fit among those waiting for their first attempt. An interrupted
+     * writer stops waiting and queues its rows anyway, rather than losing them.
+     */
+    private boolean awaitRoom(int rows){
+        if(stopped) return false;
+        if(firstPending+rows<=maxPendingRows) return true;
+        long start=clock.nanoTime();
+        try{
+            while(!stopped && firstPending>0 && firstPending+rows>maxPendingRows){
+                roomAvailable.await();
+            }
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }finally{
+            submitWaitNanos.add(clock.nanoTime()-start);
+        }
+        return !stopped;
+    }
+
+    private RegionQueue queueFor(Partition partition){
+        String name=partition.getName();
+        RegionQueue queue=regions.get(name);
+        if(queue==null || (queue.partition!=partition && queue.partition.isClosed())){
+            if(queue!=null){
+                //the region was reopened, so the old work is no longer valid
+                discard(queue);
+            }
+            queue=new RegionQueue(name,partition);
+            regions.put(name,queue);
+        }
+        return queue;
+    }
+
+    private Batch nextBatch() throws InterruptedException{
+        lock.lock();
+        try{
+            while(!stopped){
+                long now=clock.nanoTime();
+                long nextDue=Long.MAX_VALUE;
+                RegionQueue best=null;
+                long bestDue=0L;
+                Iterator<RegionQueue> iter=regions.values().iterator();
+                while(iter.hasNext()){
+                    RegionQueue queue=iter.next();
+                    if(queue.busy) continue;
+                    if(queue.partition.isClosed()){
+                        discard(queue);
+                        iter.remove();
+                        continue;
+                    }
+                    if(queue.isEmpty()) continue;
+                    long due=queue.earliestDue();
+                    if(due>now){
+                        nextDue=Math.min(nextDue,due);
+                        continue;
+                    }
+                    if(best==null
+                            || queue.unresolvedReads>best.unresolvedReads
+                            || (queue.unresolvedReads==best.unresolvedReads && due<bestDue)){
+                        best=queue;
+                        bestDue=due;
+                    }
+                }
+                if(best!=null)
+                    return drain(best,now);
+                if(nextDue==Long.MAX_VALUE)
+                    workAvailable.await();
+                else
+                    workAvailable.awaitNanos(nextDue-now);
+            }
+            return null;
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    private Batch drain(RegionQueue queue,long now){
+        Batch batch=new Batch(queue);
+        int rows=drain(queue,queue.retrying,batch,now,0);
+        drain(queue,queue.pending,batch,now,rows);
+        queue.busy=true;
+        queue.unresolvedReads=0;
+        return batch;
+    }
+
+    private int drain(RegionQueue queue,Map<Long,PendingTxn> txns,Batch batch,long now,int rows){
+        int firstDrained=0;
+        Iterator<PendingTxn> iter=txns.values().iterator();
+        while(iter.hasNext() && rows<batchSize){
+            PendingTxn pending=iter.next();
+            if(pending.notBefore>now) continue;
+            iter.remove();
+            batch.txns.add(pending);
+            int size=pending.keys.size();
+            rows+=size;
+            queue.depth-=size;
+            if(pending.attempt==0) firstDrained+=size;
+            else secondPending-=size;
+        }
+        if(firstDrained>0){
+            firstPending-=firstDrained;
+            roomAvailable.signalAll();
+        }
+        return rows;
+    }
+
+    private void discard(RegionQueue queue){
+        int firstDiscarded=0;
+        for(PendingTxn pending:queue.pending.values()){
+            firstDiscarded+=pending.keys.size();
+        }
+        for(PendingTxn pending:queue.retrying.values()){
+            secondPending-=pending.keys.size();
+        }
+        queue.pending.clear();
+        queue.retrying.clear();
+        queue.depth=0;
+        if(firstDiscarded>0){
+            firstPending-=firstDiscarded;
+            roomAvailable.signalAll();
+        }
+    }
+
+    private void finished(RegionQueue queue){
+        lock.lock();
+        try{
+            queue.busy=false;
+            workAvailable.signal();
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    private void resolve(Batch batch){
+        Partition partition=batch.queue.partition;
+        if(partition.isClosed() || partition.isClosing()) return;
+
+        long[] txnIds=new long[batch.txns.size()];
+        for(int i=0;i<txnIds.length;i++){
+            txnIds[i]=batch.txns.get(i).txnId;
+        }
+        TxnView[] txns;
+        try{
+            txns=supplier.getTransactions(txnIds,0L);
+        }catch(IOException e){
+            LOG.warn("Error while trying to roll forward writes",e);
+            retry(batch.queue,batch.txns);
+            return;
+        }
+
+        List<Mutation> mutations=new ArrayList<>();
+        List<PendingTxn> resolved=new ArrayList<>(batch.txns.size());
+        List<PendingTxn> stillActive=new ArrayList<>();
+        for(int i=0;i<txnIds.length;i++){
+            PendingTxn pending=batch.txns.get(i);
+            TxnView txn=txns[i];
+            Txn.State state=txn==null?null:txn.getEffectiveState();
+            if(state==Txn.State.ROLLEDBACK){
+                for(ByteSlice key:pending.keys){
+                    mutations.add(SynchronousReadResolver.rolledbackDelete(key,pending.txnId));
+                }
+                resolved.add(pending);
+            }else if(state==Txn.State.COMMITTED){
+                long commitTs=txn.getEffectiveCommitTimestamp();
+                for(ByteSlice key:pending.keys){
+                    mutations.add(SynchronousReadResolver.committedPut(key,pending.txnId,commitTs));
+                }
+                resolved.add(pending);
+            }else{
+                (pending.attempt==0?firstActive:secondActive).add(pending.keys.size());
+                stillActive.add(pending);
+            }
+        }
+        retry(batch.queue,stillActive);
+        if(mutations.isEmpty()) return;
+
+        if(!writer.write(partition,mutations.toArray(new Mutation[mutations.size()]))){
+            retry(batch.queue,resolved);
+            return;
+        }
+        long now=clock.nanoTime();
+        long latency=0L;
+        for(PendingTxn pending:resolved){
+            int size=pending.keys.size();
+            (pending.attempt==0?firstResolutions:secondResolutions).add(size);
+            latency+=(now-pending.firstSubmitted)*size;
+        }
+        batch.queue.recordLatency(mutations.size(),latency);
+    }
+
+    private void retry(RegionQueue queue,List<PendingTxn> txns){
+        if(txns.isEmpty()) return;
+        long now=clock.nanoTime();
+        lock.lock();
+        try{
+            //once stopped, or the region was closed or reopened, the rows are no longer ours to resolve
+            if(stopped || regions.get(queue.name)!=queue) return;
+            for(PendingTxn pending:txns){
+                int size=pending.keys.size();
+                if(secondPending+size>maxPendingRows){
+                    //left to later reads and compactions
+                    rejected.add(size);
+                    continue;
+                }
+                pending.attempt++;
+                pending.notBefore=now+secondWaitNanos*Math.min(1<<Math.min(pending.attempt-1,30),MAX_RETRY_BACKOFF);
+                PendingTxn retry=queue.retrying.get(pending.txnId);
+                int added=size;
+                if(retry==null){
+                    queue.retrying.put(pending.txnId,pending);
+                }else{
+                    //rows of a later submission of the transaction were already found active
+                    added=0;
+                    for(ByteSlice key:pending.keys){
+                        if(retry.keys.add(key)) added++;
+                    }
+                    retry.attempt=Math.min(retry.attempt,pending.attempt);
+                    retry.notBefore=Math.min(retry.notBefore,pending.notBefore);
+                }
+                secondPending+=added;
+                queue.depth+=added;
+            }
+            workAvailable.signal();
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    private static class PendingTxn{
+        final long txnId;
+        final long firstSubmitted;
+        final Set<ByteSlice> keys=new LinkedHashSet<>();
+        long notBefore;
+        int attempt;
+
+        PendingTxn(long txnId,long firstSubmitted,long notBefore){
+            this.txnId=txnId;
+            this.firstSubmitted=firstSubmitted;
+            this.notBefore=notBefore;
+        }
+    }
+
+    private static class RegionQueue{
+        final String name;
+        final Partition partition;
+        /* rows waiting for their first attempt, and rows being retried */
+        final Map<Long,PendingTxn> pending=new LinkedHashMap<>();
+        final Map<Long,PendingTxn> retrying=new LinkedHashMap<>();
+        int depth;
+        long unresolvedReads;
+        long totalUnresolvedReads;
+        boolean busy;
+        final AtomicLong resolvedRows=new AtomicLong();
+        final AtomicLong totalLatencyNanos=new AtomicLong();
+
+        RegionQueue(String name,Partition partition){
+            this.name=name;
+            this.partition=partition;
+        }
+
+        boolean isEmpty(){
+            return pending.isEmpty() && retrying.isEmpty();
+        }
+
+        long earliestDue(){
+            long due=Long.MAX_VALUE;
+            for(PendingTxn txn:pending.values()){
+                if(txn.notBefore<due) due=txn.notBefore;
+            }
+            for(PendingTxn txn:retrying.values()){
+                if(txn.notBefore<due) due=txn.notBefore;
+            }
+            return due;
+        }
+
+        void recordLatency(int rows,long latencyNanos){
+            resolvedRows.addAndGet(rows);
+            totalLatencyNanos.addAndGet(latencyNanos);
+        }
+
+        long averageLatencyMillis(){
+            long rows=resolvedRows.get();
+            return rows==0?0L:TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos.get()/rows);
+        }
+    }
+
+    private static class Batch{
+        final RegionQueue queue;
+        final List<PendingTxn> txns=new ArrayList<>();
+
+        Batch(RegionQueue queue){
+            this.queue=queue;
+        }
+    }
+}
@@ -292,6 +292,67 @@ public class CoprocessorTxnStore implements TxnStore {
         }
     }
 
+    @Override
+    public TxnView[] getTransactions(long[] txnIds,long activeAsOf) throws IOException{
+        /*
+         * The transaction table is split by bucket, so group the requested ids by the bucket they live in
+         * and ask each region for all of its transactions at once. Ids which a region reports as not served
+         * (e.g. because the region is splitting) are fetched individually.
+         */
+        Map<Long,TxnView> resolved=new HashMap<>(txnIds.length);
+        Map<Byte,LongHashSet> byBucket=new TreeMap<>();
+        for(long txnId:txnIds){
+            if(resolved.containsKey(txnId)) continue;
+            if(txnId<oldTransactions){
+                lookups.incrementAndGet();
+                resolved.put(txnId,getOldTransaction(txnId,false));
+                continue;
+            }
+            byte bucket=getTransactionRowKey(txnId)[0];
+            LongHashSet ids=byBucket.get(bucket);
+            if(ids==null){
+                ids=new LongHashSet();
+                byBucket.put(bucket,ids);
+            }
+            ids.add(txnId);
+        }
+
+        try(TxnNetworkLayer table=tableFactory.accessTxnNetwork()){
+            for(LongHashSet ids:byBucket.values()){
+                long[] bucketIds=ids.toArray();
+                Arrays.sort(bucketIds);
+                lookups.incrementAndGet();
+                TxnMessage.TxnListRequest request=TxnMessage.TxnListRequest.newBuilder()
+                        .addAllTxnIds(Longs.asList(bucketIds)).build();
+                TxnMessage.TxnListResponse response=table.getTxns(getTransactionRowKey(bucketIds[0]),request);
+
+                LongHashSet notServed=new LongHashSet(response.getNotServedTxnIdsCount());
+                for(long txnId:response.getNotServedTxnIdsList()){
+                    notServed.add(txnId);
+                }
+                int pos=0;
+                for(long txnId:bucketIds){
+                    if(notServed.contains(txnId)) continue;
+                    resolved.put(txnId,decode(txnId,response.getTxns(pos++)));
+                }
+                for(long txnId:response.getNotServedTxnIdsList()){
+                    resolved.put(txnId,getTransaction(txnId));
+                }
+            }
+        }
+
+        TxnView[] txns=new TxnView[txnIds.length];
+        for(int i=0;i<txnIds.length;i++){
+            txns[i]=resolved.get(txnIds[i]);
+        }
+        return txns;
+    }
+
+    @Override
+    public boolean isActiveAsOf(long txnId,long timestamp){
+        return false;
+    }
+
     public TxnView getOldTransaction(long txnId, boolean getDestinationTables) throws IOException {
         byte[] rowKey = getOldTransactionRowKey(txnId);
         TxnMessage.TxnRequest request = TxnMessage.TxnRequest.newBuilder().setTxnId(txnId).setIsOld(true).build();
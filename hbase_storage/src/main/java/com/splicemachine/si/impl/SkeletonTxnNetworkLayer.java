@@ -116,6 +116,16 @@ public abstract class SkeletonTxnNetworkLayer implements TxnNetworkLayer{
         return done.get();
     }
 
+    @Override
+    public TxnMessage.TxnListResponse getTxns(byte[] rowKey,TxnMessage.TxnListRequest request) throws IOException{
+        TxnMessage.TxnLifecycleService service=getLifecycleService(rowKey);
+        ServerRpcController controller=new ServerRpcController();
+        BlockingRpcCallback<TxnMessage.TxnListResponse> done=new BlockingRpcCallback<>();
+        service.getTransactions(controller,request,done);
+        dealWithError(controller);
+        return done.get();
+    }
+
     @Override
     public TxnMessage.TaskId getTaskId(byte[] rowKey,TxnMessage.TxnRequest request) throws IOException{
         TxnMessage.TxnLifecycleService service=getLifecycleService(rowKey);
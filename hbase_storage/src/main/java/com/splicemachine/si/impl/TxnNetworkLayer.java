@@ -37,6 +37,12 @@ public interface TxnNetworkLayer extends AutoCloseable{
 
     TxnMessage.Txn getTxn(byte[] rowKey,TxnMessage.TxnRequest request) throws IOException;
 
+    /**
+     * Look up several transactions in one call against the region holding {@code rowKey}. Transactions
+     * whose rows are held by a different region are returned as not served.
+     */
+    TxnMessage.TxnListResponse getTxns(byte[] rowKey,TxnMessage.TxnListRequest request) throws IOException;
+
     TxnMessage.TaskId getTaskId(byte[] rowKey,TxnMessage.TxnRequest request) throws IOException;
 
     void close() throws IOException;
@@ -30,6 +30,7 @@ import org.apache.hadoop.hbase.NotServingRegionException;
 import org.apache.hadoop.hbase.RegionTooBusyException;
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Durability;
+import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.exceptions.ConnectionClosingException;
 import org.apache.hadoop.hbase.util.Bytes;
@@ -134,13 +135,7 @@ public class SynchronousReadResolver implements KeyedReadResolver{
         if(DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
             return; //do nothing if we are closing or rollforward is disabled
 
-        Put put=new Put(rowKey.getByteCopy());
-        put.addColumn(SIConstants.DEFAULT_FAMILY_BYTES,
-                SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,txnId,
-                Bytes.toBytes(commitTimestamp));
-        put.setAttribute(SIConstants.SI_EXEMPT,SIConstants.TRUE_BYTES);
-        put.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
-        put.setDurability(Durability.SKIP_WAL);
+        Put put=committedPut(rowKey,txnId,commitTimestamp);
         try{
             ((RegionPartition)region).unwrapDelegate().put(put);
         }catch(IOException e){
@@ -163,12 +158,7 @@ public class SynchronousReadResolver implements KeyedReadResolver{
         if(DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
             return; //do nothing if we are closing
 
-        Delete delete=new Delete(rowKey.getByteCopy(),txnId)
-                .addColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,txnId) //delete all the columns for our family only
-                .addColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,txnId) //delete all the columns for our family only
-                .addColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_ANTI_TOMBSTONE_VALUE_BYTES,txnId); //delete all the columns for our family only
-        delete.setDurability(Durability.SKIP_WAL);
-        delete.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
+        Delete delete=rolledbackDelete(rowKey,txnId);
         try{
             ((RegionPartition)region).unwrapDelegate().delete(delete);
         }catch(IOException ioe){
@@ -177,4 +167,54 @@ public class SynchronousReadResolver implements KeyedReadResolver{
                 throw new RuntimeException(ioe);
         }
     }
+
+    /**
+     * Resolves many rows at once, with a single batch against the region.
+     *
+     * @param mutations the resolutions to apply, as built by {@link #committedPut(ByteSlice, long, long)} and
+     *                  {@link #rolledbackDelete(ByteSlice, long)}
+     * @return true if the batch was applied (or there was nothing to do), false if the region could not take it
+     */
+    public boolean resolveAll(Partition region,Mutation[] mutations){
+        assert region instanceof RegionPartition: "Not on a region!";
+        if(DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
+            return true;
+        try{
+            ((RegionPartition)region).unwrapDelegate().batchMutate(mutations);
+            return true;
+        }catch(IOException e){
+            if(!(e instanceof RegionTooBusyException) && !(e instanceof NotServingRegionException)
+                    &&  !(e instanceof ConnectionClosingException)){
+                LOG.info("Exception encountered when attempting to resolve a batch of rows",e);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * @return a Put which marks the row as committed, bypassing SI and the WAL
+     */
+    public static Put committedPut(ByteSlice rowKey,long txnId,long commitTimestamp){
+        Put put=new Put(rowKey.getByteCopy());
+        put.addColumn(SIConstants.DEFAULT_FAMILY_BYTES,
+                SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,txnId,
+                Bytes.toBytes(commitTimestamp));
+        put.setAttribute(SIConstants.SI_EXEMPT,SIConstants.TRUE_BYTES);
+        put.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
+        put.setDurability(Durability.SKIP_WAL);
+        return put;
+    }
+
+    /**
+     * @return a Delete which removes the versions of the row written by a rolled back transaction, bypassing the WAL
+     */
+    public static Delete rolledbackDelete(ByteSlice rowKey,long txnId){
+        Delete delete=new Delete(rowKey.getByteCopy(),txnId)
+                .addColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,txnId) //delete all the columns for our family only
+                .addColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,txnId) //delete all the columns for our family only
+                .addColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_ANTI_TOMBSTONE_VALUE_BYTES,txnId); //delete all the columns for our family only
+        delete.setDurability(Durability.SKIP_WAL);
+        delete.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
+        return delete;
+    }
 }
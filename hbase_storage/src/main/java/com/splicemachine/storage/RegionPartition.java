@@ -28,6 +28,7 @@ import com.splicemachine.si.impl.HNotServingRegion;
 import com.splicemachine.si.impl.HWrongRegion;
 import com.splicemachine.storage.util.MeasuredListScanner;
 import com.splicemachine.utils.Pair;
+import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.NotServingRegionException;
 import org.apache.hadoop.hbase.client.*;
 import org.apache.hadoop.hbase.regionserver.*;
@@ -195,6 +196,100 @@ public class RegionPartition implements Partition{
         }
     }
 
+    @Override
+    public DataResult[] batchGetLatest(List<byte[]> keys) throws IOException{
+        DataResult[] results=new DataResult[keys.size()];
+        if(results.length==0) return results;
+
+        /*
+         * Rather than performing a Get (and therefore a full seek of every store file) for each row, we open
+         * a single scanner over the range of the batch, and reseek it forward from row to row. The scanner can
+         * only move forward, so we visit the keys in ascending order.
+         */
+        int[] order=ascendingOrder(keys);
+        byte[] start=keys.get(order[0]);
+        byte[] last=keys.get(order[order.length-1]);
+        Scan scan=new Scan(start,Arrays.copyOf(last,last.length+1)); //stop row is exclusive
+        scan.setMaxVersions(1);
+        try(RegionScanner scanner=region.getScanner(scan)){
+            List<Cell> row=new ArrayList<>();
+            Result result=null;
+            boolean more=true;
+            for(int j=0;j<order.length;j++){
+                int i=order[j];
+                byte[] key=keys.get(i);
+                if(j>0 && Bytes.equals(key,keys.get(order[j-1]))){
+                    //a duplicate of the previous key reads the same row
+                    results[i]=new HResult(result);
+                    continue;
+                }
+                result=Result.EMPTY_RESULT;
+                results[i]=new HResult(result);
+                if(!row.isEmpty()){
+                    //we read past the previous key, so the row we hold is the first row at or after this key
+                    Cell first=row.get(0);
+                    int c=Bytes.compareTo(first.getRowArray(),first.getRowOffset(),first.getRowLength(),key,0,key.length);
+                    if(c>0)
+                        continue;
+                    if(c==0){
+                        result=Result.create(new ArrayList<>(row));
+                        results[i]=new HResult(result);
+                        row.clear();
+                        continue;
+                    }
+                    row.clear();
+                }
+                if(!more)
+                    continue;
+                if(j>0)
+                    scanner.reseek(key);
+                more=scanner.next(row);
+                if(row.isEmpty())
+                    continue;
+                Cell first=row.get(0);
+                if(Bytes.equals(first.getRowArray(),first.getRowOffset(),first.getRowLength(),key,0,key.length)){
+                    result=Result.create(new ArrayList<>(row));
+                    results[i]=new HResult(result);
+                    row.clear();
+                }
+            }
+            return results;
+        }catch(NotServingRegionException | ConnectionClosingException | AssertionError | NullPointerException nsre){
+            throw new HNotServingRegion(nsre.getMessage());
+        }catch(WrongRegionException wre){
+            throw new HWrongRegion(wre.getMessage());
+        }
+    }
+
+    /**
+     * @return the indexes of {@code keys}, in ascending order of the keys
+     */
+    private static int[] ascendingOrder(final List<byte[]> keys){
+        int[] order=new int[keys.size()];
+        boolean sorted=true;
+        for(int i=0;i<order.length;i++){
+            order[i]=i;
+            if(i>0 && sorted && Bytes.compareTo(keys.get(i-1),keys.get(i))>0)
+                sorted=false;
+        }
+        if(sorted) return order;
+
+        Integer[] boxed=new Integer[order.length];
+        for(int i=0;i<boxed.length;i++){
+            boxed[i]=i;
+        }
+        Arrays.sort(boxed,new Comparator<Integer>(){
+            @Override
+            public int compare(Integer o1,Integer o2){
+                return Bytes.compareTo(keys.get(o1),keys.get(o2));
+            }
+        });
+        for(int i=0;i<order.length;i++){
+            order[i]=boxed[i];
+        }
+        return order;
+    }
+
     @Override
     public DataResult getLatest(byte[] rowKey,byte[] family,DataResult previous) throws IOException{
         Get g=new Get(rowKey);
@@ -89,6 +89,16 @@ public abstract class SkeletonHBaseClientPartition implements Partition{
         return previous;
     }
 
+    @Override
+    public DataResult[] batchGetLatest(List<byte[]> sortedKeys) throws IOException{
+        DataResult[] results=new DataResult[sortedKeys.size()];
+        for(int i=0;i<results.length;i++){
+            results[i]=getLatest(sortedKeys.get(i),null);
+        }
+        return results;
+    }
+
+
     @Override
     public DataResult getLatest(byte[] rowKey,byte[] family,DataResult previous) throws IOException{
         Get g = new Get(rowKey);
@@ -46,24 +46,17 @@ public abstract class AbstractIteratorRegionScanner implements RegionScanner{
         return filter!=null && filter.filterAllRemaining();
     }
 
-    @SuppressWarnings("LoopStatementThatDoesntLoop")
     @Override
     public boolean reseek(byte[] row) throws IOException {
-        if(!kvs.hasNext()) return false;
+        //like HBase, position the scanner on the first row at or after the requested one
         while(kvs.hasNext()){
             Set<Cell> next = kvs.peek();
-            if(next.size()<0){
-                kvs.next();  //throw empty rows away
-                continue;
-            }
-            for(Cell kv: next){
-                if(Bytes.equals(kv.getRowArray(),kv.getRowOffset(),kv.getRowLength(),row,0, row.length))
+            if(!next.isEmpty()){
+                Cell kv = next.iterator().next();
+                if(Bytes.compareTo(kv.getRowArray(),kv.getRowOffset(),kv.getRowLength(),row,0,row.length)>=0)
                     return true;
-                else{
-                    kvs.next();
-                    break;
-                }
             }
+            kvs.next();
         }
         return false;
     }
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.si.data.hbase.rollforward;
+
+import com.splicemachine.concurrent.SystemClock;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.txn.CommittedTxn;
+import com.splicemachine.si.impl.txn.InheritingTxnView;
+import com.splicemachine.storage.Partition;
+import com.splicemachine.utils.ByteSlice;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for the batching, ordering and backpressure of the RegionResolutionScheduler.
+ */
+public class RegionResolutionSchedulerTest{
+    private final Map<Long,TxnView> txns=new ConcurrentHashMap<>();
+    private final List<long[]> lookups=new CopyOnWriteArrayList<>();
+    private final List<String> writtenRegions=new CopyOnWriteArrayList<>();
+    private final List<Mutation[]> writes=new CopyOnWriteArrayList<>();
+
+    @Test
+    public void coalescesRowsOfATransactionIntoOneBatch() throws Exception{
+        txns.put(0x100L,new CommittedTxn(0x100L,0x200L));
+        CountDownLatch written=new CountDownLatch(1);
+        RegionResolutionScheduler scheduler=scheduler(written,0,1024);
+        Partition region=region("A");
+
+        scheduler.submit(region,0x100L,keys("a","b"));
+        scheduler.submit(region,0x100L,keys("b","c"));
+        Assert.assertEquals(3,scheduler.getFirstPending());
+
+        Thread worker=start(scheduler);
+        try{
+            Assert.assertTrue("Rows were never resolved",written.await(10,TimeUnit.SECONDS));
+        }finally{
+            stop(scheduler,worker);
+        }
+        Assert.assertEquals("Transaction should be looked up once",1,lookups.size());
+        Assert.assertEquals(1,writes.size());
+        Assert.assertEquals(3,writes.get(0).length);
+        for(Mutation m:writes.get(0)){
+            Assert.assertTrue("Committed rows should be resolved with a Put",m instanceof Put);
+        }
+        Assert.assertEquals(3,scheduler.getFirstResolutions());
+        Assert.assertEquals(0,scheduler.getFirstPending());
+    }
+
+    @Test
+    public void servesRegionsWithUnresolvedReadsFirst() throws Exception{
+        txns.put(0x100L,new CommittedTxn(0x100L,0x200L));
+        txns.put(0x300L,new CommittedTxn(0x300L,0x400L));
+        CountDownLatch written=new CountDownLatch(2);
+        RegionResolutionScheduler scheduler=scheduler(written,0,1024);
+        Partition cold=region("cold");
+        Partition hot=region("hot");
+
+        scheduler.submit(cold,0x100L,keys("a"));
+        scheduler.submitRead(hot,0x300L,ByteSlice.wrap("b".getBytes()));
+        scheduler.submitRead(hot,0x300L,ByteSlice.wrap("b".getBytes()));
+        Assert.assertEquals("Rows submitted twice should only be queued once",
+                Integer.valueOf(1),scheduler.getRegionQueueDepths().get("hot"));
+        Assert.assertEquals(Long.valueOf(2),scheduler.getRegionUnresolvedReads().get("hot"));
+
+        Thread worker=start(scheduler);
+        try{
+            Assert.assertTrue("Rows were never resolved",written.await(10,TimeUnit.SECONDS));
+        }finally{
+            stop(scheduler,worker);
+        }
+        Assert.assertEquals(Arrays.asList("hot","cold"),writtenRegions);
+    }
+
+    @Test
+    public void writersWaitForWorkersToMakeRoom() throws Exception{
+        txns.put(0x100L,new CommittedTxn(0x100L,0x200L));
+        txns.put(0x300L,new CommittedTxn(0x300L,0x400L));
+        CountDownLatch written=new CountDownLatch(2);
+        final RegionResolutionScheduler scheduler=scheduler(written,0,2);
+        final Partition region=region("A");
+
+        scheduler.submit(region,0x100L,keys("a","b"));
+        Thread writer=new Thread(new Runnable(){
+            @Override
+            public void run(){
+                scheduler.submit(region,0x300L,keys("c"));
+            }
+        });
+        writer.start();
+        writer.join(100);
+        Assert.assertTrue("Writer did not wait for room",writer.isAlive());
+        Assert.assertEquals(2,scheduler.getFirstPending());
+        Assert.assertFalse("Readers should never wait, but hand the row back",
+                scheduler.submitRead(region,0x300L,ByteSlice.wrap("d".getBytes())));
+
+        Thread worker=start(scheduler);
+        try{
+            writer.join(10000);
+            Assert.assertFalse("Writer was never let in",writer.isAlive());
+            Assert.assertTrue("Rows were never resolved",written.await(10,TimeUnit.SECONDS));
+        }finally{
+            stop(scheduler,worker);
+        }
+        Assert.assertEquals(3,scheduler.getFirstResolutions());
+        Assert.assertEquals(0,scheduler.getRejected());
+    }
+
+    @Test
+    public void splitsBatchesLargerThanTheQueue() throws Exception{
+        txns.put(0x100L,new CommittedTxn(0x100L,0x200L));
+        CountDownLatch written=new CountDownLatch(3);
+        RegionResolutionScheduler scheduler=scheduler(written,0,2);
+
+        Thread worker=start(scheduler);
+        try{
+            scheduler.submit(region("A"),0x100L,keys("a","b","c","d","e"));
+            Assert.assertTrue("Rows were never resolved",written.await(10,TimeUnit.SECONDS));
+        }finally{
+            stop(scheduler,worker);
+        }
+        Assert.assertEquals(5,scheduler.getFirstResolutions());
+        Assert.assertEquals(0,scheduler.getRejected());
+    }
+
+    @Test
+    public void activeTransactionsAreRetriedUntilTheyComplete() throws Exception{
+        txns.put(0x100L,new InheritingTxnView(Txn.ROOT_TRANSACTION,0x100L,0x100L,Txn.IsolationLevel.SNAPSHOT_ISOLATION,
+                false,false,false,false,-1L,-1L,Txn.State.ACTIVE));
+        CountDownLatch written=new CountDownLatch(1);
+        RegionResolutionScheduler scheduler=scheduler(written,1,1024);
+        scheduler.submit(region("A"),0x100L,keys("a","b"));
+
+        Thread worker=start(scheduler);
+        try{
+            long deadline=System.currentTimeMillis()+10000;
+            while(scheduler.getSecondActive()<4 && System.currentTimeMillis()<deadline)
+                Thread.sleep(10);
+            Assert.assertEquals(2,scheduler.getFirstActive());
+            Assert.assertTrue("Rows of an active transaction should be retried",scheduler.getSecondActive()>=4);
+            Assert.assertTrue("Rows of an active transaction should not be written",writes.isEmpty());
+
+            txns.put(0x100L,new CommittedTxn(0x100L,0x200L));
+            Assert.assertTrue("Rows were never resolved",written.await(10,TimeUnit.SECONDS));
+        }finally{
+            stop(scheduler,worker);
+        }
+        Assert.assertEquals(2,scheduler.getSecondResolutions());
+        Assert.assertEquals(0,scheduler.getSecondPending());
+        Assert.assertEquals(0,scheduler.getRejected());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    private RegionResolutionScheduler scheduler(final CountDownLatch written,int waitMs,int maxPending) throws Exception{
+        TxnSupplier supplier=mock(TxnSupplier.class);
+        when(supplier.getTransactions(any(long[].class),anyLong()))
+                .thenAnswer(new Answer<TxnView[]>(){
+                    @Override
+                    public TxnView[] answer(InvocationOnMock invocation) throws Throwable{
+                        long[] ids=(long[])invocation.getArguments()[0];
+                        lookups.add(ids);
+                        TxnView[] views=new TxnView[ids.length];
+                        for(int i=0;i<ids.length;i++){
+                            views[i]=txns.get(ids[i]);
+                        }
+                        return views;
+                    }
+                });
+        RegionResolutionScheduler.BatchWriter writer=new RegionResolutionScheduler.BatchWriter(){
+            @Override
+            public boolean write(Partition partition,Mutation[] mutations){
+                writtenRegions.add(partition.getName());
+                writes.add(mutations);
+                written.countDown();
+                return true;
+            }
+        };
+        return new RegionResolutionScheduler(supplier,writer,waitMs,waitMs,maxPending,1024,SystemClock.INSTANCE);
+    }
+
+    private static Partition region(String name){
+        Partition partition=mock(Partition.class);
+        when(partition.getName()).thenReturn(name);
+        return partition;
+    }
+
+    private static List<ByteSlice> keys(String... keys){
+        List<ByteSlice> slices=new ArrayList<>(keys.length);
+        for(String key:keys){
+            slices.add(ByteSlice.wrap(key.getBytes()));
+        }
+        return slices;
+    }
+
+    private static Thread start(final RegionResolutionScheduler scheduler){
+        Thread t=new Thread(new Runnable(){
+            @Override
+            public void run(){
+                scheduler.runWorker();
+            }
+        });
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    private static void stop(RegionResolutionScheduler scheduler,Thread worker) throws InterruptedException{
+        scheduler.stop();
+        worker.join(10000);
+    }
+}
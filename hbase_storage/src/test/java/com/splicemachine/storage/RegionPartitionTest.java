@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.storage;
+
+import com.splicemachine.impl.MockRegionUtils;
+import com.splicemachine.si.constants.SIConstants;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class RegionPartitionTest{
+
+    @Test
+    public void batchGetLatestReadsRowsAcrossGaps() throws Exception{
+        HRegion region=regionWithRows("a","c","d","g","k");
+        RegionPartition partition=new RegionPartition(region);
+
+        List<byte[]> keys=keys("a","b","c","e","g","h","i","k");
+        DataResult[] results=partition.batchGetLatest(keys);
+
+        assertResults(keys,results,"a",null,"c",null,"g",null,null,"k");
+        verify(region,times(1)).getScanner(any(Scan.class));
+        verify(region,never()).get(any(Get.class));
+    }
+
+    @Test
+    public void batchGetLatestReturnsEmptyResultsForMissingKeys() throws Exception{
+        RegionPartition partition=new RegionPartition(regionWithRows("b","d"));
+
+        // before, between and after the stored rows
+        List<byte[]> keys=keys("a","c","e","f");
+        assertResults(keys,partition.batchGetLatest(keys),null,null,null,null);
+
+        // no rows at all
+        RegionPartition empty=new RegionPartition(regionWithRows());
+        keys=keys("a","b");
+        assertResults(keys,empty.batchGetLatest(keys),null,null);
+
+        Assert.assertEquals("Empty batches return no results",0,partition.batchGetLatest(Collections.<byte[]>emptyList()).length);
+    }
+
+    @Test
+    public void batchGetLatestAcceptsUnsortedAndDuplicateKeys() throws Exception{
+        RegionPartition partition=new RegionPartition(regionWithRows("a","c","e","g"));
+
+        List<byte[]> keys=keys("g","b","c","a","g","f","c");
+        DataResult[] results=partition.batchGetLatest(keys);
+
+        // results come back in the order of the keys, not of the rows
+        assertResults(keys,results,"g",null,"c","a","g",null,"c");
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static HRegion regionWithRows(String... rows) throws Exception{
+        HRegion region=MockRegionUtils.getMockRegion();
+        for(String row : rows){
+            byte[] key=Bytes.toBytes(row);
+            Put put=new Put(key);
+            put.addColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,1L,key);
+            region.put(put);
+        }
+        return region;
+    }
+
+    private static List<byte[]> keys(String... keys){
+        List<byte[]> bytes=new ArrayList<>(keys.length);
+        for(String key : keys){
+            bytes.add(Bytes.toBytes(key));
+        }
+        return bytes;
+    }
+
+    private static void assertResults(List<byte[]> keys,DataResult[] results,String... expected){
+        Assert.assertEquals("Wrong number of results",expected.length,results.length);
+        for(int i=0;i<expected.length;i++){
+            String key=Bytes.toString(keys.get(i));
+            Assert.assertNotNull("Missing result for "+key,results[i]);
+            if(expected[i]==null){
+                Assert.assertEquals("Row "+key+" should not exist",0,results[i].size());
+            }else{
+                DataCell cell=results[i].userData();
+                Assert.assertNotNull("Row "+key+" should exist",cell);
+                Assert.assertArrayEquals("Wrong row for "+key,Bytes.toBytes(expected[i]),cell.value());
+            }
+        }
+    }
+}
@@ -34,6 +34,7 @@ public class DirectBulkWriter implements BulkWriter{
 
     @Override
     public BulkWritesResult write(BulkWrites write,boolean refreshCache) throws IOException{
+        write.setAcceptsBackoffHints(true);
         return writer.bulkWrite(write, -1);
     }
 }
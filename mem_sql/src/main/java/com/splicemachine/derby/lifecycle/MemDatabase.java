@@ -21,23 +21,33 @@ import com.splicemachine.access.configuration.ConfigurationBuilder;
 import com.splicemachine.access.configuration.ConfigurationDefault;
 import com.splicemachine.access.configuration.ConfigurationSource;
 import com.splicemachine.access.configuration.HConfigurationDefaultsList;
+import com.splicemachine.access.configuration.StorageConfiguration;
 import com.splicemachine.access.util.ReflectingConfigurationSource;
 import com.splicemachine.client.SpliceClient;
 import com.splicemachine.concurrent.ConcurrentTicker;
+import com.splicemachine.db.drda.NetworkServerControl;
 import com.splicemachine.db.shared.common.sanity.SanityManager;
+import com.splicemachine.derby.logging.DerbyOutputLoggerWriter;
 import com.splicemachine.lifecycle.DatabaseLifecycleManager;
+import com.splicemachine.lifecycle.DatabaseLifecycleService;
 import com.splicemachine.si.MemSIEnvironment;
 import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.storage.MPartitionFactory;
 import com.splicemachine.storage.MTxnPartitionFactory;
 
+import javax.management.MBeanServer;
 import java.io.IOException;
+import java.net.InetAddress;
 
 /**
  * @author Scott Fines
  *         Date: 1/11/16
  */
 public class MemDatabase{
+    /**
+     * If set, the port of a second network server, which serves its sessions in non-blocking mode.
+     */
+    public static final String NIO_NETWORK_PORT = "splice.mem.nioNetworkPort";
 
     public static void main(String...args) throws Exception{
         //load SI
@@ -47,6 +57,7 @@ public class MemDatabase{
                                                                  new ReflectingConfigurationSource());
         MemSIEnvironment env=new MemSIEnvironment(tableFactory,new ConcurrentTicker(0L),config);
         MemSIEnvironment.INSTANCE = env;
+        tableFactory.initialize(env.systemClock(),config,env.partitionInfoCache());
         if (config.debugDumpClassFile()) {
             System.setProperty("com.splicemachine.enableLegacyAsserts",Boolean.TRUE.toString());
             SanityManager.DEBUG_SET("DumpClassFile");
@@ -88,6 +99,9 @@ public class MemDatabase{
         DatabaseLifecycleManager manager=DatabaseLifecycleManager.manager();
         manager.registerEngineService(els);
         manager.registerNetworkService(new NetworkLifecycleService(config));
+        String nioPort = System.getProperty(NIO_NETWORK_PORT);
+        if(nioPort!=null)
+            manager.registerNetworkService(new NioNetworkService(config,Integer.parseInt(nioPort)));
         manager.start();
         Runtime.getRuntime().addShutdownHook(new Thread(new Runnable(){
             @Override
@@ -105,6 +119,35 @@ public class MemDatabase{
     //==============================================================================================================
     // private helper classes
     //==============================================================================================================
+    private static class NioNetworkService implements DatabaseLifecycleService{
+        private final SConfiguration config;
+        private final int port;
+        private volatile NetworkServerControl server;
+
+        NioNetworkService(SConfiguration config,int port){
+            this.config=config;
+            this.port=port;
+        }
+
+        @Override
+        public void start() throws Exception{
+            server = new NetworkServerControl(InetAddress.getByName(config.getNetworkBindAddress()),port);
+            server.setNio(true);
+            server.setLogConnections(true);
+            server.start(new DerbyOutputLoggerWriter());
+        }
+
+        @Override
+        public void registerJMX(MBeanServer mbs) throws Exception{
+        }
+
+        @Override
+        public void shutdown() throws Exception{
+            if(server!=null)
+                server.shutdown();
+        }
+    }
+
     private static class MemDatabaseTestConfig implements ConfigurationDefault {
 
         @Override
@@ -118,6 +161,8 @@ public class MemDatabase{
             builder.authenticationImpersonationEnabled = true;
             builder.authenticationImpersonationUsers = "dgf=splice;splice=*";
             builder.authenticationMapGroupAttr = "jy=splice,dgf=splice";
+            // keep the tables on disk instead of on the heap, if requested
+            builder.memStorageDirectory = System.getProperty(StorageConfiguration.MEM_STORAGE_DIRECTORY);
     
             if ("true".equals(System.getProperty("splice.debug.dumpClassFile")) ||
                 "DumpClassFile".equals(System.getProperty("derby.debug.true")))
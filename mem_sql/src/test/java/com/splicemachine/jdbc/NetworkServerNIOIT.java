@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.jdbc;
+
+import com.splicemachine.derby.test.framework.SpliceNetConnection;
+import com.splicemachine.derby.test.framework.SpliceSchemaWatcher;
+import com.splicemachine.derby.test.framework.SpliceTableWatcher;
+import com.splicemachine.derby.test.framework.SpliceWatcher;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+import org.junit.rules.TestRule;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sessions of the network server in non-blocking mode (derby.drda.nio): sessions parked between requests,
+ * more sessions than connection threads, and requests and replies larger than a DSS or the read-ahead buffer
+ * of a parked session. The mem platform starts a second server in this mode, on the port of
+ * splice.mem.nioNetworkPort, so the rest of the suite keeps the default mode.
+ */
+public class NetworkServerNIOIT {
+
+    private static final String NIO_URL = "jdbc:splice://localhost:1537/splicedb;create=true;user=%s;password=%s";
+
+    private static final String CLASS_NAME = NetworkServerNIOIT.class.getSimpleName().toUpperCase();
+    private static final SpliceWatcher spliceClassWatcher = new SpliceWatcher(CLASS_NAME);
+    private static final SpliceSchemaWatcher schemaWatcher = new SpliceSchemaWatcher(CLASS_NAME);
+    private static final SpliceTableWatcher BLOBS = new SpliceTableWatcher("BLOBS", schemaWatcher.schemaName,
+            "(id int, b blob(1M))");
+
+    @ClassRule
+    public static TestRule chain = RuleChain.outerRule(spliceClassWatcher)
+            .around(schemaWatcher)
+            .around(BLOBS);
+
+    @Rule
+    public SpliceWatcher methodWatcher = new SpliceWatcher(CLASS_NAME);
+
+    @Test(timeout = 300000)
+    public void idleSessionsDontHoldConnectionThreads() throws Exception {
+        int sessions = 64;
+        ExecutorService executor = Executors.newFixedThreadPool(sessions);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < sessions; i++) {
+                final int session = i;
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        int sum = 0;
+                        try (Connection conn = getNioConnection();
+                             PreparedStatement ps = conn.prepareStatement("values ? + 1")) {
+                            for (int request = 0; request < 10; request++) {
+                                ps.setInt(1, session * 10 + request);
+                                try (ResultSet rs = ps.executeQuery()) {
+                                    Assert.assertTrue(rs.next());
+                                    sum += rs.getInt(1);
+                                }
+                                // let the session be parked between requests
+                                Thread.sleep(50);
+                            }
+                        }
+                        return sum;
+                    }
+                }));
+            }
+            for (int i = 0; i < sessions; i++) {
+                int expected = 0;
+                for (int request = 0; request < 10; request++) {
+                    expected += i * 10 + request + 1;
+                }
+                Assert.assertEquals("Wrong results for session " + i, expected, (int) results.get(i).get());
+            }
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    @Test
+    public void largeRequestsAndRepliesRoundTrip() throws Exception {
+        // larger than a DSS, so sent in continuation segments, and than the read-ahead buffer
+        byte[] value = new byte[200 * 1024];
+        for (int i = 0; i < value.length; i++) {
+            value[i] = (byte) (i * 31);
+        }
+        try (Connection conn = getNioConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement("insert into " + BLOBS + " values (?, ?)")) {
+                for (int i = 0; i < 3; i++) {
+                    ps.setInt(1, i);
+                    ps.setBytes(2, value);
+                    ps.execute();
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement("select id, b from " + BLOBS + " order by id");
+                 ResultSet rs = ps.executeQuery()) {
+                for (int i = 0; i < 3; i++) {
+                    Assert.assertTrue("Missing row " + i, rs.next());
+                    Assert.assertEquals(i, rs.getInt(1));
+                    Assert.assertTrue("Wrong value for row " + i, Arrays.equals(value, rs.getBytes(2)));
+                }
+                Assert.assertFalse(rs.next());
+            }
+        }
+    }
+
+    private static Connection getNioConnection() throws Exception {
+        return SpliceNetConnection.getConnectionAs(NIO_URL,
+                SpliceNetConnection.DEFAULT_USER, SpliceNetConnection.DEFAULT_USER_PASSWORD);
+    }
+}
@@ -177,6 +177,12 @@ public class TxnPartition implements Partition{
         return basePartition.getLatest(key,previous);
     }
 
+    @Override
+    public DataResult[] batchGetLatest(List<byte[]> sortedKeys) throws IOException{
+        return basePartition.batchGetLatest(sortedKeys);
+    }
+
+
     @Override
     public Lock getRowLock(byte[] key,int keyOff,int keyLen) throws IOException{
         return basePartition.getRowLock(key,keyOff,keyLen);
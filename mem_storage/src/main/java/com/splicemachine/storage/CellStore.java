@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.storage;
+
+import com.splicemachine.collections.CloseableIterator;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The sorted collection of cells which backs an {@link MPartition}.
+ *
+ * Cells are ordered (and considered equal) according to {@link DataCell#compareTo(Object)}, which is to say
+ * by row key, family, qualifier and (descending) version. Adding a cell replaces any equal cell which is
+ * already present.
+ */
+interface CellStore{
+
+    /**
+     * Add the cells of a single mutation, replacing any equal cells.
+     *
+     * @param cells the cells to add. The cells must not be modified afterwards.
+     * @throws IOException if the cells cannot be stored
+     */
+    void add(List<DataCell> cells) throws IOException;
+
+    /**
+     * Remove the cells which are equal to the specified cells.
+     *
+     * @param cells the cells to remove
+     * @throws IOException if the removal cannot be stored
+     */
+    void remove(List<DataCell> cells) throws IOException;
+
+    /**
+     * Iterate over the cells in the range {@code [start,stop]}. A {@code null} bound means the range is
+     * unbounded on that side. Whether or not the bounds themselves are part of the range is specified by
+     * {@code startInclusive} and {@code stopInclusive}.
+     *
+     * Iteration is weakly consistent: cells added after the iterator is created may or may not be seen. The
+     * iterator must be closed when the caller is done with it.
+     *
+     * @param descending if {@code true}, iterate from {@code stop} down to {@code start}
+     */
+    CloseableIterator<DataCell> range(DataCell start,boolean startInclusive,
+                                      DataCell stop,boolean stopInclusive,
+                                      boolean descending) throws IOException;
+
+    void flush() throws IOException;
+
+    void compact(boolean major) throws IOException;
+
+    /**
+     * Close the store and remove all the data it holds.
+     */
+    void destroy() throws IOException;
+}
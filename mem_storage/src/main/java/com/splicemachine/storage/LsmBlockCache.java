@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.storage;
+
+import org.spark_project.guava.cache.Cache;
+import org.spark_project.guava.cache.CacheBuilder;
+import org.spark_project.guava.cache.Weigher;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A size-bounded LRU cache of decoded segment file blocks, shared by all the {@link LsmCellStore}s of a
+ * partition factory.
+ */
+@ThreadSafe
+final class LsmBlockCache{
+    private final Cache<BlockKey, LsmSegment.Block> cache;
+
+    LsmBlockCache(long maxSizeInBytes){
+        //weights are in KB, so that caches larger than 2GB can be expressed
+        this.cache=CacheBuilder.newBuilder()
+                .maximumWeight(Math.max(1L,maxSizeInBytes>>>10))
+                .weigher(new Weigher<BlockKey, LsmSegment.Block>(){
+                    @Override
+                    public int weigh(BlockKey key,LsmSegment.Block block){
+                        return (int)Math.max(1L,block.heapSize()>>>10);
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    LsmSegment.Block get(long segmentUid,int block,Callable<LsmSegment.Block> loader) throws IOException{
+        try{
+            return cache.get(new BlockKey(segmentUid,block),loader);
+        }catch(ExecutionException e){
+            Throwable cause=e.getCause();
+            if(cause instanceof IOException) throw (IOException)cause;
+            throw new IOException(cause);
+        }
+    }
+
+    void invalidate(long segmentUid,int numBlocks){
+        for(int i=0;i<numBlocks;i++){
+            cache.invalidate(new BlockKey(segmentUid,i));
+        }
+    }
+
+    long hitCount(){
+        return cache.stats().hitCount();
+    }
+
+    long missCount(){
+        return cache.stats().missCount();
+    }
+
+    private static final class BlockKey{
+        private final long segmentUid;
+        private final int block;
+
+        BlockKey(long segmentUid,int block){
+            this.segmentUid=segmentUid;
+            this.block=block;
+        }
+
+        @Override
+        public boolean equals(Object o){
+            if(this==o) return true;
+            if(!(o instanceof BlockKey)) return false;
+            BlockKey other=(BlockKey)o;
+            return segmentUid==other.segmentUid && block==other.block;
+        }
+
+        @Override
+        public int hashCode(){
+            return 31*(int)(segmentUid^(segmentUid>>>32))+block;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.storage;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Binary encoding of cells in the files of an {@link LsmCellStore}.
+ *
+ * A cell is encoded as
+ * <pre>
+ *     keyLength(int) key familyLength(int) family qualifierLength(int) qualifier
+ *     version(long) sequence(long) type(byte) valueLength(int) value
+ * </pre>
+ * where the high bit of the type byte marks a {@link DeleteMarker}.
+ */
+final class LsmCellCodec{
+    private static final CellType[] TYPES=CellType.values();
+    private static final int DELETE_FLAG=0x80;
+    private static final byte[] EMPTY=new byte[]{};
+
+    /**
+     * Estimated heap overhead of a cell, on top of its encoded length.
+     */
+    static final int CELL_OVERHEAD=96;
+
+    private LsmCellCodec(){}
+
+    static void write(DataCell cell,DataOutput out) throws IOException{
+        writeCoordinates(cell,out);
+        out.writeLong(sequence(cell));
+        int type=cell.dataType().ordinal();
+        if(cell instanceof DeleteMarker)
+            type|=DELETE_FLAG;
+        out.writeByte(type);
+        out.writeInt(cell.valueLength());
+        out.write(cell.valueArray(),cell.valueOffset(),cell.valueLength());
+    }
+
+    static MCell read(DataInput in) throws IOException{
+        byte[] key=readBytes(in);
+        byte[] family=readBytes(in);
+        byte[] qualifier=readBytes(in);
+        long version=in.readLong();
+        long sequence=in.readLong();
+        int type=in.readUnsignedByte();
+        byte[] value=readBytes(in);
+        CellType cellType=TYPES[type&~DELETE_FLAG];
+        MCell cell=(type&DELETE_FLAG)!=0
+                ?new DeleteMarker(key,family,qualifier,version,cellType)
+                :new MCell(key,family,qualifier,version,value,cellType);
+        cell.sequence(sequence);
+        return cell;
+    }
+
+    /**
+     * Write only the ordering part of a cell (key, family, qualifier and version).
+     */
+    static void writeCoordinates(DataCell cell,DataOutput out) throws IOException{
+        out.writeInt(cell.keyLength());
+        out.write(cell.keyArray(),cell.keyOffset(),cell.keyLength());
+        byte[] family=cell.family();
+        out.writeInt(family.length);
+        out.write(family);
+        byte[] qualifier=cell.qualifier();
+        out.writeInt(qualifier.length);
+        out.write(qualifier);
+        out.writeLong(cell.version());
+    }
+
+    static MCell readCoordinates(DataInput in) throws IOException{
+        byte[] key=readBytes(in);
+        byte[] family=readBytes(in);
+        byte[] qualifier=readBytes(in);
+        long version=in.readLong();
+        return new MCell(key,family,qualifier,version,EMPTY,CellType.OTHER);
+    }
+
+    static long sequence(DataCell cell){
+        return cell instanceof MCell?((MCell)cell).getSequence():0l;
+    }
+
+    static long heapSize(DataCell cell){
+        return cell.encodedLength()+CELL_OVERHEAD;
+    }
+
+    private static byte[] readBytes(DataInput in) throws IOException{
+        int length=in.readInt();
+        if(length<0)
+            throw new IOException("Corrupt cell: negative length "+length);
+        if(length==0) return EMPTY;
+        byte[] data=new byte[length];
+        in.readFully(data);
+        return data;
+    }
+
+    /**
+     * Marks the removal of an equal cell held in an older memstore or segment file. Delete markers are
+     * never returned to readers, and are dropped once a compaction has merged every older file.
+     */
+    static final class DeleteMarker extends MCell{
+        DeleteMarker(byte[] key,byte[] family,byte[] qualifier,long version,CellType cellType){
+            super(key,family,qualifier,version,EMPTY,cellType);
+        }
+
+        static DeleteMarker of(DataCell cell){
+            return new DeleteMarker(cell.key(),cell.family(),cell.qualifier(),cell.version(),cell.dataType());
+        }
+    }
+}
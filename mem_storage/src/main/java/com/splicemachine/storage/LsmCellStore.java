@@ -0,0 +1,451 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.storage;
+
+import com.splicemachine.collections.CloseableIterator;
+import org.apache.log4j.Logger;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A log-structured {@link CellStore} which spills to local disk, so that the in-memory storage engine can hold
+ * tables larger than the heap.
+ *
+ * Mutations are applied to an in-memory memstore. Once the memstore grows beyond the flush size, it is swapped
+ * for an empty one and written out by a background thread as an immutable, sorted
+ * {@link LsmSegment segment file}. When enough segments accumulate, a background compaction merges the newest
+ * ones into one. Removals are recorded as {@link LsmCellCodec.DeleteMarker delete markers}, which shadow older
+ * copies of the cell until a compaction merging all the segments drops them.
+ *
+ * Reads merge the active memstore, the memstore being flushed (if any) and the segments, newest first.
+ *
+ * The store is not durable: the engine's transactions and timestamps only live as long as the process, so
+ * the files can't be reopened by a later one, and there is neither a write-ahead log nor a record of the live
+ * segments. A store always starts out empty, and its files are removed when the table is dropped.
+ *
+ * If writers outpace the flushes, they are held back once the active memstore reaches several times the flush
+ * size, so the heap used by a store stays bounded.
+ */
+@ThreadSafe
+class LsmCellStore implements CellStore{
+    private static final Logger LOG=Logger.getLogger(LsmCellStore.class);
+    private static final String SEGMENT_PREFIX="seg-";
+    /*
+     * How many times the flush size the active memstore may grow to before writers wait for a flush.
+     */
+    private static final int BLOCKING_FLUSH_MULTIPLIER=4;
+    /*
+     * A minor compaction picks up an older segment only if it is at most this many times larger than the
+     * newer segments picked up with it, to avoid rewriting large segments over and over.
+     */
+    private static final double COMPACTION_RATIO=1.2d;
+
+    private final File directory;
+    private final long flushSize;
+    private final long blockingSize;
+    private final int compactionThreshold;
+    private final LsmBlockCache blockCache;
+    private final ExecutorService background;
+
+    /*
+     * Writers hold the read lock while they apply to the active memstore; replacing the active memstore (and the
+     * state in general) requires the write lock.
+     */
+    private final ReentrantReadWriteLock stateLock=new ReentrantReadWriteLock();
+    private final Object flushLock=new Object();
+    private final Object compactionLock=new Object();
+    private final Object flushCompleted=new Object();
+    private final AtomicBoolean flushScheduled=new AtomicBoolean(false);
+    private final AtomicBoolean compactionScheduled=new AtomicBoolean(false);
+    private final AtomicLong nextFileId=new AtomicLong(0l);
+
+    private volatile State state;
+    private volatile boolean closed;
+
+    private LsmCellStore(File directory,
+                         long flushSize,
+                         int compactionThreshold,
+                         LsmBlockCache blockCache,
+                         ExecutorService background) throws IOException{
+        this.directory=directory;
+        this.flushSize=flushSize;
+        this.blockingSize=flushSize>Long.MAX_VALUE/BLOCKING_FLUSH_MULTIPLIER?Long.MAX_VALUE:BLOCKING_FLUSH_MULTIPLIER*flushSize;
+        this.compactionThreshold=Math.max(2,compactionThreshold);
+        this.blockCache=blockCache;
+        this.background=background;
+
+        if(!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Unable to create directory "+directory);
+        this.state=new State(new Memstore(),null,Collections.<LsmSegment>emptyList());
+    }
+
+    /**
+     * Open a new, empty store which spills into the specified directory, creating it if it does not exist yet.
+     *
+     * @param flushSize the size (in bytes) of the memstore which triggers a flush
+     * @param compactionThreshold the number of segments which triggers a compaction
+     * @param blockCache the cache to read segment blocks through
+     * @param background the executor to run flushes and compactions on
+     */
+    static LsmCellStore open(File directory,
+                             long flushSize,
+                             int compactionThreshold,
+                             LsmBlockCache blockCache,
+                             ExecutorService background) throws IOException{
+        return new LsmCellStore(directory,flushSize,compactionThreshold,blockCache,background);
+    }
+
+    @Override
+    public void add(List<DataCell> cells) throws IOException{
+        write(cells);
+    }
+
+    @Override
+    public void remove(List<DataCell> cells) throws IOException{
+        List<DataCell> markers=new ArrayList<>(cells.size());
+        for(DataCell cell : cells){
+            markers.add(LsmCellCodec.DeleteMarker.of(cell));
+        }
+        write(markers);
+    }
+
+    @Override
+    public CloseableIterator<DataCell> range(DataCell start,boolean startInclusive,
+                                             DataCell stop,boolean stopInclusive,
+                                             boolean descending) throws IOException{
+        ensureOpen();
+        if(start!=null && stop!=null && stop.compareTo(start)<0){
+            return new MergingCellIterator(Collections.<Iterator<DataCell>>emptyList(),descending,false,Collections.<LsmSegment>emptyList());
+        }
+        while(true){
+            State s=state;
+            List<LsmSegment> retained=retainAll(s.segments);
+            if(retained==null) continue; //a compaction replaced the segments in the meantime, try again
+            try{
+                List<Iterator<DataCell>> sources=new ArrayList<>(s.segments.size()+2);
+                sources.add(s.active.iterator(start,startInclusive,stop,stopInclusive,descending));
+                if(s.flushing!=null)
+                    sources.add(s.flushing.iterator(start,startInclusive,stop,stopInclusive,descending));
+                for(LsmSegment segment : retained){
+                    sources.add(segment.iterator(start,startInclusive,stop,stopInclusive,descending));
+                }
+                return new MergingCellIterator(sources,descending,false,retained);
+            }catch(RuntimeException e){
+                for(LsmSegment segment : retained){
+                    segment.release();
+                }
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException{
+        synchronized(flushLock){
+            Memstore toFlush;
+            List<LsmSegment> olderSegments;
+            stateLock.writeLock().lock();
+            try{
+                if(closed) return;
+                flushScheduled.set(false);
+                State s=state;
+                //retry a flush which failed before switching to yet another memstore
+                toFlush=s.flushing;
+                if(toFlush==null){
+                    if(s.active.cells.isEmpty()) return;
+                    toFlush=s.active;
+                    state=new State(new Memstore(),toFlush,s.segments);
+                }
+                olderSegments=state.segments;
+            }finally{
+                stateLock.writeLock().unlock();
+            }
+
+            long segmentId=nextFileId.getAndIncrement();
+            //delete markers only need to be kept if there is older data for them to shadow
+            LsmSegment segment=LsmSegment.write(segmentId,segmentFile(segmentId),toFlush.cells.values().iterator(),
+                    !olderSegments.isEmpty(),blockCache);
+            stateLock.writeLock().lock();
+            try{
+                State s=state;
+                List<LsmSegment> segments=new ArrayList<>(s.segments.size()+1);
+                if(segment!=null)
+                    segments.add(segment);
+                segments.addAll(s.segments);
+                state=new State(s.active,null,Collections.unmodifiableList(segments));
+            }finally{
+                stateLock.writeLock().unlock();
+            }
+            if(LOG.isDebugEnabled())
+                LOG.debug("Flushed "+toFlush.cells.size()+" cells of "+directory+" into segment "+segmentId);
+        }
+        synchronized(flushCompleted){
+            flushCompleted.notifyAll();
+        }
+        if(state.segments.size()>=compactionThreshold)
+            scheduleCompaction();
+    }
+
+    @Override
+    public void compact(boolean major) throws IOException{
+        synchronized(compactionLock){
+            if(closed) return;
+            compactionScheduled.set(false);
+            List<LsmSegment> all=state.segments;
+            List<LsmSegment> inputs=major?all:selectForCompaction(all);
+            if(inputs.isEmpty()) return;
+            if(inputs.size()==1 && !(major && inputs.get(0).hasDeleteMarkers())) return;
+
+            //only compactions retire segments, so the inputs remain open while they are merged
+            boolean includesOldest=inputs.get(inputs.size()-1)==all.get(all.size()-1);
+            List<Iterator<DataCell>> sources=new ArrayList<>(inputs.size());
+            for(LsmSegment segment : inputs){
+                sources.add(segment.iterator(null,true,null,true,false));
+            }
+            MergingCellIterator merged=new MergingCellIterator(sources,false,!includesOldest,Collections.<LsmSegment>emptyList());
+            long segmentId=nextFileId.getAndIncrement();
+            LsmSegment output=LsmSegment.write(segmentId,segmentFile(segmentId),merged,!includesOldest,blockCache);
+
+            stateLock.writeLock().lock();
+            try{
+                State s=state;
+                //flushes only ever add newer segments, so the inputs are still contiguous
+                List<LsmSegment> segments=new ArrayList<>(s.segments);
+                int position=segments.indexOf(inputs.get(0));
+                segments.subList(position,position+inputs.size()).clear();
+                if(output!=null)
+                    segments.add(position,output);
+                state=new State(s.active,s.flushing,Collections.unmodifiableList(segments));
+            }finally{
+                stateLock.writeLock().unlock();
+            }
+            for(LsmSegment input : inputs){
+                input.retire();
+            }
+            if(LOG.isDebugEnabled())
+                LOG.debug("Compacted "+inputs.size()+" segments of "+directory+" into segment "+segmentId);
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException{
+        close();
+        File[] files=directory.listFiles();
+        if(files!=null){
+            for(File file : files){
+                delete(file);
+            }
+        }
+        delete(directory);
+    }
+
+    /**
+     * Close the store, releasing its segments. Its files are left in place until the store is destroyed.
+     */
+    void close() throws IOException{
+        synchronized(flushLock){
+            synchronized(compactionLock){
+                State s;
+                stateLock.writeLock().lock();
+                try{
+                    if(closed) return;
+                    closed=true;
+                    s=state;
+                }finally{
+                    stateLock.writeLock().unlock();
+                }
+                for(LsmSegment segment : s.segments){
+                    segment.release();
+                }
+            }
+        }
+        synchronized(flushCompleted){
+            flushCompleted.notifyAll();
+        }
+    }
+
+    int segmentCount(){
+        return state.segments.size();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void write(List<DataCell> cells) throws IOException{
+        awaitFlush();
+        Memstore active;
+        stateLock.readLock().lock();
+        try{
+            ensureOpen();
+            active=state.active;
+            for(DataCell cell : cells){
+                active.add(cell);
+            }
+        }finally{
+            stateLock.readLock().unlock();
+        }
+        if(active.heapSize.get()>=flushSize)
+            scheduleFlush();
+    }
+
+    private void awaitFlush() throws IOException{
+        if(state.active.heapSize.get()<blockingSize) return;
+        synchronized(flushCompleted){
+            while(!closed && state.active.heapSize.get()>=blockingSize){
+                scheduleFlush();
+                try{
+                    flushCompleted.wait(100l);
+                }catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for a flush of "+directory);
+                }
+            }
+        }
+    }
+
+    private void scheduleFlush(){
+        if(closed || !flushScheduled.compareAndSet(false,true)) return;
+        try{
+            background.execute(new Runnable(){
+                @Override
+                public void run(){
+                    try{
+                        flush();
+                    }catch(Throwable t){
+                        flushScheduled.set(false);
+                        LOG.error("Unable to flush "+directory,t);
+                    }
+                }
+            });
+        }catch(RejectedExecutionException e){
+            flushScheduled.set(false);
+        }
+    }
+
+    private void scheduleCompaction(){
+        if(closed || !compactionScheduled.compareAndSet(false,true)) return;
+        try{
+            background.execute(new Runnable(){
+                @Override
+                public void run(){
+                    try{
+                        compact(false);
+                    }catch(Throwable t){
+                        compactionScheduled.set(false);
+                        LOG.error("Unable to compact "+directory,t);
+                    }
+                }
+            });
+        }catch(RejectedExecutionException e){
+            compactionScheduled.set(false);
+        }
+    }
+
+    /**
+     * Pick the segments for a minor compaction: the longest run of newest segments in which the oldest segment
+     * is not much larger than the others combined.
+     */
+    private List<LsmSegment> selectForCompaction(List<LsmSegment> segments){
+        if(segments.size()<compactionThreshold) return Collections.emptyList();
+        long newer=0l;
+        long[] newerSizes=new long[segments.size()];
+        for(int i=0;i<segments.size();i++){
+            newerSizes[i]=newer;
+            newer+=segments.get(i).sizeInBytes();
+        }
+        for(int end=segments.size();end>=2;end--){
+            if(segments.get(end-1).sizeInBytes()<=COMPACTION_RATIO*newerSizes[end-1])
+                return segments.subList(0,end);
+        }
+        return segments.subList(0,compactionThreshold);
+    }
+
+    private List<LsmSegment> retainAll(List<LsmSegment> segments){
+        List<LsmSegment> retained=new ArrayList<>(segments.size());
+        for(LsmSegment segment : segments){
+            if(!segment.retain()){
+                for(LsmSegment r : retained){
+                    r.release();
+                }
+                return null;
+            }
+            retained.add(segment);
+        }
+        return retained;
+    }
+
+    private void ensureOpen() throws IOException{
+        if(closed)
+            throw new IOException("Store "+directory+" is closed");
+    }
+
+    private File segmentFile(long id){
+        return new File(directory,SEGMENT_PREFIX+id);
+    }
+
+    private static void delete(File file){
+        if(!file.delete() && file.exists())
+            LOG.warn("Unable to delete "+file);
+    }
+
+    private static final class State{
+        private final Memstore active;
+        private final Memstore flushing;
+        private final List<LsmSegment> segments; //newest first
+
+        State(Memstore active,Memstore flushing,List<LsmSegment> segments){
+            this.active=active;
+            this.flushing=flushing;
+            this.segments=segments;
+        }
+    }
+
+    private static final class Memstore{
+        /*
+         * Putting an equal cell replaces the value but not the key, so the cells are read from the values.
+         */
+        private final ConcurrentSkipListMap<DataCell, DataCell> cells=new ConcurrentSkipListMap<>();
+        private final AtomicLong heapSize=new AtomicLong(0l);
+
+        void add(DataCell cell){
+            cells.put(cell,cell);
+            heapSize.addAndGet(LsmCellCodec.heapSize(cell));
+        }
+
+        Iterator<DataCell> iterator(DataCell start,boolean startInclusive,DataCell stop,boolean stopInclusive,boolean descending){
+            NavigableMap<DataCell, DataCell> range;
+            if(start==null){
+                range=stop==null?cells:cells.headMap(stop,stopInclusive);
+            }else if(stop==null){
+                range=cells.tailMap(start,startInclusive);
+            }else
+                range=cells.subMap(start,startInclusive,stop,stopInclusive);
+            return (descending?range.descendingMap():range).values().iterator();
+        }
+    }
+}
@@ -0,0 +1,505 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.storage;
+
+import org.apache.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * An immutable, sorted file of cells written by a flush or a compaction of an {@link LsmCellStore}.
+ *
+ * The file is a sequence of checksummed blocks of roughly {@link #BLOCK_SIZE} bytes of encoded cells, followed
+ * by an index holding the offset, length, checksum and first cell of each block, and a fixed-size footer. The
+ * index is kept on the heap while the segment is open; blocks are read on demand through the
+ * {@link LsmBlockCache}.
+ *
+ * Segments are reference counted: the store holds one reference for as long as the segment is live, and each
+ * open iterator holds another. The file is deleted once the segment has been replaced by a compaction and the
+ * last iterator over it is closed.
+ */
+final class LsmSegment{
+    private static final Logger LOG=Logger.getLogger(LsmSegment.class);
+    private static final int MAGIC=0x4c534d31; //"LSM1"
+    private static final int FOOTER_SIZE=8+8+4+4;
+    private static final int HAS_DELETE_MARKERS=1;
+    private static final AtomicLong UIDS=new AtomicLong(0l);
+
+    static final int BLOCK_SIZE=64*1024;
+
+    private final long uid=UIDS.incrementAndGet();
+    private final long id;
+    private final File file;
+    private final FileChannel channel;
+    private final LsmBlockCache blockCache;
+    private final long[] blockOffsets;
+    private final int[] blockLengths;
+    private final int[] blockChecksums;
+    private final int[] blockCellCounts;
+    private final DataCell[] firstCells;
+    private final long cellCount;
+    private final boolean hasDeleteMarkers;
+    private final AtomicInteger refCount=new AtomicInteger(1);
+    private volatile boolean retired;
+
+    private LsmSegment(long id,File file,LsmBlockCache blockCache) throws IOException{
+        this.id=id;
+        this.file=file;
+        this.blockCache=blockCache;
+        this.channel=FileChannel.open(file.toPath(),StandardOpenOption.READ);
+        try{
+            long size=channel.size();
+            if(size<FOOTER_SIZE)
+                throw new IOException("Segment file "+file+" is truncated");
+            DataInputStream footer=new DataInputStream(new ByteArrayInputStream(read(size-FOOTER_SIZE,FOOTER_SIZE)));
+            long indexOffset=footer.readLong();
+            this.cellCount=footer.readLong();
+            this.hasDeleteMarkers=(footer.readInt()&HAS_DELETE_MARKERS)!=0;
+            if(footer.readInt()!=MAGIC || indexOffset<0 || indexOffset>size-FOOTER_SIZE)
+                throw new IOException("Segment file "+file+" is corrupt");
+
+            DataInputStream index=new DataInputStream(new ByteArrayInputStream(read(indexOffset,(int)(size-FOOTER_SIZE-indexOffset))));
+            int numBlocks=index.readInt();
+            this.blockOffsets=new long[numBlocks];
+            this.blockLengths=new int[numBlocks];
+            this.blockChecksums=new int[numBlocks];
+            this.blockCellCounts=new int[numBlocks];
+            this.firstCells=new DataCell[numBlocks];
+            for(int i=0;i<numBlocks;i++){
+                blockOffsets[i]=index.readLong();
+                blockLengths[i]=index.readInt();
+                blockChecksums[i]=index.readInt();
+                blockCellCounts[i]=index.readInt();
+                firstCells[i]=LsmCellCodec.readCoordinates(index);
+            }
+        }catch(IOException e){
+            channel.close();
+            throw e;
+        }
+    }
+
+    static LsmSegment open(long id,File file,LsmBlockCache blockCache) throws IOException{
+        return new LsmSegment(id,file,blockCache);
+    }
+
+    /**
+     * Write the cells into a new segment file, which only becomes visible under its final name once it has been
+     * completely written.
+     *
+     * @param cells the cells to write, in ascending order
+     * @param keepDeleteMarkers whether {@link LsmCellCodec.DeleteMarker}s should be written, or dropped
+     * @return the new segment, or {@code null} if there was nothing to write
+     */
+    static LsmSegment write(long id,File file,Iterator<DataCell> cells,boolean keepDeleteMarkers,LsmBlockCache blockCache) throws IOException{
+        File tmp=new File(file.getParentFile(),file.getName()+".tmp");
+        Writer writer=new Writer(tmp);
+        try{
+            while(cells.hasNext()){
+                DataCell cell=cells.next();
+                if(!keepDeleteMarkers && cell instanceof LsmCellCodec.DeleteMarker) continue;
+                writer.append(cell);
+            }
+            writer.finish();
+        }catch(IOException|RuntimeException e){
+            writer.abort();
+            throw e;
+        }
+        if(writer.cellCount==0){
+            Files.delete(tmp.toPath());
+            return null;
+        }
+        Files.move(tmp.toPath(),file.toPath(),StandardCopyOption.ATOMIC_MOVE);
+        return open(id,file,blockCache);
+    }
+
+    long id(){
+        return id;
+    }
+
+    long cellCount(){
+        return cellCount;
+    }
+
+    long sizeInBytes(){
+        return file.length();
+    }
+
+    boolean hasDeleteMarkers(){
+        return hasDeleteMarkers;
+    }
+
+    /**
+     * Acquire a reference to this segment.
+     *
+     * @return {@code false} if the segment has already been released for good, and may not be read
+     */
+    boolean retain(){
+        int count;
+        do{
+            count=refCount.get();
+            if(count<=0) return false;
+        }while(!refCount.compareAndSet(count,count+1));
+        return true;
+    }
+
+    /**
+     * Release a reference to this segment. When the last reference is released the file is closed and, if the
+     * segment has been {@link #retire() retired}, deleted.
+     */
+    void release(){
+        if(refCount.decrementAndGet()!=0) return;
+        blockCache.invalidate(uid,firstCells.length);
+        try{
+            channel.close();
+        }catch(IOException e){
+            LOG.warn("Unable to close segment file "+file,e);
+        }
+        if(retired && !file.delete() && file.exists())
+            LOG.warn("Unable to delete segment file "+file);
+    }
+
+    /**
+     * Release the store's reference to a segment which has been replaced by a compaction, so that the file is
+     * deleted once no iterator uses it any more.
+     */
+    void retire(){
+        retired=true;
+        release();
+    }
+
+    /**
+     * Iterate over the cells in the range {@code [start,stop]}, as described by {@link CellStore#range}. The caller
+     * must hold a reference to the segment for as long as it uses the iterator.
+     */
+    Iterator<DataCell> iterator(DataCell start,boolean startInclusive,DataCell stop,boolean stopInclusive,boolean descending){
+        if(firstCells.length==0) return EmptyIterator.INSTANCE;
+        return descending
+                ?new DescendingIterator(start,startInclusive,stop,stopInclusive)
+                :new AscendingIterator(start,startInclusive,stop,stopInclusive);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private Block block(final int block) throws IOException{
+        return blockCache.get(uid,block,new Callable<Block>(){
+            @Override
+            public Block call() throws IOException{
+                return loadBlock(block);
+            }
+        });
+    }
+
+    private Block loadBlock(int block) throws IOException{
+        byte[] data=read(blockOffsets[block],blockLengths[block]);
+        CRC32 crc=new CRC32();
+        crc.update(data,0,data.length);
+        if((int)crc.getValue()!=blockChecksums[block])
+            throw new IOException("Checksum mismatch in block "+block+" of segment file "+file);
+        DataInputStream in=new DataInputStream(new ByteArrayInputStream(data));
+        DataCell[] cells=new DataCell[blockCellCounts[block]];
+        for(int i=0;i<cells.length;i++){
+            cells[i]=LsmCellCodec.read(in);
+        }
+        return new Block(cells,data.length+(long)cells.length*LsmCellCodec.CELL_OVERHEAD);
+    }
+
+    private byte[] read(long position,int length) throws IOException{
+        ByteBuffer buffer=ByteBuffer.allocate(length);
+        while(buffer.hasRemaining()){
+            int read=channel.read(buffer,position+buffer.position());
+            if(read<0)
+                throw new EOFException("Unexpected end of segment file "+file);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @return the last block whose first cell is {@code <=} the cell, or 0 if there is none
+     */
+    private int findBlock(DataCell cell){
+        int low=0;
+        int high=firstCells.length-1;
+        int found=0;
+        while(low<=high){
+            int mid=(low+high)>>>1;
+            if(firstCells[mid].compareTo(cell)<=0){
+                found=mid;
+                low=mid+1;
+            }else high=mid-1;
+        }
+        return found;
+    }
+
+    /**
+     * @return the position of the first cell which is {@code >=} the bound ({@code >} if not inclusive)
+     */
+    private static int ceiling(DataCell[] cells,DataCell bound,boolean inclusive){
+        int low=0;
+        int high=cells.length;
+        while(low<high){
+            int mid=(low+high)>>>1;
+            int c=cells[mid].compareTo(bound);
+            if(c<0 || (c==0 && !inclusive)) low=mid+1;
+            else high=mid;
+        }
+        return low;
+    }
+
+    static final class Block{
+        private final DataCell[] cells;
+        private final long heapSize;
+
+        Block(DataCell[] cells,long heapSize){
+            this.cells=cells;
+            this.heapSize=heapSize;
+        }
+
+        long heapSize(){
+            return heapSize;
+        }
+    }
+
+    private abstract class BlockIterator implements Iterator<DataCell>{
+        DataCell[] cells;
+        int block;
+        int position;
+        private DataCell next;
+        private boolean done;
+
+        @Override
+        public boolean hasNext(){
+            if(next!=null) return true;
+            if(done) return false;
+            try{
+                next=advance();
+            }catch(IOException e){
+                throw new RuntimeException(e);
+            }
+            if(next==null) done=true;
+            return next!=null;
+        }
+
+        @Override
+        public DataCell next(){
+            if(!hasNext()) throw new NoSuchElementException();
+            DataCell n=next;
+            next=null;
+            return n;
+        }
+
+        @Override
+        public void remove(){
+            throw new UnsupportedOperationException();
+        }
+
+        abstract DataCell advance() throws IOException;
+    }
+
+    private class AscendingIterator extends BlockIterator{
+        private final DataCell stop;
+        private final boolean stopInclusive;
+
+        AscendingIterator(DataCell start,boolean startInclusive,DataCell stop,boolean stopInclusive){
+            this.stop=stop;
+            this.stopInclusive=stopInclusive;
+            if(start==null){
+                block=0;
+                position=0;
+            }else{
+                block=findBlock(start);
+                try{
+                    cells=block(block).cells;
+                }catch(IOException e){
+                    throw new RuntimeException(e);
+                }
+                position=ceiling(cells,start,startInclusive);
+            }
+        }
+
+        @Override
+        DataCell advance() throws IOException{
+            if(cells==null || position>=cells.length){
+                if(cells!=null) block++;
+                if(block>=firstCells.length) return null;
+                cells=block(block).cells;
+                position=0;
+            }
+            DataCell cell=cells[position++];
+            if(stop!=null){
+                int c=cell.compareTo(stop);
+                if(c>0 || (c==0 && !stopInclusive)) return null;
+            }
+            return cell;
+        }
+    }
+
+    private class DescendingIterator extends BlockIterator{
+        private final DataCell start;
+        private final boolean startInclusive;
+
+        DescendingIterator(DataCell start,boolean startInclusive,DataCell stop,boolean stopInclusive){
+            this.start=start;
+            this.startInclusive=startInclusive;
+            block=stop==null?firstCells.length-1:findBlock(stop);
+            try{
+                cells=block(block).cells;
+            }catch(IOException e){
+                throw new RuntimeException(e);
+            }
+            //the position of the last cell <= stop (or < stop, if not inclusive)
+            position=stop==null?cells.length-1:ceiling(cells,stop,!stopInclusive)-1;
+        }
+
+        @Override
+        DataCell advance() throws IOException{
+            while(position<0){
+                block--;
+                if(block<0) return null;
+                cells=block(block).cells;
+                position=cells.length-1;
+            }
+            DataCell cell=cells[position--];
+            if(start!=null){
+                int c=cell.compareTo(start);
+                if(c<0 || (c==0 && !startInclusive)) return null;
+            }
+            return cell;
+        }
+    }
+
+    private static final class EmptyIterator implements Iterator<DataCell>{
+        private static final EmptyIterator INSTANCE=new EmptyIterator();
+
+        @Override public boolean hasNext(){ return false; }
+        @Override public DataCell next(){ throw new NoSuchElementException(); }
+        @Override public void remove(){ throw new UnsupportedOperationException(); }
+    }
+
+    private static final class Writer{
+        private final File file;
+        private final DataOutputStream out;
+        private final BlockBuffer blockBuffer=new BlockBuffer();
+        private final DataOutputStream blockOut=new DataOutputStream(blockBuffer);
+        private final List<BlockInfo> blocks=new ArrayList<>();
+        private long offset;
+        private long cellCount;
+        private boolean hasDeleteMarkers;
+        private DataCell blockFirstCell;
+        private int blockCellCount;
+
+        Writer(File file) throws IOException{
+            this.file=file;
+            this.out=new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file),BLOCK_SIZE));
+        }
+
+        void append(DataCell cell) throws IOException{
+            if(blockFirstCell==null)
+                blockFirstCell=cell;
+            LsmCellCodec.write(cell,blockOut);
+            blockCellCount++;
+            cellCount++;
+            hasDeleteMarkers|=cell instanceof LsmCellCodec.DeleteMarker;
+            if(blockBuffer.size()>=BLOCK_SIZE)
+                finishBlock();
+        }
+
+        void finish() throws IOException{
+            finishBlock();
+            long indexOffset=offset;
+            out.writeInt(blocks.size());
+            for(BlockInfo block : blocks){
+                out.writeLong(block.offset);
+                out.writeInt(block.length);
+                out.writeInt(block.checksum);
+                out.writeInt(block.cellCount);
+                LsmCellCodec.writeCoordinates(block.firstCell,out);
+            }
+            out.writeLong(indexOffset);
+            out.writeLong(cellCount);
+            out.writeInt(hasDeleteMarkers?HAS_DELETE_MARKERS:0);
+            out.writeInt(MAGIC);
+            out.close();
+        }
+
+        void abort(){
+            try{
+                out.close();
+            }catch(IOException e){
+                LOG.warn("Unable to close segment file "+file,e);
+            }
+            if(!file.delete() && file.exists())
+                LOG.warn("Unable to delete incomplete segment file "+file);
+        }
+
+        private void finishBlock() throws IOException{
+            if(blockCellCount==0) return;
+            CRC32 crc=new CRC32();
+            crc.update(blockBuffer.buffer(),0,blockBuffer.size());
+            blocks.add(new BlockInfo(offset,blockBuffer.size(),(int)crc.getValue(),blockCellCount,blockFirstCell));
+            out.write(blockBuffer.buffer(),0,blockBuffer.size());
+            offset+=blockBuffer.size();
+            blockBuffer.reset();
+            blockFirstCell=null;
+            blockCellCount=0;
+        }
+    }
+
+    private static final class BlockInfo{
+        private final long offset;
+        private final int length;
+        private final int checksum;
+        private final int cellCount;
+        private final DataCell firstCell;
+
+        BlockInfo(long offset,int length,int checksum,int cellCount,DataCell firstCell){
+            this.offset=offset;
+            this.length=length;
+            this.checksum=checksum;
+            this.cellCount=cellCount;
+            this.firstCell=firstCell;
+        }
+    }
+
+    private static class BlockBuffer extends ByteArrayOutputStream{
+        BlockBuffer(){
+            super(BLOCK_SIZE+BLOCK_SIZE/4);
+        }
+
+        byte[] buffer(){
+            return buf;
+        }
+    }
+}
@@ -15,11 +15,7 @@
 package com.splicemachine.storage;
 
 import com.splicemachine.access.util.ByteComparisons;
-import org.spark_project.guava.base.Predicate;
-import org.spark_project.guava.collect.BiMap;
-import org.spark_project.guava.collect.HashBiMap;
-import org.spark_project.guava.collect.Sets;
-import com.splicemachine.collections.EmptyNavigableSet;
+import com.splicemachine.collections.CloseableIterator;
 import com.splicemachine.kvpair.KVPair;
 import com.splicemachine.metrics.MetricFactory;
 import com.splicemachine.metrics.Metrics;
@@ -27,17 +23,11 @@ import com.splicemachine.primitives.Bytes;
 import com.splicemachine.si.constants.SIConstants;
 import com.splicemachine.storage.util.MappedDataResultScanner;
 import com.splicemachine.utils.Pair;
-import javax.annotation.Nonnull;
 import javax.annotation.concurrent.ThreadSafe;
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.util.*;
-import java.util.concurrent.ConcurrentSkipListSet;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * @author Scott Fines
@@ -49,16 +39,21 @@ public class MPartition implements Partition{
     private final String tableName;
     private final PartitionServer owner;
 
-    private final ConcurrentSkipListSet<DataCell> memstore=new ConcurrentSkipListSet<>();
-    private final BiMap<ByteBuffer, Lock> lockMap=HashBiMap.create();
+    private final CellStore store;
+    private final RowLockTable rowLocks=new RowLockTable();
     private AtomicLong writes=new AtomicLong(0l);
     private AtomicLong reads=new AtomicLong(0l);
-    private AtomicLong sequenceGen = new AtomicLong(0l);
+    private final AtomicLong sequenceGen=new AtomicLong(0l);
 
     public MPartition(String tableName,String partitionName){
+        this(tableName,partitionName,new MemCellStore());
+    }
+
+    MPartition(String tableName,String partitionName,CellStore store){
         this.partitionName=partitionName;
         this.tableName=tableName;
         this.owner=new MPartitionServer();
+        this.store=store;
     }
 
     @Override
@@ -92,15 +87,9 @@ public class MPartition implements Partition{
     public DataResult get(final DataGet get,DataResult previous) throws IOException{
         DataCell start=new MCell(get.key(),new byte[]{},new byte[]{},get.highTimestamp(),new byte[]{},CellType.USER_DATA);
 
-        Set<DataCell> data=Sets.filter(memstore.tailSet(start,true),new Predicate<DataCell>(){
-            @Override
-            public boolean apply(DataCell dataCell){
-                byte[] key=get.key();
-                return Bytes.equals(dataCell.keyArray(),dataCell.keyOffset(),dataCell.keyLength(),key,0,key.length);
-            }
-        });
         long curSeq = sequenceGen.get();
-        try(SetScanner ss=new SetScanner(curSeq,data.iterator(),get.lowTimestamp(),get.highTimestamp(),get.filter(),this,Metrics.noOpMetricFactory())){
+        CloseableIterator<DataCell> data=store.range(start,true,rowEnd(get.key()),false,false);
+        try(SetScanner ss=new SetScanner(curSeq,data,get.lowTimestamp(),get.highTimestamp(),get.filter(),this,Metrics.noOpMetricFactory())){
             List<DataCell> toReturn=ss.next(-1);
             if(toReturn.size()<=0) return null;
 
@@ -126,16 +115,18 @@ public class MPartition implements Partition{
         DataCell start=new MCell(rowKey,family,new byte[]{},Long.MAX_VALUE,new byte[]{},CellType.USER_DATA);
         DataCell end=new MCell(rowKey,family,SIConstants.SNAPSHOT_ISOLATION_FK_COUNTER_COLUMN_BYTES,0l,new byte[]{},CellType.USER_DATA);
 
-        Set<DataCell> data=memstore.subSet(start,true,end,true);
-        List<DataCell> toReturn=new ArrayList<>(data.size());
-        DataCell last=null;
-        for(DataCell d : data){
-            if(last==null){
-                toReturn.add(d);
-            }else if(d.dataType()!=last.dataType()){
-                toReturn.add(d);
+        List<DataCell> toReturn=new ArrayList<>();
+        try(CloseableIterator<DataCell> data=store.range(start,true,end,true,false)){
+            DataCell last=null;
+            while(data.hasNext()){
+                DataCell d=data.next();
+                if(last==null){
+                    toReturn.add(d);
+                }else if(d.dataType()!=last.dataType()){
+                    toReturn.add(d);
+                }
+                last=d;
             }
-            last=d;
         }
 
         if(previous==null)
@@ -153,10 +144,8 @@ public class MPartition implements Partition{
 
     @Override
     public DataScanner openScanner(DataScan scan,MetricFactory metricFactory) throws IOException{
-        NavigableSet<DataCell> dataCells=getAscendingScanSet(scan);
-        Iterator<DataCell> iter = scan.isDescendingScan()? dataCells.descendingIterator(): dataCells.iterator();
-
         long curSeq = sequenceGen.get();
+        CloseableIterator<DataCell> iter=openScanRange(scan);
         return new SetScanner(curSeq,iter,scan.lowVersion(),scan.highVersion(),scan.getFilter(),this,metricFactory);
     }
 
@@ -253,16 +242,18 @@ public class MPartition implements Partition{
         DataCell s=new MCell(key,SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_FK_COUNTER_COLUMN_BYTES,Long.MAX_VALUE,new byte[]{},CellType.FOREIGN_KEY_COUNTER);
         DataCell e=new MCell(key,SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_FK_COUNTER_COLUMN_BYTES,0l,new byte[]{},CellType.FOREIGN_KEY_COUNTER);
 
-        NavigableSet<DataCell> dataCells=memstore.subSet(s,true,e,true);
-        List<DataCell> results=new ArrayList<>(dataCells.size());
-        DataCell lastResult=null;
-        for(DataCell dc : dataCells){
-            if(lastResult==null){
-                results.add(dc);
-                lastResult=dc;
-            }else if(!dc.matchesQualifier(lastResult.family(),lastResult.qualifier())){
-                results.add(dc);
-                lastResult=dc;
+        List<DataCell> results=new ArrayList<>();
+        try(CloseableIterator<DataCell> dataCells=store.range(s,true,e,true,false)){
+            DataCell lastResult=null;
+            while(dataCells.hasNext()){
+                DataCell dc=dataCells.next();
+                if(lastResult==null){
+                    results.add(dc);
+                    lastResult=dc;
+                }else if(!dc.matchesQualifier(lastResult.family(),lastResult.qualifier())){
+                    results.add(dc);
+                    lastResult=dc;
+                }
             }
         }
 //        if(results.size()<=0)
@@ -275,33 +266,37 @@ public class MPartition implements Partition{
         DataCell s=new MCell(key,new byte[]{},new byte[]{},Long.MAX_VALUE,new byte[]{},CellType.USER_DATA);
         DataCell e=new MCell(key,SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_FK_COUNTER_COLUMN_BYTES,0l,new byte[]{},CellType.USER_DATA);
 
-        NavigableSet<DataCell> dataCells=memstore.subSet(s,true,e,true);
-        List<DataCell> results=new ArrayList<>(dataCells.size());
-        DataCell lastResult=null;
-        for(DataCell dc : dataCells){
-            if(lastResult==null){
-                results.add(dc);
-                lastResult=dc;
-            }else if(!dc.matchesQualifier(lastResult.family(),lastResult.qualifier())){
-                results.add(dc);
-                lastResult=dc;
+        List<DataCell> results=new ArrayList<>();
+        try(CloseableIterator<DataCell> dataCells=store.range(s,true,e,true,false)){
+            DataCell lastResult=null;
+            while(dataCells.hasNext()){
+                DataCell dc=dataCells.next();
+                if(lastResult==null){
+                    results.add(dc);
+                    lastResult=dc;
+                }else if(!dc.matchesQualifier(lastResult.family(),lastResult.qualifier())){
+                    results.add(dc);
+                    lastResult=dc;
+                }
             }
         }
         return new MResult(results);
     }
 
     @Override
-    public Lock getRowLock(byte[] key,int keyOff,int keyLen) throws IOException{
-        final ByteBuffer wrap=ByteBuffer.wrap(key,keyOff,keyLen);
-        Lock lock;
-        synchronized(lockMap){
-            lock=lockMap.get(wrap);
-            if(lock==null){
-                lock=new MemLock(wrap);
-                lockMap.put(wrap,lock);
-            }
+    public DataResult[] batchGetLatest(List<byte[]> sortedKeys) throws IOException{
+        //each lookup is a single seek into the sorted cell store, so there is nothing to save over individual lookups
+        DataResult[] results=new DataResult[sortedKeys.size()];
+        for(int i=0;i<results.length;i++){
+            results[i]=getLatest(sortedKeys.get(i),null);
         }
-        return lock;
+        return results;
+    }
+
+
+    @Override
+    public Lock getRowLock(byte[] key,int keyOff,int keyLen) throws IOException{
+        return rowLocks.getLock(key,keyOff,keyLen);
     }
 
     @Override
@@ -416,86 +411,35 @@ public class MPartition implements Partition{
 
     @Override
     public void compact(boolean isMajor) throws IOException{
-        //no-op--memory does not perform compactions
+        store.compact(isMajor);
     }
 
     @Override
     public void flush() throws IOException{
-        //no-op--memory does not perform flush
+        store.flush();
     }
 
-    /* ****************************************************************************************************************/
-    /*private helper methods*/
-    private class MemLock implements Lock{
-        private ByteBuffer key;
-        private final Lock lock;
-        private int lockCount=0;
-
-        public MemLock(ByteBuffer key){
-            this.key=key;
-            this.lock=new ReentrantLock();
-        }
-
-        @Override
-        public void lock(){
-            lock.lock();
-            lockCount++;
-        }
-
-        @Override
-        public void lockInterruptibly() throws InterruptedException{
-            lock.lockInterruptibly();
-            lockCount++;
-        }
-
-        @Override
-        public boolean tryLock(){
-            if(lock.tryLock()){
-                lockCount++;
-                return true;
-            }else return false;
-        }
-
-        @Override
-        public boolean tryLock(long time,@Nonnull TimeUnit unit) throws InterruptedException{
-            if(lock.tryLock(time,unit)){
-                lockCount++;
-                return true;
-            }else return false;
-        }
-
-        @Override
-        public void unlock(){
-            lockCount--;
-            if(lockCount==0){
-                synchronized(lockMap){
-                    lockMap.remove(key);
-                }
-            }
-            lock.unlock();
-        }
-
-        @Override
-        @Nonnull
-        public Condition newCondition(){
-            return lock.newCondition();
-        }
+    /**
+     * Drop the partition, removing all of its data.
+     */
+    void destroy() throws IOException{
+        store.destroy();
     }
 
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
     private void put(MPut mPut) throws IOException{
         long seq = sequenceGen.incrementAndGet();
         Lock lock=getRowLock(mPut.key(),0,mPut.key().length);
         lock.lock();
         try{
-            Iterable<DataCell> cells=mPut.cells();
-            for(DataCell dc : cells){
-                if(memstore.contains(dc)){
-                    memstore.remove(dc);
-                }
+            List<DataCell> clones=new ArrayList<>();
+            for(DataCell dc : mPut.cells()){
                 DataCell clone=dc.getClone();
                 ((MCell)clone).sequence(seq);
-                memstore.add(clone);
+                clones.add(clone);
             }
+            store.add(clones);
         }finally{
             lock.unlock();
         }
@@ -505,50 +449,35 @@ public class MPartition implements Partition{
         //remove elements from the row
         rowLock.lock();
         try{
-            Iterable<DataCell> exactCellsToDelete=mDelete.cells();
-            for(DataCell dc : exactCellsToDelete){
-                memstore.remove(dc);
+            List<DataCell> exactCellsToDelete=new ArrayList<>();
+            for(DataCell dc : mDelete.cells()){
+                exactCellsToDelete.add(dc);
             }
+            store.remove(exactCellsToDelete);
             //TODO -sf- make this also remove entire families and columns
         }finally{
             rowLock.unlock();
         }
     }
 
-    private NavigableSet<DataCell> getAscendingScanSet(DataScan scan){
-        NavigableSet<DataCell> dataCells;
-        if(memstore.size()<=0)
-            dataCells = EmptyNavigableSet.instance();
-        else{
-            byte[] startKey=scan.getStartKey();
-            byte[] stopKey=scan.getStopKey();
-            DataCell start;
-            DataCell stop;
-            if(startKey==null|| startKey.length==0) {
-                if(stopKey==null||stopKey.length==0){
-                    return memstore;
-                }else{
-                    start = memstore.first();
-                }
-            }else
-                start=new MCell(startKey,new byte[]{},new byte[]{},scan.highVersion(),new byte[]{},CellType.COMMIT_TIMESTAMP);
-
-            if(stopKey==null||stopKey.length==0){
-                return memstore.tailSet(start,true);
-            }else
-                stop=new MCell(stopKey,SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_FK_COUNTER_COLUMN_BYTES,scan.lowVersion(),new byte[]{},CellType.FOREIGN_KEY_COUNTER);
-
-            /*
-             * It is possible (particularly if the start key is null) that the stop value compares to less than
-             * the start key, and that is a reasonable situation. In that case, we know that the end results
-             * are empty, so bypass creating a new Set object in this case.
-             */
-            if(stop.compareTo(start)<0) return EmptyNavigableSet.instance();
-            dataCells=memstore.subSet(start,true,stop,false);
-        }
-        return dataCells;
+    private CloseableIterator<DataCell> openScanRange(DataScan scan) throws IOException{
+        byte[] startKey=scan.getStartKey();
+        byte[] stopKey=scan.getStopKey();
+        DataCell start=null;
+        DataCell stop=null;
+        if(startKey!=null && startKey.length>0)
+            start=new MCell(startKey,new byte[]{},new byte[]{},scan.highVersion(),new byte[]{},CellType.COMMIT_TIMESTAMP);
+        if(stopKey!=null && stopKey.length>0)
+            stop=new MCell(stopKey,SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_FK_COUNTER_COLUMN_BYTES,scan.lowVersion(),new byte[]{},CellType.FOREIGN_KEY_COUNTER);
+        return store.range(start,true,stop,false,scan.isDescendingScan());
     }
 
+    /**
+     * @return a cell which sorts after every cell of the row, and before every cell of the following rows
+     */
+    private static DataCell rowEnd(byte[] key){
+        return new MCell(Arrays.copyOf(key,key.length+1),new byte[]{},new byte[]{},Long.MAX_VALUE,new byte[]{},CellType.USER_DATA);
+    }
 
     private void filterByFamilies(List<DataCell> toReturn,Map<byte[], ? extends Set<byte[]>> familyQualifierMap){
         if(familyQualifierMap==null||familyQualifierMap.size()<=0) return;
@@ -16,27 +16,70 @@ package com.splicemachine.storage;
 
 import org.spark_project.guava.base.Predicate;
 import org.spark_project.guava.collect.Iterables;
+import org.spark_project.guava.util.concurrent.ThreadFactoryBuilder;
 import com.splicemachine.access.api.*;
 import com.splicemachine.concurrent.Clock;
 import com.splicemachine.primitives.Bytes;
+import org.apache.log4j.Logger;
 
+import java.io.File;
 import java.io.IOException;
+import java.net.URLEncoder;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * @author Scott Fines
  *         Date: 12/23/15
  */
 public class MPartitionFactory implements PartitionFactory<Object>{
+    private static final Logger LOG=Logger.getLogger(MPartitionFactory.class);
+    private static final String ENCODING="UTF-8";
     private final Map<String, Partition> partitionMap=new ConcurrentHashMap<>();
 
+    /*
+     * Set when the tables spill into log-structured files (see LsmCellStore), rather than staying on the heap
+     */
+    private volatile File dataDirectory;
+    private volatile long flushSize;
+    private volatile int compactionThreshold;
+    private volatile LsmBlockCache blockCache;
+    private volatile ExecutorService background;
+
     @Override
     public void initialize(Clock clock,SConfiguration configuration,PartitionInfoCache partitionInfoCache) throws IOException{
-        //no-op
+        String directory=configuration.getMemStorageDirectory();
+        if(directory==null) return; //tables are kept on the heap
+
+        File dir=new File(directory);
+        if(!dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("Unable to create storage directory "+dir);
+
+        /*
+         * The files only spill tables out of the heap; they are never reopened, since the transaction store
+         * and the timestamp source of the in-memory engine start afresh with every process. Files left in the
+         * directory by a previous run are useless, but we won't remove what may not even be ours, so we only
+         * start on an empty directory.
+         */
+        String[] entries=dir.list();
+        if(entries==null)
+            throw new IOException("Unable to list storage directory "+dir);
+        if(entries.length>0)
+            throw new IOException("Storage directory "+dir+" is not empty. Tables spilled by a previous run cannot be "+
+                    "reopened; remove them or choose another directory");
+
+        this.flushSize=configuration.getMemStorageFlushSize();
+        this.compactionThreshold=configuration.getMemStorageCompactionThreshold();
+        this.blockCache=new LsmBlockCache(configuration.getMemStorageBlockCacheSize());
+        this.background=Executors.newFixedThreadPool(2,
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("mem-storage-%d").build());
+        this.dataDirectory=dir;
+        LOG.info("Spilling tables to "+dir);
     }
 
     @Override
@@ -104,12 +147,27 @@ public class MPartitionFactory implements PartitionFactory<Object>{
         @Override
         public Partition create() throws IOException{
             assert name!=null:"No name specified!";
+            if(dataDirectory!=null)
+                return createSpilling(name);
             final MPartition p=new MPartition(name,name);
             partitionMap.put(name,p);
             return p;
         }
     }
 
+    private synchronized Partition createSpilling(String name) throws IOException{
+        Partition p=partitionMap.get(name);
+        if(p!=null) return p;
+        p=new MPartition(name,name,openStore(name));
+        partitionMap.put(name,p);
+        return p;
+    }
+
+    private CellStore openStore(String name) throws IOException{
+        File directory=new File(dataDirectory,URLEncoder.encode(name,ENCODING));
+        return LsmCellStore.open(directory,flushSize,compactionThreshold,blockCache,background);
+    }
+
     private class Admin implements PartitionAdmin{
         @Override
         public PartitionCreator newPartition() throws IOException{
@@ -118,7 +176,9 @@ public class MPartitionFactory implements PartitionFactory<Object>{
 
         @Override
         public void deleteTable(String tableName) throws IOException{
-            partitionMap.remove(tableName);
+            Partition p=partitionMap.remove(tableName);
+            if(p instanceof MPartition)
+                ((MPartition)p).destroy();
         }
 
         @Override
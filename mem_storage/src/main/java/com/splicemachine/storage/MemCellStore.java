@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.storage;
+
+import com.splicemachine.collections.CloseableIterator;
+import com.splicemachine.collections.EmptyNavigableSet;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * A {@link CellStore} which holds everything in a single skip list on the heap.
+ */
+@ThreadSafe
+class MemCellStore implements CellStore{
+    private final ConcurrentSkipListSet<DataCell> memstore=new ConcurrentSkipListSet<>();
+
+    @Override
+    public void add(List<DataCell> cells){
+        for(DataCell dc : cells){
+            if(memstore.contains(dc)){
+                memstore.remove(dc);
+            }
+            memstore.add(dc);
+        }
+    }
+
+    @Override
+    public void remove(List<DataCell> cells){
+        for(DataCell dc : cells){
+            memstore.remove(dc);
+        }
+    }
+
+    @Override
+    public CloseableIterator<DataCell> range(DataCell start,boolean startInclusive,
+                                             DataCell stop,boolean stopInclusive,
+                                             boolean descending){
+        NavigableSet<DataCell> cells=subSet(start,startInclusive,stop,stopInclusive);
+        return new IteratorWrapper(descending?cells.descendingIterator():cells.iterator());
+    }
+
+    @Override
+    public void flush(){
+        //no-op--memory does not perform flush
+    }
+
+    @Override
+    public void compact(boolean isMajor){
+        //no-op--memory does not perform compactions
+    }
+
+    @Override
+    public void destroy(){
+        //no-op--the data goes away with the partition
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private NavigableSet<DataCell> subSet(DataCell start,boolean startInclusive,DataCell stop,boolean stopInclusive){
+        if(start==null){
+            if(stop==null) return memstore;
+            return memstore.headSet(stop,stopInclusive);
+        }else if(stop==null)
+            return memstore.tailSet(start,startInclusive);
+        /*
+         * It is possible (particularly if the start key is null) that the stop value compares to less than
+         * the start key, and that is a reasonable situation. In that case, we know that the end results
+         * are empty, so bypass creating a new Set object in this case.
+         */
+        if(stop.compareTo(start)<0) return EmptyNavigableSet.instance();
+        return memstore.subSet(start,startInclusive,stop,stopInclusive);
+    }
+
+    private static class IteratorWrapper implements CloseableIterator<DataCell>{
+        private final Iterator<DataCell> delegate;
+
+        IteratorWrapper(Iterator<DataCell> delegate){
+            this.delegate=delegate;
+        }
+
+        @Override public boolean hasNext(){ return delegate.hasNext(); }
+        @Override public DataCell next(){ return delegate.next(); }
+        @Override public void remove(){ throw new UnsupportedOperationException(); }
+        @Override public void close(){ }
+    }
+}
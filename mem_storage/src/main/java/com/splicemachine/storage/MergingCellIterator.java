@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.storage;
+
+import com.splicemachine.collections.CloseableIterator;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Merges sorted iterators over the memstores and segment files of an {@link LsmCellStore} into one sorted
+ * iterator.
+ *
+ * The sources are ordered from newest to oldest. When several sources hold an equal cell, only the one from the
+ * newest source is returned, which is how a newer write (or {@link LsmCellCodec.DeleteMarker delete marker})
+ * shadows an older one.
+ */
+final class MergingCellIterator implements CloseableIterator<DataCell>{
+    private final PriorityQueue<Source> heap;
+    private final boolean keepDeleteMarkers;
+    private final List<LsmSegment> retainedSegments;
+    private DataCell next;
+    private boolean closed;
+
+    /**
+     * @param sources the sources to merge, newest first
+     * @param descending whether the sources iterate in descending order
+     * @param keepDeleteMarkers whether delete markers should be returned, or skipped
+     * @param retainedSegments segments which are referenced by the sources, and released when this iterator closes
+     */
+    MergingCellIterator(List<Iterator<DataCell>> sources,
+                        final boolean descending,
+                        boolean keepDeleteMarkers,
+                        List<LsmSegment> retainedSegments){
+        this.keepDeleteMarkers=keepDeleteMarkers;
+        this.retainedSegments=retainedSegments;
+        this.heap=new PriorityQueue<>(Math.max(1,sources.size()),new Comparator<Source>(){
+            @Override
+            public int compare(Source o1,Source o2){
+                int c=o1.current.compareTo(o2.current);
+                if(descending) c=-c;
+                if(c!=0) return c;
+                return Integer.compare(o1.rank,o2.rank);
+            }
+        });
+        int rank=0;
+        for(Iterator<DataCell> source : sources){
+            Source s=new Source(source,rank++);
+            if(s.advance())
+                heap.add(s);
+        }
+    }
+
+    @Override
+    public boolean hasNext(){
+        if(next==null)
+            next=advance();
+        return next!=null;
+    }
+
+    @Override
+    public DataCell next(){
+        if(!hasNext()) throw new NoSuchElementException();
+        DataCell n=next;
+        next=null;
+        return n;
+    }
+
+    @Override
+    public void remove(){
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close(){
+        if(closed) return;
+        closed=true;
+        for(LsmSegment segment : retainedSegments){
+            segment.release();
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private DataCell advance(){
+        while(!heap.isEmpty()){
+            Source top=heap.poll();
+            DataCell cell=top.current;
+            if(top.advance())
+                heap.add(top);
+            //skip the shadowed versions of this cell in older sources
+            while(!heap.isEmpty() && heap.peek().current.compareTo(cell)==0){
+                Source older=heap.poll();
+                if(older.advance())
+                    heap.add(older);
+            }
+            if(!keepDeleteMarkers && cell instanceof LsmCellCodec.DeleteMarker) continue;
+            return cell;
+        }
+        return null;
+    }
+
+    private static final class Source{
+        private final Iterator<DataCell> iterator;
+        private final int rank;
+        private DataCell current;
+
+        Source(Iterator<DataCell> iterator,int rank){
+            this.iterator=iterator;
+            this.rank=rank;
+        }
+
+        boolean advance(){
+            if(!iterator.hasNext()) return false;
+            current=iterator.next();
+            return true;
+        }
+    }
+}
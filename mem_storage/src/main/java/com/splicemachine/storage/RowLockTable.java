@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.storage;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Table of row locks for the in-memory storage.
+ * <p>
+ * Locks are held in a concurrent map, so locking different rows never contends on anything
+ * shared. A row only has an entry in the table while its lock is held (or being acquired); the entry is
+ * reclaimed when the last holder releases it. Entries are reference counted, and an entry whose count has
+ * dropped to zero is marked dead before it is removed, so that a thread can never acquire a lock on an entry
+ * which has already been unlinked from the table (and thereby hold the row lock at the same time as another
+ * thread).
+ * <p>
+ * The {@link Lock} returned by {@link #getLock(byte[], int, int)} is a handle on the row, and is intended to be
+ * used by a single thread. The underlying lock is reentrant.
+ * <p>
+ * Conditions are supported. A {@link Condition} belongs to the row rather than to the entry: it is bound to the
+ * row's current entry whenever it is used, which is always the entry held by the calling thread. Waiting threads
+ * keep their reference on the entry, so the entry a signalling thread locks is the one its waiters are parked on.
+ */
+@ThreadSafe
+class RowLockTable{
+    private final ConcurrentMap<ByteBuffer, Entry> locks=new ConcurrentHashMap<>();
+
+    Lock getLock(byte[] key,int keyOff,int keyLen){
+        byte[] copy=new byte[keyLen];
+        System.arraycopy(key,keyOff,copy,0,keyLen);
+        return new RowLock(ByteBuffer.wrap(copy));
+    }
+
+    /**
+     * @return the number of rows which currently have an entry in the table.
+     */
+    int size(){
+        return locks.size();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private Entry acquireEntry(ByteBuffer key){
+        while(true){
+            Entry entry=locks.get(key);
+            if(entry==null){
+                Entry newEntry=new Entry();
+                entry=locks.putIfAbsent(key,newEntry);
+                if(entry==null)
+                    entry=newEntry;
+            }
+            if(entry.retain())
+                return entry;
+            //the entry is being reclaimed; wait for it to be unlinked and try again
+            locks.remove(key,entry);
+        }
+    }
+
+    private void releaseEntry(ByteBuffer key,Entry entry){
+        if(entry.release())
+            locks.remove(key,entry);
+    }
+
+    private static class Entry{
+        private final ReentrantLock lock=new ReentrantLock();
+        private Map<RowCondition, Condition> conditions; //guarded by lock
+        /*
+         * The number of threads holding (or trying to acquire) this entry. -1 means the entry is dead,
+         * and may not be reused.
+         */
+        private final AtomicInteger refCount=new AtomicInteger(0);
+
+        boolean retain(){
+            while(true){
+                int c=refCount.get();
+                if(c<0) return false;
+                if(refCount.compareAndSet(c,c+1)) return true;
+            }
+        }
+
+        /**
+         * @return true if this was the last reference, and the entry should be removed from the table.
+         */
+        boolean release(){
+            return refCount.decrementAndGet()==0 && refCount.compareAndSet(0,-1);
+        }
+
+        /**
+         * @return the condition of {@code rowCondition} on this entry. Must be called with the lock held.
+         */
+        Condition condition(RowCondition rowCondition){
+            if(conditions==null)
+                conditions=new IdentityHashMap<>();
+            Condition condition=conditions.get(rowCondition);
+            if(condition==null){
+                condition=lock.newCondition();
+                conditions.put(rowCondition,condition);
+            }
+            return condition;
+        }
+    }
+
+    private class RowCondition implements Condition{
+        private final ByteBuffer key;
+
+        RowCondition(ByteBuffer key){
+            this.key=key;
+        }
+
+        @Override
+        public void await() throws InterruptedException{
+            heldCondition().await();
+        }
+
+        @Override
+        public void awaitUninterruptibly(){
+            heldCondition().awaitUninterruptibly();
+        }
+
+        @Override
+        public long awaitNanos(long nanosTimeout) throws InterruptedException{
+            return heldCondition().awaitNanos(nanosTimeout);
+        }
+
+        @Override
+        public boolean await(long time,TimeUnit unit) throws InterruptedException{
+            return heldCondition().await(time,unit);
+        }
+
+        @Override
+        public boolean awaitUntil(@Nonnull Date deadline) throws InterruptedException{
+            return heldCondition().awaitUntil(deadline);
+        }
+
+        @Override
+        public void signal(){
+            heldCondition().signal();
+        }
+
+        @Override
+        public void signalAll(){
+            heldCondition().signalAll();
+        }
+
+        private Condition heldCondition(){
+            //a held entry can't be reclaimed, so the entry in the table is the one we hold
+            Entry e=locks.get(key);
+            if(e==null || !e.lock.isHeldByCurrentThread())
+                throw new IllegalMonitorStateException("Row lock is not held");
+            return e.condition(this);
+        }
+    }
+
+    private class RowLock implements Lock{
+        private final ByteBuffer key;
+        private Entry entry;
+        private int holdCount;
+
+        RowLock(ByteBuffer key){
+            this.key=key;
+        }
+
+        @Override
+        public void lock(){
+            Entry e=acquireEntry(key);
+            e.lock.lock();
+            held(e);
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException{
+            Entry e=acquireEntry(key);
+            try{
+                e.lock.lockInterruptibly();
+            }catch(InterruptedException ie){
+                releaseEntry(key,e);
+                throw ie;
+            }
+            held(e);
+        }
+
+        @Override
+        public boolean tryLock(){
+            Entry e=acquireEntry(key);
+            if(e.lock.tryLock()){
+                held(e);
+                return true;
+            }
+            releaseEntry(key,e);
+            return false;
+        }
+
+        @Override
+        public boolean tryLock(long time,@Nonnull TimeUnit unit) throws InterruptedException{
+            Entry e=acquireEntry(key);
+            boolean locked=false;
+            try{
+                locked=e.lock.tryLock(time,unit);
+            }finally{
+                if(!locked)
+                    releaseEntry(key,e);
+            }
+            if(locked)
+                held(e);
+            return locked;
+        }
+
+        @Override
+        public void unlock(){
+            Entry e=entry;
+            if(e==null || holdCount<=0)
+                throw new IllegalMonitorStateException("Row lock is not held");
+            if(--holdCount==0)
+                entry=null;
+            e.lock.unlock();
+            releaseEntry(key,e);
+        }
+
+        @Override
+        @Nonnull
+        public Condition newCondition(){
+            return new RowCondition(key);
+        }
+
+        private void held(Entry e){
+            //while we hold the lock, the entry cannot be reclaimed, so a reentrant acquisition gets the same entry
+            assert entry==null || entry==e: "Programmer error: reentrant lock acquired a different entry";
+            entry=e;
+            holdCount++;
+        }
+    }
+}
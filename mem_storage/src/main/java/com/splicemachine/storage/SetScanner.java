@@ -14,6 +14,7 @@
 
 package com.splicemachine.storage;
 
+import com.splicemachine.collections.CloseableIterator;
 import com.splicemachine.metrics.Counter;
 import com.splicemachine.metrics.MetricFactory;
 import com.splicemachine.metrics.Metrics;
@@ -23,7 +24,6 @@ import com.splicemachine.primitives.Bytes;
 import javax.annotation.Nonnull;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -32,7 +32,7 @@ import java.util.List;
  */
 class SetScanner implements DataScanner{
     private final long sequenceCutoffPoint;
-    private final Iterator<DataCell> dataCells;
+    private final CloseableIterator<DataCell> dataCells;
     private final long lowVersion;
     private final long highVersion;
     private final DataFilter filter;
@@ -47,7 +47,7 @@ class SetScanner implements DataScanner{
     private DataCell last;
 
     public SetScanner(long sequenceCutoffPoint,
-            Iterator<DataCell> dataCells,
+            CloseableIterator<DataCell> dataCells,
                       long lowVersion,
                       long highVersion,
                       DataFilter filter,
@@ -194,7 +194,7 @@ class SetScanner implements DataScanner{
 
     @Override
     public void close() throws IOException{
-
+        dataCells.close();
     }
 
     /* ****************************************************************************************************************/
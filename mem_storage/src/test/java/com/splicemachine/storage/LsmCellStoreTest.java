@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.storage;
+
+import com.splicemachine.collections.CloseableIterator;
+import com.splicemachine.primitives.Bytes;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class LsmCellStoreTest{
+    private static final byte[] FAMILY=Bytes.toBytes("V");
+    private static final byte[] QUALIFIER=Bytes.toBytes("7");
+
+    @Rule
+    public TemporaryFolder temp=new TemporaryFolder();
+
+    private ExecutorService background;
+    private LsmBlockCache blockCache;
+    private File directory;
+
+    @Before
+    public void setUp() throws Exception{
+        background=Executors.newSingleThreadExecutor();
+        blockCache=new LsmBlockCache(1024*1024);
+        directory=new File(temp.getRoot(),"table");
+    }
+
+    @After
+    public void tearDown() throws Exception{
+        background.shutdownNow();
+    }
+
+    @Test
+    public void readsMergeMemstoreAndSegments() throws Exception{
+        LsmCellStore store=open(Long.MAX_VALUE);
+        for(int i=0;i<1000;i+=2){
+            store.add(cells(i,1l,"a"+i));
+        }
+        store.flush();
+        for(int i=1;i<1000;i+=2){
+            store.add(cells(i,1l,"a"+i));
+        }
+        //newer versions sort before older ones, and rewriting a version replaces it
+        store.add(cells(10,2l,"b10"));
+        store.add(cells(12,1l,"b12"));
+        Assert.assertEquals("Wrong number of segments",1,store.segmentCount());
+
+        List<DataCell> all=read(store,null,null,false);
+        Assert.assertEquals("Wrong number of cells",1001,all.size());
+        for(int i=1;i<all.size();i++){
+            Assert.assertTrue("Cells out of order at "+i,all.get(i-1).compareTo(all.get(i))<0);
+        }
+        List<DataCell> row10=read(store,row(10),row(11),false);
+        Assert.assertEquals("Wrong number of versions",2,row10.size());
+        Assert.assertEquals("Wrong latest version","b10",Bytes.toString(row10.get(0).value()));
+        Assert.assertEquals("Wrong value","b12",Bytes.toString(read(store,row(12),row(13),false).get(0).value()));
+
+        List<DataCell> descending=read(store,row(100),row(200),true);
+        Assert.assertEquals("Wrong number of cells",100,descending.size());
+        Assert.assertEquals("Wrong first cell","a199",Bytes.toString(descending.get(0).value()));
+        Assert.assertEquals("Wrong last cell","a100",Bytes.toString(descending.get(99).value()));
+        store.close();
+    }
+
+    @Test
+    public void removedCellsStayRemovedAcrossFlushesAndCompactions() throws Exception{
+        LsmCellStore store=open(Long.MAX_VALUE);
+        for(int i=0;i<100;i++){
+            store.add(cells(i,1l,"a"+i));
+        }
+        store.flush();
+        List<DataCell> toRemove=new ArrayList<>();
+        for(int i=0;i<100;i+=10){
+            toRemove.addAll(cells(i,1l,"a"+i));
+        }
+        store.remove(toRemove);
+        Assert.assertEquals("Removed cells are visible",90,read(store,null,null,false).size());
+        store.flush();
+        Assert.assertEquals("Removed cells are visible after flush",90,read(store,null,null,false).size());
+        store.compact(true);
+        Assert.assertEquals("Wrong number of segments",1,store.segmentCount());
+        Assert.assertEquals("Removed cells are visible after compaction",90,read(store,null,null,false).size());
+        store.close();
+    }
+
+    @Test
+    public void backgroundFlushesAndCompactionsKeepAllData() throws Exception{
+        LsmCellStore store=open(64*1024);
+        int rows=20000;
+        for(int i=0;i<rows;i++){
+            store.add(cells(i,1l,"value-"+i));
+        }
+        store.flush();
+        store.compact(false);
+        Assert.assertTrue("Data should have been flushed",store.segmentCount()>0);
+        Assert.assertEquals("Wrong number of cells",rows,read(store,null,null,false).size());
+        store.close();
+    }
+
+    @Test
+    public void concurrentWritesAreAllReadable() throws Exception{
+        final LsmCellStore store=open(64*1024);
+        int writers=8;
+        final int rowsPerWriter=200;
+        ExecutorService executor=Executors.newFixedThreadPool(writers);
+        try{
+            List<Future<Void>> futures=new ArrayList<>(writers);
+            for(int w=0;w<writers;w++){
+                final int first=w*rowsPerWriter;
+                futures.add(executor.submit(new Callable<Void>(){
+                    @Override
+                    public Void call() throws Exception{
+                        for(int i=first;i<first+rowsPerWriter;i++){
+                            store.add(cells(i,1l,"a"+i));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for(Future<Void> future : futures){
+                future.get();
+            }
+        }finally{
+            executor.shutdownNow();
+        }
+        store.flush();
+        Assert.assertEquals("Wrong number of cells",writers*rowsPerWriter,read(store,null,null,false).size());
+        store.close();
+    }
+
+    @Test
+    public void partitionReadsWhatItWrote() throws Exception{
+        MPartition partition=new MPartition("table","table",open(Long.MAX_VALUE));
+        for(int i=0;i<100;i++){
+            MPut put=new MPut(row(i));
+            put.addCell(FAMILY,QUALIFIER,1l,Bytes.toBytes("v"+i));
+            partition.put(put);
+        }
+        partition.flush();
+        DataResult result=partition.getLatest(row(42),null);
+        Assert.assertEquals("Wrong value","v42",Bytes.toString(result.latestCell(FAMILY,QUALIFIER).value()));
+        partition.destroy();
+        Assert.assertFalse("Directory should have been removed",directory.exists());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private LsmCellStore open(long flushSize) throws IOException{
+        return LsmCellStore.open(directory,flushSize,4,blockCache,background);
+    }
+
+    private static byte[] row(int i){
+        return Bytes.toBytes(i);
+    }
+
+    private static List<DataCell> cells(int row,long version,String value){
+        MCell cell=new MCell(row(row),FAMILY,QUALIFIER,version,Bytes.toBytes(value),CellType.USER_DATA);
+        return Collections.<DataCell>singletonList(cell);
+    }
+
+    private static List<DataCell> read(CellStore store,byte[] start,byte[] stop,boolean descending) throws IOException{
+        DataCell startCell=start==null?null:new MCell(start,new byte[]{},new byte[]{},Long.MAX_VALUE,new byte[]{},CellType.USER_DATA);
+        DataCell stopCell=stop==null?null:new MCell(stop,new byte[]{},new byte[]{},Long.MAX_VALUE,new byte[]{},CellType.USER_DATA);
+        List<DataCell> cells=new ArrayList<>();
+        try(CloseableIterator<DataCell> iter=store.range(startCell,true,stopCell,false,descending)){
+            while(iter.hasNext()){
+                cells.add(iter.next());
+            }
+        }
+        return cells;
+    }
+}
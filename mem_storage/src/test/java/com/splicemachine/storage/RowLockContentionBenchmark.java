@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.storage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Measures the throughput of row locking in the in-memory storage as the number of writer threads grows.
+ * <p>
+ * Each writer mimics {@code SITransactor.lockRows}: it repeatedly takes a batch of random rows, try-locks each
+ * of them and then releases them all. Run with
+ * <pre>
+ *     java com.splicemachine.storage.RowLockContentionBenchmark [batchSize] [numRows] [secondsPerRun]
+ * </pre>
+ * and compare the rows/second reported for each thread count; with uncontended rows the throughput should
+ * grow with the number of cores.
+ */
+public class RowLockContentionBenchmark{
+
+    public static void main(String...args) throws Exception{
+        int batchSize=args.length>0?Integer.parseInt(args[0]):100;
+        int numRows=args.length>1?Integer.parseInt(args[1]):1000000;
+        int seconds=args.length>2?Integer.parseInt(args[2]):5;
+        int maxThreads=2*Runtime.getRuntime().availableProcessors();
+
+        MPartition partition=new MPartition("benchmark","benchmark");
+        System.out.printf("batchSize=%d, rows=%d, %ds per run%n",batchSize,numRows,seconds);
+        System.out.printf("%8s %16s %16s %10s%n","threads","rows/s","failed/s","speedup");
+        double base=0d;
+        for(int threads=1;threads<=maxThreads;threads*=2){
+            long[] result=run(partition,threads,batchSize,numRows,seconds*1000L);
+            double rate=result[0]*1000d/(seconds*1000L);
+            double failed=result[1]*1000d/(seconds*1000L);
+            if(threads==1)
+                base=rate;
+            System.out.printf("%8d %16.0f %16.0f %10.2f%n",threads,rate,failed,rate/base);
+        }
+    }
+
+    private static long[] run(final Partition partition,
+                              int threads,
+                              final int batchSize,
+                              final int numRows,
+                              final long durationMs) throws Exception{
+        final CountDownLatch start=new CountDownLatch(1);
+        ExecutorService executor=Executors.newFixedThreadPool(threads);
+        try{
+            List<Future<long[]>> futures=new ArrayList<>(threads);
+            for(int t=0;t<threads;t++){
+                final long seed=t;
+                futures.add(executor.submit(new Callable<long[]>(){
+                    @Override
+                    public long[] call() throws Exception{
+                        start.await();
+                        return lockBatches(partition,new Random(seed),batchSize,numRows,durationMs);
+                    }
+                }));
+            }
+            start.countDown();
+            long locked=0l;
+            long failed=0l;
+            for(Future<long[]> f:futures){
+                long[] r=f.get();
+                locked+=r[0];
+                failed+=r[1];
+            }
+            return new long[]{locked,failed};
+        }finally{
+            executor.shutdownNow();
+        }
+    }
+
+    private static long[] lockBatches(Partition partition,Random random,int batchSize,int numRows,long durationMs) throws IOException{
+        Lock[] locks=new Lock[batchSize];
+        byte[] key=new byte[4];
+        long locked=0l;
+        long failed=0l;
+        long end=System.currentTimeMillis()+durationMs;
+        while(System.currentTimeMillis()<end){
+            for(int i=0;i<batchSize;i++){
+                int row=random.nextInt(numRows);
+                key[0]=(byte)(row>>>24);
+                key[1]=(byte)(row>>>16);
+                key[2]=(byte)(row>>>8);
+                key[3]=(byte)row;
+                Lock lock=partition.getRowLock(key,0,key.length);
+                if(lock.tryLock()){
+                    locks[i]=lock;
+                    locked++;
+                }else{
+                    locks[i]=null;
+                    failed++;
+                }
+            }
+            for(int i=0;i<batchSize;i++){
+                if(locks[i]!=null){
+                    locks[i].unlock();
+                    locks[i]=null;
+                }
+            }
+        }
+        return new long[]{locked,failed};
+    }
+}
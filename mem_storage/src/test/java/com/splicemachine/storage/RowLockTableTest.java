@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.storage;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+public class RowLockTableTest{
+
+    @Test
+    public void locksAreExclusivePerRow() throws Exception{
+        RowLockTable table=new RowLockTable();
+        byte[] row=new byte[]{1,2,3};
+        Lock first=table.getLock(row,0,row.length);
+        Assert.assertTrue("Could not acquire free lock",first.tryLock());
+
+        final Lock second=table.getLock(new byte[]{0,1,2,3,4},1,3);
+        ExecutorService executor=Executors.newSingleThreadExecutor();
+        try{
+            Future<Boolean> acquired=executor.submit(new Callable<Boolean>(){
+                @Override
+                public Boolean call() throws Exception{
+                    return second.tryLock();
+                }
+            });
+            Assert.assertFalse("Acquired a lock held by another thread",acquired.get());
+        }finally{
+            executor.shutdownNow();
+        }
+
+        Lock other=table.getLock(new byte[]{3,2,1},0,3);
+        Assert.assertTrue("Different rows should not contend",other.tryLock());
+        other.unlock();
+        first.unlock();
+    }
+
+    @Test
+    public void entriesAreReclaimedOnRelease() throws Exception{
+        RowLockTable table=new RowLockTable();
+        byte[] row=new byte[]{1};
+        Lock lock=table.getLock(row,0,row.length);
+        lock.lock();
+        lock.lock(); //reentrant
+        Assert.assertEquals(1,table.size());
+        lock.unlock();
+        Assert.assertEquals("Entry reclaimed while still held",1,table.size());
+        lock.unlock();
+        Assert.assertEquals("Entry not reclaimed",0,table.size());
+
+        Assert.assertFalse("Failed tryLock should not leave an entry",otherThreadTryLock(table,row,lock));
+        Assert.assertEquals(0,table.size());
+    }
+
+    @Test
+    public void concurrentLockingIsMutuallyExclusive() throws Exception{
+        final RowLockTable table=new RowLockTable();
+        final int threads=8;
+        final int iterations=20000;
+        final int rows=4;
+        final int[] counters=new int[rows];
+        final AtomicInteger inCriticalSection=new AtomicInteger(0);
+        final CountDownLatch start=new CountDownLatch(1);
+        ExecutorService executor=Executors.newFixedThreadPool(threads);
+        try{
+            Future<?>[] futures=new Future[threads];
+            for(int t=0;t<threads;t++){
+                futures[t]=executor.submit(new Callable<Void>(){
+                    @Override
+                    public Void call() throws Exception{
+                        start.await();
+                        for(int i=0;i<iterations;i++){
+                            int row=i%rows;
+                            Lock lock=table.getLock(new byte[]{(byte)row},0,1);
+                            lock.lock();
+                            try{
+                                if(row==0)
+                                    Assert.assertEquals("Two threads hold the same row lock",1,inCriticalSection.incrementAndGet());
+                                counters[row]++;
+                                if(row==0)
+                                    inCriticalSection.decrementAndGet();
+                            }finally{
+                                lock.unlock();
+                            }
+                        }
+                        return null;
+                    }
+                });
+            }
+            start.countDown();
+            for(Future<?> f:futures){
+                f.get(1,TimeUnit.MINUTES);
+            }
+        }finally{
+            executor.shutdownNow();
+        }
+        int total=0;
+        for(int c:counters) total+=c;
+        Assert.assertEquals("Lost updates under the row locks",threads*iterations,total);
+        Assert.assertEquals("Entries not reclaimed",0,table.size());
+    }
+
+    @Test
+    public void conditionsWakeWaitersOnTheSameRow() throws Exception{
+        final RowLockTable table=new RowLockTable();
+        final byte[] row=new byte[]{7};
+        final Condition changed=table.getLock(row,0,row.length).newCondition();
+        final AtomicBoolean ready=new AtomicBoolean(false);
+        final CountDownLatch waiting=new CountDownLatch(1);
+        ExecutorService executor=Executors.newSingleThreadExecutor();
+        try{
+            Future<Boolean> waiter=executor.submit(new Callable<Boolean>(){
+                @Override
+                public Boolean call() throws Exception{
+                    Lock lock=table.getLock(row,0,row.length);
+                    lock.lock();
+                    try{
+                        waiting.countDown();
+                        while(!ready.get()){
+                            if(!changed.await(1,TimeUnit.MINUTES))
+                                return false;
+                        }
+                        return true;
+                    }finally{
+                        lock.unlock();
+                    }
+                }
+            });
+            Assert.assertTrue("Waiter did not start",waiting.await(1,TimeUnit.MINUTES));
+
+            Lock lock=table.getLock(row,0,row.length);
+            lock.lock(); //only possible once the waiter has released the row in await()
+            try{
+                Assert.assertEquals("Waiter should keep its entry while waiting",1,table.size());
+                ready.set(true);
+                changed.signalAll();
+            }finally{
+                lock.unlock();
+            }
+            Assert.assertTrue("Waiter was not signalled",waiter.get(1,TimeUnit.MINUTES));
+        }finally{
+            executor.shutdownNow();
+        }
+        Assert.assertEquals("Entries not reclaimed",0,table.size());
+    }
+
+    @Test(expected=IllegalMonitorStateException.class)
+    public void conditionsRequireTheRowLock() throws Exception{
+        RowLockTable table=new RowLockTable();
+        byte[] row=new byte[]{1};
+        table.getLock(row,0,row.length).newCondition().signal();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static boolean otherThreadTryLock(final RowLockTable table,final byte[] row,Lock held) throws Exception{
+        held.lock();
+        ExecutorService executor=Executors.newSingleThreadExecutor();
+        try{
+            return executor.submit(new Callable<Boolean>(){
+                @Override
+                public Boolean call() throws Exception{
+                    return table.getLock(row,0,row.length).tryLock();
+                }
+            }).get();
+        }finally{
+            executor.shutdownNow();
+            held.unlock();
+        }
+    }
+}
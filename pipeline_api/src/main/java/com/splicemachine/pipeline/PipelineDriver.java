@@ -21,20 +21,24 @@ import javax.management.MXBean;
 import javax.management.MalformedObjectNameException;
 import javax.management.NotCompliantMBeanException;
 import javax.management.ObjectName;
+import javax.management.StandardMBean;
 import java.io.IOException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.splicemachine.access.api.PartitionFactory;
 import com.splicemachine.access.api.SConfiguration;
+import com.splicemachine.access.configuration.PipelineConfiguration;
 import com.splicemachine.concurrent.Clock;
 import com.splicemachine.pipeline.api.BulkWriterFactory;
 import com.splicemachine.pipeline.api.PipelineExceptionFactory;
 import com.splicemachine.pipeline.api.PipelineMeter;
+import com.splicemachine.pipeline.api.WriteControlStatus;
 import com.splicemachine.pipeline.api.WritePipelineFactory;
 import com.splicemachine.pipeline.client.WriteCoordinator;
 import com.splicemachine.pipeline.contextfactory.ContextFactoryDriver;
 import com.splicemachine.pipeline.contextfactory.ContextFactoryLoader;
 import com.splicemachine.pipeline.security.AclChecker;
+import com.splicemachine.pipeline.traffic.AdaptiveSpliceWriteControl;
 import com.splicemachine.pipeline.traffic.AtomicSpliceWriteControl;
 import com.splicemachine.pipeline.traffic.SpliceWriteControl;
 import com.splicemachine.pipeline.traffic.SynchronousWriteControl;
@@ -89,11 +93,20 @@ public class PipelineDriver{
         this.compressor = compressor;
         this.pipelineMeter= meter;
         this.writePipelineFactory = writePipelineFactory;
-        this.writeControl= new AtomicSpliceWriteControl(
-                config.getMaxDependentWriteThreads(),
-                config.getMaxIndependentWriteThreads(),
-                config.getMaxIndependentWrites(),
-                config.getMaxDependentWrites());
+        if(config.getAdaptiveWriteControl()){
+            this.writeControl=new AdaptiveSpliceWriteControl(
+                    config.getMaxDependentWriteThreads(),
+                    config.getMaxIndependentWriteThreads(),
+                    config.getMaxIndependentWrites(),
+                    config.getMaxDependentWrites(),
+                    clock);
+        }else{
+            this.writeControl=new AtomicSpliceWriteControl(
+                    config.getMaxDependentWriteThreads(),
+                    config.getMaxIndependentWriteThreads(),
+                    config.getMaxIndependentWrites(),
+                    config.getMaxDependentWrites());
+        }
         this.pipelineWriter = new PipelineWriter(pef, writePipelineFactory,writeControl,pipelineMeter);
         channelFactory.setWriter(pipelineWriter);
         channelFactory.setPipeline(writePipelineFactory);
@@ -133,6 +146,10 @@ public class PipelineDriver{
         if(jmxRegistered.compareAndSet(false,true)){
             ObjectName coordinatorName=new ObjectName("com.splicemachine.derby.hbase:type=ActiveWriteHandlers");
             mbs.registerMBean(handlerMeter,coordinatorName);
+            if(writeControl instanceof WriteControlStatus){
+                ObjectName controlName=new ObjectName(PipelineConfiguration.WRITE_CONTROL_OBJECT_LOCATION);
+                mbs.registerMBean(new StandardMBean((WriteControlStatus)writeControl,WriteControlStatus.class,true),controlName);
+            }
         }
     }
 
@@ -113,18 +113,29 @@ public class PipelineWriter{
                 LOG.trace("Rejecting "+numBulkWrites+" rows in "+ bws.size()+"writes because the pipeline is too busy");
             rejectAll(bws,result, Code.PIPELINE_TOO_BUSY,null);
             rejectedCount.addAndGet(numBulkWrites);
+            long backoff = bulkWrites.acceptsBackoffHints()?writeControl.getRejectionBackoff():0;
+            if(backoff>0){
+                for(BulkWriteResult bwr:result){
+                    bwr.setBackoffHint(backoff);
+                }
+            }
             return new BulkWritesResult(result);
         }
+        long start = System.nanoTime();
+        boolean overloaded = false;
         try {
             if (conglomId != -1) {
                 // We have to check privileges
                 int[] privileges = typesToPrivileges(bulkWrites.getTypes());
                 AclCheckerService.getService().checkPermission(bulkWrites.getToken(), conglomId, privileges);
             }
-            return performWrite(bulkWrites,bws,result,indexWriteBufferFactory);
+            BulkWritesResult writesResult = performWrite(bulkWrites,bws,result,indexWriteBufferFactory);
+            overloaded = isRegionTooBusy(writesResult);
+            return writesResult;
         } catch (StandardException e) {
             throw new IOException(e);
         } finally {
+            writeControl.writeComplete(numKVPairs,System.nanoTime()-start,overloaded);
             switch (status) {
                 case REJECTED:
                     break;
@@ -223,6 +234,15 @@ public class PipelineWriter{
     }
     /* ****************************************************************************************************************/
     /*private helper methods*/
+    private static boolean isRegionTooBusy(BulkWritesResult writesResult){
+        for(BulkWriteResult bwr:writesResult.getBulkWriteResults()){
+            WriteResult globalResult = bwr.getGlobalResult();
+            if(globalResult!=null && globalResult.getCode()==Code.REGION_TOO_BUSY)
+                return true;
+        }
+        return false;
+    }
+
     private void rejectAll(Collection<BulkWrite> writes, Collection<BulkWriteResult> result, Code status,String msg) {
         for(BulkWrite write:writes){
             pipelineMeter.mark(0,write.getSize());
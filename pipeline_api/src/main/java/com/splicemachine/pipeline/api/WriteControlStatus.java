@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.pipeline.api;
+
+import javax.management.MXBean;
+
+/**
+ * Monitoring view of the admission control which decides whether a region server accepts an incoming
+ * bulk write. The configured maximums are exposed (and adjustable) through the ActiveWriteHandlers bean;
+ * the limits here are the ones currently being enforced, which differ from the maximums only when
+ * adaptive control is enabled.
+ */
+@MXBean
+public interface WriteControlStatus{
+
+    boolean isAdaptive();
+
+    int getDependentWriteThreadLimit();
+
+    int getIndependentWriteThreadLimit();
+
+    int getDependentWriteCountLimit();
+
+    int getIndependentWriteCountLimit();
+
+    long getAdmittedWrites();
+
+    long getRejectedWrites();
+
+    /**
+     * @return the fraction of write requests rejected during the most recent control interval (or since
+     * startup, if the limits are fixed)
+     */
+    double getRejectionRate();
+
+    /**
+     * @return the smoothed time (in milliseconds) taken to perform an admitted write, or 0 if unknown
+     */
+    double getAverageWriteLatency();
+
+    /**
+     * @return the backoff (in milliseconds) currently suggested to rejected clients, or 0 if clients
+     * use their own backoff policy
+     */
+    long getRejectionBackoff();
+}
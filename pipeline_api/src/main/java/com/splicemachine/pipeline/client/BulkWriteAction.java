@@ -37,6 +37,7 @@ import org.spark_project.guava.collect.Lists;
 import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -226,7 +227,7 @@ public class BulkWriteAction implements Callable<WriteStats>{
              * simply because we were told to wait a bit by the write pipeline (i.e. we were rejected).
              */
             if(ctx.shouldSleep()){
-                clock.sleep(PipelineUtils.getPauseTime(ctx.attemptCount,10),TimeUnit.MILLISECONDS);
+                clock.sleep(ctx.pauseTime(),TimeUnit.MILLISECONDS);
             }if(ctx.directRetry)
                 writesToPerform.add(nextWrite);
             else if(ctx.nextWriteSet!=null && !ctx.nextWriteSet.isEmpty()){
@@ -290,6 +291,7 @@ public class BulkWriteAction implements Callable<WriteStats>{
                         ctx.addBulkWrites(currentBulkWrite.getMutations());
                         ctx.refreshCache = ctx.refreshCache || bulkWriteResult.getGlobalResult().refreshCache();
                         ctx.sleep=true; //always sleep due to rejection, even if we don't need to refresh the cache
+                        ctx.backoffHint=Math.max(ctx.backoffHint,bulkWriteResult.getBackoffHint());
                         break;
                     case PARTIAL:
                         partialRows.add(currentBulkWrite.getSize());
@@ -491,6 +493,8 @@ public class BulkWriteAction implements Callable<WriteStats>{
         Collection<KVPair> nextWriteSet;
         boolean directRetry;
         int attemptCount = 0;
+        /*the longest backoff the servers asked for during this attempt, in milliseconds*/
+        long backoffHint;
 
         int rejectedCount;
         int failedCount;
@@ -500,12 +504,23 @@ public class BulkWriteAction implements Callable<WriteStats>{
             return sleep || refreshCache;
         }
 
+        long pauseTime(){
+            if(backoffHint<=0)
+                return PipelineUtils.getPauseTime(attemptCount,10);
+            /*
+             * The server told us how long it expects to be busy; add some jitter so that all the clients it
+             * rejected at the same time don't come back at the same time.
+             */
+            return backoffHint+ThreadLocalRandom.current().nextLong(backoffHint/2+1);
+        }
+
         void reset(){
             refreshCache = false;
             sleep = false;
             nextWriteSet = null;
             directRetry = false;
             rejected=false;
+            backoffHint=0;
         }
 
         void addBulkWrites(Collection<KVPair> writes){
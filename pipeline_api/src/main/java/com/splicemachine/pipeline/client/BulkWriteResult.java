@@ -32,6 +32,7 @@ public class BulkWriteResult {
 		private WriteResult globalStatus;
 		private IntHashSet notRunRows;
 		private IntObjectHashMap<WriteResult> failedRows;
+		private long backoffHint;
 
 		private transient WriteContext writeContext;
 		private transient int position;
@@ -87,6 +88,18 @@ public class BulkWriteResult {
 				this.globalStatus = globalStatus;
 		}
 
+		/**
+		 * @return how long (in milliseconds) the server asked the client to wait before retrying a
+		 * rejected write, or 0 if the client should use its own backoff policy
+		 */
+		public long getBackoffHint() {
+				return backoffHint;
+		}
+
+		public void setBackoffHint(long backoffHint) {
+				this.backoffHint = backoffHint;
+		}
+
 		public WriteContext getWriteContext() {
 				return writeContext;
 		}
@@ -117,7 +130,13 @@ public class BulkWriteResult {
 				@Override
 				public void write(Kryo kryo, Output output, BulkWriteResult object) {
 						kryo.writeObject(output,object.globalStatus);
-						output.writeInt(object.notRunRows.size());
+						/*
+						 * A backoff hint is flagged by negating the (offset) number of rows not run, and follows
+						 * the failed rows. Results without a hint keep the layout older clients can read.
+						 */
+						boolean hasBackoffHint = object.backoffHint>0;
+						int notRunSize = object.notRunRows.size();
+						output.writeInt(hasBackoffHint?-(notRunSize+1):notRunSize);
 						for(IntCursor cursor:object.notRunRows){
 								output.writeInt(cursor.value);
 						}
@@ -126,12 +145,17 @@ public class BulkWriteResult {
 								output.writeInt(c.key);
 								kryo.writeObject(output,c.value);
 						}
+						if(hasBackoffHint)
+								output.writeLong(object.backoffHint,true);
 				}
 
 				@Override
 				public BulkWriteResult read(Kryo kryo, Input input, Class<BulkWriteResult> type) {
 						WriteResult globalStatus = kryo.readObject(input,WriteResult.class);
 						int notRunSize = input.readInt();
+						boolean hasBackoffHint = notRunSize<0;
+						if(hasBackoffHint)
+								notRunSize = -notRunSize-1;
 						IntHashSet notRunRows = new IntHashSet(notRunSize);
 						for(int i=0;i<notRunSize;i++){
 								notRunRows.add(input.readInt());
@@ -143,7 +167,10 @@ public class BulkWriteResult {
 								WriteResult result = kryo.readObject(input,WriteResult.class);
 								failedRows.put(k,result);
 						}
-						return new BulkWriteResult(globalStatus,notRunRows,failedRows);
+						BulkWriteResult result = new BulkWriteResult(globalStatus,notRunRows,failedRows);
+						if(hasBackoffHint)
+								result.backoffHint = input.readLong(true);
+						return result;
 				}
 		};
 }
@@ -39,6 +39,7 @@ public class BulkWrites{
      */
     private transient byte[] regionKey;
     private byte[] token;
+    private transient boolean acceptsBackoffHints;
 
     public BulkWrites(){
         bulkWrites=new ArrayList<>(0);
@@ -126,6 +127,17 @@ public class BulkWrites{
         return bulkWrites.hashCode();
     }
 
+    /**
+     * @return true if the sender of these writes can read backoff hints in the results it gets back
+     */
+    public boolean acceptsBackoffHints() {
+        return acceptsBackoffHints;
+    }
+
+    public void setAcceptsBackoffHints(boolean acceptsBackoffHints) {
+        this.acceptsBackoffHints = acceptsBackoffHints;
+    }
+
     public byte[] getToken() {
         return token;
     }
@@ -14,15 +14,18 @@
 
 package com.splicemachine.pipeline.client;
 
+import com.splicemachine.compression.SpliceSnappy;
 import com.splicemachine.encoding.ExpandedDecoder;
 import com.splicemachine.encoding.ExpandingEncoder;
 import com.splicemachine.kvpair.KVPair;
 import com.splicemachine.si.api.data.TxnOperationFactory;
 import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.utils.ByteSlice;
+import com.splicemachine.utils.CachedByteSlice;
 import org.spark_project.guava.collect.Iterators;
 
 import javax.annotation.Nonnull;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -32,10 +35,68 @@ import java.util.*;
  *         Date: 1/19/15
  */
 public class PipelineEncoding {
+    /**
+     * Encoding option: row keys are written as the length of the prefix they share with the previous
+     * row key of the same BulkWrite, followed by the remainder of the key. Pays off when the mutations
+     * of a BulkWrite are (mostly) sorted, as they are for bulk inserts into a table with a primary key
+     * or into an index.
+     */
+    public static final int PREFIX_ROW_KEYS = 0x01;
+    /**
+     * Encoding option: the sender can read the backoff hints which region servers attach to rejected
+     * writes (see {@link BulkWriteResult#getBackoffHint()}). Servers only attach hints for senders which
+     * set this option, so the results they return to older clients keep their original layout.
+     */
+    public static final int BACKOFF_HINTS = 0x02;
+    /**
+     * Encoding option: the encoding is not compressed. Encodings with options carry their own compression,
+     * so the pipeline compressor sends them as they are; without this option, everything after the option
+     * flags is Snappy compressed.
+     */
+    public static final int UNCOMPRESSED = 0x04;
+    private static final int KNOWN_OPTIONS = PREFIX_ROW_KEYS | BACKOFF_HINTS | UNCOMPRESSED;
+
+    /*
+     * An encoding with options starts with this marker followed by a byte of option flags. Without
+     * options the encoding starts with the length of the txn bytes, whose first byte always has the
+     * high bit set, and is compressed as a whole by the pipeline compressor. A Snappy block of a
+     * non-empty encoding never starts with a zero byte either, so receivers tell the forms apart.
+     */
+    private static final byte OPTIONS_MARKER = 0x00;
+
+    /**
+     * @param compression the value of splice.client.write.compression, "snappy" or "none"
+     * @return the encoding options for the compression
+     * @throws IllegalArgumentException if the compression is unknown
+     */
+    public static int compressionOptions(String compression){
+        if("snappy".equalsIgnoreCase(compression))
+            return 0;
+        if("none".equalsIgnoreCase(compression))
+            return UNCOMPRESSED;
+        throw new IllegalArgumentException("Unknown write pipeline compression \""+compression+"\", expected snappy or none");
+    }
+
+    /**
+     * @return true if {@code encoded} is an encoding with options, which is sent without further compression
+     */
+    public static boolean hasOptions(byte[] encoded){
+        return encoded.length>0 && encoded[0]==OPTIONS_MARKER;
+    }
 
     public static byte[] encode(TxnOperationFactory operationFactory,BulkWrites bulkWrites){
+        return encode(operationFactory,bulkWrites,0);
+    }
+
+    /**
+     * @param options a combination of encoding options (such as {@link #PREFIX_ROW_KEYS}), or 0 for the
+     *                encoding understood by all versions
+     */
+    public static byte[] encode(TxnOperationFactory operationFactory,BulkWrites bulkWrites,int options){
         /*
          * The encoding for a BulkWrites is as follows:
+         * [options marker, option flags (1 byte)]   -- only when options!=0
+         * -- the rest is Snappy compressed when there are options other than UNCOMPRESSED
          * Txn (1-N bytes)
          * # of BulkWrites (1-N bytes)
          * for 1...# of BulkWrites:
@@ -43,7 +104,10 @@ public class PipelineEncoding {
          * for 1...# of BulkWrites:
          *  flags
          * for 1...# of BulkWrites:
-         *  KVPairs
+         *  # of KVPairs
+         *  [total length of row keys]   -- only with PREFIX_ROW_KEYS
+         *  for 1...# of KVPairs:
+         *   type, [shared prefix length,] row key (or its unshared remainder), value
          *
          * This encoding follows the rule of "Header-body", where the "header" of the data
          * in this case is the metadata about the request, while the "body" is a byte array
@@ -56,8 +120,15 @@ public class PipelineEncoding {
         if (token == null)
             token = new byte[0];
 
+        assert (options & ~KNOWN_OPTIONS)==0: "Unknown encoding options "+options;
+        if(options!=0 && !SpliceSnappy.isInstalled())
+            options|=UNCOMPRESSED;
         int heapSize = bulkWrites.getBufferHeapSize();
         ExpandingEncoder buffer = new ExpandingEncoder(heapSize+txnBytes.length+token.length);
+        if(options!=0){
+            buffer.rawEncode(OPTIONS_MARKER);
+            buffer.rawEncode((byte)options);
+        }
         buffer.rawEncode(txnBytes);
         buffer.rawEncode(token);
 
@@ -72,22 +143,38 @@ public class PipelineEncoding {
             buffer.encode(bw.getFlags());
         }
 
+        boolean prefixRowKeys = (options & PREFIX_ROW_KEYS)!=0;
         for(BulkWrite bw:bws){
-            Collection<KVPair> mutations = bw.getMutations();
-            buffer.encode(mutations.size());
-            for(KVPair kvPair:mutations){
-                //TODO -sf- use a run-length encoding for type information here?
-                buffer.rawEncode(kvPair.getType().asByte());
-                buffer.rawEncode(kvPair.rowKeySlice());
-                buffer.rawEncode(kvPair.valueSlice());
-            }
+            encodeMutations(buffer,bw.getMutations(),prefixRowKeys);
+        }
+        byte[] encoded = buffer.getBuffer();
+        if(options==0 || (options & UNCOMPRESSED)!=0)
+            return encoded;
+        try{
+            byte[] compressed = new byte[2+SpliceSnappy.maxCompressedLength(encoded.length-2)];
+            System.arraycopy(encoded,0,compressed,0,2);
+            int length = SpliceSnappy.compress(encoded,2,encoded.length-2,compressed,2);
+            return Arrays.copyOf(compressed,2+length);
+        }catch(IOException ioe){
+            throw new IllegalStateException("Unable to compress BulkWrites",ioe);
         }
-        return buffer.getBuffer();
     }
 
 
     public static BulkWrites decode(TxnOperationFactory operationFactory,byte[] data){
-        ExpandedDecoder decoder = new ExpandedDecoder(data);
+        int options = 0;
+        int offset = 0;
+        if(hasOptions(data)){
+            options = data[1];
+            if((options & ~KNOWN_OPTIONS)!=0)
+                throw new IllegalArgumentException("Unknown BulkWrites encoding options "+options);
+            offset = 2;
+            if((options & UNCOMPRESSED)==0){
+                data = uncompress(data,offset);
+                offset = 0;
+            }
+        }
+        ExpandedDecoder decoder = new ExpandedDecoder(data,offset);
         byte[] txnBytes = decoder.rawBytes();
         byte[] token = decoder.rawBytes();
         TxnView txn = operationFactory.decode(txnBytes,0,txnBytes.length);
@@ -101,7 +188,102 @@ public class PipelineEncoding {
             flags[i] = decoder.decodeByte();
         }
 
-        return new BulkWrites(new BulkWriteCol(flags,data,decoder.currentOffset(),stringNames),txn,null,token);
+        boolean prefixRowKeys = (options & PREFIX_ROW_KEYS)!=0;
+        BulkWrites bulkWrites = new BulkWrites(new BulkWriteCol(flags,data,decoder.currentOffset(),stringNames,prefixRowKeys),txn,null,token);
+        bulkWrites.setAcceptsBackoffHints((options & BACKOFF_HINTS)!=0);
+        return bulkWrites;
+    }
+
+    private static byte[] uncompress(byte[] data,int offset){
+        if(!SpliceSnappy.isInstalled())
+            throw new IllegalArgumentException("Received Snappy compressed BulkWrites, but Snappy is not installed");
+        try{
+            return SpliceSnappy.uncompress(data,offset,data.length-offset);
+        }catch(IOException ioe){
+            throw new IllegalArgumentException("Corrupt compressed BulkWrites",ioe);
+        }
+    }
+
+    static void encodeMutations(ExpandingEncoder buffer,Collection<KVPair> mutations,boolean prefixRowKeys){
+        buffer.encode(mutations.size());
+        if(!prefixRowKeys){
+            for(KVPair kvPair:mutations){
+                //TODO -sf- use a run-length encoding for type information here?
+                buffer.rawEncode(kvPair.getType().asByte());
+                buffer.rawEncode(kvPair.rowKeySlice());
+                buffer.rawEncode(kvPair.valueSlice());
+            }
+            return;
+        }
+        /*
+         * The total size of the row keys comes first, so that the decoder can rebuild all
+         * of them in a single array
+         */
+        int keyBytes = 0;
+        for(KVPair kvPair:mutations){
+            keyBytes+=kvPair.rowKeySlice().length();
+        }
+        buffer.encode(keyBytes);
+        ByteSlice previous = null;
+        for(KVPair kvPair:mutations){
+            ByteSlice rowKey = kvPair.rowKeySlice();
+            int shared = previous==null?0:sharedPrefixLength(previous,rowKey);
+            buffer.rawEncode(kvPair.getType().asByte());
+            buffer.encode(shared);
+            buffer.rawEncode(rowKey.array(),rowKey.offset()+shared,rowKey.length()-shared);
+            buffer.rawEncode(kvPair.valueSlice());
+            previous = rowKey;
+        }
+    }
+
+    /**
+     * Decodes the mutations of a single BulkWrite. Values (and unprefixed row keys) are slices of the
+     * encoded buffer rather than copies; prefixed row keys are rebuilt into one array per BulkWrite.
+     */
+    static List<KVPair> decodeMutations(ExpandedDecoder decoder,boolean prefixRowKeys){
+        int size = decoder.decodeInt();
+        List<KVPair> kvPairs = new ArrayList<>(size);
+        if(!prefixRowKeys){
+            for(int i=0;i<size;i++){
+                KVPair.Type type = KVPair.Type.decode(decoder.rawByte());
+                CachedByteSlice rowKey = new CachedByteSlice();
+                decoder.sliceNext(rowKey);
+                CachedByteSlice value = new CachedByteSlice();
+                decoder.sliceNext(value);
+                kvPairs.add(new KVPair(rowKey,value,type));
+            }
+            return kvPairs;
+        }
+        byte[] rowKeys = new byte[decoder.decodeInt()];
+        ByteSlice suffix = new ByteSlice();
+        int keyOffset = 0;
+        int previousOffset = 0;
+        for(int i=0;i<size;i++){
+            KVPair.Type type = KVPair.Type.decode(decoder.rawByte());
+            int shared = decoder.decodeInt();
+            decoder.sliceNext(suffix);
+            System.arraycopy(rowKeys,previousOffset,rowKeys,keyOffset,shared);
+            System.arraycopy(suffix.array(),suffix.offset(),rowKeys,keyOffset+shared,suffix.length());
+            int keyLength = shared+suffix.length();
+            CachedByteSlice value = new CachedByteSlice();
+            decoder.sliceNext(value);
+            kvPairs.add(new KVPair(new CachedByteSlice(rowKeys,keyOffset,keyLength),value,type));
+            previousOffset = keyOffset;
+            keyOffset+=keyLength;
+        }
+        return kvPairs;
+    }
+
+    private static int sharedPrefixLength(ByteSlice left,ByteSlice right){
+        byte[] l = left.array();
+        byte[] r = right.array();
+        int lOff = left.offset();
+        int rOff = right.offset();
+        int max = Math.min(left.length(),right.length());
+        int i = 0;
+        while(i<max && l[lOff+i]==r[rOff+i])
+            i++;
+        return i;
     }
 
 
@@ -112,6 +294,7 @@ public class PipelineEncoding {
         private final List<String> encodedStringNames;
         private final byte[] flags;
         private final byte[] buffer;
+        private final boolean prefixRowKeys;
         /*
          * we keep a cache of previously created BulkWrites, so that we can have
          * deterministic iteration (i.e. returning the same objects instead of
@@ -121,11 +304,12 @@ public class PipelineEncoding {
         private transient ExpandedDecoder decoder;
         private transient int lastIndex = 0;
 
-        public BulkWriteCol(byte[] flags, byte[] buffer,int kvOffset, List<String> encodedStringNames) {
+        public BulkWriteCol(byte[] flags, byte[] buffer,int kvOffset, List<String> encodedStringNames,boolean prefixRowKeys) {
             this.kvOffset = kvOffset;
             this.encodedStringNames = encodedStringNames;
             this.buffer = buffer;
             this.flags = flags;
+            this.prefixRowKeys = prefixRowKeys;
         }
 
         @Override
@@ -168,18 +352,7 @@ public class PipelineEncoding {
             public BulkWrite next() {
                 String esN = encodedStrings.next();
                 byte elementFlags = flags[index++];
-                int size = decoder.decodeInt();
-                Collection<KVPair> kvPairs = new ArrayList<>(size);
-                KVPair template = new KVPair();
-                ByteSlice rowKeySlice = template.rowKeySlice();
-                ByteSlice valueSlice = template.valueSlice();
-                for(int i=0;i<size;i++){
-                    template.setType(KVPair.Type.decode(decoder.rawByte()));
-                    decoder.sliceNext(rowKeySlice);
-                    decoder.sliceNext(valueSlice);
-                    kvPairs.add(template.shallowClone());
-                }
-
+                Collection<KVPair> kvPairs = decodeMutations(decoder,prefixRowKeys);
 
                 BulkWrite bulkWrite = new BulkWrite(kvPairs, esN, elementFlags);
                 cache.add(bulkWrite);
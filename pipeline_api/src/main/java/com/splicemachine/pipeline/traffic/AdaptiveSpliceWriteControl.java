@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.pipeline.traffic;
+
+import com.splicemachine.concurrent.Clock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A WriteControl which adjusts the number of writer threads it admits according to how the region server is
+ * coping with the load, rather than always admitting up to the configured maximums.
+ *
+ * The configured thread maximums act as ceilings. Every control interval the current limits are recomputed
+ * from the writes completed during the interval:
+ *
+ * <ul>
+ *     <li>if any write was pushed back on by the storage layer (memstore pressure), the limits are halved;</li>
+ *     <li>otherwise, if the per-row write latency has risen above its long-term average, the limits are reduced
+ *     in proportion to the rise (a latency gradient, never less than half);</li>
+ *     <li>otherwise, if writes were rejected or the writer threads are nearly all busy, the limits are raised by a
+ *     fixed step.</li>
+ * </ul>
+ *
+ * The limits never drop below {@link #MIN_FRACTION} of their ceilings. The write-count maximums are left as
+ * configured, so that a single large write is never starved by a shrinking count limit.
+ *
+ * Rejected clients are told to back off for roughly the time it takes the in-flight writes to drain, scaled
+ * by how far demand exceeded the admitted writes during the last interval.
+ */
+public class AdaptiveSpliceWriteControl extends AtomicSpliceWriteControl{
+    static final long CONTROL_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    static final double MIN_FRACTION = 0.1d;
+    static final double INCREASE_STEP = 0.05d;
+    static final double OVERLOAD_DECREASE = 0.5d;
+    static final double MIN_GRADIENT = 0.5d;
+    /*the factor by which latency may exceed its long-term average before the limits are reduced*/
+    static final double LATENCY_TOLERANCE = 1.1d;
+    static final double LONG_TERM_SMOOTHING = 0.05d;
+    static final double SHORT_TERM_SMOOTHING = 0.3d;
+    static final double SATURATION = 0.8d;
+    static final long MAX_BACKOFF_MS = 1000L;
+
+    private final Clock clock;
+
+    private volatile int dependentThreadCeiling;
+    private volatile int independentThreadCeiling;
+
+    /*statistics of the current control interval*/
+    private final AtomicLong intervalWrites = new AtomicLong();
+    private final AtomicLong intervalRows = new AtomicLong();
+    private final AtomicLong intervalLatency = new AtomicLong();
+    private volatile boolean intervalOverloaded;
+    private final AtomicLong lastAdjustment;
+
+    /*guarded by this*/
+    private double fraction = 1d;
+    private double longTermRowLatency;
+    private long lastAdmitted;
+    private long lastRejected;
+
+    private volatile double averageLatency;
+    private volatile double rejectionRate;
+    private volatile long backoff;
+
+    public AdaptiveSpliceWriteControl(int maxDependentWriteThreads,
+                                      int maxIndependentWriteThreads,
+                                      int maxDependentWriteCount,
+                                      int maxIndependentWriteCount,
+                                      Clock clock){
+        super(maxDependentWriteThreads,maxIndependentWriteThreads,maxDependentWriteCount,maxIndependentWriteCount);
+        this.clock = clock;
+        this.dependentThreadCeiling = maxDependentWriteThreads;
+        this.independentThreadCeiling = maxIndependentWriteThreads;
+        this.lastAdjustment = new AtomicLong(clock.nanoTime());
+    }
+
+    @Override
+    public Status performDependentWrite(int writes){
+        Status status = super.performDependentWrite(writes);
+        if(status==Status.REJECTED)
+            maybeAdjust();
+        return status;
+    }
+
+    @Override
+    public void writeComplete(int writes,long latencyNanos,boolean overloaded){
+        intervalWrites.incrementAndGet();
+        intervalRows.addAndGet(writes);
+        intervalLatency.addAndGet(latencyNanos);
+        if(overloaded)
+            intervalOverloaded = true;
+        maybeAdjust();
+    }
+
+    @Override
+    public long getRejectionBackoff(){
+        return backoff;
+    }
+
+    @Override
+    public boolean isAdaptive(){
+        return true;
+    }
+
+    @Override
+    public double getRejectionRate(){
+        return rejectionRate;
+    }
+
+    @Override
+    public double getAverageWriteLatency(){
+        return averageLatency/TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public int maxDependendentWriteThreads(){
+        return dependentThreadCeiling;
+    }
+
+    @Override
+    public int maxIndependentWriteThreads(){
+        return independentThreadCeiling;
+    }
+
+    @Override
+    public synchronized void setMaxDependentWriteThreads(int newMaxDependentWriteThreads){
+        this.dependentThreadCeiling = newMaxDependentWriteThreads;
+        applyLimits();
+    }
+
+    @Override
+    public synchronized void setMaxIndependentWriteThreads(int newMaxIndependentWriteThreads){
+        this.independentThreadCeiling = newMaxIndependentWriteThreads;
+        applyLimits();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void maybeAdjust(){
+        long now = clock.nanoTime();
+        long last = lastAdjustment.get();
+        if(now-last>=CONTROL_INTERVAL_NANOS && lastAdjustment.compareAndSet(last,now))
+            adjust();
+    }
+
+    synchronized void adjust(){
+        long writes = intervalWrites.getAndSet(0L);
+        long rows = intervalRows.getAndSet(0L);
+        long latency = intervalLatency.getAndSet(0L);
+        boolean overloaded = intervalOverloaded;
+        intervalOverloaded = false;
+
+        long admitted = getAdmittedWrites();
+        long rejected = getRejectedWrites();
+        long admittedDelta = admitted-lastAdmitted;
+        long rejectedDelta = rejected-lastRejected;
+        lastAdmitted = admitted;
+        lastRejected = rejected;
+        long requests = admittedDelta+rejectedDelta;
+        rejectionRate = requests==0?0d:((double)rejectedDelta)/requests;
+
+        double f = fraction;
+        if(overloaded){
+            f *= OVERLOAD_DECREASE;
+        }else if(rows>0){
+            double rowLatency = ((double)latency)/rows;
+            if(longTermRowLatency==0d)
+                longTermRowLatency = rowLatency;
+            double gradient = longTermRowLatency*LATENCY_TOLERANCE/rowLatency;
+            if(gradient<1d)
+                f *= Math.max(MIN_GRADIENT,gradient);
+            else if(rejectedDelta>0 || isSaturated())
+                f += INCREASE_STEP;
+            longTermRowLatency = longTermRowLatency*(1d-LONG_TERM_SMOOTHING)+rowLatency*LONG_TERM_SMOOTHING;
+        }
+        f = Math.max(MIN_FRACTION,Math.min(1d,f));
+        if(f!=fraction){
+            fraction = f;
+            applyLimits();
+        }
+
+        if(writes>0){
+            double writeLatency = ((double)latency)/writes;
+            double avg = averageLatency;
+            averageLatency = avg==0d?writeLatency:avg*(1d-SHORT_TERM_SMOOTHING)+writeLatency*SHORT_TERM_SMOOTHING;
+        }
+        backoff = computeBackoff(admittedDelta,requests);
+    }
+
+    private long computeBackoff(long admittedDelta,long requests){
+        double avg = averageLatency;
+        if(avg==0d) return 0L; //no measurements yet, let the client decide
+        double oversubscription = ((double)requests)/Math.max(1L,admittedDelta);
+        long millis = (long)Math.ceil(avg*oversubscription/TimeUnit.MILLISECONDS.toNanos(1));
+        return Math.max(1L,Math.min(MAX_BACKOFF_MS,millis));
+    }
+
+    private boolean isSaturated(){
+        WriteStatus status = getWriteStatus();
+        return status.getDependentWriteThreads()>=SATURATION*maxDependentWriteThreads
+                || status.getIndependentWriteThreads()>=SATURATION*maxIndependentWriteThreads;
+    }
+
+    private void applyLimits(){
+        maxDependentWriteThreads = scale(dependentThreadCeiling,fraction);
+        maxIndependentWriteThreads = scale(independentThreadCeiling,fraction);
+    }
+
+    private static int scale(int ceiling,double fraction){
+        if(ceiling<=1) return ceiling;
+        return (int)Math.max(1L,Math.min(ceiling,Math.round(ceiling*fraction)));
+    }
+}
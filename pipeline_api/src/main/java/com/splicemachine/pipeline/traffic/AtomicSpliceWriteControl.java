@@ -14,6 +14,8 @@
 
 package com.splicemachine.pipeline.traffic;
 
+import com.splicemachine.pipeline.api.WriteControlStatus;
+
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -25,16 +27,19 @@ import java.util.concurrent.atomic.AtomicLong;
  * It essentially gives out "permits" when the write request fits within the control limits and rejects write requests when they don't.
  */
 
-public class AtomicSpliceWriteControl implements SpliceWriteControl{
+public class AtomicSpliceWriteControl implements SpliceWriteControl,WriteControlStatus{
 
-    protected int maxDependentWriteThreads;
-    protected int maxIndependentWriteThreads;
-    protected int maxDependentWriteCount;
-    protected int maxIndependentWriteCount;
+    protected volatile int maxDependentWriteThreads;
+    protected volatile int maxIndependentWriteThreads;
+    protected volatile int maxDependentWriteCount;
+    protected volatile int maxIndependentWriteCount;
 
     private final AtomicLong dependentWrites = new AtomicLong();
     private final AtomicLong independentWrites = new AtomicLong();
 
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
     public AtomicSpliceWriteControl(int maxDependentWriteThreads,
                                     int maxIndependentWriteThreads,int maxDependentWriteCount,int maxIndependentWriteCount) {
         assert (maxDependentWriteThreads >= 0 &&
@@ -66,9 +71,11 @@ public class AtomicSpliceWriteControl implements SpliceWriteControl{
             int threads = toThreads(val) + 1;
             int count = toWrites(val) + writes;
             if (threads > maxDependentWriteThreads || count > maxDependentWriteCount) {
+                rejected.incrementAndGet();
                 return Status.REJECTED;
             }
             if (dependentWrites.compareAndSet(val, toValue(threads, count))) {
+                admitted.incrementAndGet();
                 return Status.DEPENDENT;
             }
         }
@@ -90,6 +97,7 @@ public class AtomicSpliceWriteControl implements SpliceWriteControl{
                 return performDependentWrite(writes);
             }
             if (independentWrites.compareAndSet(val, toValue(threads, count))) {
+                admitted.incrementAndGet();
                 return Status.INDEPENDENT;
             }
         }
@@ -109,6 +117,63 @@ public class AtomicSpliceWriteControl implements SpliceWriteControl{
                 toWrites(indepVal), toThreads(indepVal));
     }
 
+    @Override
+    public void writeComplete(int writes,long latencyNanos,boolean overloaded){
+        //no-op, the limits are fixed
+    }
+
+    @Override
+    public long getRejectionBackoff(){
+        return 0L;
+    }
+
+    @Override
+    public boolean isAdaptive(){
+        return false;
+    }
+
+    @Override
+    public int getDependentWriteThreadLimit(){
+        return maxDependentWriteThreads;
+    }
+
+    @Override
+    public int getIndependentWriteThreadLimit(){
+        return maxIndependentWriteThreads;
+    }
+
+    @Override
+    public int getDependentWriteCountLimit(){
+        return maxDependentWriteCount;
+    }
+
+    @Override
+    public int getIndependentWriteCountLimit(){
+        return maxIndependentWriteCount;
+    }
+
+    @Override
+    public long getAdmittedWrites(){
+        return admitted.get();
+    }
+
+    @Override
+    public long getRejectedWrites(){
+        return rejected.get();
+    }
+
+    @Override
+    public double getRejectionRate(){
+        long r = rejected.get();
+        long total = r+admitted.get();
+        return total==0?0d:((double)r)/total;
+    }
+
+    @Override
+    public double getAverageWriteLatency(){
+        return 0d;
+    }
+
     @Override
     public int maxDependendentWriteThreads(){
         return maxDependentWriteThreads;
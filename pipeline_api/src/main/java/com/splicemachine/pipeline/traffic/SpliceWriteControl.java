@@ -33,6 +33,22 @@ public interface SpliceWriteControl{
 
     WriteStatus getWriteStatus();
 
+    /**
+     * Records the outcome of a write which was admitted by this control.
+     *
+     * @param writes the number of rows in the write
+     * @param latencyNanos how long the write took
+     * @param overloaded {@code true} if the write was pushed back on by the storage layer (e.g. because
+     *                   the region's memstore was full)
+     */
+    void writeComplete(int writes,long latencyNanos,boolean overloaded);
+
+    /**
+     * @return how long (in milliseconds) a client whose write was rejected should wait before it retries, or
+     * 0 if the client should fall back to its own backoff policy
+     */
+    long getRejectionBackoff();
+
     int maxDependendentWriteThreads();
 
     int maxIndependentWriteThreads();
@@ -90,6 +90,16 @@ public class SynchronousWriteControl implements SpliceWriteControl{
         return currStatus;
     }
 
+    @Override
+    public void writeComplete(int writes,long latencyNanos,boolean overloaded){
+        //no-op, the limits are fixed
+    }
+
+    @Override
+    public long getRejectionBackoff(){
+        return 0L;
+    }
+
     @Override
     public int maxDependendentWriteThreads(){
         return maxDependentWriteThreads;
@@ -31,17 +31,26 @@ import java.io.IOException;
 public class SimplePipelineCompressor implements PipelineCompressor{
     private final TxnOperationFactory txnOperationFactory;
     private final KryoPool kp;
+    private final int encodingOptions;
 
     public SimplePipelineCompressor(KryoPool kp,TxnOperationFactory txnOperationFactory){
+        this(kp,txnOperationFactory,0);
+    }
+
+    /**
+     * @param encodingOptions the {@link PipelineEncoding} options for encoding BulkWrites
+     */
+    public SimplePipelineCompressor(KryoPool kp,TxnOperationFactory txnOperationFactory,int encodingOptions){
         this.txnOperationFactory = txnOperationFactory;
         this.kp = kp;
+        this.encodingOptions = encodingOptions;
     }
 
     @Override
     public byte[] compress(Object o) throws IOException{
         if(o instanceof BulkWrites){
             BulkWrites bw = (BulkWrites)o;
-            return PipelineEncoding.encode(txnOperationFactory,bw);
+            return PipelineEncoding.encode(txnOperationFactory,bw,encodingOptions);
         }else {
             Output out = new Output(128,-1);
             Kryo kryo = kp.get();
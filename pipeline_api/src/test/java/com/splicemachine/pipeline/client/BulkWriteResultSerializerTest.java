@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.pipeline.client;
+
+import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.IntObjectHashMap;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.splicemachine.pipeline.api.Code;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.utils.kryo.ExternalizableSerializer;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.junit.Assert.assertEquals;
+
+@Category(ArchitectureIndependent.class)
+public class BulkWriteResultSerializerTest{
+
+    @Test
+    public void resultsWithoutHintsKeepTheOriginalLayout(){
+        Kryo kryo = newKryo();
+        byte[] data = serialize(kryo,newResult());
+
+        // the layout before backoff hints: global status, rows not run, failed rows, and nothing else
+        Input input = new Input(data);
+        assertEquals(Code.PARTIAL,kryo.readObject(input,WriteResult.class).getCode());
+        assertEquals("Incorrect number of rows not run",3,input.readInt());
+        for(int i=0;i<3;i++)
+            input.readInt();
+        assertEquals("Incorrect number of failed rows",1,input.readInt());
+        input.readInt();
+        kryo.readObject(input,WriteResult.class);
+        assertEquals("Unexpected trailing data",data.length,input.position());
+    }
+
+    @Test
+    public void roundTripsBackoffHints(){
+        Kryo kryo = newKryo();
+        BulkWriteResult result = newResult();
+        result.setBackoffHint(250);
+
+        BulkWriteResult decoded = deserialize(kryo,serialize(kryo,result));
+        assertEquals("Incorrect backoff hint",250,decoded.getBackoffHint());
+        assertEquals("Incorrect rows not run",result.getNotRunRows(),decoded.getNotRunRows());
+        assertEquals("Incorrect number of failed rows",1,decoded.getFailedRows().size());
+        assertEquals(Code.PIPELINE_TOO_BUSY,decoded.getFailedRows().get(7).getCode());
+    }
+
+    @Test
+    public void readsResultsWithoutHints(){
+        Kryo kryo = newKryo();
+        BulkWriteResult decoded = deserialize(kryo,serialize(kryo,newResult()));
+        assertEquals("Unexpected backoff hint",0,decoded.getBackoffHint());
+        assertEquals("Incorrect number of rows not run",3,decoded.getNotRunRows().size());
+    }
+
+    private static Kryo newKryo(){
+        Kryo kryo = new Kryo();
+        kryo.register(WriteResult.class,ExternalizableSerializer.INSTANCE);
+        return kryo;
+    }
+
+    private static BulkWriteResult newResult(){
+        IntHashSet notRunRows = new IntHashSet();
+        notRunRows.add(1);
+        notRunRows.add(2);
+        notRunRows.add(3);
+        IntObjectHashMap<WriteResult> failedRows = new IntObjectHashMap<>();
+        failedRows.put(7,new WriteResult(Code.PIPELINE_TOO_BUSY));
+        return new BulkWriteResult(new WriteResult(Code.PARTIAL),notRunRows,failedRows);
+    }
+
+    private static byte[] serialize(Kryo kryo,BulkWriteResult result){
+        Output output = new Output(64,-1);
+        BulkWriteResult.kryoSerializer().write(kryo,output,result);
+        return output.toBytes();
+    }
+
+    private static BulkWriteResult deserialize(Kryo kryo,byte[] data){
+        return BulkWriteResult.kryoSerializer().read(kryo,new Input(data),BulkWriteResult.class);
+    }
+}
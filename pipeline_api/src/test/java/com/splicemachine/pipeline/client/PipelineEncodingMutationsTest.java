@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.pipeline.client;
+
+import com.splicemachine.encoding.ExpandedDecoder;
+import com.splicemachine.encoding.ExpandingEncoder;
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.data.TxnOperationFactory;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Category(ArchitectureIndependent.class)
+public class PipelineEncodingMutationsTest{
+
+    @Test
+    public void roundTripsWithoutPrefixes(){
+        List<KVPair> mutations = sortedMutations(100);
+        assertMatches(mutations,roundTrip(mutations,false));
+    }
+
+    @Test
+    public void roundTripsWithPrefixes(){
+        List<KVPair> mutations = sortedMutations(100);
+        assertMatches(mutations,roundTrip(mutations,true));
+    }
+
+    @Test
+    public void prefixesHandleUnsortedAndEmptyKeys(){
+        List<KVPair> mutations = Arrays.asList(
+                new KVPair(Bytes.toBytes("row-20"),Bytes.toBytes(1),KVPair.Type.INSERT),
+                new KVPair(Bytes.toBytes("row-1"),Bytes.toBytes(2),KVPair.Type.DELETE),
+                new KVPair(new byte[0],new byte[0],KVPair.Type.UPSERT),
+                new KVPair(Bytes.toBytes("row-1"),Bytes.toBytes(3),KVPair.Type.UPDATE),
+                new KVPair(Bytes.toBytes("row-1-and-more"),Bytes.toBytes(4),KVPair.Type.INSERT));
+        assertMatches(mutations,roundTrip(mutations,true));
+    }
+
+    @Test
+    public void prefixesShrinkSortedKeys(){
+        List<KVPair> mutations = sortedMutations(1000);
+        ExpandingEncoder plain = new ExpandingEncoder(64);
+        PipelineEncoding.encodeMutations(plain,mutations,false);
+        ExpandingEncoder prefixed = new ExpandingEncoder(64);
+        PipelineEncoding.encodeMutations(prefixed,mutations,true);
+        assertTrue("Prefixed keys should be smaller",prefixed.getBuffer().length<plain.getBuffer().length);
+    }
+
+    private static List<KVPair> roundTrip(List<KVPair> mutations,boolean prefixRowKeys){
+        ExpandingEncoder encoder = new ExpandingEncoder(64);
+        PipelineEncoding.encodeMutations(encoder,mutations,prefixRowKeys);
+        return PipelineEncoding.decodeMutations(new ExpandedDecoder(encoder.getBuffer()),prefixRowKeys);
+    }
+    @Test
+    public void uncompressedEncodingCarriesItsOptions(){
+        TxnView txn = mock(TxnView.class);
+        TxnOperationFactory operationFactory = mock(TxnOperationFactory.class);
+        when(operationFactory.encode(txn)).thenReturn(new byte[]{1,2,3});
+        when(operationFactory.decode(any(byte[].class),anyInt(),anyInt())).thenReturn(txn);
+        List<KVPair> mutations = sortedMutations(10);
+        BulkWrites bulkWrites = new BulkWrites(Arrays.asList(new BulkWrite(mutations,"region")),txn);
+
+        assertFalse("Plain encoding should be compressed by the pipeline compressor",
+                PipelineEncoding.hasOptions(PipelineEncoding.encode(operationFactory,bulkWrites)));
+        byte[] encoded = PipelineEncoding.encode(operationFactory,bulkWrites,
+                PipelineEncoding.UNCOMPRESSED|PipelineEncoding.BACKOFF_HINTS);
+        assertTrue("Encoding should say it is uncompressed",PipelineEncoding.hasOptions(encoded));
+
+        BulkWrites decoded = PipelineEncoding.decode(operationFactory,encoded);
+        assertSame(txn,decoded.getTxn());
+        assertTrue(decoded.acceptsBackoffHints());
+        BulkWrite bulkWrite = decoded.getBulkWrites().iterator().next();
+        assertEquals("region",bulkWrite.getEncodedStringName());
+        assertMatches(mutations,new ArrayList<>(bulkWrite.getMutations()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownCompression(){
+        PipelineEncoding.compressionOptions("lz4");
+    }
+
+    @Test
+    public void mapsCompressionToOptions(){
+        assertEquals(0,PipelineEncoding.compressionOptions("snappy"));
+        assertEquals(PipelineEncoding.UNCOMPRESSED,PipelineEncoding.compressionOptions("NONE"));
+    }
+
+    private static List<KVPair> sortedMutations(int size){
+        List<KVPair> mutations = new ArrayList<>(size);
+        for(int i=0;i<size;i++){
+            mutations.add(new KVPair(Bytes.toBytes(String.format("tenant-0042-order-%08d",i)),
+                    Bytes.toBytes(i),KVPair.Type.INSERT));
+        }
+        return mutations;
+    }
+
+    private static void assertMatches(List<KVPair> expected,List<KVPair> actual){
+        assertEquals("Incorrect number of mutations",expected.size(),actual.size());
+        for(int i=0;i<expected.size();i++){
+            KVPair e = expected.get(i);
+            KVPair a = actual.get(i);
+            assertArrayEquals("Incorrect row key at "+i,e.getRowKey(),a.getRowKey());
+            assertArrayEquals("Incorrect value at "+i,e.getValue(),a.getValue());
+            assertEquals("Incorrect type at "+i,e.getType(),a.getType());
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.pipeline.traffic;
+
+import com.splicemachine.concurrent.IncrementingClock;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@Category(ArchitectureIndependent.class)
+public class AdaptiveSpliceWriteControlTest{
+    private static final long WRITE_LATENCY = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    public void memstorePressureHalvesLimits() {
+        IncrementingClock clock = new IncrementingClock();
+        AdaptiveSpliceWriteControl control = new AdaptiveSpliceWriteControl(10, 20, 1000, 1000, clock);
+
+        completeInterval(control, clock, WRITE_LATENCY, true);
+        assertEquals(5, control.getDependentWriteThreadLimit());
+        assertEquals(10, control.getIndependentWriteThreadLimit());
+        assertEquals("Ceilings should not change", 10, control.maxDependendentWriteThreads());
+        assertEquals("Count limits should not change", 1000, control.getDependentWriteCountLimit());
+
+        for (int i = 0; i < 10; i++) {
+            completeInterval(control, clock, WRITE_LATENCY, true);
+        }
+        assertEquals("Limits should not drop below their floor", 1, control.getDependentWriteThreadLimit());
+        assertEquals("Limits should not drop below their floor", 2, control.getIndependentWriteThreadLimit());
+    }
+
+    @Test
+    public void latencyRiseShrinksLimitsAndDemandRestoresThem() {
+        IncrementingClock clock = new IncrementingClock();
+        AdaptiveSpliceWriteControl control = new AdaptiveSpliceWriteControl(10, 10, 1000, 1000, clock);
+
+        completeInterval(control, clock, WRITE_LATENCY, false);
+        assertEquals("Stable latency without demand should not change the limits", 10, control.getDependentWriteThreadLimit());
+
+        completeInterval(control, clock, 4 * WRITE_LATENCY, false);
+        assertEquals(5, control.getDependentWriteThreadLimit());
+
+        int admitted = fillUntilRejected(control);
+        assertEquals(5, admitted);
+        completeInterval(control, clock, WRITE_LATENCY, false);
+        assertEquals(6, control.getDependentWriteThreadLimit());
+
+        for (int i = 0; i < 20; i++) {
+            fillUntilRejected(control);
+            completeInterval(control, clock, WRITE_LATENCY, false);
+        }
+        assertEquals("Limits should be restored to their ceiling", 10, control.getDependentWriteThreadLimit());
+        assertEquals("Limits should not exceed their ceiling", 10, fillUntilRejected(control));
+    }
+
+    @Test
+    public void rejectedClientsAreToldToBackOff() {
+        IncrementingClock clock = new IncrementingClock();
+        AdaptiveSpliceWriteControl control = new AdaptiveSpliceWriteControl(2, 2, 1000, 1000, clock);
+        assertEquals("No backoff without measurements", 0L, control.getRejectionBackoff());
+
+        for (int i = 0; i < 3; i++) {
+            fillUntilRejected(control);
+            fillUntilRejected(control);
+            completeInterval(control, clock, WRITE_LATENCY, false);
+        }
+        long backoff = control.getRejectionBackoff();
+        assertTrue("Backoff should cover the write latency, was " + backoff, backoff >= 10L);
+        assertTrue("Backoff should be bounded, was " + backoff, backoff <= AdaptiveSpliceWriteControl.MAX_BACKOFF_MS);
+        assertTrue("Rejections should be reported", control.getRejectionRate() > 0d);
+    }
+
+    @Test
+    public void changingCeilingRescalesLimits() {
+        IncrementingClock clock = new IncrementingClock();
+        AdaptiveSpliceWriteControl control = new AdaptiveSpliceWriteControl(10, 10, 1000, 1000, clock);
+        completeInterval(control, clock, WRITE_LATENCY, true);
+        assertEquals(5, control.getDependentWriteThreadLimit());
+
+        control.setMaxDependentWriteThreads(40);
+        assertEquals(40, control.maxDependendentWriteThreads());
+        assertEquals(20, control.getDependentWriteThreadLimit());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static void completeInterval(SpliceWriteControl control, IncrementingClock clock, long latency, boolean overloaded) {
+        clock.increment(AdaptiveSpliceWriteControl.CONTROL_INTERVAL_NANOS);
+        control.writeComplete(10, latency, overloaded);
+    }
+
+    /**
+     * Admits dependent writes until one is rejected, then finishes them all.
+     *
+     * @return the number of writes admitted
+     */
+    private static int fillUntilRejected(SpliceWriteControl control) {
+        int admitted = 0;
+        while (control.performDependentWrite(10) != SpliceWriteControl.Status.REJECTED) {
+            admitted++;
+        }
+        for (int i = 0; i < admitted; i++) {
+            control.finishDependentWrite(10);
+        }
+        return admitted;
+    }
+}
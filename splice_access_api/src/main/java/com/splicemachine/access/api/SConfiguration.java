@@ -346,7 +346,61 @@ public interface SConfiguration {
 
     long getControlExecutionRowLimit();
 
+    long getControlExecutionMemoryLimit();
+
+    String getControlExecutionSpillDirectory();
+
     String getOlapLog4jConfig();
 
     int getMaxCheckTableErrors();
+
+    long getBroadcastJoinCacheSize();
+
+    int getConflictDetectionBatchThreshold();
+
+    String getMemStorageDirectory();
+
+    long getMemStorageFlushSize();
+
+    int getMemStorageCompactionThreshold();
+
+    long getMemStorageBlockCacheSize();
+
+    int getControlExecutionBatchSize();
+
+    boolean getSparkResultStreamingEncoded();
+
+    boolean getSparkResultStreamingCompression();
+
+    boolean getAdaptiveWriteControl();
+
+    int getTxnStatusCacheSize();
+
+    int getTxnResolutionBatchSize();
+
+    int getRollforwardMaxPendingRows();
+
+    int getRollforwardBatchSize();
+
+    int getImportParseParallelism();
+
+    String getPipelineCompression();
+
+    boolean getPipelinePrefixRowKeys();
+
+    int getTimestampClientMaxInFlight();
+
+    boolean getCollectStatisticsOnMajorCompaction();
+
+    int getWorkloadThreads();
+
+    int getWorkloadLevelBound();
+
+    int getWorkloadOltpMaxConcurrent();
+
+    int getWorkloadDefaultMaxConcurrent();
+
+    int getWorkloadBatchMaxConcurrent();
+
+    int getForeignKeyParentCacheSize();
 }
@@ -187,8 +187,35 @@ public class ConfigurationBuilder {
     public int bulkImportTasksPerRegion;
     public int regionToLoadPerTask;
     public long controlExecutionRowLimit;
+    public long controlExecutionMemoryLimit;
+    public String controlExecutionSpillDirectory;
     public int olapShufflePartitions;
     public String olapLog4jConfig;
+    public long broadcastJoinCacheSize;
+    public int conflictDetectionBatchThreshold;
+    public String memStorageDirectory;
+    public long memStorageFlushSize;
+    public int memStorageCompactionThreshold;
+    public long memStorageBlockCacheSize;
+    public int controlExecutionBatchSize;
+    public boolean sparkResultStreamingEncoded;
+    public boolean sparkResultStreamingCompression;
+    public boolean adaptiveWriteControl;
+    public int txnStatusCacheSize;
+    public int txnResolutionBatchSize;
+    public int rollForwardMaxPendingRows;
+    public int rollForwardBatchSize;
+    public int importParseParallelism;
+    public String pipelineCompression;
+    public boolean pipelinePrefixRowKeys;
+    public int timestampClientMaxInFlight;
+    public boolean collectStatisticsOnMajorCompaction;
+    public int workloadThreads;
+    public int workloadLevelBound;
+    public int workloadOltpMaxConcurrent;
+    public int workloadDefaultMaxConcurrent;
+    public int workloadBatchMaxConcurrent;
+    public int foreignKeyParentCacheSize;
 
 
     /**
@@ -28,6 +28,12 @@ public class OperationConfiguration implements ConfigurationDefault {
     @SuppressFBWarnings(value = "MS_MUTABLE_ARRAY",justification = "Intentional")
     public static final byte[] SEQUENCE_TABLE_NAME_BYTES = Bytes.toBytes(SEQUENCE_TABLE_NAME);
 
+    /**
+     * The non-transactional table recording the writers of each table for the result cache. Created
+     * by the first server to need it.
+     */
+    public static final String RESULT_CACHE_WRITERS_TABLE_NAME = "SPLICE_RESULT_CACHE_WRITERS";
+
     /**
      * The number of sequential entries to reserve in a single sequential block.
      *
@@ -51,9 +57,56 @@ public class OperationConfiguration implements ConfigurationDefault {
     public static final String THREAD_POOL_MAX_SIZE = "splice.threadPool.maxSize";
     private static final int DEFAULT_THREAD_POOL_MAX_SIZE = 256;
 
+    /**
+     * The number of threads which execute classified query tasks (index lookups, parallel unions,
+     * write pipeline handlers) on a region server. Tasks queue by workload class once they are all busy.
+     *
+     * Defaults to 64
+     */
+    public static final String WORKLOAD_THREADS = "splice.workload.threads";
+    private static final int DEFAULT_WORKLOAD_THREADS = 64;
+
+    /**
+     * The number of queued tasks of a workload class which are executed before one task of the next lower
+     * class is let through, so that lower classes are never starved.
+     *
+     * Defaults to 4
+     */
+    public static final String WORKLOAD_LEVEL_BOUND = "splice.workload.levelBound";
+    private static final int DEFAULT_WORKLOAD_LEVEL_BOUND = 4;
+
+    /**
+     * The maximum number of OLTP tasks executing at once on a region server, or 0 for no limit.
+     *
+     * Defaults to 0
+     */
+    public static final String WORKLOAD_OLTP_MAX_CONCURRENT = "splice.workload.oltp.maxConcurrent";
+    private static final int DEFAULT_WORKLOAD_OLTP_MAX_CONCURRENT = 0;
+
+    /**
+     * The maximum number of DEFAULT class tasks executing at once on a region server, or 0 for no limit.
+     *
+     * Defaults to 0
+     */
+    public static final String WORKLOAD_DEFAULT_MAX_CONCURRENT = "splice.workload.default.maxConcurrent";
+    private static final int DEFAULT_WORKLOAD_DEFAULT_MAX_CONCURRENT = 0;
+
+    /**
+     * The maximum number of BATCH tasks executing at once on a region server, or 0 for no limit.
+     *
+     * Defaults to 16
+     */
+    public static final String WORKLOAD_BATCH_MAX_CONCURRENT = "splice.workload.batch.maxConcurrent";
+    private static final int DEFAULT_WORKLOAD_BATCH_MAX_CONCURRENT = 16;
+
     @Override
     public void setDefaults(ConfigurationBuilder builder, ConfigurationSource configurationSource) {
         builder.sequenceBlockSize = configurationSource.getInt(SEQUENCE_BLOCK_SIZE, DEFAULT_SEQUENCE_BLOCK_SIZE);
         builder.threadPoolMaxSize = configurationSource.getInt(THREAD_POOL_MAX_SIZE, DEFAULT_THREAD_POOL_MAX_SIZE);
+        builder.workloadThreads = configurationSource.getInt(WORKLOAD_THREADS, DEFAULT_WORKLOAD_THREADS);
+        builder.workloadLevelBound = configurationSource.getInt(WORKLOAD_LEVEL_BOUND, DEFAULT_WORKLOAD_LEVEL_BOUND);
+        builder.workloadOltpMaxConcurrent = configurationSource.getInt(WORKLOAD_OLTP_MAX_CONCURRENT, DEFAULT_WORKLOAD_OLTP_MAX_CONCURRENT);
+        builder.workloadDefaultMaxConcurrent = configurationSource.getInt(WORKLOAD_DEFAULT_MAX_CONCURRENT, DEFAULT_WORKLOAD_DEFAULT_MAX_CONCURRENT);
+        builder.workloadBatchMaxConcurrent = configurationSource.getInt(WORKLOAD_BATCH_MAX_CONCURRENT, DEFAULT_WORKLOAD_BATCH_MAX_CONCURRENT);
     }
 }
@@ -20,6 +20,7 @@ package com.splicemachine.access.configuration;
  */
 public class PipelineConfiguration implements ConfigurationDefault {
     public static final String WRITE_COORDINATOR_OBJECT_LOCATION = "com.splicemachine.writer:type=WriteCoordinatorStatus";
+    public static final String WRITE_CONTROL_OBJECT_LOCATION = "com.splicemachine.writer:type=WriteControlStatus";
     public static final String WRITER_STATUS_OBJECT_LOCATION = "com.splicemachine.writer.async:type=WriterStatus";
     public static final String THREAD_POOL_STATUS_LOCATION = "com.splicemachine.writer.async:type=ThreadPoolStatus";
 
@@ -38,6 +39,31 @@ public class PipelineConfiguration implements ConfigurationDefault {
     public static final String SPARK_RESULT_STREAMING_BATCH_SIZE = "spark.result.streaming.batch.size";
     public static final int DEFAULT_SPARK_RESULT_STREAMING_BATCH_SIZE = 1024;
 
+    /**
+     * When true, OLAP results are streamed back to the region server as batches of rows already encoded in
+     * the Splice row format, and are only decoded as the client consumes them. When false, rows are sent
+     * one at a time, serialized with Kryo.
+     *
+     * The region server picks the mode for each query and sends it to the OLAP server with the query job,
+     * so both ends of a stream always use the same one. Jobs are Java-serialized, and only run on an OLAP
+     * server of the same build as the region server which submitted them, so mixed versions don't need a
+     * fallback.
+     *
+     * Defaults to true
+     */
+    public static final String SPARK_RESULT_STREAMING_ENCODED = "spark.result.streaming.encoded";
+    public static final boolean DEFAULT_SPARK_RESULT_STREAMING_ENCODED = true;
+
+    /**
+     * When true, and encoded result streaming is enabled, each batch of rows is Snappy-compressed before it
+     * is sent. Worth enabling when the network between the OLAP server and the region servers is slower than
+     * the CPU cost of compression.
+     *
+     * Defaults to false
+     */
+    public static final String SPARK_RESULT_STREAMING_COMPRESSION = "spark.result.streaming.compression";
+    public static final boolean DEFAULT_SPARK_RESULT_STREAMING_COMPRESSION = false;
+
     public static final String SPARK_COMPACTION_RESERVED_SLOTS = "spark.compaction.reserved.slots";
     public static final int DEFAULT_SPARK_COMPACTION_RESERVED_SLOTS = 1;
 
@@ -152,9 +178,56 @@ public class PipelineConfiguration implements ConfigurationDefault {
     public static final String MAX_DEPENDENT_WRITE_THREADS="splice.dependent.write.threads";
     public static final int DEFAULT_MAX_DEPENDENT_WRITE_THREADS = 50;
 
+    /**
+     * When enabled, the region server tunes the number of concurrent writes it admits (up to the configured
+     * thread and write-count maximums) from observed write latency and memstore pressure, and tells
+     * rejected clients how long to back off before retrying. Clients with this setting ask for those hints
+     * in the BulkWrites encoding options, which versions without this setting cannot decode, so only enable
+     * it once the whole cluster has been upgraded.
+     *
+     * Defaults to false
+     */
+    public static final String ADAPTIVE_WRITE_CONTROL = "splice.client.write.adaptiveControl";
+    public static final boolean DEFAULT_ADAPTIVE_WRITE_CONTROL = false;
+
     public static final String PIPELINE_KRYO_POOL_SIZE= "splice.writer.kryoPoolSize";
     private static final int DEFAULT_PIPELINE_KRYO_POOL_SIZE=1024;
 
+    /**
+     * Block compression applied to the writes a client sends down the write pipeline: "snappy" or
+     * "none"; any other value fails startup. Compression costs CPU on both ends, and is mostly worth
+     * it when the network between region servers is the bottleneck. The compression is recorded in
+     * the BulkWrites encoding, so region servers decode writes from clients with either setting, but
+     * versions without this setting cannot decode uncompressed writes, so only disable it once the
+     * whole cluster has been upgraded.
+     *
+     * Defaults to snappy
+     */
+    public static final String PIPELINE_COMPRESSION = "splice.client.write.compression";
+    private static final String DEFAULT_PIPELINE_COMPRESSION = "snappy";
+
+    /**
+     * When true, row keys in a BulkWrite are sent as the length of the prefix shared with the
+     * previous row key plus the remainder. Any region server can decode either form, but
+     * versions without this setting cannot, so only enable it once the whole cluster has
+     * been upgraded.
+     *
+     * Defaults to false
+     */
+    public static final String PIPELINE_PREFIX_ROW_KEYS = "splice.client.write.prefixRowKeys";
+    private static final boolean DEFAULT_PIPELINE_PREFIX_ROW_KEYS = false;
+
+    /**
+     * The maximum number of referenced (parent) keys that each region server remembers as having
+     * been verified by a foreign key check. A child write whose parent key is found here skips the
+     * lookup against the parent table. Set to 0 to disable the cache; keys are then only
+     * deduplicated within a single write.
+     *
+     * Defaults to 100000
+     */
+    public static final String FOREIGN_KEY_PARENT_CACHE_SIZE = "splice.foreignKey.parentCacheSize";
+    private static final int DEFAULT_FOREIGN_KEY_PARENT_CACHE_SIZE = 100000;
+
     public static final String BULK_IMPORT_SAMPLE_FRACTION = "splice.bulkImport.sample.fraction";
     private static final double DEFAULT_BULK_IMPORT_SAMPLE_FRACTION = 0.005d;
 
@@ -193,5 +266,11 @@ public class PipelineConfiguration implements ConfigurationDefault {
         builder.bulkImportSampleFraction = configurationSource.getDouble(BULK_IMPORT_SAMPLE_FRACTION, DEFAULT_BULK_IMPORT_SAMPLE_FRACTION);
         builder.bulkImportTasksPerRegion = configurationSource.getInt(BULK_IMPORT_TASKS_PER_REGION, DEFAULT_BULK_IMPORT_TASKS_PER_REGION);
         builder.regionToLoadPerTask = configurationSource.getInt(REGION_TOLOAD_PER_TASK, DEFAULT_REGION_TOLOAD_PER_TASK);
+        builder.sparkResultStreamingEncoded = configurationSource.getBoolean(SPARK_RESULT_STREAMING_ENCODED, DEFAULT_SPARK_RESULT_STREAMING_ENCODED);
+        builder.sparkResultStreamingCompression = configurationSource.getBoolean(SPARK_RESULT_STREAMING_COMPRESSION, DEFAULT_SPARK_RESULT_STREAMING_COMPRESSION);
+        builder.adaptiveWriteControl = configurationSource.getBoolean(ADAPTIVE_WRITE_CONTROL, DEFAULT_ADAPTIVE_WRITE_CONTROL);
+        builder.pipelineCompression = configurationSource.getString(PIPELINE_COMPRESSION, DEFAULT_PIPELINE_COMPRESSION);
+        builder.pipelinePrefixRowKeys = configurationSource.getBoolean(PIPELINE_PREFIX_ROW_KEYS, DEFAULT_PIPELINE_PREFIX_ROW_KEYS);
+        builder.foreignKeyParentCacheSize = configurationSource.getInt(FOREIGN_KEY_PARENT_CACHE_SIZE, DEFAULT_FOREIGN_KEY_PARENT_CACHE_SIZE);
     }
 }
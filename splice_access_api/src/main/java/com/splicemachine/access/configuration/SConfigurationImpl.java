@@ -134,6 +134,7 @@ public final class SConfigurationImpl implements SConfiguration {
     private final int rollForwardSecondWait;
     private final int rollForwardFirstThreads;
     private final int rollForwardSecondThreads;
+    private final int conflictDetectionBatchThreshold;
 
     // OLAP client/server configurations
     private final int olapClientWaitTime;
@@ -193,6 +194,9 @@ public final class SConfigurationImpl implements SConfiguration {
     private final String storageFactoryHome;
     private final int nestedLoopJoinBatchSize;
     private final long controlExecutionRowLimit;
+    private final long controlExecutionMemoryLimit;
+    private final long broadcastJoinCacheSize;
+    private final String controlExecutionSpillDirectory;
     private final int maxCheckTableErrors;
 
     // StatsConfiguration
@@ -213,6 +217,29 @@ public final class SConfigurationImpl implements SConfiguration {
     private final  int splitBlockSize;
     private final  long regionMaxFileSize;
     private final  long tableSplitSleepInterval;
+    private final String memStorageDirectory;
+    private final long memStorageFlushSize;
+    private final int memStorageCompactionThreshold;
+    private final long memStorageBlockCacheSize;
+    private final int controlExecutionBatchSize;
+    private final boolean sparkResultStreamingEncoded;
+    private final boolean sparkResultStreamingCompression;
+    private final boolean adaptiveWriteControl;
+    private final int txnStatusCacheSize;
+    private final int txnResolutionBatchSize;
+    private final int rollForwardMaxPendingRows;
+    private final int rollForwardBatchSize;
+    private final int importParseParallelism;
+    private final String pipelineCompression;
+    private final boolean pipelinePrefixRowKeys;
+    private final int timestampClientMaxInFlight;
+    private final boolean collectStatisticsOnMajorCompaction;
+    private final int workloadThreads;
+    private final int workloadLevelBound;
+    private final int workloadOltpMaxConcurrent;
+    private final int workloadDefaultMaxConcurrent;
+    private final int workloadBatchMaxConcurrent;
+    private final int foreignKeyParentCacheSize;
 
     // Gateway to hadoop config
     private final ConfigurationSource configSource;
@@ -943,6 +970,8 @@ public final class SConfigurationImpl implements SConfiguration {
         storageFactoryHome = builder.storageFactoryHome;
         nestedLoopJoinBatchSize = builder.nestedLoopJoinBatchSize;
         controlExecutionRowLimit = builder.controlExecutionRowLimit;
+        controlExecutionMemoryLimit = builder.controlExecutionMemoryLimit;
+        controlExecutionSpillDirectory = builder.controlExecutionSpillDirectory;
         bulkImportSampleFraction = builder.bulkImportSampleFraction;
         bulkImportTasksPerRegion = builder.bulkImportTasksPerRegion;
         regionToLoadPerTask = builder.regionToLoadPerTask;
@@ -953,6 +982,31 @@ public final class SConfigurationImpl implements SConfiguration {
         rollForwardSecondWait = builder.rollForwardSecondWait;
         rollForwardFirstThreads = builder.rollForwardFirstThreads;
         rollForwardSecondThreads = builder.rollForwardSecondThreads;
+        foreignKeyParentCacheSize = builder.foreignKeyParentCacheSize;
+        workloadBatchMaxConcurrent = builder.workloadBatchMaxConcurrent;
+        workloadDefaultMaxConcurrent = builder.workloadDefaultMaxConcurrent;
+        workloadOltpMaxConcurrent = builder.workloadOltpMaxConcurrent;
+        workloadLevelBound = builder.workloadLevelBound;
+        workloadThreads = builder.workloadThreads;
+        collectStatisticsOnMajorCompaction = builder.collectStatisticsOnMajorCompaction;
+        timestampClientMaxInFlight = builder.timestampClientMaxInFlight;
+        pipelinePrefixRowKeys = builder.pipelinePrefixRowKeys;
+        pipelineCompression = builder.pipelineCompression;
+        importParseParallelism = builder.importParseParallelism;
+        rollForwardBatchSize = builder.rollForwardBatchSize;
+        rollForwardMaxPendingRows = builder.rollForwardMaxPendingRows;
+        txnResolutionBatchSize = builder.txnResolutionBatchSize;
+        txnStatusCacheSize = builder.txnStatusCacheSize;
+        adaptiveWriteControl = builder.adaptiveWriteControl;
+        sparkResultStreamingCompression = builder.sparkResultStreamingCompression;
+        sparkResultStreamingEncoded = builder.sparkResultStreamingEncoded;
+        controlExecutionBatchSize = builder.controlExecutionBatchSize;
+        memStorageDirectory = builder.memStorageDirectory;
+        memStorageFlushSize = builder.memStorageFlushSize;
+        memStorageCompactionThreshold = builder.memStorageCompactionThreshold;
+        memStorageBlockCacheSize = builder.memStorageBlockCacheSize;
+        conflictDetectionBatchThreshold = builder.conflictDetectionBatchThreshold;
+        broadcastJoinCacheSize = builder.broadcastJoinCacheSize;
     }
 
     private static final Logger LOG = Logger.getLogger("splice.config");
@@ -1046,8 +1100,143 @@ public final class SConfigurationImpl implements SConfiguration {
         return controlExecutionRowLimit;
     }
 
+    @Override
+    public long getControlExecutionMemoryLimit() {
+        return controlExecutionMemoryLimit;
+    }
+
+    @Override
+    public String getControlExecutionSpillDirectory() {
+        return controlExecutionSpillDirectory;
+    }
+
     @Override
     public int getMaxCheckTableErrors() {
         return maxCheckTableErrors;
     }
+
+    @Override
+    public long getBroadcastJoinCacheSize() {
+        return broadcastJoinCacheSize;
+    }
+
+    @Override
+    public int getConflictDetectionBatchThreshold() {
+        return conflictDetectionBatchThreshold;
+    }
+
+    @Override
+    public String getMemStorageDirectory() {
+        return memStorageDirectory;
+    }
+
+    @Override
+    public long getMemStorageFlushSize() {
+        return memStorageFlushSize;
+    }
+
+    @Override
+    public int getMemStorageCompactionThreshold() {
+        return memStorageCompactionThreshold;
+    }
+
+    @Override
+    public long getMemStorageBlockCacheSize() {
+        return memStorageBlockCacheSize;
+    }
+
+    @Override
+    public int getControlExecutionBatchSize() {
+        return controlExecutionBatchSize;
+    }
+
+    @Override
+    public boolean getSparkResultStreamingEncoded() {
+        return sparkResultStreamingEncoded;
+    }
+
+    @Override
+    public boolean getSparkResultStreamingCompression() {
+        return sparkResultStreamingCompression;
+    }
+
+    @Override
+    public boolean getAdaptiveWriteControl() {
+        return adaptiveWriteControl;
+    }
+
+    @Override
+    public int getTxnStatusCacheSize() {
+        return txnStatusCacheSize;
+    }
+
+    @Override
+    public int getTxnResolutionBatchSize() {
+        return txnResolutionBatchSize;
+    }
+
+    @Override
+    public int getRollforwardMaxPendingRows() {
+        return rollForwardMaxPendingRows;
+    }
+
+    @Override
+    public int getRollforwardBatchSize() {
+        return rollForwardBatchSize;
+    }
+
+    @Override
+    public int getImportParseParallelism() {
+        return importParseParallelism;
+    }
+
+    @Override
+    public String getPipelineCompression() {
+        return pipelineCompression;
+    }
+
+    @Override
+    public boolean getPipelinePrefixRowKeys() {
+        return pipelinePrefixRowKeys;
+    }
+
+    @Override
+    public int getTimestampClientMaxInFlight() {
+        return timestampClientMaxInFlight;
+    }
+
+    @Override
+    public boolean getCollectStatisticsOnMajorCompaction() {
+        return collectStatisticsOnMajorCompaction;
+    }
+
+    @Override
+    public int getWorkloadThreads() {
+        return workloadThreads;
+    }
+
+    @Override
+    public int getWorkloadLevelBound() {
+        return workloadLevelBound;
+    }
+
+    @Override
+    public int getWorkloadOltpMaxConcurrent() {
+        return workloadOltpMaxConcurrent;
+    }
+
+    @Override
+    public int getWorkloadDefaultMaxConcurrent() {
+        return workloadDefaultMaxConcurrent;
+    }
+
+    @Override
+    public int getWorkloadBatchMaxConcurrent() {
+        return workloadBatchMaxConcurrent;
+    }
+
+    @Override
+    public int getForeignKeyParentCacheSize() {
+        return foreignKeyParentCacheSize;
+    }
 }
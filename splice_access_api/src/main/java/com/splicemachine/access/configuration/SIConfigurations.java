@@ -35,6 +35,20 @@ public class SIConfigurations implements ConfigurationDefault {
     public static final String completedTxnConcurrency="splice.txn.completedTxns.concurrency";
     private static final int DEFAULT_COMPLETED_TRANSACTION_CONCURRENCY=64;
 
+    /**
+     * The number of transactions whose status is kept in the compact, off-heap transaction status cache.
+     * Each entry takes 16 bytes. Set to 0 to disable the cache.
+     */
+    public static final String TXN_STATUS_CACHE_SIZE = "splice.txn.statusCache.size";
+    private static final int DEFAULT_TXN_STATUS_CACHE_SIZE = 1<<20;
+
+    /**
+     * The maximum number of rows a scan reads ahead when it finds transactions whose status is unknown, so that
+     * they can be resolved in a single call to the transaction table. Set to 0 to resolve them one at a time.
+     */
+    public static final String TXN_RESOLUTION_BATCH_SIZE = "splice.txn.resolution.batchSize";
+    private static final int DEFAULT_TXN_RESOLUTION_BATCH_SIZE = 128;
+
     public static final String TRANSACTION_KEEP_ALIVE_INTERVAL="splice.txn.keepAliveIntervalMs";
     public static final long DEFAULT_TRANSACTION_KEEP_ALIVE_INTERVAL=15000L;
 
@@ -114,6 +128,15 @@ public class SIConfigurations implements ConfigurationDefault {
     public static final String TIMESTAMP_SERVER_BIND_PORT = "splice.timestamp_server.port";
     private static final int DEFAULT_TIMESTAMP_SERVER_BIND_PORT = 60012;
 
+    /**
+     * The maximum number of timestamp requests a timestamp client keeps outstanding on its connection.
+     * Callers arriving while this many requests are in flight wait for the next request, and share it
+     * with every other caller that arrives in the meantime.
+     * Defaults to 2
+     */
+    public static final String TIMESTAMP_CLIENT_MAX_IN_FLIGHT = "splice.timestamp_server.clientMaxInFlight";
+    private static final int DEFAULT_TIMESTAMP_CLIENT_MAX_IN_FLIGHT = 2;
+
     public static final String ACTIVE_TRANSACTION_CACHE_SIZE="splice.txn.activeCacheSize";
     private static final int DEFAULT_ACTIVE_TRANSACTION_CACHE_SIZE = 1<<12;
 
@@ -161,6 +184,20 @@ public class SIConfigurations implements ConfigurationDefault {
     public static final String ROLLFORWARD_SECOND_THREADS = "splice.txn.rollforward.secondQueueThreads";
     public static final int DEFAULT_ROLLFORWARD_SECOND_THREADS = 1;
 
+    // Maximum number of rows waiting for their first roll forward attempt, over all regions; writers wait for room
+    // beyond it. Rows being retried are bounded separately by the same number
+    public static final String ROLLFORWARD_MAX_PENDING_ROWS = "splice.txn.rollforward.maxPendingRows";
+    public static final int DEFAULT_ROLLFORWARD_MAX_PENDING_ROWS = 1<<18;
+
+    // Maximum number of rows resolved in a single batch against a region
+    public static final String ROLLFORWARD_BATCH_SIZE = "splice.txn.rollforward.batchSize";
+    public static final int DEFAULT_ROLLFORWARD_BATCH_SIZE = 1024;
+
+    // Minimum number of rows in a write batch which need a conflict check before their latest versions are
+    // read in a single sorted pass, rather than one seek per row. 0 disables batched reads
+    public static final String CONFLICT_DETECTION_BATCH_THRESHOLD = "splice.txn.conflictDetection.batchThreshold";
+    public static final int DEFAULT_CONFLICT_DETECTION_BATCH_THRESHOLD = 8;
+
 
 
     @Override
@@ -202,5 +239,11 @@ public class SIConfigurations implements ConfigurationDefault {
         builder.rollForwardSecondWait  = configurationSource.getInt(ROLLFORWARD_SECOND_WAIT, DEFAULT_ROLLFORWARD_SECOND_WAIT);
         builder.rollForwardFirstThreads  = configurationSource.getInt(ROLLFORWARD_FIRST_THREADS, DEFAULT_ROLLFORWARD_FIRST_THREADS);
         builder.rollForwardSecondThreads = configurationSource.getInt(ROLLFORWARD_SECOND_THREADS, DEFAULT_ROLLFORWARD_SECOND_THREADS);
+        builder.conflictDetectionBatchThreshold = configurationSource.getInt(CONFLICT_DETECTION_BATCH_THRESHOLD, DEFAULT_CONFLICT_DETECTION_BATCH_THRESHOLD);
+        builder.txnStatusCacheSize = configurationSource.getInt(TXN_STATUS_CACHE_SIZE, DEFAULT_TXN_STATUS_CACHE_SIZE);
+        builder.txnResolutionBatchSize = configurationSource.getInt(TXN_RESOLUTION_BATCH_SIZE, DEFAULT_TXN_RESOLUTION_BATCH_SIZE);
+        builder.rollForwardMaxPendingRows = configurationSource.getInt(ROLLFORWARD_MAX_PENDING_ROWS, DEFAULT_ROLLFORWARD_MAX_PENDING_ROWS);
+        builder.rollForwardBatchSize = configurationSource.getInt(ROLLFORWARD_BATCH_SIZE, DEFAULT_ROLLFORWARD_BATCH_SIZE);
+        builder.timestampClientMaxInFlight = configurationSource.getInt(TIMESTAMP_CLIENT_MAX_IN_FLIGHT, DEFAULT_TIMESTAMP_CLIENT_MAX_IN_FLIGHT);
     }
 }
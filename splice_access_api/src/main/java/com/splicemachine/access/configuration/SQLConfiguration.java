@@ -62,6 +62,14 @@ public class SQLConfiguration implements ConfigurationDefault {
     public static final String IMPORT_MAX_QUOTED_COLUMN_LINES="splice.import.maxQuotedColumnLines";
     private static final int DEFAULT_IMPORT_MAX_QUOTED_COLUMN_LINES = 50000;
 
+    /**
+     * The number of threads which parse an import file in parallel when the import runs in control.
+     * Values of 1 or less parse the file line by line on the calling thread.
+     * Defaults to 4
+     */
+    public static final String IMPORT_PARSE_PARALLELISM = "splice.import.control.parseParallelism";
+    private static final int DEFAULT_IMPORT_PARSE_PARALLELISM = 4;
+
     public static final String BATCH_ONCE_BATCH_SIZE = "splice.batchonce.batchsize";
     private static final int DEFAULT_BATCH_ONCE_BATCH_SIZE = 50_000;
 
@@ -117,6 +125,15 @@ public class SQLConfiguration implements ConfigurationDefault {
     public static final String BROADCAST_DATASET_COST_THRESHOLD = "splice.optimizer.broadcastDatasetCostThreshold";
     private static final int DEFAULT_BROADCAST_DATASET_COST_THRESHOLD = 10000;
 
+    /**
+     * The maximum number of bytes of (off-heap) memory the broadcast join tables cached by a single
+     * server may use. Tables are evicted by size once this limit is reached.
+     *
+     * Defaults to 1 GB
+     */
+    public static final String BROADCAST_JOIN_CACHE_SIZE = "splice.broadcastJoin.cacheSize";
+    public static final long DEFAULT_BROADCAST_JOIN_CACHE_SIZE = 1024*1024*1024L;
+
     /**
      * Minimum fixed duration (in millisecomds) that should be allowed to lapse
      * before the optimizer can determine that it should stop trying to find
@@ -225,6 +242,37 @@ public class SQLConfiguration implements ConfigurationDefault {
     public static final String CONTROL_EXECUTION_ROWS_LIMIT = "splice.controlExecution.rowsLimit";
     private static final int DEFAULT_CONTROL_EXECUTION_ROWS_LIMIT = 1000000;
 
+    /**
+     * The amount of heap (in bytes) a single control-side sort may use for buffering rows
+     * before it spills sorted runs to local disk. Window frames, which can't spill, are held
+     * to the same limit; a query with a larger frame is resubmitted to Spark where possible,
+     * and fails otherwise. The limit can be overridden for a session with the CONTROLMEMORYLIMIT
+     * session property. A value of 0 disables spilling, and leaves window frames unbounded.
+     *
+     * Defaults to 64 MB
+     */
+    public static final String CONTROL_EXECUTION_MEMORY_LIMIT = "splice.controlExecution.memoryLimit";
+    private static final long DEFAULT_CONTROL_EXECUTION_MEMORY_LIMIT = 64*1024*1024L;
+
+    /**
+     * The local directory where control-side operators write their spill files.
+     *
+     * Defaults to the JVM temporary directory (java.io.tmpdir)
+     */
+    public static final String CONTROL_EXECUTION_SPILL_DIRECTORY = "splice.controlExecution.spillDirectory";
+    private static final String DEFAULT_CONTROL_EXECUTION_SPILL_DIRECTORY = System.getProperty("java.io.tmpdir");
+
+    /**
+     * The number of rows control-side scans, restrictions and aggregates exchange per column batch.
+     * When positive, eligible operator chains (a table scan feeding simple restrictions and non-distinct
+     * aggregates) are evaluated a batch of column vectors at a time instead of a row at a time; operators
+     * which cannot run on batches fall back to row mode. A value of 0 disables batch execution.
+     *
+     * Defaults to 0 (disabled)
+     */
+    public static final String CONTROL_EXECUTION_BATCH_SIZE = "splice.controlExecution.batchSize";
+    private static final int DEFAULT_CONTROL_EXECUTION_BATCH_SIZE = 0;
+
     public static final String MAX_CHECK_TABLE_ERRORS="splice.max.checktable.error";
     private static final int DEFAULT_MAX_CHECK_TABLE_ERRORS = 1000;
 
@@ -244,6 +292,8 @@ public class SQLConfiguration implements ConfigurationDefault {
         builder.partitionserverPort = configurationSource.getInt(PARTITIONSERVER_PORT, DEFAULT_PARTITIONSERVER_PORT);
         builder.nestedLoopJoinBatchSize = configurationSource.getInt(NESTEDLOOPJOIN_BATCH_SIZE, DEFAULT_NESTEDLOOPJOIN_BATCH_SIZE);
         builder.controlExecutionRowLimit = configurationSource.getLong(CONTROL_EXECUTION_ROWS_LIMIT, DEFAULT_CONTROL_EXECUTION_ROWS_LIMIT);
+        builder.controlExecutionMemoryLimit = configurationSource.getLong(CONTROL_EXECUTION_MEMORY_LIMIT, DEFAULT_CONTROL_EXECUTION_MEMORY_LIMIT);
+        builder.controlExecutionSpillDirectory = configurationSource.getString(CONTROL_EXECUTION_SPILL_DIRECTORY, DEFAULT_CONTROL_EXECUTION_SPILL_DIRECTORY);
 
         // Where to place jar files...
         String defaultStorageFactoryHome;
@@ -273,5 +323,8 @@ public class SQLConfiguration implements ConfigurationDefault {
 
         builder.networkBindAddress = configurationSource.getString(NETWORK_BIND_ADDRESS, DEFAULT_NETWORK_BIND_ADDRESS);
         builder.maxCheckTableErrors = configurationSource.getInt(MAX_CHECK_TABLE_ERRORS, DEFAULT_MAX_CHECK_TABLE_ERRORS);
+        builder.broadcastJoinCacheSize = configurationSource.getLong(BROADCAST_JOIN_CACHE_SIZE, DEFAULT_BROADCAST_JOIN_CACHE_SIZE);
+        builder.controlExecutionBatchSize = configurationSource.getInt(CONTROL_EXECUTION_BATCH_SIZE, DEFAULT_CONTROL_EXECUTION_BATCH_SIZE);
+        builder.importParseParallelism = configurationSource.getInt(IMPORT_PARSE_PARALLELISM, DEFAULT_IMPORT_PARSE_PARALLELISM);
     }
 }
@@ -124,6 +124,17 @@ public class StatsConfiguration implements ConfigurationDefault {
     public static final String FALLBACK_ROW_WIDTH="splice.statistics.fallbackMinimumRowWidth";
     public static final int DEFAULT_FALLBACK_ROW_WIDTH=170;
 
+    /**
+     * When enabled, a major compaction of a user table region refreshes the region's non-merged statistics
+     * from the rows it rewrites, so the region doesn't need a separate ANALYZE scan. Regions whose
+     * statistics are merged, or which have no statistics yet, are left alone. A table can override the
+     * setting with an HBase table configuration value of the same key.
+     *
+     * Defaults to false
+     */
+    public static final String COLLECT_ON_MAJOR_COMPACTION = "splice.statistics.collectOnMajorCompaction";
+    private static final boolean DEFAULT_COLLECT_ON_MAJOR_COMPACTION = false;
+
     @Override
     public void setDefaults(ConfigurationBuilder builder, ConfigurationSource configurationSource) {
         // FIXME: JC - some of these are not referenced anywhere outside. Do we need them?
@@ -146,5 +157,6 @@ public class StatsConfiguration implements ConfigurationDefault {
 //        builder.fallbackCardinalityFraction = configurationSource.getDouble(FALLBACK_CARDINALITY_FRACTION, DEFAULT_FALLBACK_CARDINALITY_FRACTION);
 //        builder.fallbackIndexSelectivityFraction = configurationSource.getDouble(FALLBACK_INDEX_SELECTIVITY_FRACTION, DEFAULT_FALLBACK_INDEX_SELECTIVITY_FRACTION);
         builder.optimizerExtraQualifierMultiplier = configurationSource.getDouble(OPTIMIZER_EXTRA_QUALIFIER_MULTIPLIER, DEFAULT_OPTIMIZER_EXTRA_QUALIFIER_MULTIPLIER);
+        builder.collectStatisticsOnMajorCompaction = configurationSource.getBoolean(COLLECT_ON_MAJOR_COMPACTION, DEFAULT_COLLECT_ON_MAJOR_COMPACTION);
     }
 }
@@ -36,10 +36,56 @@ public class StorageConfiguration implements ConfigurationDefault {
     public static final String SPLIT_BLOCK_SIZE = "splice.splitBlockSize";
     public static final int DEFAULT_SPLIT_BLOCK_SIZE=32*1024*1024;
 
+    /**
+     * Local directory into which the in-memory (mem) storage engine spills its tables, as immutable
+     * sorted segment files, so that the data set can be larger than the heap.
+     *
+     * This is not persistence: the engine's transactions and timestamps only live as long as the
+     * process, so the files of one run can't be read by the next. The engine refuses to start on a
+     * directory which isn't empty, rather than remove files which may not be its own.
+     *
+     * When unset, tables are kept entirely on the heap.
+     *
+     * Defaults to null
+     */
+    public static final String MEM_STORAGE_DIRECTORY = "splice.mem.storage.directory";
+    public static final String DEFAULT_MEM_STORAGE_DIRECTORY = null;
+
+    /**
+     * Size (in bytes) the memstore of a spilling mem storage table may grow to before it is flushed
+     * into a new segment file.
+     *
+     * Defaults to 64 MB
+     */
+    public static final String MEM_STORAGE_FLUSH_SIZE = "splice.mem.storage.memstoreFlushSize";
+    public static final long DEFAULT_MEM_STORAGE_FLUSH_SIZE = 64*1024*1024L;
+
+    /**
+     * Number of segment files a spilling mem storage table may accumulate before the newest ones are
+     * merged into a single segment by a background compaction.
+     *
+     * Defaults to 4
+     */
+    public static final String MEM_STORAGE_COMPACTION_THRESHOLD = "splice.mem.storage.compactionThreshold";
+    public static final int DEFAULT_MEM_STORAGE_COMPACTION_THRESHOLD = 4;
+
+    /**
+     * Size (in bytes) of the cache of decoded segment file blocks, shared by all spilling mem storage
+     * tables.
+     *
+     * Defaults to 256 MB
+     */
+    public static final String MEM_STORAGE_BLOCK_CACHE_SIZE = "splice.mem.storage.blockCacheSize";
+    public static final long DEFAULT_MEM_STORAGE_BLOCK_CACHE_SIZE = 256*1024*1024L;
+
     @Override
     public void setDefaults(ConfigurationBuilder builder, ConfigurationSource configurationSource) {
         builder.splitBlockSize = configurationSource.getInt(SPLIT_BLOCK_SIZE, DEFAULT_SPLIT_BLOCK_SIZE);
 
         builder.tableSplitSleepInterval = configurationSource.getLong(TABLE_SPLIT_SLEEP_INTERVAL, DEFAULT_SPLIT_WAIT_INTERVAL);
+        builder.memStorageDirectory = configurationSource.getString(MEM_STORAGE_DIRECTORY, DEFAULT_MEM_STORAGE_DIRECTORY);
+        builder.memStorageFlushSize = configurationSource.getLong(MEM_STORAGE_FLUSH_SIZE, DEFAULT_MEM_STORAGE_FLUSH_SIZE);
+        builder.memStorageCompactionThreshold = configurationSource.getInt(MEM_STORAGE_COMPACTION_THRESHOLD, DEFAULT_MEM_STORAGE_COMPACTION_THRESHOLD);
+        builder.memStorageBlockCacheSize = configurationSource.getLong(MEM_STORAGE_BLOCK_CACHE_SIZE, DEFAULT_MEM_STORAGE_BLOCK_CACHE_SIZE);
     }
 }
@@ -105,6 +105,21 @@ public interface Partition extends AutoCloseable{
      */
     DataResult getLatest(byte[] key,DataResult previous) throws IOException;
 
+    /**
+     * Get the latest single value for all data types (as in {@link #getLatest(byte[], DataResult)}) for
+     * many rows at once.
+     * <p>
+     *     Keys which are sorted in ascending order allow implementations to resolve the whole batch in a single
+     *     forward pass over the data, rather than seeking once per row. Keys in any other order, and duplicate
+     *     keys, are still resolved correctly, but may have to be sorted first.
+     * </p>
+     * @param keys the row keys to fetch, preferably in ascending order
+     * @return one result for each key, in the same order as the keys. Rows which don't exist have an empty
+     * result. Result objects are not re-used, so they may be held onto by the caller.
+     * @throws IOException if something goes wrong
+     */
+    DataResult[] batchGetLatest(List<byte[]> keys) throws IOException;
+
     Lock getRowLock(byte[] key,int keyOff,int keyLen) throws IOException;
 
     DataResultScanner openResultScanner(DataScan scan,MetricFactory metricFactory) throws IOException;
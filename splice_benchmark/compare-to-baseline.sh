@@ -0,0 +1,60 @@
+#!/bin/bash
+
+##################################################################################
+# Records a baseline by running the benchmarks at a base revision, then runs them
+# on the working tree and compares the two. Both runs happen on this machine, so
+# the scores are comparable. The benchmark-regression profile of this module runs
+# it as part of the build.
+#
+# usage: compare-to-baseline.sh [base revision] [JMH options...]
+#
+# The base revision defaults to the merge base with the upstream branch, so every
+# commit on the current branch is measured: origin/HEAD, or origin/master where
+# origin/HEAD isn't set, unless BENCHMARK_UPSTREAM names another branch. Any JMH
+# options, e.g. a benchmark name or "-p resolution=UNCACHED", apply to both runs.
+# If BENCHMARK_SKIP_BUILD is set, the working tree's benchmarks.jar is used as it
+# is rather than rebuilt. Results are left in splice_benchmark/target/comparison.
+# Exits with status 1 if a benchmark regressed or has no baseline.
+##################################################################################
+
+set -e
+
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+if [[ $# -gt 0 && $1 != -* ]]; then
+  BASE=$1
+  shift
+else
+  UPSTREAM=${BENCHMARK_UPSTREAM:-$(git -C "$ROOT" symbolic-ref -q --short refs/remotes/origin/HEAD || echo origin/master)}
+  BASE=$(git -C "$ROOT" merge-base HEAD "$UPSTREAM")
+fi
+OUT=$ROOT/splice_benchmark/target/comparison
+JAR=splice_benchmark/target/benchmarks.jar
+REPORT=com.splicemachine.benchmark.BenchmarkReport
+
+build_benchmarks () {
+  (cd "$1" && mvn -B -q -Denv=mem -Pbenchmark -DskipTests package -pl splice_benchmark -am)
+}
+
+run_benchmarks () {
+  local TREE=$1 RESULT=$2
+  shift 2
+  java -jar "$TREE/$JAR" -rf json -rff "$RESULT" "$@"
+}
+
+rm -rf "$OUT"
+mkdir -p "$OUT"
+git -C "$ROOT" worktree add --detach "$OUT/base" "$BASE"
+trap 'git -C "$ROOT" worktree remove --force "$OUT/base"' EXIT
+if [[ ! -d $OUT/base/splice_benchmark ]]; then
+  echo "Revision $BASE has no benchmarks to record a baseline from" >&2
+  exit 1
+fi
+
+build_benchmarks "$OUT/base"
+run_benchmarks "$OUT/base" "$OUT/jmh-baseline.json" "$@"
+java -cp "$OUT/base/$JAR" $REPORT record "$OUT/jmh-baseline.json" "$OUT/baseline.json"
+if [[ -z $BENCHMARK_SKIP_BUILD ]]; then
+  build_benchmarks "$ROOT"
+fi
+run_benchmarks "$ROOT" "$OUT/jmh-result.json" "$@"
+java -cp "$ROOT/$JAR" $REPORT compare "$OUT/jmh-result.json" "$OUT/baseline.json"
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH result file (as written by {@code -rf json}) against a baseline recorded from an earlier
+ * run, and records new baselines.
+ *
+ * <pre>
+ *   compare &lt;results.json&gt; &lt;baseline.json&gt; [threshold]
+ *   record  &lt;results.json&gt; &lt;baseline.json&gt;
+ * </pre>
+ *
+ * A benchmark has regressed when its score is worse than the baseline by more than {@code threshold}
+ * (a fraction, 0.10 by default) and the two scores' error intervals don't overlap.
+ *
+ * Compare exits with status 1 if any benchmark has regressed, or has no baseline to compare against: a
+ * comparison against a missing or incomplete baseline proves nothing, so it must not pass.
+ *
+ * Baselines are only comparable with results from the same hardware and JVM, so record them on the
+ * machine that runs the comparison; {@code compare-to-baseline.sh} in this module records one from a base
+ * revision and compares the working tree against it.
+ */
+public class BenchmarkReport{
+    private static final double DEFAULT_THRESHOLD = 0.10d;
+
+    public static void main(String...args) throws IOException{
+        if(args.length<3){
+            usage();
+            return;
+        }
+        switch(args[0]){
+            case "compare":
+                double threshold = args.length>3? Double.parseDouble(args[3]) : DEFAULT_THRESHOLD;
+                int failures = compare(readFile(args[1]),readFile(args[2]),threshold,System.out);
+                if(failures>0)
+                    System.exit(1);
+                break;
+            case "record":
+                try(Writer writer = new OutputStreamWriter(new FileOutputStream(args[2]),StandardCharsets.UTF_8)){
+                    write(readFile(args[1]),writer);
+                }
+                break;
+            default:
+                usage();
+        }
+    }
+
+    /**
+     * @return the number of benchmarks which regressed, or which have no baseline
+     */
+    static int compare(Map<String,Result> results,Map<String,Result> baseline,double threshold,PrintStream out){
+        if(results.isEmpty()){
+            out.println("No benchmark results to compare");
+            return 1;
+        }
+        int regressions = 0;
+        int missing = 0;
+        out.printf("%-90s %14s %14s %9s%n","Benchmark","Baseline","Score","Change");
+        for(Map.Entry<String,Result> entry:results.entrySet()){
+            Result current = entry.getValue();
+            Result base = baseline.get(entry.getKey());
+            if(base==null){
+                missing++;
+                out.printf("%-90s %14s %14.3f %9s  NO BASELINE%n",entry.getKey(),"-",current.score,"-");
+                continue;
+            }
+            double change = (current.score-base.score)/base.score;
+            // for throughput higher is better, for the time based modes lower is better
+            double worsening = current.higherIsBetter()? -change : change;
+            boolean regressed = worsening>threshold && !current.overlaps(base);
+            if(regressed)
+                regressions++;
+            out.printf("%-90s %14.3f %14.3f %+8.1f%%%s%n",entry.getKey(),base.score,current.score,100*change,
+                    regressed? "  REGRESSION" : "");
+        }
+        out.printf("%d of %d benchmarks regressed by more than %.0f%%%n",regressions,results.size(),100*threshold);
+        if(missing>0)
+            out.printf("%d of %d benchmarks have no baseline; record one on this machine%n",missing,results.size());
+        return regressions+missing;
+    }
+
+    static Map<String,Result> read(Reader reader){
+        Map<String,Result> results = new TreeMap<>();
+        for(JsonElement element:new JsonParser().parse(reader).getAsJsonArray()){
+            JsonObject benchmark = element.getAsJsonObject();
+            StringBuilder key = new StringBuilder(benchmark.get("benchmark").getAsString());
+            String mode = benchmark.get("mode").getAsString();
+            key.append(" [").append(mode);
+            if(benchmark.has("params")){
+                Map<String,String> params = new TreeMap<>();
+                for(Map.Entry<String,JsonElement> param:benchmark.getAsJsonObject("params").entrySet()){
+                    params.put(param.getKey(),param.getValue().getAsString());
+                }
+                for(Map.Entry<String,String> param:params.entrySet()){
+                    key.append(',').append(param.getKey()).append('=').append(param.getValue());
+                }
+            }
+            key.append(']');
+            JsonObject metric = benchmark.getAsJsonObject("primaryMetric");
+            JsonElement error = metric.get("scoreError");
+            results.put(key.toString(),new Result(benchmark,mode,
+                    metric.get("score").getAsDouble(),
+                    error==null || !error.isJsonPrimitive()? 0d : error.getAsDouble()));
+        }
+        return results;
+    }
+
+    /**
+     * Writes results in the JMH format, keeping only the fields the comparison reads.
+     */
+    static void write(Map<String,Result> results,Writer writer) throws IOException{
+        JsonArray array = new JsonArray();
+        for(Result result:results.values()){
+            JsonObject source = result.source;
+            JsonObject benchmark = new JsonObject();
+            benchmark.add("benchmark",source.get("benchmark"));
+            benchmark.add("mode",source.get("mode"));
+            if(source.has("params"))
+                benchmark.add("params",source.get("params"));
+            JsonObject metric = new JsonObject();
+            JsonObject sourceMetric = source.getAsJsonObject("primaryMetric");
+            metric.addProperty("score",result.score);
+            metric.addProperty("scoreError",result.error);
+            metric.add("scoreUnit",sourceMetric.get("scoreUnit"));
+            benchmark.add("primaryMetric",metric);
+            array.add(benchmark);
+        }
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        writer.write(gson.toJson(array));
+        writer.write(System.lineSeparator());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static Map<String,Result> readFile(String file) throws IOException{
+        try(Reader reader = new InputStreamReader(new FileInputStream(file),StandardCharsets.UTF_8)){
+            return read(reader);
+        }
+    }
+
+    private static void usage(){
+        System.err.println("Usage: BenchmarkReport compare <results.json> <baseline.json> [threshold]");
+        System.err.println("       BenchmarkReport record <results.json> <baseline.json>");
+    }
+
+    static class Result{
+        private final JsonObject source;
+        private final String mode;
+        final double score;
+        final double error;
+
+        Result(JsonObject source,String mode,double score,double error){
+            this.source = source;
+            this.mode = mode;
+            this.score = score;
+            this.error = Double.isNaN(error)? 0d : error;
+        }
+
+        boolean higherIsBetter(){
+            return "thrpt".equals(mode);
+        }
+
+        boolean overlaps(Result other){
+            return Math.abs(score-other.score)<=error+other.error;
+        }
+    }
+}
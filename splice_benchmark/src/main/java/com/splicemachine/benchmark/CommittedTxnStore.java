@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.benchmark;
+
+import com.splicemachine.si.api.txn.TaskId;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.txn.CommittedTxn;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stands in for the transaction table in benchmarks: a fixed set of committed writer transactions.
+ *
+ * Every lookup materializes a new TxnView from a map probe and nothing is ever cached, so numbers
+ * taken through this store are a lower bound on the cost of a real transaction table read.
+ */
+class CommittedTxnStore implements TxnSupplier{
+    private final Map<Long,Long> commitTimestamps = new HashMap<>();
+
+    /**
+     * @return the id of the {@code writer}th transaction of this store
+     */
+    static long txnId(int writer){
+        return (writer+1)*0x100L;
+    }
+
+    /**
+     * @return a begin timestamp which sees every transaction of a store with {@code writers} transactions
+     */
+    static long readTimestamp(int writers){
+        return txnId(writers)+0x100L;
+    }
+
+    CommittedTxnStore(int writers){
+        for(int i=0;i<writers;i++){
+            long txnId = txnId(i);
+            commitTimestamps.put(txnId,txnId+0x10);
+        }
+    }
+
+    long commitTimestamp(long txnId){
+        return commitTimestamps.get(txnId);
+    }
+
+    @Override
+    public TxnView getTransaction(long txnId){
+        return getTransaction(txnId,false);
+    }
+
+    @Override
+    public TxnView getTransaction(long txnId,boolean getDestinationTables){
+        Long commitTs = commitTimestamps.get(txnId);
+        return commitTs==null? null : new CommittedTxn(txnId,commitTs);
+    }
+
+    @Override public boolean transactionCached(long txnId){ return false; }
+    @Override public void cache(TxnView toCache){ }
+    @Override public TxnView getTransactionFromCache(long txnId){ return null; }
+    @Override public TaskId getTaskId(long txnId){ return null; }
+
+    @Override
+    public TxnView[] getTransactions(long[] txnIds,long activeAsOf){
+        TxnView[] txns=new TxnView[txnIds.length];
+        for(int i=0;i<txnIds.length;i++){
+            txns[i]=getTransaction(txnIds[i]);
+        }
+        return txns;
+    }
+
+    @Override public boolean isActiveAsOf(long txnId,long timestamp){ return false; }
+}
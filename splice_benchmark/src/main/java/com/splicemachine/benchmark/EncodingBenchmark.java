@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.benchmark;
+
+import com.carrotsearch.hppc.BitSet;
+import com.splicemachine.encoding.MultiFieldDecoder;
+import com.splicemachine.encoding.MultiFieldEncoder;
+import com.splicemachine.storage.EntryDecoder;
+import com.splicemachine.storage.EntryEncoder;
+import com.splicemachine.utils.kryo.KryoPool;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Row (de)serialization costs of the key and value formats: MultiFieldEncoder/MultiFieldDecoder as used for
+ * row keys, and EntryEncoder/EntryDecoder as used for packed row values.
+ *
+ * Every invocation processes {@link #ROWS} rows of (BIGINT, INT, DOUBLE, VARCHAR), so scores are per row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncodingBenchmark{
+    static final int ROWS = 1024;
+    private static final int ID = 0, QTY = 1, PRICE = 2, NAME = 3;
+
+    private long[] ids;
+    private int[] quantities;
+    private double[] prices;
+    private String[] names;
+
+    private byte[][] encodedKeys;
+    private byte[][] encodedEntries;
+
+    private MultiFieldEncoder keyEncoder;
+    private MultiFieldDecoder keyDecoder;
+    private EntryEncoder entryEncoder;
+    private EntryDecoder entryDecoder;
+
+    @Setup
+    public void setUp() throws IOException{
+        Random random = new Random(0x5eed);
+        ids = new long[ROWS];
+        quantities = new int[ROWS];
+        prices = new double[ROWS];
+        names = new String[ROWS];
+        for(int i=0;i<ROWS;i++){
+            ids[i] = random.nextLong();
+            quantities[i] = random.nextInt(10000);
+            prices[i] = random.nextDouble()*1000;
+            names[i] = "customer#"+random.nextInt(1000000);
+        }
+
+        keyEncoder = MultiFieldEncoder.create(4);
+        keyEncoder.mark();
+        keyDecoder = MultiFieldDecoder.create();
+
+        BitSet setFields = new BitSet(4);
+        for(int i=0;i<4;i++){
+            setFields.set(i);
+        }
+        BitSet scalarFields = new BitSet(4);
+        scalarFields.set(ID);
+        scalarFields.set(QTY);
+        BitSet doubleFields = new BitSet(4);
+        doubleFields.set(PRICE);
+        entryEncoder = EntryEncoder.create(new KryoPool(1),4,setFields,scalarFields,new BitSet(),doubleFields);
+        entryDecoder = new EntryDecoder();
+
+        encodedKeys = new byte[ROWS][];
+        encodedEntries = new byte[ROWS][];
+        for(int i=0;i<ROWS;i++){
+            encodedKeys[i] = encodeKey(i);
+            encodedEntries[i] = encodeEntry(i);
+        }
+    }
+
+    @TearDown
+    public void tearDown(){
+        entryEncoder.close();
+        entryDecoder.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void multiFieldEncode(Blackhole bh){
+        for(int i=0;i<ROWS;i++){
+            bh.consume(encodeKey(i));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void multiFieldDecode(Blackhole bh){
+        for(int i=0;i<ROWS;i++){
+            keyDecoder.set(encodedKeys[i]);
+            bh.consume(keyDecoder.decodeNextLong());
+            bh.consume(keyDecoder.decodeNextInt());
+            bh.consume(keyDecoder.decodeNextDouble());
+            bh.consume(keyDecoder.decodeNextString());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void entryEncode(Blackhole bh) throws IOException{
+        for(int i=0;i<ROWS;i++){
+            bh.consume(encodeEntry(i));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void entryDecodeAll(Blackhole bh) throws IOException{
+        for(int i=0;i<ROWS;i++){
+            entryDecoder.set(encodedEntries[i]);
+            MultiFieldDecoder fields = entryDecoder.getEntryDecoder();
+            bh.consume(fields.decodeNextLong());
+            bh.consume(fields.decodeNextInt());
+            bh.consume(fields.decodeNextDouble());
+            bh.consume(fields.decodeNextString());
+        }
+    }
+
+    /*
+     * Decodes only the last column, seeking past the others the way the row accumulators do
+     * for columns a scan doesn't reference.
+     */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void entryDecodeProjected(Blackhole bh) throws IOException{
+        for(int i=0;i<ROWS;i++){
+            entryDecoder.set(encodedEntries[i]);
+            MultiFieldDecoder fields = entryDecoder.getEntryDecoder();
+            for(int pos=0;pos<NAME;pos++){
+                entryDecoder.seekForward(fields,pos);
+            }
+            bh.consume(fields.decodeNextString());
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private byte[] encodeKey(int row){
+        keyEncoder.reset();
+        return keyEncoder.encodeNext(ids[row])
+                .encodeNext(quantities[row])
+                .encodeNext(prices[row])
+                .encodeNext(names[row])
+                .build();
+    }
+
+    private byte[] encodeEntry(int row) throws IOException{
+        MultiFieldEncoder fields = entryEncoder.getEntryEncoder();
+        fields.reset();
+        fields.encodeNext(ids[row])
+                .encodeNext(quantities[row])
+                .encodeNext(prices[row])
+                .encodeNext(names[row]);
+        return entryEncoder.encode();
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.benchmark;
+
+import com.splicemachine.access.util.ByteComparisons;
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.pipeline.callbuffer.PartitionBuffer;
+import com.splicemachine.pipeline.callbuffer.PreFlushHook;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.storage.MPartition;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side write buffering: routing {@link #ROWS} KVPairs to the {@link PartitionBuffer} of the region
+ * which holds their row key, then building each region's BulkWrite, the way PipingCallBuffer does between
+ * flushes. Scores are per KVPair.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PartitionBufferBenchmark{
+    static final int ROWS = 4096;
+
+    @Param({"1","16","128"})
+    public int regions;
+
+    private KVPair[] kvPairs;
+    private NavigableMap<byte[],PartitionBuffer> buffers;
+
+    @Setup
+    public void setUp() throws Exception{
+        PreFlushHook copyingHook = new PreFlushHook(){
+            @Override
+            public Collection<KVPair> transform(Collection<KVPair> buffer){
+                return new ArrayList<>(buffer);
+            }
+        };
+        buffers = new TreeMap<>(ByteComparisons.comparator());
+        long regionWidth = (1L<<32)/regions;
+        for(int i=0;i<regions;i++){
+            // regions split the 4-byte key prefix space evenly
+            byte[] startKey = i==0? new byte[0] : Bytes.toBytes((int)(i*regionWidth));
+            MPartition region = new MPartition("benchmark","region-"+i);
+            buffers.put(startKey,new PartitionBuffer(region,copyingHook,false,false,false,false));
+        }
+
+        Random random = new Random(0x5eed);
+        kvPairs = new KVPair[ROWS];
+        for(int i=0;i<ROWS;i++){
+            byte[] value = new byte[64];
+            random.nextBytes(value);
+            kvPairs[i] = new KVPair(Bytes.toBytes(random.nextLong()),value,KVPair.Type.INSERT);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void bucketAndBuild(Blackhole bh) throws Exception{
+        for(KVPair kvPair:kvPairs){
+            Map.Entry<byte[],PartitionBuffer> entry = buffers.floorEntry(kvPair.getRowKey());
+            if(entry==null) entry = buffers.firstEntry();
+            entry.getValue().add(kvPair);
+        }
+        for(PartitionBuffer buffer:buffers.values()){
+            bh.consume(buffer.getBulkWrite());
+            buffer.clear();
+        }
+    }
+}
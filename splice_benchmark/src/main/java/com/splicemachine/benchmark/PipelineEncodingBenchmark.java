@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.benchmark;
+
+import com.splicemachine.concurrent.SystemClock;
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.pipeline.client.BulkWrite;
+import com.splicemachine.pipeline.client.BulkWrites;
+import com.splicemachine.pipeline.client.PipelineEncoding;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.data.TxnOperationFactory;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.MOperationFactory;
+import com.splicemachine.si.impl.SimpleTxnOperationFactory;
+import com.splicemachine.si.impl.data.MExceptionFactory;
+import com.splicemachine.si.impl.txn.ActiveWriteTxn;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link PipelineEncoding} on the write pipeline's RPC payloads: a {@link BulkWrites} of
+ * {@link #ROWS} KVPairs spread over {@code partitions} BulkWrites. Scores are per KVPair.
+ *
+ * Decoding is lazy, so the decode benchmark walks every decoded KVPair.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineEncodingBenchmark{
+    static final int ROWS = 4096;
+
+    @Param({"1","16"})
+    public int partitions;
+
+    @Param({"32","256"})
+    public int valueSize;
+
+    /**
+     * 0 for the plain encoding (compressed afterwards by the pipeline compressor, which isn't measured here),
+     * 5 for {@link PipelineEncoding#PREFIX_ROW_KEYS} without compression, 1 for it with Snappy compression
+     */
+    @Param({"0","5","1"})
+    public int encodingOptions;
+
+    private TxnOperationFactory operationFactory;
+    private BulkWrites bulkWrites;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp(){
+        operationFactory = new SimpleTxnOperationFactory(MExceptionFactory.INSTANCE,new MOperationFactory(SystemClock.INSTANCE));
+        Random random = new Random(0x5eed);
+        List<BulkWrite> writes = new ArrayList<>(partitions);
+        int rowsPerPartition = ROWS/partitions;
+        for(int p=0;p<partitions;p++){
+            List<KVPair> mutations = new ArrayList<>(rowsPerPartition);
+            int heapSize = 0;
+            long[] keys = new long[rowsPerPartition];
+            for(int i=0;i<rowsPerPartition;i++){
+                keys[i] = random.nextLong()>>>1;
+            }
+            Arrays.sort(keys); // rows bound for a region tend to arrive in key order
+            for(int i=0;i<rowsPerPartition;i++){
+                byte[] value = new byte[valueSize];
+                random.nextBytes(value);
+                KVPair kvPair = new KVPair(Bytes.toBytes(keys[i]),value,KVPair.Type.INSERT);
+                mutations.add(kvPair);
+                heapSize += kvPair.getSize();
+            }
+            writes.add(new BulkWrite(heapSize,mutations,"partition-"+p));
+        }
+        TxnView txn = new ActiveWriteTxn(0x100L,0x100L,Txn.ROOT_TRANSACTION,false,Txn.IsolationLevel.SNAPSHOT_ISOLATION);
+        bulkWrites = new BulkWrites(writes,txn);
+        encoded = PipelineEncoding.encode(operationFactory,bulkWrites,encodingOptions);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public byte[] encode(){
+        return PipelineEncoding.encode(operationFactory,bulkWrites,encodingOptions);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void decode(Blackhole bh){
+        BulkWrites decoded = PipelineEncoding.decode(operationFactory,encoded);
+        for(BulkWrite write:decoded.getBulkWrites()){
+            for(KVPair kvPair:write.getMutations()){
+                bh.consume(kvPair.rowKeySlice());
+                bh.consume(kvPair.valueSlice());
+            }
+        }
+    }
+}
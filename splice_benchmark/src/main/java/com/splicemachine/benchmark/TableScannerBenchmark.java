@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.benchmark;
+
+import com.splicemachine.concurrent.SystemClock;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.cache.ClassSize;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.catalog.SYSTABLESRowFactory;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.SITableScanner;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.TableScannerBuilder;
+import com.splicemachine.derby.stream.iapi.DataSet;
+import com.splicemachine.derby.utils.marshall.EntryDataHash;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.data.OperationFactory;
+import com.splicemachine.si.api.data.TxnOperationFactory;
+import com.splicemachine.si.api.server.TransactionalRegion;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.si.impl.MOperationFactory;
+import com.splicemachine.si.impl.SimpleTxnOperationFactory;
+import com.splicemachine.si.impl.TxnRegion;
+import com.splicemachine.si.impl.data.MExceptionFactory;
+import com.splicemachine.si.impl.readresolve.NoOpReadResolver;
+import com.splicemachine.si.impl.rollforward.NoopRollForward;
+import com.splicemachine.si.impl.store.CompletedTxnCacheSupplier;
+import com.splicemachine.si.impl.txn.InheritingTxnView;
+import com.splicemachine.storage.DataPut;
+import com.splicemachine.storage.MPartition;
+import com.splicemachine.utils.IntArrays;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end cost of {@link SITableScanner#next()} over an in-memory partition: scanning, transactional
+ * filtering and decoding {@link #ROWS} rows of (BIGINT, INT, DOUBLE, VARCHAR) into an ExecRow.
+ * Scores are per row, including the per-scan setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableScannerBenchmark{
+    static final int ROWS = 4096;
+    static final int WRITERS = 64;
+
+    static{
+        ClassSize.setDummyCatalog();
+    }
+
+    @Param
+    public TxnFilterBenchmark.Resolution resolution;
+
+    private OperationFactory operationFactory;
+    private MPartition partition;
+    private TransactionalRegion region;
+    private TxnView readTxn;
+    private ExecRow template;
+
+    @Setup
+    public void setUp() throws IOException, StandardException{
+        operationFactory = new MOperationFactory(SystemClock.INSTANCE);
+        TxnOperationFactory txnOperationFactory = new SimpleTxnOperationFactory(MExceptionFactory.INSTANCE,operationFactory);
+        CommittedTxnStore store = new CommittedTxnStore(WRITERS);
+        TxnSupplier txnSupplier = resolution==TxnFilterBenchmark.Resolution.UNCACHED? store : new CompletedTxnCacheSupplier(store,4*WRITERS,1);
+        long readTs = CommittedTxnStore.readTimestamp(WRITERS);
+        readTxn = new InheritingTxnView(Txn.ROOT_TRANSACTION,readTs,readTs,Txn.IsolationLevel.SNAPSHOT_ISOLATION,Txn.State.ACTIVE);
+
+        partition = new MPartition("benchmark","benchmark");
+        region = new TxnRegion(partition,NoopRollForward.INSTANCE,NoOpReadResolver.INSTANCE,
+                txnSupplier,null,txnOperationFactory);
+
+        template = new ValueRow(4);
+        template.setRowArray(new DataValueDescriptor[]{
+                new SQLLongint(),new SQLInteger(),new SQLDouble(),new SQLVarchar()});
+        DescriptorSerializer[] serializers = VersionedSerializers.latestVersion(true).getSerializers(template);
+        EntryDataHash rowEncoder = new EntryDataHash(IntArrays.count(4),null,serializers);
+        try{
+            ExecRow row = template.getNewNullRow();
+            for(int i=0;i<ROWS;i++){
+                row.getColumn(1).setValue((long)i);
+                row.getColumn(2).setValue(i%100);
+                row.getColumn(3).setValue(i*1.5d);
+                row.getColumn(4).setValue("customer#"+i);
+                rowEncoder.setRow(row);
+
+                long txnId = CommittedTxnStore.txnId(i%WRITERS);
+                DataPut put = operationFactory.newPut(Bytes.toBytes(i));
+                put.addCell(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,txnId,rowEncoder.encode());
+                if(resolution==TxnFilterBenchmark.Resolution.READ_RESOLVED)
+                    put.addCell(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,
+                            txnId,Bytes.toBytes(store.commitTimestamp(txnId)));
+                partition.put(put);
+            }
+        }finally{
+            rowEncoder.close();
+        }
+        for(int i=0;i<WRITERS;i++){
+            txnSupplier.getTransaction(CommittedTxnStore.txnId(i));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void next(Blackhole bh) throws IOException, StandardException{
+        TableScannerBuilder<ExecRow> builder = new TableScannerBuilder<ExecRow>(){
+            @Override
+            public DataSet<ExecRow> buildDataSet() throws StandardException{
+                throw new UnsupportedOperationException();
+            }
+        };
+        builder.scanner(partition.openScanner(operationFactory.newScan()))
+                .region(region)
+                .transaction(readTxn)
+                .template(template.getNewNullRow())
+                .rowDecodingMap(IntArrays.count(4))
+                .tableVersion(SYSTABLESRowFactory.CURRENT_TABLE_VERSION);
+        SITableScanner scanner = builder.build();
+        try{
+            ExecRow row;
+            while((row = scanner.next())!=null){
+                bh.consume(row.getColumn(4));
+            }
+        }finally{
+            scanner.close();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.benchmark;
+
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.si.impl.SimpleTxnFilter;
+import com.splicemachine.si.impl.readresolve.NoOpReadResolver;
+import com.splicemachine.si.impl.store.CompletedTxnCacheSupplier;
+import com.splicemachine.si.impl.txn.InheritingTxnView;
+import com.splicemachine.storage.CellType;
+import com.splicemachine.storage.DataCell;
+import com.splicemachine.storage.MCell;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-cell cost of snapshot isolation visibility checks in {@link SimpleTxnFilter#filterCell(DataCell)}.
+ *
+ * Each invocation filters a scan's worth of rows ({@link #ROWS}) written by {@link #WRITERS} interleaved,
+ * committed transactions, under one of three {@link Resolution}s.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TxnFilterBenchmark{
+    static final int ROWS = 1024;
+    static final int WRITERS = 64;
+
+    public enum Resolution{
+        /** rows carry a commit timestamp cell, so visibility never needs a transaction lookup */
+        READ_RESOLVED,
+        /** transactions are looked up through a warm completed-transaction cache */
+        COMPLETED_CACHE,
+        /** every lookup goes to the transaction store */
+        UNCACHED
+    }
+
+    @Param
+    public Resolution resolution;
+
+    private DataCell[][] rows;
+    private TxnSupplier txnSupplier;
+    private TxnView readTxn;
+
+    @Setup
+    public void setUp() throws IOException{
+        CommittedTxnStore store = new CommittedTxnStore(WRITERS);
+        txnSupplier = resolution==Resolution.UNCACHED? store : new CompletedTxnCacheSupplier(store,4*WRITERS,1);
+        long readTs = CommittedTxnStore.readTimestamp(WRITERS);
+        readTxn = new InheritingTxnView(Txn.ROOT_TRANSACTION,readTs,readTs,Txn.IsolationLevel.SNAPSHOT_ISOLATION,Txn.State.ACTIVE);
+
+        rows = new DataCell[ROWS][];
+        for(int i=0;i<ROWS;i++){
+            byte[] key = Bytes.toBytes(i);
+            long txnId = CommittedTxnStore.txnId(i%WRITERS);
+            DataCell data = new MCell(key,SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,
+                    txnId,Bytes.toBytes("value-"+i),CellType.USER_DATA);
+            if(resolution==Resolution.READ_RESOLVED){
+                DataCell commit = new MCell(key,SIConstants.DEFAULT_FAMILY_BYTES,
+                        SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,
+                        txnId,Bytes.toBytes(store.commitTimestamp(txnId)),CellType.COMMIT_TIMESTAMP);
+                rows[i] = new DataCell[]{commit,data};
+            }else
+                rows[i] = new DataCell[]{data};
+        }
+        // warm the completed-transaction cache
+        for(int i=0;i<WRITERS;i++){
+            txnSupplier.getTransaction(CommittedTxnStore.txnId(i));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void filterCell(Blackhole bh) throws IOException{
+        // a filter lives for the duration of one scan
+        SimpleTxnFilter filter = new SimpleTxnFilter(null,readTxn,NoOpReadResolver.INSTANCE,txnSupplier);
+        for(DataCell[] row:rows){
+            filter.nextRow();
+            for(DataCell cell:row){
+                bh.consume(filter.filterCell(cell));
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.benchmark;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Map;
+
+public class BenchmarkReportTest{
+    private static final double THRESHOLD = 0.10d;
+
+    @Test
+    public void resultsAreKeyedByBenchmarkModeAndSortedParams() throws Exception{
+        Map<String,BenchmarkReport.Result> results = BenchmarkReport.read(new StringReader("["+
+                benchmark("a.B.run","thrpt","{\"z\":\"1\",\"a\":\"CACHED\"}",100d,"2.5")+","+
+                benchmark("a.B.run","avgt",null,3d,"\"NaN\"")+"]"));
+        Assert.assertEquals(2,results.size());
+        BenchmarkReport.Result throughput = results.get("a.B.run [thrpt,a=CACHED,z=1]");
+        Assert.assertNotNull("Params should be sorted into the key: "+results.keySet(),throughput);
+        Assert.assertEquals(100d,throughput.score,0d);
+        Assert.assertEquals(2.5d,throughput.error,0d);
+        Assert.assertTrue(throughput.higherIsBetter());
+        BenchmarkReport.Result time = results.get("a.B.run [avgt]");
+        Assert.assertEquals("An unknown error counts as none",0d,time.error,0d);
+        Assert.assertFalse(time.higherIsBetter());
+    }
+
+    @Test
+    public void recordedBaselineReadsBackTheSame() throws Exception{
+        Map<String,BenchmarkReport.Result> results = BenchmarkReport.read(new StringReader("["+
+                benchmark("a.B.run","thrpt","{\"p\":\"x\"}",100d,"2.5")+"]"));
+        StringWriter recorded = new StringWriter();
+        BenchmarkReport.write(results,recorded);
+        Map<String,BenchmarkReport.Result> baseline = BenchmarkReport.read(new StringReader(recorded.toString()));
+        Assert.assertEquals(results.keySet(),baseline.keySet());
+        Assert.assertEquals(0,compare(results,baseline));
+    }
+
+    @Test
+    public void throughputRegressesWhenItDrops() throws Exception{
+        Assert.assertEquals(1,compare("thrpt",80d,1d,100d,1d));
+        Assert.assertEquals("Faster is never a regression",0,compare("thrpt",150d,1d,100d,1d));
+        Assert.assertEquals("Within the threshold",0,compare("thrpt",91d,0d,100d,0d));
+    }
+
+    @Test
+    public void timeRegressesWhenItGrows() throws Exception{
+        Assert.assertEquals(1,compare("avgt",120d,1d,100d,1d));
+        Assert.assertEquals("Faster is never a regression",0,compare("avgt",50d,1d,100d,1d));
+        Assert.assertEquals("Within the threshold",0,compare("avgt",109d,0d,100d,0d));
+    }
+
+    @Test
+    public void overlappingErrorsAreNotARegression() throws Exception{
+        Assert.assertEquals(0,compare("thrpt",80d,15d,100d,5d));
+        Assert.assertEquals(1,compare("thrpt",80d,10d,100d,5d));
+    }
+
+    @Test
+    public void missingBaselineFails() throws Exception{
+        Map<String,BenchmarkReport.Result> results = BenchmarkReport.read(new StringReader("["+
+                benchmark("a.B.run","thrpt",null,100d,"1")+","+benchmark("a.B.other","thrpt",null,100d,"1")+"]"));
+        Map<String,BenchmarkReport.Result> baseline = BenchmarkReport.read(new StringReader("["+
+                benchmark("a.B.run","thrpt",null,100d,"1")+"]"));
+        Assert.assertEquals(1,compare(results,baseline));
+        Assert.assertEquals("A benchmark only in the baseline doesn't matter",0,compare(baseline,results));
+    }
+
+    @Test
+    public void noResultsFails() throws Exception{
+        Map<String,BenchmarkReport.Result> baseline = BenchmarkReport.read(new StringReader("["+
+                benchmark("a.B.run","thrpt",null,100d,"1")+"]"));
+        Assert.assertEquals(1,compare(BenchmarkReport.read(new StringReader("[]")),baseline));
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static int compare(String mode,double score,double error,double baseScore,double baseError){
+        Map<String,BenchmarkReport.Result> results = BenchmarkReport.read(new StringReader("["+
+                benchmark("a.B.run",mode,null,score,String.valueOf(error))+"]"));
+        Map<String,BenchmarkReport.Result> baseline = BenchmarkReport.read(new StringReader("["+
+                benchmark("a.B.run",mode,null,baseScore,String.valueOf(baseError))+"]"));
+        return compare(results,baseline);
+    }
+
+    private static int compare(Map<String,BenchmarkReport.Result> results,Map<String,BenchmarkReport.Result> baseline){
+        return BenchmarkReport.compare(results,baseline,THRESHOLD,new PrintStream(new ByteArrayOutputStream()));
+    }
+
+    private static String benchmark(String name,String mode,String params,double score,String error){
+        return "{\"benchmark\":\""+name+"\",\"mode\":\""+mode+"\","+
+                (params==null? "" : "\"params\":"+params+",")+
+                "\"primaryMetric\":{\"score\":"+score+",\"scoreError\":"+error+",\"scoreUnit\":\"ops/s\"}}";
+    }
+}
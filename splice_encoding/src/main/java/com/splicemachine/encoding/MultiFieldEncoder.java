@@ -224,6 +224,37 @@ public class MultiFieldEncoder {
         return data;
     }
 
+    /**
+     * @return the length of the array {@link #build()} would return
+     */
+    public int length(){
+        return currentPos==0?0:currentSize+currentPos-1;
+    }
+
+    /**
+     * Writes the fields encoded so far into {@code dest}, exactly as {@link #build()} would return them,
+     * without allocating a new array.
+     *
+     * @param dest the array to write to, with at least {@link #length()} bytes available after {@code offset}
+     * @param offset the position in {@code dest} to start writing at
+     * @return the position in {@code dest} after the last byte written
+     */
+    public int build(byte[] dest,int offset){
+        int destPos=offset;
+        for(int srcPos=0;srcPos<currentPos;srcPos++){
+            if(srcPos != 0){
+                dest[destPos] = 0x00;
+                destPos++;
+            }
+            byte[] src = fields[srcPos];
+            if(src==null || src.length==0)
+                continue;
+            System.arraycopy(src,0,dest,destPos,src.length);
+            destPos+=src.length;
+        }
+        return destPos;
+    }
+
     public void mark() {
         markedPos = currentPos;
         markedSize = currentSize;
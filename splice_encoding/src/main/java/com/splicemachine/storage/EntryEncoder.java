@@ -66,6 +66,29 @@ public class EntryEncoder {
         return entry;
     }
 
+    /**
+     * @return the length of the array {@link #encode()} would return
+     */
+    public int encodedLength(){
+        return bitIndex.encodedSize()+1+encoder.length();
+    }
+
+    /**
+     * Writes the entry into {@code dest}, exactly as {@link #encode()} would return it, without allocating
+     * a new array for it.
+     *
+     * @param dest the array to write to, with at least {@link #encodedLength()} bytes available after {@code offset}
+     * @param offset the position in {@code dest} to start writing at
+     * @return the position in {@code dest} after the last byte written
+     */
+    public int encode(byte[] dest,int offset){
+        byte[] bitData = bitIndex.encode();
+        System.arraycopy(bitData,0,dest,offset,bitData.length);
+        offset+=bitData.length;
+        dest[offset] = 0;
+        return encoder.build(dest,offset+1);
+    }
+
     public void reset(BitSet nonNullFields) {
         int oldCardinality = bitIndex.cardinality();
         boolean differs = nonNullFields.cardinality() != oldCardinality;
@@ -63,6 +63,32 @@ public class EntryEncoderTest {
 
     }
 
+    @Test
+    public void testEncodeIntoArrayMatchesEncode() throws Exception {
+        BitSet setBits = new BitSet(10);
+        setBits.set(1);
+        setBits.set(3);
+        setBits.set(4);
+        setBits.set(8);
+        EntryEncoder encoder = EntryEncoder.create(defaultPool,10,setBits,null,null,null);
+
+        MultiFieldEncoder entryEncoder = encoder.getEntryEncoder();
+        entryEncoder.encodeNext(1);
+        entryEncoder.encodeEmpty();
+        entryEncoder.encodeNext("hello");
+        entryEncoder.encodeNext(new BigDecimal("22.4567"));
+
+        byte[] expected = encoder.encode();
+        Assert.assertEquals(expected.length,encoder.encodedLength());
+
+        byte[] dest = new byte[expected.length+5];
+        int end = encoder.encode(dest,3);
+        Assert.assertEquals(3+expected.length,end);
+        for(int i=0;i<expected.length;i++){
+            Assert.assertEquals("Incorrect byte at position "+i,expected[i],dest[3+i]);
+        }
+    }
+
     @Test
     public void testCanEncodeAndDecodeCorrectlyUncompressed() throws Exception {
         BitSet setBits = new BitSet(10);
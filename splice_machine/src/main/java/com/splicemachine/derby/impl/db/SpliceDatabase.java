@@ -309,6 +309,8 @@ public class SpliceDatabase extends BasicDatabase{
             public void startChange(DDLChange change) throws StandardException{
                 DataDictionary dataDictionary=getDataDictionary();
                 DependencyManager dependencyManager=dataDictionary.getDependencyManager();
+                // cached results may depend on what the change alters, drop them before and after it commits
+                dataDictionary.getDataDictionaryCache().getResultCache().clear();
                 switch(change.getDdlChangeType()){
                     case CREATE_INDEX:
                         DDLUtils.preCreateIndex(change,dataDictionary,dependencyManager);
@@ -420,6 +422,7 @@ public class SpliceDatabase extends BasicDatabase{
             public void changeSuccessful(String changeId,DDLChange change) throws StandardException{
                 DataDictionary dataDictionary=getDataDictionary();
                 DependencyManager dependencyManager=dataDictionary.getDependencyManager();
+                dataDictionary.getDataDictionaryCache().getResultCache().clear();
                 switch(change.getDdlChangeType()){
                     case NOTIFY_JAR_LOADER:
                         DDLUtils.postNotifyJarLoader(change,dataDictionary,dependencyManager);
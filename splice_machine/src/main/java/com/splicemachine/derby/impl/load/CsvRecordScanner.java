@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.derby.impl.load;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A byte-oriented scanner for delimited files, which finds the boundaries of records and of the fields
+ * within them without decoding the bytes.
+ *
+ * The scanner follows the rules of {@link com.splicemachine.derby.stream.function.QuoteTrackingTokenizer}:
+ * quote characters toggle quoting anywhere in a field and are dropped from its value, a doubled quote inside
+ * a quoted section stands for a single quote, and line terminators ({@code \n}, {@code \r\n} or {@code \r})
+ * inside a quoted section belong to the field. Quoted sections which span more than {@code maxLinesPerRow}
+ * lines, or which are still open at the end of the input, make the record bad; the bad record ends at the
+ * line where the problem was found, and scanning resumes on the following line.
+ *
+ * When records are known to fit on one line, every line terminator ends a record and empty lines are
+ * returned as records without fields. Otherwise empty lines between records are skipped.
+ *
+ * Delimiter and quote must be ASCII characters, so that they can't appear inside a multi-byte UTF-8 sequence.
+ * Instances are not thread safe.
+ */
+public class CsvRecordScanner{
+    /**
+     * Returned by {@link #next} when the input ends in the middle of a record, and more input is available.
+     */
+    public static final int NEED_MORE = -1;
+
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    private final byte quote;
+    private final byte delimiter;
+    private final int maxLinesPerRow;
+    private final boolean oneLineRecords;
+
+    /* number of lines consumed so far */
+    private long lineNumber;
+
+    /* the state of the last record */
+    private boolean hasRecord;
+    private String error;
+    private int fieldCount;
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private boolean[] fieldQuoted = new boolean[16];
+
+    public CsvRecordScanner(char quote,char delimiter,int maxLinesPerRow,boolean oneLineRecords){
+        assert quote<0x80 && delimiter<0x80: "Only ASCII quotes and delimiters can be scanned";
+        this.quote = (byte)quote;
+        this.delimiter = (byte)delimiter;
+        this.maxLinesPerRow = maxLinesPerRow;
+        this.oneLineRecords = oneLineRecords;
+    }
+
+    /**
+     * @return true if {@code c} can be used as a quote or delimiter by this scanner
+     */
+    public static boolean isSupported(char c){
+        return c<0x80 && c!=CR && c!=LF;
+    }
+
+    /**
+     * @param lineNumber the number of lines preceding the input which will be scanned next
+     */
+    public void setLineNumber(long lineNumber){
+        this.lineNumber = lineNumber;
+    }
+
+    /**
+     * @return the number of lines consumed, including those set by {@link #setLineNumber(long)}
+     */
+    public long getLineNumber(){
+        return lineNumber;
+    }
+
+    /**
+     * Scans the record beginning at {@code from}.
+     *
+     * @param buffer the input
+     * @param from the position of the first byte of the record
+     * @param limit the end of the available input
+     * @param eof true if no input follows {@code limit}
+     * @param collectFields true if the boundaries of the record's fields should be kept
+     * @return the position following the record and its terminator, or {@link #NEED_MORE} if the record isn't
+     * complete before {@code limit}. Check {@link #hasRecord()}, since at the end of the input only empty
+     * lines may have been consumed.
+     */
+    public int next(byte[] buffer,int from,int limit,boolean eof,boolean collectFields){
+        hasRecord = false;
+        error = null;
+        fieldCount = 0;
+        long line = lineNumber;
+        int pos = from;
+        if(!oneLineRecords){
+            while(pos<limit && (buffer[pos]==LF || buffer[pos]==CR)){
+                int t = terminatorLength(buffer,pos,limit,eof);
+                if(t<0) return NEED_MORE;
+                pos+=t;
+                line++;
+            }
+        }
+        if(pos==limit){
+            if(!eof) return NEED_MORE;
+            lineNumber = line;
+            return pos;
+        }
+        if(oneLineRecords && pos<limit && (buffer[pos]==LF || buffer[pos]==CR)){
+            // an empty line is a record without fields
+            int t = terminatorLength(buffer,pos,limit,eof);
+            if(t<0) return NEED_MORE;
+            hasRecord = true;
+            lineNumber = line+1;
+            return pos+t;
+        }
+
+        boolean inQuote = false;
+        boolean quoted = false;
+        long quoteStartLine = 0;
+        int fieldStart = pos;
+        while(true){
+            if(pos==limit){
+                if(!eof) return NEED_MORE;
+                if(inQuote){
+                    // a terminator right before the end of the input has already been counted
+                    if(buffer[pos-1]!=LF && buffer[pos-1]!=CR) line++;
+                    error = String.format("partial record found [%s] while reading quoted column beginning on line %d and ending on line %d",
+                            partialField(buffer,fieldStart,pos),quoteStartLine,line);
+                }else
+                    line++;
+                if(collectFields) addField(fieldStart,pos,quoted);
+                hasRecord = true;
+                lineNumber = line;
+                return pos;
+            }
+            byte b = buffer[pos];
+            if(inQuote){
+                if(b==quote){
+                    if(pos+1==limit && !eof) return NEED_MORE;
+                    if(pos+1<limit && buffer[pos+1]==quote)
+                        pos+=2; // an escaped quote
+                    else{
+                        inQuote = false;
+                        pos++;
+                    }
+                }else if(b==LF || b==CR){
+                    int t = terminatorLength(buffer,pos,limit,eof);
+                    if(t<0) return NEED_MORE;
+                    if(oneLineRecords){
+                        error = String.format("partial record found [%s] while reading quoted column beginning on line %d and ending on line %d",
+                                partialField(buffer,fieldStart,pos),quoteStartLine,line+1);
+                    }else if(maxLinesPerRow>0 && line+1-quoteStartLine+1>=maxLinesPerRow){
+                        error = maxLinesPerRow==1?
+                                String.format("unexpected end of line while reading quoted column on line %d",line+1):
+                                String.format("max number of lines to read exceeded while reading quoted column"+
+                                        " beginning on line %d and ending on line %d",quoteStartLine,line+1);
+                    }
+                    pos+=t;
+                    line++;
+                    if(error!=null){
+                        if(collectFields) addField(fieldStart,pos-t,quoted);
+                        hasRecord = true;
+                        lineNumber = line;
+                        return pos;
+                    }
+                }else
+                    pos++;
+            }else if(b==delimiter){
+                if(collectFields) addField(fieldStart,pos,quoted);
+                quoted = false;
+                fieldStart = ++pos;
+            }else if(b==quote){
+                inQuote = true;
+                quoted = true;
+                quoteStartLine = line+1;
+                pos++;
+            }else if(b==LF || b==CR){
+                int t = terminatorLength(buffer,pos,limit,eof);
+                if(t<0) return NEED_MORE;
+                if(collectFields) addField(fieldStart,pos,quoted);
+                hasRecord = true;
+                lineNumber = line+1;
+                return pos+t;
+            }else
+                pos++;
+        }
+    }
+
+    /**
+     * @return true if the last call to {@link #next} found a record
+     */
+    public boolean hasRecord(){
+        return hasRecord;
+    }
+
+    /**
+     * @return the reason the last record is bad, or {@code null} if it was well formed
+     */
+    public String getError(){
+        return error;
+    }
+
+    public int fieldCount(){
+        return fieldCount;
+    }
+
+    public int fieldStart(int field){
+        return fieldStarts[field];
+    }
+
+    public int fieldEnd(int field){
+        return fieldEnds[field];
+    }
+
+    /**
+     * @return true if the field contains quotes, in which case its bytes must be passed through
+     * {@link #unquote(byte[], int, int, byte[])} to get its value
+     */
+    public boolean isQuoted(int field){
+        return fieldQuoted[field];
+    }
+
+    /**
+     * Copies the value of a quoted field into {@code destination}, dropping the quotes, replacing escaped
+     * quotes with single quotes and line terminators with {@code \n}.
+     *
+     * @return the length of the value
+     */
+    public int unquote(byte[] buffer,int start,int end,byte[] destination){
+        assert destination.length>=end-start: "Destination is too small";
+        boolean inQuote = false;
+        int length = 0;
+        for(int pos=start;pos<end;pos++){
+            byte b = buffer[pos];
+            if(b==quote){
+                if(inQuote && pos+1<end && buffer[pos+1]==quote){
+                    destination[length++] = quote;
+                    pos++;
+                }else
+                    inQuote = !inQuote;
+            }else if(b==CR){
+                destination[length++] = LF;
+                if(pos+1<end && buffer[pos+1]==LF)
+                    pos++;
+            }else
+                destination[length++] = b;
+        }
+        return length;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void addField(int start,int end,boolean quoted){
+        if(fieldCount==fieldStarts.length){
+            int size = fieldCount*2;
+            fieldStarts = Arrays.copyOf(fieldStarts,size);
+            fieldEnds = Arrays.copyOf(fieldEnds,size);
+            fieldQuoted = Arrays.copyOf(fieldQuoted,size);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldQuoted[fieldCount] = quoted;
+        fieldCount++;
+    }
+
+    private String partialField(byte[] buffer,int start,int end){
+        byte[] value = new byte[end-start];
+        int length = unquote(buffer,start,end,value);
+        return new String(value,0,length,StandardCharsets.UTF_8);
+    }
+
+    private static int terminatorLength(byte[] buffer,int pos,int limit,boolean eof){
+        if(buffer[pos]==LF) return 1;
+        if(pos+1<limit) return buffer[pos+1]==LF?2:1;
+        return eof?1:NEED_MORE;
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.derby.impl.load;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataTypeDescriptor;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.shared.common.reference.SQLState;
+import com.splicemachine.derby.stream.function.AbstractFileFunction;
+import com.splicemachine.derby.utils.SpliceDateFormatter;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+/**
+ * Converts the fields found by a {@link CsvRecordScanner} into an {@link ExecRow}.
+ *
+ * Integer, double and decimal columns are parsed straight from the bytes of the field. Character columns
+ * decode the bytes into their value, and all other types (as well as numbers which aren't in a plain
+ * format) go through {@link AbstractFileFunction#setColumnValue}, so the result and the errors reported
+ * for a field are the same as when the file is imported line by line.
+ *
+ * Instances are not thread safe; create one per parsing thread.
+ */
+public class CsvRowDecoder{
+    private static final double[] POWERS_OF_TEN = new double[23];
+    static{
+        POWERS_OF_TEN[0] = 1d;
+        for(int i=1;i<POWERS_OF_TEN.length;i++){
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i-1]*10;
+        }
+    }
+
+    private final ExecRow template;
+    private final DataTypeDescriptor[] dataTypeDescriptors;
+    private final boolean convertTimestamps;
+    private final String timeFormat;
+    private final String dateTimeFormat;
+    private final String timestampFormat;
+    private final SpliceDateFormatter dateFormatter;
+    private final Calendar calendar = new GregorianCalendar();
+
+    private byte[] scratch = new byte[64];
+    private char[] digits = new char[64];
+
+    private String badRecordMessage;
+    private Exception badRecordCause;
+
+    public CsvRowDecoder(ExecRow template,DataTypeDescriptor[] dataTypeDescriptors,boolean convertTimestamps,
+                         String timeFormat,String dateTimeFormat,String timestampFormat){
+        this.template = template;
+        this.dataTypeDescriptors = dataTypeDescriptors;
+        this.convertTimestamps = convertTimestamps;
+        this.timeFormat = timeFormat;
+        this.dateTimeFormat = dateTimeFormat;
+        this.timestampFormat = timestampFormat;
+        this.dateFormatter = new SpliceDateFormatter(dateTimeFormat);
+    }
+
+    /**
+     * Decodes the record last found by {@code scanner}.
+     *
+     * @return the row, or {@code null} if the record couldn't be converted. The reason is then available
+     * from {@link #getBadRecordMessage()} and {@link #getBadRecordCause()}.
+     */
+    public ExecRow decode(CsvRecordScanner scanner,byte[] buffer){
+        badRecordMessage = null;
+        badRecordCause = null;
+        int columnID = 0;
+        int fieldCount = scanner.fieldCount();
+        int numColumns = template.nColumns();
+        try{
+            ExecRow row = template.getClone();
+            if(fieldCount<numColumns){
+                badRecordCause = StandardException.newException(SQLState.COLUMN_NUMBER_MISMATCH,numColumns,fieldCount);
+                badRecordMessage = AbstractFileFunction.badRecordMessage(badRecordCause,true,
+                        tokens(scanner,buffer),numColumns,fieldCount,0,null);
+                return null;
+            }
+            for(int i=1;i<=numColumns;i++){
+                columnID = i;
+                setColumn(row.getColumn(i),scanner,buffer,i-1);
+            }
+            return row;
+        }catch(Exception e){
+            String columnValue = columnID>0?value(scanner,buffer,columnID-1):null;
+            badRecordCause = e;
+            badRecordMessage = AbstractFileFunction.badRecordMessage(e,false,tokens(scanner,buffer),
+                    numColumns,fieldCount,columnID,columnValue);
+            return null;
+        }
+    }
+
+    public String getBadRecordMessage(){
+        return badRecordMessage;
+    }
+
+    public Exception getBadRecordCause(){
+        return badRecordCause;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void setColumn(DataValueDescriptor dvd,CsvRecordScanner scanner,byte[] buffer,int field) throws StandardException{
+        byte[] bytes = buffer;
+        int start = scanner.fieldStart(field);
+        int end = scanner.fieldEnd(field);
+        boolean quoted = scanner.isQuoted(field);
+        if(quoted){
+            ensureScratch(end-start);
+            end = scanner.unquote(buffer,start,end,scratch);
+            start = 0;
+            bytes = scratch;
+        }
+        String value = null;
+        if(!isNull(bytes,start,end,quoted)){
+            if(setNumber(dvd,bytes,start,end)) return;
+            value = new String(bytes,start,end-start,StandardCharsets.UTF_8);
+        }
+        AbstractFileFunction.setColumnValue(dvd,value,
+                dataTypeDescriptors==null?null:dataTypeDescriptors[field],
+                calendar,timeFormat,dateTimeFormat,timestampFormat,dateFormatter,convertTimestamps);
+    }
+
+    /**
+     * Sets a numeric column when the field is in a plain format which converts to exactly the value the
+     * String based conversion would produce.
+     *
+     * @return false if the field must go through the String based conversion
+     */
+    private boolean setNumber(DataValueDescriptor dvd,byte[] bytes,int start,int end) throws StandardException{
+        int type = dvd.getTypeFormatId();
+        if(type!=StoredFormatIds.SQL_INTEGER_ID && type!=StoredFormatIds.SQL_LONGINT_ID
+                && type!=StoredFormatIds.SQL_SMALLINT_ID && type!=StoredFormatIds.SQL_TINYINT_ID
+                && type!=StoredFormatIds.SQL_DOUBLE_ID && type!=StoredFormatIds.SQL_DECIMAL_ID)
+            return false;
+
+        // trim the same characters String.trim() does
+        while(start<end && (bytes[start]&0xff)<=' ') start++;
+        while(end>start && (bytes[end-1]&0xff)<=' ') end--;
+        if(start==end) return false;
+
+        if(type==StoredFormatIds.SQL_DECIMAL_ID)
+            return setDecimal(dvd,bytes,start,end);
+
+        boolean negative = bytes[start]=='-';
+        int pos = start;
+        if(negative || bytes[start]=='+') pos++;
+        long mantissa = 0;
+        int numDigits = 0;
+        int fractionDigits = -1;
+        for(;pos<end;pos++){
+            byte b = bytes[pos];
+            if(b>='0' && b<='9'){
+                if(++numDigits>18) return false;
+                mantissa = mantissa*10+(b-'0');
+                if(fractionDigits>=0) fractionDigits++;
+            }else if(b=='.' && fractionDigits<0 && type==StoredFormatIds.SQL_DOUBLE_ID)
+                fractionDigits = 0;
+            else
+                return false;
+        }
+        if(numDigits==0) return false;
+        if(negative) mantissa = -mantissa;
+
+        switch(type){
+            case StoredFormatIds.SQL_DOUBLE_ID:
+                // both operands are exact, so the quotient is correctly rounded
+                if(Math.abs(mantissa)>=(1L<<53) || fractionDigits>=POWERS_OF_TEN.length) return false;
+                double d = negative && mantissa==0?-0d:mantissa;
+                if(fractionDigits>0) d/=POWERS_OF_TEN[fractionDigits];
+                dvd.setValue(d);
+                return true;
+            case StoredFormatIds.SQL_INTEGER_ID:
+                if(mantissa>Integer.MAX_VALUE || mantissa<Integer.MIN_VALUE) return false;
+                break;
+            case StoredFormatIds.SQL_SMALLINT_ID:
+                if(mantissa>Short.MAX_VALUE || mantissa<Short.MIN_VALUE) return false;
+                break;
+            case StoredFormatIds.SQL_TINYINT_ID:
+                if(mantissa>Byte.MAX_VALUE || mantissa<Byte.MIN_VALUE) return false;
+                break;
+            default:
+        }
+        dvd.setValue(mantissa);
+        return true;
+    }
+
+    private boolean setDecimal(DataValueDescriptor dvd,byte[] bytes,int start,int end) throws StandardException{
+        int length = end-start;
+        if(digits.length<length) digits = new char[Math.max(length,2*digits.length)];
+        for(int i=0;i<length;i++){
+            byte b = bytes[start+i];
+            if((b<'0' || b>'9') && b!='.' && b!='-' && b!='+' && b!='e' && b!='E') return false;
+            digits[i] = (char)b;
+        }
+        BigDecimal value;
+        try{
+            value = new BigDecimal(digits,0,length);
+        }catch(NumberFormatException nfe){
+            return false;
+        }
+        dvd.setBigDecimal(value);
+        return true;
+    }
+
+    private static boolean isNull(byte[] bytes,int start,int end,boolean quoted){
+        int length = end-start;
+        if(length==0) return true;
+        if(quoted || length!=4) return false;
+        return (bytes[start]|0x20)=='n' && (bytes[start+1]|0x20)=='u'
+                && (bytes[start+2]|0x20)=='l' && (bytes[start+3]|0x20)=='l';
+    }
+
+    private void ensureScratch(int size){
+        if(scratch.length<size)
+            scratch = new byte[Math.max(size,2*scratch.length)];
+    }
+
+    /**
+     * @return the value of a field as the line by line import sees it, after null handling
+     */
+    private String value(CsvRecordScanner scanner,byte[] buffer,int field){
+        if(field>=scanner.fieldCount()) return null;
+        String token = token(scanner,buffer,field);
+        if(token==null) return null;
+        if(!scanner.isQuoted(field) && token.equalsIgnoreCase("null")) return null;
+        return token;
+    }
+
+    private String token(CsvRecordScanner scanner,byte[] buffer,int field){
+        int start = scanner.fieldStart(field);
+        int end = scanner.fieldEnd(field);
+        if(scanner.isQuoted(field)){
+            byte[] value = new byte[end-start];
+            int length = scanner.unquote(buffer,start,end,value);
+            return length==0?null:new String(value,0,length,StandardCharsets.UTF_8);
+        }
+        return end==start?null:new String(buffer,start,end-start,StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the tokens of the record as the line by line import reports them in bad records
+     */
+    private List<String> tokens(CsvRecordScanner scanner,byte[] buffer){
+        if(scanner.fieldCount()==0) return null;
+        List<String> tokens = new ArrayList<>(scanner.fieldCount());
+        for(int i=0;i<scanner.fieldCount();i++){
+            tokens.add(token(scanner,buffer,i));
+        }
+        return tokens;
+    }
+}
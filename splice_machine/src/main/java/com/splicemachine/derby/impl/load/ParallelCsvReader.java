@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.derby.impl.load;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataTypeDescriptor;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import org.apache.log4j.Logger;
+import org.supercsv.exception.SuperCsvException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Reads the rows of a delimited file, parsing it in parallel.
+ *
+ * The calling thread reads the input in chunks of roughly {@code chunkSize} bytes, and cuts each chunk at
+ * the end of its last complete record (finding it requires knowing whether a line terminator is quoted, so
+ * this is a cheap but sequential scan). The chunks are then tokenized and converted into rows by tasks on a
+ * {@link ForkJoinPool} of the reader's own, while the rows of earlier chunks are handed out in the order of
+ * the file. The pool is shut down when the reader is closed, which happens once the input is exhausted.
+ *
+ * Counting rows read and recording bad records happens on the calling thread, when the row or bad record is
+ * reached, so the {@link OperationContext} sees the same sequence of events as with a line by line import.
+ * Once the context reports that too many bad records were found, the reader stops.
+ */
+public class ParallelCsvReader implements Iterator<ExecRow>{
+    private static final Logger LOG = Logger.getLogger(ParallelCsvReader.class);
+
+    private final InputStream input;
+    private final CsvRecordScanner splitter;
+    private final ChunkParserFactory parserFactory;
+    private final OperationContext operationContext;
+    private final ForkJoinPool pool;
+    private final int maxPendingChunks;
+    private final int chunkSize;
+
+    private final ArrayDeque<ChunkTask> pending = new ArrayDeque<>();
+    private byte[] carry = new byte[0];
+    private int carryLength;
+    private boolean eof;
+
+    private ParsedChunk current;
+    private int position;
+    private ExecRow nextRow;
+    private boolean closed;
+
+    public ParallelCsvReader(InputStream input,char quote,char delimiter,int maxLinesPerRow,boolean oneLineRecords,
+                             ExecRow template,DataTypeDescriptor[] dataTypeDescriptors,boolean convertTimestamps,
+                             String timeFormat,String dateTimeFormat,String timestampFormat,
+                             OperationContext operationContext,int parallelism,int chunkSize){
+        this.input = input;
+        this.splitter = new CsvRecordScanner(quote,delimiter,maxLinesPerRow,oneLineRecords);
+        this.parserFactory = new ChunkParserFactory(quote,delimiter,maxLinesPerRow,oneLineRecords,template,
+                dataTypeDescriptors,convertTimestamps,timeFormat,dateTimeFormat,timestampFormat);
+        this.operationContext = operationContext;
+        this.pool = new ForkJoinPool(parallelism);
+        this.maxPendingChunks = 2*parallelism;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public boolean hasNext(){
+        if(nextRow!=null) return true;
+        if(closed) return false;
+        try{
+            while(true){
+                if(operationContext!=null && operationContext.isFailed()){
+                    close();
+                    return false;
+                }
+                if(current==null || position==current.size){
+                    current = nextChunk();
+                    position = 0;
+                    if(current==null){
+                        close();
+                        return false;
+                    }
+                    continue;
+                }
+                int i = position++;
+                if(current.errors[i]==null){
+                    if(operationContext!=null) operationContext.recordRead();
+                    nextRow = current.rows[i];
+                    return true;
+                }
+                if(current.counted[i] && operationContext!=null) operationContext.recordRead();
+                if(operationContext==null || !operationContext.isPermissive())
+                    throw StandardException.plainWrapException(current.causes[i]);
+                operationContext.recordBadRecord(current.errors[i],current.causes[i]);
+            }
+        }catch(Exception e){
+            close();
+            throw new RuntimeException("Terminal, should have been caught",e);
+        }
+    }
+
+    @Override
+    public ExecRow next(){
+        if(!hasNext()) throw new NoSuchElementException();
+        ExecRow row = nextRow;
+        nextRow = null;
+        return row;
+    }
+
+    @Override
+    public void remove(){
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Stops reading, discards the chunks which are still being parsed, and shuts the parsing pool down.
+     */
+    public void close(){
+        if(closed) return;
+        closed = true;
+        current = null;
+        for(ChunkTask task:pending){
+            task.cancel(false);
+        }
+        pending.clear();
+        pool.shutdown();
+        try{
+            input.close();
+        }catch(IOException ioe){
+            LOG.warn("Unable to close import file",ioe);
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private ParsedChunk nextChunk() throws IOException{
+        while(pending.size()<maxPendingChunks){
+            ChunkTask task = split();
+            if(task==null) break;
+            pool.execute(task);
+            pending.add(task);
+        }
+        ChunkTask head = pending.poll();
+        return head==null?null:head.join();
+    }
+
+    /**
+     * Reads the next chunk of input, and cuts it at the end of its last complete record.
+     *
+     * @return a task parsing the chunk, or {@code null} at the end of the input
+     */
+    private ChunkTask split() throws IOException{
+        if(eof && carryLength==0) return null;
+        byte[] buffer = Arrays.copyOf(carry,Math.max(chunkSize,carryLength));
+        int limit = carryLength;
+        long firstLine = splitter.getLineNumber();
+        int end = 0;
+        while(end==0){
+            if(limit==buffer.length){
+                // a single record spans the whole buffer
+                buffer = Arrays.copyOf(buffer,2*buffer.length);
+            }
+            while(!eof && limit<buffer.length){
+                int n = input.read(buffer,limit,buffer.length-limit);
+                if(n<0) eof = true;
+                else limit+=n;
+            }
+            int pos = 0;
+            while(pos<limit){
+                int next = splitter.next(buffer,pos,limit,eof,false);
+                if(next==CsvRecordScanner.NEED_MORE) break;
+                pos = next;
+            }
+            end = pos;
+            if(eof && end<limit) throw new IllegalStateException("Scanner did not consume the whole input");
+            if(eof) break;
+        }
+        carryLength = limit-end;
+        if(carry.length<carryLength) carry = new byte[Math.max(carryLength,2*carry.length)];
+        System.arraycopy(buffer,end,carry,0,carryLength);
+        if(end==0) return null;
+        return new ChunkTask(parserFactory,buffer,end,firstLine);
+    }
+
+    /**
+     * The outcome of parsing a chunk: for each record either a row, or the reason it's bad.
+     */
+    private static class ParsedChunk{
+        private final ExecRow[] rows;
+        private final String[] errors;
+        private final Exception[] causes;
+        /* whether the bad record counts as read: records which couldn't be tokenized don't */
+        private final boolean[] counted;
+        private int size;
+
+        ParsedChunk(int capacity){
+            rows = new ExecRow[capacity];
+            errors = new String[capacity];
+            causes = new Exception[capacity];
+            counted = new boolean[capacity];
+        }
+    }
+
+    /**
+     * Holds what's needed to parse a chunk, so that tasks only keep a reference to one object.
+     */
+    private static class ChunkParserFactory{
+        private final char quote;
+        private final char delimiter;
+        private final int maxLinesPerRow;
+        private final boolean oneLineRecords;
+        private final ExecRow template;
+        private final DataTypeDescriptor[] dataTypeDescriptors;
+        private final boolean convertTimestamps;
+        private final String timeFormat;
+        private final String dateTimeFormat;
+        private final String timestampFormat;
+
+        ChunkParserFactory(char quote,char delimiter,int maxLinesPerRow,boolean oneLineRecords,ExecRow template,
+                           DataTypeDescriptor[] dataTypeDescriptors,boolean convertTimestamps,
+                           String timeFormat,String dateTimeFormat,String timestampFormat){
+            this.quote = quote;
+            this.delimiter = delimiter;
+            this.maxLinesPerRow = maxLinesPerRow;
+            this.oneLineRecords = oneLineRecords;
+            this.template = template;
+            this.dataTypeDescriptors = dataTypeDescriptors;
+            this.convertTimestamps = convertTimestamps;
+            this.timeFormat = timeFormat;
+            this.dateTimeFormat = dateTimeFormat;
+            this.timestampFormat = timestampFormat;
+        }
+
+        CsvRecordScanner newScanner(){
+            return new CsvRecordScanner(quote,delimiter,maxLinesPerRow,oneLineRecords);
+        }
+
+        CsvRowDecoder newDecoder(){
+            return new CsvRowDecoder(template,dataTypeDescriptors,convertTimestamps,
+                    timeFormat,dateTimeFormat,timestampFormat);
+        }
+    }
+
+    private static class ChunkTask extends RecursiveTask<ParsedChunk>{
+        private static final long serialVersionUID = 1L;
+        private final transient ChunkParserFactory factory;
+        private final transient byte[] buffer;
+        private final int length;
+        private final long firstLine;
+
+        ChunkTask(ChunkParserFactory factory,byte[] buffer,int length,long firstLine){
+            this.factory = factory;
+            this.buffer = buffer;
+            this.length = length;
+            this.firstLine = firstLine;
+        }
+
+        @Override
+        protected ParsedChunk compute(){
+            CsvRecordScanner scanner = factory.newScanner();
+            CsvRowDecoder decoder = factory.newDecoder();
+            scanner.setLineNumber(firstLine);
+            ParsedChunk chunk = new ParsedChunk(64);
+            ParsedChunk result = chunk;
+            int pos = 0;
+            while(pos<length){
+                pos = scanner.next(buffer,pos,length,true,true);
+                if(!scanner.hasRecord()) break;
+                if(result.size==result.rows.length) result = grow(result);
+                int i = result.size++;
+                if(scanner.getError()!=null){
+                    result.errors[i] = scanner.getError();
+                    result.causes[i] = new SuperCsvException(scanner.getError());
+                    continue;
+                }
+                ExecRow row = decoder.decode(scanner,buffer);
+                result.counted[i] = true;
+                if(row!=null)
+                    result.rows[i] = row;
+                else{
+                    result.errors[i] = decoder.getBadRecordMessage();
+                    result.causes[i] = decoder.getBadRecordCause();
+                }
+            }
+            return result;
+        }
+
+        private static ParsedChunk grow(ParsedChunk chunk){
+            ParsedChunk larger = new ParsedChunk(2*chunk.rows.length);
+            System.arraycopy(chunk.rows,0,larger.rows,0,chunk.size);
+            System.arraycopy(chunk.errors,0,larger.errors,0,chunk.size);
+            System.arraycopy(chunk.causes,0,larger.causes,0,chunk.size);
+            System.arraycopy(chunk.counted,0,larger.counted,0,chunk.size);
+            larger.size = chunk.size;
+            return larger;
+        }
+    }
+}
@@ -28,6 +28,17 @@ public interface JoinTable extends AutoCloseable{
 
     interface Factory{
         JoinTable newTable();
+
+        /**
+         * @return an estimate of the memory held by the table, used to bound the broadcast join cache
+         */
+        long getSizeInBytes();
+
+        /**
+         * Releases the memory held by the table. Called once the table can no longer be handed out and
+         * every table created by {@link #newTable()} has been closed.
+         */
+        void release();
     }
 
     Iterator<ExecRow> fetchInner(ExecRow outer) throws IOException, StandardException;
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute;
+
+import com.carrotsearch.hppc.LongHashSet;
+import com.splicemachine.client.SpliceClient;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.Activation;
+import com.splicemachine.db.iapi.sql.execute.ResultCacheValidator;
+import com.splicemachine.db.iapi.store.access.TransactionController;
+import com.splicemachine.derby.impl.store.access.SpliceTransactionManager;
+import com.splicemachine.pipeline.Exceptions;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.driver.SIDriver;
+import org.apache.log4j.Logger;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Follows the writes the write pipeline applies on this server, so that the result cache can tell
+ * whether the rows it holds for a table are still what a reader would see.
+ *
+ * For each heap conglomerate it remembers the position of the last write in a sequence of all writes,
+ * the user transactions which wrote to it and have not been seen to finish, and the latest commit
+ * timestamp of those which have. Results read at snapshot S are stable once every one of those
+ * transactions has finished, and all that committed did so before S: no reader at or after S can then
+ * see rows the results are missing, until the next write to the table.
+ *
+ * Only writes to regions served by this server are seen that way. So that the writes made through other
+ * servers are seen too, each writer is also published to a {@link ResultCacheWriterRegistry}, once per
+ * table and server, and results are only served while no writer in the registry committed at or after the
+ * snapshot they were read at.
+ */
+@ThreadSafe
+public class ResultCacheWriteTracker implements ResultCacheValidator{
+    /* writers are looked up once this many have collected for one table */
+    private static final int MIN_RESOLVE_THRESHOLD = 64;
+
+    private static final Logger LOG = Logger.getLogger(ResultCacheWriteTracker.class);
+    private static volatile ResultCacheWriteTracker INSTANCE;
+
+    private final TxnSupplier txnSupplier;
+    private final ResultCacheWriterRegistry registry;
+    private final AtomicLong writeSequence = new AtomicLong(0l);
+    private final ConcurrentMap<Long,Writes> writes = new ConcurrentHashMap<>();
+
+    public static ResultCacheWriteTracker instance(){
+        ResultCacheWriteTracker tracker = INSTANCE;
+        if(tracker==null){
+            synchronized(ResultCacheWriteTracker.class){
+                tracker = INSTANCE;
+                if(tracker==null){
+                    SIDriver driver = SIDriver.driver();
+                    ResultCacheWriterTable store = new ResultCacheWriterTable(driver.getTableFactory(),driver.baseOperationFactory());
+                    tracker = INSTANCE = new ResultCacheWriteTracker(driver.getTxnSupplier(),
+                            new ResultCacheWriterRegistry(store,driver.getTxnSupplier(),driver.getExecutorService()));
+                }
+            }
+        }
+        return tracker;
+    }
+
+    ResultCacheWriteTracker(TxnSupplier txnSupplier,ResultCacheWriterRegistry registry){
+        this.txnSupplier = txnSupplier;
+        this.registry = registry;
+    }
+
+    /**
+     * Records a write to the table, before it is applied.
+     *
+     * @param conglomerate the heap conglomerate of the table written to
+     * @param txn the transaction of the write
+     */
+    public void written(long conglomerate,TxnView txn){
+        Writes tableWrites = tableWrites(conglomerate);
+        if(tableWrites.written(userTransaction(txn).getTxnId(),writeSequence.incrementAndGet())){
+            try{
+                tableWrites.resolve();
+            }catch(IOException e){
+                LOG.warn("Unable to look up the writers of conglomerate "+conglomerate+", will retry on the next check",e);
+            }
+        }
+    }
+
+    /**
+     * Makes a write to the table known to the other servers, if it is the first this server has seen
+     * of its user transaction. Must be done before the transaction can commit, i.e. before the write
+     * is acknowledged. Writes which bypass the write pipeline, like bulk loads of HFiles, must be
+     * published this way too.
+     *
+     * @param conglomerate the heap conglomerate of the table written to
+     * @param txn the transaction of the write
+     * @throws IOException if the write could not be published, and so must fail
+     */
+    public void publish(long conglomerate,TxnView txn) throws IOException{
+        Writes tableWrites = tableWrites(conglomerate);
+        long txnId = userTransaction(txn).getTxnId();
+        if(tableWrites.isPublished(txnId))
+            return;
+        registry.publish(conglomerate,txnId);
+        tableWrites.published(txnId);
+    }
+
+    /**
+     * Forgets the writers of tables whose storage was removed.
+     *
+     * @param conglomerates the conglomerates which no longer exist
+     */
+    public void dropped(long[] conglomerates) throws IOException{
+        for(long conglomerate : conglomerates){
+            writes.remove(conglomerate);
+        }
+        registry.dropped(conglomerates);
+    }
+
+    @Override
+    public long getSnapshot(Activation activation) throws StandardException{
+        if(SpliceClient.isClient())
+            return -1l; // there are no regions in this JVM to see writes from
+        TransactionController tc = activation.getLanguageConnectionContext().getTransactionExecute();
+        TxnView txn = ((SpliceTransactionManager)tc).getActiveStateTxn();
+        if(txn==null || txn.getIsolationLevel()==Txn.IsolationLevel.READ_UNCOMMITTED)
+            return -1l;
+        for(TxnView t = txn;t!=null && t.getTxnId()>=0;t = t.getParentTxnView()){
+            // the transaction would not see its own writes in rows read by others
+            if(t.allowsWrites())
+                return -1l;
+        }
+        return txn.getEffectiveBeginTimestamp();
+    }
+
+    @Override
+    public long getWriteSequence(){
+        return writeSequence.get();
+    }
+
+    @Override
+    public boolean isUnchanged(long[] conglomerates,long sinceSequence){
+        for(long conglomerate : conglomerates){
+            Writes tableWrites = writes.get(conglomerate);
+            if(tableWrites!=null && tableWrites.lastWrite>sinceSequence)
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isStable(long[] conglomerates,long snapshot) throws StandardException{
+        try{
+            for(long conglomerate : conglomerates){
+                Writes tableWrites = writes.get(conglomerate);
+                if(tableWrites!=null && !tableWrites.isStable(snapshot))
+                    return false;
+            }
+            return true;
+        }catch(IOException e){
+            throw Exceptions.parseException(e);
+        }
+    }
+
+    @Override
+    public boolean isCurrent(long[] conglomerates,long snapshot) throws StandardException{
+        try{
+            for(long conglomerate : conglomerates){
+                if(registry.lastCommit(conglomerate)>=snapshot)
+                    return false;
+            }
+            return true;
+        }catch(IOException e){
+            throw Exceptions.parseException(e);
+        }
+    }
+
+    private Writes tableWrites(long conglomerate){
+        Writes tableWrites = writes.get(conglomerate);
+        if(tableWrites==null){
+            Writes newWrites = new Writes();
+            tableWrites = writes.putIfAbsent(conglomerate,newWrites);
+            if(tableWrites==null)
+                tableWrites = newWrites;
+        }
+        return tableWrites;
+    }
+
+    private static TxnView userTransaction(TxnView txn){
+        while(txn.getParentTxnId()>=0 && txn.getParentTxnView()!=null)
+            txn = txn.getParentTxnView();
+        return txn;
+    }
+
+    private final class Writes{
+        private volatile long lastWrite;
+        /* guarded by this: the writers not yet seen to finish, and the last commit of those which were */
+        private final LongHashSet unfinished = new LongHashSet();
+        /* guarded by this: the unfinished writers which were published to the registry */
+        private final LongHashSet published = new LongHashSet();
+        private long lastCommit = -1l;
+        private int resolveThreshold = MIN_RESOLVE_THRESHOLD;
+
+        /**
+         * @return true if enough writers have collected that finished ones should be looked up
+         */
+        synchronized boolean written(long txnId,long sequence){
+            unfinished.add(txnId);
+            lastWrite = sequence;
+            return unfinished.size()>resolveThreshold;
+        }
+
+        synchronized boolean isPublished(long txnId){
+            return published.contains(txnId);
+        }
+
+        synchronized void published(long txnId){
+            // the writer may have been seen to finish meanwhile, and then needs no more publishing
+            if(unfinished.contains(txnId))
+                published.add(txnId);
+        }
+
+        boolean isStable(long snapshot) throws IOException{
+            resolve();
+            synchronized(this){
+                return unfinished.isEmpty() && lastCommit<snapshot;
+            }
+        }
+
+        /**
+         * Drops the writers which have finished, remembering when the committed ones did.
+         */
+        void resolve() throws IOException{
+            long[] txnIds;
+            synchronized(this){
+                txnIds = unfinished.toArray();
+            }
+            for(long txnId : txnIds){
+                TxnView txn = txnSupplier.getTransaction(txnId);
+                switch(txn.getEffectiveState()){
+                    case COMMITTED:
+                        synchronized(this){
+                            lastCommit = Math.max(lastCommit,txn.getEffectiveCommitTimestamp());
+                            unfinished.remove(txnId);
+                            published.remove(txnId);
+                        }
+                        break;
+                    case ROLLEDBACK:
+                        synchronized(this){
+                            unfinished.remove(txnId);
+                            published.remove(txnId);
+                        }
+                        break;
+                    default:
+                        // still running
+                }
+            }
+            synchronized(this){
+                resolveThreshold = Math.max(MIN_RESOLVE_THRESHOLD,2*unfinished.size());
+            }
+        }
+    }
+}
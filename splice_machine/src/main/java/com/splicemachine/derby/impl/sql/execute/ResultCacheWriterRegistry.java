@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute;
+
+import com.carrotsearch.hppc.LongArrayList;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+import org.apache.log4j.Logger;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Records the user transactions which wrote to each table where every server can see them, so that the
+ * result cache of one server learns of the writes made through all the others.
+ *
+ * Each table has a record of the writers not yet seen to finish, and the latest commit timestamp of those
+ * which were. A writer is published by each server it writes through, and by bulk loads, before it can
+ * commit. Checking a table reads its record only; the writers seen to have finished are folded into the
+ * commit timestamp in the background.
+ */
+@ThreadSafe
+class ResultCacheWriterRegistry{
+    private static final Logger LOG = Logger.getLogger(ResultCacheWriterRegistry.class);
+
+    /**
+     * Where the records are kept.
+     */
+    interface Store{
+
+        void addWriter(long conglomerate,long txnId) throws IOException;
+
+        /**
+         * @return the record of the table, {@link TableWriters#NONE} if there is none
+         */
+        TableWriters read(long conglomerate) throws IOException;
+
+        /**
+         * Sets the commit timestamp of the table, if it is still {@code expected}.
+         *
+         * @param expected the commit timestamp last read, -1 if there was none
+         * @return false if the commit timestamp was changed concurrently
+         */
+        boolean raiseLastCommit(long conglomerate,long expected,long lastCommit) throws IOException;
+
+        void removeWriters(long conglomerate,long[] txnIds) throws IOException;
+
+        /**
+         * Drops the records of the tables entirely.
+         */
+        void removeTables(long[] conglomerates) throws IOException;
+    }
+
+    static final class TableWriters{
+        static final TableWriters NONE = new TableWriters(-1l,new long[0]);
+
+        final long lastCommit;
+        final long[] writers;
+
+        TableWriters(long lastCommit,long[] writers){
+            this.lastCommit = lastCommit;
+            this.writers = writers;
+        }
+    }
+
+    private final Store store;
+    private final TxnSupplier txnSupplier;
+    private final Executor foldExecutor;
+    /* the tables with a fold queued or running, so that lookups don't pile more on */
+    private final Set<Long> folding = Collections.newSetFromMap(new ConcurrentHashMap<Long,Boolean>());
+
+    ResultCacheWriterRegistry(Store store,TxnSupplier txnSupplier,Executor foldExecutor){
+        this.store = store;
+        this.txnSupplier = txnSupplier;
+        this.foldExecutor = foldExecutor;
+    }
+
+    /**
+     * Records a writer of the table. Publishing the same writer again is harmless.
+     *
+     * @param conglomerate the heap conglomerate of the table written to
+     * @param txnId the user transaction of the write
+     */
+    void publish(long conglomerate,long txnId) throws IOException{
+        store.addWriter(conglomerate,txnId);
+    }
+
+    /**
+     * Writers which have not finished are left out: no reader can see their writes until they commit, and
+     * then they will be counted.
+     *
+     * @param conglomerate the heap conglomerate of the table
+     * @return the latest commit timestamp of a transaction which wrote to the table, or -1 if none is known
+     */
+    long lastCommit(long conglomerate) throws IOException{
+        TableWriters record = store.read(conglomerate);
+        long committed = -1l;
+        boolean anyFinished = false;
+        for(long txnId : record.writers){
+            TxnView txn = txnSupplier.getTransaction(txnId);
+            switch(txn.getEffectiveState()){
+                case COMMITTED:
+                    committed = Math.max(committed,txn.getEffectiveCommitTimestamp());
+                    //fall through
+                case ROLLEDBACK:
+                    anyFinished = true;
+                    break;
+                default:
+                    // still running
+            }
+        }
+        if(anyFinished)
+            scheduleFold(conglomerate);
+        return Math.max(record.lastCommit,committed);
+    }
+
+    /**
+     * Drops the records of tables which no longer exist.
+     */
+    void dropped(long[] conglomerates) throws IOException{
+        store.removeTables(conglomerates);
+    }
+
+    private void scheduleFold(final long conglomerate){
+        if(!folding.add(conglomerate))
+            return;
+        try{
+            foldExecutor.execute(new Runnable(){
+                @Override
+                public void run(){
+                    try{
+                        fold(conglomerate);
+                    }catch(IOException e){
+                        LOG.warn("Unable to fold the finished writers of conglomerate "+conglomerate+", will retry on the next check",e);
+                    }finally{
+                        folding.remove(conglomerate);
+                    }
+                }
+            });
+        }catch(RuntimeException e){
+            folding.remove(conglomerate);
+            LOG.warn("Unable to fold the finished writers of conglomerate "+conglomerate+", will retry on the next check",e);
+        }
+    }
+
+    /**
+     * Raises the commit timestamp of the table to cover the finished writers, then drops them.
+     */
+    void fold(long conglomerate) throws IOException{
+        TableWriters record = store.read(conglomerate);
+        long committed = -1l;
+        LongArrayList finished = new LongArrayList();
+        for(long txnId : record.writers){
+            TxnView txn = txnSupplier.getTransaction(txnId);
+            switch(txn.getEffectiveState()){
+                case COMMITTED:
+                    committed = Math.max(committed,txn.getEffectiveCommitTimestamp());
+                    //fall through
+                case ROLLEDBACK:
+                    finished.add(txnId);
+                    break;
+                default:
+                    // still running
+            }
+        }
+        if(finished.isEmpty())
+            return;
+        long expected = record.lastCommit;
+        while(expected<committed){
+            if(store.raiseLastCommit(conglomerate,expected,committed))
+                break;
+            // raised concurrently, check whether it covers ours
+            expected = store.read(conglomerate).lastCommit;
+        }
+        store.removeWriters(conglomerate,finished.toArray());
+    }
+}
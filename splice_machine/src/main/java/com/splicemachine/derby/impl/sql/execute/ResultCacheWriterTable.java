@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute;
+
+import com.carrotsearch.hppc.LongArrayList;
+import com.splicemachine.access.api.PartitionAdmin;
+import com.splicemachine.access.api.PartitionFactory;
+import com.splicemachine.access.configuration.OperationConfiguration;
+import com.splicemachine.encoding.Encoding;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.data.OperationFactory;
+import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.storage.DataCell;
+import com.splicemachine.storage.DataDelete;
+import com.splicemachine.storage.DataGet;
+import com.splicemachine.storage.DataPut;
+import com.splicemachine.storage.DataResult;
+import com.splicemachine.storage.Partition;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the records of a {@link ResultCacheWriterRegistry} in their own non-transactional table, a row per
+ * heap conglomerate holding a cell per writer and one for the commit timestamp.
+ *
+ * Rows are prefixed with a bucket of the conglomerate and the table is split on the buckets, so that the
+ * publications of writers to different tables are spread over as many regions. The table is created the
+ * first time a record is written or read, since only clusters which use the result cache need it.
+ */
+@ThreadSafe
+class ResultCacheWriterTable implements ResultCacheWriterRegistry.Store{
+    private static final int BUCKET_BITS = 4;
+    private static final String TABLE_NAME = OperationConfiguration.RESULT_CACHE_WRITERS_TABLE_NAME;
+    private static final byte[] FAMILY = SIConstants.DEFAULT_FAMILY_BYTES;
+    /* transaction ids are positive, so no writer cell has this qualifier */
+    private static final byte[] LAST_COMMIT = Encoding.encode(-1l);
+
+    private final PartitionFactory partitionFactory;
+    private final OperationFactory opFactory;
+    private volatile boolean created;
+
+    ResultCacheWriterTable(PartitionFactory partitionFactory,OperationFactory opFactory){
+        this.partitionFactory = partitionFactory;
+        this.opFactory = opFactory;
+    }
+
+    @Override
+    public void addWriter(long conglomerate,long txnId) throws IOException{
+        try(Partition table = table()){
+            DataPut put = opFactory.newPut(rowKey(conglomerate));
+            // versioned by the transaction, so that dropping the cell drops every publication of it
+            put.addCell(FAMILY,Encoding.encode(txnId),txnId,SIConstants.EMPTY_BYTE_ARRAY);
+            table.put(put);
+        }
+    }
+
+    @Override
+    public ResultCacheWriterRegistry.TableWriters read(long conglomerate) throws IOException{
+        try(Partition table = table()){
+            DataGet get = opFactory.newGet(rowKey(conglomerate),null);
+            get.returnLatestVersion();
+            get.setTimeRange(0l,Long.MAX_VALUE);
+            DataResult result = table.get(get,null);
+            if(result==null || result.size()<=0)
+                return ResultCacheWriterRegistry.TableWriters.NONE;
+
+            long lastCommit = -1l;
+            LongArrayList writers = new LongArrayList(result.size());
+            for(DataCell cell : result){
+                byte[] qualifier = cell.qualifier();
+                if(Arrays.equals(qualifier,LAST_COMMIT))
+                    lastCommit = Encoding.decodeLong(cell.value());
+                else
+                    writers.add(Encoding.decodeLong(qualifier));
+            }
+            return new ResultCacheWriterRegistry.TableWriters(lastCommit,writers.toArray());
+        }
+    }
+
+    @Override
+    public boolean raiseLastCommit(long conglomerate,long expected,long lastCommit) throws IOException{
+        byte[] row = rowKey(conglomerate);
+        try(Partition table = table()){
+            DataPut put = opFactory.newPut(row);
+            put.addCell(FAMILY,LAST_COMMIT,Encoding.encode(lastCommit));
+            return table.checkAndPut(row,FAMILY,LAST_COMMIT,expected<0 ? null : Encoding.encode(expected),put);
+        }
+    }
+
+    @Override
+    public void removeWriters(long conglomerate,long[] txnIds) throws IOException{
+        try(Partition table = table()){
+            DataDelete delete = opFactory.newDelete(rowKey(conglomerate));
+            for(long txnId : txnIds){
+                delete.deleteColumn(FAMILY,Encoding.encode(txnId),txnId);
+            }
+            table.delete(delete);
+        }
+    }
+
+    @Override
+    public void removeTables(long[] conglomerates) throws IOException{
+        if(conglomerates.length==0 || !exists())
+            return;
+        List<DataDelete> deletes = new ArrayList<>(conglomerates.length);
+        for(long conglomerate : conglomerates){
+            deletes.add(opFactory.newDelete(rowKey(conglomerate)));
+        }
+        try(Partition table = partitionFactory.getTable(TABLE_NAME)){
+            table.delete(deletes);
+        }
+    }
+
+    private Partition table() throws IOException{
+        if(!created){
+            synchronized(this){
+                if(!created){
+                    create();
+                    created = true;
+                }
+            }
+        }
+        return partitionFactory.getTable(TABLE_NAME);
+    }
+
+    private boolean exists() throws IOException{
+        if(created)
+            return true;
+        try(PartitionAdmin admin = partitionFactory.getAdmin()){
+            return admin.tableExists(TABLE_NAME);
+        }
+    }
+
+    private void create() throws IOException{
+        try(PartitionAdmin admin = partitionFactory.getAdmin()){
+            if(admin.tableExists(TABLE_NAME))
+                return;
+            byte[][] splitKeys = new byte[(1<<BUCKET_BITS)-1][];
+            for(int i = 0;i<splitKeys.length;i++){
+                splitKeys[i] = new byte[]{(byte)(i+1)};
+            }
+            try{
+                admin.newPartition().withName(TABLE_NAME).withSplitKeys(splitKeys).create().close();
+            }catch(IOException e){
+                // another server may have created it first
+                if(!admin.tableExists(TABLE_NAME))
+                    throw e;
+            }
+        }
+    }
+
+    private static byte[] rowKey(long conglomerate){
+        // conglomerate numbers step by 16, so take the bucket from the high bits of a multiplicative hash
+        byte bucket = (byte)((conglomerate*0x9E3779B97F4A7C15L)>>>(64-BUCKET_BITS));
+        return Bytes.concat(Arrays.asList(new byte[]{bucket},Bytes.toBytes(conglomerate)));
+    }
+}
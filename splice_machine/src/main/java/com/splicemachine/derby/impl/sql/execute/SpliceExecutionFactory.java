@@ -14,6 +14,7 @@
 
 package com.splicemachine.derby.impl.sql.execute;
 
+import com.splicemachine.db.iapi.sql.execute.ResultCacheValidator;
 import com.splicemachine.db.iapi.sql.execute.ResultSetFactory;
 import com.splicemachine.db.impl.sql.execute.GenericConstantActionFactory;
 import com.splicemachine.db.impl.sql.execute.GenericExecutionFactory;
@@ -40,6 +41,11 @@ public abstract class SpliceExecutionFactory extends GenericExecutionFactory {
         return resultSetFactory;
     }
 
+    @Override
+    public ResultCacheValidator getResultCacheValidator() {
+        return ResultCacheWriteTracker.instance();
+    }
+
     @Override
     public GenericConstantActionFactory getConstantActionFactory() {
         if (genericConstantActionFactory == null) {
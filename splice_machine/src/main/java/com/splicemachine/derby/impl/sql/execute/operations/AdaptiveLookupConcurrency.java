@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+/**
+ * Limits the number of base row lookup blocks an {@link IndexRowReader} keeps in flight, adapting
+ * the limit to the observed lookup latency.
+ *
+ * The limit starts at the configured maximum. When a block takes much longer per row than the best
+ * latency observed, the region servers (or the local lookup pool) are taken to be saturated and the
+ * limit is halved; while latency stays close to the best, the limit grows back by one block at a time.
+ * The best latency slowly decays towards recent observations, so that a single fast block early on
+ * doesn't throttle the reader for good.
+ *
+ * Not thread safe: only the thread consuming the reader records latencies.
+ */
+class AdaptiveLookupConcurrency{
+    static final double BACKOFF_RATIO=2.0d;
+    static final double GROWTH_RATIO=1.25d;
+    private static final double DECAY=0.05d;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private int limit;
+    private double bestNanosPerRow=-1d;
+
+    AdaptiveLookupConcurrency(int minLimit,int maxLimit){
+        this.minLimit=Math.min(minLimit,maxLimit);
+        this.maxLimit=maxLimit;
+        this.limit=maxLimit;
+    }
+
+    int limit(){
+        return limit;
+    }
+
+    /**
+     * @param latencyNanos the time between submitting a block and its last lookup finishing
+     * @param rows the number of rows looked up in the block
+     */
+    void record(long latencyNanos,int rows){
+        if(rows<=0) return;
+        double nanosPerRow=(double)latencyNanos/rows;
+        if(bestNanosPerRow<0 || nanosPerRow<bestNanosPerRow){
+            bestNanosPerRow=nanosPerRow;
+            limit=Math.min(maxLimit,limit+1);
+            return;
+        }
+        if(nanosPerRow>bestNanosPerRow*BACKOFF_RATIO)
+            limit=Math.max(minLimit,limit/2);
+        else if(nanosPerRow<bestNanosPerRow*GROWTH_RATIO)
+            limit=Math.min(maxLimit,limit+1);
+        bestNanosPerRow+=(nanosPerRow-bestNanosPerRow)*DECAY;
+    }
+}
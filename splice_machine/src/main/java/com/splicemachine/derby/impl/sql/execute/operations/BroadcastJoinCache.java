@@ -14,9 +14,14 @@
 
 package com.splicemachine.derby.impl.sql.execute.operations;
 
+import com.splicemachine.access.configuration.SQLConfiguration;
 import com.splicemachine.db.iapi.sql.conn.ResubmitDistributedException;
+import com.splicemachine.si.impl.driver.SIDriver;
 import org.spark_project.guava.cache.Cache;
 import org.spark_project.guava.cache.CacheBuilder;
+import org.spark_project.guava.cache.RemovalListener;
+import org.spark_project.guava.cache.RemovalNotification;
+import org.spark_project.guava.cache.Weigher;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.derby.impl.sql.JoinTable;
@@ -27,11 +32,14 @@ import java.io.IOException;
 import java.util.Iterator;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Represents a Cache of records for use in a Broadcast Join.
  *
+ * The cache is bounded by the (estimated) size of the tables it holds, rather than by their number, so that a
+ * handful of large inner tables can't exhaust the server's memory. Tables are released (freeing any off-heap
+ * memory) once they have been removed from the cache and the last join using them has closed.
+ *
  * @author Scott Fines
  *         Date: 10/27/15
  */
@@ -47,18 +55,48 @@ public class BroadcastJoinCache{
     }
 
     public BroadcastJoinCache(){
-       this(ValueRowMapTableLoader.INSTANCE);
+       this(OffHeapJoinTableLoader.INSTANCE);
     }
 
     public BroadcastJoinCache(JoinTableLoader tableLoader){
+        this(tableLoader,defaultCacheSize());
+    }
+
+    public BroadcastJoinCache(JoinTableLoader tableLoader,long maxSizeInBytes){
         this.tableLoader = tableLoader;
+        // weights are in KB so that large tables don't overflow the int weight
         this.cache =CacheBuilder.newBuilder()
-                .maximumSize(1000)
+                .maximumWeight(Math.max(1L,maxSizeInBytes>>>10))
+                .weigher(new Weigher<Long, ReferenceCountingFactory>(){
+                    @Override
+                    public int weigh(Long key,ReferenceCountingFactory value){
+                        return (int)Math.min(Integer.MAX_VALUE,Math.max(1L,value.getSizeInBytes()>>>10));
+                    }
+                })
                 .expireAfterAccess(2,TimeUnit.SECONDS)
-                .softValues()
+                .removalListener(new RemovalListener<Long, ReferenceCountingFactory>(){
+                    @Override
+                    public void onRemoval(RemovalNotification<Long, ReferenceCountingFactory> notification){
+                        ReferenceCountingFactory factory = notification.getValue();
+                        if(factory!=null)
+                            factory.markEvicted();
+                    }
+                })
                 .build();
     }
 
+    private static long defaultCacheSize(){
+        SIDriver driver = SIDriver.driver();
+        if(driver==null)
+            return SQLConfiguration.DEFAULT_BROADCAST_JOIN_CACHE_SIZE;
+        return driver.getConfiguration().getBroadcastJoinCacheSize();
+    }
+
+    /**
+     * @return a factory for the shared table of {@code operationId}, loading it if needed. The table is released
+     * by the cache once the table created from the factory has been closed, so the factory's
+     * {@link JoinTable.Factory#release()} does nothing.
+     */
     public JoinTable.Factory get(Long operationId,
                          Callable<Stream<ExecRow>> loader,
                          int[] rightHashKeys,
@@ -66,9 +104,14 @@ public class BroadcastJoinCache{
                          ExecRow leftTemplateRow) throws IOException, StandardException{
         try{
             Loader callable=new Loader(operationId,tableLoader,rightHashKeys,leftHashKeys,leftTemplateRow,loader);
-            ReferenceCountingFactory joinTable=cache.get(operationId,callable);
-            joinTable.refCount.incrementAndGet();
-            return joinTable;
+            while(true){
+                ReferenceCountingFactory joinTable=cache.get(operationId,callable);
+                // a table we loaded ourselves is already retained, even if it was evicted straight away
+                if(joinTable==callable.loaded || joinTable.retain())
+                    return joinTable;
+                // evicted and released between the lookup and now, load it again
+                cache.asMap().remove(operationId,joinTable);
+            }
         }catch(Exception e){
             Throwable c = e.getCause();
             if(c instanceof StandardException)
@@ -89,6 +132,7 @@ public class BroadcastJoinCache{
         private final Callable<Stream<ExecRow>> streamLoader;
 
         private final Long operationId;
+        private ReferenceCountingFactory loaded;
 
         public Loader(Long operationId,
                       JoinTableLoader loader,
@@ -107,7 +151,9 @@ public class BroadcastJoinCache{
         @Override
         public ReferenceCountingFactory call() throws Exception {
             JoinTable.Factory load=loader.load(streamLoader,innerHashKeys,outerHashKeys,outerTemplateRow);
-            return new ReferenceCountingFactory(load,operationId);
+            loaded=new ReferenceCountingFactory(load,operationId);
+            loaded.retain();
+            return loaded;
         }
     }
 
@@ -140,7 +186,9 @@ public class BroadcastJoinCache{
     private class ReferenceCountingFactory implements JoinTable.Factory{
         private final JoinTable.Factory delegate;
         private final Long id;
-        private AtomicInteger refCount = new AtomicInteger(0);
+        private int refCount;
+        private boolean evicted;
+        private boolean released;
 
         public ReferenceCountingFactory(JoinTable.Factory delegate,Long id){
             this.delegate=delegate;
@@ -152,10 +200,47 @@ public class BroadcastJoinCache{
             return new ReferenceCountedJoinTable(delegate.newTable(),this);
         }
 
+        @Override
+        public long getSizeInBytes(){
+            return delegate.getSizeInBytes();
+        }
+
+        // the shared table belongs to the cache, and is released through markEvicted/markClosed once the
+        // last join using it has closed; a caller releasing its factory has nothing of its own to free
+        @Override
+        public void release(){
+        }
+
+        synchronized boolean retain(){
+            if(released)
+                return false;
+            refCount++;
+            return true;
+        }
+
+        void markEvicted(){
+            synchronized(this){
+                evicted=true;
+                if(refCount>0 || released)
+                    return;
+                released=true;
+            }
+            delegate.release();
+        }
+
         public void markClosed(){
-            int refC=refCount.decrementAndGet();
-            if(refC<=0)
-                cache.invalidate(id);
+            boolean release;
+            synchronized(this){
+                if(--refCount>0)
+                    return;
+                release=evicted && !released;
+                if(release)
+                    released=true;
+            }
+            if(release)
+                delegate.release();
+            else
+                cache.asMap().remove(id,this); // released by the removal listener
         }
     }
 }
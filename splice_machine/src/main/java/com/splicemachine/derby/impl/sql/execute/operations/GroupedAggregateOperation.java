@@ -27,6 +27,9 @@ import com.splicemachine.derby.stream.iapi.DataSet;
 import com.splicemachine.derby.stream.iapi.DataSetProcessor;
 import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.derby.stream.iapi.PairDataSet;
+import com.splicemachine.derby.stream.vector.BatchAggregation;
+import com.splicemachine.derby.stream.vector.BatchOperation;
+import com.splicemachine.derby.stream.vector.ColumnBatch;
 import com.splicemachine.utils.SpliceLogUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.log4j.Logger;
@@ -34,6 +37,7 @@ import org.apache.log4j.Logger;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.Iterator;
 
 /**
  *
@@ -159,6 +163,17 @@ public class GroupedAggregateOperation extends GenericAggregateOperation {
             throw new IllegalStateException("Operation is not open");
 
         OperationContext<GroupedAggregateOperation> operationContext = dsp.createOperationContext(this);
+        if (supportsBatches(dsp)) {
+            int[] groupingKeys = groupedAggregateContext.getGroupingKeys();
+            BatchAggregation aggregation = new BatchAggregation(aggregates, groupingKeys, getSourceExecIndexRow());
+            Iterator<ColumnBatch> batches = ((BatchOperation) source).getBatches(dsp, BatchAggregation.getInputColumns(aggregates, groupingKeys));
+            DataSet<ExecRow> groups = dsp.createDataSet(aggregation.aggregate(batches, operationContext));
+
+            operationContext.pushScopeForOp(OperationContext.Scope.FINALIZE);
+            DataSet set5 = groups.map(new AggregateFinisherFunction(operationContext), true);
+            operationContext.popScope();
+            return set5;
+        }
         DataSet set = source.getDataSet(dsp);
 
         operationContext.pushScope();
@@ -286,4 +301,17 @@ public class GroupedAggregateOperation extends GenericAggregateOperation {
         return set5;
     }
 
+    /**
+     * Grouping sets and distinct aggregates need the row mode pipeline; plain aggregates over a source which
+     * produces batches are computed directly over the batches.
+     */
+    private boolean supportsBatches(DataSetProcessor dsp) throws StandardException {
+        if (isRollup || !(source instanceof BatchOperation) || !BatchAggregation.isSupported(aggregates))
+            return false;
+        int[] nonGroupedUniqueColumns = groupedAggregateContext.getNonGroupedUniqueColumns();
+        if (nonGroupedUniqueColumns != null && nonGroupedUniqueColumns.length > 0)
+            return false;
+        int[] groupingKeys = groupedAggregateContext.getGroupingKeys();
+        return ((BatchOperation) source).supportsBatches(dsp, BatchAggregation.getInputColumns(aggregates, groupingKeys));
+    }
 }
@@ -15,6 +15,8 @@
 package com.splicemachine.derby.impl.sql.execute.operations;
 
 import com.splicemachine.EngineDriver;
+import com.splicemachine.concurrent.WorkloadClass;
+import com.splicemachine.derby.utils.WorkloadClasses;
 import com.splicemachine.derby.stream.function.IteratorUtils;
 import com.splicemachine.si.impl.driver.SIDriver;
 import org.apache.spark.InterruptibleIterator;
@@ -27,6 +29,7 @@ import com.splicemachine.db.iapi.types.HBaseRowLocation;
 import com.splicemachine.derby.utils.marshall.KeyDecoder;
 import com.splicemachine.derby.utils.marshall.KeyHashDecoder;
 import com.splicemachine.pipeline.Exceptions;
+import com.splicemachine.primitives.Bytes;
 import com.splicemachine.si.api.data.TxnOperationFactory;
 import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.si.constants.SIConstants;
@@ -39,6 +42,8 @@ import scala.collection.JavaConverters;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.Callable;
@@ -49,11 +54,22 @@ import java.util.concurrent.Future;
  * Utility for executing "look-ahead" index lookups, where the index lookup is backgrounded,
  * while other processes occur on the caller thread.
  *
+ * Index rows are read in blocks of {@code lookupBatchSize}. The base row keys of a block are sorted
+ * and split by region, and each region's keys are fetched with a separate multi-get, in parallel.
+ * Rows are returned in index order regardless. The number of blocks in flight is capped by
+ * {@code numConcurrentLookups}, and lowered while lookups are slow (see {@link AdaptiveLookupConcurrency}).
+ * Lookups are scheduled with the workload class of the statement (see {@link WorkloadClasses}).
+ *
  * @author Scott Fines
  *         Created on: 9/4/13
  */
 public class IndexRowReader implements Iterator<ExecRow>, Iterable<ExecRow>{
     protected static Logger LOG=Logger.getLogger(IndexRowReader.class);
+    /*
+     * Regions with fewer keys than this in a block share a lookup with the next region, so that
+     * sparse blocks don't turn into many tiny multi-gets
+     */
+    static final int MIN_KEYS_PER_LOOKUP=64;
     private final int batchSize;
     private final int numBlocks;
     private final ExecRow outputTemplate;
@@ -66,8 +82,13 @@ public class IndexRowReader implements Iterator<ExecRow>, Iterable<ExecRow>{
     private final TxnOperationFactory operationFactory;
     private final PartitionFactory tableFactory;
 
-    private List<Pair<ExecRow, DataResult>> currentResults;
-    private List<Future<List<Pair<ExecRow, DataResult>>>> resultFutures;
+    private final AdaptiveLookupConcurrency concurrency;
+    private final WorkloadClass workloadClass;
+
+    private Pair<ExecRow, DataResult>[] currentResults;
+    private int currentPosition;
+    private List<Block> resultFutures;
+    private byte[][] regionStartKeys;
     private boolean populated=false;
     private EntryDecoder entryDecoder;
     protected Iterator<ExecRow> sourceIterator;
@@ -100,10 +121,13 @@ public class IndexRowReader implements Iterator<ExecRow>, Iterable<ExecRow>{
         this.indexCols=indexCols;
         this.resultFutures=Lists.newArrayListWithCapacity(this.numBlocks);
         this.operationFactory = operationFactory;
+        this.concurrency=new AdaptiveLookupConcurrency(2,this.numBlocks);
+        this.workloadClass=WorkloadClasses.current();
     }
 
-    // Return the maximum number of threads that could be simultaneously
-    // doing base conglomerate row lookups.
+    // Return the maximum number of blocks whose base conglomerate row lookups
+    // can be in flight at once. Each block issues one multi-get per region it
+    // spans, so more threads than this may be doing lookups at the same time.
     public int getMaxConcurrency() {return this.numBlocks;}
 
     public void close() throws IOException{
@@ -130,14 +154,15 @@ public class IndexRowReader implements Iterator<ExecRow>, Iterable<ExecRow>{
     @Override
     public boolean hasNext(){
         try{
-            if(currentResults==null || currentResults.size()<=0)
+            if(currentResults==null || currentPosition>=currentResults.length)
                 getMoreData();
 
-            if(currentResults==null || currentResults.size()<=0){
+            if(currentResults==null || currentPosition>=currentResults.length){
                 return false; // No More Data
             }
 
-            Pair<ExecRow, DataResult> next=currentResults.remove(0);
+            Pair<ExecRow, DataResult> next=currentResults[currentPosition];
+            currentResults[currentPosition++]=null;
             //merge the results
             ExecRow nextScannedRow=next.getFirst();
             DataResult nextFetchedData=next.getSecond();
@@ -177,24 +202,117 @@ public class IndexRowReader implements Iterator<ExecRow>, Iterable<ExecRow>{
             sourceRows.add(new Pair(rl.getBytes(), outputTemplate.getClone()));
         }
         if(!sourceRows.isEmpty()){
-            //submit to the background thread
-            Lookup task=new Lookup(sourceRows);
-            resultFutures.add(SIDriver.driver().getExecutorService().submit(task));
+            //submit to the background threads
+            resultFutures.add(submitBlock(sourceRows));
         }
 
         //if there is only one submitted future, call this again to set off an additional background process
-        if(resultFutures.size()<numBlocks && sourceRows.size()==batchSize)
+        if(resultFutures.size()<concurrency.limit() && sourceRows.size()==batchSize)
             getMoreData();
         else if(!resultFutures.isEmpty()){
             waitForBlockCompletion();
         }
     }
 
+    private Block submitBlock(List<Pair<byte[],ExecRow>> sourceRows) throws IOException{
+        Integer[] order=new Integer[sourceRows.size()];
+        byte[][] keys=new byte[order.length][];
+        for(int i=0;i<order.length;i++){
+            order[i]=i;
+            keys[i]=sourceRows.get(i).getFirst();
+        }
+        final byte[][] sortKeys=keys;
+        Arrays.sort(order,new Comparator<Integer>(){
+            @Override
+            public int compare(Integer o1,Integer o2){
+                return Bytes.BASE_COMPARATOR.compare(sortKeys[o1],sortKeys[o2]);
+            }
+        });
+        int[] sortedPositions=new int[order.length];
+        byte[][] sortedKeys=new byte[order.length][];
+        for(int i=0;i<order.length;i++){
+            sortedPositions[i]=order[i];
+            sortedKeys[i]=keys[order[i]];
+        }
+
+        Block block=new Block(sourceRows.size());
+        int[] bounds=groupByRegion(sortedKeys,getRegionStartKeys(),MIN_KEYS_PER_LOOKUP);
+        int start=0;
+        for(int end : bounds){
+            Lookup task=new Lookup(sourceRows,Arrays.copyOfRange(sortedPositions,start,end));
+            block.lookups.add(task);
+            block.futures.add(SIDriver.driver().getWorkloadScheduler().submit(workloadClass,task));
+            start=end;
+        }
+        return block;
+    }
+
+    /**
+     * Splits sorted row keys into runs falling into the same region. A run shorter than
+     * {@code minKeys} is merged with the run after it.
+     *
+     * @param sortedKeys the row keys, in ascending order
+     * @param regionStartKeys the start keys of the table's regions, in ascending order; may be empty
+     * @param minKeys the smallest number of keys worth a lookup of their own
+     * @return the (exclusive) end position of each run in {@code sortedKeys}
+     */
+    static int[] groupByRegion(byte[][] sortedKeys,byte[][] regionStartKeys,int minKeys){
+        int[] bounds=new int[Math.max(1,Math.min(sortedKeys.length,regionStartKeys.length))];
+        int numBounds=0;
+        int region=0;
+        int runStart=0;
+        for(int i=0;i<sortedKeys.length;i++){
+            boolean newRegion=false;
+            while(region+1<regionStartKeys.length
+                    && Bytes.BASE_COMPARATOR.compare(sortedKeys[i],regionStartKeys[region+1])>=0){
+                region++;
+                newRegion=true;
+            }
+            if(newRegion && i-runStart>=minKeys){
+                bounds[numBounds++]=i;
+                runStart=i;
+            }
+        }
+        if(numBounds>0 && sortedKeys.length-runStart<minKeys)
+            numBounds--; // fold a short tail into the previous run
+        bounds[numBounds++]=sortedKeys.length;
+        return Arrays.copyOf(bounds,numBounds);
+    }
+
+    private byte[][] getRegionStartKeys() throws IOException{
+        if(regionStartKeys==null){
+            // region boundaries only steer the grouping, lookups stay correct if regions split later
+            try(Partition table=tableFactory.getTable(Long.toString(mainTableConglomId))){
+                List<Partition> regions=table.subPartitions();
+                byte[][] starts=new byte[regions.size()][];
+                for(int i=0;i<starts.length;i++){
+                    starts[i]=regions.get(i).getStartKey();
+                }
+                Arrays.sort(starts,Bytes.BASE_COMPARATOR);
+                regionStartKeys=starts;
+            }
+        }
+        return regionStartKeys;
+    }
+
+    @SuppressWarnings("unchecked")
     private void waitForBlockCompletion() throws StandardException, IOException{
-        //wait for the first future to return correctly or error-out
+        //wait for the first block to return correctly or error-out
         try{
-            Future<List<Pair<ExecRow, DataResult>>> future=resultFutures.remove(0);
-            currentResults=future.get();
+            Block block=resultFutures.remove(0);
+            Pair<ExecRow, DataResult>[] results=new Pair[block.size];
+            long finishNanos=block.submitNanos;
+            for(int i=0;i<block.futures.size();i++){
+                List<Pair<ExecRow, DataResult>> lookedUp=block.futures.get(i).get();
+                Lookup lookup=block.lookups.get(i);
+                for(int j=0;j<lookup.positions.length;j++){
+                    results[lookup.positions[j]]=lookedUp.get(j);
+                }
+                finishNanos=Math.max(finishNanos,lookup.finishNanos);
+            }
+            concurrency.record(finishNanos-block.submitNanos,block.size);
+            currentResults=results;
+            currentPosition=0;
         }catch(InterruptedException e){
             throw new InterruptedIOException(e.getMessage());
         }catch(ExecutionException e){
@@ -204,18 +322,39 @@ public class IndexRowReader implements Iterator<ExecRow>, Iterable<ExecRow>{
         }
     }
 
+    private static class Block{
+        private final int size;
+        private final long submitNanos=System.nanoTime();
+        private final List<Lookup> lookups=new ArrayList<>();
+        private final List<Future<List<Pair<ExecRow, DataResult>>>> futures=new ArrayList<>();
+
+        Block(int size){
+            this.size=size;
+        }
+    }
+
+    /**
+     * Fetches the base rows of part of a block, in the order of their row keys.
+     */
     public class Lookup implements Callable<List<Pair<ExecRow, DataResult>>>{
         private final List<Pair<byte[],ExecRow>> sourceRows;
+        private final int[] positions;
+        private volatile long finishNanos;
 
-        public Lookup(List<Pair<byte[],ExecRow>> sourceRows){
+        /**
+         * @param sourceRows the rows of the block
+         * @param positions the positions in {@code sourceRows} of the rows to fetch, sorted by row key
+         */
+        public Lookup(List<Pair<byte[],ExecRow>> sourceRows,int[] positions){
             this.sourceRows=sourceRows;
+            this.positions=positions;
         }
 
         @Override
         public List<Pair<ExecRow, DataResult>> call() throws Exception{
-            List<byte[]> rowKeys = new ArrayList<>(sourceRows.size());
-            for(Pair<byte[],ExecRow> sourceRow : sourceRows){
-                rowKeys.add(sourceRow.getFirst());
+            List<byte[]> rowKeys = new ArrayList<>(positions.length);
+            for(int position : positions){
+                rowKeys.add(sourceRows.get(position).getFirst());
             }
             Attributable attributable = new MapAttributes();
             attributable.addAttribute(SIConstants.ENTRY_PREDICATE_LABEL,predicateFilterBytes);
@@ -223,12 +362,13 @@ public class IndexRowReader implements Iterator<ExecRow>, Iterable<ExecRow>{
 
             try(Partition table = tableFactory.getTable(Long.toString(mainTableConglomId))){
                 Iterator<DataResult> results=table.batchGet(attributable,rowKeys);
-                List<Pair<ExecRow, DataResult>> locations=Lists.newArrayListWithCapacity(sourceRows.size());
-                for(Pair<byte[],ExecRow> sourceRow : sourceRows){
+                List<Pair<ExecRow, DataResult>> locations=Lists.newArrayListWithCapacity(positions.length);
+                for(int position : positions){
                     if(!results.hasNext())
                         throw new IllegalStateException("Programmer error: incompatible iterator sizes!");
-                    locations.add(Pair.newPair(sourceRow.getSecond(),results.next().getClone()));
+                    locations.add(Pair.newPair(sourceRows.get(position).getSecond(),results.next().getClone()));
                 }
+                finishNanos=System.nanoTime();
                 return locations;
             }
         }
@@ -212,6 +212,14 @@ public class MultiProbeTableScanOperation extends TableScanOperation  {
         return "MultiProbe"+super.toString();
     }
 
+    /**
+     * The probe scans are unioned as DataSets, so they are always read a row at a time.
+     */
+    @Override
+    public boolean supportsBatches(DataSetProcessor dsp, int[] columns) throws StandardException {
+        return false;
+    }
+
     @Override
     public DataSet<ExecRow> getDataSet(DataSetProcessor dsp) throws StandardException {
         if (!isOpen)
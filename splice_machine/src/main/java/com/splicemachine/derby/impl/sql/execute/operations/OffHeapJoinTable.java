@@ -0,0 +1,376 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLSmallint;
+import com.splicemachine.db.iapi.types.SQLTinyint;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.derby.utils.marshall.EntryDataDecoder;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.utils.DirectBuffers;
+import com.splicemachine.utils.IntArrays;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A broadcast join table which keeps the inner rows in their encoded (EntryEncoder) form in off-heap
+ * memory, instead of as {@link ExecRow}s on the heap.
+ *
+ * Rows are appended to an arena of direct buffers, and indexed by an open-addressing table of 64-bit
+ * keys. Rows sharing a key are chained through the arena. For a single integral join column (SMALLINT,
+ * INT, BIGINT...) on both sides the key is the column value itself, so probes need neither a hash nor a
+ * key check; otherwise the key is a 64-bit hash of the join columns and candidate rows are checked against
+ * the outer row after decoding.
+ *
+ * Probing doesn't allocate a key object; only the matching inner rows are materialized.
+ *
+ * Chunks start small and double up to {@link #CHUNK_SIZE}, and the last chunk is trimmed to its contents when
+ * the table is built, so small tables only hold about as much direct memory as their rows need. That memory is
+ * freed by {@link Factory#release()} rather than by the garbage collector.
+ */
+class OffHeapJoinTable implements JoinTable{
+    private static final int MIN_CHUNK_SIZE = 1 << 12;
+    private static final int CHUNK_SIZE = 1 << 20;
+    private static final int RECORD_HEADER = 12; // next record address + length
+    private static final long NO_RECORD = -1L;
+
+    private final Factory table;
+    private final ByteBuffer[] chunks;
+    private final EntryDataDecoder decoder;
+    private byte[] scratch = new byte[256];
+
+    private OffHeapJoinTable(Factory table){
+        this.table = table;
+        this.chunks = new ByteBuffer[table.chunks.length];
+        for (int i = 0; i < chunks.length; i++) {
+            // each table reads through its own view, so tables can be probed concurrently
+            chunks[i] = table.chunks[i].duplicate();
+        }
+        this.decoder = table.numRows==0 ? null
+                : new EntryDataDecoder(IntArrays.count(table.innerTemplate.nColumns()),null,table.serializers);
+    }
+
+    @Override
+    public Iterator<ExecRow> fetchInner(ExecRow outer) throws IOException, StandardException{
+        if(table.numRows==0)
+            return Collections.emptyIterator();
+        int[] outerHashKeys = table.outerHashKeys;
+        long key;
+        DataValueDescriptor[] outerKeys = null;
+        if(table.integralKey){
+            DataValueDescriptor dvd = outer.getColumn(outerHashKeys[0]+1);
+            if(dvd==null || dvd.isNull())
+                return Collections.emptyIterator();
+            key = dvd.getLong();
+        }else{
+            outerKeys = new DataValueDescriptor[outerHashKeys.length];
+            for (int i = 0; i < outerHashKeys.length; i++) {
+                DataValueDescriptor dvd = outer.getColumn(outerHashKeys[i]+1);
+                if(dvd==null || dvd.isNull())
+                    return Collections.emptyIterator();
+                outerKeys[i] = dvd;
+            }
+            key = hash(outerKeys);
+        }
+        long address = table.find(key);
+        if(address==NO_RECORD)
+            return Collections.emptyIterator();
+        return new MatchIterator(address,outerKeys);
+    }
+
+    //nothing to close, the arena belongs to the (cached) factory, which frees it when released
+    @Override public void close(){}
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    static boolean isIntegral(DataValueDescriptor dvd){
+        return dvd instanceof SQLInteger
+                || dvd instanceof SQLLongint
+                || dvd instanceof SQLSmallint
+                || dvd instanceof SQLTinyint;
+    }
+
+    static long hash(DataValueDescriptor[] keys){
+        long h = 1L;
+        for(DataValueDescriptor dvd:keys){
+            h = 31*h + dvd.hashCode();
+        }
+        return h;
+    }
+
+    private static int slot(long key,int mask){
+        // murmur3 fmix64
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int)key & mask;
+    }
+
+    private long readRecord(long address,ExecRow destination) throws StandardException{
+        ByteBuffer chunk = chunks[(int)(address >>> 32)];
+        int offset = (int)address;
+        long next = chunk.getLong(offset);
+        int length = chunk.getInt(offset+8);
+        if(scratch.length<length)
+            scratch = new byte[Math.max(length,2*scratch.length)];
+        chunk.position(offset+RECORD_HEADER);
+        chunk.get(scratch,0,length);
+        decoder.set(scratch,0,length);
+        decoder.decode(destination);
+        return next;
+    }
+
+    private class MatchIterator implements Iterator<ExecRow>{
+        private final DataValueDescriptor[] outerKeys;
+        private long address;
+        private ExecRow next;
+
+        MatchIterator(long address,DataValueDescriptor[] outerKeys){
+            this.address = address;
+            this.outerKeys = outerKeys;
+        }
+
+        @Override
+        public boolean hasNext(){
+            try{
+                while(next==null && address!=NO_RECORD){
+                    ExecRow row = table.innerTemplate.getNewNullRow();
+                    address = readRecord(address,row);
+                    if(matches(row))
+                        next = row;
+                }
+            }catch(StandardException se){
+                throw new RuntimeException(se);
+            }
+            return next!=null;
+        }
+
+        @Override
+        public ExecRow next(){
+            if(!hasNext())
+                throw new NoSuchElementException();
+            ExecRow n = next;
+            next = null;
+            return n;
+        }
+
+        @Override
+        public void remove(){
+            throw new UnsupportedOperationException();
+        }
+
+        private boolean matches(ExecRow inner) throws StandardException{
+            if(outerKeys==null)
+                return true; // the key is the column value, there are no collisions
+            int[] innerHashKeys = table.innerHashKeys;
+            for(int i=0;i<innerHashKeys.length;i++){
+                if(!inner.getColumn(innerHashKeys[i]+1).equals(outerKeys[i]))
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Accumulates encoded inner rows into the arena and index.
+     */
+    static class Builder{
+        private final ExecRow innerTemplate;
+        private final DescriptorSerializer[] serializers;
+        private final int[] innerHashKeys;
+        private final int[] outerHashKeys;
+        private final boolean integralKey;
+
+        private final List<ByteBuffer> chunks = new ArrayList<>();
+        private ByteBuffer current;
+        private long[] keys = new long[1024];
+        private long[] heads = newHeads(1024);
+        private int numKeys;
+        private int numRows;
+
+        Builder(ExecRow innerTemplate,
+                DescriptorSerializer[] serializers,
+                int[] innerHashKeys,
+                int[] outerHashKeys,
+                boolean integralKey){
+            this.innerTemplate = innerTemplate;
+            this.serializers = serializers;
+            this.innerHashKeys = innerHashKeys;
+            this.outerHashKeys = outerHashKeys;
+            this.integralKey = integralKey;
+        }
+
+        void add(long key,byte[] encodedRow){
+            int recordSize = RECORD_HEADER+encodedRow.length;
+            if(current==null || current.remaining()<recordSize){
+                int chunkSize = current==null ? MIN_CHUNK_SIZE : Math.min(CHUNK_SIZE,2*current.capacity());
+                current = ByteBuffer.allocateDirect(Math.max(chunkSize,recordSize));
+                chunks.add(current);
+            }
+            long address = ((long)(chunks.size()-1) << 32) | current.position();
+
+            int mask = keys.length-1;
+            int slot = slot(key,mask);
+            while(heads[slot]!=NO_RECORD && keys[slot]!=key){
+                slot = (slot+1) & mask;
+            }
+            long previous = heads[slot];
+            if(previous==NO_RECORD){
+                keys[slot] = key;
+                numKeys++;
+            }
+            heads[slot] = address;
+
+            current.putLong(previous);
+            current.putInt(encodedRow.length);
+            current.put(encodedRow);
+            numRows++;
+
+            if(numKeys > keys.length/2)
+                resize();
+        }
+
+        Factory build(){
+            if(current!=null && current.position()<current.capacity()){
+                // trim the last chunk to its contents; record offsets are unchanged
+                ByteBuffer trimmed = ByteBuffer.allocateDirect(current.position());
+                current.flip();
+                trimmed.put(current);
+                DirectBuffers.free(current);
+                chunks.set(chunks.size()-1,trimmed);
+                current = trimmed;
+            }
+            return new Factory(this);
+        }
+
+        /**
+         * Frees the rows added so far, when the table is abandoned before being built.
+         */
+        void discard(){
+            for(ByteBuffer chunk:chunks){
+                DirectBuffers.free(chunk);
+            }
+            chunks.clear();
+            current = null;
+        }
+
+        private void resize(){
+            long[] oldKeys = keys;
+            long[] oldHeads = heads;
+            keys = new long[oldKeys.length*2];
+            heads = newHeads(oldHeads.length*2);
+            int mask = keys.length-1;
+            for(int i=0;i<oldKeys.length;i++){
+                if(oldHeads[i]==NO_RECORD) continue;
+                int slot = slot(oldKeys[i],mask);
+                while(heads[slot]!=NO_RECORD){
+                    slot = (slot+1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                heads[slot] = oldHeads[i];
+            }
+        }
+
+        private static long[] newHeads(int size){
+            long[] heads = new long[size];
+            Arrays.fill(heads,NO_RECORD);
+            return heads;
+        }
+    }
+
+    static class Factory implements JoinTable.Factory{
+        private final ByteBuffer[] chunks;
+        private final long[] keys;
+        private final long[] heads;
+        private final int mask;
+        private final int numRows;
+        private final long sizeInBytes;
+        private final ExecRow innerTemplate;
+        private final DescriptorSerializer[] serializers;
+        private final int[] innerHashKeys;
+        private final int[] outerHashKeys;
+        private final boolean integralKey;
+        private boolean released;
+
+        private Factory(Builder builder){
+            this.chunks = builder.chunks.toArray(new ByteBuffer[builder.chunks.size()]);
+            this.keys = builder.keys;
+            this.heads = builder.heads;
+            this.mask = keys.length-1;
+            this.numRows = builder.numRows;
+            this.innerTemplate = builder.innerTemplate;
+            this.serializers = builder.serializers;
+            this.innerHashKeys = builder.innerHashKeys;
+            this.outerHashKeys = builder.outerHashKeys;
+            this.integralKey = builder.integralKey;
+            long size = 16L*keys.length;
+            for(ByteBuffer chunk:chunks){
+                size += chunk.capacity();
+            }
+            this.sizeInBytes = size;
+        }
+
+        @Override
+        public synchronized JoinTable newTable(){
+            if(released)
+                throw new IllegalStateException("Join table has already been released");
+            return new OffHeapJoinTable(this);
+        }
+
+        @Override
+        public long getSizeInBytes(){
+            return sizeInBytes;
+        }
+
+        /**
+         * Frees the arena. No table created by this factory may be used afterwards.
+         */
+        @Override
+        public synchronized void release(){
+            if(released)
+                return;
+            released = true;
+            for(ByteBuffer chunk:chunks){
+                DirectBuffers.free(chunk);
+            }
+        }
+
+        private long find(long key){
+            int slot = slot(key,mask);
+            long head;
+            while((head = heads[slot])!=NO_RECORD){
+                if(keys[slot]==key)
+                    return head;
+                slot = (slot+1) & mask;
+            }
+            return NO_RECORD;
+        }
+    }
+}
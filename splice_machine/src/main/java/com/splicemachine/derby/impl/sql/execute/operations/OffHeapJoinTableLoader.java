@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.derby.utils.marshall.EntryDataHash;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
+import com.splicemachine.stream.Stream;
+import com.splicemachine.utils.IntArrays;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Loads the inner side of a broadcast join into an {@link OffHeapJoinTable}.
+ *
+ * Inner rows with a null join column can never match, so they are not stored.
+ */
+@ThreadSafe
+class OffHeapJoinTableLoader implements BroadcastJoinCache.JoinTableLoader{
+    public static BroadcastJoinCache.JoinTableLoader INSTANCE = new OffHeapJoinTableLoader();
+
+    private OffHeapJoinTableLoader(){} //singleton class
+
+    @Override
+    public JoinTable.Factory load(Callable<Stream<ExecRow>> streamLoader,int[] innerHashKeys,int[] outerHashKeys, ExecRow outerTemplateRow) throws Exception {
+        OffHeapJoinTable.Builder builder = null;
+        EntryDataHash encoder = null;
+        boolean integralKey = false;
+        DataValueDescriptor[] keys = new DataValueDescriptor[innerHashKeys.length];
+        try(Stream<ExecRow> innerRows=streamLoader.call()){
+            ExecRow right;
+            rows:
+            while((right=innerRows.next())!=null){
+                if(builder==null){
+                    integralKey = innerHashKeys.length==1
+                            && OffHeapJoinTable.isIntegral(right.getColumn(innerHashKeys[0]+1))
+                            && OffHeapJoinTable.isIntegral(outerTemplateRow.getColumn(outerHashKeys[0]+1));
+                    DescriptorSerializer[] serializers = VersionedSerializers.latestVersion(true).getSerializers(right);
+                    encoder = new EntryDataHash(IntArrays.count(right.nColumns()),null,serializers);
+                    builder = new OffHeapJoinTable.Builder(right.getNewNullRow(),serializers,innerHashKeys,outerHashKeys,integralKey);
+                }
+
+                for (int i = 0; i < keys.length; i++) {
+                    keys[i] = right.getColumn(innerHashKeys[i] + 1);
+                    if(keys[i].isNull())
+                        continue rows;
+                }
+                long key = integralKey ? keys[0].getLong() : OffHeapJoinTable.hash(keys);
+                encoder.setRow(right);
+                builder.add(key,encoder.encode());
+            }
+        }catch(Exception e){
+            if(builder!=null)
+                builder.discard();
+            throw getException(e);
+        }finally{
+            if(encoder!=null)
+                encoder.close();
+        }
+
+        if(builder==null){
+            // empty inner table
+            builder = new OffHeapJoinTable.Builder(null,null,innerHashKeys,outerHashKeys,false);
+        }
+        return builder.build();
+    }
+
+    private Exception getException(Throwable parent) {
+        if (parent.getCause() instanceof Exception)
+            return (Exception)parent.getCause();
+        if (parent instanceof Exception)
+            return (Exception)parent;
+        return new ExecutionException(parent);
+    }
+}
@@ -37,6 +37,8 @@ import com.splicemachine.derby.impl.sql.execute.operations.iapi.ScanInformation;
 import com.splicemachine.derby.stream.iapi.DataSet;
 import com.splicemachine.derby.stream.iapi.DataSetProcessor;
 import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.derby.stream.vector.BatchOperation;
+import com.splicemachine.derby.stream.vector.ColumnBatch;
 import com.splicemachine.derby.utils.EngineUtils;
 import org.apache.log4j.Logger;
 import org.spark_project.guava.base.Strings;
@@ -45,9 +47,11 @@ import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
-public class ProjectRestrictOperation extends SpliceBaseOperation {
+public class ProjectRestrictOperation extends SpliceBaseOperation implements BatchOperation {
 		private static Logger LOG = Logger.getLogger(ProjectRestrictOperation.class);
 		protected String restrictionMethodName;
 		protected String projectionMethodName;
@@ -318,6 +322,98 @@ public class ProjectRestrictOperation extends SpliceBaseOperation {
         }
     }
 
+    /**
+     * Batches are supported when every column the caller reads is copied straight from the source (see
+     * {@link #projectMapping}), so the projection never needs to be invoked. The restriction, if any, is
+     * evaluated a row at a time over each batch, and narrows the batch's selection.
+     */
+    @Override
+    public boolean supportsBatches(DataSetProcessor dsp, int[] columns) throws StandardException {
+        if (!(source instanceof BatchOperation) || projectMapping == null)
+            return false;
+        int[] sourceColumns = getSourceColumns(columns);
+        if (sourceColumns == null)
+            return false;
+        return ((BatchOperation) source).supportsBatches(dsp, restrictionMethodName != null ? null : sourceColumns);
+    }
+
+    @Override
+    public Iterator<ColumnBatch> getBatches(DataSetProcessor dsp, int[] columns) throws StandardException {
+        if (!isOpen)
+            throw new IllegalStateException("Operation is not open");
+
+        if (alwaysFalse)
+            return Collections.emptyIterator();
+        final OperationContext operationContext = dsp.createOperationContext(this);
+        final Iterator<ColumnBatch> sourceBatches = ((BatchOperation) source).getBatches(dsp,
+                restrictionMethodName != null ? null : getSourceColumns(columns));
+        final int[] columnMap = new int[projectMapping.length];
+        for (int i = 0; i < projectMapping.length; i++) {
+            columnMap[i] = projectMapping[i] > 0 ? projectMapping[i] - 1 : -1;
+        }
+        final Restriction batchRestriction = restrictionMethodName != null ? getRestriction() : null;
+        final ExecRow sourceRow = batchRestriction != null ? source.getExecRowDefinition().getClone() : null;
+        return new Iterator<ColumnBatch>() {
+            private int[] selection;
+
+            @Override
+            public boolean hasNext() {
+                return sourceBatches.hasNext();
+            }
+
+            @Override
+            public ColumnBatch next() {
+                ColumnBatch batch = sourceBatches.next();
+                if (batchRestriction != null) {
+                    try {
+                        restrict(batch);
+                    } catch (StandardException se) {
+                        throw new RuntimeException(se);
+                    }
+                }
+                return batch.project(columnMap);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            private void restrict(ColumnBatch batch) throws StandardException {
+                if (selection == null || selection.length < batch.capacity())
+                    selection = new int[batch.capacity()];
+                int count = 0;
+                for (int i = 0; i < batch.selectedCount(); i++) {
+                    int row = batch.selectedRow(i);
+                    batch.materialize(row, sourceRow);
+                    setCurrentRow(sourceRow);
+                    source.setCurrentRow(sourceRow);
+                    if (batchRestriction.apply(sourceRow))
+                        selection[count++] = row;
+                    else
+                        operationContext.recordFilter();
+                }
+                batch.select(selection, count);
+            }
+        };
+    }
+
+    /**
+     * @return the 0-based source column of each of {@code columns} (all columns if null), or null if any
+     * of them is computed by the projection rather than copied from the source
+     */
+    private int[] getSourceColumns(int[] columns) {
+        int n = columns == null ? projectMapping.length : columns.length;
+        int[] sourceColumns = new int[n];
+        for (int i = 0; i < n; i++) {
+            int mapped = projectMapping[columns == null ? i : columns[i]];
+            if (mapped <= 0)
+                return null;
+            sourceColumns[i] = mapped - 1;
+        }
+        return sourceColumns;
+    }
+
 	@Override
 	public ExecIndexRow getStartPosition() throws StandardException {
 		return source.getStartPosition();
@@ -20,6 +20,9 @@ import com.splicemachine.derby.stream.function.ScalarAggregateFlatMapFunction;
 import com.splicemachine.derby.stream.iapi.DataSet;
 import com.splicemachine.derby.stream.iapi.DataSetProcessor;
 import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.derby.stream.vector.BatchAggregation;
+import com.splicemachine.derby.stream.vector.BatchOperation;
+import com.splicemachine.derby.stream.vector.ColumnBatch;
 import com.splicemachine.derby.utils.EngineUtils;
 import com.splicemachine.utils.SpliceLogUtils;
 import com.splicemachine.db.iapi.error.StandardException;
@@ -30,6 +33,7 @@ import org.apache.log4j.Logger;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.Iterator;
 
 /**
  * Operation for performing Scalar Aggregations (sum, avg, max/min, etc.). 
@@ -122,9 +126,21 @@ public class ScalarAggregateOperation extends GenericAggregateOperation {
             throw new IllegalStateException("Operation is not open");
 
         OperationContext<ScalarAggregateOperation> operationContext = dsp.createOperationContext(this);
+        if (supportsBatches(dsp)) {
+            BatchAggregation aggregation = new BatchAggregation(aggregates, new int[0], getSourceExecIndexRow());
+            Iterator<ColumnBatch> batches = ((BatchOperation) source).getBatches(dsp, BatchAggregation.getInputColumns(aggregates, new int[0]));
+            return dsp.createDataSet(aggregation.aggregate(batches, operationContext))
+                    .mapPartitions(new ScalarAggregateFlatMapFunction(operationContext, true), /*isLast=*/true, /*pushScope=*/true, "Final Aggregation");
+        }
         DataSet<ExecRow> dsSource = source.getDataSet(dsp);
         DataSet<ExecRow> ds = dsSource.mapPartitions(new ScalarAggregateFlatMapFunction(operationContext, false), false, /*pushScope=*/true, "First Aggregation");
         DataSet<ExecRow> ds2 = ds.coalesce(1, /*shuffle=*/true, /*isLast=*/false, operationContext, /*pushScope=*/true, "Coalesce");
         return ds2.mapPartitions(new ScalarAggregateFlatMapFunction(operationContext, true), /*isLast=*/true, /*pushScope=*/true, "Final Aggregation");
     }
+
+    private boolean supportsBatches(DataSetProcessor dsp) throws StandardException {
+        return source instanceof BatchOperation
+                && BatchAggregation.isSupported(aggregates)
+                && ((BatchOperation) source).supportsBatches(dsp, BatchAggregation.getInputColumns(aggregates, new int[0]));
+    }
 }
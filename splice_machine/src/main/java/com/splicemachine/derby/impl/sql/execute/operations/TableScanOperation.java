@@ -14,6 +14,7 @@
 
 package com.splicemachine.derby.impl.sql.execute.operations;
 
+import com.splicemachine.EngineDriver;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.services.compiler.MethodBuilder;
 import com.splicemachine.db.iapi.services.io.FormatableBitSet;
@@ -26,9 +27,13 @@ import com.splicemachine.db.impl.sql.compile.FromTable;
 import com.splicemachine.db.impl.sql.execute.BaseActivation;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperationContext;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.TableScannerBuilder;
 import com.splicemachine.derby.stream.function.SetCurrentLocatedRowAndRowKeyFunction;
 import com.splicemachine.derby.stream.iapi.DataSet;
 import com.splicemachine.derby.stream.iapi.DataSetProcessor;
+import com.splicemachine.derby.stream.iapi.ScanSetBuilder;
+import com.splicemachine.derby.stream.vector.BatchOperation;
+import com.splicemachine.derby.stream.vector.ColumnBatch;
 import com.splicemachine.primitives.Bytes;
 import com.splicemachine.si.api.txn.Txn;
 import com.splicemachine.si.api.txn.TxnView;
@@ -40,6 +45,7 @@ import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -47,7 +53,7 @@ import java.util.List;
  * Base Operation for scanning either and index, base table, or an external table.
  *
  */
-public class TableScanOperation extends ScanOperation{
+public class TableScanOperation extends ScanOperation implements BatchOperation{
     private static final long serialVersionUID=3l;
     private static Logger LOG=Logger.getLogger(TableScanOperation.class);
     protected int indexColItem;
@@ -339,8 +345,42 @@ public class TableScanOperation extends ScanOperation{
      * @throws StandardException
      */
     public DataSet<ExecRow> getTableScannerBuilder(DataSetProcessor dsp) throws StandardException{
-        TxnView txn=getCurrentTransaction();
         operationContext = dsp.createOperationContext(this);
+        return newScanSetBuilder(dsp)
+                .buildDataSet(this)
+                .map(new SetCurrentLocatedRowAndRowKeyFunction<>(operationContext));
+    }
+
+    /**
+     * Batches are read straight from the scanner when the scan runs on the control side and
+     * {@code splice.controlExecution.batchSize} is positive. External and pinned tables, and scans
+     * with row id qualifiers, are always read a row at a time.
+     */
+    @Override
+    public boolean supportsBatches(DataSetProcessor dsp,int[] columns) throws StandardException{
+        if(dsp.getType()!=DataSetProcessor.Type.CONTROL || getBatchSize()<=0)
+            return false;
+        if(storedAs!=null || pin || rowIdKey)
+            return false;
+        ScanSetBuilder<ExecRow> builder=dsp.newScanSet(this,tableName);
+        return builder instanceof TableScannerBuilder && ((TableScannerBuilder)builder).supportsBatches();
+    }
+
+    @Override
+    public Iterator<ColumnBatch> getBatches(DataSetProcessor dsp,int[] columns) throws StandardException{
+        if (!isOpen)
+            throw new IllegalStateException("Operation is not open");
+
+        operationContext = dsp.createOperationContext(this);
+        return ((TableScannerBuilder)newScanSetBuilder(dsp)).buildBatches(getBatchSize(),columns);
+    }
+
+    private int getBatchSize(){
+        return EngineDriver.driver().getConfiguration().getControlExecutionBatchSize();
+    }
+
+    private ScanSetBuilder<ExecRow> newScanSetBuilder(DataSetProcessor dsp) throws StandardException{
+        TxnView txn=getCurrentTransaction();
         return dsp.<TableScanOperation,ExecRow>newScanSet(this,tableName)
                 .tableDisplayName(tableDisplayName)
                 .activation(activation)
@@ -365,9 +405,7 @@ public class TableScanOperation extends ScanOperation{
                 .location(location)
                 .partitionByColumns(getPartitionColumnMap())
                 .defaultRow(defaultRow,scanInformation.getDefaultValueMap())
-                .ignoreRecentTransactions(isReadOnly(txn))
-                .buildDataSet(this)
-                .map(new SetCurrentLocatedRowAndRowKeyFunction<>(operationContext));
+                .ignoreRecentTransactions(isReadOnly(txn));
     }
 
     private boolean isReadOnly(TxnView txn) {
@@ -25,6 +25,7 @@ import com.splicemachine.db.impl.jdbc.EmbedConnection;
 import com.splicemachine.db.impl.sql.execute.TriggerEvent;
 import com.splicemachine.db.impl.sql.execute.TriggerEventActivator;
 import com.splicemachine.db.impl.sql.execute.TriggerInfo;
+import com.splicemachine.derby.iapi.sql.execute.RowListCursorResultSet;
 import com.splicemachine.derby.iapi.sql.execute.SingleRowCursorResultSet;
 import com.splicemachine.derby.impl.sql.execute.actions.WriteCursorConstantOperation;
 import com.splicemachine.derby.impl.sql.execute.operations.iapi.DMLWriteInfo;
@@ -149,19 +150,14 @@ public class TriggerHandler {
             throw e;
         }
 
-        for (ExecRow flushedRow : pendingAfterRows) {
-            fireAfterRowTriggers(flushedRow);
+        /* Fire for the whole batch at once, so that the trigger action is only set up once per batch rather than
+         * once per row. */
+        if (hasAfterRow && !pendingAfterRows.isEmpty()) {
+            triggerActivator.notifyRowEvents(afterEvent, new RowListCursorResultSet(resultDescription, pendingAfterRows));
         }
         pendingAfterRows.clear();
     }
 
-    private void fireAfterRowTriggers(ExecRow row) throws StandardException {
-        if (row != null && hasAfterRow) {
-            SingleRowCursorResultSet triggeringResultSet = new SingleRowCursorResultSet(resultDescription, row);
-            triggerActivator.notifyRowEvent(afterEvent, triggeringResultSet, null);
-        }
-    }
-
     public void fireBeforeStatementTriggers() throws StandardException {
         if (hasBeforeStatement) {
             triggerActivator.notifyStatementEvent(beforeEvent);
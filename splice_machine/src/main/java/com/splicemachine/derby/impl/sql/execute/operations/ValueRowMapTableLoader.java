@@ -18,6 +18,7 @@ import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.db.impl.sql.execute.ValueRow;
 import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.derby.stream.control.ControlUtils;
 import com.splicemachine.stream.Stream;
 
 import javax.annotation.concurrent.ThreadSafe;
@@ -41,6 +42,7 @@ class ValueRowMapTableLoader implements BroadcastJoinCache.JoinTableLoader{
     @Override
     public JoinTable.Factory load(Callable<Stream<ExecRow>> streamLoader,int[] innerHashKeys,int[] outerHashKeys, ExecRow outerTemplateRow) throws Exception {
         Map<ValueRow, List<ExecRow>> table=new HashMap<>();
+        long sizeInBytes = 0L;
 
         int numKeys = innerHashKeys.length;
         DataValueDescriptor[] keys = new DataValueDescriptor[numKeys];
@@ -55,15 +57,19 @@ class ValueRowMapTableLoader implements BroadcastJoinCache.JoinTableLoader{
                 List<ExecRow> rows=table.get(keyRow);
                 if(rows==null){
                     rows=new ArrayList<>(1);
-                    table.put((ValueRow)keyRow.getClone(), rows);
+                    ValueRow key = (ValueRow)keyRow.getClone();
+                    table.put(key, rows);
+                    sizeInBytes += ControlUtils.estimateHeapSize(key);
                 }
-                rows.add(right.getClone());
+                ExecRow row = right.getClone();
+                rows.add(row);
+                sizeInBytes += ControlUtils.estimateHeapSize(row);
             }
         }catch(Exception e){
             throw getException(e);
         }
 
-        return new ValueRowMappedJoinTable.Factory(table,outerHashKeys);
+        return new ValueRowMappedJoinTable.Factory(table,outerHashKeys,sizeInBytes);
     }
 
     private Exception getException(Throwable parent) {
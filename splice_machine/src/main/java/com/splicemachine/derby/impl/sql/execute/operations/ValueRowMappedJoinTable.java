@@ -65,15 +65,25 @@ class ValueRowMappedJoinTable implements JoinTable{
     static class Factory implements JoinTable.Factory{
         private final Map<ValueRow,List<ExecRow>> table;
         private final int[] outerHashKeys;
+        private final long sizeInBytes;
 
-        public Factory(Map<ValueRow, List<ExecRow>> table,int[] outerHashKeys){
+        public Factory(Map<ValueRow, List<ExecRow>> table,int[] outerHashKeys,long sizeInBytes){
             this.table=table;
             this.outerHashKeys=outerHashKeys;
+            this.sizeInBytes=sizeInBytes;
         }
 
         @Override
         public JoinTable newTable(){
             return new ValueRowMappedJoinTable(table, outerHashKeys);
         }
+
+        @Override
+        public long getSizeInBytes(){
+            return sizeInBytes;
+        }
+
+        //the table is on the heap, nothing to free
+        @Override public void release(){}
     }
 }
@@ -24,6 +24,9 @@ import com.splicemachine.db.iapi.services.io.StoredFormatIds;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.iapi.types.RowLocation;
 import com.splicemachine.derby.impl.store.ExecRowAccumulator;
+import com.splicemachine.derby.stream.vector.ColumnBatch;
+import com.splicemachine.derby.stream.vector.ColumnBatchAccumulator;
+import com.splicemachine.derby.stream.vector.ColumnVector;
 import com.splicemachine.db.iapi.types.HBaseRowLocation;
 import com.splicemachine.derby.utils.StandardIterator;
 import com.splicemachine.derby.utils.marshall.dvd.TypeProvider;
@@ -34,6 +37,8 @@ import com.splicemachine.si.api.filter.SIFilter;
 import com.splicemachine.si.api.server.TransactionalRegion;
 import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.si.impl.TxnResolvingScanner;
+import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.si.impl.filter.HRowAccumulator;
 import com.splicemachine.si.impl.txn.DDLTxnView;
 import com.splicemachine.si.impl.filter.PackedTxnFilter;
@@ -84,6 +89,8 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
     private FormatableBitSet accessedKeys;
     private SIFilterFactory filterFactory;
     private ExecRowAccumulator accumulator;
+    private SIFilter batchFilter;
+    private ColumnBatchAccumulator batchAccumulator;
     private EntryDecoder entryDecoder;
     private final Counter outputBytesCounter;
     private long demarcationPoint;
@@ -122,7 +129,7 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
         MetricFactory metricFactory = Metrics.noOpMetricFactory();
         this.filterCounter = metricFactory.newCounter();
         this.outputBytesCounter = metricFactory.newCounter();
-        this.regionScanner = scanner;
+        this.regionScanner = resolvingScanner(scanner,txn);
         this.keyDecodingMap = keyDecodingMap;
         this.accessedKeys = accessedPks;
         this.keyDecoderProvider = getKeyDecoder(accessedPks, keyColumnEncodingOrder,
@@ -236,6 +243,62 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
         }while(true); //TODO -sf- this doesn't seem quite right
     }
 
+    /**
+     * Fills {@code batch} with the next visible rows, up to its capacity. Stored columns are decoded
+     * directly into the batch's vectors; key columns and default values go through the template, as
+     * in {@link #next()}. Row locations are not tracked in this mode.
+     *
+     * A scanner must be read either with {@code next()} or with {@code nextBatch()}, not both.
+     *
+     * @param batch a batch created for the template of this scanner
+     * @return the number of rows in the batch. A batch which isn't full means the scan is exhausted.
+     */
+    public int nextBatch(ColumnBatch batch) throws StandardException, IOException {
+        SIFilter filter = getBatchFilter(batch);
+        int numColumns = template.nColumns();
+        int row = 0;
+        while(row<batch.capacity()){
+            if(isKeyed)
+                template.resetRowArray();
+            for(int i=0;i<numColumns;i++){
+                ColumnVector column = batch.getColumn(i);
+                if(column!=null)
+                    column.setNull(row);
+            }
+            batchAccumulator.setRow(batch,row);
+            List<DataCell> keyValues=regionScanner.next(-1);
+            if(keyValues.size()<=0)
+                break;
+            DataCell currentKeyValue = keyValues.get(0);
+            if(numColumns>0 && !filterRowKey(currentKeyValue)){
+                filterCounter.increment();
+                continue;
+            }
+            if(!filterRow(filter,keyValues)){
+                filterCounter.increment();
+                continue;
+            }
+            if(isKeyed && keyDecodingMap!=null){
+                for(int pos:keyDecodingMap){
+                    if(pos>=0 && batch.getColumn(pos)!=null)
+                        batch.getColumn(pos).set(row,template.getColumn(pos+1));
+                }
+            }
+            //fill the unpopulated non-null columns with default values
+            if (defaultRow != null && defaultValueMap != null) {
+                for (int i=defaultValueMap.anySetBit(); i>=0; i=defaultValueMap.anySetBit(i)) {
+                    ColumnVector column = batch.getColumn(i);
+                    if (column!=null && column.isNull(row))
+                        column.set(row, defaultRow.getColumn(i+1));
+                }
+            }
+            measureOutputSize(keyValues);
+            row++;
+        }
+        batch.setSize(row);
+        return row;
+    }
+
     public long getBytesOutput(){
         return outputBytesCounter.getTotal();
     }
@@ -260,6 +323,8 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
             keyAccumulator.close();
         if(siFilter!=null)
             siFilter.getAccumulator().close();
+        if(batchAccumulator!=null)
+            batchAccumulator.close();
         if (regionScanner != null) {
             try {
                 regionScanner.close();
@@ -295,6 +360,16 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
 
     /*********************************************************************************************************************/
 		/*Private helper methods*/
+
+    private static DataScanner resolvingScanner(DataScanner scanner,TxnView txn){
+        SIDriver driver = SIDriver.driver();
+        if(scanner==null || txn==null || driver==null)
+            return scanner;
+        int batchSize = driver.getConfiguration().getTxnResolutionBatchSize();
+        if(batchSize<=0)
+            return scanner;
+        return new TxnResolvingScanner(scanner,driver.getTxnSupplier(),txn.getBeginTimestamp(),batchSize);
+    }
     private SIFilterFactory createFilterFactory(TxnView txn, long demarcationPoint,
                                                 boolean ignoreRecentTransactions) {
         TxnView txnView = txn;
@@ -389,6 +464,17 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
         return siFilter;
     }
 
+    @SuppressWarnings("unchecked")
+    private SIFilter getBatchFilter(ColumnBatch batch) throws IOException {
+        if(batchFilter==null) {
+            boolean isCountStar = scan.getAttribute(SIConstants.SI_COUNT_STAR)!=null;
+            predicateFilter= buildInitialPredicateFilter();
+            batchAccumulator = ColumnBatchAccumulator.newAccumulator(predicateFilter, template, rowDecodingMap, tableVersion, batch);
+            batchFilter = filterFactory.newFilter(predicateFilter,getRowEntryDecoder(),batchAccumulator,isCountStar);
+        }
+        return batchFilter;
+    }
+
     protected EntryDecoder getRowEntryDecoder() {
         return new EntryDecoder();
     }
@@ -24,6 +24,7 @@ import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.derby.stream.iapi.DataSet;
 import com.splicemachine.derby.stream.iapi.ScanSetBuilder;
 import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.derby.stream.vector.ColumnBatch;
 import com.splicemachine.metrics.MetricFactory;
 import com.splicemachine.metrics.Metrics;
 import com.splicemachine.si.api.server.TransactionalRegion;
@@ -39,6 +40,7 @@ import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.util.Arrays;
+import java.util.Iterator;
 
 /**
  * Companion Builder class for SITableScanner
@@ -628,6 +630,25 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
         return buildDataSet();
     }
 
+    /**
+     * @return true if this builder can build the scan as column batches, with {@link #buildBatches(int, int[])}
+     */
+    public boolean supportsBatches() {
+        return false;
+    }
+
+    /**
+     * Builds the scan as an iterator of column batches rather than a DataSet of rows. Only scans which
+     * are read locally (on the control side) support this.
+     *
+     * @param batchSize the number of rows per batch
+     * @param columns the 0-based columns of the template to decode, or {@code null} for all of them. The
+     *                other columns of the batches are absent.
+     */
+    public Iterator<ColumnBatch> buildBatches(int batchSize, int[] columns) throws StandardException {
+        throw new UnsupportedOperationException("Batch scans are not supported by "+getClass().getName());
+    }
+
     @Override
     public OperationContext getOperationContext() {
         return operationContext;
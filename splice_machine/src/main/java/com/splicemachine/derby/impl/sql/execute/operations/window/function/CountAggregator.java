@@ -28,6 +28,9 @@ import com.splicemachine.db.iapi.types.SQLLongint;
  */
 public class CountAggregator extends SpliceGenericWindowFunction {
 
+    // number of values in the window, updated as values enter and leave it
+    private long count;
+
     @Override
     public WindowFunction setup( ClassFactory cf, String aggregateName, DataTypeDescriptor returnType,
                                  FormatableHashtable functionSpecificArgs) {
@@ -42,31 +45,26 @@ public class CountAggregator extends SpliceGenericWindowFunction {
 
     @Override
     protected void calculateOnAdd(SpliceGenericWindowFunction.WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException{
-        DataValueDescriptor result = chunk.getResult();
-        if (result == null || result.isNull()) {
-            SQLLongint r = new SQLLongint(1);
-            chunk.setResult(r);
-        } else {
-            long count = result.getLong();
-            result.setValue(count+1);
-            chunk.setResult(result);
-        }
+        count++;
     }
 
     @Override
     protected void calculateOnRemove(SpliceGenericWindowFunction.WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException {
-        DataValueDescriptor result = chunk.getResult();
-        long count = result.getLong();
-        result.setValue(count-1);
-        chunk.setResult(result);
+        // the running count is maintained in onRemove
+    }
+
+    @Override
+    protected void onRemove(DataValueDescriptor[] dvds) throws StandardException {
+        count--;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        count = 0;
     }
 
     public DataValueDescriptor getResult() throws StandardException {
-        // Iterate through each chunk, compute the max/min of each chunk
-        long count = 0;
-        for (WindowChunk chunk : chunks) {
-            count += chunk.getResult().getLong();
-        }
         return new SQLLongint(count);
     }
 
@@ -87,6 +87,11 @@ public class LeadLagFunction extends SpliceGenericWindowFunction {
         return leadLag;
     }
 
+    @Override
+    public boolean needsEntireFrame() {
+        return true;
+    }
+
     @Override
     public DataValueDescriptor getResult() throws StandardException {
         return chunks.get(0).getResult();
@@ -17,6 +17,7 @@ package com.splicemachine.derby.impl.sql.execute.operations.window.function;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.ArrayDeque;
 
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.services.io.FormatableHashtable;
@@ -32,6 +33,15 @@ import com.splicemachine.db.iapi.types.DataValueDescriptor;
 public class MaxMinAggregator extends SpliceGenericWindowFunction {
     private boolean isMax;
 
+    // Candidates for the max/min of the window, in the order they were added: a value is dropped as
+    // soon as a later value at least as large (for MAX) or as small (for MIN) is added, since it can
+    // no longer become the result before that later value leaves the window. The head is therefore
+    // always the result, and each value is added and dropped at most once.
+    private ArrayDeque<Candidate> candidates;
+    // sequence numbers of the next value to enter and to leave the window
+    private long added;
+    private long removed;
+
     @Override
     public WindowFunction setup( ClassFactory cf, String aggregateName, DataTypeDescriptor returnType,
                                  FormatableHashtable functionSpecificArgs) {
@@ -47,63 +57,47 @@ public class MaxMinAggregator extends SpliceGenericWindowFunction {
 
     @Override
     protected void calculateOnAdd(WindowChunk chunk, DataValueDescriptor[] dvd) throws StandardException{
-        DataValueDescriptor result = chunk.getResult();
-        if (result == null || result.isNull()) {
-            chunk.setResult(dvd[0]);
-        }
-        else if(isMax && dvd[0].compare(result) > 0) {
-            chunk.setResult(dvd[0]);
+        long seq = added++;
+        DataValueDescriptor value = dvd[0];
+        if (value == null || value.isNull()) {
+            // nulls never contribute to MAX/MIN
+            return;
         }
-        else if (!isMax && dvd[0].compare(result) < 0) {
-            chunk.setResult(dvd[0]);
+        while (!candidates.isEmpty()) {
+            int comp = candidates.peekLast().value.compare(value);
+            if (isMax ? comp > 0 : comp < 0) {
+                break;
+            }
+            candidates.pollLast();
         }
+        candidates.addLast(new Candidate(seq, value));
     }
 
     @Override
     protected void calculateOnRemove(WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException {
-        DataValueDescriptor result = chunk.getResult();
-        if (dvds[0].compare(result) == 0) {
-            recalculate(chunk);
-        }
+        // candidates are maintained in onRemove
     }
 
-    private void recalculate(WindowChunk chunk) throws StandardException{
-        DataValueDescriptor result = chunk.get(chunk.first)[0];
-
-        for (int i = chunk.first+1; i < chunk.last; ++i) {
-            DataValueDescriptor dvd = chunk.get(i)[0];
-            if (isMax) {
-                if (dvd.compare(result) > 0) {
-                    result = dvd;
-                }
-            }
-            else {
-                if (dvd.compare(result) < 0) {
-                    result = dvd;
-                }
-            }
+    @Override
+    protected void onRemove(DataValueDescriptor[] dvds) throws StandardException {
+        long seq = removed++;
+        if (!candidates.isEmpty() && candidates.peekFirst().seq == seq) {
+            candidates.pollFirst();
         }
-        chunk.setResult(result);
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        candidates = new ArrayDeque<>();
+        added = removed = 0;
     }
 
     public DataValueDescriptor getResult() throws StandardException {
-        // Iterate through each chunk, compute the max/min of each chunk
-        WindowChunk first = chunks.get(0);
-        DataValueDescriptor result = first.getResult();
-        for (int i = 1; i < chunks.size(); ++i) {
-            DataValueDescriptor dvd = chunks.get(i).getResult();
-            if (isMax) {
-                if (dvd.compare(result) > 0) {
-                    result = dvd;
-                }
-            }
-            else {
-                if (dvd.compare(result) < 0) {
-                    result = dvd;
-                }
-            }
+        if (candidates.isEmpty()) {
+            return nullResult();
         }
-        return result;
+        return candidates.peekFirst().value;
     }
 
     @Override
@@ -122,4 +116,14 @@ public class MaxMinAggregator extends SpliceGenericWindowFunction {
     public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
         isMax = in.readBoolean();
     }
+
+    private static class Candidate {
+        final long seq;
+        final DataValueDescriptor value;
+
+        Candidate(long seq, DataValueDescriptor value) {
+            this.seq = seq;
+            this.value = value;
+        }
+    }
 }
@@ -77,6 +77,7 @@ public abstract class SpliceGenericWindowFunction implements WindowFunction {
     public DataValueDescriptor[] remove() throws StandardException{
 
         DataValueDescriptor[] dvd = first.remove();
+        onRemove(dvd);
         if (first.consumed()) {
             chunks.remove(first);
             if (chunks.isEmpty()) {
@@ -95,6 +96,15 @@ public abstract class SpliceGenericWindowFunction implements WindowFunction {
 
     protected abstract void calculateOnRemove(WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException;
 
+    /**
+     * Called for every value leaving the window, in the order the values were added. Functions
+     * which keep a running result over the whole window, rather than per chunk, update it here.
+     * Unlike {@link #calculateOnRemove}, this is also called for the last value of a chunk.
+     */
+    protected void onRemove(DataValueDescriptor[] dvds) throws StandardException {
+        // nothing by default
+    }
+
     /**
      * Return the first non-zero comparison of each array item in order.<br/>
      * DVD arrays of differing size are handled like this:
@@ -249,6 +259,24 @@ public abstract class SpliceGenericWindowFunction implements WindowFunction {
         return null;
     }
 
+    /**
+     * @return true if the function's results are only known once the whole partition has been seen,
+     * i.e. when it implements {@link #finishFrame()}. Results of other functions are final as soon
+     * as the window of a row has been aggregated, so rows can be emitted one at a time.
+     */
+    public boolean needsEntireFrame() {
+        return false;
+    }
+
+    /**
+     * @return a NULL of the function's result type
+     */
+    protected DataValueDescriptor nullResult() {
+        DataValueDescriptor result = resultType.cloneValue(false);
+        result.setToNull();
+        return result;
+    }
+
     @Override
     public boolean isUserDefinedAggregator() {
         return false;
@@ -28,6 +28,11 @@ import com.splicemachine.db.iapi.types.NumberDataValue;
  */
 public class SumAggregator extends SpliceGenericWindowFunction {
 
+    // Running sum and count of the non-null values in the window, updated as values enter and
+    // leave it, so that the result of a sliding frame is available without visiting every value.
+    private NumberDataValue sum;
+    private long count;
+
     @Override
     public WindowFunction setup( ClassFactory cf, String aggregateName, DataTypeDescriptor returnType,
                                  FormatableHashtable functionSpecificArgs) {
@@ -42,40 +47,48 @@ public class SumAggregator extends SpliceGenericWindowFunction {
 
     @Override
     protected void calculateOnAdd(WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException{
-        DataValueDescriptor result = chunk.getResult();
-        if (result == null || result.isNull()) {
-            chunk.setResult(dvds[0].cloneValue(false));
-        } else {
-            NumberDataValue input = (NumberDataValue)dvds[0];
-            if (input != null && ! input.isNull()) {
-                NumberDataValue nv = (NumberDataValue) result.cloneValue(false);
-                nv.plus(input, nv, nv);
-                chunk.setResult(nv);
+        NumberDataValue input = (NumberDataValue)dvds[0];
+        if (input != null && ! input.isNull()) {
+            if (sum == null) {
+                sum = (NumberDataValue) input.cloneValue(false);
+            } else {
+                sum.plus(sum, input, sum);
             }
+            count++;
         }
     }
 
     @Override
     protected void calculateOnRemove(WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException {
-        DataValueDescriptor result = chunk.getResult();
+        // the running sum is maintained in onRemove
+    }
+
+    @Override
+    protected void onRemove(DataValueDescriptor[] dvds) throws StandardException {
         NumberDataValue input = (NumberDataValue)dvds[0];
         if (input != null && ! input.isNull()) {
-            NumberDataValue nv = (NumberDataValue) result.cloneValue(false);
-            nv.minus(nv, input, nv);
-            chunk.setResult(nv);
+            if (--count == 0) {
+                sum = null;
+            } else {
+                sum.minus(sum, input, sum);
+            }
         }
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        sum = null;
+        count = 0;
+    }
+
     @Override
     public DataValueDescriptor getResult() throws StandardException {
-        // Iterate through each chunk, compute the max/min of each chunk
-        WindowChunk first = chunks.get(0);
-        NumberDataValue result = (NumberDataValue)first.getResult().cloneValue(false);
-        for (int i = 1; i < chunks.size(); ++i) {
-            NumberDataValue dvd = (NumberDataValue)chunks.get(i).getResult();
-            result.plus(result, dvd, result);
+        if (sum == null) {
+            // SUM over no (non-null) values is NULL
+            return nullResult();
         }
-        return result;
+        return sum.cloneValue(false);
     }
 
     @Override
@@ -26,6 +26,8 @@ import com.splicemachine.EngineDriver;
 import com.splicemachine.SqlEnvironment;
 import com.splicemachine.access.api.DatabaseVersion;
 import com.splicemachine.access.api.SConfiguration;
+import com.splicemachine.concurrent.WorkloadClass;
+import com.splicemachine.concurrent.WorkloadScheduler;
 import com.splicemachine.db.iapi.reference.Property;
 import com.splicemachine.db.impl.jdbc.EmbedConnection;
 import com.splicemachine.derby.ddl.DDLDriver;
@@ -39,6 +41,7 @@ import com.splicemachine.pipeline.PipelineDriver;
 import com.splicemachine.pipeline.contextfactory.ContextFactoryDriver;
 import com.splicemachine.pipeline.contextfactory.ContextFactoryLoader;
 import com.splicemachine.pipeline.contextfactory.ReferenceCountingFactoryDriver;
+import com.splicemachine.pipeline.foreignkey.ForeignKeyParentCache;
 import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.tools.EmbedConnectionMaker;
 import com.splicemachine.tools.version.ManifestReader;
@@ -137,8 +140,19 @@ public class EngineLifecycleService implements DatabaseLifecycleService{
 
             ObjectName rollforward = new ObjectName("com.splicemachine.si.api.rollforward:type=RollForward");
             mbs.registerMBean(SIDriver.driver().getRollForward(),rollforward);
+            ObjectName conflictDetection = new ObjectName("com.splicemachine.si.impl.server:type=ConflictDetection");
+            mbs.registerMBean(SIDriver.driver().getConflictDetectionStatus(),conflictDetection);
             db.getDataDictionary().getDataDictionaryCache().registerJMX(mbs);
 
+            WorkloadScheduler workloadScheduler = SIDriver.driver().getWorkloadScheduler();
+            for(WorkloadClass workloadClass : WorkloadClass.values()){
+                ObjectName workload = new ObjectName("com.splicemachine.derby.lifecycle:type=WorkloadClass,name="+workloadClass.name());
+                mbs.registerMBean(workloadScheduler.getStatus(workloadClass),workload);
+            }
+
+            ObjectName fkParentCache = new ObjectName("com.splicemachine.pipeline.foreignkey:type=ForeignKeyParentCache");
+            mbs.registerMBean(ForeignKeyParentCache.instance(),fkParentCache);
+
 
         }catch(InstanceAlreadyExistsException ignored){
             /*
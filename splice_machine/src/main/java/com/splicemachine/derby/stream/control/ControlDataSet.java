@@ -15,6 +15,8 @@
 package com.splicemachine.derby.stream.control;
 
 import com.splicemachine.access.api.DistributedFileSystem;
+import com.splicemachine.concurrent.WorkloadClass;
+import com.splicemachine.concurrent.WorkloadScheduler;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.Activation;
 import com.splicemachine.db.iapi.sql.ResultColumnDescriptor;
@@ -52,6 +54,7 @@ import com.splicemachine.derby.stream.output.insert.InsertPipelineWriter;
 import com.splicemachine.derby.stream.output.insert.InsertTableWriterBuilder;
 import com.splicemachine.derby.stream.output.update.UpdatePipelineWriter;
 import com.splicemachine.derby.stream.output.update.UpdateTableWriterBuilder;
+import com.splicemachine.derby.utils.WorkloadClasses;
 import com.splicemachine.pipeline.Exceptions;
 import com.splicemachine.primitives.Bytes;
 import com.splicemachine.si.impl.driver.SIDriver;
@@ -87,7 +90,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 
 import static com.splicemachine.derby.stream.control.ControlUtils.checkCancellation;
@@ -279,10 +281,11 @@ public class ControlDataSet<V> implements DataSet<V> {
     @Override
     public DataSet<V> union(DataSet<V> dataSet, OperationContext operationContext) {
         try {
-            ExecutorService es = SIDriver.driver().getExecutorService();
+            WorkloadScheduler scheduler = SIDriver.driver().getWorkloadScheduler();
+            WorkloadClass workloadClass = WorkloadClasses.current();
             FutureIterator<V> futureIterator = new FutureIterator<>(2);
-            Future<Iterator<V>> leftSideFuture = es.submit(new NonLazy(iterator));
-            Future<Iterator<V>> rightSideFuture = es.submit(new NonLazy(((ControlDataSet<V>) dataSet).iterator));
+            Future<Iterator<V>> leftSideFuture = scheduler.submit(workloadClass, new NonLazy<V>(iterator));
+            Future<Iterator<V>> rightSideFuture = scheduler.submit(workloadClass, new NonLazy<V>(((ControlDataSet<V>) dataSet).iterator));
             futureIterator.appendFutureIterator(leftSideFuture);
             futureIterator.appendFutureIterator(rightSideFuture);
             return new ControlDataSet<>(futureIterator);
@@ -293,10 +296,11 @@ public class ControlDataSet<V> implements DataSet<V> {
 
     @Override
     public DataSet<V> parallelProbe(List<ScanSetBuilder<ExecRow>> scanSetBuilders, OperationContext<MultiProbeTableScanOperation> operationContext) {
-        ExecutorService es = SIDriver.driver().getExecutorService();
+        WorkloadScheduler scheduler = SIDriver.driver().getWorkloadScheduler();
+        WorkloadClass workloadClass = WorkloadClasses.current();
         FutureIterator<V> futureIterator = new FutureIterator<>(scanSetBuilders.size());
         for (ScanSetBuilder<ExecRow> scanSetBuilder: scanSetBuilders) {
-            futureIterator.appendFutureIterator(es.submit(new NonLazy(scanSetBuilder, operationContext.getOperation())));
+            futureIterator.appendFutureIterator(scheduler.submit(workloadClass, new NonLazy<V>(scanSetBuilder, operationContext.getOperation())));
         }
         return new ControlDataSet<>(futureIterator);
     }
@@ -491,19 +495,36 @@ public class ControlDataSet<V> implements DataSet<V> {
      */
     @Override
     public DataSet<V> windows(WindowContext windowContext, OperationContext operationContext, boolean pushScope, String scopeDetail) {
+        /*
+         * Sorting on the partition columns and then on the window keys brings the rows of each window partition
+         * together, in order, so the partitions can be streamed through the frame buffers one after another. The
+         * sort spills to disk, where grouping by partition would hold whole partitions on the heap.
+         */
+        int[] partitionColumns = windowContext.getPartitionColumns();
+        int[] keyColumns = windowContext.getKeyColumns();
+        boolean[] keyOrders = windowContext.getKeyOrders();
+        boolean[] nullOrderings = windowContext.getNullOrderings();
+        int[] sortColumns = new int[partitionColumns.length + keyColumns.length];
+        boolean[] descColumns = new boolean[sortColumns.length];
+        boolean[] nullsOrderedLow = new boolean[sortColumns.length];
+        for (int i = 0; i < partitionColumns.length; i++) {
+            sortColumns[i] = partitionColumns[i];
+            nullsOrderedLow[i] = true;
+        }
+        for (int i = 0; i < keyColumns.length; i++) {
+            int j = partitionColumns.length + i;
+            sortColumns[j] = keyColumns[i];
+            descColumns[j] = !keyOrders[i];
+            nullsOrderedLow[j] = nullOrderings[i];
+        }
 
-        operationContext.pushScopeForOp(OperationContext.Scope.SORT_KEYER);
-        KeyerFunction f = new KeyerFunction(operationContext, windowContext.getPartitionColumns());
-        PairDataSet pair = keyBy(f);
-        operationContext.popScope();
-
-        operationContext.pushScopeForOp(OperationContext.Scope.GROUP_AGGREGATE_KEYER);
-        pair = pair.groupByKey("Group Values For Each Key", operationContext);
+        operationContext.pushScopeForOp(OperationContext.Scope.SORT);
+        DataSet<V> sorted = orderBy(operationContext, sortColumns, descColumns, nullsOrderedLow);
         operationContext.popScope();
 
         operationContext.pushScopeForOp(OperationContext.Scope.EXECUTE);
         try {
-            return pair.flatmap(new MergeWindowFunction(operationContext, windowContext.getWindowFunctions()), true);
+            return sorted.mapPartitions(new MergeWindowFunction(operationContext, windowContext.getWindowFunctions()), true);
         } finally {
             operationContext.popScope();
         }
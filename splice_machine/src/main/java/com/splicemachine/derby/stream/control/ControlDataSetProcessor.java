@@ -25,7 +25,9 @@ import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
 import com.splicemachine.derby.impl.sql.execute.operations.scanner.TableScannerBuilder;
 import com.splicemachine.derby.stream.function.Partitioner;
 import com.splicemachine.derby.stream.iapi.*;
+import com.splicemachine.derby.stream.iterator.TableScannerBatchIterator;
 import com.splicemachine.derby.stream.iterator.TableScannerIterator;
+import com.splicemachine.derby.stream.vector.ColumnBatch;
 import com.splicemachine.derby.utils.marshall.KeyHashDecoder;
 import com.splicemachine.pipeline.Exceptions;
 import com.splicemachine.si.api.data.TxnOperationFactory;
@@ -110,13 +112,8 @@ public class ControlDataSetProcessor implements DataSetProcessor{
         return new TableScannerBuilder<V>(){
             @Override
             public DataSet<V> buildDataSet() throws StandardException{
-                Partition p;
                 try{
-                    p =SIDriver.driver().getTableFactory().getTable(tableName);
-                    TxnRegion localRegion=new TxnRegion(p,NoopRollForward.INSTANCE,NoOpReadResolver.INSTANCE,
-                            txnSupplier,transactory,txnOperationFactory);
-
-                    this.region(localRegion).scanner(p.openScanner(getScan(),metricFactory)); //set the scanner
+                    Partition p = openScanner();
                     TableScannerIterator tableScannerIterator=new TableScannerIterator(this,spliceOperation);
                     if(spliceOperation!=null){
                         spliceOperation.registerCloseable(tableScannerIterator);
@@ -127,6 +124,35 @@ public class ControlDataSetProcessor implements DataSetProcessor{
                     throw Exceptions.parseException(e);
                 }
             }
+
+            @Override
+            public boolean supportsBatches(){
+                return true;
+            }
+
+            @Override
+            public Iterator<ColumnBatch> buildBatches(int batchSize,int[] columns) throws StandardException{
+                try{
+                    Partition p = openScanner();
+                    TableScannerBatchIterator batchIterator=new TableScannerBatchIterator(this,spliceOperation,batchSize,columns);
+                    if(spliceOperation!=null){
+                        spliceOperation.registerCloseable(batchIterator);
+                        spliceOperation.registerCloseable(p);
+                    }
+                    return batchIterator;
+                }catch(IOException e){
+                    throw Exceptions.parseException(e);
+                }
+            }
+
+            private Partition openScanner() throws IOException{
+                Partition p =SIDriver.driver().getTableFactory().getTable(tableName);
+                TxnRegion localRegion=new TxnRegion(p,NoopRollForward.INSTANCE,NoOpReadResolver.INSTANCE,
+                        txnSupplier,transactory,txnOperationFactory);
+
+                this.region(localRegion).scanner(p.openScanner(getScan(),metricFactory)); //set the scanner
+                return p;
+            }
         };
     }
 
@@ -53,6 +53,8 @@ public class ControlOperationContext<Op extends SpliceOperation> implements Oper
         long rowsJoinedLeft;
         long rowsJoinedRight;
         long rowsProduced;
+        long spilledBytes;
+        long spilledRuns;
         List<String> badRecords;
         public ActivationHolder activationHolder;
         public SpliceTransactionResourceImpl impl;
@@ -272,6 +274,22 @@ public class ControlOperationContext<Op extends SpliceOperation> implements Oper
         return tooBusy;
     }
 
+    @Override
+    public void recordSpill(long bytes) {
+        spilledBytes+=bytes;
+        spilledRuns++;
+    }
+
+    @Override
+    public long getSpilledBytes() {
+        return spilledBytes;
+    }
+
+    @Override
+    public long getSpilledRuns() {
+        return spilledRuns;
+    }
+
     @Override
     public void pushScope(String displayName) {
         // no op
@@ -92,21 +92,15 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
     public <Op extends SpliceOperation> PairDataSet<K, V> reduceByKey(final SpliceFunction2<Op,V, V, V> function2) {
         final Iterator<Tuple2<K,V>> limitIterator = limit(checkCancellation(source,function2), function2.operationContext);
         return new ControlPairDataSet(new Iterator<Tuple2<K,V>>(){
-            private Iterator<Map.Entry<K,V>> set;
+            private Iterator<Tuple2<K,V>> set;
             @Override
             public boolean hasNext() {
                 if (set == null) {
                     try {
-                        HashMap<K, V> map = Maps.newHashMap();
-                        while (limitIterator.hasNext()) {
-                            Tuple2<K, V> t = limitIterator.next();
-                            if (map.containsKey(t._1())) {
-                                function2.call( map.get(t._1()),t._2());
-                            } else {
-                                map.put((K)((ExecRow)t._1).getClone(), function2.call(null,t._2()));
-                            }
-                        }
-                        set = map.entrySet().iterator();
+                        HybridHashTable<K, V> table = new HybridHashTable<>(function2::call,
+                                ControlUtils.memoryLimit(function2.operationContext), function2.operationContext);
+                        table.putAll(limitIterator);
+                        set = table.reduced();
                     } catch (Exception e) {
                         throw new RuntimeException(e);
                     }
@@ -116,8 +110,7 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
 
             @Override
             public Tuple2<K,V> next() {
-                Map.Entry<K,V> entry = set.next();
-                return Tuple2.apply(entry.getKey(),entry.getValue());
+                return set.next();
             }
 
             @Override
@@ -145,17 +138,11 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
     @Override
     public PairDataSet<K, V> sortByKey(final Comparator<K> comparator, OperationContext operationContext) {
         /*
-         * -sf- this is done a bit goofily, so that we can support multiple versions of guava.
-         *
-         * This is essentially copying out FluentIterable.from(source).toSortedList(comparator) logic
-         * directly into the method, so that we can support the same code line from 12.0.1 on.
+         * Sorts in memory up to the control-side memory limit, then spills sorted runs to local disk
+         * and merges them back, so large ORDER BYs and merge-sort joins don't have to fit on the heap.
          */
-        return new ControlPairDataSet<>(Ordering.from(new Comparator<Tuple2<K, V>>() {
-            @Override
-            public int compare(Tuple2<K, V> o1, Tuple2<K, V> o2) {
-                return comparator.compare(o1._1(), o2._1());
-            }
-        }).immutableSortedCopy(() -> limit(ControlUtils.checkCancellation(source,operationContext), operationContext)).iterator());
+        ExternalSorter<K,V> sorter = new ExternalSorter<>(comparator, ControlUtils.memoryLimit(operationContext), operationContext);
+        return new ControlPairDataSet<>(sorter.sort(limit(ControlUtils.checkCancellation(source,operationContext), operationContext)));
     }
 
     @Override
@@ -172,15 +159,13 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
 
     @Override
     public PairDataSet<K, Iterable<V>> groupByKey(OperationContext context) {
-        Multimap<K,V> newMap = multimapFromIterator(limit(ControlUtils.checkCancellation(source,context), context));
-        return new ControlPairDataSet<>(FluentIterable.from(newMap.asMap().entrySet()).transform(new Function<Map.Entry<K, Collection<V>>, Tuple2<K, Iterable<V>>>() {
-            @Nullable
-            @Override
-            public Tuple2<K, Iterable<V>> apply(@Nullable Map.Entry<K, Collection<V>> e) {
-                assert e!=null: "E cannot be null";
-                return new Tuple2<K, Iterable<V>>(e.getKey(), e.getValue());
-            }
-        }).iterator());
+        HybridHashTable<K,V> table = new HybridHashTable<>(ControlUtils.memoryLimit(context), context);
+        try {
+            table.putAll(limit(ControlUtils.checkCancellation(source,context), context));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        return new ControlPairDataSet<>(table.groups());
     }
 
     @Override
@@ -190,22 +175,14 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
 
     @Override
     public <W> PairDataSet< K, Tuple2<V, W>> hashJoin(PairDataSet<K, W> rightDataSet, OperationContext operationContext) {
-        // Materializes the right side
-        final Multimap<K,W> rightSide = multimapFromIterator(limit(ControlUtils.checkCancellation(((ControlPairDataSet<K,W>) rightDataSet).source,operationContext), operationContext));
-        return new ControlPairDataSet(Iterators.concat(Iterators.transform(ControlUtils.checkCancellation(source,operationContext),new Function<Tuple2<K, V>, Iterator<Tuple2<K, Tuple2<V, W>>>>() {
-            @Nullable
-            @Override
-            public Iterator<Tuple2<K, Tuple2<V, W>>> apply(@Nullable Tuple2<K, V> t) {
-                assert t!=null: "Tuple cannot be null";
-                List<Tuple2<K,Tuple2<V,W>>> result = new ArrayList<>();
-                K key = t._1();
-                V value = t._2();
-                for (W rightValue : rightSide.get(key)) {
-                    result.add(new Tuple2<>(key,new Tuple2<>(value,rightValue)));
-                }
-                return result.iterator();
-            }
-        })));
+        // Materializes the right side, spilling partitions which don't fit in memory
+        final HybridHashTable<K,W> rightSide = new HybridHashTable<>(ControlUtils.memoryLimit(operationContext), operationContext);
+        try {
+            rightSide.putAll(limit(ControlUtils.checkCancellation(((ControlPairDataSet<K,W>) rightDataSet).source,operationContext), operationContext));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        return new ControlPairDataSet<>(rightSide.probe(ControlUtils.checkCancellation(source,operationContext)));
     }
 
     @Override
@@ -278,16 +255,17 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
     
     @Override
     public <W> PairDataSet<K, Tuple2<Iterable<V>, Iterable<W>>> cogroup(PairDataSet<K, W> rightDataSet, OperationContext operationContext) {
-        Multimap<K, V> left = multimapFromIterator(limit(ControlUtils.checkCancellation(source,operationContext), operationContext));
-        Multimap<K, W> right = multimapFromIterator(limit(ControlUtils.checkCancellation(((ControlPairDataSet<K, W>) rightDataSet).source, operationContext), operationContext));
-
-        List<Tuple2<K, Tuple2<Iterable<V>, Iterable<W>>>> result = new ArrayList<>();
-        for (K key: Sets.union(left.keySet(),right.keySet())){
-            Collection<V> vs=left.get(key);
-            Collection<W> ws=right.get(key);
-            result.add(new Tuple2<>(key,new Tuple2<Iterable<V>, Iterable<W>>(vs,ws)));
+        // both sides are held at once, so each gets half of the memory budget
+        long memoryLimit = ControlUtils.memoryLimit(operationContext) / 2;
+        HybridHashTable<K, V> left = new HybridHashTable<>(memoryLimit, operationContext);
+        HybridHashTable<K, W> right = new HybridHashTable<>(memoryLimit, operationContext);
+        try {
+            left.putAll(limit(ControlUtils.checkCancellation(source,operationContext), operationContext));
+            right.putAll(limit(ControlUtils.checkCancellation(((ControlPairDataSet<K, W>) rightDataSet).source, operationContext), operationContext));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
         }
-        return new ControlPairDataSet<>(result.iterator());
+        return new ControlPairDataSet<>(HybridHashTable.cogroup(left, right));
     }
 
     @Override
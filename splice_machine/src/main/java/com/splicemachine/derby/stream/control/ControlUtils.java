@@ -14,14 +14,20 @@
 
 package com.splicemachine.derby.stream.control;
 
+import com.splicemachine.db.iapi.sql.Activation;
 import com.splicemachine.db.iapi.sql.conn.ControlExecutionLimiter;
+import com.splicemachine.db.iapi.sql.conn.SessionProperties;
 import com.splicemachine.db.iapi.sql.conn.StatementContext;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.derby.stream.function.AbstractSpliceFunction;
 import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.si.impl.driver.SIDriver;
 import org.spark_project.guava.base.Function;
 import org.spark_project.guava.collect.*;
 import scala.Tuple2;
 import javax.annotation.Nullable;
+import java.io.File;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
@@ -84,6 +90,59 @@ public class ControlUtils {
         }
     }
 
+    /**
+     * @return the number of bytes a memory-bounded control-side operator may buffer before spilling
+     * to disk. The CONTROLMEMORYLIMIT session property takes precedence over the
+     * {@code splice.controlExecution.memoryLimit} configuration; a value {@code <= 0} means "never spill".
+     */
+    public static long memoryLimit(OperationContext<?> context) {
+        Activation activation = context == null ? null : context.getActivation();
+        if (activation != null) {
+            Object sessionLimit = activation.getLanguageConnectionContext().getSessionProperties()
+                    .getProperty(SessionProperties.PROPERTYNAME.CONTROLMEMORYLIMIT);
+            if (sessionLimit instanceof Long)
+                return (Long) sessionLimit;
+        }
+        SIDriver driver = SIDriver.driver();
+        if (driver == null)
+            return 0L;
+        return driver.getConfiguration().getControlExecutionMemoryLimit();
+    }
+
+    /*
+     * Rough heap cost of a Tuple2 holding two rows, plus the slot referencing it
+     */
+    private static final int TUPLE_OVERHEAD = 48;
+    private static final int DEFAULT_OBJECT_SIZE = 64;
+
+    /**
+     * @return a rough estimate of the heap retained by a buffered key/value tuple, for memory accounting.
+     */
+    public static long estimateHeapSize(Tuple2<?,?> t) {
+        return TUPLE_OVERHEAD + estimateHeapSize(t._1()) + estimateHeapSize(t._2());
+    }
+
+    public static long estimateHeapSize(Object o) {
+        if (o instanceof ExecRow) {
+            long size = DEFAULT_OBJECT_SIZE;
+            DataValueDescriptor[] columns = ((ExecRow) o).getRowArray();
+            if (columns != null) {
+                for (DataValueDescriptor dvd : columns) {
+                    if (dvd != null)
+                        size += dvd.estimateMemoryUsage();
+                }
+            }
+            return size;
+        }
+        return DEFAULT_OBJECT_SIZE;
+    }
+
+    public static File spillDirectory() {
+        SIDriver driver = SIDriver.driver();
+        String dir = driver == null ? null : driver.getConfiguration().getControlExecutionSpillDirectory();
+        return new File(dir != null ? dir : System.getProperty("java.io.tmpdir"));
+    }
+
     public static <E> Iterator<E> checkCancellation(Iterator<E> iterator, AbstractSpliceFunction f) {
         return checkCancellation(iterator, f.operationContext);
     }
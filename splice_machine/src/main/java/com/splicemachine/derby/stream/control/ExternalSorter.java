@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.SpliceKryoRegistry;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.utils.SpliceLogUtils;
+import com.splicemachine.utils.kryo.KryoPool;
+import org.apache.log4j.Logger;
+import scala.Tuple2;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Bounded-memory sort for the control side.
+ *
+ * Rows are buffered on the heap until their estimated size exceeds the memory limit, at which point
+ * the buffer is sorted and written to a local {@link SpillFile} as a run of Kryo-encoded tuples. Once the
+ * source is exhausted the spilled runs and the final in-memory run are merged with a k-way merge.
+ * If there are more runs than {@link #MAX_MERGE_FAN_IN}, runs are pre-merged in passes so that the
+ * number of open files stays bounded. Only the initial runs are recorded as spills against the operation
+ * context: a pre-merge pass rewrites rows which were already spilled, and counting them again would
+ * overstate how much the sort spilled.
+ *
+ * The sort is stable: ties are broken by run order, and runs are produced in input order.
+ */
+public class ExternalSorter<K,V> {
+    private static final Logger LOG = Logger.getLogger(ExternalSorter.class);
+
+    static final int MAX_MERGE_FAN_IN = 64;
+
+    private final Comparator<K> comparator;
+    private final long memoryLimit;
+    private final File spillDirectory;
+    private final OperationContext<?> context;
+    private final KryoPool kryoPool;
+
+    private final List<SpillFile<K,V>> runs = new ArrayList<>();
+    private long spilledBytes;
+
+    public ExternalSorter(Comparator<K> comparator, long memoryLimit, OperationContext<?> context) {
+        this(comparator, memoryLimit, ControlUtils.spillDirectory(), context, SpliceKryoRegistry.getInstance());
+    }
+
+    public ExternalSorter(Comparator<K> comparator,
+                          long memoryLimit,
+                          File spillDirectory,
+                          OperationContext<?> context,
+                          KryoPool kryoPool) {
+        this.comparator = comparator;
+        this.memoryLimit = memoryLimit;
+        this.spillDirectory = spillDirectory;
+        this.context = context;
+        this.kryoPool = kryoPool;
+    }
+
+    /**
+     * Consume {@code source} entirely and return an iterator over its tuples, sorted by key.
+     */
+    public Iterator<Tuple2<K,V>> sort(Iterator<Tuple2<K,V>> source) {
+        List<Tuple2<K,V>> buffer = new ArrayList<>();
+        long bufferedBytes = 0L;
+        try {
+            while (source.hasNext()) {
+                Tuple2<K,V> t = source.next();
+                buffer.add(t);
+                if (memoryLimit > 0) {
+                    bufferedBytes += ControlUtils.estimateHeapSize(t);
+                    if (bufferedBytes >= memoryLimit) {
+                        sortBuffer(buffer);
+                        runs.add(spill(buffer.iterator(), context));
+                        buffer = new ArrayList<>();
+                        bufferedBytes = 0L;
+                    }
+                }
+            }
+            sortBuffer(buffer);
+            if (runs.isEmpty())
+                return buffer.iterator();
+
+            while (runs.size() + 1 > MAX_MERGE_FAN_IN) {
+                List<SpillFile<K,V>> toMerge = new ArrayList<>(runs.subList(0, MAX_MERGE_FAN_IN));
+                runs.removeAll(toMerge);
+                MergingIterator merged = merge(toMerge, Collections.<Tuple2<K,V>>emptyIterator());
+                try {
+                    runs.add(0, spill(merged, null));
+                } finally {
+                    merged.close();
+                }
+            }
+            if (LOG.isDebugEnabled())
+                SpliceLogUtils.debug(LOG, "merging %d spilled runs (%d bytes) with %d in-memory rows",
+                        runs.size(), spilledBytes, buffer.size());
+            List<SpillFile<K,V>> finalRuns = new ArrayList<>(runs);
+            runs.clear();
+            return merge(finalRuns, buffer.iterator());
+        } catch (IOException ioe) {
+            deleteRuns();
+            throw new RuntimeException(ioe);
+        } catch (RuntimeException re) {
+            deleteRuns();
+            throw re;
+        }
+    }
+
+    /**
+     * @return the bytes written by the initial runs, not counting pre-merge passes
+     */
+    public long getSpilledBytes() {
+        return spilledBytes;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void sortBuffer(List<Tuple2<K,V>> buffer) {
+        // List.sort is a stable merge sort, same as Ordering.immutableSortedCopy
+        buffer.sort(new Comparator<Tuple2<K, V>>() {
+            @Override
+            public int compare(Tuple2<K, V> o1, Tuple2<K, V> o2) {
+                return comparator.compare(o1._1(), o2._1());
+            }
+        });
+    }
+
+    /**
+     * @param spillContext the context to record the run against, or {@code null} if its rows were spilled before
+     */
+    private SpillFile<K,V> spill(Iterator<Tuple2<K,V>> sorted, OperationContext<?> spillContext) throws IOException {
+        SpillFile<K,V> run = new SpillFile<>(spillDirectory, "splice-sort-", kryoPool, spillContext);
+        try {
+            while (sorted.hasNext()) {
+                Tuple2<K,V> t = sorted.next();
+                run.append(t._1(), t._2());
+            }
+            long bytes = run.finish();
+            if (spillContext != null)
+                spilledBytes += bytes;
+        } catch (RuntimeException re) {
+            run.delete();
+            throw re;
+        }
+        return run;
+    }
+
+    private MergingIterator merge(List<SpillFile<K,V>> files, Iterator<Tuple2<K,V>> inMemory) throws IOException {
+        List<RunReader> readers = new ArrayList<>(files.size() + 1);
+        try {
+            for (SpillFile<K,V> file : files) {
+                SpillFile<K,V>.Reader reader = file.read();
+                readers.add(new RunReader(readers.size(), reader, reader));
+            }
+        } catch (IOException ioe) {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+            for (SpillFile<K,V> file : files) {
+                file.delete();
+            }
+            throw ioe;
+        }
+        readers.add(new RunReader(readers.size(), inMemory, null));
+        return new MergingIterator(readers);
+    }
+
+    private void deleteRuns() {
+        for (SpillFile<K,V> run : runs) {
+            run.delete();
+        }
+        runs.clear();
+    }
+
+    /**
+     * A sorted run, positioned on its current head tuple.
+     */
+    private class RunReader implements Closeable {
+        final int runIndex;
+        private final Iterator<Tuple2<K,V>> source;
+        private final Closeable resource;
+        Tuple2<K,V> head;
+
+        RunReader(int runIndex, Iterator<Tuple2<K,V>> source, Closeable resource) {
+            this.runIndex = runIndex;
+            this.source = source;
+            this.resource = resource;
+        }
+
+        boolean advance() {
+            head = source.hasNext() ? source.next() : null;
+            return head != null;
+        }
+
+        @Override
+        public void close() {
+            head = null;
+            if (resource != null) {
+                try {
+                    resource.close();
+                } catch (IOException ioe) {
+                    LOG.warn("unable to close sorted run", ioe);
+                }
+            }
+        }
+    }
+
+    /**
+     * K-way merge over a set of sorted runs. Spill files are removed as soon as they are opened.
+     */
+    private class MergingIterator implements Iterator<Tuple2<K,V>>, Closeable {
+        private final PriorityQueue<RunReader> heap;
+        private final List<RunReader> readers;
+
+        MergingIterator(List<RunReader> readers) {
+            this.readers = readers;
+            this.heap = new PriorityQueue<>(Math.max(1, readers.size()), new Comparator<RunReader>() {
+                @Override
+                public int compare(RunReader o1, RunReader o2) {
+                    int c = comparator.compare(o1.head._1(), o2.head._1());
+                    return c != 0 ? c : Integer.compare(o1.runIndex, o2.runIndex);
+                }
+            });
+            try {
+                for (RunReader reader : readers) {
+                    if (reader.advance())
+                        heap.add(reader);
+                }
+            } catch (RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heap.isEmpty();
+        }
+
+        @Override
+        public Tuple2<K,V> next() {
+            RunReader reader = heap.poll();
+            if (reader == null)
+                throw new NoSuchElementException();
+            Tuple2<K,V> next = reader.head;
+            try {
+                if (reader.advance())
+                    heap.add(reader);
+            } catch (RuntimeException e) {
+                close();
+                throw e;
+            }
+            return next;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Not Implemented");
+        }
+
+        @Override
+        public void close() {
+            heap.clear();
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,445 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.SpliceKryoRegistry;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.utils.SpliceLogUtils;
+import com.splicemachine.utils.kryo.KryoPool;
+import org.apache.log4j.Logger;
+import org.spark_project.guava.base.Function;
+import org.spark_project.guava.collect.AbstractIterator;
+import org.spark_project.guava.collect.Iterators;
+import org.spark_project.guava.collect.Sets;
+import scala.Tuple2;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * A memory-bounded hash table for the control side, used for grouping, reducing and hash joins.
+ *
+ * Rows are hash partitioned into {@link #NUM_PARTITIONS} partitions. As long as the estimated heap used by
+ * the table stays under the memory limit every partition is kept in memory; once the limit is exceeded the
+ * largest in-memory partition is written to a {@link SpillFile}, and from then on all rows hashing to that
+ * partition go straight to disk. When the table is consumed, in-memory partitions are served directly and
+ * each spilled partition is read back into a new table one level down, which partitions on different hash
+ * bits and may spill again. Past {@link #MAX_LEVEL} levels (e.g. for a single huge key) the table no longer
+ * spills. The rows a table still holds when it reloads a partition count against the new table's budget, and
+ * partitions are released as soon as they have been consumed, so the tables of all levels together stay
+ * within the memory limit (give or take a minimum share per table, see {@link #childMemoryLimit}).
+ *
+ * When a reducer is supplied, each key holds a single accumulated value instead of a list of values. A
+ * spilled partition then contains partial accumulations, which are merged again with the reducer when the
+ * partition is read back; this relies on the reducer being able to merge partial results, as Spark's
+ * reduceByKey does.
+ */
+public class HybridHashTable<K,V> {
+    private static final Logger LOG = Logger.getLogger(HybridHashTable.class);
+
+    static final int NUM_PARTITIONS = 32;
+    static final int MAX_LEVEL = 4;
+    /*
+     * Rough heap cost of a hash map entry plus its value list
+     */
+    private static final int ENTRY_OVERHEAD = 80;
+
+    public interface Reducer<V> {
+        /**
+         * @param accumulator the current value for the key, or {@code null} for the first value seen
+         * @return the new value for the key
+         */
+        V reduce(V accumulator, V value) throws Exception;
+    }
+
+    private final Reducer<V> reducer;
+    private final long memoryLimit;
+    private final int level;
+    private final File spillDirectory;
+    private final OperationContext<?> context;
+    private final KryoPool kryoPool;
+    private final Partition[] partitions;
+    private long memoryUsed;
+
+    public HybridHashTable(long memoryLimit, OperationContext<?> context) {
+        this(null, memoryLimit, context);
+    }
+
+    public HybridHashTable(Reducer<V> reducer, long memoryLimit, OperationContext<?> context) {
+        this(reducer, memoryLimit, 0, ControlUtils.spillDirectory(), context, SpliceKryoRegistry.getInstance());
+    }
+
+    HybridHashTable(Reducer<V> reducer,
+                    long memoryLimit,
+                    int level,
+                    File spillDirectory,
+                    OperationContext<?> context,
+                    KryoPool kryoPool) {
+        this.reducer = reducer;
+        this.memoryLimit = memoryLimit;
+        this.level = level;
+        this.spillDirectory = spillDirectory;
+        this.context = context;
+        this.kryoPool = kryoPool;
+        this.partitions = new HybridHashTable.Partition[NUM_PARTITIONS];
+        for (int i = 0; i < NUM_PARTITIONS; i++) {
+            partitions[i] = new Partition();
+        }
+    }
+
+    public void putAll(Iterator<Tuple2<K,V>> source) throws Exception {
+        while (source.hasNext()) {
+            Tuple2<K,V> t = source.next();
+            put(t._1(), t._2());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void put(K key, V value) throws Exception {
+        Partition partition = partitions[partitionOf(key)];
+        if (partition.spill != null) {
+            partition.spill.append(key, value);
+            return;
+        }
+        List<V> values = partition.rows.get(key);
+        long size;
+        if (values == null) {
+            if (reducer != null && key instanceof ExecRow) {
+                // keys may be reused by the source; we keep them past the current row
+                key = (K) ((ExecRow) key).getClone();
+            }
+            values = new ArrayList<>(1);
+            partition.rows.put(key, values);
+            size = ENTRY_OVERHEAD + ControlUtils.estimateHeapSize(key) + ControlUtils.estimateHeapSize(value);
+        } else {
+            size = reducer != null ? 0L : ControlUtils.estimateHeapSize(value);
+        }
+        if (reducer != null) {
+            V accumulator = values.isEmpty() ? null : values.get(0);
+            V reduced = reducer.reduce(accumulator, value);
+            if (values.isEmpty())
+                values.add(reduced);
+            else
+                values.set(0, reduced);
+        } else {
+            values.add(value);
+        }
+        partition.bytes += size;
+        memoryUsed += size;
+        if (memoryLimit > 0 && memoryUsed > memoryLimit && level < MAX_LEVEL) {
+            spillLargestPartition();
+        }
+    }
+
+    /**
+     * @return the values for {@code key}, or an empty list if there are none. The key's partition must not be spilled.
+     */
+    public List<V> get(K key) {
+        Partition partition = partitions[partitionOf(key)];
+        assert partition.spill == null: "Partition for key is spilled";
+        List<V> values = partition.rows.get(key);
+        return values == null ? Collections.<V>emptyList() : values;
+    }
+
+    public boolean isSpilled(K key) {
+        return partitions[partitionOf(key)].spill != null;
+    }
+
+    public boolean hasSpilled() {
+        for (Partition partition : partitions) {
+            if (partition.spill != null)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Consume the table, one group per key. Spilled partitions are only read back once the partitions
+     * before them have been consumed.
+     */
+    public Iterator<Tuple2<K,Iterable<V>>> groups() {
+        return Iterators.concat(new AbstractIterator<Iterator<Tuple2<K,Iterable<V>>>>() {
+            private int next = 0;
+
+            @Override
+            protected Iterator<Tuple2<K,Iterable<V>>> computeNext() {
+                if (next > 0)
+                    release(next - 1);
+                while (next < NUM_PARTITIONS) {
+                    Partition partition = partitions[next];
+                    int p = next++;
+                    if (partition.spill == null) {
+                        if (partition.rows.isEmpty())
+                            continue;
+                        return inMemoryGroups(partition);
+                    }
+                    return reload(p).groups();
+                }
+                return endOfData();
+            }
+        });
+    }
+
+    /**
+     * Consume the table (which must have been built with a reducer), one reduced value per key.
+     */
+    public Iterator<Tuple2<K,V>> reduced() {
+        assert reducer != null: "Table was not built with a reducer";
+        return Iterators.transform(groups(), t -> new Tuple2<>(t._1(), t._2().iterator().next()));
+    }
+
+    /**
+     * Inner join {@code probeSide} against this table. Probe rows whose partition was spilled are
+     * themselves spilled, and joined against the reloaded partition once the probe side is exhausted.
+     *
+     * @return the joined rows, as (key, (probe value, build value))
+     */
+    public <L> Iterator<Tuple2<K,Tuple2<L,V>>> probe(Iterator<Tuple2<K,L>> probeSide) {
+        final List<SpillFile<K,L>> probeSpills = new ArrayList<>(Collections.<SpillFile<K,L>>nCopies(NUM_PARTITIONS, null));
+        final Function<Tuple2<K,L>, Iterator<Tuple2<K,Tuple2<L,V>>>> probeFunction = t -> {
+            K key = t._1();
+            int p = partitionOf(key);
+            Partition partition = partitions[p];
+            if (partition.spill == null) {
+                List<V> values = partition.rows.get(key);
+                if (values == null)
+                    return Collections.<Tuple2<K,Tuple2<L,V>>>emptyIterator();
+                return Iterators.transform(values.iterator(), v -> new Tuple2<>(key, new Tuple2<>(t._2(), v)));
+            }
+            try {
+                SpillFile<K,L> probeSpill = probeSpills.get(p);
+                if (probeSpill == null) {
+                    probeSpill = newSpillFile();
+                    probeSpills.set(p, probeSpill);
+                }
+                probeSpill.append(key, t._2());
+            } catch (IOException ioe) {
+                throw new RuntimeException(ioe);
+            }
+            return Collections.<Tuple2<K,Tuple2<L,V>>>emptyIterator();
+        };
+        final Iterator<Tuple2<K,Tuple2<L,V>>> inMemoryMatches = Iterators.concat(Iterators.transform(probeSide, probeFunction));
+        return Iterators.concat(new AbstractIterator<Iterator<Tuple2<K,Tuple2<L,V>>>>() {
+            private int next = -1;
+
+            @Override
+            protected Iterator<Tuple2<K,Tuple2<L,V>>> computeNext() {
+                if (next < 0) {
+                    next = 0;
+                    return inMemoryMatches;
+                }
+                if (next == 0) {
+                    // the probe side is exhausted, only the spilled partitions are still needed
+                    for (int p = 0; p < NUM_PARTITIONS; p++) {
+                        release(p);
+                    }
+                }
+                while (next < NUM_PARTITIONS) {
+                    int p = next++;
+                    Partition partition = partitions[p];
+                    if (partition.spill == null)
+                        continue;
+                    SpillFile<K,L> probeSpill = probeSpills.get(p);
+                    if (probeSpill == null) {
+                        // nothing on the probe side can match this partition
+                        partition.spill.delete();
+                        partition.spill = null;
+                        continue;
+                    }
+                    try {
+                        return reload(p).probe(probeSpill.read());
+                    } catch (IOException ioe) {
+                        throw new RuntimeException(ioe);
+                    }
+                }
+                return endOfData();
+            }
+        });
+    }
+
+    /**
+     * Full outer group of two tables with the same level and partitioning, by key.
+     */
+    public static <K,V,W> Iterator<Tuple2<K,Tuple2<Iterable<V>,Iterable<W>>>> cogroup(final HybridHashTable<K,V> left,
+                                                                                      final HybridHashTable<K,W> right) {
+        assert left.level == right.level: "Cannot cogroup tables at different levels";
+        return Iterators.concat(new AbstractIterator<Iterator<Tuple2<K,Tuple2<Iterable<V>,Iterable<W>>>>>() {
+            private int next = 0;
+
+            @Override
+            protected Iterator<Tuple2<K,Tuple2<Iterable<V>,Iterable<W>>>> computeNext() {
+                if (next > 0) {
+                    left.release(next - 1);
+                    right.release(next - 1);
+                }
+                while (next < NUM_PARTITIONS) {
+                    int p = next++;
+                    HybridHashTable<K,V>.Partition l = left.partitions[p];
+                    HybridHashTable<K,W>.Partition r = right.partitions[p];
+                    if (l.spill == null && r.spill == null) {
+                        if (l.rows.isEmpty() && r.rows.isEmpty())
+                            continue;
+                        final Map<K,List<V>> leftRows = l.rows;
+                        final Map<K,List<W>> rightRows = r.rows;
+                        return Iterators.transform(Sets.union(leftRows.keySet(), rightRows.keySet()).iterator(), key -> {
+                            List<V> vs = leftRows.get(key);
+                            List<W> ws = rightRows.get(key);
+                            return new Tuple2<>(key, new Tuple2<Iterable<V>,Iterable<W>>(
+                                    vs == null ? Collections.<V>emptyList() : vs,
+                                    ws == null ? Collections.<W>emptyList() : ws));
+                        });
+                    }
+                    return cogroup(left.reload(p), right.reload(p));
+                }
+                return endOfData();
+            }
+        });
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private int partitionOf(K key) {
+        int h = key == null ? 0 : key.hashCode();
+        // mix differently at each level, so that a spilled partition splits up when it's reloaded
+        h += level * 0x9E3779B9;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return (h & Integer.MAX_VALUE) % NUM_PARTITIONS;
+    }
+
+    private Iterator<Tuple2<K,Iterable<V>>> inMemoryGroups(final Partition partition) {
+        final Iterator<Map.Entry<K,List<V>>> entries = partition.rows.entrySet().iterator();
+        return new Iterator<Tuple2<K,Iterable<V>>>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public Tuple2<K,Iterable<V>> next() {
+                Map.Entry<K,List<V>> e = entries.next();
+                // release rows as they are handed out
+                entries.remove();
+                return new Tuple2<K,Iterable<V>>(e.getKey(), e.getValue());
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Not Implemented");
+            }
+        };
+    }
+
+    private void spillLargestPartition() throws IOException {
+        Partition largest = null;
+        for (Partition partition : partitions) {
+            if (partition.spill == null && (largest == null || partition.bytes > largest.bytes))
+                largest = partition;
+        }
+        if (largest == null || largest.bytes == 0)
+            return;
+        if (LOG.isDebugEnabled())
+            SpliceLogUtils.debug(LOG, "spilling partition of %d bytes (%d keys) at level %d",
+                    largest.bytes, largest.rows.size(), level);
+        SpillFile<K,V> spill = newSpillFile();
+        try {
+            for (Map.Entry<K,List<V>> entry : largest.rows.entrySet()) {
+                for (V value : entry.getValue()) {
+                    spill.append(entry.getKey(), value);
+                }
+            }
+        } catch (RuntimeException re) {
+            spill.delete();
+            throw re;
+        }
+        largest.spill = spill;
+        largest.rows = Collections.emptyMap();
+        memoryUsed -= largest.bytes;
+        largest.bytes = 0L;
+    }
+
+    /**
+     * Read a partition back into a table one level down. The partition is emptied.
+     */
+    private HybridHashTable<K,V> reload(int p) {
+        Partition partition = partitions[p];
+        HybridHashTable<K,V> child = new HybridHashTable<>(reducer, childMemoryLimit(partition), level + 1, spillDirectory,
+                context, kryoPool);
+        try {
+            if (partition.spill != null) {
+                SpillFile<K,V>.Reader reader = partition.spill.read();
+                try {
+                    child.putAll(reader);
+                } finally {
+                    reader.close();
+                }
+                partition.spill = null;
+            } else {
+                for (Map.Entry<K,List<V>> entry : partition.rows.entrySet()) {
+                    for (V value : entry.getValue()) {
+                        child.put(entry.getKey(), value);
+                    }
+                }
+                memoryUsed -= partition.bytes;
+                partition.rows = new HashMap<>();
+                partition.bytes = 0L;
+            }
+        } catch (RuntimeException re) {
+            throw re;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        return child;
+    }
+
+    /**
+     * The budget of a table reloading {@code partition}: whatever this table's rows, other than the ones moving
+     * to the new table, leave of its own. So that a table whose budget is exhausted can still make progress,
+     * the new table gets at least a partition's share of the memory limit.
+     */
+    private long childMemoryLimit(Partition partition) {
+        if (memoryLimit <= 0)
+            return memoryLimit;
+        long resident = memoryUsed - partition.bytes;
+        return Math.max(memoryLimit - resident, Math.max(1L, memoryLimit / NUM_PARTITIONS));
+    }
+
+    /**
+     * Drop a consumed in-memory partition, so it no longer counts against the budget.
+     */
+    private void release(int p) {
+        Partition partition = partitions[p];
+        if (partition.spill == null && partition.bytes > 0) {
+            memoryUsed -= partition.bytes;
+            partition.rows = new HashMap<>();
+            partition.bytes = 0L;
+        }
+    }
+
+    private <T> SpillFile<K,T> newSpillFile() throws IOException {
+        return new SpillFile<>(spillDirectory, "splice-hash-", kryoPool, context);
+    }
+
+    private class Partition {
+        private Map<K,List<V>> rows = new HashMap<>();
+        private long bytes;
+        private SpillFile<K,V> spill;
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.utils.SpliceLogUtils;
+import com.splicemachine.utils.kryo.KryoPool;
+import org.apache.log4j.Logger;
+import scala.Tuple2;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An append-only local file of Kryo-encoded key/value tuples, used by the memory-bounded
+ * control-side operators to spill rows which don't fit in their memory budget.
+ *
+ * A spill file is written once and then read back once; the file is removed from disk as soon as it
+ * is opened for reading (or when it's discarded), so an abandoned reader doesn't leak disk space.
+ */
+class SpillFile<K,V> {
+    private static final Logger LOG = Logger.getLogger(SpillFile.class);
+    private static final int BUFFER_SIZE = 64*1024;
+
+    private final File file;
+    private final KryoPool kryoPool;
+    private final OperationContext<?> context;
+
+    private Output output;
+    private Kryo kryo;
+    private long bytes;
+    private long count;
+
+    SpillFile(File directory, String prefix, KryoPool kryoPool, OperationContext<?> context) throws IOException {
+        this.file = Files.createTempFile(directory.toPath(), prefix, ".spill").toFile();
+        this.kryoPool = kryoPool;
+        this.context = context;
+        try {
+            this.output = new Output(new FileOutputStream(file), BUFFER_SIZE);
+        } catch (IOException ioe) {
+            delete();
+            throw ioe;
+        }
+        this.kryo = kryoPool.get();
+    }
+
+    void append(K key, V value) {
+        assert output != null: "Spill file " + file + " is already finished";
+        output.writeBoolean(true);
+        kryo.writeClassAndObject(output, key);
+        kryo.writeClassAndObject(output, value);
+        count++;
+    }
+
+    long count() {
+        return count;
+    }
+
+    /**
+     * Stop writing; the spill is recorded against the operation context.
+     *
+     * @return the number of bytes written to disk
+     */
+    long finish() {
+        if (output != null) {
+            try {
+                output.writeBoolean(false);
+                output.close();
+                bytes = output.total();
+            } finally {
+                output = null;
+                kryoPool.returnInstance(kryo);
+                kryo = null;
+            }
+            if (context != null)
+                context.recordSpill(bytes);
+            if (LOG.isDebugEnabled())
+                SpliceLogUtils.debug(LOG, "spilled %d rows (%d bytes) to %s", count, bytes, file);
+        }
+        return bytes;
+    }
+
+    /**
+     * Finish writing if necessary, and open the file for a single pass read.
+     */
+    Reader read() throws IOException {
+        finish();
+        return new Reader();
+    }
+
+    void delete() {
+        if (output != null) {
+            output.close();
+            output = null;
+            kryoPool.returnInstance(kryo);
+            kryo = null;
+        }
+        if (!file.delete() && file.exists())
+            LOG.warn("unable to delete spill file " + file);
+    }
+
+    class Reader implements Iterator<Tuple2<K,V>>, Closeable {
+        private final Input input;
+        private Kryo readKryo;
+        private Tuple2<K,V> next;
+
+        Reader() throws IOException {
+            this.input = new Input(new FileInputStream(file), BUFFER_SIZE);
+            this.readKryo = kryoPool.get();
+            // unlink right away; we keep the open descriptor. Where the platform refuses, we retry in close()
+            file.delete();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean hasNext() {
+            if (next != null)
+                return true;
+            if (readKryo == null)
+                return false;
+            if (!input.readBoolean()) {
+                close();
+                return false;
+            }
+            K key = (K) readKryo.readClassAndObject(input);
+            V value = (V) readKryo.readClassAndObject(input);
+            next = new Tuple2<>(key, value);
+            return true;
+        }
+
+        @Override
+        public Tuple2<K,V> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            Tuple2<K,V> n = next;
+            next = null;
+            return n;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Not Implemented");
+        }
+
+        @Override
+        public void close() {
+            if (readKryo != null) {
+                kryoPool.returnInstance(readKryo);
+                readKryo = null;
+                input.close();
+                delete();
+            }
+        }
+    }
+}
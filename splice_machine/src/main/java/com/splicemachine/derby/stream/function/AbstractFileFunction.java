@@ -150,7 +150,6 @@ public abstract class AbstractFileFunction<I> extends SpliceFlatMapFunction<Spli
         int numofColumnsinTable = 0;
         int numofColumnsinFile = 0;
         boolean columnnumbermistmatch = false;
-        boolean convertTimestamps = false;
 
         if (operationContext != null)
             operationContext.recordRead();
@@ -166,98 +165,162 @@ public abstract class AbstractFileFunction<I> extends SpliceFlatMapFunction<Spli
                 throw StandardException.newException(SQLState.COLUMN_NUMBER_MISMATCH, returnRow.nColumns(), values.size());
             }
 
-            DataTypeDescriptor[] dataTypeDescriptors = null;
-            if (operationContext != null && operationContext.getOperation() instanceof VTIOperation) {
-                VTIOperation op = (VTIOperation) operationContext.getOperation();
-                dataTypeDescriptors = op.getResultColumnTypes();
-
-                if (op.isConvertTimestampsEnabled() &&
-                    op.getActivation().getResultSet() != null &&
-                    op.getActivation().getResultSet() instanceof InsertOperation) {
-
-                    InsertOperation insOp = (InsertOperation)op.getActivation().getResultSet();
-                    String tableVersion = insOp.getTableVersion();
-                    if (tableVersion.equals("2.0"))
-                        convertTimestamps = true;
-                }
-            }
+            DataTypeDescriptor[] dataTypeDescriptors = getResultColumnTypes(operationContext);
+            boolean convertTimestamps = isConvertTimestamps(operationContext);
 
             numofColumnsinTable = returnRow.nColumns();
             numofColumnsinFile = values.size();
             for (int i = 1; i <= returnRow.nColumns(); i++) {
                 DataValueDescriptor dvd = returnRow.getColumn(i);
                 columnID = i;
-                int type = dvd.getTypeFormatId();
 
                 String value = values.get(i - 1);
                 if (shouldBeNull(value,quotedColumns.valueAt(i-1)))
                     value = null;
                 columnValue = value;
-                switch(type){
-                    case StoredFormatIds.SQL_TIME_ID:
-                        if(calendar==null)
-                            calendar = new GregorianCalendar();
-                        if (timeFormat == null || value==null){
-                            ((DateTimeDataValue)dvd).setValue(value,calendar);
-                        }else
-                            dvd.setValue(SpliceDateFunctions.TO_TIME(value, timeFormat),calendar);
-                        break;
-                    case StoredFormatIds.SQL_DATE_ID:
-                        if(calendar==null)
-                            calendar = new GregorianCalendar();
-                        if (dateTimeFormat == null || value == null)
-                            ((DateTimeDataValue)dvd).setValue(value,calendar);
-                        else
-                            dvd.setValue(TO_DATE(value, dateTimeFormat, dateFormatter),calendar);
-                        break;
-                    case StoredFormatIds.SQL_TIMESTAMP_ID:
-                        if(calendar==null)
-                            calendar = new GregorianCalendar();
-                        if (timestampFormat == null || value==null)
-                            ((DateTimeDataValue)dvd).setValue(value,calendar);
-                        else {
-                            Timestamp ts = SpliceDateFunctions.TO_TIMESTAMP(value, timestampFormat);
-                            if (convertTimestamps)
-                                ts = SQLTimestamp.convertTimeStamp(ts);
-                            dvd.setValue(ts, calendar);
-                        }
-                        break;
-                    case StoredFormatIds.SQL_CHAR_ID:
-                    case StoredFormatIds.SQL_VARCHAR_ID:
-                    case StoredFormatIds.SQL_CLOB_ID:
-                        dvd.setValue(value);
-                        //normalize the char type
-                        if(dataTypeDescriptors != null && !dvd.isNull()){
-                            dvd.normalize(dataTypeDescriptors[i-1], dvd);
-                        }
-                        break;
-                    default:
-                        dvd.setValue(value);
-                }
+                if (calendar == null && isDateTimeType(dvd.getTypeFormatId()))
+                    calendar = new GregorianCalendar();
+                setColumnValue(dvd, value, dataTypeDescriptors == null ? null : dataTypeDescriptors[i - 1],
+                        calendar, timeFormat, dateTimeFormat, timestampFormat, dateFormatter, convertTimestamps);
             }
             return returnRow;
         } catch (Exception e) {
             if (operationContext != null && operationContext.isPermissive()) {
-                String extendedMessage;
-                if (columnnumbermistmatch)
-                    extendedMessage = " row Data: " + values;
-                else
-                    extendedMessage = " [Columns in Table: " + numofColumnsinTable + "] [Columns in File: " + numofColumnsinFile + "] [Bad Column ID: " + columnID + "] "+ "[Bad Column Value: " + columnValue + "]" + " row Data: " + values;
-                operationContext.recordBadRecord(e.getLocalizedMessage() + extendedMessage, e);
+                operationContext.recordBadRecord(badRecordMessage(e, columnnumbermistmatch, values,
+                        numofColumnsinTable, numofColumnsinFile, columnID, columnValue), e);
                 return null;
             }
             throw e; // Not Permissive of errors
         }
     }
 
+    /**
+     * Sets a single column from its textual value, applying the import's date and time formats.
+     *
+     * @param dvd the column to set
+     * @param value the value, or {@code null} if the column should be null
+     * @param dataTypeDescriptor the type character columns are normalized to, or {@code null} to skip normalization
+     * @param calendar the calendar to use for date and time columns. May be {@code null} for other types
+     */
+    public static void setColumnValue(DataValueDescriptor dvd, String value, DataTypeDescriptor dataTypeDescriptor,
+                                      Calendar calendar, String timeFormat, String dateTimeFormat,
+                                      String timestampFormat, SpliceDateFormatter dateFormatter,
+                                      boolean convertTimestamps) throws StandardException {
+        switch(dvd.getTypeFormatId()){
+            case StoredFormatIds.SQL_TIME_ID:
+                if (timeFormat == null || value==null){
+                    ((DateTimeDataValue)dvd).setValue(value,calendar);
+                }else
+                    dvd.setValue(SpliceDateFunctions.TO_TIME(value, timeFormat),calendar);
+                break;
+            case StoredFormatIds.SQL_DATE_ID:
+                if (dateTimeFormat == null || value == null)
+                    ((DateTimeDataValue)dvd).setValue(value,calendar);
+                else
+                    dvd.setValue(TO_DATE(value, dateTimeFormat, dateFormatter),calendar);
+                break;
+            case StoredFormatIds.SQL_TIMESTAMP_ID:
+                if (timestampFormat == null || value==null)
+                    ((DateTimeDataValue)dvd).setValue(value,calendar);
+                else {
+                    Timestamp ts = SpliceDateFunctions.TO_TIMESTAMP(value, timestampFormat);
+                    if (convertTimestamps)
+                        ts = SQLTimestamp.convertTimeStamp(ts);
+                    dvd.setValue(ts, calendar);
+                }
+                break;
+            case StoredFormatIds.SQL_CHAR_ID:
+            case StoredFormatIds.SQL_VARCHAR_ID:
+            case StoredFormatIds.SQL_CLOB_ID:
+                dvd.setValue(value);
+                //normalize the char type
+                if(dataTypeDescriptor != null && !dvd.isNull()){
+                    dvd.normalize(dataTypeDescriptor, dvd);
+                }
+                break;
+            default:
+                dvd.setValue(value);
+        }
+    }
+
+    public static boolean isDateTimeType(int typeFormatId) {
+        return typeFormatId == StoredFormatIds.SQL_TIME_ID
+                || typeFormatId == StoredFormatIds.SQL_DATE_ID
+                || typeFormatId == StoredFormatIds.SQL_TIMESTAMP_ID;
+    }
+
+    /**
+     * @return the types of the columns produced by the import, or {@code null} if the operation isn't an import
+     */
+    public static DataTypeDescriptor[] getResultColumnTypes(OperationContext operationContext) {
+        if (operationContext != null && operationContext.getOperation() instanceof VTIOperation)
+            return ((VTIOperation) operationContext.getOperation()).getResultColumnTypes();
+        return null;
+    }
+
+    /**
+     * @return true if imported timestamps must be converted for a table written with the 2.0 format
+     */
+    public static boolean isConvertTimestamps(OperationContext operationContext) {
+        if (operationContext != null && operationContext.getOperation() instanceof VTIOperation) {
+            VTIOperation op = (VTIOperation) operationContext.getOperation();
+            if (op.isConvertTimestampsEnabled() &&
+                op.getActivation().getResultSet() != null &&
+                op.getActivation().getResultSet() instanceof InsertOperation) {
+
+                InsertOperation insOp = (InsertOperation)op.getActivation().getResultSet();
+                String tableVersion = insOp.getTableVersion();
+                return tableVersion.equals("2.0");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds the message recorded in the bad records file for a row which couldn't be imported.
+     */
+    public static String badRecordMessage(Exception e, boolean columnNumberMismatch, List<String> values,
+                                          int numofColumnsinTable, int numofColumnsinFile,
+                                          int columnID, String columnValue) {
+        String extendedMessage;
+        if (columnNumberMismatch)
+            extendedMessage = " row Data: " + values;
+        else
+            extendedMessage = " [Columns in Table: " + numofColumnsinTable + "] [Columns in File: " + numofColumnsinFile + "] [Bad Column ID: " + columnID + "] "+ "[Bad Column Value: " + columnValue + "]" + " row Data: " + values;
+        return e.getLocalizedMessage() + extendedMessage;
+    }
+
+    /**
+     * @return the quote character of the import, falling back to the default when none was given
+     */
+    char getQuoteChar() {
+        return characterDelimiter!=null && !characterDelimiter.isEmpty() ?characterDelimiter.charAt(0):DEFAULT_STRIP_STRING;
+    }
+
+    /**
+     * @return the column delimiter of the import, falling back to the default when none was given
+     */
+    char getColumnDelimiter() {
+        return columnDelimiter!=null && !columnDelimiter.isEmpty() ?columnDelimiter.charAt(0):DEFAULT_COLUMN_DELIMITTER;
+    }
+
+    String getTimeFormat() {
+        return timeFormat;
+    }
+
+    String getDateTimeFormat() {
+        return dateTimeFormat;
+    }
+
+    String getTimestampFormat() {
+        return timestampFormat;
+    }
+
     void checkPreference() {
         if (preference==null){
             SConfiguration config =EngineDriver.driver().getConfiguration();
             int maxQuotedLines = config.getImportMaxQuotedColumnLines();
-            preference=new CsvPreference.Builder(
-                    characterDelimiter!=null && !characterDelimiter.isEmpty() ?characterDelimiter.charAt(0):DEFAULT_STRIP_STRING,
-                    columnDelimiter!=null && !columnDelimiter.isEmpty() ?columnDelimiter.charAt(0):DEFAULT_COLUMN_DELIMITTER,
-                    "\n").maxLinesPerRow(maxQuotedLines).build();
+            preference=new CsvPreference.Builder(getQuoteChar(),getColumnDelimiter(),"\n").maxLinesPerRow(maxQuotedLines).build();
         }
     }
 
@@ -14,31 +14,33 @@
 
 package com.splicemachine.derby.stream.function;
 
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.conn.ControlExecutionLimiter;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.derby.impl.sql.execute.operations.WindowOperation;
 import com.splicemachine.derby.impl.sql.execute.operations.window.WindowAggregator;
 import com.splicemachine.derby.impl.sql.execute.operations.window.WindowContext;
+import com.splicemachine.derby.stream.control.ControlUtils;
 import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.derby.stream.window.BaseFrameBuffer;
-import com.splicemachine.derby.stream.window.WindowFrameBuffer;
-import org.apache.spark.InterruptibleIterator;
-import org.apache.spark.TaskContext;
-import scala.Tuple2;
-import scala.collection.JavaConverters;
+import org.spark_project.guava.base.Function;
+import org.spark_project.guava.collect.Iterators;
+import org.spark_project.guava.collect.PeekingIterator;
 
 import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
-import java.util.List;
-
-import static java.util.Collections.sort;
+import java.util.NoSuchElementException;
 
 /**
  * Created by jleach on 4/24/15.
+ *
+ * Evaluates the window functions over rows which are sorted by their window partition, and within a partition by
+ * the window keys. Partitions are streamed through a frame buffer one after another, so only the rows of the
+ * current frame are held in memory.
  */
 
-public class MergeWindowFunction<Op extends WindowOperation> extends SpliceFlatMapFunction<Op, Tuple2<ExecRow, Iterable<ExecRow>>,ExecRow> implements Serializable {
+public class MergeWindowFunction<Op extends WindowOperation> extends SpliceFlatMapFunction<Op, Iterator<ExecRow>,ExecRow> implements Serializable {
     public MergeWindowFunction() {
     }
 
@@ -47,94 +49,96 @@ public class MergeWindowFunction<Op extends WindowOperation> extends SpliceFlatM
     }
 
     @Override
-    public Iterator<ExecRow> call(Tuple2<ExecRow, Iterable<ExecRow>> tuple) throws Exception {
-        Iterable<ExecRow> locatedRows = tuple._2();
-        List<ExecRow> partitionRows =new ArrayList<>();
-        for(ExecRow lr:locatedRows){
-            partitionRows.add(lr);
-        }
-        WindowContext windowContext = operationContext.getOperation().getWindowContext();
-
-        sort(partitionRows, new LocatedRowComparator(windowContext.getKeyColumns(),
-                                                     windowContext.getKeyOrders(),
-                                                     windowContext.getNullOrderings()));
-
-        // window logic
-        final WindowFrameBuffer frameBuffer = BaseFrameBuffer.createFrameBuffer(
-                windowContext.getWindowFunctions(),
-                new LocatedToExecRowIter(partitionRows.iterator()),
-                windowContext.getFrameDefinition(),
-                windowContext.getSortColumns(),
-                operationContext.getOperation().getExecRowDefinition().getClone());
-
-        return new ExecRowToLocatedRowIterable(new Iterable<ExecRow>() {
-            @Override public Iterator<ExecRow> iterator() {
-                return IteratorUtils.asInterruptibleIterator(frameBuffer);
+    public Iterator<ExecRow> call(Iterator<ExecRow> sortedRows) throws Exception {
+        final WindowContext windowContext = operationContext.getOperation().getWindowContext();
+        final ExecRow templateRow = operationContext.getOperation().getExecRowDefinition();
+        final long memoryLimit = ControlUtils.memoryLimit(operationContext);
+        final ControlExecutionLimiter limiter = operationContext.getActivation() == null ? ControlExecutionLimiter.NO_OP
+                : operationContext.getActivation().getLanguageConnectionContext().getControlExecutionLimiter();
+
+        PartitionIterator partitions = new PartitionIterator(sortedRows,
+                new ColumnComparator(windowContext.getPartitionColumns(), null, null));
+        return Iterators.concat(Iterators.transform(partitions, new Function<Iterator<ExecRow>, Iterator<ExecRow>>() {
+            @Override
+            public Iterator<ExecRow> apply(Iterator<ExecRow> partition) {
+                // window logic
+                try {
+                    return IteratorUtils.asInterruptibleIterator(BaseFrameBuffer.createFrameBuffer(
+                            windowContext.getWindowFunctions(),
+                            partition,
+                            windowContext.getFrameDefinition(),
+                            windowContext.getSortColumns(),
+                            templateRow.getClone(),
+                            memoryLimit,
+                            limiter));
+                } catch (StandardException se) {
+                    throw new RuntimeException(se);
+                }
             }
-        });
-    }
-
-    private class LocatedRowComparator implements Comparator<ExecRow> {
-        private final ColumnComparator rowComparator;
-
-        public LocatedRowComparator(int[] keyColumns, boolean[] keyOrders, boolean[] nullOrders) {
-            this.rowComparator = new ColumnComparator(keyColumns, keyOrders, nullOrders);
-        }
-
-        @Override
-        public int compare(ExecRow r1, ExecRow r2) {
-            return rowComparator.compare(r1, r2);
-        }
+        }));
     }
-    private static class LocatedToExecRowIter implements Iterator<ExecRow> {
-        private final Iterator<ExecRow> delegate;
 
-        public LocatedToExecRowIter(Iterator<ExecRow> delegate){
-            this.delegate=delegate;
+    /**
+     * Splits sorted rows into their window partitions. Whatever a consumer leaves of a partition is skipped
+     * when it moves on to the next one.
+     */
+    static class PartitionIterator implements Iterator<Iterator<ExecRow>> {
+        private final PeekingIterator<ExecRow> rows;
+        private final Comparator<ExecRow> partitionComparator;
+        private Partition current;
+
+        PartitionIterator(Iterator<ExecRow> sortedRows, Comparator<ExecRow> partitionComparator) {
+            this.rows = Iterators.peekingIterator(sortedRows);
+            this.partitionComparator = partitionComparator;
         }
 
         @Override
         public boolean hasNext() {
-            return delegate.hasNext();
+            if (current != null) {
+                while (current.hasNext()) {
+                    current.next();
+                }
+                current = null;
+            }
+            return rows.hasNext();
         }
 
         @Override
-        public ExecRow next() {
-            return delegate.next();
+        public Iterator<ExecRow> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            current = new Partition(rows.peek());
+            return current;
         }
 
         @Override
         public void remove() {
-            delegate.remove();
+            throw new UnsupportedOperationException();
         }
-    }
-
-    public static class ExecRowToLocatedRowIterable implements Iterable<ExecRow>, Iterator<ExecRow> {
-        private Iterator<ExecRow> execRows;
 
-        public ExecRowToLocatedRowIterable(Iterable<ExecRow> execRows) {
-            this.execRows = execRows.iterator();
-        }
+        private class Partition implements Iterator<ExecRow> {
+            private final ExecRow first;
 
-        @Override
-        public Iterator<ExecRow> iterator() {
-            return this;
-        }
+            Partition(ExecRow first) {
+                this.first = first;
+            }
 
-        @Override
-        public boolean hasNext() {
-            return execRows.hasNext();
-        }
+            @Override
+            public boolean hasNext() {
+                return rows.hasNext() && partitionComparator.compare(rows.peek(), first) == 0;
+            }
 
-        @Override
-        public ExecRow next() {
-            return execRows.next();
-        }
+            @Override
+            public ExecRow next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return rows.next();
+            }
 
-        @Override
-        public void remove() {
-            execRows.remove();
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
         }
     }
-
 }
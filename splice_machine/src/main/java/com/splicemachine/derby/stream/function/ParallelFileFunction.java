@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.derby.stream.function;
+
+import com.splicemachine.EngineDriver;
+import com.splicemachine.access.api.SConfiguration;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.impl.load.CsvRecordScanner;
+import com.splicemachine.derby.impl.load.ParallelCsvReader;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * Function for parsing a whole file in control, splitting it into chunks which are parsed in parallel
+ * by a {@link ParallelCsvReader}. Accepts the same options, and reports the same bad records, as
+ * {@link FileFunction} (for files with one line per record) and {@link StreamFileFunction} (for files
+ * whose quoted columns may span lines).
+ */
+public class ParallelFileFunction extends AbstractFileFunction<InputStream> {
+    private static final int CHUNK_SIZE = 1<<20;
+
+    private boolean oneLineRecords;
+
+    public ParallelFileFunction() {
+        super();
+    }
+
+    public ParallelFileFunction(String characterDelimiter, String columnDelimiter, ExecRow execRow, int[] columnIndex, String timeFormat,
+                                String dateTimeFormat, String timestampFormat, boolean oneLineRecords, OperationContext operationContext) {
+        super(characterDelimiter,columnDelimiter,execRow,columnIndex,timeFormat,
+                dateTimeFormat,timestampFormat,operationContext);
+        this.oneLineRecords = oneLineRecords;
+    }
+
+    /**
+     * @return true if parallel parsing is enabled, and the delimiters can be handled by {@link CsvRecordScanner}
+     */
+    public static boolean isSupported(String characterDelimiter, String columnDelimiter) {
+        if (EngineDriver.driver().getConfiguration().getImportParseParallelism() <= 1)
+            return false;
+        return (characterDelimiter == null || characterDelimiter.isEmpty() || CsvRecordScanner.isSupported(characterDelimiter.charAt(0)))
+                && (columnDelimiter == null || columnDelimiter.isEmpty() || CsvRecordScanner.isSupported(columnDelimiter.charAt(0)));
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        super.writeExternal(out);
+        out.writeBoolean(oneLineRecords);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        super.readExternal(in);
+        oneLineRecords = in.readBoolean();
+    }
+
+    @Override
+    public Iterator<ExecRow> call(InputStream s) throws Exception {
+        if (operationContext.isFailed())
+            return Collections.<ExecRow>emptyList().iterator();
+        SConfiguration config = EngineDriver.driver().getConfiguration();
+        return new ParallelCsvReader(s, getQuoteChar(), getColumnDelimiter(), config.getImportMaxQuotedColumnLines(),
+                oneLineRecords, execRow, getResultColumnTypes(operationContext), isConvertTimestamps(operationContext),
+                getTimeFormat(), getDateTimeFormat(), getTimestampFormat(), operationContext,
+                config.getImportParseParallelism(), CHUNK_SIZE);
+    }
+}
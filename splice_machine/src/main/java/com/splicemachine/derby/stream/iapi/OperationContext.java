@@ -40,6 +40,14 @@ public interface OperationContext<Op extends SpliceOperation> extends Externaliz
     long getRetryAttempts();
     long getRegionTooBusyExceptions();
 
+    /**
+     * Record that a run of {@code bytes} bytes was spilled to local disk by a
+     * memory-bounded operator (sort, hash join, grouping).
+     */
+    void recordSpill(long bytes);
+    long getSpilledBytes();
+    long getSpilledRuns();
+
     BadRecordsRecorder getBadRecordsRecorder();
 
     boolean isPermissive();
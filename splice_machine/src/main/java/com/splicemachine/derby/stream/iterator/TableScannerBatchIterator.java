@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.derby.stream.iterator;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.ScanOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.SITableScanner;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.TableScannerBuilder;
+import com.splicemachine.derby.stream.vector.ColumnBatch;
+import com.splicemachine.derby.utils.Scans;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The batch counterpart of {@link TableScannerIterator}: returns the rows of a scan as {@link ColumnBatch}es.
+ * The same batch is refilled on every call to {@link #next()}.
+ */
+@NotThreadSafe
+public class TableScannerBatchIterator implements Iterator<ColumnBatch>, Closeable {
+    private final TableScannerBuilder siTableBuilder;
+    private final ScanOperation operation;
+    private final ColumnBatch batch;
+    private final Qualifier[][] qualifiers;
+    private final int[] baseColumnMap;
+    private final int[] selection;
+    private ExecRow qualifierRow;
+    private SITableScanner tableScanner;
+    private boolean initialized;
+    private boolean exhausted;
+    private boolean slotted;
+    private boolean hasNext;
+
+    /**
+     * @param columns the 0-based columns of the template the caller will read, or {@code null} for all of
+     *                them. Only these columns, and those the scan qualifiers need, are decoded.
+     */
+    public TableScannerBatchIterator(TableScannerBuilder siTableBuilder, SpliceOperation operation, int batchSize, int[] columns) throws StandardException {
+        this.siTableBuilder = siTableBuilder;
+        this.operation = (ScanOperation) operation;
+        this.selection = new int[batchSize];
+        if (operation != null) {
+            this.qualifiers = this.operation.getScanInformation().getScanQualifiers();
+            this.baseColumnMap = this.operation.getOperationInformation().getBaseColumnMap();
+        } else {
+            this.qualifiers = null;
+            this.baseColumnMap = null;
+        }
+        this.batch = ColumnBatch.forRow(siTableBuilder.getTemplate(), batchSize, getScannedColumns(columns));
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            if (slotted)
+                return hasNext;
+            slotted = true;
+            if (!initialized) {
+                initialized = true;
+                tableScanner = siTableBuilder.build();
+                tableScanner.open();
+                if (operation != null) {
+                    operation.registerCloseable(new Closeable() {
+                        @Override
+                        public void close() throws IOException {
+                            TableScannerBatchIterator.this.close();
+                        }
+                    });
+                }
+            }
+            while (!exhausted) {
+                int rows = tableScanner.nextBatch(batch);
+                if (rows < batch.capacity()) {
+                    exhausted = true;
+                    close();
+                }
+                if (qualifiers != null)
+                    qualify();
+                if (batch.selectedCount() > 0) {
+                    hasNext = true;
+                    return hasNext;
+                }
+            }
+            hasNext = false;
+            return hasNext;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public ColumnBatch next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        slotted = false;
+        return batch;
+    }
+
+    @Override
+    public void remove() {
+        throw new RuntimeException("Not Implemented");
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (tableScanner != null) {
+            try {
+                tableScanner.close();
+            } catch (StandardException se) {
+                throw new IOException(se);
+            } finally {
+                tableScanner = null;
+            }
+        }
+    }
+
+    /**
+     * @return the requested columns plus the columns read by the scan qualifiers, or {@code null} for all of them
+     */
+    private int[] getScannedColumns(int[] columns) {
+        if (columns == null || qualifiers == null)
+            return columns;
+        int n = columns.length;
+        for (Qualifier[] clause : qualifiers)
+            n += clause.length;
+        int[] scanned = Arrays.copyOf(columns, n);
+        n = columns.length;
+        for (Qualifier[] clause : qualifiers) {
+            for (Qualifier q : clause)
+                scanned[n++] = baseColumnMap != null ? baseColumnMap[q.getStoragePosition()] : q.getStoragePosition();
+        }
+        return scanned;
+    }
+
+    /**
+     * Applies the scan qualifiers which couldn't be pushed into the scan itself, by materializing each
+     * row and keeping only those which qualify.
+     */
+    private void qualify() throws StandardException {
+        if (qualifierRow == null)
+            qualifierRow = siTableBuilder.getTemplate().getNewNullRow();
+        int count = 0;
+        for (int row = 0; row < batch.size(); row++) {
+            batch.materialize(row, qualifierRow);
+            if (Scans.qualifyRecordFromRow(qualifierRow.getRowArray(), qualifiers, baseColumnMap, siTableBuilder.getOptionalProbeValue()))
+                selection[count++] = row;
+        }
+        batch.select(selection, count);
+    }
+}
@@ -0,0 +1,565 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.derby.stream.vector;
+
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.sql.execute.ExecAggregator;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.impl.sql.execute.AggregatorInfo;
+import com.splicemachine.db.impl.sql.execute.AvgAggregator;
+import com.splicemachine.db.impl.sql.execute.CountAggregator;
+import com.splicemachine.db.impl.sql.execute.MaxMinAggregator;
+import com.splicemachine.db.impl.sql.execute.SumAggregator;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.sql.execute.operations.framework.SpliceGenericAggregator;
+import com.splicemachine.derby.stream.control.ControlUtils;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Hash aggregation over {@link ColumnBatch}es, for scalar (no grouping keys) and grouped aggregates.
+ *
+ * Each batch is processed column-wise: the rows are first assigned to their groups, then each aggregate
+ * folds its input vector into per-group partials (counts, sums, the row holding the minimum or maximum),
+ * which are handed to the group's {@link ExecAggregator} once per batch rather than once per row. The
+ * aggregators themselves are the ones used in row mode, so overflow handling and results are unchanged.
+ * Aggregates without a primitive fast path (AVG, sums of narrow types, non-numeric inputs) are fed row by row from
+ * the vectors, which still avoids materializing the rows.
+ *
+ * The resulting rows have the layout of the aggregate's source row, with the aggregators accumulated
+ * but not yet finished, exactly as the row mode merge functions produce them.
+ */
+public class BatchAggregation{
+    private final SpliceGenericAggregator[] aggregates;
+    private final int[] groupingKeys;
+    private final ExecRow template;
+    private final List<ExecRow> groups = new ArrayList<>();
+    private Folder[] folders;
+
+    // grouping on a single integral column
+    private LongIntHashMap longGroups;
+    private int nullGroup = -1;
+    // grouping on anything else
+    private Map<ExecRow,Integer> rowGroups;
+    private ValueRow probe;
+    private DataValueDescriptor[] probeValues;
+
+    private int[] groupOf = new int[0];
+    private int[] touched = new int[0];
+    private int numTouched;
+    private int[] touchedStamp = new int[0];
+    private int stamp;
+
+    /**
+     * @param aggregates the aggregates to compute
+     * @param groupingKeys the 0-based grouping columns of the source row; empty for a scalar aggregate
+     * @param template the source row of the aggregate
+     */
+    public BatchAggregation(SpliceGenericAggregator[] aggregates,int[] groupingKeys,ExecRow template) throws StandardException{
+        this.aggregates = aggregates;
+        this.groupingKeys = groupingKeys;
+        this.template = template;
+        if(groupingKeys.length==0)
+            newGroup(null,-1); // a scalar aggregate always has its single result
+    }
+
+    /**
+     * @return true if all of {@code aggregates} can be computed over batches: they must be built-in,
+     * non-distinct aggregates.
+     */
+    public static boolean isSupported(SpliceGenericAggregator[] aggregates){
+        for(SpliceGenericAggregator aggregate:aggregates){
+            AggregatorInfo info = aggregate.getAggregatorInfo();
+            if(info==null || info.isDistinct())
+                return false;
+            String className = info.getAggregatorClassName();
+            if(!CountAggregator.class.getName().equals(className)
+                    && !SumAggregator.class.getName().equals(className)
+                    && !AvgAggregator.class.getName().equals(className)
+                    && !MaxMinAggregator.class.getName().equals(className))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the 0-based source columns read by the aggregation: the grouping keys and the inputs of
+     * the aggregates
+     */
+    public static int[] getInputColumns(SpliceGenericAggregator[] aggregates,int[] groupingKeys){
+        int[] columns = Arrays.copyOf(groupingKeys,groupingKeys.length+aggregates.length);
+        int n = groupingKeys.length;
+        for(SpliceGenericAggregator aggregate:aggregates){
+            if(isCountStar(aggregate)) continue;
+            int column = aggregate.getInputColumnId()-1;
+            boolean present = false;
+            for(int i=0;i<n && !present;i++){
+                present = columns[i]==column;
+            }
+            if(!present)
+                columns[n++] = column;
+        }
+        return Arrays.copyOf(columns,n);
+    }
+
+    /**
+     * Returns the groups of {@code batches}. The batches are consumed, and aggregated, when the returned
+     * iterator is first read.
+     *
+     * @param readContext if not null, the context to record the rows read against. Cancelling its statement
+     *                    stops the aggregation at the next batch.
+     */
+    public Iterator<ExecRow> aggregate(Iterator<ColumnBatch> batches,final OperationContext readContext){
+        final Iterator<ColumnBatch> source = ControlUtils.checkCancellation(batches,readContext);
+        return new Iterator<ExecRow>(){
+            private Iterator<ExecRow> results;
+
+            @Override
+            public boolean hasNext(){
+                if(results==null){
+                    try{
+                        while(source.hasNext()){
+                            ColumnBatch batch = source.next();
+                            if(readContext!=null)
+                                readContext.recordRead(batch.selectedCount());
+                            add(batch);
+                        }
+                    }catch(StandardException se){
+                        throw new RuntimeException(se);
+                    }
+                    results = groups.iterator();
+                }
+                return results.hasNext();
+            }
+
+            @Override
+            public ExecRow next(){
+                if(!hasNext())
+                    throw new NoSuchElementException();
+                return results.next();
+            }
+
+            @Override
+            public void remove(){
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Folds the selected rows of {@code batch} into their groups.
+     */
+    public void add(ColumnBatch batch) throws StandardException{
+        int n = batch.selectedCount();
+        if(n==0) return;
+        if(folders==null)
+            folders = newFolders(batch);
+        assignGroups(batch,n);
+        for(Folder folder:folders){
+            folder.fold(batch,n);
+        }
+    }
+
+    /**
+     * @return the groups seen so far, in the layout of the source row
+     */
+    public List<ExecRow> getGroups(){
+        return groups;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    private static boolean isCountStar(SpliceGenericAggregator aggregate){
+        return "COUNT(*)".equals(aggregate.getAggregatorInfo().getAggregateName());
+    }
+
+    private Folder[] newFolders(ColumnBatch batch){
+        Folder[] folders = new Folder[aggregates.length];
+        for(int i=0;i<aggregates.length;i++){
+            SpliceGenericAggregator aggregate = aggregates[i];
+            if(isCountStar(aggregate)){
+                folders[i] = new CountFolder(aggregate,null);
+                continue;
+            }
+            ColumnVector input = batch.getColumn(aggregate.getInputColumnId()-1);
+            String className = aggregate.getAggregatorInfo().getAggregatorClassName();
+            if(CountAggregator.class.getName().equals(className))
+                folders[i] = new CountFolder(aggregate,input);
+            else if(SumAggregator.class.getName().equals(className) && typeOf(input)==StoredFormatIds.SQL_LONGINT_ID)
+                folders[i] = new LongSumFolder(aggregate,(LongColumnVector)input);
+            else if(SumAggregator.class.getName().equals(className) && typeOf(input)==StoredFormatIds.SQL_DOUBLE_ID)
+                folders[i] = new DoubleSumFolder(aggregate,(DoubleColumnVector)input);
+            else if(MaxMinAggregator.class.getName().equals(className) && !(input instanceof ObjectColumnVector))
+                folders[i] = new MaxMinFolder(aggregate,input,"MAX".equals(aggregate.getAggregatorInfo().getAggregateName()));
+            else
+                folders[i] = new RowFolder(aggregate,input);
+        }
+        return folders;
+    }
+
+    /*
+     * Partial sums are handed to the aggregator as values of the input's own type, so only the widest types
+     * are summed natively; narrower types would have their partials overflow where the rows don't.
+     */
+    private static int typeOf(ColumnVector input){
+        return input.newNull().getTypeFormatId();
+    }
+
+    private void assignGroups(ColumnBatch batch,int n) throws StandardException{
+        if(groupOf.length<n)
+            groupOf = new int[batch.capacity()];
+        stamp++;
+        numTouched = 0;
+        if(groupingKeys.length==0){
+            Arrays.fill(groupOf,0,n,0);
+            touch(0);
+        }else if(groupingKeys.length==1 && batch.getColumn(groupingKeys[0]) instanceof LongColumnVector){
+            LongColumnVector keys = (LongColumnVector)batch.getColumn(groupingKeys[0]);
+            if(longGroups==null)
+                longGroups = new LongIntHashMap();
+            for(int i=0;i<n;i++){
+                int row = batch.selectedRow(i);
+                int group;
+                if(keys.isNull(row)){
+                    if(nullGroup<0)
+                        nullGroup = newGroup(batch,row);
+                    group = nullGroup;
+                }else{
+                    long key = keys.getLong(row);
+                    group = longGroups.get(key)-1; // ids are stored +1, so that a missing key reads as -1
+                    if(group<0){
+                        group = newGroup(batch,row);
+                        longGroups.put(key,group+1);
+                    }
+                }
+                groupOf[i] = group;
+                touch(group);
+            }
+        }else{
+            if(rowGroups==null){
+                rowGroups = new HashMap<>();
+                probe = new ValueRow(groupingKeys.length);
+                probeValues = new DataValueDescriptor[groupingKeys.length];
+                for(int k=0;k<groupingKeys.length;k++){
+                    probeValues[k] = batch.getColumn(groupingKeys[k]).newNull();
+                }
+            }
+            for(int i=0;i<n;i++){
+                int row = batch.selectedRow(i);
+                for(int k=0;k<groupingKeys.length;k++){
+                    probe.setColumn(k+1,batch.getColumn(groupingKeys[k]).get(row,probeValues[k]));
+                }
+                Integer group = rowGroups.get(probe);
+                if(group==null){
+                    group = newGroup(batch,row);
+                    rowGroups.put(probe.getClone(),group);
+                }
+                groupOf[i] = group;
+                touch(group);
+            }
+        }
+    }
+
+    private void touch(int group){
+        if(touchedStamp[group]!=stamp){
+            touchedStamp[group] = stamp;
+            touched[numTouched++] = group;
+        }
+    }
+
+    private int newGroup(ColumnBatch batch,int row) throws StandardException{
+        ExecRow group = template.getClone();
+        for(int key:groupingKeys){
+            DataValueDescriptor current = group.getColumn(key+1);
+            DataValueDescriptor value = batch.getColumn(key).get(row,current);
+            if(value!=current)
+                group.setColumn(key+1,value.cloneValue(false));
+        }
+        for(SpliceGenericAggregator aggregate:aggregates){
+            int inputType = group.getColumn(aggregate.getInputColumnId()).getTypeFormatId();
+            group.getColumn(aggregate.getAggregatorColumnId()).setValue(aggregate.getAggregatorInstance(inputType));
+        }
+        groups.add(group);
+        int id = groups.size()-1;
+        if(touchedStamp.length<=id){
+            int size = Math.max(16,2*touchedStamp.length);
+            touchedStamp = Arrays.copyOf(touchedStamp,size);
+            touched = Arrays.copyOf(touched,size);
+        }
+        return id;
+    }
+
+    private static ExecAggregator aggregatorOf(SpliceGenericAggregator aggregate,ExecRow group) throws StandardException{
+        return (ExecAggregator)group.getColumn(aggregate.getAggregatorColumnId()).getObject();
+    }
+
+    /**
+     * Folds one aggregate's input vector into the groups. Partials are indexed by group id and reset
+     * once they have been flushed to the group's aggregator, at the end of each batch.
+     */
+    private abstract class Folder{
+        final SpliceGenericAggregator aggregate;
+        final ColumnVector input;
+        private DataValueDescriptor nullValue;
+        boolean[] sawNull = new boolean[0];
+
+        Folder(SpliceGenericAggregator aggregate,ColumnVector input){
+            this.aggregate = aggregate;
+            this.input = input;
+        }
+
+        abstract void fold(ColumnBatch batch,int n) throws StandardException;
+
+        void accumulate(DataValueDescriptor value,int group) throws StandardException{
+            ExecRow row = groups.get(group);
+            aggregate.accumulate(value,row.getColumn(aggregate.getAggregatorColumnId()));
+        }
+
+        /**
+         * Passes a null to the aggregator of each group which saw one, so it reports the nulls it
+         * eliminated as in row mode.
+         */
+        void flushNulls() throws StandardException{
+            for(int t=0;t<numTouched;t++){
+                int group = touched[t];
+                if(sawNull[group]){
+                    if(nullValue==null)
+                        nullValue = input.newNull();
+                    accumulate(nullValue,group);
+                    sawNull[group] = false;
+                }
+            }
+        }
+
+        void ensureCapacity(){
+            if(sawNull.length<groups.size())
+                sawNull = Arrays.copyOf(sawNull,touchedStamp.length);
+        }
+    }
+
+    private class CountFolder extends Folder{
+        private long[] counts = new long[0];
+
+        CountFolder(SpliceGenericAggregator aggregate,ColumnVector input){
+            super(aggregate,input);
+        }
+
+        @Override
+        void fold(ColumnBatch batch,int n) throws StandardException{
+            if(counts.length<groups.size())
+                counts = Arrays.copyOf(counts,touchedStamp.length);
+            ensureCapacity();
+            if(input==null){
+                for(int i=0;i<n;i++){
+                    counts[groupOf[i]]++;
+                }
+            }else{
+                for(int i=0;i<n;i++){
+                    if(input.isNull(batch.selectedRow(i)))
+                        sawNull[groupOf[i]] = true;
+                    else
+                        counts[groupOf[i]]++;
+                }
+            }
+            for(int t=0;t<numTouched;t++){
+                int group = touched[t];
+                if(counts[group]>0){
+                    aggregatorOf(aggregate,groups.get(group)).add(new SQLLongint(counts[group]));
+                    counts[group] = 0;
+                }
+            }
+            flushNulls();
+        }
+    }
+
+    private class LongSumFolder extends Folder{
+        private final LongColumnVector values;
+        private final SQLLongint partial = new SQLLongint();
+        private long[] sums = new long[0];
+        private boolean[] present = new boolean[0];
+
+        LongSumFolder(SpliceGenericAggregator aggregate,LongColumnVector input){
+            super(aggregate,input);
+            this.values = input;
+        }
+
+        @Override
+        void fold(ColumnBatch batch,int n) throws StandardException{
+            if(sums.length<groups.size()){
+                sums = Arrays.copyOf(sums,touchedStamp.length);
+                present = Arrays.copyOf(present,touchedStamp.length);
+            }
+            ensureCapacity();
+            for(int i=0;i<n;i++){
+                int row = batch.selectedRow(i);
+                int group = groupOf[i];
+                if(values.isNull(row)){
+                    sawNull[group] = true;
+                    continue;
+                }
+                long value = values.getLong(row);
+                if(!present[group]){
+                    sums[group] = value;
+                    present[group] = true;
+                }else{
+                    long sum = sums[group]+value;
+                    if(((sums[group]^sum)&(value^sum))<0){
+                        // the partial overflowed: hand what we have to the aggregator, which widens as needed
+                        flush(group);
+                        sum = value;
+                    }
+                    sums[group] = sum;
+                }
+            }
+            for(int t=0;t<numTouched;t++){
+                int group = touched[t];
+                if(present[group]){
+                    flush(group);
+                    present[group] = false;
+                }
+            }
+            flushNulls();
+        }
+
+        private void flush(int group) throws StandardException{
+            partial.setValue(sums[group]);
+            accumulate(partial,group);
+        }
+    }
+
+    private class DoubleSumFolder extends Folder{
+        private final DoubleColumnVector values;
+        private final SQLDouble partial = new SQLDouble();
+        private double[] sums = new double[0];
+        private boolean[] present = new boolean[0];
+
+        DoubleSumFolder(SpliceGenericAggregator aggregate,DoubleColumnVector input){
+            super(aggregate,input);
+            this.values = input;
+        }
+
+        @Override
+        void fold(ColumnBatch batch,int n) throws StandardException{
+            if(sums.length<groups.size()){
+                sums = Arrays.copyOf(sums,touchedStamp.length);
+                present = Arrays.copyOf(present,touchedStamp.length);
+            }
+            ensureCapacity();
+            for(int i=0;i<n;i++){
+                int row = batch.selectedRow(i);
+                int group = groupOf[i];
+                if(values.isNull(row))
+                    sawNull[group] = true;
+                else{
+                    sums[group]+=values.getDouble(row);
+                    present[group] = true;
+                }
+            }
+            for(int t=0;t<numTouched;t++){
+                int group = touched[t];
+                if(present[group]){
+                    partial.setValue(sums[group]);
+                    accumulate(partial,group);
+                    sums[group] = 0d;
+                    present[group] = false;
+                }
+            }
+            flushNulls();
+        }
+    }
+
+    private class MaxMinFolder extends Folder{
+        private final boolean isMax;
+        private final DataValueDescriptor scratch;
+        private int[] best = new int[0];
+
+        MaxMinFolder(SpliceGenericAggregator aggregate,ColumnVector input,boolean isMax){
+            super(aggregate,input);
+            this.isMax = isMax;
+            this.scratch = input.newNull();
+        }
+
+        @Override
+        void fold(ColumnBatch batch,int n) throws StandardException{
+            if(best.length<groups.size()){
+                int oldSize = best.length;
+                best = Arrays.copyOf(best,touchedStamp.length);
+                Arrays.fill(best,oldSize,best.length,-1);
+            }
+            ensureCapacity();
+            LongColumnVector longs = input instanceof LongColumnVector?(LongColumnVector)input:null;
+            DoubleColumnVector doubles = input instanceof DoubleColumnVector?(DoubleColumnVector)input:null;
+            for(int i=0;i<n;i++){
+                int row = batch.selectedRow(i);
+                int group = groupOf[i];
+                if(input.isNull(row)){
+                    sawNull[group] = true;
+                    continue;
+                }
+                int current = best[group];
+                if(current<0)
+                    best[group] = row;
+                else{
+                    int compare = longs!=null
+                            ?Long.compare(longs.getLong(row),longs.getLong(current))
+                            :Double.compare(doubles.getDouble(row),doubles.getDouble(current));
+                    if(isMax?compare>0:compare<0)
+                        best[group] = row;
+                }
+            }
+            for(int t=0;t<numTouched;t++){
+                int group = touched[t];
+                if(best[group]>=0){
+                    accumulate(input.get(best[group],scratch),group);
+                    best[group] = -1;
+                }
+            }
+            flushNulls();
+        }
+    }
+
+    /**
+     * Feeds the aggregator a value at a time, for the aggregates and types without a primitive fast path.
+     */
+    private class RowFolder extends Folder{
+        private final DataValueDescriptor scratch;
+
+        RowFolder(SpliceGenericAggregator aggregate,ColumnVector input){
+            super(aggregate,input);
+            this.scratch = input.newNull();
+        }
+
+        @Override
+        void fold(ColumnBatch batch,int n) throws StandardException{
+            for(int i=0;i<n;i++){
+                accumulate(input.get(batch.selectedRow(i),scratch),groupOf[i]);
+            }
+        }
+    }
+}
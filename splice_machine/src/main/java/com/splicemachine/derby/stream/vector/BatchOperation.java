@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.derby.stream.vector;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.derby.stream.iapi.DataSetProcessor;
+
+import java.util.Iterator;
+
+/**
+ * An operation which can return its rows as {@link ColumnBatch}es. Column {@code i} of each batch is
+ * column {@code i} of the operation's result row.
+ *
+ * Batch mode is decided per operator chain: a consumer asks its source with {@link #supportsBatches}
+ * and falls back to reading rows from {@code getDataSet()} when the source (or anything beneath it)
+ * can't produce batches.
+ */
+public interface BatchOperation{
+
+    /**
+     * @param dsp the processor executing the query
+     * @param columns the 0-based result columns the caller will read, or {@code null} for all of them
+     * @return true if {@link #getBatches} can be called with the same arguments
+     */
+    boolean supportsBatches(DataSetProcessor dsp,int[] columns) throws StandardException;
+
+    /**
+     * @param dsp the processor executing the query
+     * @param columns the 0-based result columns the caller will read, or {@code null} for all of them.
+     *                The other columns of the batches may be absent.
+     * @return the rows of the operation. Batches are only valid until the next one is requested.
+     */
+    Iterator<ColumnBatch> getBatches(DataSetProcessor dsp,int[] columns) throws StandardException;
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.derby.stream.vector;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+
+/**
+ * A batch of rows held column-wise, as one {@link ColumnVector} per column.
+ *
+ * A batch may carry a selection vector, which lists (in ascending order) the rows which are still
+ * live after filtering; operators visit the rows {@code selectedRow(0)..selectedRow(selectedCount()-1)}
+ * rather than {@code 0..size()-1}. Columns which were not requested by the consumer may be {@code null}.
+ *
+ * Batches are reused by their producer, so neither the batch nor the values read from it may be retained
+ * once the next batch has been requested.
+ */
+public class ColumnBatch{
+    private final ColumnVector[] columns;
+    private final int capacity;
+    private int size;
+    private int[] selection;
+    private int selectedCount;
+
+    public ColumnBatch(ColumnVector[] columns,int capacity){
+        this.columns = columns;
+        this.capacity = capacity;
+    }
+
+    /**
+     * @param template the row whose columns the batch holds
+     * @param capacity the maximum number of rows in the batch
+     * @return a batch with a vector for every non-null column of {@code template}
+     */
+    public static ColumnBatch forRow(ExecRow template,int capacity){
+        return forRow(template,capacity,null);
+    }
+
+    /**
+     * @param template the row whose columns the batch holds
+     * @param capacity the maximum number of rows in the batch
+     * @param positions the 0-based columns of {@code template} to hold, or {@code null} for all of them
+     * @return a batch with a vector for each of the requested non-null columns of {@code template}
+     */
+    public static ColumnBatch forRow(ExecRow template,int capacity,int[] positions){
+        DataValueDescriptor[] dvds = template.getRowArray();
+        ColumnVector[] columns = new ColumnVector[dvds.length];
+        if(positions==null){
+            for(int i=0;i<dvds.length;i++){
+                if(dvds[i]!=null)
+                    columns[i] = ColumnVector.forColumn(dvds[i],capacity);
+            }
+        }else{
+            for(int i:positions){
+                if(dvds[i]!=null && columns[i]==null)
+                    columns[i] = ColumnVector.forColumn(dvds[i],capacity);
+            }
+        }
+        return new ColumnBatch(columns,capacity);
+    }
+
+    public int capacity(){
+        return capacity;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Sets the number of rows in the batch, and clears the selection vector.
+     */
+    public void setSize(int size){
+        assert size<=capacity:"Batch size exceeds its capacity";
+        this.size = size;
+        this.selection = null;
+        this.selectedCount = size;
+    }
+
+    public int numColumns(){
+        return columns.length;
+    }
+
+    /**
+     * @param position the 0-based column position
+     * @return the vector for the column, or {@code null} if the column isn't held by this batch
+     */
+    public ColumnVector getColumn(int position){
+        return columns[position];
+    }
+
+    public int selectedCount(){
+        return selectedCount;
+    }
+
+    /**
+     * @param i the index into the selection, between 0 and {@link #selectedCount()}
+     * @return the row
+     */
+    public int selectedRow(int i){
+        return selection==null?i:selection[i];
+    }
+
+    /**
+     * Restricts the batch to the given rows.
+     *
+     * @param rows the live rows, in ascending order. The array is referenced, not copied.
+     * @param count the number of live rows
+     */
+    public void select(int[] rows,int count){
+        this.selection = rows;
+        this.selectedCount = count;
+    }
+
+    /**
+     * Returns a view of this batch with its columns rearranged: column {@code i} of the view is column
+     * {@code columnMap[i]} of this batch, or absent if {@code columnMap[i]} is negative. The view shares
+     * the vectors and the current selection of this batch.
+     */
+    public ColumnBatch project(int[] columnMap){
+        ColumnVector[] projected = new ColumnVector[columnMap.length];
+        for(int i=0;i<columnMap.length;i++){
+            if(columnMap[i]>=0)
+                projected[i] = columns[columnMap[i]];
+        }
+        ColumnBatch view = new ColumnBatch(projected,capacity);
+        view.size = size;
+        view.selection = selection;
+        view.selectedCount = selectedCount;
+        return view;
+    }
+
+    /**
+     * Copies {@code row} into {@code destination}, which must have the same layout as the batch. Columns
+     * absent from the batch are left untouched.
+     */
+    public void materialize(int row,ExecRow destination) throws StandardException{
+        for(int i=0;i<columns.length;i++){
+            ColumnVector column = columns[i];
+            if(column==null) continue;
+            DataValueDescriptor current = destination.getColumn(i+1);
+            if(current==null)
+                current = column.newNull();
+            DataValueDescriptor value = column.get(row,current);
+            if(value!=current)
+                destination.setColumn(i+1,value);
+        }
+    }
+}
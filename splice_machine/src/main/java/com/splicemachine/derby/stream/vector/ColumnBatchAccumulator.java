@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.derby.stream.vector;
+
+import com.carrotsearch.hppc.BitSet;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
+import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.storage.ByteEntryAccumulator;
+import com.splicemachine.storage.EntryPredicateFilter;
+
+import java.io.IOException;
+
+/**
+ * The batch counterpart of {@link com.splicemachine.derby.impl.store.ExecRowAccumulator}: decodes the
+ * fields of an encoded row straight into the vectors of a {@link ColumnBatch}, at the current row of the
+ * batch, without going through a {@link DataValueDescriptor} for the primitive types.
+ *
+ * As with the row accumulator, only the first version of each field is decoded, so partial updates are
+ * merged the same way in both modes.
+ */
+public class ColumnBatchAccumulator extends ByteEntryAccumulator{
+    private final int[] columnMap;
+    private final DescriptorSerializer[] serializers;
+    private final int[] columnLengths;
+    private ColumnBatch batch;
+    private int row;
+
+    private ColumnBatchAccumulator(){
+        super(null,false,null);
+        this.columnMap = null;
+        this.serializers = null;
+        this.columnLengths = null;
+    }
+
+    private ColumnBatchAccumulator(EntryPredicateFilter predicateFilter,
+                                   BitSet fieldsToCollect,
+                                   int[] columnMap,
+                                   DescriptorSerializer[] serializers){
+        super(predicateFilter,false,fieldsToCollect);
+        this.columnMap = columnMap;
+        this.serializers = serializers;
+        this.columnLengths = new int[serializers.length];
+    }
+
+    /**
+     * @param predicateFilter the filter to apply to the fields
+     * @param template the row the batch holds
+     * @param columnMap the position in {@code template} of each encoded field, or -1 if it isn't read
+     * @param tableVersion the version of the table's encoding
+     * @param batch the batch the fields are decoded into. Fields whose column the batch doesn't hold are
+     *              skipped over without being decoded.
+     */
+    public static ColumnBatchAccumulator newAccumulator(EntryPredicateFilter predicateFilter,
+                                                       ExecRow template,
+                                                       int[] columnMap,
+                                                       String tableVersion,
+                                                       ColumnBatch batch){
+        DataValueDescriptor[] dvds = template.getRowArray();
+        BitSet fieldsToCollect = new BitSet(dvds.length);
+        boolean hasColumns = false;
+        if(columnMap!=null){
+            for(int i=0;i<columnMap.length;i++){
+                int pos = columnMap[i];
+                if(pos<0) continue;
+                hasColumns = true;
+                if(dvds[pos]!=null && batch.getColumn(pos)!=null)
+                    fieldsToCollect.set(i);
+            }
+        }
+        if(!hasColumns) return NOOP_ACCUMULATOR;
+
+        DescriptorSerializer[] serializers = VersionedSerializers.forVersion(tableVersion,false).getSerializers(template);
+        return new ColumnBatchAccumulator(predicateFilter,fieldsToCollect,columnMap,serializers);
+    }
+
+    /**
+     * Points the accumulator at the row of the batch the next fields are decoded into.
+     */
+    public void setRow(ColumnBatch batch,int row){
+        this.batch = batch;
+        this.row = row;
+    }
+
+    @Override
+    protected void occupy(int position,byte[] data,int offset,int length){
+        decode(position,data,offset,length);
+        super.occupy(position,data,offset,length);
+    }
+
+    @Override
+    protected void occupyDouble(int position,byte[] data,int offset,int length){
+        decode(position,data,offset,length);
+        super.occupyDouble(position,data,offset,length);
+    }
+
+    @Override
+    protected void occupyFloat(int position,byte[] data,int offset,int length){
+        decode(position,data,offset,length);
+        super.occupyFloat(position,data,offset,length);
+    }
+
+    @Override
+    protected void occupyScalar(int position,byte[] data,int offset,int length){
+        decode(position,data,offset,length);
+        super.occupyScalar(position,data,offset,length);
+    }
+
+    @Override
+    public byte[] finish(){
+        return SIConstants.EMPTY_BYTE_ARRAY;
+    }
+
+    @Override
+    public int getCurrentLength(int position){
+        return columnLengths[columnMap[position]];
+    }
+
+    public void close(){
+        for(DescriptorSerializer serializer:serializers){
+            try{ serializer.close(); }catch(IOException ignored){ }
+        }
+    }
+
+    protected void decode(int position,byte[] data,int offset,int length){
+        int colPos = columnMap[position];
+        try{
+            batch.getColumn(colPos).decode(row,serializers[colPos],data,offset,length,false);
+            columnLengths[colPos] = length;
+        }catch(StandardException e){
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static final ColumnBatchAccumulator NOOP_ACCUMULATOR = new ColumnBatchAccumulator(){
+        @Override protected void decode(int position,byte[] data,int offset,int length){ }
+        @Override protected void occupy(int position,byte[] data,int offset,int length){ }
+        @Override protected void occupyDouble(int position,byte[] data,int offset,int length){ }
+        @Override protected void occupyFloat(int position,byte[] data,int offset,int length){ }
+        @Override protected void occupyScalar(int position,byte[] data,int offset,int length){ }
+        @Override public void setRow(ColumnBatch batch,int row){ }
+        @Override public void reset(){ }
+        @Override public void close(){ }
+
+        @Override public boolean isFinished(){ return true; }
+    };
+}
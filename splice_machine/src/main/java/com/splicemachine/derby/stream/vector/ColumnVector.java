@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.derby.stream.vector;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+
+/**
+ * The values of a single column for the rows of a {@link ColumnBatch}, with a bitmap of which rows are null.
+ *
+ * Integral and floating point columns are held as arrays of primitives, so operators can work on them
+ * without creating a {@link DataValueDescriptor} per row; all other types are held as descriptors.
+ */
+public abstract class ColumnVector{
+    protected final DataValueDescriptor template;
+    protected final int capacity;
+    private final long[] nulls;
+
+    protected ColumnVector(DataValueDescriptor template,int capacity){
+        this.template = template;
+        this.capacity = capacity;
+        this.nulls = new long[(capacity+63)>>>6];
+    }
+
+    /**
+     * @param template a descriptor of the column's type
+     * @param capacity the maximum number of rows in the vector
+     * @return the vector best suited to holding values of the same type as {@code template}
+     */
+    public static ColumnVector forColumn(DataValueDescriptor template,int capacity){
+        switch(template.getTypeFormatId()){
+            case StoredFormatIds.SQL_TINYINT_ID:
+            case StoredFormatIds.SQL_SMALLINT_ID:
+            case StoredFormatIds.SQL_INTEGER_ID:
+            case StoredFormatIds.SQL_LONGINT_ID:
+                return new LongColumnVector(template,capacity);
+            case StoredFormatIds.SQL_REAL_ID:
+            case StoredFormatIds.SQL_DOUBLE_ID:
+                return new DoubleColumnVector(template,capacity);
+            default:
+                return new ObjectColumnVector(template,capacity);
+        }
+    }
+
+    public int capacity(){
+        return capacity;
+    }
+
+    /**
+     * @return a new, null descriptor of the column's type
+     */
+    public DataValueDescriptor newNull(){
+        return template.getNewNull();
+    }
+
+    public boolean isNull(int row){
+        return (nulls[row>>>6] & (1L<<row))!=0;
+    }
+
+    public void setNull(int row){
+        nulls[row>>>6]|=(1L<<row);
+    }
+
+    protected void clearNull(int row){
+        nulls[row>>>6]&=~(1L<<row);
+    }
+
+    /**
+     * Sets the value of {@code row} from a descriptor.
+     *
+     * @param row the row to set
+     * @param value the value, or {@code null} (or a null descriptor) to set the row to null
+     */
+    public abstract void set(int row,DataValueDescriptor value) throws StandardException;
+
+    /**
+     * Returns the value of {@code row} as a descriptor.
+     *
+     * @param row the row to read
+     * @param reuse a descriptor of the column's type, which may be filled in and returned
+     * @return the value of the row. The returned descriptor is owned by the vector, or is {@code reuse}, and
+     * is only valid until the vector is refilled.
+     */
+    public abstract DataValueDescriptor get(int row,DataValueDescriptor reuse) throws StandardException;
+
+    /**
+     * Decodes a field of an {@code EntryEncoder} encoded row into {@code row}.
+     */
+    public abstract void decode(int row,DescriptorSerializer serializer,byte[] data,int offset,int length,boolean desc) throws StandardException;
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.derby.stream.vector;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.encoding.Encoding;
+
+/**
+ * A vector of REAL or DOUBLE values, widened to doubles.
+ */
+public class DoubleColumnVector extends ColumnVector{
+    private final double[] values;
+    private DataValueDescriptor scratch;
+
+    public DoubleColumnVector(DataValueDescriptor template,int capacity){
+        super(template,capacity);
+        this.values = new double[capacity];
+    }
+
+    public double getDouble(int row){
+        return values[row];
+    }
+
+    public void setDouble(int row,double value){
+        values[row] = value;
+        clearNull(row);
+    }
+
+    @Override
+    public void set(int row,DataValueDescriptor value) throws StandardException{
+        if(value==null || value.isNull())
+            setNull(row);
+        else
+            setDouble(row,value.getDouble());
+    }
+
+    @Override
+    public DataValueDescriptor get(int row,DataValueDescriptor reuse) throws StandardException{
+        if(isNull(row))
+            reuse.setToNull();
+        else
+            reuse.setValue(values[row]);
+        return reuse;
+    }
+
+    @Override
+    public void decode(int row,DescriptorSerializer serializer,byte[] data,int offset,int length,boolean desc) throws StandardException{
+        if(serializer.isDoubleType())
+            setDouble(row,Encoding.decodeDouble(data,offset,desc));
+        else if(serializer.isFloatType())
+            setDouble(row,Encoding.decodeFloat(data,offset,desc));
+        else{
+            if(scratch==null)
+                scratch = template.getNewNull();
+            serializer.decodeDirect(scratch,data,offset,length,desc);
+            set(row,scratch);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.derby.stream.vector;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.encoding.Encoding;
+
+/**
+ * A vector of TINYINT, SMALLINT, INTEGER or BIGINT values, widened to longs.
+ */
+public class LongColumnVector extends ColumnVector{
+    private final long[] values;
+    private final int typeFormatId;
+    private DataValueDescriptor scratch;
+
+    public LongColumnVector(DataValueDescriptor template,int capacity){
+        super(template,capacity);
+        this.values = new long[capacity];
+        this.typeFormatId = template.getTypeFormatId();
+    }
+
+    public long getLong(int row){
+        return values[row];
+    }
+
+    public void setLong(int row,long value){
+        values[row] = value;
+        clearNull(row);
+    }
+
+    @Override
+    public void set(int row,DataValueDescriptor value) throws StandardException{
+        if(value==null || value.isNull())
+            setNull(row);
+        else
+            setLong(row,value.getLong());
+    }
+
+    @Override
+    public DataValueDescriptor get(int row,DataValueDescriptor reuse) throws StandardException{
+        if(isNull(row))
+            reuse.setToNull();
+        else
+            reuse.setValue(values[row]);
+        return reuse;
+    }
+
+    @Override
+    public void decode(int row,DescriptorSerializer serializer,byte[] data,int offset,int length,boolean desc) throws StandardException{
+        if(!serializer.isScalarType()){
+            // not stored in the scalar format, so go through the descriptor
+            if(scratch==null)
+                scratch = template.getNewNull();
+            serializer.decodeDirect(scratch,data,offset,length,desc);
+            set(row,scratch);
+            return;
+        }
+        switch(typeFormatId){
+            case StoredFormatIds.SQL_TINYINT_ID:
+                setLong(row,Encoding.decodeByte(data,offset,desc));
+                return;
+            case StoredFormatIds.SQL_SMALLINT_ID:
+                setLong(row,Encoding.decodeShort(data,offset,desc));
+                return;
+            case StoredFormatIds.SQL_INTEGER_ID:
+                setLong(row,Encoding.decodeInt(data,offset,desc));
+                return;
+            default:
+                setLong(row,Encoding.decodeLong(data,offset,desc));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.derby.stream.vector;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+
+/**
+ * A vector of descriptors, for the types which have no primitive representation. The descriptors are
+ * reused from batch to batch.
+ */
+public class ObjectColumnVector extends ColumnVector{
+    private final DataValueDescriptor[] values;
+    private final DataValueDescriptor nullValue;
+
+    public ObjectColumnVector(DataValueDescriptor template,int capacity){
+        super(template,capacity);
+        this.values = new DataValueDescriptor[capacity];
+        this.nullValue = template.getNewNull();
+    }
+
+    @Override
+    public void set(int row,DataValueDescriptor value) throws StandardException{
+        if(value==null || value.isNull())
+            setNull(row);
+        else{
+            values[row] = value.cloneValue(false);
+            clearNull(row);
+        }
+    }
+
+    @Override
+    public DataValueDescriptor get(int row,DataValueDescriptor reuse){
+        return isNull(row)?nullValue:values[row];
+    }
+
+    @Override
+    public void decode(int row,DescriptorSerializer serializer,byte[] data,int offset,int length,boolean desc) throws StandardException{
+        DataValueDescriptor dvd = values[row];
+        if(dvd==null){
+            dvd = template.getNewNull();
+            values[row] = dvd;
+        }
+        serializer.decodeDirect(dvd,data,offset,length,desc);
+        clearNull(row);
+    }
+}
@@ -15,11 +15,15 @@
 package com.splicemachine.derby.stream.window;
 
 import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.shared.common.reference.SQLState;
+import com.splicemachine.db.iapi.sql.conn.ControlExecutionLimiter;
+import com.splicemachine.db.iapi.sql.conn.ResubmitDistributedException;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.derby.impl.sql.execute.operations.window.FrameDefinition;
 import com.splicemachine.derby.impl.sql.execute.operations.window.WindowAggregator;
 import com.splicemachine.derby.impl.sql.execute.operations.window.function.SpliceGenericWindowFunction;
+import com.splicemachine.derby.stream.control.ControlUtils;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.spark_project.guava.collect.Iterators;
 import org.spark_project.guava.collect.PeekingIterator;
@@ -31,22 +35,31 @@ import java.util.List;
 
 /**
  * Created by jyuan on 9/15/14.
+ *
+ * The rows a frame buffer holds at once are bounded by the control-side memory limit. A frame can't spill, since
+ * its rows are accessed at random, so a partition whose frame outgrows the limit moves the query to Spark where
+ * possible, and fails otherwise.
  */
 abstract public class BaseFrameBuffer implements WindowFrameBuffer{
     protected final long frameStart;
     protected final long frameEnd;
     private final WindowAggregator[] aggregators;
     private final ExecRow templateRow;
+    private final long memoryLimit;
+    private final ControlExecutionLimiter limiter;
     private ResultBuffer resultBuffer;
+    private long bufferedBytes;
 
     protected int start;
     protected int end;
     protected int current;
-    protected ArrayList<ExecRow> rows;
+    protected FrameRowBuffer rows;
     protected PeekingIterator<ExecRow> source;
     protected byte[] partition;
     protected int[] sortColumns;
     private boolean initialized;
+    private boolean streaming;
+    private ExecRow pending;
 
     @SuppressFBWarnings(value="EI_EXPOSE_REP2", justification="Intentional")
     public static WindowFrameBuffer createFrameBuffer(
@@ -54,17 +67,19 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
                                                       Iterator<ExecRow> source,
                                                       FrameDefinition frameDefinition,
                                                       int[] sortColumns,
-                                                      ExecRow templateRow) throws StandardException {
+                                                      ExecRow templateRow,
+                                                      long memoryLimit,
+                                                      ControlExecutionLimiter limiter) throws StandardException {
 
         FrameDefinition.FrameMode frameMode = frameDefinition.getFrameMode();
         PeekingIterator<ExecRow> peekingSource = Iterators.peekingIterator(source);
         if (frameMode == FrameDefinition.FrameMode.ROWS) {
             return new PhysicalGroupFrameBuffer(
-                    aggregators, peekingSource, frameDefinition, sortColumns, templateRow);
+                    aggregators, peekingSource, frameDefinition, sortColumns, templateRow, memoryLimit, limiter);
         }
         else {
             return new LogicalGroupFrameBuffer(
-                    aggregators, peekingSource, frameDefinition, sortColumns, templateRow);
+                    aggregators, peekingSource, frameDefinition, sortColumns, templateRow, memoryLimit, limiter);
         }
     }
 
@@ -73,11 +88,15 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
                             PeekingIterator<ExecRow> source,
                             FrameDefinition frameDefinition,
                             int[] sortColumns,
-                            ExecRow templateRow) throws StandardException {
+                            ExecRow templateRow,
+                            long memoryLimit,
+                            ControlExecutionLimiter limiter) throws StandardException {
         this.aggregators = aggregators;
         this.source = source;
         this.sortColumns = sortColumns;
         this.templateRow = templateRow;
+        this.memoryLimit = memoryLimit;
+        this.limiter = limiter;
 
         for (WindowAggregator aggregator: this.aggregators) {
             aggregator.initialize(this.templateRow);
@@ -87,11 +106,19 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
         // The frame definition will not change over the life of this frame buffer
         this.frameStart = frameDefinition.getFrameStart().getValue();
         this.frameEnd = frameDefinition.getFrameEnd().getValue();
-        this.rows = new ArrayList<ExecRow>();
+        this.rows = new FrameRowBuffer();
         this.resultBuffer = new ResultBuffer();
     }
 
     public ExecRow next() {
+        if (streaming) {
+            if (!hasNext()) {
+                return null;
+            }
+            ExecRow row = pending;
+            pending = null;
+            return row;
+        }
         return resultBuffer.next();
     }
 
@@ -108,7 +135,9 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
             SpliceGenericWindowFunction function = (SpliceGenericWindowFunction) templateRow.getColumn(aggregatorColumnId).getObject();
             row.setColumn(resultColumnId, function.getResult().cloneValue(false));
         }
-        this.resultBuffer.bufferResult(row);
+        if (!streaming) {
+            this.resultBuffer.bufferResult(row);
+        }
         return row;
     }
 
@@ -132,22 +161,79 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
             initialized = true;
             try {
                 reset();
-                while (nextInternal() != null) {
-                    move();
+                // Unless a function needs to see the whole partition before its results are known,
+                // each row is final once its window has been aggregated, so rows are emitted as the
+                // frame slides instead of being buffered until the end of the partition.
+                streaming = !needsEntireFrame();
+                if (!streaming) {
+                    while (nextInternal() != null) {
+                        move();
+                    }
+                    finishFrame();
                 }
-                finishFrame();
             } catch (Exception se) {
                 throw new RuntimeException(se);
             }
         }
+        if (streaming) {
+            if (pending == null) {
+                try {
+                    pending = nextInternal();
+                    if (pending != null) {
+                        move();
+                    }
+                } catch (Exception se) {
+                    throw new RuntimeException(se);
+                }
+            }
+            return pending != null;
+        }
         return resultBuffer.hasNext();
     }
 
+    private boolean needsEntireFrame() throws StandardException {
+        for (WindowAggregator aggregator : aggregators) {
+            SpliceGenericWindowFunction function =
+                    (SpliceGenericWindowFunction) templateRow.getColumn(aggregator.getFunctionColumnId()).getObject();
+            if (function.needsEntireFrame()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public void remove() {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Adds a row to the tail of the buffer, failing once the rows held outgrow the memory limit.
+     */
+    protected void bufferRow(ExecRow row) throws StandardException {
+        rows.add(row);
+        if (memoryLimit > 0) {
+            bufferedBytes += ControlUtils.estimateHeapSize(row);
+            if (bufferedBytes > memoryLimit) {
+                if (limiter != ControlExecutionLimiter.NO_OP)
+                    throw new ResubmitDistributedException();
+                throw StandardException.newException(SQLState.LANG_WINDOW_FRAME_TOO_LARGE, memoryLimit);
+            }
+        }
+    }
+
+    /**
+     * Removes the row at the head of the buffer. Unless the results are buffered until the end of the
+     * partition, the row is no longer held.
+     */
+    protected void releaseFirstRow() {
+        ExecRow row = rows.removeFirst();
+        if (memoryLimit > 0 && streaming) {
+            // results have been set on the row since it was added, so don't go below nothing
+            bufferedBytes = Math.max(0L, bufferedBytes - ControlUtils.estimateHeapSize(row));
+        }
+    }
+
     protected void add(ExecRow row) throws StandardException{
         for(WindowAggregator aggregator : aggregators) {
             aggregator.accumulate(row, templateRow);
@@ -164,7 +250,7 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
     }
 
     protected void reset() throws StandardException, IOException {
-        rows = new ArrayList<ExecRow>();
+        rows.clear();
 
         // Initialize window functions
         for (WindowAggregator aggregator : this.aggregators) {
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.derby.stream.window;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+
+import java.util.Arrays;
+
+/**
+ * The rows currently held by a window frame buffer. Rows only ever enter at the tail and leave at the
+ * head as the frame slides, so they are kept in a growable circular array: adding and removing a row
+ * are O(1), where removing the head of an ArrayList shifts every remaining row.
+ */
+class FrameRowBuffer{
+    private ExecRow[] rows;
+    private int head;
+    private int size;
+
+    FrameRowBuffer(){
+        this(16);
+    }
+
+    FrameRowBuffer(int initialCapacity){
+        this.rows = new ExecRow[Integer.highestOneBit(Math.max(initialCapacity,2)-1)<<1];
+    }
+
+    int size(){
+        return size;
+    }
+
+    /**
+     * @param i the position of the row relative to the head of the buffer
+     */
+    ExecRow get(int i){
+        if(i<0 || i>=size)
+            throw new IndexOutOfBoundsException("Index: "+i+", Size: "+size);
+        return rows[(head+i)&(rows.length-1)];
+    }
+
+    void add(ExecRow row){
+        if(size==rows.length)
+            grow();
+        rows[(head+size)&(rows.length-1)] = row;
+        size++;
+    }
+
+    ExecRow removeFirst(){
+        if(size==0)
+            throw new IndexOutOfBoundsException("Buffer is empty");
+        ExecRow row = rows[head];
+        rows[head] = null;
+        head = (head+1)&(rows.length-1);
+        size--;
+        return row;
+    }
+
+    void clear(){
+        Arrays.fill(rows,null);
+        head = size = 0;
+    }
+
+    private void grow(){
+        ExecRow[] newRows = new ExecRow[rows.length<<1];
+        int tail = rows.length-head;
+        System.arraycopy(rows,head,newRows,0,tail);
+        System.arraycopy(rows,0,newRows,tail,head);
+        rows = newRows;
+        head = 0;
+    }
+}
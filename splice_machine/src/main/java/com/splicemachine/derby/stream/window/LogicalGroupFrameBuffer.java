@@ -16,6 +16,7 @@ package com.splicemachine.derby.stream.window;
 
 import org.spark_project.guava.collect.PeekingIterator;
 import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.conn.ControlExecutionLimiter;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.derby.impl.sql.execute.operations.window.FrameDefinition;
@@ -32,8 +33,10 @@ public class LogicalGroupFrameBuffer extends BaseFrameBuffer {
                                     PeekingIterator<ExecRow> source,
                                     FrameDefinition frameDefinition,
                                     int[] sortColumns,
-                                    ExecRow templateRow) throws StandardException {
-        super(aggregators, source, frameDefinition, sortColumns, templateRow);
+                                    ExecRow templateRow,
+                                    long memoryLimit,
+                                    ControlExecutionLimiter limiter) throws StandardException {
+        super(aggregators, source, frameDefinition, sortColumns, templateRow, memoryLimit, limiter);
     }
 
     @Override
@@ -56,7 +59,7 @@ public class LogicalGroupFrameBuffer extends BaseFrameBuffer {
                 if (v.compare(currentValue)==0) {
                     // if the value falls into the window frame, aggregate it
                     add(clonedRow);
-                    rows.add(clonedRow);
+                    bufferRow(clonedRow);
                 }
                 else {
                     endOfFrame = true;
@@ -65,7 +68,7 @@ public class LogicalGroupFrameBuffer extends BaseFrameBuffer {
             }
             else {
                 // Otherwise, always aggregate it
-                rows.add(clonedRow);
+                bufferRow(clonedRow);
                 add(clonedRow);
             }
             // advance iterator
@@ -90,7 +93,7 @@ public class LogicalGroupFrameBuffer extends BaseFrameBuffer {
             if (source.hasNext()) {
                 ExecRow row = source.next();
                 ExecRow clonedRow = row.getClone();
-                rows.add(clonedRow);
+                bufferRow(clonedRow);
                 // One more row is added into the frame buffer, include one more row into the window frame
                 end++;
                 add(rows.get(end));
@@ -122,7 +125,7 @@ public class LogicalGroupFrameBuffer extends BaseFrameBuffer {
         // Remove rows from buffer if they are no longer needed
         int minIndex = current < start ? current : start;
         for (int i = 0; i < minIndex; ++i) {
-            rows.remove(0);
+            releaseFirstRow();
             start--;
             current--;
             end--;
@@ -138,7 +141,7 @@ public class LogicalGroupFrameBuffer extends BaseFrameBuffer {
                 if (newKey != null && newKey.compare(v) == 0) {
                     //advance iterator
                     source.next();
-                    rows.add(clonedRow);
+                    bufferRow(clonedRow);
                     add(clonedRow);
                     end++;
                 } else {
@@ -15,6 +15,7 @@
 package com.splicemachine.derby.stream.window;
 
 import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.conn.ControlExecutionLimiter;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.derby.impl.sql.execute.operations.window.FrameDefinition;
 import com.splicemachine.derby.impl.sql.execute.operations.window.WindowAggregator;
@@ -31,8 +32,10 @@ public class PhysicalGroupFrameBuffer extends BaseFrameBuffer {
                                      PeekingIterator<ExecRow> source,
                                      FrameDefinition frameDefinition,
                                      int[] sortColumns,
-                                     ExecRow templateRow) throws StandardException {
-        super(aggregators, source, frameDefinition, sortColumns, templateRow);
+                                     ExecRow templateRow,
+                                     long memoryLimit,
+                                     ControlExecutionLimiter limiter) throws StandardException {
+        super(aggregators, source, frameDefinition, sortColumns, templateRow, memoryLimit, limiter);
     }
 
     @Override
@@ -48,7 +51,7 @@ public class PhysicalGroupFrameBuffer extends BaseFrameBuffer {
             }
             ExecRow row = source.next();
             ExecRow clonedRow = row.getClone();
-            rows.add(clonedRow);
+            bufferRow(clonedRow);
 
             // if the next row belongs to the same partition and falls
             // into the window range
@@ -80,7 +83,7 @@ public class PhysicalGroupFrameBuffer extends BaseFrameBuffer {
             // 2. the row was just moved out of th window frame
             // 3. window start frame is after the current row
 
-            rows.remove(0);
+            releaseFirstRow();
             start--;
             current--;
             end--;
@@ -93,7 +96,7 @@ public class PhysicalGroupFrameBuffer extends BaseFrameBuffer {
                 if (source.hasNext()) {
                     ExecRow row = source.next();
                     ExecRow clonedRow = row.getClone();
-                    rows.add(clonedRow);
+                    bufferRow(clonedRow);
                     // One more row is added into the frame buffer, include one more row into the window frame
                     end++;
                     add(rows.get(end));
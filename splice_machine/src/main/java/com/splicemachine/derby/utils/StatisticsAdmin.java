@@ -495,14 +495,14 @@ public class StatisticsAdmin extends BaseAdminProcedures {
 
         ScanSetBuilder ssb = dsp.newScanSet(null,Long.toString(heapConglomerateId));
         ssb.tableVersion(table.getVersion());
-        ScanSetBuilder scanSetBuilder = createTableScanner(ssb,conn,table,txn);
+        ScanSetBuilder scanSetBuilder = createTableScanner(ssb,conn.getLanguageConnection(),table,txn);
         String scope = getScopeName(table);
         // no sample stats support on mem platform
         if (dsp.getType() != DataSetProcessor.Type.SPARK) {
             useSample = false;
             sampleFraction = 0.0d;
         }
-        List<ColumnDescriptor> colsToCollect = getCollectedColumns(conn, table);
+        List<ColumnDescriptor> colsToCollect = getCollectedColumns(conn.getLanguageConnection(), table);
         DataTypeDescriptor[] dtds = new DataTypeDescriptor[colsToCollect.size()];
         int index = 0;
         for (ColumnDescriptor descriptor : colsToCollect ) {
@@ -530,12 +530,16 @@ public class StatisticsAdmin extends BaseAdminProcedures {
         return conglomerate.getFormat_ids();
     }
 
-    private static ScanSetBuilder createTableScanner(ScanSetBuilder builder,
-                                                     EmbedConnection conn,
-                                                     TableDescriptor table,
-                                                     TxnView txn) throws StandardException{
+    /**
+     * Configures {@code builder} to decode the columns statistics are collected on for {@code table}, in the
+     * same layout the collection job uses. Also used to collect statistics during major compactions.
+     */
+    public static ScanSetBuilder createTableScanner(ScanSetBuilder builder,
+                                                    LanguageConnectionContext lcc,
+                                                    TableDescriptor table,
+                                                    TxnView txn) throws StandardException{
 
-        List<ColumnDescriptor> colsToCollect = getCollectedColumns(conn, table);
+        List<ColumnDescriptor> colsToCollect = getCollectedColumns(lcc, table);
         ExecRow row = new ValueRow(colsToCollect.size());
         BitSet accessedColumns = new BitSet(table.getMaxStorageColumnID());
         int outputCol = 0;
@@ -559,7 +563,7 @@ public class StatisticsAdmin extends BaseAdminProcedures {
             fieldLengths[outputCol] = allColumnLengths[i];
             outputCol++;
         }
-        TransactionController transactionExecute = conn.getLanguageConnection().getTransactionExecute();
+        TransactionController transactionExecute = lcc.getTransactionExecute();
         SpliceConglomerate conglomerate = (SpliceConglomerate) ((SpliceTransactionManager) transactionExecute)
                 .findConglomerate(table.getHeapConglomerateId());
         boolean[] keyColumnSortOrder = conglomerate.getAscDescInfo();
@@ -663,12 +667,12 @@ public class StatisticsAdmin extends BaseAdminProcedures {
         }
     };
 
-    private static List<ColumnDescriptor> getCollectedColumns(EmbedConnection conn, TableDescriptor td) throws StandardException {
+    private static List<ColumnDescriptor> getCollectedColumns(LanguageConnectionContext lcc, TableDescriptor td) throws StandardException {
         ColumnDescriptorList columnDescriptorList = td.getColumnDescriptorList();
         List<ColumnDescriptor> toCollect = new ArrayList<>(columnDescriptorList.size());
 
         /* check the default collect stats behavior, whether to collect stats on all columns or just index columns */
-        String collectStatsMode = PropertyUtil.getServiceProperty(conn.getLanguageConnection().getTransactionCompile(),
+        String collectStatsMode = PropertyUtil.getServiceProperty(lcc.getTransactionCompile(),
                 Property.COLLECT_INDEX_STATS_ONLY);
         boolean collectIndexStatsOnly = Boolean.valueOf(collectStatsMode);
 
@@ -46,6 +46,7 @@ import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.dictionary.DataDictionary;
 import com.splicemachine.db.iapi.store.access.TransactionController;
 import com.splicemachine.db.impl.jdbc.EmbedConnection;
+import com.splicemachine.derby.impl.sql.execute.ResultCacheWriteTracker;
 import com.splicemachine.derby.impl.sql.execute.actions.ActiveTransactionReader;
 import com.splicemachine.derby.impl.store.access.SpliceTransactionManager;
 import com.splicemachine.pipeline.ErrorState;
@@ -225,11 +226,16 @@ public class Vacuum{
             }
 
             List<DataDelete> deletes = new ArrayList<>();
+            long[] removedConglomerates = new long[toDelete.size()];
+            int i = 0;
             for (long removed : toDelete) {
                 DataDelete delete = driver.baseOperationFactory().newDelete(Bytes.toBytes(removed));
                 deletes.add(delete);
+                removedConglomerates[i++] = removed;
             }
             dropped.delete(deletes);
+            // the drops committed before any active transaction began, so nothing can still write to them
+            ResultCacheWriteTracker.instance().dropped(removedConglomerates);
         } catch (IOException | InterruptedException | ExecutionException e) {
             LOG.error("Vacuum Unexpected exception", e);
             throw PublicAPI.wrapStandardException(Exceptions.parseException(e));
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.utils;
+
+import com.splicemachine.concurrent.WorkloadClass;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.reference.Property;
+import com.splicemachine.db.iapi.services.context.ContextService;
+import com.splicemachine.db.iapi.services.property.PropertyUtil;
+import com.splicemachine.db.iapi.sql.Activation;
+import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
+import com.splicemachine.db.iapi.sql.conn.SessionProperties;
+import org.apache.log4j.Logger;
+
+import java.util.List;
+
+/**
+ * Resolves the {@link WorkloadClass} tasks of the current statement are scheduled with.
+ *
+ * In order of precedence, the class is taken from the WORKLOADCLASS session property, the
+ * {@code splice.workloadClass.<user>} database property of the session user, the
+ * {@code splice.workloadClass.<role>} property of the first current role which has one, and finally
+ * the class of the task the current thread is executing ({@link WorkloadClass#current()}).
+ */
+public class WorkloadClasses{
+    private static final Logger LOG=Logger.getLogger(WorkloadClasses.class);
+
+    private WorkloadClasses(){}
+
+    /**
+     * @return the workload class of the statement the current thread executes
+     */
+    public static WorkloadClass current(){
+        LanguageConnectionContext lcc=(LanguageConnectionContext)ContextService.getContextOrNull(LanguageConnectionContext.CONTEXT_ID);
+        if(lcc==null)
+            return WorkloadClass.current();
+        return forConnection(lcc);
+    }
+
+    public static WorkloadClass forConnection(LanguageConnectionContext lcc){
+        Object sessionClass=lcc.getSessionProperties().getProperty(SessionProperties.PROPERTYNAME.WORKLOADCLASS);
+        if(sessionClass instanceof WorkloadClass)
+            return (WorkloadClass)sessionClass;
+
+        try{
+            WorkloadClass workloadClass=lookup(lcc,lcc.getSessionUserId());
+            if(workloadClass!=null)
+                return workloadClass;
+
+            Activation activation=lcc.getLastActivation();
+            if(activation!=null){
+                List<String> roles=lcc.getCurrentRoles(activation);
+                if(roles!=null){
+                    for(String role : roles){
+                        workloadClass=lookup(lcc,role);
+                        if(workloadClass!=null)
+                            return workloadClass;
+                    }
+                }
+            }
+        }catch(StandardException se){
+            LOG.warn("Unable to read the workload class of user "+lcc.getSessionUserId(),se);
+        }
+        return WorkloadClass.current();
+    }
+
+    private static WorkloadClass lookup(LanguageConnectionContext lcc,String authorizationId) throws StandardException{
+        if(authorizationId==null)
+            return null;
+        // This runs for every task a statement schedules, so read through the dictionary's property
+        // cache rather than the property conglomerate; setting the property invalidates the entry
+        String value=PropertyUtil.getCachedDatabaseProperty(lcc,Property.WORKLOAD_CLASS_PREFIX+authorizationId);
+        return WorkloadClass.forName(value);
+    }
+}
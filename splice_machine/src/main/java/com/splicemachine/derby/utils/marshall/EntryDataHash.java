@@ -52,6 +52,16 @@ public class EntryDataHash extends BareKeyHash implements DataHash<ExecRow>{
 
 		@Override
 		public byte[] encode() throws StandardException, IOException {
+				return encodeFields().encode();
+		}
+
+		/**
+		 * Encodes the fields of the current row without assembling them into an entry, so that callers can write
+		 * the entry into a buffer of their own with {@link EntryEncoder#encode(byte[], int)}.
+		 *
+		 * @return the encoder holding the current row, valid until the next row is set
+		 */
+		public EntryEncoder encodeFields() throws StandardException, IOException {
 				if(entryEncoder==null)
 						entryEncoder = buildEntryEncoder();
 
@@ -60,7 +70,7 @@ public class EntryDataHash extends BareKeyHash implements DataHash<ExecRow>{
 				entryEncoder.reset(getNotNullFields(currentRow,notNullFields));
 
 				pack(entryEncoder.getEntryEncoder(),currentRow);
-				return entryEncoder.encode();
+				return entryEncoder;
 		}
 
 		protected EntryEncoder buildEntryEncoder() {
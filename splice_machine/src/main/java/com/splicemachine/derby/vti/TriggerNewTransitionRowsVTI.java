@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.vti;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.reference.ClassName;
+import com.splicemachine.db.iapi.reference.SQLState;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.impl.sql.execute.TriggerExecutionContext;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.stream.iapi.DataSet;
+import com.splicemachine.derby.stream.iapi.DataSetProcessor;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.derby.vti.iapi.DatasetProvider;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The new images of the rows a row trigger is fired for, when its action is run once over all of them rather
+ * than once per row.  The rows are taken from the trigger execution context of the statement running the
+ * action; its columns are those of the trigger table.
+ */
+public class TriggerNewTransitionRowsVTI implements DatasetProvider {
+
+    private OperationContext operationContext;
+
+    @Override
+    public DataSet<ExecRow> getDataSet(SpliceOperation op, DataSetProcessor dsp, ExecRow execRow) throws StandardException {
+        operationContext = dsp.createOperationContext(op);
+        TriggerExecutionContext tec = op.getActivation().getLanguageConnectionContext().getTriggerExecutionContext();
+        List<ExecRow> transitionRows = tec == null ? null : tec.getNewTransitionRows();
+        if (transitionRows == null) {
+            throw StandardException.newException(SQLState.LANG_CANNOT_BIND_TRIGGER_V_T_I, ClassName.TriggerNewTransitionRowsVTI);
+        }
+        List<ExecRow> rows = new ArrayList<>(transitionRows.size());
+        for (ExecRow transitionRow : transitionRows) {
+            ExecRow row = execRow.getNewNullRow();
+            for (int i = 1; i <= row.nColumns(); i++) {
+                row.setColumn(i, transitionRow.getColumn(i).cloneValue(false));
+            }
+            rows.add(row);
+        }
+        return dsp.createDataSet(rows.iterator());
+    }
+
+    @Override
+    public ResultSetMetaData getMetaData() throws SQLException {
+        throw new SQLException("not supported");
+    }
+
+    @Override
+    public OperationContext getOperationContext() {
+        return operationContext;
+    }
+}
@@ -85,7 +85,7 @@ public class DerbyContextFactoryLoader implements ContextFactoryLoader{
         this.osf=osf;
         this.pef=pef;
         this.trc=trc;
-        this.fkGroup=new FKWriteFactoryHolder(pef,txnOperationFactory);
+        this.fkGroup=new FKWriteFactoryHolder(conglomId,pef,txnOperationFactory);
         //TODO -sf- memory leak
         this.ddlListener=new DDLWatcher.DDLListener(){
             @Override
@@ -245,6 +245,10 @@ public class DerbyContextFactoryLoader implements ContextFactoryLoader{
             return false;
         }
 
+        // writes to the table, or to one of its indexes, change what cached results of queries over it would be
+        if(dataDictionary.getDataDictionaryCache().getResultCache().isEnabled())
+            ddlFactories.addFactory(new ResultCacheWriteFactory(td.getHeapConglomerateId()));
+
         // - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - -
         // PART 1: Context configuration for PK, FK, and unique constraints using constraint descriptors.
         //
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.pipeline;
+
+import com.splicemachine.pipeline.context.PipelineWriteContext;
+import com.splicemachine.pipeline.contextfactory.LocalWriteFactory;
+
+import java.io.IOException;
+
+/**
+ * LocalWriteFactory for ResultCacheWriteHandler -- see that class for details.
+ */
+class ResultCacheWriteFactory implements LocalWriteFactory{
+    private final long baseConglomerateId;
+
+    /**
+     * @param baseConglomerateId the heap conglomerate of the table, also for the contexts of its indexes
+     */
+    ResultCacheWriteFactory(long baseConglomerateId){
+        this.baseConglomerateId=baseConglomerateId;
+    }
+
+    @Override
+    public void addTo(PipelineWriteContext ctx,boolean keepState,int expectedWrites) throws IOException{
+        ctx.addLast(new ResultCacheWriteHandler(baseConglomerateId));
+    }
+
+    @Override
+    public long getConglomerateId(){
+        return baseConglomerateId;
+    }
+
+    @Override
+    public boolean canReplace(LocalWriteFactory newContext){
+        return false;
+    }
+
+    @Override
+    public void replace(LocalWriteFactory newFactory){
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean equals(Object o){
+        return o instanceof ResultCacheWriteFactory && ((ResultCacheWriteFactory)o).baseConglomerateId==baseConglomerateId;
+    }
+
+    @Override
+    public int hashCode(){
+        return Long.hashCode(baseConglomerateId);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.pipeline;
+
+import com.splicemachine.derby.impl.sql.execute.ResultCacheWriteTracker;
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.pipeline.context.WriteContext;
+import com.splicemachine.pipeline.writehandler.WriteHandler;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+
+/**
+ * Tells the result cache that a table is being written, so that cached results read from it are no
+ * longer served, and results being read are not cached until the writing transaction has finished.
+ * Passes every mutation through; only the first of a batch is recorded. The writer is published to the
+ * other servers when the batch is flushed, and the batch fails if it can't be, since their caches
+ * would otherwise miss the write.
+ */
+@NotThreadSafe
+public class ResultCacheWriteHandler implements WriteHandler{
+    private final long baseConglomerateId;
+    private final ResultCacheWriteTracker tracker;
+    private boolean recorded;
+
+    public ResultCacheWriteHandler(long baseConglomerateId){
+        this.baseConglomerateId=baseConglomerateId;
+        this.tracker=ResultCacheWriteTracker.instance();
+    }
+
+    @Override
+    public void next(KVPair mutation,WriteContext ctx){
+        if(!recorded){
+            tracker.written(baseConglomerateId,ctx.getTxn());
+            recorded=true;
+        }
+        ctx.sendUpstream(mutation);
+    }
+
+    @Override
+    public void flush(WriteContext ctx) throws IOException{
+        if(recorded)
+            tracker.publish(baseConglomerateId,ctx.getTxn());
+    }
+
+    @Override
+    public void close(WriteContext ctx) throws IOException{
+    }
+}
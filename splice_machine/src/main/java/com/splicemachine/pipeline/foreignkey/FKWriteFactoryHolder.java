@@ -37,6 +37,7 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class FKWriteFactoryHolder implements WriteFactoryGroup{
 
+    private final long conglomId;
     private final PipelineExceptionFactory exceptionFactory;
     private final TxnOperationFactory txnOperationFactory;
     /*
@@ -48,7 +49,8 @@ public class FKWriteFactoryHolder implements WriteFactoryGroup{
     private volatile Map<Long, ForeignKeyChildInterceptWriteFactory> childInterceptWriteFactories = new ConcurrentHashMap<>();
     private ForeignKeyParentInterceptWriteFactory parentInterceptWriteFactory;
 
-    public FKWriteFactoryHolder(PipelineExceptionFactory exceptionFactory,TxnOperationFactory txnOperationFactory){
+    public FKWriteFactoryHolder(long conglomId,PipelineExceptionFactory exceptionFactory,TxnOperationFactory txnOperationFactory){
+        this.conglomId=conglomId;
         this.exceptionFactory=exceptionFactory;
         this.txnOperationFactory = txnOperationFactory;
     }
@@ -95,7 +97,7 @@ public class FKWriteFactoryHolder implements WriteFactoryGroup{
     public void addParentInterceptWriteFactory(String parentTableName, List<Long> backingIndexConglomIds,List<FKConstraintInfo> fkConstraintInfos) {
         /* One instance handles all FKs that reference this primary key or unique index */
         if (parentInterceptWriteFactory == null) {
-            parentInterceptWriteFactory = new ForeignKeyParentInterceptWriteFactory(parentTableName, backingIndexConglomIds,exceptionFactory,fkConstraintInfos);
+            parentInterceptWriteFactory = new ForeignKeyParentInterceptWriteFactory(conglomId, parentTableName, backingIndexConglomIds,exceptionFactory,fkConstraintInfos);
         }
     }
 
@@ -38,16 +38,21 @@ import com.splicemachine.storage.DataFilter;
 import com.splicemachine.storage.DataResult;
 import com.splicemachine.storage.Partition;
 import com.splicemachine.storage.util.MapAttributes;
+import com.splicemachine.utils.ByteSlice;
 import javax.annotation.concurrent.NotThreadSafe;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Intercepts insert/updates to a FK constraint backing index and sends the rowKey over to the referenced primary-key or
  * unique-index region for existence checking.
+ *
+ * Each distinct referenced key is fetched once per flush, and not at all when the {@link ForeignKeyParentCache}
+ * already knows it to exist for this transaction.
  */
 @NotThreadSafe
 public class ForeignKeyChildInterceptWriteHandler implements WriteHandler{
@@ -59,6 +64,7 @@ public class ForeignKeyChildInterceptWriteHandler implements WriteHandler{
     private final MultiFieldDecoder multiFieldDecoder;
     private final TypeProvider typeProvider;
     private FKConstraintInfo fkConstraintInfo;
+    private final ForeignKeyParentCache parentCache;
 
     public ForeignKeyChildInterceptWriteHandler(long referencedConglomerateNumber,
                                                 FKConstraintInfo fkConstraintInfo,
@@ -73,6 +79,7 @@ public class ForeignKeyChildInterceptWriteHandler implements WriteHandler{
         this.multiFieldDecoder = MultiFieldDecoder.create();
         this.typeProvider = VersionedSerializers.typesForVersion(fkConstraintInfo.getParentTableVersion());
         this.fkConstraintInfo = fkConstraintInfo;
+        this.parentCache = ForeignKeyParentCache.instance();
     }
 
     @Override
@@ -80,6 +87,11 @@ public class ForeignKeyChildInterceptWriteHandler implements WriteHandler{
         if (isForeignKeyInterceptNecessary(mutation.getType())) {
             mutations.add(mutation);
             ctx.success(mutation);
+        } else if (mutation.getType() == KVPair.Type.DELETE && parentCache.isEnabled()) {
+            /* The referencing row may have been the one that kept the parent row from being deleted */
+            byte[] checkRowKey = getCheckRowKey(mutation.getRowKey());
+            if (checkRowKey != null)
+                parentCache.invalidate(referencedConglomerateNumber, checkRowKey);
         }
         ctx.sendUpstream(mutation);
     }
@@ -92,23 +104,39 @@ public class ForeignKeyChildInterceptWriteHandler implements WriteHandler{
     @Override
     public void flush(WriteContext ctx) throws IOException {
         try {
-            initTable();
-            HashSet<byte[]> culledLookups = new HashSet(mutations.size());
+            /*
+             * Narrow the writes down to the distinct parent keys which are not already known to exist. A row with
+             * a null FK column needs no check (location -1); otherwise locations[i] is the position of the row's
+             * parent key in rowKeysToFetch.
+             */
+            ForeignKeyParentCache.Lookup cached = parentCache.lookup(ctx.getTxn(), ctx.getRegion());
+            Map<ByteSlice, Integer> culledLookups = new HashMap<>(mutations.size());
+            List<byte[]> rowKeysToFetch = new ArrayList<>(mutations.size());
             int[] locations = new int[mutations.size()];
-            int counter = 0;
+            int duplicates = 0;
             for (int i =0; i<mutations.size();i++) {
                 byte[] checkRowKey = getCheckRowKey(mutations.get(i).getRowKey());
-                if (culledLookups.contains(checkRowKey)) {
-                    locations[i] = counter-1;
+                if (checkRowKey == null) {
+                    locations[i] = -1;
+                    continue;
+                }
+                ByteSlice slice = ByteSlice.wrap(checkRowKey);
+                Integer location = culledLookups.get(slice);
+                if (location != null) {
+                    duplicates++;
                 } else {
-                    culledLookups.add(checkRowKey);
-                    locations[i] = counter;
-                    counter++;
+                    location = cached.contains(referencedConglomerateNumber, checkRowKey) ? -1 : rowKeysToFetch.size();
+                    culledLookups.put(slice, location);
+                    if (location >= 0)
+                        rowKeysToFetch.add(checkRowKey);
                 }
+                locations[i] = location;
             }
+            parentCache.recordChecks(rowKeysToFetch.size(), duplicates);
+            if (rowKeysToFetch.isEmpty())
+                return;
 
-            List<byte[]> rowKeysToFetch = new ArrayList<>(culledLookups.size());
-            rowKeysToFetch.addAll(culledLookups);
+            initTable();
             SimpleTxnFilter readUncommittedFilter;
             SimpleTxnFilter readCommittedFilter;
             if (ctx.getTxn() instanceof ActiveWriteTxn) {
@@ -130,6 +158,8 @@ public class ForeignKeyChildInterceptWriteHandler implements WriteHandler{
                 readUncommittedFilter.reset();
                 if (!hasData(result,readCommittedFilter) || !hasData(result,readUncommittedFilter))
                     misses.set(i);
+                else
+                    cached.verified(referencedConglomerateNumber, rowKeysToFetch.get(i));
                 i++;
             }
 
@@ -139,7 +169,7 @@ public class ForeignKeyChildInterceptWriteHandler implements WriteHandler{
             // Assemble failures for the write pipeline with error codes.
             i=0;
             for (int location: locations) {
-                if (misses.get(location))
+                if (location >= 0 && misses.get(location))
                     failWrite(mutations.get(i),ctx);
                 i++;
             }
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.pipeline.foreignkey;
+
+import com.carrotsearch.hppc.LongObjectHashMap;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.driver.SIDriver;
+import com.splicemachine.storage.Partition;
+import org.spark_project.guava.cache.Cache;
+import org.spark_project.guava.cache.CacheBuilder;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers, per parent conglomerate, the referenced keys that a foreign key check found to exist, along with
+ * the transaction of the child write that was checked.
+ *
+ * A key found here is only trusted by a later write when the row that was checked against it is known to stay:
+ * <ul>
+ *     <li>the later write belongs to the same transaction (e.g. another batch of the same statement), or</li>
+ *     <li>the checking transaction has committed, or has committed into a transaction that the later write
+ *     descends from (e.g. an earlier statement of the same user transaction).</li>
+ * </ul>
+ * Once that child row exists, the parent intercept refuses to delete the parent row, so the parent key stays
+ * valid for as long as the child row does. Deleting either row drops the key: the parent intercept invalidates
+ * on parent deletes, and the child intercept on deletes from the FK backing index. Keys verified by a
+ * transaction that rolled back are dropped when next seen.
+ *
+ * Invalidation is local to this JVM. That is enough because an entry also remembers the region of the FK backing
+ * index that the checked child row was written to, and is only trusted while that region is open here: as long
+ * as it is, deletes of the child row go through this JVM's child intercept, and a parent deleted elsewhere is
+ * still refused by the parent intercept. Once the region closes, be it for a move, a split or a shutdown, its
+ * entries are dropped when next seen, since the child row may then be deleted on another server.
+ */
+@ThreadSafe
+public class ForeignKeyParentCache implements ForeignKeyParentCacheStatus{
+    private static volatile ForeignKeyParentCache INSTANCE;
+
+    private final TxnSupplier txnSupplier;
+    private final int maxSize;
+    private final Cache<ParentKey,Entry> entries;
+
+    private final AtomicLong parentLookups = new AtomicLong(0l);
+    private final AtomicLong duplicateKeysSkipped = new AtomicLong(0l);
+    private final AtomicLong cacheHits = new AtomicLong(0l);
+    private final AtomicLong invalidations = new AtomicLong(0l);
+
+    public static ForeignKeyParentCache instance(){
+        ForeignKeyParentCache cache = INSTANCE;
+        if(cache==null){
+            synchronized(ForeignKeyParentCache.class){
+                cache = INSTANCE;
+                if(cache==null){
+                    SIDriver driver = SIDriver.driver();
+                    cache = INSTANCE = new ForeignKeyParentCache(driver.getTxnSupplier(),
+                            driver.getConfiguration().getForeignKeyParentCacheSize());
+                }
+            }
+        }
+        return cache;
+    }
+
+    ForeignKeyParentCache(TxnSupplier txnSupplier,int maxSize){
+        this.txnSupplier = txnSupplier;
+        this.maxSize = Math.max(0,maxSize);
+        this.entries = CacheBuilder.newBuilder().maximumSize(this.maxSize).build();
+    }
+
+    public boolean isEnabled(){
+        return maxSize>0;
+    }
+
+    /**
+     * @param txn the transaction of the child write
+     * @param childRegion the region of the FK backing index the child write is made to
+     * @return a view of the cache for the checks of one flush of child writes made under {@code txn}
+     */
+    public Lookup lookup(TxnView txn,Partition childRegion){
+        return new Lookup(txn,childRegion);
+    }
+
+    public void invalidate(long parentConglomerate,byte[] parentKey){
+        if(!isEnabled()) return;
+        ParentKey key = new ParentKey(parentConglomerate,parentKey);
+        if(entries.getIfPresent(key)!=null){
+            entries.invalidate(key);
+            invalidations.incrementAndGet();
+        }
+    }
+
+    void recordChecks(int fetched,int duplicates){
+        parentLookups.addAndGet(fetched);
+        duplicateKeysSkipped.addAndGet(duplicates);
+    }
+
+    @Override public long getParentLookups(){ return parentLookups.get(); }
+    @Override public long getDuplicateKeysSkipped(){ return duplicateKeysSkipped.get(); }
+    @Override public long getCacheHits(){ return cacheHits.get(); }
+    @Override public long getInvalidations(){ return invalidations.get(); }
+    @Override public long getCacheSize(){ return entries.size(); }
+    @Override public int getMaxCacheSize(){ return maxSize; }
+    @Override public void clear(){ entries.invalidateAll(); }
+
+    /**
+     * The cache as seen by a single transaction. The state of each checking transaction is looked up at most
+     * once, so a Lookup should not outlive the flush it was created for.
+     */
+    @NotThreadSafe
+    public class Lookup{
+        private final TxnView txn;
+        private final WeakReference<Partition> childRegion;
+        private final LongObjectHashMap<Validity> checkedTxns = new LongObjectHashMap<>();
+
+        private Lookup(TxnView txn,Partition childRegion){
+            this.txn = txn;
+            this.childRegion = new WeakReference<>(childRegion);
+        }
+
+        public boolean contains(long parentConglomerate,byte[] parentKey) throws IOException{
+            if(!isEnabled()) return false;
+            ParentKey key = new ParentKey(parentConglomerate,parentKey);
+            Entry entry = entries.getIfPresent(key);
+            if(entry==null) return false;
+            if(!entry.isRegionOpen()){
+                entries.asMap().remove(key,entry);
+                invalidations.incrementAndGet();
+                return false;
+            }
+            if(entry.committed || entry.txnId==txn.getTxnId()){
+                cacheHits.incrementAndGet();
+                return true;
+            }
+            Validity validity = checkedTxns.get(entry.txnId);
+            if(validity==null){
+                validity = validity(entry.txnId);
+                checkedTxns.put(entry.txnId,validity);
+            }
+            switch(validity){
+                case COMMITTED:
+                    entry.committed = true;
+                    //fall through
+                case VISIBLE:
+                    cacheHits.incrementAndGet();
+                    return true;
+                case ROLLED_BACK:
+                    entries.asMap().remove(key,entry);
+                    invalidations.incrementAndGet();
+                    //fall through
+                default:
+                    return false;
+            }
+        }
+
+        public void verified(long parentConglomerate,byte[] parentKey){
+            if(!isEnabled()) return;
+            entries.put(new ParentKey(parentConglomerate,parentKey),new Entry(txn.getTxnId(),childRegion));
+        }
+
+        private Validity validity(long checkingTxnId) throws IOException{
+            TxnView checkingTxn = txnSupplier.getTransaction(checkingTxnId);
+            switch(checkingTxn.getEffectiveState()){
+                case COMMITTED:
+                    return Validity.COMMITTED;
+                case ROLLEDBACK:
+                    return Validity.ROLLED_BACK;
+                default:
+                    if(checkingTxn.getState()==Txn.State.COMMITTED && txn.descendsFrom(checkingTxn.getParentTxnView()))
+                        return Validity.VISIBLE;
+                    return Validity.UNKNOWN;
+            }
+        }
+    }
+
+    private enum Validity{
+        COMMITTED,
+        VISIBLE,
+        ROLLED_BACK,
+        UNKNOWN
+    }
+
+    private static final class Entry{
+        private final long txnId;
+        /*weak, so that the cache doesn't keep closed regions around*/
+        private final WeakReference<Partition> childRegion;
+        private volatile boolean committed;
+
+        Entry(long txnId,WeakReference<Partition> childRegion){
+            this.txnId = txnId;
+            this.childRegion = childRegion;
+        }
+
+        boolean isRegionOpen(){
+            Partition region = childRegion.get();
+            return region!=null && !region.isClosed() && !region.isClosing();
+        }
+    }
+
+    private static final class ParentKey{
+        private final long conglomerate;
+        private final byte[] key;
+        private final int hashCode;
+
+        ParentKey(long conglomerate,byte[] key){
+            this.conglomerate = conglomerate;
+            this.key = key;
+            this.hashCode = 31*Long.hashCode(conglomerate)+Arrays.hashCode(key);
+        }
+
+        @Override
+        public boolean equals(Object o){
+            if(this==o) return true;
+            if(!(o instanceof ParentKey)) return false;
+            ParentKey that = (ParentKey)o;
+            return conglomerate==that.conglomerate && Arrays.equals(key,that.key);
+        }
+
+        @Override
+        public int hashCode(){
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.pipeline.foreignkey;
+
+import javax.management.MXBean;
+
+/**
+ * Counters of the foreign key parent checks made by the child intercept, and of the
+ * {@link ForeignKeyParentCache} that lets them skip lookups against the parent table.
+ */
+@MXBean
+public interface ForeignKeyParentCacheStatus{
+
+    /**
+     * @return the number of parent keys that were read from a parent table.
+     */
+    long getParentLookups();
+
+    /**
+     * @return the number of parent checks that were answered by another row of the same write.
+     */
+    long getDuplicateKeysSkipped();
+
+    /**
+     * @return the number of parent checks that were answered by the cache.
+     */
+    long getCacheHits();
+
+    /**
+     * @return the number of cached parent keys dropped because the parent row or a referencing
+     * row was deleted, or because the transaction that verified the key rolled back.
+     */
+    long getInvalidations();
+
+    long getCacheSize();
+
+    int getMaxCacheSize();
+
+    void clear();
+}
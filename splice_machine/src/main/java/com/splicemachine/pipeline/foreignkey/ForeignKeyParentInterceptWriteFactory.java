@@ -28,14 +28,17 @@ import java.util.List;
  */
 class ForeignKeyParentInterceptWriteFactory implements LocalWriteFactory{
 
+    private final long parentConglomerateNumber;
     private final String parentTableName;
     private final List<Long> referencingIndexConglomerateNumbers = Lists.newArrayList();
     private final PipelineExceptionFactory exceptionFactory;
     private final List<DDLMessage.FKConstraintInfo> constraintInfos = Lists.newArrayList();
 
-    ForeignKeyParentInterceptWriteFactory(String parentTableName,
+    ForeignKeyParentInterceptWriteFactory(long parentConglomerateNumber,
+                                          String parentTableName,
                                           List<Long> referencingIndexConglomerateNumbers,
                                           PipelineExceptionFactory exceptionFactory, List<DDLMessage.FKConstraintInfo> fkConstraintInfo) {
+        this.parentConglomerateNumber = parentConglomerateNumber;
         this.parentTableName = parentTableName;
         this.exceptionFactory=exceptionFactory;
         this.referencingIndexConglomerateNumbers.addAll(referencingIndexConglomerateNumbers);
@@ -44,7 +47,7 @@ class ForeignKeyParentInterceptWriteFactory implements LocalWriteFactory{
 
     @Override
     public void addTo(PipelineWriteContext ctx, boolean keepState, int expectedWrites) throws IOException {
-        ctx.addLast(new ForeignKeyParentInterceptWriteHandler(parentTableName, referencingIndexConglomerateNumbers,exceptionFactory,constraintInfos));
+        ctx.addLast(new ForeignKeyParentInterceptWriteHandler(parentConglomerateNumber, parentTableName, referencingIndexConglomerateNumbers,exceptionFactory,constraintInfos));
     }
 
     @Override
@@ -42,6 +42,7 @@ import java.util.List;
  */
 @NotThreadSafe
 public class ForeignKeyParentInterceptWriteHandler implements WriteHandler{
+    private final long parentConglomerateNumber;
     private final List<Long> referencingIndexConglomerateIds;
     private final List<DDLMessage.FKConstraintInfo> constraintInfos;
     private final ForeignKeyViolationProcessor violationProcessor;
@@ -49,25 +50,31 @@ public class ForeignKeyParentInterceptWriteHandler implements WriteHandler{
     private HashMap<Long,Partition> childPartitions = new HashMap<>();
     private String parentTableName;
     private ObjectArrayList<KVPair> mutations = new ObjectArrayList<>();
+    private final ForeignKeyParentCache parentCache;
 
 
-    public ForeignKeyParentInterceptWriteHandler(String parentTableName,
+    public ForeignKeyParentInterceptWriteHandler(long parentConglomerateNumber,
+                                                 String parentTableName,
                                                  List<Long> referencingIndexConglomerateIds,
                                                  PipelineExceptionFactory exceptionFactory,
                                                  List<DDLMessage.FKConstraintInfo> constraintInfos
                                                  ) {
+        this.parentConglomerateNumber = parentConglomerateNumber;
         this.referencingIndexConglomerateIds = referencingIndexConglomerateIds;
         this.violationProcessor = new ForeignKeyViolationProcessor(
                 new ForeignKeyViolationProcessor.ParentFkConstraintContextProvider(parentTableName),exceptionFactory);
         this.constraintInfos = constraintInfos;
         this.txnOperationFactory = SIDriver.driver().getOperationFactory();
         this.parentTableName = parentTableName;
+        this.parentCache = ForeignKeyParentCache.instance();
     }
 
     @Override
     public void next(KVPair mutation, WriteContext ctx) {
         if (isForeignKeyInterceptNecessary(mutation.getType())) {
             mutations.add(mutation);
+            /* Child writes can no longer assume this key exists, whether or not the delete goes through */
+            parentCache.invalidate(parentConglomerateNumber, mutation.getRowKey());
         }
         ctx.sendUpstream(mutation);
     }
@@ -28,6 +28,12 @@
  * flight (Read Uncommittted) utilizing the foreign key index of the child element.  It would be nice in
  * the future if foreign keys did not require an index be created.
  *
+ * Parent keys a child check found to exist are remembered in the ForeignKeyParentCache, so later batches of the
+ * same statement (and later statements, once the checked rows commit) do not look them up again.  The cache
+ * relies on the parent delete check above: a parent row cannot go away while a row that was checked against it
+ * exists, and deletes of either row evict the key.  Keys are only trusted while the child index region they
+ * were checked in stays open on this server, since the deletes of its rows go elsewhere once it moves or splits.
+ *
  *
  */
 package com.splicemachine.pipeline.foreignkey;
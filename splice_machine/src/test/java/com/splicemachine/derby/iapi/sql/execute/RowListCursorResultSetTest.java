@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.iapi.sql.execute;
+
+import com.splicemachine.db.iapi.sql.dictionary.TriggerDescriptor;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.impl.sql.execute.AutoincrementCounter;
+import com.splicemachine.db.impl.sql.execute.TriggerExecutionContext;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Category(ArchitectureIndependent.class)
+public class RowListCursorResultSetTest{
+
+    @Test
+    public void readsEveryRowInOrder() throws Exception{
+        List<ExecRow> rows = rows(3);
+        RowListCursorResultSet rs = new RowListCursorResultSet(null,rows);
+        rs.open();
+        Assert.assertNull("The cursor starts before the first row",rs.getCurrentRow());
+        for(int i = 0;i<rows.size();i++){
+            Assert.assertSame(rows.get(i),rs.getNextRow());
+            Assert.assertEquals(i+1,rs.getRowNumber());
+        }
+        Assert.assertNull(rs.getNextRow());
+        Assert.assertNull(rs.getNextRow());
+        Assert.assertEquals(0,rs.getRowNumber());
+    }
+
+    @Test
+    public void openAndCloseDoNotMoveTheCursor() throws Exception{
+        List<ExecRow> rows = rows(3);
+        RowListCursorResultSet rs = new RowListCursorResultSet(null,rows);
+        rs.open();
+        rs.getNextRow();
+        rs.getNextRow();
+
+        rs.open();
+        Assert.assertSame(rows.get(1),rs.getCurrentRow());
+        rs.close();
+        Assert.assertSame(rows.get(1),rs.getCurrentRow());
+        Assert.assertSame(rows.get(2),rs.getNextRow());
+    }
+
+    @Test
+    public void emptyListHasNoRows() throws Exception{
+        RowListCursorResultSet rs = new RowListCursorResultSet(null,Collections.<ExecRow>emptyList());
+        rs.open();
+        Assert.assertNull(rs.getNextRow());
+        Assert.assertNull(rs.getCurrentRow());
+    }
+
+    @Test
+    public void afterRowTriggerWithAutoincrementSeesEachRow() throws Exception{
+        AutoincrementCounter counter = new AutoincrementCounter(1l,1l,0l,"S","T","A",1);
+        TriggerExecutionContext tec = new TriggerExecutionContext(null,null,null,null,"T",
+                Collections.singletonList(counter));
+        TriggerDescriptor trigger = mock(TriggerDescriptor.class);
+        when(trigger.isRowTrigger()).thenReturn(true);
+        tec.setTrigger(trigger);
+
+        List<ExecRow> rows = rows(3);
+        RowListCursorResultSet rs = new RowListCursorResultSet(null,rows);
+        rs.open();
+        int fired = 0;
+        // as RowTriggerExecutor.fireTriggerForEachRow does for an AFTER row trigger
+        while(rs.getNextRow()!=null){
+            tec.resetAICounters(true);
+            tec.setTriggeringResultSet(rs);
+            tec.updateAICounters();
+            fired++;
+            Assert.assertEquals("The counter should follow the row being fired",
+                    Long.valueOf(fired*10),counter.getCurrentValue());
+        }
+        Assert.assertEquals(rows.size(),fired);
+    }
+
+    private static List<ExecRow> rows(int count){
+        List<ExecRow> rows = new ArrayList<>(count);
+        for(int i = 1;i<=count;i++){
+            rows.add(new ValueRow(new DataValueDescriptor[]{new SQLLongint(i*10)}));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.derby.impl.load;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class CsvRecordScannerTest{
+
+    @Test
+    public void readsUnquotedFields() throws Exception{
+        List<List<String>> records = scanAll(new CsvRecordScanner('"',',',0,false),"hello,goodbye,,boots\r\nx,y\n");
+        Assert.assertEquals(Arrays.asList(Arrays.asList("hello","goodbye","","boots"),Arrays.asList("x","y")),records);
+    }
+
+    @Test
+    public void unquotesFieldsAcrossLineBreaks() throws Exception{
+        CsvRecordScanner scanner = new CsvRecordScanner('"',',',0,false);
+        List<List<String>> records = scanAll(scanner,"\"hel\"\"lo\",\"boots\r\nma,goo\"\n\nnext\n");
+        Assert.assertEquals(Arrays.asList(Arrays.asList("hel\"lo","boots\nma,goo"),Arrays.asList("next")),records);
+        Assert.assertEquals("Incorrect number of lines consumed",4L,scanner.getLineNumber());
+    }
+
+    @Test
+    public void reportsRecordsWhichAreNotComplete() throws Exception{
+        CsvRecordScanner scanner = new CsvRecordScanner('"',',',0,false);
+        byte[] bytes = "a,\"b\nc".getBytes(StandardCharsets.UTF_8);
+        Assert.assertEquals(CsvRecordScanner.NEED_MORE,scanner.next(bytes,0,bytes.length,false,true));
+        bytes = "a,\"b\"".getBytes(StandardCharsets.UTF_8);
+        Assert.assertEquals("A quote at the end of the input may be escaped",
+                CsvRecordScanner.NEED_MORE,scanner.next(bytes,0,bytes.length,false,true));
+        bytes = "a,b\r".getBytes(StandardCharsets.UTF_8);
+        Assert.assertEquals(CsvRecordScanner.NEED_MORE,scanner.next(bytes,0,bytes.length,false,true));
+        Assert.assertEquals(bytes.length,scanner.next(bytes,0,bytes.length,true,true));
+        Assert.assertTrue(scanner.hasRecord());
+    }
+
+    @Test
+    public void quotedSectionSpanningTooManyLinesIsBad() throws Exception{
+        CsvRecordScanner scanner = new CsvRecordScanner('"',',',2,false);
+        byte[] bytes = "a,\"b\nc\nd\ne,f\n".getBytes(StandardCharsets.UTF_8);
+        int end = scanner.next(bytes,0,bytes.length,true,true);
+        Assert.assertEquals("max number of lines to read exceeded while reading quoted column beginning on line 1 and ending on line 2",
+                scanner.getError());
+        end = scanner.next(bytes,end,bytes.length,true,true);
+        Assert.assertNull("Scanning should resume on the next line",scanner.getError());
+        Assert.assertEquals(1,scanner.fieldCount());
+        end = scanner.next(bytes,end,bytes.length,true,true);
+        Assert.assertEquals(2,scanner.fieldCount());
+        Assert.assertEquals(bytes.length,scanner.next(bytes,end,bytes.length,true,true));
+        Assert.assertFalse(scanner.hasRecord());
+    }
+
+    @Test
+    public void oneLineRecordsEndAtEveryLine() throws Exception{
+        CsvRecordScanner scanner = new CsvRecordScanner('"',',',0,true);
+        byte[] bytes = "a,\"b\n\nc,d".getBytes(StandardCharsets.UTF_8);
+        int end = scanner.next(bytes,0,bytes.length,true,true);
+        Assert.assertEquals("partial record found [b] while reading quoted column beginning on line 1 and ending on line 1",
+                scanner.getError());
+        end = scanner.next(bytes,end,bytes.length,true,true);
+        Assert.assertTrue("Empty lines should be returned",scanner.hasRecord());
+        Assert.assertEquals(0,scanner.fieldCount());
+        scanner.next(bytes,end,bytes.length,true,true);
+        Assert.assertEquals(2,scanner.fieldCount());
+    }
+
+    @Test
+    public void splittingTheInputAnywhereFindsTheSameRecords() throws Exception{
+        String input = "1,\"x\"\"y\",z\r\n\r\n2,\"multi\nline\",\n3,,\"\"\n";
+        List<List<String>> expected = scanAll(new CsvRecordScanner('"',',',0,false),input);
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        for(int split=0;split<=bytes.length;split++){
+            CsvRecordScanner scanner = new CsvRecordScanner('"',',',0,false);
+            List<List<String>> records = new ArrayList<>();
+            int pos = 0;
+            while(true){
+                int next = scanner.next(bytes,pos,split,false,true);
+                if(next==CsvRecordScanner.NEED_MORE) break;
+                if(scanner.hasRecord()) records.add(fields(scanner,bytes));
+                pos = next;
+            }
+            while(pos<bytes.length){
+                pos = scanner.next(bytes,pos,bytes.length,true,true);
+                if(scanner.hasRecord()) records.add(fields(scanner,bytes));
+            }
+            Assert.assertEquals("Incorrect records when splitting at "+split,expected,records);
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static List<List<String>> scanAll(CsvRecordScanner scanner,String input){
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        List<List<String>> records = new ArrayList<>();
+        int pos = 0;
+        while(pos<bytes.length){
+            pos = scanner.next(bytes,pos,bytes.length,true,true);
+            Assert.assertNull(scanner.getError());
+            if(scanner.hasRecord()) records.add(fields(scanner,bytes));
+        }
+        return records;
+    }
+
+    private static List<String> fields(CsvRecordScanner scanner,byte[] bytes){
+        List<String> fields = new ArrayList<>();
+        for(int i=0;i<scanner.fieldCount();i++){
+            int start = scanner.fieldStart(i);
+            int end = scanner.fieldEnd(i);
+            if(scanner.isQuoted(i)){
+                byte[] value = new byte[end-start];
+                fields.add(new String(value,0,scanner.unquote(bytes,start,end,value),StandardCharsets.UTF_8));
+            }else
+                fields.add(new String(bytes,start,end-start,StandardCharsets.UTF_8));
+        }
+        return fields;
+    }
+}
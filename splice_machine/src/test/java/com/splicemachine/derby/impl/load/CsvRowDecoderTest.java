@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.load;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataTypeDescriptor;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLDecimal;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.TypeId;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
+import java.util.Random;
+
+/**
+ * The numeric fast paths of {@link CsvRowDecoder} must produce exactly what the String based conversion of a
+ * line by line import does, values and errors alike.
+ */
+public class CsvRowDecoderTest{
+
+    @Test
+    public void doublesMatchTheStringConversion() throws Exception{
+        String[] values = {"0","-0","0.1","-0.0","3.141592653589793","123456789012.345678","  42.5 ",
+                "9007199254740991","9007199254740993","0.000000000000000000001","1.7976931348623157",
+                "1e10","123.456e-2","+7.25","-123456789.987654321"};
+        for(String value : values){
+            assertSameDouble(value);
+        }
+        Random random = new Random(0x5eedL);
+        for(int i=0;i<10000;i++){
+            long mantissa = random.nextLong()%1000000000000000L;
+            int fractionDigits = random.nextInt(20);
+            assertSameDouble(BigDecimal.valueOf(mantissa,fractionDigits).toPlainString());
+        }
+    }
+
+    @Test
+    public void decimalsKeepTheirPrecisionAndScale() throws Exception{
+        String[] values = {"0","12345.678","-0.00100","+1.50","1.5E+3","1e-5",
+                "99999999999999999999999999999999999999.5"," 7.0 "};
+        for(String value : values){
+            DataValueDescriptor decoded = decodeOne(new SQLDecimal(),value);
+            DataValueDescriptor expected = new SQLDecimal();
+            expected.setValue(value);
+            Assert.assertEquals("Incorrect value for "+value,expected.getObject(),decoded.getObject());
+        }
+    }
+
+    @Test
+    public void decimalsTooLargeForTheColumnAreRejectedOnNormalizing() throws Exception{
+        DataTypeDescriptor decimal52 = new DataTypeDescriptor(TypeId.getBuiltInTypeId(Types.DECIMAL),5,2,true,7);
+
+        DataValueDescriptor normalized = new SQLDecimal();
+        normalized.normalize(decimal52,decodeOne(new SQLDecimal(),"123.456"));
+        Assert.assertEquals("Extra fraction digits should be truncated",new BigDecimal("123.45"),normalized.getObject());
+
+        try{
+            new SQLDecimal().normalize(decimal52,decodeOne(new SQLDecimal(),"1234.5"));
+            Assert.fail("Too many integer digits should not fit DECIMAL(5,2)");
+        }catch(StandardException se){
+            Assert.assertEquals(expectedError(new SQLDecimal(),"1234.5",decimal52),se.getSQLState());
+        }
+    }
+
+    @Test
+    public void integersAtTheirLimitsConvert() throws Exception{
+        String[] values = {String.valueOf(Integer.MAX_VALUE),String.valueOf(Integer.MIN_VALUE),"0","-1"," 12 "};
+        for(String value : values){
+            Assert.assertEquals(Integer.parseInt(value.trim()),decodeOne(new SQLInteger(),value).getInt());
+        }
+        String[] longs = {String.valueOf(Long.MAX_VALUE),String.valueOf(Long.MIN_VALUE),
+                "999999999999999999","-999999999999999999","1000000000000000000"};
+        for(String value : longs){
+            Assert.assertEquals(Long.parseLong(value),decodeOne(new SQLLongint(),value).getLong());
+        }
+    }
+
+    @Test
+    public void integersOutOfRangeFailAsTheStringConversionDoes() throws Exception{
+        assertSameError(new SQLInteger(),String.valueOf(Integer.MAX_VALUE+1L));
+        assertSameError(new SQLInteger(),String.valueOf(Integer.MIN_VALUE-1L));
+        assertSameError(new SQLLongint(),"9223372036854775808");
+        assertSameError(new SQLLongint(),"-9223372036854775809");
+        assertSameError(new SQLInteger(),"1.5");
+        assertSameError(new SQLLongint(),"12abc");
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static void assertSameDouble(String value) throws Exception{
+        DataValueDescriptor expected = new SQLDouble();
+        expected.setValue(value);
+        double decoded = decodeOne(new SQLDouble(),value).getDouble();
+        Assert.assertEquals("Incorrect value for "+value,
+                Double.doubleToRawLongBits(expected.getDouble()),Double.doubleToRawLongBits(decoded));
+    }
+
+    private static void assertSameError(DataValueDescriptor column,String value) throws Exception{
+        String expected = expectedError(column.cloneValue(false),value,null);
+        CsvRowDecoder decoder = decoder(column);
+        Assert.assertNull("Expected "+value+" to be a bad record",decode(decoder,value));
+        Assert.assertTrue(decoder.getBadRecordCause() instanceof StandardException);
+        Assert.assertEquals(expected,((StandardException)decoder.getBadRecordCause()).getSQLState());
+        Assert.assertNotNull(decoder.getBadRecordMessage());
+    }
+
+    private static String expectedError(DataValueDescriptor column,String value,DataTypeDescriptor type){
+        try{
+            column.setValue(value);
+            if(type!=null)
+                column.cloneValue(false).normalize(type,column);
+        }catch(StandardException se){
+            return se.getSQLState();
+        }
+        throw new AssertionError("The String conversion accepts "+value);
+    }
+
+    private static DataValueDescriptor decodeOne(DataValueDescriptor column,String value) throws Exception{
+        CsvRowDecoder decoder = decoder(column);
+        ExecRow row = decode(decoder,value);
+        Assert.assertNotNull("Unable to decode "+value+": "+decoder.getBadRecordMessage(),row);
+        return row.getColumn(1);
+    }
+
+    private static CsvRowDecoder decoder(DataValueDescriptor column){
+        return new CsvRowDecoder(new ValueRow(new DataValueDescriptor[]{column}),null,false,null,null,null);
+    }
+
+    private static ExecRow decode(CsvRowDecoder decoder,String record){
+        byte[] bytes = record.getBytes(StandardCharsets.UTF_8);
+        CsvRecordScanner scanner = new CsvRecordScanner('"',',',0,false);
+        scanner.next(bytes,0,bytes.length,true,true);
+        return decoder.decode(scanner,bytes);
+    }
+}
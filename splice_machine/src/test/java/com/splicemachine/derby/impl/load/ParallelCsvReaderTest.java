@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.load;
+
+import com.splicemachine.access.api.DistributedFileSystem;
+import com.splicemachine.access.api.FileInfo;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.stream.control.ControlOperationContext;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.si.impl.driver.SIDriver;
+import com.splicemachine.si.impl.driver.SIEnvironment;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.OpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ParallelCsvReaderTest{
+
+    @Test
+    public void rowsComeInTheOrderOfTheFile() throws Exception{
+        StringBuilder file = new StringBuilder();
+        for(int i=0;i<5000;i++){
+            file.append(i).append(",row ").append(i).append('\n');
+        }
+        // chunks of a few records each, so that many are parsed at once
+        List<List<String>> rows = readAll(reader(file.toString(),false,null,64));
+        Assert.assertEquals(5000,rows.size());
+        for(int i=0;i<rows.size();i++){
+            Assert.assertEquals("Row out of order",Arrays.asList(String.valueOf(i),"row "+i),rows.get(i));
+        }
+    }
+
+    @Test
+    public void quotedFieldsCrossChunkBoundaries() throws Exception{
+        StringBuilder file = new StringBuilder();
+        List<List<String>> expected = new ArrayList<>();
+        for(int i=0;i<200;i++){
+            // longer than a chunk, with delimiters, escaped quotes and line terminators inside the quotes
+            String value = "line "+i+", still \"quoted\"\n\r\nand "+(i%7==0?"more,more,more,more,more":"done");
+            file.append(i).append(",\"").append(value.replace("\"","\"\"")).append("\"\r\n");
+            expected.add(Arrays.asList(String.valueOf(i),value.replace("\r\n","\n")));
+        }
+        for(int chunkSize : new int[]{7,16,61,4096}){
+            List<List<String>> rows = readAll(reader(file.toString(),false,null,chunkSize));
+            Assert.assertEquals("Incorrect rows for chunks of "+chunkSize,expected,rows);
+        }
+    }
+
+    @Test
+    public void badRecordsAreRecordedInFileOrder() throws Exception{
+        ByteArrayOutputStream badFile = loadBadRecordFileSystem();
+        ControlOperationContext context = new ControlOperationContext();
+        context.setPermissive("/bad","/bad/input.csv",10);
+
+        List<List<String>> rows = readAll(reader("1,a\nx,b\n3,c\n4\n5,e\n",true,context,4));
+        Assert.assertEquals(Arrays.asList(Arrays.asList("1","a"),Arrays.asList("3","c"),Arrays.asList("5","e")),rows);
+        Assert.assertEquals(2,context.getBadRecords());
+        Assert.assertFalse(context.isFailed());
+
+        String[] badRecords = new String(badFile.toByteArray(),StandardCharsets.UTF_8).split(System.lineSeparator());
+        Assert.assertEquals(2,badRecords.length);
+        Assert.assertTrue("Unexpected bad record "+badRecords[0],badRecords[0].contains("[x, b]"));
+        Assert.assertTrue("Unexpected bad record "+badRecords[1],badRecords[1].contains("[4]"));
+    }
+
+    @Test
+    public void readingStopsOnceThereAreTooManyBadRecords() throws Exception{
+        loadBadRecordFileSystem();
+        ControlOperationContext context = new ControlOperationContext();
+        context.setPermissive("/bad","/bad/input.csv",1);
+
+        List<List<String>> rows = readAll(reader("1,a\nx,b\n3,c\n4\n5,e\n6,f\n",true,context,4));
+        Assert.assertEquals(Arrays.asList(Arrays.asList("1","a"),Arrays.asList("3","c")),rows);
+        Assert.assertEquals(2,context.getBadRecords());
+        Assert.assertTrue(context.isFailed());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void badRecordsFailTheImportUnlessPermissive() throws Exception{
+        readAll(reader("1,a\nx,b\n",true,null,4));
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static ParallelCsvReader reader(String file,boolean oneLineRecords,OperationContext context,int chunkSize){
+        ExecRow template = new ValueRow(new DataValueDescriptor[]{new SQLInteger(),new SQLVarchar()});
+        return new ParallelCsvReader(new ByteArrayInputStream(file.getBytes(StandardCharsets.UTF_8)),'"',',',0,
+                oneLineRecords,template,null,false,null,null,null,context,4,chunkSize);
+    }
+
+    private static List<List<String>> readAll(ParallelCsvReader reader) throws Exception{
+        List<List<String>> rows = new ArrayList<>();
+        while(reader.hasNext()){
+            ExecRow row = reader.next();
+            rows.add(Arrays.asList(row.getColumn(1).getString(),row.getColumn(2).getString()));
+        }
+        return rows;
+    }
+
+    /**
+     * Loads a driver whose file system accepts the bad record file, and captures what's written to it.
+     */
+    private static ByteArrayOutputStream loadBadRecordFileSystem() throws Exception{
+        ByteArrayOutputStream badFile = new ByteArrayOutputStream();
+        FileInfo directory = Mockito.mock(FileInfo.class);
+        Mockito.when(directory.isDirectory()).thenReturn(true);
+        Mockito.when(directory.isWritable()).thenReturn(true);
+        DistributedFileSystem fileSystem = Mockito.mock(DistributedFileSystem.class);
+        Mockito.when(fileSystem.getFileName(Matchers.anyString())).thenReturn("input.csv");
+        Mockito.when(fileSystem.getInfo(Matchers.anyString())).thenReturn(directory);
+        Mockito.when(fileSystem.newOutputStream(Matchers.anyString(),Matchers.<OpenOption>anyVararg())).thenReturn(badFile);
+
+        SIEnvironment env = Mockito.mock(SIEnvironment.class,Mockito.RETURNS_DEEP_STUBS);
+        Mockito.when(env.configuration().getThreadPoolMaxSize()).thenReturn(30);
+        Mockito.when(env.fileSystem(Matchers.anyString())).thenReturn(fileSystem);
+        SIDriver.loadDriver(env);
+        return badFile;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute;
+
+import com.carrotsearch.hppc.LongHashSet;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A registry store shared by the trackers of a test, standing in for the writers table every server sees.
+ */
+class MemoryResultCacheWriterStore implements ResultCacheWriterRegistry.Store{
+    private final Map<Long,LongHashSet> writers = new HashMap<>();
+    private final Map<Long,Long> lastCommits = new HashMap<>();
+    /* the number of upcoming raises which fail as if another server had raised the commit timestamp first */
+    int lostRaises;
+    int publications;
+
+    @Override
+    public synchronized void addWriter(long conglomerate,long txnId){
+        publications++;
+        LongHashSet tableWriters = writers.get(conglomerate);
+        if(tableWriters==null){
+            tableWriters = new LongHashSet();
+            writers.put(conglomerate,tableWriters);
+        }
+        tableWriters.add(txnId);
+    }
+
+    @Override
+    public synchronized ResultCacheWriterRegistry.TableWriters read(long conglomerate){
+        LongHashSet tableWriters = writers.get(conglomerate);
+        Long lastCommit = lastCommits.get(conglomerate);
+        if(tableWriters==null && lastCommit==null)
+            return ResultCacheWriterRegistry.TableWriters.NONE;
+        return new ResultCacheWriterRegistry.TableWriters(lastCommit==null ? -1l : lastCommit,
+                tableWriters==null ? new long[0] : tableWriters.toArray());
+    }
+
+    @Override
+    public synchronized boolean raiseLastCommit(long conglomerate,long expected,long lastCommit){
+        if(lostRaises>0){
+            lostRaises--;
+            lastCommits.put(conglomerate,lastCommit-1);
+            return false;
+        }
+        Long current = lastCommits.get(conglomerate);
+        if((current==null ? -1l : current)!=expected)
+            return false;
+        lastCommits.put(conglomerate,lastCommit);
+        return true;
+    }
+
+    @Override
+    public synchronized void removeWriters(long conglomerate,long[] txnIds){
+        LongHashSet tableWriters = writers.get(conglomerate);
+        if(tableWriters==null)
+            return;
+        for(long txnId : txnIds){
+            tableWriters.remove(txnId);
+        }
+    }
+
+    @Override
+    public synchronized void removeTables(long[] conglomerates){
+        for(long conglomerate : conglomerates){
+            writers.remove(conglomerate);
+            lastCommits.remove(conglomerate);
+        }
+    }
+
+    synchronized int writerCount(long conglomerate){
+        LongHashSet tableWriters = writers.get(conglomerate);
+        return tableWriters==null ? 0 : tableWriters.size();
+    }
+
+    synchronized boolean hasRecord(long conglomerate){
+        return writers.containsKey(conglomerate) || lastCommits.containsKey(conglomerate);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute;
+
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.Executor;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Two trackers sharing a registry store stand in for two servers: {@code local} serves the regions
+ * written to, {@code remote} only learns of the writes through the registry.
+ */
+@Category(ArchitectureIndependent.class)
+public class ResultCacheWriteTrackerTest{
+    private static final long TABLE = 1568l;
+    private static final long OTHER_TABLE = 1584l;
+    private static final long[] TABLES = new long[]{TABLE};
+    private static final Executor DIRECT = new Executor(){
+        @Override
+        public void execute(Runnable command){
+            command.run();
+        }
+    };
+
+    private final TxnSupplier txnSupplier = mock(TxnSupplier.class);
+    private final MemoryResultCacheWriterStore store = new MemoryResultCacheWriterStore();
+    private final ResultCacheWriteTracker local = new ResultCacheWriteTracker(txnSupplier,new ResultCacheWriterRegistry(store,txnSupplier,DIRECT));
+    private final ResultCacheWriteTracker remote = new ResultCacheWriteTracker(txnSupplier,new ResultCacheWriterRegistry(store,txnSupplier,DIRECT));
+
+    @Test
+    public void writeAfterCachingInvalidates() throws Exception{
+        long sequence = local.getWriteSequence();
+        long snapshot = 10l;
+        Assert.assertTrue(local.isUnchanged(TABLES,sequence));
+        Assert.assertTrue(local.isCurrent(TABLES,snapshot));
+
+        TxnView writer = txn(20l,Txn.State.ACTIVE,-1l);
+        write(local,TABLE,writer);
+        Assert.assertFalse("A local write should be seen at once",local.isUnchanged(TABLES,sequence));
+        Assert.assertTrue("Writes to other tables should not matter",local.isUnchanged(new long[]{OTHER_TABLE},sequence));
+
+        commit(writer,25l);
+        Assert.assertFalse(local.isCurrent(TABLES,snapshot));
+        Assert.assertFalse(remote.isCurrent(TABLES,snapshot));
+    }
+
+    @Test
+    public void concurrentUncommittedWriterBlocksInstallsButNotReads() throws Exception{
+        TxnView writer = txn(20l,Txn.State.ACTIVE,-1l);
+        write(local,TABLE,writer);
+
+        Assert.assertFalse("Results read while a write is in flight should not be cached",local.isStable(TABLES,30l));
+        Assert.assertTrue("Uncommitted writes are invisible to readers",remote.isCurrent(TABLES,30l));
+
+        commit(writer,35l);
+        Assert.assertFalse(local.isStable(TABLES,30l));
+        Assert.assertFalse(remote.isCurrent(TABLES,30l));
+        Assert.assertTrue("Results read after the commit see the write",local.isStable(TABLES,40l));
+        Assert.assertTrue(remote.isCurrent(TABLES,40l));
+    }
+
+    @Test
+    public void rolledBackWriterChangesNothing() throws Exception{
+        TxnView writer = txn(20l,Txn.State.ACTIVE,-1l);
+        write(local,TABLE,writer);
+        Assert.assertFalse(local.isStable(TABLES,30l));
+
+        when(writer.getEffectiveState()).thenReturn(Txn.State.ROLLEDBACK);
+        Assert.assertTrue(local.isStable(TABLES,30l));
+        Assert.assertTrue(remote.isCurrent(TABLES,30l));
+        Assert.assertEquals("The writer should be folded away",0,store.writerCount(TABLE));
+    }
+
+    @Test
+    public void commitThroughAnotherServerInvalidates() throws Exception{
+        long sequence = remote.getWriteSequence();
+        TxnView writer = txn(20l,Txn.State.ACTIVE,-1l);
+        write(local,TABLE,writer);
+
+        // the remote server sees nothing of the write itself
+        Assert.assertTrue(remote.isUnchanged(TABLES,sequence));
+        Assert.assertTrue(remote.isStable(TABLES,30l));
+        Assert.assertTrue(remote.isCurrent(TABLES,30l));
+
+        commit(writer,35l);
+        Assert.assertFalse(remote.isCurrent(TABLES,30l));
+        Assert.assertTrue(remote.isCurrent(TABLES,36l));
+    }
+
+    @Test
+    public void writersArePublishedAsTheirUserTransactionOnce() throws Exception{
+        TxnView user = txn(20l,Txn.State.ACTIVE,-1l);
+        TxnView child = txn(21l,Txn.State.ACTIVE,-1l);
+        when(child.getParentTxnId()).thenReturn(20l);
+        when(child.getParentTxnView()).thenReturn(user);
+
+        write(local,TABLE,child);
+        write(local,TABLE,user);
+        Assert.assertEquals(1,store.publications);
+        Assert.assertEquals(1,store.writerCount(TABLE));
+
+        commit(user,35l);
+        Assert.assertFalse(remote.isCurrent(TABLES,30l));
+    }
+
+    @Test
+    public void droppedTablesAreForgotten() throws Exception{
+        TxnView writer = txn(20l,Txn.State.ACTIVE,-1l);
+        write(local,TABLE,writer);
+
+        local.dropped(TABLES);
+        Assert.assertFalse(store.hasRecord(TABLE));
+        Assert.assertTrue(local.isStable(TABLES,30l));
+    }
+
+    private static void write(ResultCacheWriteTracker tracker,long table,TxnView txn) throws Exception{
+        // as the write handler does: record before applying, publish when flushing
+        tracker.written(table,txn);
+        tracker.publish(table,txn);
+    }
+
+    private void commit(TxnView txn,long commitTimestamp){
+        when(txn.getEffectiveState()).thenReturn(Txn.State.COMMITTED);
+        when(txn.getEffectiveCommitTimestamp()).thenReturn(commitTimestamp);
+    }
+
+    private TxnView txn(long txnId,Txn.State state,long commitTimestamp) throws Exception{
+        TxnView txn = mock(TxnView.class);
+        when(txn.getTxnId()).thenReturn(txnId);
+        when(txn.getParentTxnId()).thenReturn(-1l);
+        when(txn.getEffectiveState()).thenReturn(state);
+        when(txn.getEffectiveCommitTimestamp()).thenReturn(commitTimestamp);
+        when(txnSupplier.getTransaction(txnId)).thenReturn(txn);
+        return txn;
+    }
+}
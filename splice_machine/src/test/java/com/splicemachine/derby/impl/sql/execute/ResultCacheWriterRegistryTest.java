@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute;
+
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Category(ArchitectureIndependent.class)
+public class ResultCacheWriterRegistryTest{
+    private static final long TABLE = 1568l;
+
+    private final TxnSupplier txnSupplier = mock(TxnSupplier.class);
+    private final MemoryResultCacheWriterStore store = new MemoryResultCacheWriterStore();
+    private final List<Runnable> folds = new ArrayList<>();
+    private final ResultCacheWriterRegistry registry = new ResultCacheWriterRegistry(store,txnSupplier,new Executor(){
+        @Override
+        public void execute(Runnable command){
+            folds.add(command);
+        }
+    });
+
+    @Test
+    public void unknownTablesHaveNoCommits() throws Exception{
+        Assert.assertEquals(-1l,registry.lastCommit(TABLE));
+        Assert.assertTrue(folds.isEmpty());
+    }
+
+    @Test
+    public void activeWritersAreNotCounted() throws Exception{
+        txn(10l,Txn.State.ACTIVE,-1l);
+        registry.publish(TABLE,10l);
+
+        Assert.assertEquals(-1l,registry.lastCommit(TABLE));
+        Assert.assertTrue("Nothing to fold while the writer runs",folds.isEmpty());
+    }
+
+    @Test
+    public void committedWritersAreCountedBeforeAndAfterFolding() throws Exception{
+        TxnView writer = txn(10l,Txn.State.ACTIVE,-1l);
+        registry.publish(TABLE,10l);
+        commit(writer,15l);
+
+        Assert.assertEquals(15l,registry.lastCommit(TABLE));
+        Assert.assertEquals("Lookups should leave folding to the background",1,store.writerCount(TABLE));
+        Assert.assertEquals(1,folds.size());
+        runFolds();
+
+        Assert.assertEquals(0,store.writerCount(TABLE));
+        Assert.assertEquals(15l,registry.lastCommit(TABLE));
+        Assert.assertTrue(folds.isEmpty());
+    }
+
+    @Test
+    public void rolledBackWritersAreDropped() throws Exception{
+        txn(10l,Txn.State.ROLLEDBACK,-1l);
+        registry.publish(TABLE,10l);
+
+        Assert.assertEquals(-1l,registry.lastCommit(TABLE));
+        runFolds();
+        Assert.assertEquals(0,store.writerCount(TABLE));
+        Assert.assertEquals(-1l,registry.lastCommit(TABLE));
+    }
+
+    @Test
+    public void lookupsQueueOneFoldPerTable() throws Exception{
+        txn(10l,Txn.State.COMMITTED,15l);
+        registry.publish(TABLE,10l);
+
+        registry.lastCommit(TABLE);
+        registry.lastCommit(TABLE);
+        Assert.assertEquals(1,folds.size());
+        runFolds();
+    }
+
+    @Test
+    public void foldingRetriesWhenRaisedConcurrently() throws Exception{
+        txn(10l,Txn.State.COMMITTED,15l);
+        registry.publish(TABLE,10l);
+        store.lostRaises = 1;
+
+        registry.fold(TABLE);
+        Assert.assertEquals(0,store.writerCount(TABLE));
+        Assert.assertEquals(15l,registry.lastCommit(TABLE));
+    }
+
+    @Test
+    public void foldingNeverLowersTheCommitTimestamp() throws Exception{
+        txn(10l,Txn.State.COMMITTED,25l);
+        registry.publish(TABLE,10l);
+        registry.fold(TABLE);
+
+        TxnView late = txn(20l,Txn.State.ACTIVE,-1l);
+        registry.publish(TABLE,20l);
+        commit(late,22l);
+        registry.fold(TABLE);
+
+        Assert.assertEquals(25l,registry.lastCommit(TABLE));
+    }
+
+    @Test
+    public void droppedTablesLoseTheirRecords() throws Exception{
+        txn(10l,Txn.State.COMMITTED,15l);
+        registry.publish(TABLE,10l);
+        registry.fold(TABLE);
+
+        registry.dropped(new long[]{TABLE});
+        Assert.assertFalse(store.hasRecord(TABLE));
+        Assert.assertEquals(-1l,registry.lastCommit(TABLE));
+    }
+
+    private void runFolds(){
+        List<Runnable> toRun = new ArrayList<>(folds);
+        folds.clear();
+        for(Runnable fold : toRun){
+            fold.run();
+        }
+    }
+
+    private void commit(TxnView txn,long commitTimestamp){
+        when(txn.getEffectiveState()).thenReturn(Txn.State.COMMITTED);
+        when(txn.getEffectiveCommitTimestamp()).thenReturn(commitTimestamp);
+    }
+
+    private TxnView txn(long txnId,Txn.State state,long commitTimestamp) throws Exception{
+        TxnView txn = mock(TxnView.class);
+        when(txn.getTxnId()).thenReturn(txnId);
+        when(txn.getParentTxnId()).thenReturn(-1l);
+        when(txn.getEffectiveState()).thenReturn(state);
+        when(txn.getEffectiveCommitTimestamp()).thenReturn(commitTimestamp);
+        when(txnSupplier.getTransaction(txnId)).thenReturn(txn);
+        return txn;
+    }
+}
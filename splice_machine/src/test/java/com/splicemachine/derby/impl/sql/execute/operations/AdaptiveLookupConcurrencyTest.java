@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.junit.Assert.assertEquals;
+
+@Category(ArchitectureIndependent.class)
+public class AdaptiveLookupConcurrencyTest {
+
+    @Test
+    public void startsAtTheConfiguredMaximum() throws Exception {
+        AdaptiveLookupConcurrency concurrency = new AdaptiveLookupConcurrency(2, 5);
+        assertEquals(5, concurrency.limit());
+    }
+
+    @Test
+    public void backsOffWhenLookupsSlowDown() throws Exception {
+        AdaptiveLookupConcurrency concurrency = new AdaptiveLookupConcurrency(2, 8);
+        concurrency.record(1000, 10);
+        concurrency.record(5000, 10);
+        assertEquals(4, concurrency.limit());
+        concurrency.record(5000, 10);
+        assertEquals(2, concurrency.limit());
+        concurrency.record(50000, 10);
+        assertEquals("Should never go below the minimum", 2, concurrency.limit());
+    }
+
+    @Test
+    public void growsBackWhileLatencyStaysLow() throws Exception {
+        AdaptiveLookupConcurrency concurrency = new AdaptiveLookupConcurrency(2, 8);
+        concurrency.record(1000, 10);
+        concurrency.record(5000, 10);
+        concurrency.record(5000, 10);
+        assertEquals(2, concurrency.limit());
+        for (int i = 0; i < 10; i++) {
+            concurrency.record(1000, 10);
+        }
+        assertEquals(8, concurrency.limit());
+    }
+
+    @Test
+    public void ignoresEmptyBlocks() throws Exception {
+        AdaptiveLookupConcurrency concurrency = new AdaptiveLookupConcurrency(2, 4);
+        concurrency.record(1000, 0);
+        assertEquals(4, concurrency.limit());
+    }
+}
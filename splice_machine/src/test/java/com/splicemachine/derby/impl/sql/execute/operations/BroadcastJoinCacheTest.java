@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.stream.Stream;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+
+@Category(ArchitectureIndependent.class)
+public class BroadcastJoinCacheTest {
+
+    @Test
+    public void releasesTablesOnceTheLastJoinCloses() throws Exception {
+        CountingLoader loader = new CountingLoader(1024);
+        BroadcastJoinCache cache = new BroadcastJoinCache(loader, 1L << 20);
+
+        JoinTable first = cache.get(1L, null, new int[]{0}, new int[]{0}, null).newTable();
+        JoinTable second = cache.get(1L, null, new int[]{0}, new int[]{0}, null).newTable();
+        Assert.assertEquals("Table should be shared", 1, loader.loaded);
+
+        first.close();
+        Assert.assertFalse("Table still in use", loader.last.released);
+        second.close();
+        Assert.assertTrue("Table should be released", loader.last.released);
+
+        cache.get(1L, null, new int[]{0}, new int[]{0}, null).newTable().close();
+        Assert.assertEquals("Released table should be loaded again", 2, loader.loaded);
+    }
+
+    @Test
+    public void evictedTablesAreReleasedAfterTheyClose() throws Exception {
+        CountingLoader loader = new CountingLoader(600 * 1024);
+        BroadcastJoinCache cache = new BroadcastJoinCache(loader, 1L << 20);
+
+        JoinTable first = cache.get(1L, null, new int[]{0}, new int[]{0}, null).newTable();
+        CountingFactory firstFactory = loader.last;
+        // doesn't fit alongside the first table, which gets evicted
+        JoinTable second = cache.get(2L, null, new int[]{0}, new int[]{0}, null).newTable();
+        Assert.assertFalse("Evicted table is still in use", firstFactory.released);
+
+        first.close();
+        Assert.assertTrue("Evicted table should be released", firstFactory.released);
+        second.close();
+        Assert.assertTrue("Table should be released", loader.last.released);
+    }
+
+    @Test
+    public void releasingASharedFactoryLeavesTheTableToTheCache() throws Exception {
+        CountingLoader loader = new CountingLoader(1024);
+        BroadcastJoinCache cache = new BroadcastJoinCache(loader, 1L << 20);
+
+        JoinTable.Factory factory = cache.get(1L, null, new int[]{0}, new int[]{0}, null);
+        JoinTable first = factory.newTable();
+        factory.release();
+        Assert.assertFalse("Table still in use", loader.last.released);
+
+        JoinTable second = cache.get(1L, null, new int[]{0}, new int[]{0}, null).newTable();
+        Assert.assertEquals("Table should still be shared", 1, loader.loaded);
+        first.close();
+        second.close();
+        Assert.assertTrue("Table should be released", loader.last.released);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper classes*/
+    private static class CountingLoader implements BroadcastJoinCache.JoinTableLoader {
+        private final long size;
+        private int loaded;
+        private CountingFactory last;
+
+        CountingLoader(long size) {
+            this.size = size;
+        }
+
+        @Override
+        public JoinTable.Factory load(Callable<Stream<ExecRow>> streamLoader, int[] innerHashKeys, int[] outerHashKeys, ExecRow outerTemplateRow) {
+            loaded++;
+            last = new CountingFactory(size);
+            return last;
+        }
+    }
+
+    private static class CountingFactory implements JoinTable.Factory {
+        private final long size;
+        private boolean released;
+
+        CountingFactory(long size) {
+            this.size = size;
+        }
+
+        @Override
+        public JoinTable newTable() {
+            Assert.assertFalse("Released table reopened", released);
+            return new JoinTable() {
+                @Override
+                public Iterator<ExecRow> fetchInner(ExecRow outer) throws IOException, StandardException {
+                    return Collections.emptyIterator();
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+
+        @Override
+        public long getSizeInBytes() {
+            return size;
+        }
+
+        @Override
+        public void release() {
+            Assert.assertFalse("Table released twice", released);
+            released = true;
+        }
+    }
+}
@@ -18,6 +18,7 @@ import com.splicemachine.si.testenv.ArchitectureIndependent;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -60,4 +61,30 @@ public class IndexRowReaderTest {
 
         assertTrue("Expected a max concurrency of 2", irr.getMaxConcurrency() == 2);
     }
+
+    @Test
+    public void groupsSortedKeysByRegion() throws Exception {
+        byte[][] regions = {{}, {20}, {40}};
+        byte[][] keys = {{1}, {2}, {20}, {21}, {39}, {40}, {90}};
+
+        assertArrayEquals(new int[]{2, 5, 7}, IndexRowReader.groupByRegion(keys, regions, 1));
+    }
+
+    @Test
+    public void mergesShortRunsWithTheNextRegion() throws Exception {
+        byte[][] regions = {{}, {20}, {40}};
+        byte[][] keys = {{1}, {20}, {21}, {39}, {40}, {90}};
+
+        // the single key of the first region rides along with the second region, and the short tail
+        // is folded back into the run before it
+        assertArrayEquals(new int[]{6}, IndexRowReader.groupByRegion(keys, regions, 3));
+        assertArrayEquals(new int[]{4, 6}, IndexRowReader.groupByRegion(keys, regions, 2));
+    }
+
+    @Test
+    public void singleRunWithoutRegionInformation() throws Exception {
+        byte[][] keys = {{1}, {2}, {3}};
+
+        assertArrayEquals(new int[]{3}, IndexRowReader.groupByRegion(keys, new byte[0][], 1));
+    }
 }
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.services.cache.ClassSize;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.stream.Stream;
+import com.splicemachine.stream.Streams;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+@Category(ArchitectureIndependent.class)
+public class OffHeapJoinTableTest {
+    static {
+        ClassSize.setDummyCatalog();
+    }
+
+    private static final int ROWS = 10000;
+    private static final int KEYS = 1000;
+
+    @Test
+    public void fetchesByIntegralKey() throws Exception {
+        // INT inner key, BIGINT outer key
+        JoinTable.Factory factory = load(new int[]{0}, new int[]{0}, outerRow(new SQLLongint(), new SQLVarchar()));
+        try (JoinTable table = factory.newTable()) {
+            for (int key = 0; key < KEYS; key++) {
+                assertMatches(table.fetchInner(outerRow(new SQLLongint(key), new SQLVarchar("k" + key))), key);
+            }
+            Assert.assertFalse("Unexpected match", table.fetchInner(outerRow(new SQLLongint(KEYS), new SQLVarchar("x"))).hasNext());
+            Assert.assertFalse("Null key should not match", table.fetchInner(outerRow(new SQLLongint(), new SQLVarchar("x"))).hasNext());
+        }
+    }
+
+    @Test
+    public void fetchesByCompositeKey() throws Exception {
+        JoinTable.Factory factory = load(new int[]{0, 1}, new int[]{0, 1}, outerRow(new SQLLongint(), new SQLVarchar()));
+        try (JoinTable table = factory.newTable()) {
+            for (int key = 0; key < KEYS; key++) {
+                assertMatches(table.fetchInner(outerRow(new SQLLongint(key), new SQLVarchar("k" + key))), key);
+            }
+            Assert.assertFalse("Unexpected match", table.fetchInner(outerRow(new SQLLongint(1), new SQLVarchar("k2"))).hasNext());
+        }
+    }
+
+    @Test
+    public void emptyInnerTable() throws Exception {
+        JoinTable.Factory factory = OffHeapJoinTableLoader.INSTANCE.load(new Callable<Stream<ExecRow>>() {
+            @Override
+            public Stream<ExecRow> call() throws Exception {
+                return Streams.wrap(new ArrayList<ExecRow>());
+            }
+        }, new int[]{0}, new int[]{0}, outerRow(new SQLLongint(), new SQLVarchar()));
+        try (JoinTable table = factory.newTable()) {
+            Assert.assertFalse("Unexpected match", table.fetchInner(outerRow(new SQLLongint(1), new SQLVarchar("k1"))).hasNext());
+        }
+    }
+
+    @Test
+    public void smallTablesHoldLittleDirectMemory() throws Exception {
+        final List<ExecRow> inner = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ValueRow row = new ValueRow(1);
+            row.setColumn(1, new SQLInteger(i));
+            inner.add(row);
+        }
+        JoinTable.Factory factory = OffHeapJoinTableLoader.INSTANCE.load(new Callable<Stream<ExecRow>>() {
+            @Override
+            public Stream<ExecRow> call() throws Exception {
+                return Streams.wrap(inner);
+            }
+        }, new int[]{0}, new int[]{0}, outerRow(new SQLLongint(), new SQLVarchar()));
+        try (JoinTable table = factory.newTable()) {
+            Assert.assertTrue("Missing match", table.fetchInner(outerRow(new SQLLongint(9), new SQLVarchar("k9"))).hasNext());
+        }
+        Assert.assertTrue("Table should not hold a full chunk, size=" + factory.getSizeInBytes(), factory.getSizeInBytes() < 64 * 1024);
+        factory.release();
+    }
+
+    @Test
+    public void spansSeveralChunks() throws Exception {
+        JoinTable.Factory factory = load(new int[]{0}, new int[]{0}, outerRow(new SQLLongint(), new SQLVarchar()));
+        try (JoinTable table = factory.newTable()) {
+            assertMatches(table.fetchInner(outerRow(new SQLLongint(0), new SQLVarchar("k0"))), 0);
+            assertMatches(table.fetchInner(outerRow(new SQLLongint(KEYS - 1), new SQLVarchar("k" + (KEYS - 1)))), KEYS - 1);
+        }
+        factory.release();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void releasedTablesCannotBeReopened() throws Exception {
+        JoinTable.Factory factory = load(new int[]{0}, new int[]{0}, outerRow(new SQLLongint(), new SQLVarchar()));
+        factory.release();
+        factory.release(); // idempotent
+        factory.newTable();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static JoinTable.Factory load(int[] innerHashKeys, int[] outerHashKeys, ExecRow outerTemplate) throws Exception {
+        final List<ExecRow> inner = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            ValueRow row = new ValueRow(3);
+            row.setColumn(1, new SQLInteger(i % KEYS));
+            row.setColumn(2, new SQLVarchar("k" + (i % KEYS)));
+            row.setColumn(3, new SQLInteger(i));
+            inner.add(row);
+        }
+        // rows with a null key never match
+        ValueRow nullKey = new ValueRow(3);
+        nullKey.setColumn(1, new SQLInteger());
+        nullKey.setColumn(2, new SQLVarchar());
+        nullKey.setColumn(3, new SQLInteger(-1));
+        inner.add(nullKey);
+
+        JoinTable.Factory factory = OffHeapJoinTableLoader.INSTANCE.load(new Callable<Stream<ExecRow>>() {
+            @Override
+            public Stream<ExecRow> call() throws Exception {
+                return Streams.wrap(inner);
+            }
+        }, innerHashKeys, outerHashKeys, outerTemplate);
+        Assert.assertTrue("Size should be reported", factory.getSizeInBytes() > 0);
+        return factory;
+    }
+
+    private static ExecRow outerRow(SQLLongint key, SQLVarchar name) {
+        ValueRow row = new ValueRow(2);
+        row.setColumn(1, key);
+        row.setColumn(2, name);
+        return row;
+    }
+
+    private static void assertMatches(Iterator<ExecRow> rows, int key) throws Exception {
+        int count = 0;
+        while (rows.hasNext()) {
+            ExecRow row = rows.next();
+            Assert.assertEquals("Wrong key", key, row.getColumn(1).getInt());
+            Assert.assertEquals("Wrong name", "k" + key, row.getColumn(2).getString());
+            Assert.assertEquals("Wrong row", key, row.getColumn(3).getInt() % KEYS);
+            count++;
+        }
+        Assert.assertEquals("Wrong number of matches for key " + key, ROWS / KEYS, count);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.derby.impl.sql.execute.operations.window.function;
+
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the running results of the aggregates over a sliding window against a brute force evaluation.
+ */
+@Category(ArchitectureIndependent.class)
+public class SlidingAggregatorTest {
+    private static final int WINDOW = 7;
+
+    @Test
+    public void testMaxMin() throws Exception {
+        Integer[] values = randomValues(1000);
+        SpliceGenericWindowFunction max = newFunction(new MaxMinAggregator(), "MAX");
+        SpliceGenericWindowFunction min = newFunction(new MaxMinAggregator(), "MIN");
+        for (int i = 0; i < values.length; i++) {
+            slide(max, values, i);
+            slide(min, values, i);
+            Integer expectedMax = null, expectedMin = null;
+            for (int j = Math.max(0, i - WINDOW + 1); j <= i; j++) {
+                if (values[j] == null) continue;
+                if (expectedMax == null || values[j] > expectedMax) expectedMax = values[j];
+                if (expectedMin == null || values[j] < expectedMin) expectedMin = values[j];
+            }
+            assertResult(expectedMax, max.getResult());
+            assertResult(expectedMin, min.getResult());
+        }
+    }
+
+    @Test
+    public void testSumCountAvg() throws Exception {
+        Integer[] values = randomValues(1000);
+        SpliceGenericWindowFunction sum = newFunction(new SumAggregator(), "SUM");
+        SpliceGenericWindowFunction count = newFunction(new CountAggregator(), "COUNT");
+        SpliceGenericWindowFunction avg = newFunction(new AvgAggregator(), "AVG");
+        for (int i = 0; i < values.length; i++) {
+            slide(sum, values, i);
+            slide(count, values, i);
+            slide(avg, values, i);
+            Integer expectedSum = null;
+            int rows = 0, nonNull = 0;
+            for (int j = Math.max(0, i - WINDOW + 1); j <= i; j++) {
+                rows++;
+                if (values[j] == null) continue;
+                expectedSum = expectedSum == null ? values[j] : expectedSum + values[j];
+                nonNull++;
+            }
+            assertResult(expectedSum, sum.getResult());
+            assertEquals(rows, count.getResult().getLong());
+            assertResult(expectedSum == null ? null : (int) ((double) expectedSum / nonNull), avg.getResult());
+        }
+    }
+
+    private static SpliceGenericWindowFunction newFunction(SpliceGenericWindowFunction function, String name) {
+        function.setup(null, name, null, null);
+        SpliceGenericWindowFunction instance = (SpliceGenericWindowFunction) function.newWindowFunction();
+        instance.setResultType(new SQLInteger());
+        return instance;
+    }
+
+    private static void slide(SpliceGenericWindowFunction function, Integer[] values, int i) throws Exception {
+        function.accumulate(new DataValueDescriptor[]{values[i] == null ? new SQLInteger() : new SQLInteger(values[i])});
+        if (i >= WINDOW) {
+            function.remove();
+        }
+    }
+
+    private static Integer[] randomValues(int n) {
+        Random random = new Random(0);
+        Integer[] values = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            // include runs of nulls, so that windows with no values are covered
+            values[i] = (i / 50) % 4 == 3 || random.nextInt(5) == 0 ? null : random.nextInt(100) - 50;
+        }
+        return values;
+    }
+
+    private static void assertResult(Integer expected, DataValueDescriptor actual) throws Exception {
+        if (expected == null) {
+            assertTrue(actual.isNull());
+        } else {
+            assertEquals(expected.intValue(), actual.getInt());
+        }
+    }
+}
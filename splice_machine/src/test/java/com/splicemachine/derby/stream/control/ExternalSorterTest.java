@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.SpliceKryoRegistry;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.cache.ClassSize;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import scala.Tuple2;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+@Category(ArchitectureIndependent.class)
+public class ExternalSorterTest {
+    static {
+        ClassSize.setDummyCatalog();
+    }
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static final Comparator<ExecRow> KEY_ORDER = new Comparator<ExecRow>() {
+        @Override
+        public int compare(ExecRow o1, ExecRow o2) {
+            try {
+                return Integer.compare(o1.getColumn(1).getInt(), o2.getColumn(1).getInt());
+            } catch (StandardException se) {
+                throw new RuntimeException(se);
+            }
+        }
+    };
+
+    @Test
+    public void sortsInMemoryWhenUnderLimit() throws Exception {
+        List<Tuple2<ExecRow, ExecRow>> rows = randomRows(1000, 100);
+        ExternalSorter<ExecRow, ExecRow> sorter = newSorter(Long.MAX_VALUE);
+        assertSortedAndStable(sorter.sort(rows.iterator()), rows.size());
+        Assert.assertEquals("Should not have spilled", 0L, sorter.getSpilledBytes());
+    }
+
+    @Test
+    public void spillsAndMergesRuns() throws Exception {
+        List<Tuple2<ExecRow, ExecRow>> rows = randomRows(5000, 100);
+        ExternalSorter<ExecRow, ExecRow> sorter = newSorter(16 * 1024);
+        assertSortedAndStable(sorter.sort(rows.iterator()), rows.size());
+        Assert.assertTrue("Should have spilled", sorter.getSpilledBytes() > 0);
+        Assert.assertEquals("Spill files were not cleaned up", 0, temporaryFolder.getRoot().list().length);
+    }
+
+    @Test
+    public void premergesWhenMoreRunsThanFanIn() throws Exception {
+        int rowCount = ExternalSorter.MAX_MERGE_FAN_IN * 3;
+        List<Tuple2<ExecRow, ExecRow>> rows = randomRows(rowCount, 10);
+        // every row forces a spill
+        ExternalSorter<ExecRow, ExecRow> sorter = newSorter(1);
+        assertSortedAndStable(sorter.sort(rows.iterator()), rows.size());
+        Assert.assertEquals("Spill files were not cleaned up", 0, temporaryFolder.getRoot().list().length);
+    }
+
+    @Test
+    public void premergesAreNotRecordedAsSpills() throws Exception {
+        int rowCount = ExternalSorter.MAX_MERGE_FAN_IN * 3;
+        List<Tuple2<ExecRow, ExecRow>> rows = randomRows(rowCount, 10);
+        ControlOperationContext context = new ControlOperationContext();
+        ExternalSorter<ExecRow, ExecRow> sorter = new ExternalSorter<>(KEY_ORDER, 1, temporaryFolder.getRoot(), context,
+                SpliceKryoRegistry.getInstance());
+        assertSortedAndStable(sorter.sort(rows.iterator()), rows.size());
+        Assert.assertEquals("Each row should be spilled once, in its own run", rowCount, context.getSpilledRuns());
+        Assert.assertEquals(sorter.getSpilledBytes(), context.getSpilledBytes());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private ExternalSorter<ExecRow, ExecRow> newSorter(long memoryLimit) {
+        return new ExternalSorter<>(KEY_ORDER, memoryLimit, temporaryFolder.getRoot(), null, SpliceKryoRegistry.getInstance());
+    }
+
+    private static List<Tuple2<ExecRow, ExecRow>> randomRows(int count, int distinctKeys) {
+        Random random = new Random(0L);
+        List<Tuple2<ExecRow, ExecRow>> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(new Tuple2<>(row(random.nextInt(distinctKeys)), row(i)));
+        }
+        return rows;
+    }
+
+    private static ExecRow row(int value) {
+        ValueRow row = new ValueRow(1);
+        row.setColumn(1, new SQLInteger(value));
+        return row;
+    }
+
+    private static void assertSortedAndStable(Iterator<Tuple2<ExecRow, ExecRow>> sorted, int expectedCount) throws StandardException {
+        int count = 0;
+        int lastKey = Integer.MIN_VALUE;
+        int lastSequence = -1;
+        while (sorted.hasNext()) {
+            Tuple2<ExecRow, ExecRow> t = sorted.next();
+            int key = t._1().getColumn(1).getInt();
+            int sequence = t._2().getColumn(1).getInt();
+            Assert.assertTrue("Out of order key " + key + " after " + lastKey, key >= lastKey);
+            if (key == lastKey)
+                Assert.assertTrue("Sort is not stable for key " + key, sequence > lastSequence);
+            lastKey = key;
+            lastSequence = sequence;
+            count++;
+        }
+        Assert.assertEquals("Incorrect row count", expectedCount, count);
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.SpliceKryoRegistry;
+import com.splicemachine.db.iapi.services.cache.ClassSize;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import scala.Tuple2;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+@Category(ArchitectureIndependent.class)
+public class HybridHashTableTest {
+    static {
+        ClassSize.setDummyCatalog();
+    }
+
+    private static final int ROWS = 20000;
+    private static final int KEYS = 997;
+    // small enough that every table spills several partitions
+    private static final long MEMORY_LIMIT = 64 * 1024;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void groupsWithSpilling() throws Exception {
+        HybridHashTable<ExecRow, ExecRow> table = newTable(null);
+        table.putAll(rows(ROWS, KEYS));
+        Assert.assertTrue("Table should have spilled", table.hasSpilled());
+
+        Map<Integer, Integer> counts = new HashMap<>();
+        Iterator<Tuple2<ExecRow, Iterable<ExecRow>>> groups = table.groups();
+        while (groups.hasNext()) {
+            Tuple2<ExecRow, Iterable<ExecRow>> group = groups.next();
+            int key = group._1().getColumn(1).getInt();
+            Assert.assertNull("Key " + key + " seen twice", counts.get(key));
+            int count = 0;
+            for (ExecRow value : group._2()) {
+                Assert.assertEquals("Value in wrong group", key, value.getColumn(1).getInt() % KEYS);
+                count++;
+            }
+            counts.put(key, count);
+        }
+        Assert.assertEquals("Incorrect number of groups", KEYS, counts.size());
+        for (Map.Entry<Integer, Integer> e : counts.entrySet()) {
+            Assert.assertEquals("Incorrect group size for key " + e.getKey(), expectedCount(e.getKey()), (int) e.getValue());
+        }
+        Assert.assertEquals("Spill files were not cleaned up", 0, temporaryFolder.getRoot().list().length);
+    }
+
+    @Test
+    public void reducesWithSpilling() throws Exception {
+        // sums the count column, which also merges partial counts from spilled partitions
+        HybridHashTable<ExecRow, ExecRow> table = newTable(new HybridHashTable.Reducer<ExecRow>() {
+            @Override
+            public ExecRow reduce(ExecRow accumulator, ExecRow value) throws Exception {
+                if (accumulator == null)
+                    return value.getClone();
+                accumulator.getColumn(2).setValue(accumulator.getColumn(2).getInt() + value.getColumn(2).getInt());
+                return accumulator;
+            }
+        });
+        table.putAll(rows(ROWS, KEYS));
+        Assert.assertTrue("Table should have spilled", table.hasSpilled());
+
+        int groups = 0;
+        Iterator<Tuple2<ExecRow, ExecRow>> reduced = table.reduced();
+        while (reduced.hasNext()) {
+            Tuple2<ExecRow, ExecRow> t = reduced.next();
+            int key = t._1().getColumn(1).getInt();
+            Assert.assertEquals("Incorrect count for key " + key, expectedCount(key), t._2().getColumn(2).getInt());
+            groups++;
+        }
+        Assert.assertEquals("Incorrect number of groups", KEYS, groups);
+    }
+
+    @Test
+    public void probesWithSpilling() throws Exception {
+        HybridHashTable<ExecRow, ExecRow> build = newTable(null);
+        build.putAll(rows(ROWS, KEYS));
+        Assert.assertTrue("Table should have spilled", build.hasSpilled());
+
+        // every probe key matches expectedCount(key) build rows
+        long matches = 0;
+        Iterator<Tuple2<ExecRow, Tuple2<ExecRow, ExecRow>>> joined = build.probe(rows(2 * KEYS, KEYS));
+        while (joined.hasNext()) {
+            Tuple2<ExecRow, Tuple2<ExecRow, ExecRow>> t = joined.next();
+            int key = t._1().getColumn(1).getInt();
+            Assert.assertEquals("Probe row joined to the wrong key", key, t._2()._1().getColumn(1).getInt() % KEYS);
+            Assert.assertEquals("Build row joined to the wrong key", key, t._2()._2().getColumn(1).getInt() % KEYS);
+            matches++;
+        }
+        Assert.assertEquals("Incorrect number of joined rows", 2L * ROWS, matches);
+        Assert.assertEquals("Spill files were not cleaned up", 0, temporaryFolder.getRoot().list().length);
+    }
+
+    @Test
+    public void cogroupsWithSpilling() throws Exception {
+        HybridHashTable<ExecRow, ExecRow> left = newTable(null);
+        HybridHashTable<ExecRow, ExecRow> right = newTable(null);
+        left.putAll(rows(ROWS, KEYS));
+        // right only holds the first half of the keys
+        right.putAll(rows(KEYS / 2, KEYS));
+
+        int groups = 0;
+        int matched = 0;
+        Iterator<Tuple2<ExecRow, Tuple2<Iterable<ExecRow>, Iterable<ExecRow>>>> cogrouped = HybridHashTable.cogroup(left, right);
+        while (cogrouped.hasNext()) {
+            Tuple2<ExecRow, Tuple2<Iterable<ExecRow>, Iterable<ExecRow>>> t = cogrouped.next();
+            Assert.assertTrue("Left side should never be empty", t._2()._1().iterator().hasNext());
+            if (t._2()._2().iterator().hasNext())
+                matched++;
+            groups++;
+        }
+        Assert.assertEquals("Incorrect number of groups", KEYS, groups);
+        Assert.assertEquals("Incorrect number of groups with right rows", KEYS / 2, matched);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private HybridHashTable<ExecRow, ExecRow> newTable(HybridHashTable.Reducer<ExecRow> reducer) {
+        return new HybridHashTable<>(reducer, MEMORY_LIMIT, 0, temporaryFolder.getRoot(), null, SpliceKryoRegistry.getInstance());
+    }
+
+    private static int expectedCount(int key) {
+        return ROWS / KEYS + (key < ROWS % KEYS ? 1 : 0);
+    }
+
+    private static Iterator<Tuple2<ExecRow, ExecRow>> rows(final int count, final int keys) {
+        return new Iterator<Tuple2<ExecRow, ExecRow>>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public Tuple2<ExecRow, ExecRow> next() {
+                int i = next++;
+                ValueRow value = new ValueRow(2);
+                value.setColumn(1, new SQLInteger(i));
+                value.setColumn(2, new SQLInteger(1));
+                return new Tuple2<>(row(i % keys), value);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private static ExecRow row(int value) {
+        ValueRow row = new ValueRow(1);
+        row.setColumn(1, new SQLInteger(value));
+        return row;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.function;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Test for the splitting of sorted rows into window partitions by {@link MergeWindowFunction}
+ */
+@Category(ArchitectureIndependent.class)
+public class MergeWindowFunctionTest {
+
+    @Test
+    public void testSplitsSortedRowsIntoPartitions() throws Exception {
+        Iterator<Iterator<ExecRow>> partitions = partitions(1, 1, 1, 2, 3, 3);
+        assertEquals(Arrays.asList(1, 1, 1), values(partitions.next()));
+        assertEquals(Arrays.asList(2), values(partitions.next()));
+        assertEquals(Arrays.asList(3, 3), values(partitions.next()));
+        assertFalse(partitions.hasNext());
+    }
+
+    @Test
+    public void testSkipsWhatIsLeftOfAPartition() throws Exception {
+        Iterator<Iterator<ExecRow>> partitions = partitions(1, 1, 1, 2, 2);
+        Iterator<ExecRow> first = partitions.next();
+        assertEquals(1, first.next().getColumn(1).getInt());
+        assertEquals(Arrays.asList(2, 2), values(partitions.next()));
+        assertFalse(first.hasNext());
+        assertFalse(partitions.hasNext());
+    }
+
+    @Test
+    public void testNullsAreOnePartition() throws Exception {
+        Iterator<Iterator<ExecRow>> partitions = partitions(null, null, 1);
+        assertEquals(2, values(partitions.next()).size());
+        assertEquals(Arrays.asList(1), values(partitions.next()));
+        assertFalse(partitions.hasNext());
+    }
+
+    private static Iterator<Iterator<ExecRow>> partitions(Integer... keys) {
+        List<ExecRow> rows = new ArrayList<>(keys.length);
+        for (Integer key : keys) {
+            ExecRow row = new ValueRow(1);
+            row.setColumn(1, key == null ? new SQLInteger() : new SQLInteger(key));
+            rows.add(row);
+        }
+        return new MergeWindowFunction.PartitionIterator(rows.iterator(),
+                new ColumnComparator(new int[]{0}, null, null));
+    }
+
+    private static List<Integer> values(Iterator<ExecRow> partition) throws StandardException {
+        List<Integer> values = new ArrayList<>();
+        while (partition.hasNext()) {
+            ExecRow row = partition.next();
+            values.add(row.getColumn(1).isNull() ? null : row.getColumn(1).getInt());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.derby.stream.vector;
+
+import com.splicemachine.db.iapi.services.cache.ClassSize;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(ArchitectureIndependent.class)
+public class ColumnBatchTest {
+    static {
+        ClassSize.setDummyCatalog();
+    }
+
+    private static final int CAPACITY = 16;
+
+    @Test
+    public void choosesVectorByType() throws Exception {
+        ColumnBatch batch = ColumnBatch.forRow(row(new SQLInteger(), new SQLDouble(), new SQLVarchar()), CAPACITY);
+        Assert.assertTrue("Wrong vector for INTEGER", batch.getColumn(0) instanceof LongColumnVector);
+        Assert.assertTrue("Wrong vector for DOUBLE", batch.getColumn(1) instanceof DoubleColumnVector);
+        Assert.assertTrue("Wrong vector for VARCHAR", batch.getColumn(2) instanceof ObjectColumnVector);
+    }
+
+    @Test
+    public void holdsOnlyRequestedColumns() throws Exception {
+        ColumnBatch batch = ColumnBatch.forRow(row(new SQLInteger(), new SQLDouble(), new SQLVarchar()), CAPACITY, new int[]{2, 0, 2});
+        Assert.assertTrue("Wrong vector for INTEGER", batch.getColumn(0) instanceof LongColumnVector);
+        Assert.assertNull("Unrequested column should be absent", batch.getColumn(1));
+        Assert.assertTrue("Wrong vector for VARCHAR", batch.getColumn(2) instanceof ObjectColumnVector);
+    }
+
+    @Test
+    public void materializesSelectedRows() throws Exception {
+        ColumnBatch batch = fill(ColumnBatch.forRow(row(new SQLInteger(), new SQLDouble(), new SQLVarchar()), CAPACITY));
+        batch.select(new int[]{1, 3, 4}, 2);
+        Assert.assertEquals("Wrong selected count", 2, batch.selectedCount());
+
+        ExecRow dest = row(new SQLInteger(), new SQLDouble(), new SQLVarchar());
+        batch.materialize(batch.selectedRow(0), dest);
+        Assert.assertEquals("Wrong int", 1, dest.getColumn(1).getInt());
+        Assert.assertEquals("Wrong double", 1.5d, dest.getColumn(2).getDouble(), 0d);
+        Assert.assertEquals("Wrong string", "r1", dest.getColumn(3).getString());
+
+        batch.materialize(batch.selectedRow(1), dest);
+        Assert.assertTrue("Null should be preserved", dest.getColumn(1).isNull());
+        Assert.assertEquals("Wrong string", "r3", dest.getColumn(3).getString());
+
+        batch.setSize(CAPACITY);
+        Assert.assertEquals("Resizing should clear the selection", CAPACITY, batch.selectedCount());
+        Assert.assertEquals("Resizing should clear the selection", 5, batch.selectedRow(5));
+    }
+
+    @Test
+    public void projectsColumns() throws Exception {
+        ColumnBatch batch = fill(ColumnBatch.forRow(row(new SQLInteger(), new SQLDouble(), new SQLVarchar()), CAPACITY));
+        ColumnBatch projected = batch.project(new int[]{2, -1, 0});
+        Assert.assertSame("Vectors should be shared", batch.getColumn(2), projected.getColumn(0));
+        Assert.assertNull("Unmapped column should be absent", projected.getColumn(1));
+
+        ExecRow dest = row(new SQLVarchar(), new SQLDouble(7d), new SQLInteger());
+        projected.materialize(2, dest);
+        Assert.assertEquals("Wrong string", "r2", dest.getColumn(1).getString());
+        Assert.assertEquals("Absent column should be untouched", 7d, dest.getColumn(2).getDouble(), 0d);
+        Assert.assertEquals("Wrong int", 2, dest.getColumn(3).getInt());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static ColumnBatch fill(ColumnBatch batch) throws Exception {
+        for (int i = 0; i < CAPACITY; i++) {
+            // every third row has a null int
+            batch.getColumn(0).set(i, i % 3 == 0 ? new SQLInteger() : new SQLInteger(i));
+            batch.getColumn(1).set(i, new SQLDouble(i + 0.5d));
+            batch.getColumn(2).set(i, new SQLVarchar("r" + i));
+        }
+        batch.setSize(CAPACITY);
+        return batch;
+    }
+
+    private static ExecRow row(DataValueDescriptor... values) {
+        ValueRow row = new ValueRow(values.length);
+        for (int i = 0; i < values.length; i++) {
+            row.setColumn(i + 1, values[i]);
+        }
+        return row;
+    }
+}
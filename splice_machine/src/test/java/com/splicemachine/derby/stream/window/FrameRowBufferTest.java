@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.derby.stream.window;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test for {@link FrameRowBuffer}
+ */
+@Category(ArchitectureIndependent.class)
+public class FrameRowBufferTest {
+
+    @Test
+    public void testWrapsAroundAndGrows() throws Exception {
+        FrameRowBuffer buffer = new FrameRowBuffer(4);
+        ArrayDeque<ExecRow> expected = new ArrayDeque<>();
+        Random random = new Random(0);
+        for (int i = 0; i < 10000; i++) {
+            if (expected.isEmpty() || random.nextInt(3) > 0) {
+                ExecRow row = new ValueRow(1);
+                buffer.add(row);
+                expected.addLast(row);
+            } else {
+                assertSame(expected.pollFirst(), buffer.removeFirst());
+            }
+            assertEquals(expected.size(), buffer.size());
+        }
+        int i = 0;
+        for (ExecRow row : expected) {
+            assertSame(row, buffer.get(i++));
+        }
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        FrameRowBuffer buffer = new FrameRowBuffer();
+        buffer.add(new ValueRow(1));
+        buffer.add(new ValueRow(1));
+        buffer.removeFirst();
+        buffer.clear();
+        assertEquals(0, buffer.size());
+
+        ExecRow row = new ValueRow(1);
+        buffer.add(row);
+        assertSame(row, buffer.get(0));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetBeyondSize() throws Exception {
+        FrameRowBuffer buffer = new FrameRowBuffer();
+        buffer.add(new ValueRow(1));
+        buffer.get(1);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.pipeline.foreignkey;
+
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.storage.Partition;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Category(ArchitectureIndependent.class)
+public class ForeignKeyParentCacheTest{
+    private static final long PARENT = 1568l;
+    private static final byte[] KEY = new byte[]{0x01,0x02,0x03};
+
+    private final TxnSupplier txnSupplier = mock(TxnSupplier.class);
+    private final Partition region = mock(Partition.class);
+
+    @Test
+    public void sameTransactionSeesItsOwnChecks() throws Exception{
+        ForeignKeyParentCache cache = new ForeignKeyParentCache(txnSupplier,10);
+        TxnView txn = txn(1l,Txn.State.ACTIVE,Txn.State.ACTIVE);
+
+        Assert.assertFalse(cache.lookup(txn,region).contains(PARENT,KEY));
+        cache.lookup(txn,region).verified(PARENT,KEY);
+        Assert.assertTrue("A later batch of the same write should hit",cache.lookup(txn,region).contains(PARENT,KEY.clone()));
+        Assert.assertFalse("Other parent conglomerates should not hit",cache.lookup(txn,region).contains(PARENT+1,KEY));
+        Assert.assertEquals(1l,cache.getCacheHits());
+    }
+
+    @Test
+    public void otherTransactionsOnlySeeCommittedChecks() throws Exception{
+        ForeignKeyParentCache cache = new ForeignKeyParentCache(txnSupplier,10);
+        TxnView checking = txn(1l,Txn.State.ACTIVE,Txn.State.ACTIVE);
+        TxnView other = txn(2l,Txn.State.ACTIVE,Txn.State.ACTIVE);
+        cache.lookup(checking,region).verified(PARENT,KEY);
+
+        Assert.assertFalse("Uncommitted checks should not be trusted",cache.lookup(other,region).contains(PARENT,KEY));
+
+        when(checking.getState()).thenReturn(Txn.State.COMMITTED);
+        when(checking.getEffectiveState()).thenReturn(Txn.State.COMMITTED);
+        Assert.assertTrue("Committed checks should be trusted",cache.lookup(other,region).contains(PARENT,KEY));
+    }
+
+    @Test
+    public void rolledBackChecksAreDropped() throws Exception{
+        ForeignKeyParentCache cache = new ForeignKeyParentCache(txnSupplier,10);
+        TxnView checking = txn(1l,Txn.State.ROLLEDBACK,Txn.State.ROLLEDBACK);
+        cache.lookup(checking,region).verified(PARENT,KEY);
+
+        Assert.assertFalse(cache.lookup(txn(2l,Txn.State.ACTIVE,Txn.State.ACTIVE),region).contains(PARENT,KEY));
+        Assert.assertEquals(0l,cache.getCacheSize());
+        Assert.assertEquals(1l,cache.getInvalidations());
+    }
+
+    @Test
+    public void deletesInvalidate() throws Exception{
+        ForeignKeyParentCache cache = new ForeignKeyParentCache(txnSupplier,10);
+        TxnView txn = txn(1l,Txn.State.ACTIVE,Txn.State.ACTIVE);
+        cache.lookup(txn,region).verified(PARENT,KEY);
+
+        cache.invalidate(PARENT,KEY.clone());
+        Assert.assertFalse(cache.lookup(txn,region).contains(PARENT,KEY));
+        Assert.assertEquals(1l,cache.getInvalidations());
+    }
+
+    @Test
+    public void checksInClosedRegionsAreDropped() throws Exception{
+        ForeignKeyParentCache cache = new ForeignKeyParentCache(txnSupplier,10);
+        TxnView txn = txn(1l,Txn.State.COMMITTED,Txn.State.COMMITTED);
+        cache.lookup(txn,region).verified(PARENT,KEY);
+        Partition otherRegion = mock(Partition.class);
+        Assert.assertTrue("Checks should be trusted by other open regions",cache.lookup(txn,otherRegion).contains(PARENT,KEY));
+
+        // the child row may now be deleted on the server the region moved to
+        when(region.isClosed()).thenReturn(true);
+        Assert.assertFalse(cache.lookup(txn,otherRegion).contains(PARENT,KEY));
+        Assert.assertEquals(0l,cache.getCacheSize());
+        Assert.assertEquals(1l,cache.getInvalidations());
+    }
+
+    @Test
+    public void zeroSizeDisablesTheCache() throws Exception{
+        ForeignKeyParentCache cache = new ForeignKeyParentCache(txnSupplier,0);
+        TxnView txn = txn(1l,Txn.State.ACTIVE,Txn.State.ACTIVE);
+        cache.lookup(txn,region).verified(PARENT,KEY);
+
+        Assert.assertFalse(cache.isEnabled());
+        Assert.assertFalse(cache.lookup(txn,region).contains(PARENT,KEY));
+    }
+
+    private TxnView txn(long txnId,Txn.State state,Txn.State effectiveState) throws Exception{
+        TxnView txn = mock(TxnView.class);
+        when(txn.getTxnId()).thenReturn(txnId);
+        when(txn.getState()).thenReturn(state);
+        when(txn.getEffectiveState()).thenReturn(effectiveState);
+        when(txn.getParentTxnView()).thenReturn(Txn.ROOT_TRANSACTION);
+        when(txnSupplier.getTransaction(txnId)).thenReturn(txn);
+        return txn;
+    }
+}
@@ -227,6 +227,80 @@ public class Trigger_Row_Transition_IT {
     }
 
 
+    /* AFTER ROW triggers are fired a buffer of rows at a time; make sure every row of a multi-buffer insert fires,
+     * with one trigger and with several on the same event. */
+    @Test
+    public void afterInsertManyRows() throws Exception {
+        try(Statement s = conn.createStatement()){
+            s.executeUpdate(tb.named("trig1").after().insert().on("T").referencing("NEW AS N")
+                    .row().then("INSERT INTO RECORD_NEW VALUES(N.a, N.b)").build());
+
+            // when - insert 2560 rows
+            s.executeUpdate("insert into T select 'FFF', b from " + createNumbersTable(s));
+
+            Assert.assertEquals(2560L,StatementUtils.onlyLong(s,"select count(*) from RECORD_NEW where a='FFF'"));
+            Assert.assertEquals(3278080L,StatementUtils.onlyLong(s,"select sum(bigint(b)) from RECORD_NEW where a='FFF'"));
+        }
+    }
+
+    @Test
+    public void afterInsertManyRowsMultipleTriggers() throws Exception {
+        try(Statement s = conn.createStatement()){
+            s.executeUpdate(tb.named("trig1").after().insert().on("T").referencing("NEW AS N")
+                    .row().then("INSERT INTO RECORD_NEW VALUES(N.a, N.b)").build());
+            s.executeUpdate(tb.named("trig2").after().insert().on("T").referencing("NEW AS N")
+                    .row().then("INSERT INTO RECORD_NEW VALUES(N.a, -N.b)").build());
+
+            // when - insert 2560 rows
+            s.executeUpdate("insert into T select 'GGG', b from " + createNumbersTable(s));
+
+            Assert.assertEquals(2560L,StatementUtils.onlyLong(s,"select count(*) from RECORD_NEW where a='GGG' and b > 0"));
+            Assert.assertEquals(2560L,StatementUtils.onlyLong(s,"select count(*) from RECORD_NEW where a='GGG' and b < 0"));
+        }
+    }
+
+    /* An action inserting the new row's values into another table runs once per buffer of rows; make sure a column
+     * list and expressions survive that. */
+    @Test
+    public void afterInsertManyRowsWithColumnList() throws Exception {
+        try(Statement s = conn.createStatement()){
+            s.executeUpdate(tb.named("trig1").after().insert().on("T").referencing("NEW AS N")
+                    .row().then("INSERT INTO RECORD_NEW (b, a) VALUES (N.b * 2, 'X' || N.a)").build());
+
+            // when - insert 2560 rows
+            s.executeUpdate("insert into T select 'HHH', b from " + createNumbersTable(s));
+
+            Assert.assertEquals(2560L,StatementUtils.onlyLong(s,"select count(*) from RECORD_NEW where a='XHHH'"));
+            Assert.assertEquals(6556160L,StatementUtils.onlyLong(s,"select sum(bigint(b)) from RECORD_NEW where a='XHHH'"));
+        }
+    }
+
+    /* An action reading the table it inserts into still runs once per row, each row seeing the rows inserted for
+     * the rows before it. */
+    @Test
+    public void afterInsertManyRowsReadingTargetTable() throws Exception {
+        try(Statement s = conn.createStatement()){
+            s.executeUpdate(tb.named("trig1").after().insert().on("T").referencing("NEW AS N")
+                    .row().then("INSERT INTO RECORD_NEW VALUES (N.a, (SELECT COUNT(*) FROM RECORD_NEW WHERE a = 'III'))").build());
+
+            // when - insert 2560 rows
+            s.executeUpdate("insert into T select 'III', b from " + createNumbersTable(s));
+
+            Assert.assertEquals(2560L,StatementUtils.onlyLong(s,"select count(distinct b) from RECORD_NEW where a='III'"));
+            Assert.assertEquals(3275520L,StatementUtils.onlyLong(s,"select sum(bigint(b)) from RECORD_NEW where a='III'"));
+        }
+    }
+
+    /* Creates a table holding the numbers 1 to 2560 and returns its name. */
+    private static String createNumbersTable(Statement s) throws SQLException {
+        s.executeUpdate("create table NUMBERS (b int)");
+        s.executeUpdate("insert into NUMBERS values (1),(2),(3),(4),(5),(6),(7),(8),(9),(10)");
+        for (int offset = 10; offset < 2560; offset *= 2) {
+            s.executeUpdate("insert into NUMBERS select b + " + offset + " from NUMBERS");
+        }
+        return "NUMBERS";
+    }
+
     @Test
     public void recursiveUpdate() throws Exception {
         // DB-3354
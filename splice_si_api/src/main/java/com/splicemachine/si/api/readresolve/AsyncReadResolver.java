@@ -36,6 +36,8 @@ import java.util.concurrent.TimeUnit;
  * <p/>
  * This implementation uses an LMAX disruptor to asynchronously pass Read-resolve events
  * to a background thread, which in turn uses a SynchronousReadResolver to actually perform the resolution.
+ * <p/>
+ * If the RollForward of the region resolves rows on behalf of readers, rows are handed to it instead.
  *
  * @author Scott Fines
  *         Date: 7/1/14
@@ -140,6 +142,8 @@ public class AsyncReadResolver{
         @Override
         public void resolve(ByteSlice rowKey,long txnId){
             if(stopped) return; //we aren't running, so do nothing
+            if(rollForward!=null && rollForward.submitForReadResolution(region,txnId,rowKey))
+                return; //the roll forward will batch it up with other rows of the region
             long sequence;
             try{
                 sequence=ringBuffer.tryNext();
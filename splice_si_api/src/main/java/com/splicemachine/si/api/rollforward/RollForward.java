@@ -27,5 +27,19 @@ import java.util.List;
  * Date: 6/26/14
  */
 public interface RollForward extends RollForwardBean {
+	/**
+	 * Submits rows written by a transaction, to be resolved once it has completed. May wait for room, so
+	 * the caller must not hold the locks of any rows in the partition.
+	 */
 	void submitForResolution(Partition partition, long txnId, List<ByteSlice> rowKeys);
+
+	/**
+	 * Submits a row which a reader found without a commit timestamp, but which was written by
+	 * a transaction that has since completed.
+	 *
+	 * @param rowKey the row key. May be reused by the caller once this method returns.
+	 * @return false if this RollForward does not resolve rows on behalf of readers, in which case
+	 * the caller is responsible for resolving the row itself
+	 */
+	boolean submitForReadResolution(Partition partition, long txnId, ByteSlice rowKey);
 }
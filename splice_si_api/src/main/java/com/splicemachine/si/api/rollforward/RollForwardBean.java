@@ -21,6 +21,7 @@ import com.splicemachine.storage.Partition;
 import com.splicemachine.utils.ByteSlice;
 
 import javax.management.MXBean;
+import java.util.Map;
 
 @MXBean
 public interface RollForwardBean {
@@ -74,4 +75,45 @@ public interface RollForwardBean {
      */
     @Description(value="Get the number of still active transactions on the second queue.")
     long getSecondQueueActive();
+
+    /**
+     * Returns the number of rows whose resolution was given up on, because too many rows of still active
+     * transactions were already waiting to be retried. They are resolved by later reads and compactions.
+     *
+     * @return number of rows given up on.
+     */
+    @Description(value="Get the number of rows given up on because too many rows were already waiting to be retried.")
+    long getRejectedResolutions();
+
+    /**
+     * Returns the total time writers have spent waiting for room in the queue.
+     *
+     * @return total time spent waiting, in milliseconds.
+     */
+    @Description(value="Get the total time in ms writers have spent waiting for room in the queue.")
+    long getSubmitWaitTime();
+
+    /**
+     * Returns the number of rows waiting for resolution, for each region.
+     *
+     * @return number of rows waiting for resolution, keyed by region name.
+     */
+    @Description(value="Get the number of rows waiting for resolution in each region.")
+    Map<String,Integer> getRegionQueueDepths();
+
+    /**
+     * Returns the average time between a row being submitted and being resolved, for each region.
+     *
+     * @return average resolution latency in milliseconds, keyed by region name.
+     */
+    @Description(value="Get the average time in ms between a row being submitted and being resolved in each region.")
+    Map<String,Long> getRegionResolutionLatencies();
+
+    /**
+     * Returns the number of times readers found unresolved rows, for each region.
+     *
+     * @return number of unresolved rows found by readers, keyed by region name.
+     */
+    @Description(value="Get the number of unresolved rows found by readers in each region.")
+    Map<String,Long> getRegionUnresolvedReads();
 }
@@ -86,6 +86,36 @@ public interface TxnSupplier {
 
     TxnView getTransactionFromCache(long txnId);
 
+		/**
+		 * Get the transactions associated with each of {@code txnIds}, using as few
+		 * remote calls as the implementation allows.
+		 *
+		 * This is intended for callers which come across many unknown transactions at once (e.g.
+		 * while reading a block of freshly written rows), and would otherwise fetch them one at a time.
+		 *
+		 * @param txnIds the transaction ids to fetch. Ids may be repeated.
+		 * @param activeAsOf a timestamp which was issued before this call was made (typically the begin
+		 *                   timestamp of the reading transaction). Any transaction found to be active was
+		 *                   therefore still active at this timestamp, which caching implementations may
+		 *                   remember (see {@link #isActiveAsOf(long, long)}).
+		 * @return the transactions, in the same order as {@code txnIds}
+		 */
+		TxnView[] getTransactions(long[] txnIds,long activeAsOf) throws IOException;
+
+		/**
+		 * Determines whether this Store knows, from its local cache, that the transaction
+		 * was still active at {@code timestamp}--and therefore that the transaction cannot have
+		 * committed before {@code timestamp}.
+		 *
+		 * Like {@link #transactionCached(long)}, this method only requires <em>best-guess</em> semantics;
+		 * returning false says nothing about the transaction.
+		 *
+		 * @param txnId the transaction id to check
+		 * @param timestamp the timestamp of interest
+		 * @return true if the transaction is known to have been active at {@code timestamp}
+		 */
+		boolean isActiveAsOf(long txnId,long timestamp);
+
 
 	/**
 	 * Get the taskId associated with {@code txnId}.
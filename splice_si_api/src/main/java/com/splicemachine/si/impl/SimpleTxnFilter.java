@@ -18,6 +18,7 @@ import com.carrotsearch.hppc.LongHashSet;
 import com.splicemachine.si.api.filter.RowAccumulator;
 import com.splicemachine.si.api.filter.TxnFilter;
 import com.splicemachine.si.api.readresolve.ReadResolver;
+import com.splicemachine.si.api.txn.Txn;
 import com.splicemachine.si.api.txn.TxnSupplier;
 import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.si.impl.driver.SIDriver;
@@ -183,6 +184,11 @@ public class SimpleTxnFilter implements TxnFilter{
             return;
         }
 
+        if(transactionStore.isActiveAsOf(ts,myTxn.getBeginTimestamp())){
+            //known to still be running a moment ago, so there is nothing to resolve yet
+            return;
+        }
+
         TxnView t=fetchTransaction(ts);
         assert t!=null:"Could not find a transaction for id "+ts;
 
@@ -230,6 +236,8 @@ public class SimpleTxnFilter implements TxnFilter{
     private boolean isVisible(long txnId) throws IOException{
         if (ignoreNewerTransactions && myTxn.getBeginTimestamp() < txnId)
             return false;
+        if(isKnownActive(txnId))
+            return false;
 
         TxnView toCompare=fetchTransaction(txnId);
         // If the database is restored from a backup, it may contain data that were written by a transaction which
@@ -238,10 +246,29 @@ public class SimpleTxnFilter implements TxnFilter{
         return toCompare != null ? myTxn.canSee(toCompare) : false;
     }
 
+    /**
+     * A snapshot reader cannot see a transaction which was still active after the reader began, unless it is one
+     * of the reader's own ancestors. Transactions with an id greater than our begin timestamp are never ancestors,
+     * but they may be children of ours, so we leave those to the full visibility check.
+     */
+    private boolean isKnownActive(long txnId){
+        if(myTxn.getIsolationLevel()!=Txn.IsolationLevel.SNAPSHOT_ISOLATION) return false;
+        long beginTs=myTxn.getBeginTimestamp();
+        if(txnId>=beginTs || !transactionStore.isActiveAsOf(txnId,beginTs)) return false;
+        TxnView t=myTxn;
+        while(t!=null && t!=Txn.ROOT_TRANSACTION){
+            if(t.getTxnId()==txnId) return false;
+            t=t.getParentTxnView();
+        }
+        return true;
+    }
+
     private TxnView fetchTransaction(long txnId) throws IOException{
         TxnView toCompare=currentTxn;
         if(currentTxn==null || currentTxn.getTxnId()!=txnId){
-            toCompare=transactionStore.getTransaction(txnId);
+            toCompare=transactionStore.getTransactionFromCache(txnId);
+            if(toCompare==null)
+                toCompare=transactionStore.getTransaction(txnId);
             currentTxn=toCompare;
         }
         return toCompare;
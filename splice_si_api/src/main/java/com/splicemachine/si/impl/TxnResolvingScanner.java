@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.si.impl;
+
+import com.carrotsearch.hppc.LongHashSet;
+import com.splicemachine.metrics.TimeView;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.storage.CellType;
+import com.splicemachine.storage.DataCell;
+import com.splicemachine.storage.DataScanner;
+import com.splicemachine.storage.Partition;
+import com.splicemachine.utils.SpliceLogUtils;
+import org.apache.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * DataScanner which resolves the transactions of a block of rows at once.
+ * <p/>
+ * Rows whose versions are all known (either because they carry a commit timestamp, or because the transaction
+ * is already cached) are passed through untouched. When a row written by an unknown transaction is found, the
+ * scanner reads ahead up to {@code blockSize} rows, collects every unknown transaction id in them and looks
+ * them all up with a single {@link TxnSupplier#getTransactions(long[], long)} call, before handing the rows out.
+ * <p/>
+ * This only warms the transaction caches; visibility is still decided by the transactional filter, so a failure
+ * to resolve a block is not fatal.
+ */
+public class TxnResolvingScanner implements DataScanner{
+    private static final Logger LOG=Logger.getLogger(TxnResolvingScanner.class);
+
+    private final DataScanner delegate;
+    private final TxnSupplier txnSupplier;
+    private final long activeAsOf;
+    private final int blockSize;
+
+    private final LongHashSet committedVersions=new LongHashSet();
+    private final LongHashSet unresolved=new LongHashSet();
+    private final ArrayDeque<List<DataCell>> buffered=new ArrayDeque<>();
+    private boolean exhausted;
+
+    /**
+     * @param activeAsOf a timestamp issued before the scan began, typically the begin timestamp of the reader.
+     * @param blockSize the maximum number of rows to read ahead
+     */
+    public TxnResolvingScanner(DataScanner delegate,TxnSupplier txnSupplier,long activeAsOf,int blockSize){
+        this.delegate=delegate;
+        this.txnSupplier=txnSupplier;
+        this.activeAsOf=activeAsOf;
+        this.blockSize=blockSize;
+    }
+
+    @Override
+    @Nonnull
+    public List<DataCell> next(int limit) throws IOException{
+        if(!buffered.isEmpty())
+            return buffered.poll();
+        if(exhausted)
+            return Collections.emptyList();
+
+        List<DataCell> row=delegate.next(limit);
+        if(row.isEmpty()){
+            exhausted=true;
+            return row;
+        }
+        if(!collectUnresolved(row))
+            return row;
+
+        //the scanner may reuse its cells, so copy the rows we hold on to
+        buffered.add(copy(row));
+        while(buffered.size()<blockSize){
+            List<DataCell> next=delegate.next(limit);
+            if(next.isEmpty()){
+                exhausted=true;
+                break;
+            }
+            collectUnresolved(next);
+            buffered.add(copy(next));
+        }
+        resolve();
+        return buffered.poll();
+    }
+
+    @Override public TimeView getReadTime(){ return delegate.getReadTime(); }
+    @Override public long getBytesOutput(){ return delegate.getBytesOutput(); }
+    @Override public long getRowsFiltered(){ return delegate.getRowsFiltered(); }
+    @Override public long getRowsVisited(){ return delegate.getRowsVisited(); }
+    @Override public Partition getPartition(){ return delegate.getPartition(); }
+
+    @Override
+    public void close() throws IOException{
+        buffered.clear();
+        delegate.close();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    private boolean collectUnresolved(List<DataCell> row){
+        committedVersions.clear();
+        for(int i=0;i<row.size();i++){
+            DataCell cell=row.get(i);
+            if(cell.dataType()==CellType.COMMIT_TIMESTAMP)
+                committedVersions.add(cell.version());
+        }
+        boolean found=false;
+        for(int i=0;i<row.size();i++){
+            DataCell cell=row.get(i);
+            switch(cell.dataType()){
+                case USER_DATA:
+                case TOMBSTONE:
+                case ANTI_TOMBSTONE:
+                    long version=cell.version();
+                    if(committedVersions.contains(version) || unresolved.contains(version))
+                        continue;
+                    if(txnSupplier.transactionCached(version) || txnSupplier.isActiveAsOf(version,activeAsOf))
+                        continue;
+                    unresolved.add(version);
+                    found=true;
+                    break;
+                default:
+            }
+        }
+        return found;
+    }
+
+    private void resolve(){
+        long[] txnIds=unresolved.toArray();
+        unresolved.clear();
+        try{
+            txnSupplier.getTransactions(txnIds,activeAsOf);
+        }catch(IOException e){
+            //the filter will look these up individually, and report any errors itself
+            SpliceLogUtils.debug(LOG,"Unable to resolve %d transactions in a batch: %s",txnIds.length,e.getMessage());
+        }
+    }
+
+    private static List<DataCell> copy(List<DataCell> row){
+        List<DataCell> copy=new ArrayList<>(row.size());
+        for(int i=0;i<row.size();i++){
+            copy.add(row.get(i).getClone());
+        }
+        return copy;
+    }
+}
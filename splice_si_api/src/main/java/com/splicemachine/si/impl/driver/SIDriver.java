@@ -21,6 +21,8 @@ import com.splicemachine.access.api.PartitionFactory;
 import com.splicemachine.access.api.SConfiguration;
 import com.splicemachine.access.api.SnowflakeFactory;
 import com.splicemachine.concurrent.Clock;
+import com.splicemachine.concurrent.WorkloadClass;
+import com.splicemachine.concurrent.WorkloadScheduler;
 import com.splicemachine.si.api.data.ExceptionFactory;
 import com.splicemachine.si.api.data.OperationFactory;
 import com.splicemachine.si.api.data.OperationStatusFactory;
@@ -43,6 +45,7 @@ import com.splicemachine.si.impl.execution.NonRejectingExecutor;
 import com.splicemachine.si.impl.readresolve.NoOpReadResolver;
 import com.splicemachine.si.impl.rollforward.NoopRollForward;
 import com.splicemachine.si.impl.rollforward.RollForwardStatus;
+import com.splicemachine.si.impl.server.ConflictDetectionStatus;
 import com.splicemachine.si.impl.server.SITransactor;
 import com.splicemachine.si.impl.store.IgnoreTxnSupplier;
 import com.splicemachine.si.impl.txn.SITransactionReadController;
@@ -92,6 +95,7 @@ public class SIDriver {
     private final TxnSupplier txnSupplier;
     private final IgnoreTxnSupplier ignoreTxnSupplier;
     private final Transactor transactor;
+    private final ConflictDetectionStatus conflictDetectionStatus;
     private final TxnOperationFactory txnOpFactory;
     private final RollForward rollForward;
     private final TxnLifecycleManager lifecycleManager;
@@ -105,6 +109,7 @@ public class SIDriver {
     private final ClusterHealth clusterHealth;
     private final ManagedThreadPool rejectingThreadPool;
     private final NonRejectingExecutor threadPool;
+    private final WorkloadScheduler workloadScheduler;
     private boolean engineStarted = false;
 
     public SIDriver(SIEnvironment env){
@@ -122,13 +127,16 @@ public class SIDriver {
         this.partitionInfoCache = env.partitionInfoCache();
         this.snowflakeFactory = env.snowflakeFactory();
         this.ignoreTxnSupplier = env.ignoreTxnSupplier();
+        this.conflictDetectionStatus = new ConflictDetectionStatus();
         //noinspection unchecked
         this.transactor = new SITransactor(
                 this.txnSupplier,
                 this.txnOpFactory,
                 env.baseOperationFactory(),
                 this.operationStatusFactory,
-                this.exceptionFactory);
+                this.exceptionFactory,
+                config.getConflictDetectionBatchThreshold(),
+                conflictDetectionStatus);
         ClientTxnLifecycleManager clientTxnLifecycleManager=new ClientTxnLifecycleManager(this.timestampSource,env.exceptionFactory());
         clientTxnLifecycleManager.setTxnStore(this.txnStore);
         clientTxnLifecycleManager.setKeepAliveScheduler(env.keepAliveScheduler());
@@ -149,6 +157,13 @@ public class SIDriver {
         tpe.prestartAllCoreThreads();
         this.rejectingThreadPool = new ManagedThreadPool(tpe);
         this.threadPool = new NonRejectingExecutor(rejectingThreadPool);
+
+        /* Create the pool which schedules query tasks by workload class */
+        this.workloadScheduler = new WorkloadScheduler(config.getWorkloadThreads(), config.getWorkloadLevelBound(),
+                new ThreadFactoryBuilder().setNameFormat("SpliceWorkloadPool-%d").setDaemon(true).build());
+        workloadScheduler.setConcurrencyLimit(WorkloadClass.OLTP, config.getWorkloadOltpMaxConcurrent());
+        workloadScheduler.setConcurrencyLimit(WorkloadClass.DEFAULT, config.getWorkloadDefaultMaxConcurrent());
+        workloadScheduler.setConcurrencyLimit(WorkloadClass.BATCH, config.getWorkloadBatchMaxConcurrent());
     }
 
 
@@ -199,6 +214,10 @@ public class SIDriver {
         return transactor;
     }
 
+    public ConflictDetectionStatus getConflictDetectionStatus(){
+        return conflictDetectionStatus;
+    }
+
     public SIEnvironment getSIEnvironment(){
         return env;
     }
@@ -268,6 +287,13 @@ public class SIDriver {
         return threadPool;
     }
 
+    /**
+     * @return the pool which schedules tasks executed on behalf of a statement by the statement's workload class
+     */
+    public WorkloadScheduler getWorkloadScheduler() {
+        return workloadScheduler;
+    }
+
     public ExecutorService getRejectingExecutorService() {
         return rejectingThreadPool;
     }
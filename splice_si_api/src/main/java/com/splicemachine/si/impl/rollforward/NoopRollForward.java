@@ -18,7 +18,9 @@ import com.splicemachine.si.api.rollforward.RollForward;
 import com.splicemachine.storage.Partition;
 import com.splicemachine.utils.ByteSlice;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author Scott Fines
@@ -34,6 +36,11 @@ public class NoopRollForward implements RollForward {
     public void submitForResolution(Partition partition, long txnId, List<ByteSlice> rowKey) {
     }
 
+    @Override
+    public boolean submitForReadResolution(Partition partition, long txnId, ByteSlice rowKey) {
+        return false;
+    }
+
     @Override
     public int getFirstQueueSize() {
         return 0;
@@ -63,4 +70,29 @@ public class NoopRollForward implements RollForward {
     public long getSecondQueueActive() {
         return 0;
     }
+
+    @Override
+    public long getRejectedResolutions() {
+        return 0;
+    }
+
+    @Override
+    public long getSubmitWaitTime() {
+        return 0;
+    }
+
+    @Override
+    public Map<String, Integer> getRegionQueueDepths() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public Map<String, Long> getRegionResolutionLatencies() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public Map<String, Long> getRegionUnresolvedReads() {
+        return Collections.emptyMap();
+    }
 }
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.si.impl.server;
+
+import javax.management.MXBean;
+
+/**
+ * Monitoring Hook for JMX, describing the reads performed during write/write conflict detection.
+ */
+@SuppressWarnings("unused")
+@MXBean(true)
+public interface ConflictDetectionManagement{
+
+    /**
+     * @return the total number of rows whose latest versions were read to check for conflicts and constraints
+     */
+    long getTotalRowsChecked();
+
+    /**
+     * @return the number of rows which were read as part of a sorted batch, rather than one at a time
+     */
+    long getTotalBatchedRows();
+
+    /**
+     * @return the number of batched reads performed
+     */
+    long getTotalBatches();
+
+    /**
+     * @return the number of per-row seeks avoided by reading rows in batches
+     */
+    long getTotalSeeksSaved();
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.si.impl.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for the reads performed by {@link SITransactor} during conflict detection.
+ */
+public class ConflictDetectionStatus implements ConflictDetectionManagement{
+    private final AtomicLong rowsChecked = new AtomicLong(0l);
+    private final AtomicLong batchedRows = new AtomicLong(0l);
+    private final AtomicLong batches = new AtomicLong(0l);
+
+    @Override public long getTotalRowsChecked(){ return rowsChecked.get(); }
+    @Override public long getTotalBatchedRows(){ return batchedRows.get(); }
+    @Override public long getTotalBatches(){ return batches.get(); }
+    @Override public long getTotalSeeksSaved(){ return batchedRows.get()-batches.get(); }
+
+    public void rowsChecked(int numRows){
+        rowsChecked.addAndGet(numRows);
+    }
+
+    public void batchRead(int numRows){
+        batches.incrementAndGet();
+        batchedRows.addAndGet(numRows);
+    }
+}
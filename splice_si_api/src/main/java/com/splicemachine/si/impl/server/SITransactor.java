@@ -15,6 +15,7 @@
 package com.splicemachine.si.impl.server;
 
 import com.carrotsearch.hppc.IntObjectHashMap;
+import com.splicemachine.access.configuration.SIConfigurations;
 import com.carrotsearch.hppc.LongHashSet;
 import com.carrotsearch.hppc.cursors.IntObjectCursor;
 import com.carrotsearch.hppc.cursors.LongCursor;
@@ -65,18 +66,33 @@ public class SITransactor implements Transactor{
 
     private final TxnOperationFactory txnOperationFactory;
     private final TxnSupplier txnSupplier;
+    private final int conflictBatchThreshold;
+    private final ConflictDetectionStatus conflictDetectionStatus;
 
     public SITransactor(TxnSupplier txnSupplier,
                         TxnOperationFactory txnOperationFactory,
                         OperationFactory opFactory,
                         OperationStatusFactory operationStatusLib,
                         ExceptionFactory exceptionFactory){
+        this(txnSupplier,txnOperationFactory,opFactory,operationStatusLib,exceptionFactory,
+                SIConfigurations.DEFAULT_CONFLICT_DETECTION_BATCH_THRESHOLD,new ConflictDetectionStatus());
+    }
+
+    public SITransactor(TxnSupplier txnSupplier,
+                        TxnOperationFactory txnOperationFactory,
+                        OperationFactory opFactory,
+                        OperationStatusFactory operationStatusLib,
+                        ExceptionFactory exceptionFactory,
+                        int conflictBatchThreshold,
+                        ConflictDetectionStatus conflictDetectionStatus){
         this.txnSupplier=txnSupplier;
         this.txnOperationFactory=txnOperationFactory;
         this.opFactory= opFactory;
         this.operationStatusLib = operationStatusLib;
         this.exceptionLib = exceptionFactory;
         this.defaultConstraintChecker = operationStatusLib.getNoOpConstraintChecker();
+        this.conflictBatchThreshold = conflictBatchThreshold;
+        this.conflictDetectionStatus = conflictDetectionStatus;
     }
 
     // Operation pre-processing. These are to be called "server-side" when we are about to process an operation.
@@ -196,6 +212,7 @@ public class SITransactor implements Transactor{
 
 
         ConflictRollForward conflictRollForward = new ConflictRollForward(opFactory, supplier);
+        List<ByteSlice> toRollforward = rollforward ? new ArrayList<ByteSlice>(mutations.size()) : null;
         try{
             lockRows(table,mutations,lockPairs,finalStatus);
 
@@ -206,7 +223,7 @@ public class SITransactor implements Transactor{
              */
             IntObjectHashMap<DataPut> writes=checkConflictsForKvBatch(table,conflictRollForward,lockPairs,
                     conflictingChildren,txn,family,qualifier,constraintChecker,constraintState,finalStatus,
-                    skipConflictDetection,skipWAL,supplier,rollforward);
+                    skipConflictDetection,skipWAL,supplier,toRollforward);
 
             //TODO -sf- this can probably be made more efficient
             //convert into array for usefulness
@@ -232,7 +249,6 @@ public class SITransactor implements Transactor{
                 }
                 i++;
             }
-            return finalStatus;
         }finally{
             try {
                 List<DataMutation> rollForwardMutations = conflictRollForward.getMutations();
@@ -243,6 +259,14 @@ public class SITransactor implements Transactor{
             }
             releaseLocksForKvBatch(lockPairs);
         }
+        /*
+         * Only once the row locks are released: submitting may wait for room in the roll forward scheduler,
+         * and its resolution writes take the locks of the same rows.
+         */
+        if (toRollforward != null && toRollforward.size() > 0) {
+            SIDriver.driver().getRollForward().submitForResolution(table,txn.getTxnId(),toRollforward);
+        }
+        return finalStatus;
     }
 
     private void releaseLocksForKvBatch(Pair<KVPair, Lock>[] locks){
@@ -262,14 +286,12 @@ public class SITransactor implements Transactor{
                                                                ConstraintChecker constraintChecker,
                                                                TxnFilter constraintStateFilter,
                                                                MutationStatus[] finalStatus, boolean skipConflictDetection,
-                                                               boolean skipWAL, TxnSupplier supplier, boolean rollforward) throws IOException {
+                                                               boolean skipWAL, TxnSupplier supplier, List<ByteSlice> toRollforward) throws IOException {
         IntObjectHashMap<DataPut> finalMutationsToWrite = new IntObjectHashMap(dataAndLocks.length, 0.9f);
         DataResult possibleConflicts = null;
         BitSet bloomInMemoryCheck  = skipConflictDetection ? null : table.getBloomInMemoryCheck(constraintChecker!=null,dataAndLocks);
-        List<ByteSlice> toRollforward = null;
-        if (rollforward) {
-            toRollforward = new ArrayList<>(dataAndLocks.length);
-        }
+        DataResult[] batchedReads = skipConflictDetection ? null : readLatestInBatch(table,dataAndLocks,constraintChecker,bloomInMemoryCheck);
+        int rowsRead = 0;
         for(int i=0;i<dataAndLocks.length;i++){
             Pair<KVPair, Lock> baseDataAndLock=dataAndLocks[i];
             if(baseDataAndLock==null) continue;
@@ -287,8 +309,14 @@ public class SITransactor implements Transactor{
                  * We know that this is the case because there is no constraint checker (constraint checkers are only
                  * applied on key elements.
                  */
-                //todo -sf remove the Row key copy here
-                possibleConflicts=bloomInMemoryCheck==null||bloomInMemoryCheck.get(i)?table.getLatest(kvPair.getRowKey(),possibleConflicts):null;
+                if(batchedReads!=null)
+                    possibleConflicts=batchedReads[i];
+                else if(bloomInMemoryCheck==null||bloomInMemoryCheck.get(i)){
+                    //todo -sf remove the Row key copy here
+                    possibleConflicts=table.getLatest(kvPair.getRowKey(),possibleConflicts);
+                    rowsRead++;
+                }else
+                    possibleConflicts=null;
                 if(possibleConflicts!=null){
                     //we need to check for write conflicts
                     try {
@@ -320,13 +348,80 @@ public class SITransactor implements Transactor{
                     family,qualifier,transaction,conflictResults,skipWAL,toRollforward);
             finalMutationsToWrite.put(i,mutationToRun);
         }
-        if (toRollforward != null && toRollforward.size() > 0) {
-            SIDriver.driver().getRollForward().submitForResolution(table,transaction.getTxnId(),toRollforward);
-        }
+        if(rowsRead>0)
+            conflictDetectionStatus.rowsChecked(rowsRead);
 
         return finalMutationsToWrite;
     }
 
+    /**
+     * Read the latest versions of all the rows in the batch which need a conflict (or constraint) check, in
+     * a single sorted pass over the partition rather than one seek per row.
+     *
+     * @return the latest version of each row which needs a check, at the same position as the row in
+     * {@code dataAndLocks} (null for rows which need no check), or {@code null} if there are too few rows to
+     * check for a batched read to be worthwhile.
+     */
+    private DataResult[] readLatestInBatch(Partition table,
+                                           Pair<KVPair, Lock>[] dataAndLocks,
+                                           ConstraintChecker constraintChecker,
+                                           BitSet bloomInMemoryCheck) throws IOException{
+        if(conflictBatchThreshold<=0) return null;
+
+        int[] positions=new int[dataAndLocks.length];
+        final byte[][] keys=new byte[dataAndLocks.length][];
+        int numToRead=0;
+        for(int i=0;i<dataAndLocks.length;i++){
+            Pair<KVPair, Lock> dataAndLock=dataAndLocks[i];
+            if(dataAndLock==null) continue;
+            KVPair kvPair=dataAndLock.getFirst();
+            if(constraintChecker==null && KVPair.Type.INSERT.equals(kvPair.getType())) continue;
+            if(bloomInMemoryCheck!=null && !bloomInMemoryCheck.get(i)) continue;
+            positions[numToRead++]=i;
+            keys[i]=kvPair.getRowKey();
+        }
+        if(numToRead<conflictBatchThreshold) return null;
+
+        Integer[] sorted=new Integer[numToRead];
+        for(int i=0;i<numToRead;i++){
+            sorted[i]=positions[i];
+        }
+        Arrays.sort(sorted,new Comparator<Integer>(){
+            @Override
+            public int compare(Integer o1,Integer o2){
+                return Bytes.BASE_COMPARATOR.compare(keys[o1],keys[o2]);
+            }
+        });
+
+        //the same row may be written more than once in a batch; it only needs to be read once
+        List<byte[]> sortedKeys=new ArrayList<>(numToRead);
+        int[] keyIndex=new int[numToRead];
+        byte[] previous=null;
+        for(int i=0;i<numToRead;i++){
+            byte[] key=keys[sorted[i]];
+            if(previous==null || !Bytes.equals(previous,key)){
+                sortedKeys.add(key);
+                previous=key;
+            }
+            keyIndex[i]=sortedKeys.size()-1;
+        }
+
+        DataResult[] results=table.batchGetLatest(sortedKeys);
+        DataResult[] latest=new DataResult[dataAndLocks.length];
+        for(int i=0;i<numToRead;i++){
+            latest[sorted[i]]=results[keyIndex[i]];
+        }
+        conflictDetectionStatus.rowsChecked(numToRead);
+        conflictDetectionStatus.batchRead(sortedKeys.size());
+        if(LOG.isTraceEnabled())
+            SpliceLogUtils.trace(LOG,"read %d rows in a single batch for conflict detection",sortedKeys.size());
+        return latest;
+    }
+
+    public ConflictDetectionStatus getConflictDetectionStatus(){
+        return conflictDetectionStatus;
+    }
+
     private boolean applyConstraint(ConstraintChecker constraintChecker,
                                     TxnFilter constraintStateFilter,
                                     int rowPosition,
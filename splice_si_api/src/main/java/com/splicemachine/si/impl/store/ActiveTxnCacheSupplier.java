@@ -83,6 +83,38 @@ public class ActiveTxnCacheSupplier implements TxnSupplier {
         return tentative != null ? tentative : delegate.getTransactionFromCache(txnId);
     }
 
+    @Override
+    public TxnView[] getTransactions(long[] txnIds, long activeAsOf) throws IOException {
+        TxnView[] txns = new TxnView[txnIds.length];
+        int misses = 0;
+        for (int i = 0; i < txnIds.length; i++) {
+            txns[i] = cache.get(txnIds[i]);
+            if (txns[i] == null) misses++;
+        }
+        if (misses == 0) return txns;
+
+        long[] toFetch = new long[misses];
+        int pos = 0;
+        for (int i = 0; i < txnIds.length; i++) {
+            if (txns[i] == null) toFetch[pos++] = txnIds[i];
+        }
+        TxnView[] fetched = delegate.getTransactions(toFetch, activeAsOf);
+        pos = 0;
+        for (int i = 0; i < txnIds.length; i++) {
+            if (txns[i] != null) continue;
+            TxnView txn = fetched[pos++];
+            if (txn != null && txn.getEffectiveState() == Txn.State.ACTIVE)
+                cache.put(txnIds[i], txn);
+            txns[i] = txn;
+        }
+        return txns;
+    }
+
+    @Override
+    public boolean isActiveAsOf(long txnId, long timestamp) {
+        return delegate.isActiveAsOf(txnId, timestamp);
+    }
+
     @Override
     public TaskId getTaskId(long txnId) throws IOException {
         return delegate.getTaskId(txnId);
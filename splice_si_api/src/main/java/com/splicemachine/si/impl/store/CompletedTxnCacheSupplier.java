@@ -28,6 +28,10 @@ import java.util.concurrent.atomic.AtomicLong;
  * TxnSupplier which caches transaction which have "Completed"--i.e. which have entered the COMMITTED or ROLLEDBACK
  * state.
  * <p/>
+ * Optionally, completed transactions which fall out of the main cache are also kept in a compact {@link TxnStatusCache},
+ * which also remembers which transactions were seen to be active as of a given timestamp. Entries from the status
+ * cache are only served through {@link #getTransactionFromCache(long)} and {@link #isActiveAsOf(long, long)}.
+ * <p/>
  * This class is thread-safe, and safe to be shared between many threads.
  *
  * @author Scott Fines
@@ -38,13 +42,22 @@ public class CompletedTxnCacheSupplier implements TxnSupplier{
     private final TxnSupplier delegate;
     private final AtomicLong hits=new AtomicLong();
     private final AtomicLong requests=new AtomicLong();
+    private final TxnStatusCache statusCache;
 
     public CompletedTxnCacheSupplier(TxnSupplier delegate,int maxSize,int concurrencyLevel){
+        this(delegate,maxSize,concurrencyLevel,0);
+    }
+
+    /**
+     * @param statusCacheSize the number of entries to keep in the compact status cache, or 0 to disable it
+     */
+    public CompletedTxnCacheSupplier(TxnSupplier delegate,int maxSize,int concurrencyLevel,int statusCacheSize){
         cache=new ConcurrentLinkedHashMap.Builder<Long, TxnView>()
                 .maximumWeightedCapacity(maxSize)
                 .concurrencyLevel(concurrencyLevel)
                 .build();
         this.delegate=delegate;
+        this.statusCache=statusCacheSize>0?new TxnStatusCache(statusCacheSize):null;
     }
 
     public int getMaxSize(){
@@ -78,25 +91,81 @@ public class CompletedTxnCacheSupplier implements TxnSupplier{
             case COMMITTED:
             case ROLLEDBACK:
                 cache.put(transaction.getTxnId(),transaction); // Cache for Future Use
+                if(statusCache!=null)
+                    statusCache.record(transaction,0L);
         }
         return transaction;
     }
 
+    @Override
+    @SuppressFBWarnings({"SF_SWITCH_NO_DEFAULT","SF_SWITCH_FALLTHROUGH"}) //intentional
+    public TxnView[] getTransactions(long[] txnIds,long activeAsOf) throws IOException{
+        TxnView[] txns=new TxnView[txnIds.length];
+        int misses=0;
+        for(int i=0;i<txnIds.length;i++){
+            long txnId=txnIds[i];
+            if(txnId==-1){
+                txns[i]=Txn.ROOT_TRANSACTION;
+                continue;
+            }
+            requests.incrementAndGet();
+            TxnView txn=cache.get(txnId);
+            if(txn!=null){
+                hits.incrementAndGet();
+                txns[i]=txn;
+            }else
+                misses++;
+        }
+        if(misses==0) return txns;
+
+        long[] toFetch=new long[misses];
+        int pos=0;
+        for(int i=0;i<txnIds.length;i++){
+            if(txns[i]==null) toFetch[pos++]=txnIds[i];
+        }
+        TxnView[] fetched=delegate.getTransactions(toFetch,activeAsOf);
+        pos=0;
+        for(int i=0;i<txnIds.length;i++){
+            if(txns[i]!=null) continue;
+            TxnView transaction=fetched[pos++];
+            txns[i]=transaction;
+            if(transaction==null) continue;
+            switch(transaction.getEffectiveState()){
+                case COMMITTED:
+                case ROLLEDBACK:
+                    cache.put(transaction.getTxnId(),transaction);
+                case ACTIVE:
+                    if(statusCache!=null)
+                        statusCache.record(transaction,activeAsOf);
+            }
+        }
+        return txns;
+    }
+
+    @Override
+    public boolean isActiveAsOf(long txnId,long timestamp){
+        return statusCache!=null && statusCache.isActiveAsOf(txnId,timestamp);
+    }
+
     @Override
     public boolean transactionCached(long txnId){
-        return cache.get(txnId)!=null;
+        return cache.get(txnId)!=null || (statusCache!=null && statusCache.getCompleted(txnId)!=null);
     }
 
     @Override
     public void cache(TxnView toCache){
         if(toCache.getState()==Txn.State.ACTIVE) return; //cannot cache incomplete transactions
         cache.put(toCache.getTxnId(),toCache);
+        if(statusCache!=null)
+            statusCache.record(toCache,0L);
     }
 
     @Override
     public TxnView getTransactionFromCache(long txnId){
         requests.incrementAndGet();
         TxnView txn=cache.get(txnId);
+        if(txn==null && statusCache!=null)
+            txn=statusCache.getCompleted(txnId);
         if(txn!=null)
             hits.incrementAndGet();
         return txn;
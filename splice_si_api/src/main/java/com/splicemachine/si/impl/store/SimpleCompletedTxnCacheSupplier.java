@@ -73,6 +73,20 @@ public class SimpleCompletedTxnCacheSupplier implements TxnSupplier{
         return cache.getIfPresent(txnId);
     }
 
+    @Override
+    public TxnView[] getTransactions(long[] txnIds,long activeAsOf) throws IOException {
+        TxnView[] txns = new TxnView[txnIds.length];
+        for(int i=0;i<txnIds.length;i++){
+            txns[i] = getTransaction(txnIds[i]);
+        }
+        return txns;
+    }
+
+    @Override
+    public boolean isActiveAsOf(long txnId,long timestamp) {
+        return false;
+    }
+
     @Override
     public TaskId getTaskId(long txnId) throws IOException {
         return delegate.getTaskId(txnId);
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.si.impl.store;
+
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.txn.CommittedTxn;
+import com.splicemachine.si.impl.txn.RolledBackTxn;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A compact, off-heap cache of transaction status, keyed by transaction id.
+ * <p/>
+ * Each entry takes 16 bytes outside of the java heap, and records one of
+ * <ul>
+ *     <li>the transaction committed, and its effective commit timestamp</li>
+ *     <li>the transaction rolled back</li>
+ *     <li>the transaction itself was still active as of a given timestamp</li>
+ * </ul>
+ * which is enough to decide visibility for most readers without holding on to a full {@link TxnView}.
+ * <p/>
+ * The cache is set-associative and lossy: every transaction id maps to a small set of slots, and when the
+ * set is full an existing entry is overwritten. Entries are never stale, since a completed transaction never
+ * changes state, and a transaction which was active as of {@code T} was active as of every timestamp before {@code T}.
+ * <p/>
+ * This class is thread-safe.
+ */
+public class TxnStatusCache{
+    private static final int WAYS = 4;
+    private static final int SLOT_SIZE = 2*8;
+    private static final int MAX_SEGMENTS = 64;
+
+    private static final long COMMITTED = 1L;
+    private static final long ROLLED_BACK = 2L;
+    private static final long ACTIVE = 3L;
+    private static final long STATE_MASK = 3L;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final int setMask;
+    private final int capacity;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+
+    /**
+     * @param maxEntries the maximum number of entries to hold. Rounded up to a power of 2.
+     */
+    public TxnStatusCache(int maxEntries){
+        int entries = Math.max(WAYS,Integer.highestOneBit(Math.max(1,maxEntries-1))<<1);
+        int numSegments = Math.min(MAX_SEGMENTS,entries/WAYS);
+        int setsPerSegment = entries/WAYS/numSegments;
+        this.segments = new Segment[numSegments];
+        for(int i=0;i<numSegments;i++){
+            segments[i] = new Segment(setsPerSegment);
+        }
+        this.segmentMask = numSegments-1;
+        this.setMask = setsPerSegment-1;
+        this.capacity = entries;
+    }
+
+    /**
+     * @param txnId the transaction id
+     * @return a view of the transaction if it is known to have completed, or {@code null} otherwise. The view
+     * carries only the state and the effective commit timestamp of the transaction.
+     */
+    public TxnView getCompleted(long txnId){
+        requests.incrementAndGet();
+        long entry = get(txnId);
+        switch((int)(entry & STATE_MASK)){
+            case (int)COMMITTED:
+                hits.incrementAndGet();
+                return new CommittedTxn(txnId,entry>>>2);
+            case (int)ROLLED_BACK:
+                hits.incrementAndGet();
+                return new RolledBackTxn(txnId);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @param txnId the transaction id
+     * @param timestamp the timestamp of interest
+     * @return true if the transaction is known to have still been active as of {@code timestamp}. A return
+     * value of {@code false} means that nothing is known about the transaction, not that it had completed.
+     */
+    public boolean isActiveAsOf(long txnId,long timestamp){
+        requests.incrementAndGet();
+        long entry = get(txnId);
+        if((entry & STATE_MASK)==ACTIVE && (entry>>>2)>=timestamp){
+            hits.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records the state of {@code txn}.
+     *
+     * @param txn the transaction, as read from the transaction table
+     * @param activeAsOf a timestamp which was issued before {@code txn} was read. Only used if the transaction
+     *                   itself is still active.
+     */
+    public void record(TxnView txn,long activeAsOf){
+        long txnId = txn.getTxnId();
+        if(txnId<=0) return;
+        Txn.State state = txn.getEffectiveState();
+        switch(state){
+            case COMMITTED:
+                long commitTs = txn.getEffectiveCommitTimestamp();
+                if(commitTs<=0) return;
+                put(txnId,commitTs<<2 | COMMITTED,false);
+                break;
+            case ROLLEDBACK:
+                put(txnId,ROLLED_BACK,false);
+                break;
+            case ACTIVE:
+                /*
+                 * A child which committed under a still-active parent is effectively active, but its writes are
+                 * visible to other descendants of that parent, so it must not be remembered as active
+                 */
+                if(activeAsOf<=0 || txn.getState()!=Txn.State.ACTIVE) return;
+                put(txnId,activeAsOf<<2 | ACTIVE,true);
+                break;
+            default:
+        }
+    }
+
+    public int getCapacity(){
+        return capacity;
+    }
+
+    public long getTotalHits(){
+        return hits.get();
+    }
+
+    public long getTotalRequests(){
+        return requests.get();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    private long get(long txnId){
+        if(txnId<=0) return 0L;
+        long hash = hash(txnId);
+        return segments[(int)hash & segmentMask].get(txnId,(int)(hash>>>32) & setMask);
+    }
+
+    private void put(long txnId,long value,boolean active){
+        long hash = hash(txnId);
+        segments[(int)hash & segmentMask].put(txnId,(int)(hash>>>32) & setMask,value,active);
+    }
+
+    private static long hash(long txnId){
+        //transaction ids are spaced out evenly, so mix all of the bits before picking a set
+        long h = txnId;
+        h ^= h>>>33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h>>>33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h>>>33;
+        return h;
+    }
+
+    private static class Segment{
+        private final ByteBuffer slots;
+        private final StampedLock lock = new StampedLock();
+        private int victim;
+
+        Segment(int sets){
+            this.slots = ByteBuffer.allocateDirect(sets*WAYS*SLOT_SIZE);
+        }
+
+        long get(long txnId,int set){
+            int base = set*WAYS*SLOT_SIZE;
+            long stamp = lock.tryOptimisticRead();
+            long value = find(txnId,base);
+            if(!lock.validate(stamp)){
+                stamp = lock.readLock();
+                try{
+                    value = find(txnId,base);
+                }finally{
+                    lock.unlockRead(stamp);
+                }
+            }
+            return value;
+        }
+
+        void put(long txnId,int set,long value,boolean active){
+            int base = set*WAYS*SLOT_SIZE;
+            long stamp = lock.writeLock();
+            try{
+                int empty = -1;
+                for(int i=0;i<WAYS;i++){
+                    int pos = base+i*SLOT_SIZE;
+                    long key = slots.getLong(pos);
+                    if(key==txnId){
+                        long current = slots.getLong(pos+8);
+                        if(active){
+                            //never replace a completed state, and only ever move the active timestamp forward
+                            if((current & STATE_MASK)!=ACTIVE || current>=value) return;
+                        }
+                        slots.putLong(pos+8,value);
+                        return;
+                    }else if(key==0L && empty<0)
+                        empty = pos;
+                }
+                if(empty<0){
+                    empty = base+(victim & (WAYS-1))*SLOT_SIZE;
+                    victim++;
+                }
+                slots.putLong(empty+8,value);
+                slots.putLong(empty,txnId);
+            }finally{
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private long find(long txnId,int base){
+            for(int i=0;i<WAYS;i++){
+                int pos = base+i*SLOT_SIZE;
+                if(slots.getLong(pos)==txnId)
+                    return slots.getLong(pos+8);
+            }
+            return 0L;
+        }
+    }
+}
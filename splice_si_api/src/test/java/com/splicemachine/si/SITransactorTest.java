@@ -32,6 +32,7 @@ import com.splicemachine.si.testenv.*;
 import com.splicemachine.storage.DataPut;
 import com.splicemachine.storage.DataResult;
 import com.splicemachine.storage.MutationStatus;
+import com.splicemachine.storage.Partition;
 import com.splicemachine.utils.ByteSlice;
 import org.hamcrest.core.IsInstanceOf;
 import org.junit.*;
@@ -2285,4 +2286,39 @@ public class SITransactorTest {
         control.chainTransaction(t3, t3.getIsolationLevel(), true, DESTINATION_TABLE, t2);
         fail();
     }
+
+    @Test
+    public void batchedConflictDetection() throws IOException {
+        Txn t1 = control.beginTransaction(DESTINATION_TABLE);
+        Txn t2 = control.beginTransaction(DESTINATION_TABLE);
+        try (Partition table = transactorSetup.getPersonTable(testEnv)) {
+            // large enough to resolve the latest versions in a single batched read
+            MutationStatus[] statuses = upsertBatch(table, t1, 0, 20);
+            for (int i = 0; i < statuses.length; i++) {
+                Assert.assertTrue("Row " + i + " should have been written", statuses[i].isSuccess());
+            }
+
+            // overlaps the active sibling's rows 10-19, written in descending key order
+            statuses = upsertBatch(table, t2, 29, 10);
+            for (int i = 0; i < statuses.length; i++) {
+                int row = 29 - i;
+                if (row < 20)
+                    Assert.assertTrue("Row " + row + " should have conflicted", statuses[i].isFailed());
+                else
+                    Assert.assertTrue("Row " + row + " should have been written", statuses[i].isSuccess());
+            }
+        }
+        t1.rollback();
+        t2.rollback();
+    }
+
+    private MutationStatus[] upsertBatch(Partition table, Txn txn, int from, int to) throws IOException {
+        List<KVPair> rows = Lists.newArrayList();
+        int step = from < to ? 1 : -1;
+        for (int i = from; i != to; i += step) {
+            rows.add(new KVPair(Bytes.toBytes("batchedConflict" + (100 + i)), Bytes.toBytes(i), KVPair.Type.UPSERT));
+        }
+        return transactorSetup.transactor.processKvBatch(table, null, SIConstants.DEFAULT_FAMILY_BYTES,
+                SIConstants.PACKED_COLUMN_BYTES, rows, txn, null);
+    }
 }
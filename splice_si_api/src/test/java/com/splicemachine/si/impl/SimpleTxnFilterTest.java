@@ -131,6 +131,28 @@ public class SimpleTxnFilterTest{
         Assert.assertEquals("Incorrect return code for data cell!",DataFilter.ReturnCode.SKIP,returnCode);
     }
 
+    @Test
+    public void testCanSeeCommittedSiblingOfActiveParent() throws Exception{
+        /*
+         * A child which committed under a still-active parent is visible to a later child of the same
+         * parent, even after the status cache has seen the committed child as (effectively) active
+         */
+        TxnView parent=getMockActiveTxn(0x100l,null);
+        TxnView committedChild=new InheritingTxnView(parent,0x200l,0x200l,Txn.IsolationLevel.SNAPSHOT_ISOLATION,
+                false,false,true,true,0x300l,-1l,Txn.State.COMMITTED);
+        TxnView sibling=new InheritingTxnView(parent,0x400l,0x400l,Txn.IsolationLevel.SNAPSHOT_ISOLATION,
+                false,false,true,true,-1l,-1l,Txn.State.ACTIVE);
+
+        TxnSupplier delegate=mock(TxnSupplier.class);
+        when(delegate.getTransactions(any(long[].class),anyLong())).thenReturn(new TxnView[]{committedChild});
+        when(delegate.getTransaction(eq(0x200l),anyBoolean())).thenReturn(committedChild);
+        TxnSupplier store=new CompletedTxnCacheSupplier(delegate,1024,4,1024);
+        store.getTransactions(new long[]{0x200l},0x500l);
+
+        SimpleTxnFilter filter=new SimpleTxnFilter(null,sibling,NoOpReadResolver.INSTANCE,store);
+        DataFilter.ReturnCode returnCode=filter.filterCell(getUserCell(committedChild));
+        Assert.assertEquals("Committed sibling was not visible!",DataFilter.ReturnCode.INCLUDE,returnCode);
+    }
 
 	/*Tests that Read-Resolution doesn't happen with active transactions*/
 
@@ -103,6 +103,20 @@ public class TestingTxnStore implements TxnStore{
         return null;
     }
 
+    @Override
+    public TxnView[] getTransactions(long[] txnIds,long activeAsOf) throws IOException{
+        TxnView[] txns=new TxnView[txnIds.length];
+        for(int i=0;i<txnIds.length;i++){
+            txns[i]=getTransaction(txnIds[i]);
+        }
+        return txns;
+    }
+
+    @Override
+    public boolean isActiveAsOf(long txnId,long timestamp){
+        return false;
+    }
+
     @Override
     public void recordNewTransaction(Txn txn) throws IOException{
         TxnHolder txn1=txnMap.get(txn.getTxnId());
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.si.impl.store;
+
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.txn.CommittedTxn;
+import com.splicemachine.si.impl.txn.InheritingTxnView;
+import com.splicemachine.si.impl.txn.RolledBackTxn;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(ArchitectureIndependent.class)
+public class TxnStatusCacheTest{
+
+    @Test
+    public void testCachesCommittedTransactions() throws Exception{
+        TxnStatusCache cache=new TxnStatusCache(1024);
+        Assert.assertNull(cache.getCompleted(0x100));
+
+        cache.record(new CommittedTxn(0x100,0x300),0L);
+        TxnView txn=cache.getCompleted(0x100);
+        Assert.assertNotNull("Committed transaction was not cached",txn);
+        Assert.assertEquals(Txn.State.COMMITTED,txn.getEffectiveState());
+        Assert.assertEquals(0x300,txn.getEffectiveCommitTimestamp());
+        Assert.assertFalse(cache.isActiveAsOf(0x100,0x200));
+    }
+
+    @Test
+    public void testCachesRolledBackTransactions() throws Exception{
+        TxnStatusCache cache=new TxnStatusCache(1024);
+        cache.record(new RolledBackTxn(0x200),0L);
+        TxnView txn=cache.getCompleted(0x200);
+        Assert.assertNotNull("Rolled back transaction was not cached",txn);
+        Assert.assertEquals(Txn.State.ROLLEDBACK,txn.getEffectiveState());
+    }
+
+    @Test
+    public void testActiveTransactionsOnlyMoveForward() throws Exception{
+        TxnStatusCache cache=new TxnStatusCache(1024);
+        cache.record(active(0x100),0x500);
+        Assert.assertNull("Active transaction should not be reported as completed",cache.getCompleted(0x100));
+        Assert.assertTrue(cache.isActiveAsOf(0x100,0x400));
+        Assert.assertTrue(cache.isActiveAsOf(0x100,0x500));
+        Assert.assertFalse(cache.isActiveAsOf(0x100,0x600));
+
+        cache.record(active(0x100),0x200);
+        Assert.assertTrue("An older observation replaced a newer one",cache.isActiveAsOf(0x100,0x500));
+
+        cache.record(active(0x100),0x700);
+        Assert.assertTrue(cache.isActiveAsOf(0x100,0x600));
+    }
+
+    @Test
+    public void testCompletionReplacesActiveButNotViceVersa() throws Exception{
+        TxnStatusCache cache=new TxnStatusCache(1024);
+        cache.record(active(0x100),0x500);
+        cache.record(new CommittedTxn(0x100,0x600),0L);
+        Assert.assertFalse(cache.isActiveAsOf(0x100,0x500));
+        Assert.assertNotNull(cache.getCompleted(0x100));
+
+        cache.record(active(0x100),0x800);
+        Assert.assertFalse("A stale active view replaced a completed one",cache.isActiveAsOf(0x100,0x700));
+        Assert.assertEquals(0x600,cache.getCompleted(0x100).getEffectiveCommitTimestamp());
+    }
+
+    @Test
+    public void testCommittedChildOfActiveParentIsNotActive() throws Exception{
+        TxnStatusCache cache=new TxnStatusCache(1024);
+        TxnView parent=active(0x100);
+        TxnView child=new InheritingTxnView(parent,0x200,0x200,Txn.IsolationLevel.SNAPSHOT_ISOLATION,
+                false,false,false,false,0x300,-1L,Txn.State.COMMITTED);
+        Assert.assertEquals(Txn.State.ACTIVE,child.getEffectiveState());
+
+        cache.record(child,0x500);
+        Assert.assertFalse("A committed child was cached as active",cache.isActiveAsOf(0x200,0x400));
+        Assert.assertNull("A child of an active parent was cached as completed",cache.getCompleted(0x200));
+    }
+
+    @Test
+    public void testEvictionNeverReturnsWrongEntries() throws Exception{
+        TxnStatusCache cache=new TxnStatusCache(8);
+        Assert.assertEquals(8,cache.getCapacity());
+        for(long i=1;i<=1000;i++){
+            cache.record(new CommittedTxn(i<<8,(i<<8)+1),0L);
+        }
+        int found=0;
+        for(long i=1;i<=1000;i++){
+            TxnView txn=cache.getCompleted(i<<8);
+            if(txn==null) continue;
+            found++;
+            Assert.assertEquals((i<<8)+1,txn.getEffectiveCommitTimestamp());
+        }
+        Assert.assertTrue("Cache holds more entries than its capacity",found<=8);
+        Assert.assertTrue("Cache holds nothing",found>0);
+        TxnView last=cache.getCompleted(1000<<8);
+        Assert.assertNotNull("Most recent entry was evicted",last);
+    }
+
+    private static TxnView active(long txnId){
+        return new InheritingTxnView(Txn.ROOT_TRANSACTION,txnId,txnId,Txn.IsolationLevel.SNAPSHOT_ISOLATION,
+                false,false,false,false,-1L,-1L,Txn.State.ACTIVE);
+    }
+}
@@ -29,5 +29,21 @@ public interface TimestampClientStatistics{
 	long getNumberTimestampRequests();
 	
  	double getAvgTimestampRequestDuration();
+
+	/**
+	 * Returns the average time, in milliseconds, a request waited for the
+	 * round trip it shares with other concurrent requests to be sent.
+	 *
+	 * @return average queueing delay of a timestamp request
+	 */
+ 	double getAvgTimestampRequestQueueingDelay();
+
+	/**
+	 * Returns the average number of timestamp requests served by a single
+	 * round trip to the timestamp server.
+	 *
+	 * @return average number of requests per round trip
+	 */
+ 	double getAvgTimestampBatchSize();
 	
 }
@@ -16,6 +16,8 @@ package com.splicemachine.timestamp.impl;
 
 import java.lang.management.ManagementFactory;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -35,7 +37,6 @@ import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
 import org.jboss.netty.handler.codec.frame.FixedLengthFrameDecoder;
 import org.spark_project.guava.util.concurrent.ThreadFactoryBuilder;
 import com.splicemachine.concurrent.CountDownLatches;
-import com.splicemachine.timestamp.api.Callback;
 import com.splicemachine.timestamp.api.TimestampClientStatistics;
 import com.splicemachine.timestamp.api.TimestampHostProvider;
 import com.splicemachine.timestamp.api.TimestampIOException;
@@ -48,6 +49,14 @@ import org.apache.log4j.Logger;
  * For the caller, the invocation of {@link #getNextTimestamp()}
  * is synchronous.
  * <p>
+ * Callers which arrive while requests are outstanding are coalesced into a single
+ * request for a range of timestamps. A caller only ever joins a request which has
+ * not been sent yet, so it still gets a timestamp allocated after its call began.
+ * <p>
+ * Older servers only hand out one timestamp per request, so the client asks on every
+ * new connection whether the server takes requests for ranges (see {@link TimestampRequestDecoder}).
+ * Until the server has said it does, the callers of a batch are sent as one request each.
+ * <p>
  * This class should generally not be constructed directly.
  *
  * @author Walt Koetke
@@ -69,15 +78,36 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
     }
 
     /**
-     * A map representing all currently active callers to this TimestampClient
-     * waiting for their response.
+     * A map representing all requests to the server currently in flight, each
+     * carrying the batch of callers waiting for its response.
+     */
+    private ConcurrentMap<Short, Batch> clientCallbacks = null;
+
+    /**
+     * Upper bound on the number of callers sharing one request.
+     */
+    private static final int MAX_BATCH_SIZE = 1024;
+
+    /**
+     * Maximum number of requests outstanding on the connection at any time.
+     */
+    private final int maxInFlight;
+
+    /**
+     * Callers waiting for the next request to be sent, guarded by {@code batchLock}.
      */
-    private ConcurrentMap<Short, Callback> clientCallbacks = null;
+    private final Object batchLock = new Object();
+    private Batch pendingBatch;
 
     private final AtomicReference<State> state = new AtomicReference<>(State.DISCONNECTED);
 
     private ClientBootstrap bootstrap;
     private volatile Channel channel;
+
+    /**
+     * Whether the server on the current connection takes requests for ranges of timestamps.
+     */
+    private volatile boolean rangesAccepted;
     private NioClientSocketChannelFactory factory;
 
     /**
@@ -97,11 +127,18 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
     // for solid definitions of each metric.
     private AtomicLong numRequests = new AtomicLong(0);
     private AtomicLong totalRequestDuration = new AtomicLong(0);
+    private AtomicLong totalQueueingDelay = new AtomicLong(0);
+    private AtomicLong numBatches = new AtomicLong(0);
     private TimestampHostProvider timestampHostProvider;
 
 
     public TimestampClient(int timeoutMillis,TimestampHostProvider timestampHostProvider) {
+        this(timeoutMillis, timestampHostProvider, 2);
+    }
+
+    public TimestampClient(int timeoutMillis,TimestampHostProvider timestampHostProvider, int maxInFlight) {
         this.timeoutMillis = timeoutMillis;
+        this.maxInFlight = Math.max(1, maxInFlight);
         this.timestampHostProvider = timestampHostProvider;
         clientCallbacks = new ConcurrentHashMap<>();
         
@@ -204,6 +241,12 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
             futureConnect.addListener(new ChannelFutureListener() {
                                           public void operationComplete(ChannelFuture cf) throws Exception {
                                               if (cf.isSuccess()) {
+                                                  // Ask first thing whether the server takes requests for ranges
+                                                  rangesAccepted = false;
+                                                  ChannelBuffer hello = ChannelBuffers.buffer(2 * TimestampServer.FIXED_MSG_RECEIVED_LENGTH);
+                                                  hello.writeShort(TimestampServer.HELLO_CALLER_ID);
+                                                  hello.writeShort(TimestampServer.HELLO_CALLER_ID);
+                                                  cf.getChannel().write(hello);
                                                   channel = cf.getChannel();
                                                   latchConnect.countDown();
                                               } else {
@@ -235,68 +278,54 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
 
         connectIfNeeded();
 
-        short clientCallId = (short) clientCallCounter.getAndIncrement();
-        final ClientCallback callback = new ClientCallback(clientCallId);
-        SpliceLogUtils.debug(LOG, "Starting new client call with id %s", clientCallId);
-
-        // Add this caller (id and callback) to the map of current clients.
-        // If an entry was already present for this caller id, that is a bug,
-        // so throw an exception.
-        if (clientCallbacks.putIfAbsent(clientCallId, callback) != null) {
-            String msg = String.format("Found existing client callback with caller id %s, so unable to handle new call.", clientCallId);
-            LOG.error(msg + " Callback map size = " + clientCallbacks.size());
-            throw new TimestampIOException(msg);
-        }
-
-        try {
-            ChannelBuffer buffer = ChannelBuffers.buffer(2);
-            buffer.writeShort(clientCallId);
-            SpliceLogUtils.trace(LOG, "Writing request message to server for client: %s", callback);
-            if(channel == null) {
-                throw new TimestampIOException("Unable to connect to TimestampServer");
+        // Join the batch of callers waiting for the next request. If fewer than maxInFlight
+        // requests are outstanding the batch goes out right away, otherwise it is sent as soon
+        // as a response frees up a slot, together with everybody who has arrived in the meantime.
+        long enqueueTime = System.nanoTime();
+        Batch batch;
+        ClientCallback callback;
+        Batch toSend = null;
+        synchronized (batchLock) {
+            if (pendingBatch == null) {
+                // Caller ids stay non negative, so that they can be negated to mark a range
+                pendingBatch = new Batch((short) Math.floorMod(clientCallCounter.getAndIncrement(), Short.MAX_VALUE));
+            }
+            batch = pendingBatch;
+            callback = batch.add();
+            if (clientCallbacks.size() < maxInFlight || batch.size() >= MAX_BATCH_SIZE) {
+                toSend = takePendingBatch();
             }
-            ChannelFuture futureWrite = channel.write(buffer);
-            futureWrite.addListener(new ChannelFutureListener() {
-                @Override
-                public void operationComplete(ChannelFuture future) throws Exception {
-                    if (!future.isSuccess()) {
-                        clientCallbacks.remove(clientCallId);
-                        doClientErrorThrow(LOG, "Error writing message from timestamp client to server", future.getCause());
-                    } else {
-                        SpliceLogUtils.trace(LOG, "Request sent. Waiting for response for client: %s", callback);
-                    }
-                }
-            });
-        } catch (Exception e) { // Correct to catch all Exceptions in this case so we can remove client call
-            clientCallbacks.remove(clientCallId);
-            callback.error(e);
-            doClientErrorThrow(LOG, "Exception writing message to timestamp server for client: %s", e, callback);
         }
-
-        // If we get here, request was successfully sent without exception.
-        // However, we might not have received response yet, so we need to
-        // wait for that now.
+        SpliceLogUtils.debug(LOG, "Starting new client call: %s", callback);
+        if (toSend != null) {
+            send(toSend);
+        }
 
         try {
             boolean success = callback.await(timeoutMillis);
             if (!success) {
                 // We timed out, close the channel so that the next request recreates the connection
-                channel.close();
-                clientCallbacks.remove(clientCallId);
-                
+                Channel c = channel;
+                if (c != null) {
+                    c.close();
+                }
+                failBatch(batch, new TimestampIOException("Timed out waiting for response from TimestampServer"));
+
                 doClientErrorThrow(LOG, "Client timed out after %s ms waiting for new timestamp: %s", null, timeoutMillis, callback);
             }
         } catch (InterruptedException e) {
-            clientCallbacks.remove(clientCallId);
             doClientErrorThrow(LOG, "Interrupted waiting for timestamp client: %s", e, callback);
         }
 
+        if (callback.getException() != null) {
+            doClientErrorThrow(LOG, "Exception requesting timestamp for client: %s", callback.getException(), callback);
+        }
+
         // If we get here, it should mean the client received the response with the timestamp,
         // which we can fetch now from the callback and send it back to the caller.
 
         long timestamp = callback.getNewTimestamp();
         if (timestamp < 0) {
-            clientCallbacks.remove(clientCallId); // defensive call, this should have already been removed
             doClientErrorThrow(LOG, "Invalid timestamp found for client: %s", null, callback);
         }
 
@@ -305,10 +334,107 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         // Since request was successful, update JMX metrics
         numRequests.incrementAndGet();
         totalRequestDuration.addAndGet(System.currentTimeMillis() - requestStartTime);
+        totalQueueingDelay.addAndGet(batch.sentTime - enqueueTime);
 
         return timestamp;
     }
 
+    /**
+     * Takes the pending batch and registers it as in flight. The caller must hold {@code batchLock}.
+     *
+     * @return the batch to send, or {@code null} if it could not be registered, in which case its
+     * callers have been notified of the error
+     */
+    private Batch takePendingBatch() {
+        Batch batch = pendingBatch;
+        pendingBatch = null;
+
+        // If an entry was already present for this batch id, that is a bug,
+        // so fail the batch.
+        if (clientCallbacks.putIfAbsent(batch.id, batch) != null) {
+            String msg = String.format("Found existing client callback with caller id %s, so unable to handle new call.", batch.id);
+            LOG.error(msg + " Callback map size = " + clientCallbacks.size());
+            batch.error(new TimestampIOException(msg));
+            return null;
+        }
+        numBatches.incrementAndGet();
+        return batch;
+    }
+
+    /**
+     * Sends the pending batch, if there is one and a request slot is free.
+     */
+    private void sendPendingBatch() {
+        Batch toSend = null;
+        synchronized (batchLock) {
+            if (pendingBatch != null && clientCallbacks.size() < maxInFlight) {
+                toSend = takePendingBatch();
+            }
+        }
+        if (toSend != null) {
+            send(toSend);
+        }
+    }
+
+    private void send(final Batch batch) {
+        batch.sentTime = System.nanoTime();
+        try {
+            Channel c = channel;
+            if (c == null) {
+                throw new TimestampIOException("Unable to connect to TimestampServer");
+            }
+            ChannelBuffer buffer;
+            if (batch.size() == 1) {
+                buffer = ChannelBuffers.buffer(TimestampServer.FIXED_MSG_RECEIVED_LENGTH);
+                buffer.writeShort(batch.id);
+            } else if (rangesAccepted) {
+                batch.range = true;
+                buffer = ChannelBuffers.buffer(TimestampServer.BATCH_MSG_RECEIVED_LENGTH);
+                buffer.writeShort(rangeCallerId(batch.id));
+                buffer.writeShort(batch.size());
+            } else {
+                // One request per caller, all answered under the id of the batch
+                buffer = ChannelBuffers.buffer(batch.size() * TimestampServer.FIXED_MSG_RECEIVED_LENGTH);
+                for (int i = 0; i < batch.size(); i++) {
+                    buffer.writeShort(batch.id);
+                }
+            }
+            SpliceLogUtils.trace(LOG, "Writing request message to server for %s callers with id %s", batch.size(), batch.id);
+            ChannelFuture futureWrite = c.write(buffer);
+            futureWrite.addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) throws Exception {
+                    if (!future.isSuccess()) {
+                        LOG.error("Error writing message from timestamp client to server", future.getCause());
+                        failBatch(batch, new TimestampIOException("Error writing message from timestamp client to server", future.getCause()));
+                    } else {
+                        SpliceLogUtils.trace(LOG, "Request sent. Waiting for response for caller id: %s", batch.id);
+                    }
+                }
+            });
+        } catch (Exception e) { // Correct to catch all Exceptions in this case so we can remove client call
+            LOG.error("Exception writing message to timestamp server", e);
+            failBatch(batch, e);
+        }
+    }
+
+    /**
+     * Maps the caller id of a batch to the one marking its request for a range, and back.
+     */
+    private static short rangeCallerId(short callerId) {
+        return (short) (-callerId - 1);
+    }
+
+    /**
+     * Notifies the callers of an in flight batch that it failed, and frees its request slot.
+     */
+    private void failBatch(Batch batch, Exception e) {
+        if (clientCallbacks.remove(batch.id, batch)) {
+            batch.error(e);
+            sendPendingBatch();
+        }
+    }
+
     @Override
     public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
         ChannelBuffer buf = (ChannelBuffer) e.getMessage();
@@ -319,19 +445,37 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         ensureReadableBytes(buf, 8);
 
         long timestamp = buf.readLong();
-        assert (timestamp > 0);
         ensureReadableBytes(buf, 0);
 
+        if (clientCallerId == TimestampServer.HELLO_CALLER_ID) {
+            // Only the answer to the second hello is 0, and only from servers which take ranges
+            if (timestamp == 0) {
+                SpliceLogUtils.info(LOG, "TimestampServer takes requests for ranges of timestamps");
+                rangesAccepted = true;
+            }
+            super.messageReceived(ctx, e);
+            return;
+        }
+        assert (timestamp > 0);
+        if (clientCallerId < 0) {
+            clientCallerId = rangeCallerId(clientCallerId);
+        }
+
         SpliceLogUtils.debug(LOG, "Response from server: clientCallerId = %s, timestamp = %s", clientCallerId, timestamp);
-        Callback cb = clientCallbacks.remove(clientCallerId);
-        if (cb == null) {
+        Batch batch = clientCallbacks.get(clientCallerId);
+        if (batch == null) {
             doClientErrorThrow(LOG, "Client callback with id %s not found, so unable to deliver timestamp %s", null, clientCallerId, timestamp);
         }
 
-        // This releases the latch the original client thread is waiting for
-        // (to provide the synchronous behavior for that caller) and also
-        // provides the timestamp.
-        cb.complete(timestamp);
+        // This releases the latches the original client threads are waiting for
+        // (to provide the synchronous behavior for those callers) and also
+        // provides their timestamps.
+        if (batch.complete(timestamp)) {
+            clientCallbacks.remove(clientCallerId, batch);
+
+            // A request slot just freed up, so get the callers which queued up meanwhile going
+            sendPendingBatch();
+        }
 
         super.messageReceived(ctx, e);
     }
@@ -341,6 +485,7 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         SpliceLogUtils.info(LOG, "Successfully connected to server");
         channel = e.getChannel();
         state.set(State.CONNECTED);
+        sendPendingBatch();
         super.channelConnected(ctx, e);
     }
 
@@ -352,6 +497,7 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
             State s = state.get();
             if(s==State.SHUTDOWN) return; //ignore shut down errors
             channel=null;
+            rangesAccepted=false;
             shouldContinue = !state.compareAndSet(s,State.DISCONNECTED);
         }while(shouldContinue);
         connectIfNeeded();
@@ -385,6 +531,20 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         return a / b;
     }
 
+    @Override
+    public double getAvgTimestampRequestQueueingDelay() {
+        double a = (double) totalQueueingDelay.get() / TimeUnit.MILLISECONDS.toNanos(1);
+        double b = (double) numRequests.get();
+        return a / b;
+    }
+
+    @Override
+    public double getAvgTimestampBatchSize() {
+        double a = (double) numRequests.get();
+        double b = (double) numBatches.get();
+        return a / b;
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
         if(state.get() != State.SHUTDOWN) {
@@ -392,6 +552,55 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         }
     }
 
+    /**
+     * Callers sharing one request to the server. The server allocates them a contiguous
+     * range of timestamps, which they are handed in the order they joined the batch.
+     * If the server does not take ranges, each caller is sent as a request of its own
+     * and handed the timestamps in the order the responses arrive.
+     */
+    private static final class Batch {
+        private final short id;
+        private final List<ClientCallback> callbacks = new ArrayList<>();
+        private volatile long sentTime;
+        private volatile boolean range;
+        private int completed;
+
+        Batch(short id) {
+            this.id = id;
+        }
+
+        ClientCallback add() {
+            ClientCallback callback = new ClientCallback(id);
+            callbacks.add(callback);
+            return callback;
+        }
+
+        short size() {
+            return (short) callbacks.size();
+        }
+
+        /**
+         * @return whether every caller has its timestamp now
+         */
+        synchronized boolean complete(long timestamp) {
+            if (range) {
+                for (int i = 0; i < callbacks.size(); i++) {
+                    callbacks.get(i).complete(timestamp + i * TimestampOracle.TIMESTAMP_INCREMENT);
+                }
+                completed = callbacks.size();
+            } else if (completed < callbacks.size()) {
+                callbacks.get(completed++).complete(timestamp);
+            }
+            return completed == callbacks.size();
+        }
+
+        synchronized void error(Exception e) {
+            for (int i = completed; i < callbacks.size(); i++) {
+                callbacks.get(i).error(e);
+            }
+        }
+    }
+
     public static void doClientErrorThrow(Logger logger, String message, Throwable t, Object... args) throws TimestampIOException {
         if (message == null) message = "";
         message = String.format(message, args);
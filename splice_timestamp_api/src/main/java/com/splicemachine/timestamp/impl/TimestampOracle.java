@@ -29,7 +29,7 @@ import javax.management.NotCompliantMBeanException;
 import javax.management.ObjectName;
 
 public class TimestampOracle implements TimestampOracleStatistics{
-	private static final long TIMESTAMP_INCREMENT = 0x100l;
+	static final long TIMESTAMP_INCREMENT = 0x100l;
 
     private static final Logger LOG = Logger.getLogger(TimestampOracle.class);
 
@@ -88,13 +88,28 @@ public class TimestampOracle implements TimestampOracleStatistics{
     }
 
 	public long getNextTimestamp() throws TimestampIOException {
-		long nextTS = _timestampCounter.addAndGet(TIMESTAMP_INCREMENT);
+		return getNextTimestamps(1);
+	}
+
+	/**
+	 * Allocates a contiguous range of timestamps. The range is claimed with a single
+	 * update of the counter; only when it extends past the reserved block do we
+	 * synchronize, to reserve as many blocks as needed to cover it.
+	 *
+	 * @param count the number of timestamps to allocate
+	 * @return the first timestamp of the range. The others follow it at intervals of
+	 * {@link #TIMESTAMP_INCREMENT}.
+	 */
+	public long getNextTimestamps(int count) throws TimestampIOException {
+		assert count > 0 : "Must allocate at least one timestamp";
+		long lastTS = _timestampCounter.addAndGet(count * TIMESTAMP_INCREMENT);
 		long maxTS = _maxReservedTimestamp; // avoid the double volatile read
-		if (nextTS > maxTS) {
+		while (lastTS > maxTS) {
 			reserveNextBlock(maxTS);
+			maxTS = _maxReservedTimestamp;
 		}
-		_numTimestampsCreated.incrementAndGet(); // JMX metric
-		return nextTS;
+		_numTimestampsCreated.addAndGet(count); // JMX metric
+		return lastTS - (count - 1) * TIMESTAMP_INCREMENT;
 	}
 
     private void reserveNextBlock(long priorMaxReservedTimestamp) throws TimestampIOException {
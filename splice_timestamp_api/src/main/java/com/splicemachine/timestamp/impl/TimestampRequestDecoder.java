@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.timestamp.impl;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.handler.codec.frame.FrameDecoder;
+
+/**
+ * Frames the requests of one client connection, passing each on as its caller id followed by the
+ * number of timestamps requested.
+ * <p/>
+ * A request for a single timestamp is just the 2 byte caller id, as it has always been, so older
+ * clients keep working. Those use every caller id there is, so a request for a range of timestamps,
+ * marked by a negative caller id followed by the number of timestamps, is only understood once the
+ * client has said it sends them: by sending {@link TimestampServer#HELLO_CALLER_ID} as both of its first
+ * two requests, which an older client never does, since its caller ids count up. The first is answered
+ * like any request, in case it is one; the second with a timestamp of 0, which tells the client it may
+ * send ranges. An older server answers both with timestamps, and the client sticks to single requests.
+ * <p/>
+ * Not sharable, there has to be one per connection.
+ */
+public class TimestampRequestDecoder extends FrameDecoder {
+
+    private enum State {
+        FIRST, AFTER_HELLO, SINGLE, BATCHES
+    }
+
+    private State state = State.FIRST;
+
+    @Override
+    protected Object decode(ChannelHandlerContext ctx, Channel channel, ChannelBuffer buffer) throws Exception {
+        if (buffer.readableBytes() < TimestampServer.FIXED_MSG_RECEIVED_LENGTH) {
+            return null;
+        }
+        short callerId = buffer.getShort(buffer.readerIndex());
+        short count = 1;
+        switch (state) {
+            case FIRST:
+                state = callerId == TimestampServer.HELLO_CALLER_ID ? State.AFTER_HELLO : State.SINGLE;
+                break;
+            case AFTER_HELLO:
+                if (callerId == TimestampServer.HELLO_CALLER_ID) {
+                    state = State.BATCHES;
+                    count = 0;
+                } else {
+                    state = State.SINGLE;
+                }
+                break;
+            case BATCHES:
+                if (callerId < 0) {
+                    if (buffer.readableBytes() < TimestampServer.BATCH_MSG_RECEIVED_LENGTH) {
+                        return null;
+                    }
+                    count = buffer.getShort(buffer.readerIndex() + TimestampServer.FIXED_MSG_RECEIVED_LENGTH);
+                    buffer.skipBytes(TimestampServer.BATCH_MSG_RECEIVED_LENGTH - TimestampServer.FIXED_MSG_RECEIVED_LENGTH);
+                }
+                break;
+            default:
+                break;
+        }
+        buffer.skipBytes(TimestampServer.FIXED_MSG_RECEIVED_LENGTH);
+
+        ChannelBuffer request = ChannelBuffers.buffer(TimestampServer.BATCH_MSG_RECEIVED_LENGTH);
+        request.writeShort(callerId);
+        request.writeShort(count);
+        return request;
+    }
+}
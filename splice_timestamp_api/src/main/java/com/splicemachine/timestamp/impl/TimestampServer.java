@@ -31,14 +31,26 @@ public class TimestampServer {
     private static final Logger LOG = Logger.getLogger(TimestampServer.class);
 
     /**
-     * Fixed number of bytes in the message we expect to receive from the client.
+     * Fixed number of bytes in a request for a single timestamp.
      */
     static final int FIXED_MSG_RECEIVED_LENGTH = 2; // 2 byte client id
 
+    /**
+     * Fixed number of bytes in a request for a range of timestamps, only sent on connections
+     * set up for them. See {@link TimestampRequestDecoder}.
+     */
+    static final int BATCH_MSG_RECEIVED_LENGTH = 4; // 2 byte negative client id + 2 byte number of timestamps
+
+    /**
+     * Caller id a client sends twice in a row, as its first two requests on a connection,
+     * to find out whether the server takes requests for ranges of timestamps.
+     */
+    static final short HELLO_CALLER_ID = Short.MIN_VALUE;
+
     /**
      * Fixed number of bytes in the message we expect to send back to the client.
      */
-    static final int FIXED_MSG_SENT_LENGTH = 10; // 2 byte client id + 8 byte timestamp
+    static final int FIXED_MSG_SENT_LENGTH = 10; // 2 byte client id + 8 byte first timestamp of the range
 
     private int port;
     private ChannelFactory factory;
@@ -56,14 +56,30 @@ public class TimestampServerHandler extends TimestampBaseHandler {
 
         ChannelBuffer buf = (ChannelBuffer) e.getMessage();
         assert buf != null;
-        ensureReadableBytes(buf, TimestampServer.FIXED_MSG_RECEIVED_LENGTH);
+        // Framed by TimestampRequestDecoder, whatever the client sent
+        ensureReadableBytes(buf, TimestampServer.BATCH_MSG_RECEIVED_LENGTH);
 
         final short callerId = buf.readShort();
+        ensureReadableBytes(buf, 2);
+
+        // The client may coalesce concurrent callers into one request; they share a
+        // contiguous range of timestamps, of which we send back the first
+        short count = buf.readShort();
         ensureReadableBytes(buf, 0);
+        if (count < 0) {
+            throw new TimestampIOException("Invalid number of timestamps requested: " + count);
+        }
 
-        SpliceLogUtils.trace(LOG, "Received timestamp request from client. Caller id = %s", callerId);
-        long nextTimestamp = oracle.getNextTimestamp();
-        assert nextTimestamp > 0;
+        long nextTimestamp;
+        if (count == 0) {
+            // The client asked whether we take requests for ranges; a timestamp of 0 says we do
+            SpliceLogUtils.debug(LOG, "Client announced requests for ranges of timestamps");
+            nextTimestamp = 0L;
+        } else {
+            SpliceLogUtils.trace(LOG, "Received request for %s timestamps from client. Caller id = %s", count, callerId);
+            nextTimestamp = oracle.getNextTimestamps(count);
+            assert nextTimestamp > 0;
+        }
 
 
         //
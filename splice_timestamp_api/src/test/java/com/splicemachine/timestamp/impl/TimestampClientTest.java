@@ -19,11 +19,23 @@ package com.splicemachine.timestamp.impl;
 import com.splicemachine.timestamp.api.TimestampBlockManager;
 import com.splicemachine.timestamp.api.TimestampHostProvider;
 import com.splicemachine.timestamp.api.TimestampIOException;
+import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.MessageEvent;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.when;
 
@@ -65,12 +77,13 @@ public class TimestampClientTest {
     public void testExceptionDoesntLeaveUsedClientIds() throws Exception {
 
         TimestampServerHandler tsh = new TimestampServerHandler(Mockito.mock(TimestampBlockManager.class, Mockito.RETURNS_DEEP_STUBS), 1000) {
-            // Force an exception the first time a message is received on the server side
+            // Force an exception the first time a request is received on the server side
             
             boolean first = true;
             @Override
             public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
-                if (first) {
+                ChannelBuffer buf = (ChannelBuffer) e.getMessage();
+                if (first && buf.getShort(buf.readerIndex()) != TimestampServer.HELLO_CALLER_ID) {
                     first = false;
                     throw new RuntimeException("First call");
                 }
@@ -105,10 +118,63 @@ public class TimestampClientTest {
             e.printStackTrace();
         }
 
-        // Make sure we use all client ids and wrap around (64K)
+        // Make sure we use all client ids and wrap around (32K)
         for (int i = 0; i < 80000; ++i) {
             tc.getNextTimestamp();
         }
 
     }
+
+    @Test
+    public void testConcurrentRequestsGetUniqueIncreasingTimestamps() throws Exception {
+        TimestampServer ts = new TimestampServer(0, new TimestampServerHandler(Mockito.mock(TimestampBlockManager.class, Mockito.RETURNS_DEEP_STUBS), 10));
+        ts.startServer();
+
+        final int port = ts.getBoundPort();
+        TimestampHostProvider hostProvider = new TimestampHostProvider() {
+            @Override
+            public String getHost() {
+                return "localhost";
+            }
+            @Override
+            public int getPort() {
+                return port;
+            }
+        };
+        final TimestampClient tc = new TimestampClient(10000, hostProvider, 1);
+
+        int threads = 16;
+        final int requestsPerThread = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(new Callable<long[]>() {
+                @Override
+                public long[] call() throws Exception {
+                    long[] timestamps = new long[requestsPerThread];
+                    for (int i = 0; i < requestsPerThread; i++) {
+                        timestamps[i] = tc.getNextTimestamp();
+                    }
+                    return timestamps;
+                }
+            }));
+        }
+
+        Set<Long> seen = new HashSet<>();
+        for (Future<long[]> future : futures) {
+            long[] timestamps = future.get();
+            for (int i = 0; i < timestamps.length; i++) {
+                if (i > 0) {
+                    assertTrue("Timestamps must increase for a single caller", timestamps[i] > timestamps[i - 1]);
+                }
+                assertTrue("Duplicate timestamp " + timestamps[i], seen.add(timestamps[i]));
+            }
+        }
+        assertEquals(threads * requestsPerThread, tc.getNumberTimestampRequests());
+        // With a single request in flight, callers arriving meanwhile share the next round trip
+        assertTrue(tc.getAvgTimestampBatchSize() >= 1);
+
+        executor.shutdown();
+        ts.stopServer();
+    }
 }
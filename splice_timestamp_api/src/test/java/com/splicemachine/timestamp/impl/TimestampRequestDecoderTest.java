@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.timestamp.impl;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TimestampRequestDecoderTest {
+
+    private static ChannelBuffer frames(int... shorts) {
+        ChannelBuffer buffer = ChannelBuffers.buffer(2 * shorts.length);
+        for (int s : shorts) {
+            buffer.writeShort(s);
+        }
+        return buffer;
+    }
+
+    private static void assertRequest(Object decoded, int callerId, int count) {
+        ChannelBuffer request = (ChannelBuffer) decoded;
+        assertEquals(TimestampServer.BATCH_MSG_RECEIVED_LENGTH, request.readableBytes());
+        assertEquals((short) callerId, request.readShort());
+        assertEquals((short) count, request.readShort());
+    }
+
+    @Test
+    public void olderClientsOnlySendSingleRequests() throws Exception {
+        TimestampRequestDecoder decoder = new TimestampRequestDecoder();
+        ChannelBuffer in = frames(100, -5, 7, -2);
+        assertRequest(decoder.decode(null, null, in), 100, 1);
+        assertRequest(decoder.decode(null, null, in), -5, 1);
+        assertRequest(decoder.decode(null, null, in), 7, 1);
+        assertRequest(decoder.decode(null, null, in), -2, 1);
+        assertNull(decoder.decode(null, null, in));
+    }
+
+    @Test
+    public void olderClientStartingAtTheHelloIdStaysSingle() throws Exception {
+        TimestampRequestDecoder decoder = new TimestampRequestDecoder();
+        ChannelBuffer in = frames(Short.MIN_VALUE, Short.MIN_VALUE + 1, -3, 4);
+        assertRequest(decoder.decode(null, null, in), Short.MIN_VALUE, 1);
+        assertRequest(decoder.decode(null, null, in), Short.MIN_VALUE + 1, 1);
+        assertRequest(decoder.decode(null, null, in), -3, 1);
+        assertRequest(decoder.decode(null, null, in), 4, 1);
+    }
+
+    @Test
+    public void helloTwiceEnablesRanges() throws Exception {
+        TimestampRequestDecoder decoder = new TimestampRequestDecoder();
+        ChannelBuffer in = frames(TimestampServer.HELLO_CALLER_ID, TimestampServer.HELLO_CALLER_ID, 3, -10, 64);
+        assertRequest(decoder.decode(null, null, in), TimestampServer.HELLO_CALLER_ID, 1);
+        assertRequest(decoder.decode(null, null, in), TimestampServer.HELLO_CALLER_ID, 0);
+        assertRequest(decoder.decode(null, null, in), 3, 1);
+        assertRequest(decoder.decode(null, null, in), -10, 64);
+        assertNull(decoder.decode(null, null, in));
+    }
+
+    @Test
+    public void waitsForTheWholeRange() throws Exception {
+        TimestampRequestDecoder decoder = new TimestampRequestDecoder();
+        ChannelBuffer in = ChannelBuffers.dynamicBuffer();
+        in.writeBytes(frames(TimestampServer.HELLO_CALLER_ID, TimestampServer.HELLO_CALLER_ID, -1));
+        decoder.decode(null, null, in);
+        decoder.decode(null, null, in);
+        assertNull(decoder.decode(null, null, in));
+        assertEquals(2, in.readableBytes());
+        in.writeShort(12);
+        assertRequest(decoder.decode(null, null, in), -1, 12);
+    }
+}
@@ -16,6 +16,7 @@ package com.splicemachine.compression;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import org.apache.log4j.Logger;
 import org.xerial.snappy.OSInfo;
 import org.xerial.snappy.Snappy;
@@ -49,6 +50,14 @@ public class SpliceSnappy {
         }
     }
 
+    /**
+     * @return true if the native Snappy library is available. When it isn't, compress() and uncompress()
+     * return their input unchanged.
+     */
+    public static boolean isInstalled() {
+        return installed;
+    }
+
     public static int maxCompressedLength(int byteSize) {
         return installed ? Snappy.maxCompressedLength(byteSize) : byteSize;
     }
@@ -74,4 +83,13 @@ public class SpliceSnappy {
         }
         return bytes;
     }
+
+    public static byte[] uncompress(byte[] input, int inputOffset, int inputLength) throws IOException {
+        if (installed) {
+            byte[] output = new byte[Snappy.uncompressedLength(input, inputOffset, inputLength)];
+            Snappy.uncompress(input, inputOffset, inputLength, output, 0);
+            return output;
+        }
+        return Arrays.copyOfRange(input, inputOffset, inputOffset + inputLength);
+    }
 }
@@ -93,7 +93,7 @@ public class BalancedBlockingQueue<E> extends AbstractQueue<E> implements Blocki
         Level<E> firstLevel = new Level<E>(levelBound);
         Level<E> previousLevel = firstLevel;
         for(int i=1;i<numLevels;i++){
-            Level<E> currentLevel = new Level<E>(numLevels);
+            Level<E> currentLevel = new Level<E>(levelBound);
             previousLevel.next = currentLevel;
 
             previousLevel = currentLevel;
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.concurrent;
+
+/**
+ * The class of work a task belongs to, used to schedule tasks of short interactive statements ahead of
+ * those of long reports and batch jobs.
+ *
+ * A higher {@link #getPriority() priority} is fed first, but lower ones are never starved
+ * (see {@link BalancedBlockingQueue}).
+ */
+public enum WorkloadClass{
+    BATCH(1),
+    DEFAULT(2),
+    OLTP(3);
+
+    private static final ThreadLocal<WorkloadClass> CURRENT=new ThreadLocal<>();
+
+    private final int priority;
+
+    WorkloadClass(int priority){
+        this.priority=priority;
+    }
+
+    public int getPriority(){
+        return priority;
+    }
+
+    /**
+     * @return the workload class with the given name (case-insensitive), or {@code null} if there is none
+     */
+    public static WorkloadClass forName(String name){
+        if(name==null)
+            return null;
+        for(WorkloadClass workloadClass : values()){
+            if(workloadClass.name().equalsIgnoreCase(name.trim()))
+                return workloadClass;
+        }
+        return null;
+    }
+
+    /**
+     * @return the class of the task the current thread is executing, or {@link #DEFAULT} when it isn't
+     * executing a scheduled task.
+     */
+    public static WorkloadClass current(){
+        WorkloadClass workloadClass=CURRENT.get();
+        return workloadClass==null?DEFAULT:workloadClass;
+    }
+
+    /**
+     * @return {@code true} if the current thread is executing a task of a {@link WorkloadScheduler}
+     */
+    static boolean inScheduledTask(){
+        return CURRENT.get()!=null;
+    }
+
+    static void setCurrent(WorkloadClass workloadClass){
+        if(workloadClass==null)
+            CURRENT.remove();
+        else
+            CURRENT.set(workloadClass);
+    }
+}
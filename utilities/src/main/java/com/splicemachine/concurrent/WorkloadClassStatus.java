@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.concurrent;
+
+import javax.management.MXBean;
+
+/**
+ * Scheduling statistics and limits of one {@link WorkloadClass} in a {@link WorkloadScheduler}.
+ */
+@MXBean
+public interface WorkloadClassStatus{
+
+    String getWorkloadClass();
+
+    /**
+     * @return the maximum number of tasks of this class queued in or running on the scheduler's threads at once,
+     * or 0 if unlimited. Tasks over the limit wait in a separate queue of the class.
+     */
+    int getConcurrencyLimit();
+
+    void setConcurrencyLimit(int concurrencyLimit);
+
+    int getActiveTasks();
+
+    int getWaitingTasks();
+
+    long getTotalSubmittedTasks();
+
+    long getTotalCompletedTasks();
+
+    /**
+     * @return the average time between the submission of a task and the start of its execution, in milliseconds
+     */
+    double getAverageQueueTimeMs();
+
+    /**
+     * @return the longest time a task waited before it started executing, in milliseconds
+     */
+    double getMaxQueueTimeMs();
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ExecutorService which schedules tasks by {@link WorkloadClass}.
+ *
+ * Tasks run on a fixed number of threads. When all of them are busy, tasks wait in a {@link BalancedBlockingQueue},
+ * so tasks of a higher priority class are taken first, while lower priority classes still get a share of the threads
+ * which shrinks exponentially with the difference in priority. In addition, each class may be limited to a number of
+ * tasks in the pool at once; tasks over the limit wait in a FIFO queue of their class until one of its tasks
+ * completes, so a single class can't fill the pool queue.
+ *
+ * Tasks submitted by a task already running on this scheduler are executed directly by the submitting thread:
+ * a task waiting on another queued behind it could otherwise deadlock the pool.
+ *
+ * Tasks submitted through the plain {@link java.util.concurrent.ExecutorService} methods are scheduled with the
+ * class of the submitting thread ({@link WorkloadClass#current()}).
+ */
+public class WorkloadScheduler extends AbstractExecutorService{
+    private final ThreadPoolExecutor pool;
+    private final ClassState[] classStates;
+
+    public WorkloadScheduler(int numThreads,int levelBound,ThreadFactory threadFactory){
+        WorkloadClass[] workloadClasses=WorkloadClass.values();
+        BalancedBlockingQueue<Runnable> queue=new BalancedBlockingQueue<>(workloadClasses.length,levelBound,
+                new BalancedBlockingQueue.PriorityFunction<Runnable>(){
+                    @Override
+                    public int getPriority(Runnable item){
+                        return ((ScheduledTask)item).state.workloadClass.getPriority();
+                    }
+                });
+        this.pool=new ThreadPoolExecutor(numThreads,numThreads,60L,TimeUnit.SECONDS,queue,threadFactory);
+        this.pool.allowCoreThreadTimeOut(true);
+        this.classStates=new ClassState[workloadClasses.length];
+        for(WorkloadClass workloadClass : workloadClasses){
+            classStates[workloadClass.ordinal()]=new ClassState(workloadClass);
+        }
+    }
+
+    public void setConcurrencyLimit(WorkloadClass workloadClass,int concurrencyLimit){
+        classStates[workloadClass.ordinal()].setConcurrencyLimit(concurrencyLimit);
+    }
+
+    public WorkloadClassStatus getStatus(WorkloadClass workloadClass){
+        return classStates[workloadClass.ordinal()];
+    }
+
+    public <T> Future<T> submit(WorkloadClass workloadClass,Callable<T> task){
+        RunnableFuture<T> future=newTaskFor(task);
+        execute(workloadClass,future);
+        return future;
+    }
+
+    public Future<?> submit(WorkloadClass workloadClass,Runnable task){
+        RunnableFuture<Void> future=newTaskFor(task,null);
+        execute(workloadClass,future);
+        return future;
+    }
+
+    @Override
+    public void execute(Runnable command){
+        execute(WorkloadClass.current(),command);
+    }
+
+    public void execute(WorkloadClass workloadClass,Runnable command){
+        if(WorkloadClass.inScheduledTask()){
+            command.run();
+            return;
+        }
+        classStates[workloadClass.ordinal()].submit(new ScheduledTask(classStates[workloadClass.ordinal()],command));
+    }
+
+    @Override
+    public void shutdown(){
+        pool.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow(){
+        return pool.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown(){
+        return pool.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated(){
+        return pool.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout,TimeUnit unit) throws InterruptedException{
+        return pool.awaitTermination(timeout,unit);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    private final class ScheduledTask implements Runnable{
+        private final ClassState state;
+        private final Runnable delegate;
+        private final long submitTime=System.nanoTime();
+
+        private ScheduledTask(ClassState state,Runnable delegate){
+            this.state=state;
+            this.delegate=delegate;
+        }
+
+        @Override
+        public void run(){
+            state.started(System.nanoTime()-submitTime);
+            WorkloadClass.setCurrent(state.workloadClass);
+            try{
+                delegate.run();
+            }finally{
+                WorkloadClass.setCurrent(null);
+                state.completed();
+            }
+        }
+    }
+
+    private final class ClassState implements WorkloadClassStatus{
+        private final WorkloadClass workloadClass;
+        private final ArrayDeque<ScheduledTask> waiting=new ArrayDeque<>();
+        private volatile int concurrencyLimit;
+        private int active; //guarded by this
+
+        private final AtomicLong submitted=new AtomicLong(0L);
+        private final AtomicLong started=new AtomicLong(0L);
+        private final AtomicLong completed=new AtomicLong(0L);
+        private final AtomicLong totalQueueTime=new AtomicLong(0L);
+        private final AtomicLong maxQueueTime=new AtomicLong(0L);
+
+        private ClassState(WorkloadClass workloadClass){
+            this.workloadClass=workloadClass;
+        }
+
+        void submit(ScheduledTask task){
+            submitted.incrementAndGet();
+            synchronized(this){
+                int limit=concurrencyLimit;
+                if(limit>0 && active>=limit){
+                    waiting.add(task);
+                    return;
+                }
+                active++;
+            }
+            dispatch(task);
+        }
+
+        void started(long queueTime){
+            started.incrementAndGet();
+            totalQueueTime.addAndGet(queueTime);
+            long max;
+            do{
+                max=maxQueueTime.get();
+            }while(queueTime>max && !maxQueueTime.compareAndSet(max,queueTime));
+        }
+
+        void completed(){
+            ScheduledTask next;
+            synchronized(this){
+                int limit=concurrencyLimit;
+                next=(limit<=0 || active<=limit)?waiting.poll():null;
+                if(next==null)
+                    active--;
+            }
+            completed.incrementAndGet();
+            if(next!=null)
+                dispatch(next);
+        }
+
+        private void dispatch(ScheduledTask task){
+            try{
+                pool.execute(task);
+            }catch(RejectedExecutionException ree){
+                synchronized(this){
+                    active--;
+                }
+                throw ree;
+            }
+        }
+
+        @Override public String getWorkloadClass(){ return workloadClass.name(); }
+        @Override public int getConcurrencyLimit(){ return concurrencyLimit; }
+
+        @Override
+        public void setConcurrencyLimit(int concurrencyLimit){
+            List<ScheduledTask> released=new ArrayList<>();
+            synchronized(this){
+                this.concurrencyLimit=concurrencyLimit;
+                while(!waiting.isEmpty() && (concurrencyLimit<=0 || active<concurrencyLimit)){
+                    released.add(waiting.poll());
+                    active++;
+                }
+            }
+            for(ScheduledTask task : released){
+                dispatch(task);
+            }
+        }
+
+        @Override public synchronized int getActiveTasks(){ return active; }
+        @Override public synchronized int getWaitingTasks(){ return waiting.size(); }
+        @Override public long getTotalSubmittedTasks(){ return submitted.get(); }
+        @Override public long getTotalCompletedTasks(){ return completed.get(); }
+
+        @Override
+        public double getAverageQueueTimeMs(){
+            long startedTasks=started.get();
+            if(startedTasks==0)
+                return 0d;
+            return totalQueueTime.get()/(double)startedTasks/TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        @Override
+        public double getMaxQueueTimeMs(){
+            return maxQueueTime.get()/(double)TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
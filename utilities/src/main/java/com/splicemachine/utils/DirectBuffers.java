@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.utils;
+
+import org.apache.log4j.Logger;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Releases the native memory behind direct {@link ByteBuffer}s without waiting for the garbage collector.
+ *
+ * A direct buffer's memory is normally only returned once the buffer object is collected, which for long-lived
+ * heaps with little allocation pressure can take arbitrarily long. Callers which know a buffer (and every view of
+ * it) is no longer used can free it eagerly with {@link #free(ByteBuffer)}. Accessing a buffer after it has been
+ * freed crashes the JVM, so this must only be used under strict ownership.
+ */
+public class DirectBuffers{
+    private static final Logger LOG = Logger.getLogger(DirectBuffers.class);
+
+    private static final Method INVOKE_CLEANER; // Java 9+: Unsafe.invokeCleaner(ByteBuffer)
+    private static final Method CLEANER; // Java 8: DirectBuffer.cleaner()
+    private static final Method CLEAN; // Java 8: Cleaner.clean()
+
+    static{
+        Method invokeCleaner = null;
+        Method cleaner = null;
+        Method clean = null;
+        try{
+            invokeCleaner = UnsafeUtil.unsafe().getClass().getMethod("invokeCleaner",ByteBuffer.class);
+        }catch(Exception e){
+            try{
+                cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+                clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            }catch(Exception ce){
+                LOG.warn("Unable to free direct buffers explicitly, they will be released by the garbage collector",ce);
+            }
+        }
+        INVOKE_CLEANER = invokeCleaner;
+        CLEANER = cleaner;
+        CLEAN = clean;
+    }
+
+    private DirectBuffers(){}
+
+    /**
+     * Frees the native memory of {@code buffer}. Heap buffers, and buffers which are views (slices or
+     * duplicates) of another buffer, are left to the garbage collector.
+     *
+     * @param buffer a direct buffer which is no longer referenced by anyone
+     */
+    public static void free(ByteBuffer buffer){
+        if(buffer==null || !buffer.isDirect())
+            return;
+        try{
+            if(INVOKE_CLEANER!=null){
+                INVOKE_CLEANER.invoke(UnsafeUtil.unsafe(),buffer);
+            }else if(CLEANER!=null){
+                Object cleaner = CLEANER.invoke(buffer);
+                if(cleaner!=null)
+                    CLEAN.invoke(cleaner);
+            }
+        }catch(Exception e){
+            // views of another buffer can't be freed directly; the owner's memory is released with the owner
+            if(LOG.isDebugEnabled())
+                LOG.debug("Unable to free direct buffer",e);
+        }
+    }
+}
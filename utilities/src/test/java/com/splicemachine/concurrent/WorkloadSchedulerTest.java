@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.concurrent;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class WorkloadSchedulerTest{
+    private WorkloadScheduler scheduler;
+
+    @After
+    public void tearDown() throws Exception{
+        if(scheduler!=null){
+            scheduler.shutdownNow();
+            scheduler.awaitTermination(10,TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void queuedTasksRunInPriorityOrder() throws Exception{
+        scheduler=new WorkloadScheduler(1,4,Executors.defaultThreadFactory());
+        CountDownLatch blocker=new CountDownLatch(1);
+        scheduler.submit(WorkloadClass.OLTP,await(blocker));
+
+        final List<WorkloadClass> order=Collections.synchronizedList(new ArrayList<WorkloadClass>());
+        List<Future<?>> futures=new ArrayList<>();
+        for(WorkloadClass workloadClass : Arrays.asList(WorkloadClass.BATCH,WorkloadClass.DEFAULT,WorkloadClass.OLTP)){
+            futures.add(scheduler.submit(workloadClass,new Runnable(){
+                @Override
+                public void run(){
+                    order.add(WorkloadClass.current());
+                }
+            }));
+        }
+        blocker.countDown();
+        for(Future<?> future : futures){
+            future.get(10,TimeUnit.SECONDS);
+        }
+
+        Assert.assertEquals(Arrays.asList(WorkloadClass.OLTP,WorkloadClass.DEFAULT,WorkloadClass.BATCH),order);
+    }
+
+    @Test
+    public void tasksOverTheConcurrencyLimitWait() throws Exception{
+        scheduler=new WorkloadScheduler(4,4,Executors.defaultThreadFactory());
+        scheduler.setConcurrencyLimit(WorkloadClass.BATCH,1);
+        CountDownLatch blocker=new CountDownLatch(1);
+        List<Future<?>> futures=new ArrayList<>();
+        for(int i=0;i<3;i++){
+            futures.add(scheduler.submit(WorkloadClass.BATCH,await(blocker)));
+        }
+
+        WorkloadClassStatus status=scheduler.getStatus(WorkloadClass.BATCH);
+        Assert.assertEquals(1,status.getActiveTasks());
+        Assert.assertEquals(2,status.getWaitingTasks());
+
+        //other classes aren't held back by the limit
+        Assert.assertEquals("other",scheduler.submit(WorkloadClass.OLTP,new Callable<String>(){
+            @Override
+            public String call(){
+                return "other";
+            }
+        }).get(10,TimeUnit.SECONDS));
+
+        blocker.countDown();
+        for(Future<?> future : futures){
+            future.get(10,TimeUnit.SECONDS);
+        }
+        //a task's future is done slightly before the task counts as completed
+        long deadline=System.currentTimeMillis()+10000;
+        while(status.getTotalCompletedTasks()<3 && System.currentTimeMillis()<deadline){
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(0,status.getWaitingTasks());
+        Assert.assertEquals(0,status.getActiveTasks());
+        Assert.assertEquals(3,status.getTotalSubmittedTasks());
+        Assert.assertEquals(3,status.getTotalCompletedTasks());
+    }
+
+    @Test
+    public void nestedTasksRunInline() throws Exception{
+        scheduler=new WorkloadScheduler(1,4,Executors.defaultThreadFactory());
+        Future<WorkloadClass> outer=scheduler.submit(WorkloadClass.BATCH,new Callable<WorkloadClass>(){
+            @Override
+            public WorkloadClass call() throws Exception{
+                return scheduler.submit(WorkloadClass.OLTP,new Callable<WorkloadClass>(){
+                    @Override
+                    public WorkloadClass call(){
+                        return WorkloadClass.current();
+                    }
+                }).get(10,TimeUnit.SECONDS);
+            }
+        });
+
+        Assert.assertEquals(WorkloadClass.BATCH,outer.get(10,TimeUnit.SECONDS));
+    }
+
+    private static Runnable await(final CountDownLatch latch){
+        return new Runnable(){
+            @Override
+            public void run(){
+                try{
+                    latch.await();
+                }catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+}